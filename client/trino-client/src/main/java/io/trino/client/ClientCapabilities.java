@@ -23,5 +23,11 @@ public enum ClientCapabilities
     //   time(p) without time zone
     //   interval X(p1) to Y(p2)
     // When this capability is not set, the server returns datetime types with precision = 3
-    PARAMETRIC_DATETIME;
+    PARAMETRIC_DATETIME,
+    // Whether clients support the binary columnar encoding of result data, see ColumnarData
+    // When this capability is not set, the server returns rows of JSON values only
+    COLUMNAR_DATA,
+    // Whether clients support fetching result data from result segments, see QueryResults.getSegments()
+    // The server only returns segments when enabled for the query with the result_segments_enabled session property
+    SEGMENTED_DATA;
 }
@@ -0,0 +1,227 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.client;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.trino.client.ClientStandardTypes.BIGINT;
+import static io.trino.client.ClientStandardTypes.BOOLEAN;
+import static io.trino.client.ClientStandardTypes.DOUBLE;
+import static io.trino.client.ClientStandardTypes.INTEGER;
+import static io.trino.client.ClientStandardTypes.REAL;
+import static io.trino.client.ClientStandardTypes.SMALLINT;
+import static io.trino.client.ClientStandardTypes.TINYINT;
+import static io.trino.client.ClientStandardTypes.VARBINARY;
+import static io.trino.client.ClientStandardTypes.VARCHAR;
+import static java.lang.Math.toIntExact;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Binary columnar encoding of result data, used instead of the JSON {@code data} rows when the client
+ * advertises {@link ClientCapabilities#COLUMNAR_DATA} and all the result columns have a supported type.
+ * <p>
+ * The layout is little endian:
+ * <pre>
+ * int rowCount
+ * for each column:
+ *   byte hasNulls
+ *   byte[rowCount] isNull (only when hasNulls is 1)
+ *   fixed width types: value[rowCount] (1, 2, 4 or 8 bytes per value, zero for nulls)
+ *   variable width types: int[rowCount + 1] offsets, followed by the value bytes
+ * </pre>
+ * Decoded rows are views over the encoded buffer, so values are only materialized when accessed.
+ */
+public final class ColumnarData
+{
+    private static final Set<String> SUPPORTED_TYPES = ImmutableSet.of(BOOLEAN, TINYINT, SMALLINT, INTEGER, BIGINT, REAL, DOUBLE, VARCHAR, VARBINARY);
+
+    private ColumnarData() {}
+
+    public static boolean isSupported(List<Column> columns)
+    {
+        return columns.stream()
+                .map(column -> column.getTypeSignature().getRawType())
+                .allMatch(SUPPORTED_TYPES::contains);
+    }
+
+    public static int getFixedWidth(String rawType)
+    {
+        switch (rawType) {
+            case BOOLEAN:
+            case TINYINT:
+                return Byte.BYTES;
+            case SMALLINT:
+                return Short.BYTES;
+            case INTEGER:
+            case REAL:
+                return Integer.BYTES;
+            case BIGINT:
+            case DOUBLE:
+                return Long.BYTES;
+            case VARCHAR:
+            case VARBINARY:
+                return 0;
+            default:
+                throw new IllegalArgumentException("Unsupported type for columnar data: " + rawType);
+        }
+    }
+
+    public static Iterable<List<Object>> decode(List<Column> columns, byte[] data)
+    {
+        requireNonNull(columns, "columns is null");
+        requireNonNull(data, "data is null");
+        checkArgument(isSupported(columns), "Columns are not supported by columnar data: %s", columns);
+
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(LITTLE_ENDIAN);
+        int rowCount = buffer.getInt(0);
+        int position = Integer.BYTES;
+        ColumnReader[] readers = new ColumnReader[columns.size()];
+        for (int column = 0; column < columns.size(); column++) {
+            readers[column] = new ColumnReader(buffer, columns.get(column).getTypeSignature().getRawType(), position, rowCount);
+            position = readers[column].getEnd();
+        }
+        checkArgument(position == data.length, "Columnar data has unexpected size, expected %s, but was %s", position, data.length);
+
+        return new AbstractList<List<Object>>()
+        {
+            @Override
+            public List<Object> get(int row)
+            {
+                return new ColumnarRow(readers, row);
+            }
+
+            @Override
+            public int size()
+            {
+                return rowCount;
+            }
+        };
+    }
+
+    private static class ColumnarRow
+            extends AbstractList<Object>
+            implements RandomAccess
+    {
+        private final ColumnReader[] readers;
+        private final int row;
+
+        private ColumnarRow(ColumnReader[] readers, int row)
+        {
+            this.readers = readers;
+            this.row = row;
+        }
+
+        @Override
+        public Object get(int column)
+        {
+            return readers[column].get(row);
+        }
+
+        @Override
+        public int size()
+        {
+            return readers.length;
+        }
+    }
+
+    private static class ColumnReader
+    {
+        private final ByteBuffer buffer;
+        private final String rawType;
+        private final int rowCount;
+        private final int nullsOffset;
+        private final int valuesOffset;
+        private final int end;
+
+        private ColumnReader(ByteBuffer buffer, String rawType, int offset, int rowCount)
+        {
+            this.buffer = buffer;
+            this.rawType = rawType;
+            this.rowCount = rowCount;
+
+            boolean hasNulls = buffer.get(offset) != 0;
+            offset += Byte.BYTES;
+            this.nullsOffset = hasNulls ? offset : -1;
+            if (hasNulls) {
+                offset += rowCount;
+            }
+            this.valuesOffset = offset;
+
+            int fixedWidth = getFixedWidth(rawType);
+            if (fixedWidth > 0) {
+                this.end = toIntExact(valuesOffset + (long) fixedWidth * rowCount);
+            }
+            else {
+                int offsetsSize = Integer.BYTES * (rowCount + 1);
+                this.end = valuesOffset + offsetsSize + buffer.getInt(valuesOffset + Integer.BYTES * rowCount);
+            }
+        }
+
+        public int getEnd()
+        {
+            return end;
+        }
+
+        public Object get(int row)
+        {
+            checkArgument(row >= 0 && row < rowCount, "Invalid row: %s", row);
+            if (nullsOffset >= 0 && buffer.get(nullsOffset + row) != 0) {
+                return null;
+            }
+            switch (rawType) {
+                case BOOLEAN:
+                    return buffer.get(valuesOffset + row) != 0;
+                case TINYINT:
+                    return buffer.get(valuesOffset + row);
+                case SMALLINT:
+                    return buffer.getShort(valuesOffset + Short.BYTES * row);
+                case INTEGER:
+                    return buffer.getInt(valuesOffset + Integer.BYTES * row);
+                case REAL:
+                    return buffer.getFloat(valuesOffset + Integer.BYTES * row);
+                case BIGINT:
+                    return buffer.getLong(valuesOffset + Long.BYTES * row);
+                case DOUBLE:
+                    return buffer.getDouble(valuesOffset + Long.BYTES * row);
+                case VARCHAR:
+                    return new String(buffer.array(), getSliceStart(row), getSliceLength(row), UTF_8);
+                case VARBINARY:
+                    byte[] value = new byte[getSliceLength(row)];
+                    System.arraycopy(buffer.array(), getSliceStart(row), value, 0, value.length);
+                    return value;
+                default:
+                    throw new IllegalArgumentException("Unsupported type for columnar data: " + rawType);
+            }
+        }
+
+        private int getSliceStart(int row)
+        {
+            return valuesOffset + Integer.BYTES * (rowCount + 1) + buffer.getInt(valuesOffset + Integer.BYTES * row);
+        }
+
+        private int getSliceLength(int row)
+        {
+            return buffer.getInt(valuesOffset + Integer.BYTES * (row + 1)) - buffer.getInt(valuesOffset + Integer.BYTES * row);
+        }
+    }
+}
@@ -40,6 +40,9 @@ public class QueryResults
     private final URI nextUri;
     private final List<Column> columns;
     private final Iterable<List<Object>> data;
+    private final byte[] columnarData;
+    private final List<URI> segments;
+    private final Boolean segmentsOrdered;
     private final StatementStats stats;
     private final QueryError error;
     private final List<Warning> warnings;
@@ -54,6 +57,9 @@ public class QueryResults
             @JsonProperty("nextUri") URI nextUri,
             @JsonProperty("columns") List<Column> columns,
             @JsonProperty("data") List<List<Object>> data,
+            @JsonProperty("columnarData") byte[] columnarData,
+            @JsonProperty("segments") List<URI> segments,
+            @JsonProperty("segmentsOrdered") Boolean segmentsOrdered,
             @JsonProperty("stats") StatementStats stats,
             @JsonProperty("error") QueryError error,
             @JsonProperty("warnings") List<Warning> warnings,
@@ -66,7 +72,10 @@ public class QueryResults
                 partialCancelUri,
                 nextUri,
                 columns,
-                fixData(columns, data),
+                (columnarData != null) ? ColumnarData.decode(requireNonNull(columns, "columns is null"), columnarData) : fixData(columns, data),
+                null,
+                segments,
+                segmentsOrdered,
                 stats,
                 error,
                 firstNonNull(warnings, ImmutableList.of()),
@@ -86,6 +95,25 @@ public class QueryResults
             List<Warning> warnings,
             String updateType,
             Long updateCount)
+    {
+        this(id, infoUri, partialCancelUri, nextUri, columns, data, null, null, null, stats, error, warnings, updateType, updateCount);
+    }
+
+    public QueryResults(
+            String id,
+            URI infoUri,
+            URI partialCancelUri,
+            URI nextUri,
+            List<Column> columns,
+            Iterable<List<Object>> data,
+            byte[] columnarData,
+            List<URI> segments,
+            Boolean segmentsOrdered,
+            StatementStats stats,
+            QueryError error,
+            List<Warning> warnings,
+            String updateType,
+            Long updateCount)
     {
         this.id = requireNonNull(id, "id is null");
         this.infoUri = requireNonNull(infoUri, "infoUri is null");
@@ -93,7 +121,14 @@ public class QueryResults
         this.nextUri = nextUri;
         this.columns = (columns != null) ? ImmutableList.copyOf(columns) : null;
         this.data = (data != null) ? unmodifiableIterable(data) : null;
+        this.columnarData = columnarData;
         checkArgument(data == null || columns != null, "data present without columns");
+        checkArgument(columnarData == null || columns != null, "columnar data present without columns");
+        checkArgument(data == null || columnarData == null, "data and columnar data are both present");
+        this.segments = (segments != null) ? ImmutableList.copyOf(segments) : null;
+        this.segmentsOrdered = segmentsOrdered;
+        checkArgument(segments == null || columns != null, "segments present without columns");
+        checkArgument((segments == null) == (segmentsOrdered == null), "segments and segmentsOrdered must be present at the same time");
         this.stats = requireNonNull(stats, "stats is null");
         this.error = error;
         this.warnings = ImmutableList.copyOf(requireNonNull(warnings, "warnings is null"));
@@ -147,6 +182,37 @@ public class QueryResults
         return data;
     }
 
+    /**
+     * Result data in the {@link ColumnarData} encoding. Clients receive it through {@link #getData()} in decoded form.
+     */
+    @Nullable
+    @JsonProperty
+    public byte[] getColumnarData()
+    {
+        return columnarData;
+    }
+
+    /**
+     * URIs of result segments, which contain the result data instead of {@link #getData()} for clients that advertise
+     * {@link ClientCapabilities#SEGMENTED_DATA}. Segments can be fetched concurrently, and each segment can be fetched once.
+     */
+    @Nullable
+    @JsonProperty
+    public List<URI> getSegments()
+    {
+        return segments;
+    }
+
+    /**
+     * Whether the order of rows across the segments is significant, e.g. for queries with ORDER BY
+     */
+    @Nullable
+    @JsonProperty
+    public Boolean getSegmentsOrdered()
+    {
+        return segmentsOrdered;
+    }
+
     @JsonProperty
     @Override
     public StatementStats getStats()
@@ -194,7 +260,8 @@ public class QueryResults
                 .add("partialCancelUri", partialCancelUri)
                 .add("nextUri", nextUri)
                 .add("columns", columns)
-                .add("hasData", data != null)
+                .add("hasData", data != null || columnarData != null)
+                .add("segments", segments)
                 .add("stats", stats)
                 .add("error", error)
                 .add("updateType", updateType)
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.client;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import java.util.List;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Iterables.unmodifiableIterable;
+import static io.trino.client.FixJsonDataUtils.fixData;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Part of the result data of a query, fetched from one of the {@link QueryResults#getSegments()} URIs.
+ */
+@Immutable
+public class ResultSegment
+{
+    private final Iterable<List<Object>> data;
+    private final byte[] columnarData;
+
+    @JsonCreator
+    public ResultSegment(
+            @JsonProperty("data") List<List<Object>> data,
+            @JsonProperty("columnarData") byte[] columnarData)
+    {
+        this((Iterable<List<Object>>) data, columnarData);
+    }
+
+    public ResultSegment(Iterable<List<Object>> data, byte[] columnarData)
+    {
+        checkArgument(data == null || columnarData == null, "data and columnar data are both present");
+        this.data = (data != null) ? unmodifiableIterable(data) : null;
+        this.columnarData = columnarData;
+    }
+
+    @Nullable
+    @JsonProperty
+    public Iterable<List<Object>> getData()
+    {
+        return data;
+    }
+
+    @Nullable
+    @JsonProperty
+    public byte[] getColumnarData()
+    {
+        return columnarData;
+    }
+
+    /**
+     * Returns the rows of the segment with values of the expected Java types for the columns.
+     */
+    @Nullable
+    public Iterable<List<Object>> decode(List<Column> columns)
+    {
+        requireNonNull(columns, "columns is null");
+        if (columnarData != null) {
+            return ColumnarData.decode(columns, columnarData);
+        }
+        return fixData(columns, data);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("hasData", data != null)
+                .add("hasColumnarData", columnarData != null)
+                .toString();
+    }
+}
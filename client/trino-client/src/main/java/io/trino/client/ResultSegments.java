@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.client;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import io.airlift.json.JsonCodec;
+import io.airlift.units.Duration;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static java.lang.String.format;
+import static java.net.HttpURLConnection.HTTP_OK;
+import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Rows of result segments, which are downloaded concurrently as soon as this is created.
+ * When the order of the segments is significant, e.g. for queries with ORDER BY, rows are
+ * returned in segment order. Otherwise, segments are returned in the order they are downloaded.
+ * As with the query results, failed downloads are retried until the request timeout elapses.
+ */
+class ResultSegments
+        implements Iterable<List<Object>>
+{
+    private static final JsonCodec<ResultSegment> RESULT_SEGMENT_CODEC = jsonCodec(ResultSegment.class);
+
+    private final List<CompletableFuture<Iterable<List<Object>>>> segments;
+    private final boolean ordered;
+
+    public ResultSegments(OkHttpClient httpClient, Function<URI, Request> requestFactory, List<Column> columns, List<URI> segmentUris, boolean ordered, Duration requestTimeout)
+    {
+        requireNonNull(httpClient, "httpClient is null");
+        requireNonNull(requestFactory, "requestFactory is null");
+        requireNonNull(columns, "columns is null");
+        requireNonNull(segmentUris, "segmentUris is null");
+        requireNonNull(requestTimeout, "requestTimeout is null");
+
+        ImmutableList.Builder<CompletableFuture<Iterable<List<Object>>>> segments = ImmutableList.builder();
+        for (URI segmentUri : segmentUris) {
+            Request request = requestFactory.apply(segmentUri);
+            segments.add(CompletableFuture.supplyAsync(() -> fetchSegment(httpClient, request, columns, requestTimeout), httpClient.dispatcher().executorService()));
+        }
+        this.segments = segments.build();
+        this.ordered = ordered;
+    }
+
+    @Override
+    public Iterator<List<Object>> iterator()
+    {
+        Iterator<CompletableFuture<Iterable<List<Object>>>> segments = ordered ? this.segments.iterator() : inCompletionOrder(this.segments);
+        return Iterators.concat(Iterators.transform(segments, segment -> getSegmentRows(segment).iterator()));
+    }
+
+    private static Iterable<List<Object>> fetchSegment(OkHttpClient httpClient, Request request, List<Column> columns, Duration requestTimeout)
+    {
+        Exception cause = null;
+        long start = System.nanoTime();
+        long attempts = 0;
+
+        while (true) {
+            Duration sinceStart = Duration.nanosSince(start);
+            if (attempts > 0 && sinceStart.compareTo(requestTimeout) > 0) {
+                throw new ClientException(format("Error fetching result segment at %s (attempts: %s, duration: %s)", request.url(), attempts, sinceStart), cause);
+            }
+
+            if (attempts > 0) {
+                // back-off on retry
+                try {
+                    MILLISECONDS.sleep(attempts * 100);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ClientException("Interrupted while fetching result segment", e);
+                }
+            }
+            attempts++;
+
+            JsonResponse<ResultSegment> response;
+            try {
+                response = JsonResponse.execute(RESULT_SEGMENT_CODEC, httpClient, request);
+            }
+            catch (RuntimeException e) {
+                cause = e;
+                continue;
+            }
+
+            if ((response.getStatusCode() == HTTP_OK) && response.hasValue()) {
+                Iterable<List<Object>> rows = response.getValue().decode(columns);
+                return (rows != null) ? rows : Collections.emptyList();
+            }
+
+            if (response.getStatusCode() != HTTP_UNAVAILABLE) {
+                throw new ClientException(format("Error fetching result segment at %s returned HTTP %s", request.url(), response.getStatusCode()), response.getException());
+            }
+        }
+    }
+
+    private static Iterable<List<Object>> getSegmentRows(CompletableFuture<Iterable<List<Object>>> segment)
+    {
+        try {
+            return segment.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ClientException("Error fetching result segment", e.getCause());
+        }
+    }
+
+    private static <T> Iterator<CompletableFuture<T>> inCompletionOrder(List<CompletableFuture<T>> futures)
+    {
+        List<CompletableFuture<T>> remaining = new ArrayList<>(futures);
+        return new AbstractIterator<CompletableFuture<T>>()
+        {
+            @Override
+            protected CompletableFuture<T> computeNext()
+            {
+                if (remaining.isEmpty()) {
+                    return endOfData();
+                }
+                // wait for any of the remaining futures, whether it succeeds or fails
+                CompletableFuture.anyOf(remaining.toArray(new CompletableFuture<?>[0]))
+                        .handle((value, throwable) -> null)
+                        .join();
+                for (Iterator<CompletableFuture<T>> iterator = remaining.iterator(); iterator.hasNext(); ) {
+                    CompletableFuture<T> future = iterator.next();
+                    if (future.isDone()) {
+                        iterator.remove();
+                        return future;
+                    }
+                }
+                throw new IllegalStateException("No result segment is done");
+            }
+        };
+    }
+}
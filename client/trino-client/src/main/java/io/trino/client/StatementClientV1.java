@@ -431,6 +431,22 @@ class StatementClientV1
             clearTransactionId.set(true);
         }
 
+        if (results.getSegments() != null) {
+            // start fetching the result segments, so they are downloaded concurrently while the client proceeds
+            results = new QueryResults(
+                    results.getId(),
+                    results.getInfoUri(),
+                    results.getPartialCancelUri(),
+                    results.getNextUri(),
+                    results.getColumns(),
+                    new ResultSegments(httpClient, uri -> prepareRequest(HttpUrl.get(uri)).build(), results.getColumns(), results.getSegments(), results.getSegmentsOrdered(), requestTimeoutNanos),
+                    results.getStats(),
+                    results.getError(),
+                    results.getWarnings(),
+                    results.getUpdateType(),
+                    results.getUpdateCount());
+        }
+
         currentResults.set(results);
     }
 
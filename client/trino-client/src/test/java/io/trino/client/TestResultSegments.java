@@ -0,0 +1,151 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.client;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.Duration;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static com.google.common.net.MediaType.JSON_UTF_8;
+import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
+import static java.net.HttpURLConnection.HTTP_OK;
+import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Test(singleThreaded = true)
+public class TestResultSegments
+{
+    private static final List<Column> COLUMNS = ImmutableList.of(new Column("value", "bigint", new ClientTypeSignature("bigint")));
+
+    private MockWebServer server;
+    private OkHttpClient httpClient;
+    private AtomicInteger unavailableResponses;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup()
+            throws Exception
+    {
+        unavailableResponses = new AtomicInteger();
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher()
+        {
+            @Override
+            public MockResponse dispatch(RecordedRequest request)
+            {
+                switch (request.getPath()) {
+                    case "/segment/0":
+                        // the first segment is the slowest to download
+                        return jsonResponse("{\"data\":[[1],[2]]}").setBodyDelay(500, MILLISECONDS);
+                    case "/segment/1":
+                        return jsonResponse("{\"data\":[[3]]}");
+                    case "/segment/2":
+                        return jsonResponse("{}");
+                    case "/segment/4":
+                        // the segment is unavailable on the first attempt
+                        if (unavailableResponses.getAndIncrement() == 0) {
+                            return new MockResponse().setResponseCode(HTTP_UNAVAILABLE);
+                        }
+                        return jsonResponse("{\"data\":[[4]]}");
+                    default:
+                        return new MockResponse().setResponseCode(HTTP_NOT_FOUND);
+                }
+            }
+        });
+        server.start();
+        httpClient = new OkHttpClient();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+            throws IOException
+    {
+        server.close();
+        server = null;
+        httpClient = null;
+        unavailableResponses = null;
+    }
+
+    @Test
+    public void testOrdered()
+    {
+        ResultSegments rows = resultSegments(ImmutableList.of(segmentUri(0), segmentUri(1), segmentUri(2)), true);
+
+        assertThat(rows).containsExactly(ImmutableList.of(1L), ImmutableList.of(2L), ImmutableList.of(3L));
+        assertThat(server.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testUnordered()
+    {
+        ResultSegments rows = resultSegments(ImmutableList.of(segmentUri(0), segmentUri(1), segmentUri(2)), false);
+
+        // rows of the faster segments are returned before those of the slow first segment
+        assertThat(rows).containsExactly(ImmutableList.of(3L), ImmutableList.of(1L), ImmutableList.of(2L));
+    }
+
+    @Test
+    public void testSegmentNotFound()
+    {
+        ResultSegments rows = resultSegments(ImmutableList.of(segmentUri(1), segmentUri(3)), true);
+
+        assertThatThrownBy(() -> ImmutableList.copyOf(rows))
+                .isInstanceOf(ClientException.class)
+                .hasMessageContaining("returned HTTP 404");
+    }
+
+    @Test
+    public void testRetryUnavailableSegment()
+    {
+        ResultSegments rows = resultSegments(ImmutableList.of(segmentUri(1), segmentUri(4)), true);
+
+        assertThat(rows).containsExactly(ImmutableList.of(3L), ImmutableList.of(4L));
+        assertThat(unavailableResponses.get()).isEqualTo(2);
+        assertThat(server.getRequestCount()).isEqualTo(3);
+    }
+
+    private ResultSegments resultSegments(List<URI> segmentUris, boolean ordered)
+    {
+        return new ResultSegments(httpClient, uri -> new Request.Builder().url(uri.toString()).build(), COLUMNS, segmentUris, ordered, new Duration(1, MINUTES));
+    }
+
+    private URI segmentUri(int segment)
+    {
+        return server.url("/segment/" + segment).uri();
+    }
+
+    private static MockResponse jsonResponse(String body)
+    {
+        return new MockResponse()
+                .setResponseCode(HTTP_OK)
+                .addHeader(CONTENT_TYPE, JSON_UTF_8)
+                .setBody(body);
+    }
+}
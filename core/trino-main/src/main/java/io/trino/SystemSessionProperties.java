@@ -18,7 +18,9 @@ import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 import io.trino.execution.DynamicFilterConfig;
 import io.trino.execution.QueryManagerConfig;
+import io.trino.execution.RetryPolicy;
 import io.trino.execution.TaskManagerConfig;
+import io.trino.execution.buffer.ExchangeCompressionCodec;
 import io.trino.memory.MemoryManagerConfig;
 import io.trino.memory.NodeMemoryConfig;
 import io.trino.spi.TrinoException;
@@ -34,14 +36,18 @@ import java.util.Optional;
 import java.util.OptionalInt;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static io.trino.plugin.base.session.PropertyMetadataUtil.dataSizeProperty;
 import static io.trino.plugin.base.session.PropertyMetadataUtil.durationProperty;
 import static io.trino.spi.StandardErrorCode.INVALID_SESSION_PROPERTY;
 import static io.trino.spi.session.PropertyMetadata.booleanProperty;
+import static io.trino.spi.session.PropertyMetadata.doubleProperty;
 import static io.trino.spi.session.PropertyMetadata.enumProperty;
 import static io.trino.spi.session.PropertyMetadata.integerProperty;
+import static io.trino.spi.session.PropertyMetadata.longProperty;
 import static io.trino.spi.session.PropertyMetadata.stringProperty;
 import static io.trino.spi.type.IntegerType.INTEGER;
+import static io.trino.sql.analyzer.FeaturesConfig.SPILLER_SPILL_PATH;
 import static java.lang.Math.min;
 import static java.lang.String.format;
 
@@ -51,6 +57,8 @@ public final class SystemSessionProperties
     public static final String JOIN_DISTRIBUTION_TYPE = "join_distribution_type";
     public static final String JOIN_MAX_BROADCAST_TABLE_SIZE = "join_max_broadcast_table_size";
     public static final String DISTRIBUTED_INDEX_JOIN = "distributed_index_join";
+    public static final String SPREAD_OUTER_JOIN_NULL_KEYS = "spread_outer_join_null_keys";
+    public static final String HEAVY_HITTER_DETECTION_ENABLED = "heavy_hitter_detection_enabled";
     public static final String HASH_PARTITION_COUNT = "hash_partition_count";
     public static final String GROUPED_EXECUTION = "grouped_execution";
     public static final String DYNAMIC_SCHEDULE_FOR_GROUPED_EXECUTION = "dynamic_schedule_for_grouped_execution";
@@ -65,6 +73,10 @@ public final class SystemSessionProperties
     public static final String RESOURCE_OVERCOMMIT = "resource_overcommit";
     public static final String QUERY_MAX_CPU_TIME = "query_max_cpu_time";
     public static final String QUERY_MAX_SCAN_PHYSICAL_BYTES = "query_max_scan_physical_bytes";
+    public static final String QUERY_RESULT_CACHE_ENABLED = "query_result_cache_enabled";
+    public static final String RESULT_SEGMENTS_ENABLED = "result_segments_enabled";
+    public static final String RETRY_POLICY = "retry_policy";
+    public static final String QUERY_RETRY_ATTEMPTS = "query_retry_attempts";
     public static final String QUERY_MAX_STAGE_COUNT = "query_max_stage_count";
     public static final String REDISTRIBUTE_WRITES = "redistribute_writes";
     public static final String USE_PREFERRED_WRITE_PARTITIONING = "use_preferred_write_partitioning";
@@ -92,6 +104,9 @@ public final class SystemSessionProperties
     public static final String ITERATIVE_OPTIMIZER_TIMEOUT = "iterative_optimizer_timeout";
     public static final String ENABLE_FORCED_EXCHANGE_BELOW_GROUP_ID = "enable_forced_exchange_below_group_id";
     public static final String EXCHANGE_COMPRESSION = "exchange_compression";
+    public static final String EXCHANGE_COMPRESSION_CODEC = "exchange_compression_codec";
+    public static final String EXCHANGE_COMPRESSION_NETWORK_THROUGHPUT = "exchange_compression_network_throughput";
+    public static final String EXCHANGE_SPOOLING = "exchange_spooling";
     public static final String ENABLE_INTERMEDIATE_AGGREGATIONS = "enable_intermediate_aggregations";
     public static final String PUSH_AGGREGATION_THROUGH_OUTER_JOIN = "push_aggregation_through_outer_join";
     public static final String PUSH_PARTIAL_AGGREGATION_THROUGH_JOIN = "push_partial_aggregation_through_join";
@@ -103,12 +118,17 @@ public final class SystemSessionProperties
     public static final String MAX_RECURSION_DEPTH = "max_recursion_depth";
     public static final String USE_MARK_DISTINCT = "use_mark_distinct";
     public static final String PREFER_PARTIAL_AGGREGATION = "prefer_partial_aggregation";
+    public static final String ADAPTIVE_PARTIAL_AGGREGATION_ENABLED = "adaptive_partial_aggregation_enabled";
+    public static final String ADAPTIVE_PARTIAL_AGGREGATION_MIN_ROWS = "adaptive_partial_aggregation_min_rows";
+    public static final String ADAPTIVE_PARTIAL_AGGREGATION_UNIQUE_ROWS_RATIO_THRESHOLD = "adaptive_partial_aggregation_unique_rows_ratio_threshold";
     public static final String OPTIMIZE_TOP_N_RANKING = "optimize_top_n_ranking";
     public static final String MAX_GROUPING_SETS = "max_grouping_sets";
     public static final String STATISTICS_CPU_TIMER_ENABLED = "statistics_cpu_timer_enabled";
     public static final String ENABLE_STATS_CALCULATOR = "enable_stats_calculator";
     public static final String COLLECT_PLAN_STATISTICS_FOR_ALL_QUERIES = "collect_plan_statistics_for_all_queries";
     public static final String IGNORE_STATS_CALCULATOR_FAILURES = "ignore_stats_calculator_failures";
+    public static final String HISTORY_BASED_STATISTICS_ENABLED = "history_based_statistics_enabled";
+    public static final String ADAPTIVE_JOIN_REPLANNING_ENABLED = "adaptive_join_replanning_enabled";
     public static final String MAX_DRIVERS_PER_TASK = "max_drivers_per_task";
     public static final String DEFAULT_FILTER_FACTOR_ENABLED = "default_filter_factor_enabled";
     public static final String UNWRAP_CASTS = "unwrap_casts";
@@ -118,6 +138,8 @@ public final class SystemSessionProperties
     public static final String LATE_MATERIALIZATION = "late_materialization";
     public static final String ENABLE_DYNAMIC_FILTERING = "enable_dynamic_filtering";
     public static final String ENABLE_LARGE_DYNAMIC_FILTERS = "enable_large_dynamic_filters";
+    public static final String ENABLE_BLOOM_FILTER_DYNAMIC_FILTERS = "enable_bloom_filter_dynamic_filters";
+    public static final String DYNAMIC_FILTERING_BLOOM_FILTER_MAX_SIZE = "dynamic_filtering_bloom_filter_max_size";
     public static final String QUERY_MAX_MEMORY_PER_NODE = "query_max_memory_per_node";
     public static final String QUERY_MAX_TOTAL_MEMORY_PER_NODE = "query_max_total_memory_per_node";
     public static final String IGNORE_DOWNSTREAM_PREFERENCES = "ignore_downstream_preferences";
@@ -173,6 +195,16 @@ public final class SystemSessionProperties
                         "Distribute index joins on join keys instead of executing inline",
                         featuresConfig.isDistributedIndexJoinsEnabled(),
                         false),
+                booleanProperty(
+                        SPREAD_OUTER_JOIN_NULL_KEYS,
+                        "Distribute probe rows with null join keys of partitioned outer joins evenly instead of sending them to a single node",
+                        featuresConfig.isSpreadOuterJoinNullKeys(),
+                        false),
+                booleanProperty(
+                        HEAVY_HITTER_DETECTION_ENABLED,
+                        "Track the most frequent partitioning keys of partitioned outputs to make data skew visible",
+                        featuresConfig.isHeavyHitterDetectionEnabled(),
+                        false),
                 integerProperty(
                         HASH_PARTITION_COUNT,
                         "Number of partitions for distributed joins and aggregations",
@@ -265,6 +297,31 @@ public final class SystemSessionProperties
                         "Maximum scan physical bytes of a query",
                         queryManagerConfig.getQueryMaxScanPhysicalBytes().orElse(null),
                         false),
+                booleanProperty(
+                        QUERY_RESULT_CACHE_ENABLED,
+                        "Reuse results of identical deterministic queries while the tables they read do not change",
+                        queryManagerConfig.isResultCacheEnabled(),
+                        false),
+                booleanProperty(
+                        RESULT_SEGMENTS_ENABLED,
+                        "Return query results to supporting clients as segments that can be fetched in parallel",
+                        queryManagerConfig.isResultSegmentsEnabled(),
+                        false),
+                enumProperty(
+                        RETRY_POLICY,
+                        "How the query reacts to the failure of one of its tasks",
+                        RetryPolicy.class,
+                        queryManagerConfig.getRetryPolicy(),
+                        false),
+                new PropertyMetadata<>(
+                        QUERY_RETRY_ATTEMPTS,
+                        "Maximum number of times the query is restarted when the retry policy is QUERY",
+                        INTEGER,
+                        Integer.class,
+                        queryManagerConfig.getQueryRetryAttempts(),
+                        false,
+                        value -> validateIntegerValue(value, QUERY_RETRY_ATTEMPTS, 0, false),
+                        object -> object),
                 booleanProperty(
                         RESOURCE_OVERCOMMIT,
                         "Use resources which are not guaranteed to be available to the query",
@@ -386,6 +443,29 @@ public final class SystemSessionProperties
                         "Enable compression in exchanges",
                         featuresConfig.isExchangeCompressionEnabled(),
                         false),
+                enumProperty(
+                        EXCHANGE_COMPRESSION_CODEC,
+                        "Codec used to compress exchange pages",
+                        ExchangeCompressionCodec.class,
+                        featuresConfig.getExchangeCompressionCodec(),
+                        false),
+                dataSizeProperty(
+                        EXCHANGE_COMPRESSION_NETWORK_THROUGHPUT,
+                        "Expected network throughput per second between workers, used by adaptive exchange compression",
+                        featuresConfig.getExchangeCompressionNetworkThroughput(),
+                        false),
+                booleanProperty(
+                        EXCHANGE_SPOOLING,
+                        "Spool pages of full partitioned output buffers to local disk instead of blocking the producers",
+                        featuresConfig.isExchangeSpoolingEnabled(),
+                        value -> {
+                            if (value && featuresConfig.getSpillerSpillPaths().isEmpty()) {
+                                throw new TrinoException(
+                                        INVALID_SESSION_PROPERTY,
+                                        format("%s requires the %s configuration property to be set", EXCHANGE_SPOOLING, SPILLER_SPILL_PATH));
+                            }
+                        },
+                        false),
                 booleanProperty(
                         ENABLE_INTERMEDIATE_AGGREGATIONS,
                         "Enable the use of intermediate aggregations",
@@ -445,6 +525,31 @@ public final class SystemSessionProperties
                         "Prefer splitting aggregations into partial and final stages",
                         featuresConfig.isPreferPartialAggregation(),
                         false),
+                booleanProperty(
+                        ADAPTIVE_PARTIAL_AGGREGATION_ENABLED,
+                        "Disable partial aggregation at runtime when it does not reduce the number of rows",
+                        featuresConfig.isAdaptivePartialAggregationEnabled(),
+                        false),
+                longProperty(
+                        ADAPTIVE_PARTIAL_AGGREGATION_MIN_ROWS,
+                        "Minimum number of input rows a partial aggregation has to process before it can be disabled",
+                        featuresConfig.getAdaptivePartialAggregationMinRows(),
+                        value -> {
+                            if (value < 0) {
+                                throw new TrinoException(INVALID_SESSION_PROPERTY, format("%s must be non-negative: %s", ADAPTIVE_PARTIAL_AGGREGATION_MIN_ROWS, value));
+                            }
+                        },
+                        false),
+                doubleProperty(
+                        ADAPTIVE_PARTIAL_AGGREGATION_UNIQUE_ROWS_RATIO_THRESHOLD,
+                        "Ratio of output to input rows above which partial aggregation is disabled",
+                        featuresConfig.getAdaptivePartialAggregationUniqueRowsRatioThreshold(),
+                        value -> {
+                            if (value < 0.0 || value > 1.0) {
+                                throw new TrinoException(INVALID_SESSION_PROPERTY, format("%s must be between 0.0 and 1.0: %s", ADAPTIVE_PARTIAL_AGGREGATION_UNIQUE_ROWS_RATIO_THRESHOLD, value));
+                            }
+                        },
+                        false),
                 booleanProperty(
                         OPTIMIZE_TOP_N_RANKING,
                         "Use top N ranking optimization",
@@ -484,6 +589,16 @@ public final class SystemSessionProperties
                         "Ignore statistics calculator failures",
                         featuresConfig.isIgnoreStatsCalculatorFailures(),
                         false),
+                booleanProperty(
+                        HISTORY_BASED_STATISTICS_ENABLED,
+                        "Use the output of plan nodes observed in previous executions of the query instead of estimates",
+                        featuresConfig.isHistoryBasedStatisticsEnabled(),
+                        false),
+                booleanProperty(
+                        ADAPTIVE_JOIN_REPLANNING_ENABLED,
+                        "Plan the query again when the build side of a broadcast join is much larger than estimated",
+                        featuresConfig.isAdaptiveJoinReplanningEnabled(),
+                        false),
                 booleanProperty(
                         DEFAULT_FILTER_FACTOR_ENABLED,
                         "use a default filter factor for unknown filters in a filter node",
@@ -525,6 +640,28 @@ public final class SystemSessionProperties
                         "Enable collection of large dynamic filters",
                         dynamicFilterConfig.isEnableLargeDynamicFilters(),
                         false),
+                booleanProperty(
+                        ENABLE_BLOOM_FILTER_DYNAMIC_FILTERS,
+                        "Collect Bloom filters for join keys with too many distinct values to be collected exactly",
+                        dynamicFilterConfig.isEnableBloomFilters(),
+                        false),
+                dataSizeProperty(
+                        DYNAMIC_FILTERING_BLOOM_FILTER_MAX_SIZE,
+                        "Maximum size of a Bloom filter dynamic filter",
+                        dynamicFilterConfig.getBloomFilterMaxSize(),
+                        value -> {
+                            if (value.toBytes() < 64) {
+                                throw new TrinoException(
+                                        INVALID_SESSION_PROPERTY,
+                                        format("%s must be at least 64B: %s", DYNAMIC_FILTERING_BLOOM_FILTER_MAX_SIZE, value));
+                            }
+                            if (value.compareTo(DataSize.of(64, MEGABYTE)) > 0) {
+                                throw new TrinoException(
+                                        INVALID_SESSION_PROPERTY,
+                                        format("%s must be at most 64MB: %s", DYNAMIC_FILTERING_BLOOM_FILTER_MAX_SIZE, value));
+                            }
+                        },
+                        false),
                 dataSizeProperty(
                         QUERY_MAX_MEMORY_PER_NODE,
                         "Maximum amount of memory a query can use per node",
@@ -612,6 +749,16 @@ public final class SystemSessionProperties
         return session.getSystemProperty(DISTRIBUTED_INDEX_JOIN, Boolean.class);
     }
 
+    public static boolean isSpreadOuterJoinNullKeys(Session session)
+    {
+        return session.getSystemProperty(SPREAD_OUTER_JOIN_NULL_KEYS, Boolean.class);
+    }
+
+    public static boolean isHeavyHitterDetectionEnabled(Session session)
+    {
+        return session.getSystemProperty(HEAVY_HITTER_DETECTION_ENABLED, Boolean.class);
+    }
+
     public static int getHashPartitionCount(Session session)
     {
         return session.getSystemProperty(HASH_PARTITION_COUNT, Integer.class);
@@ -779,6 +926,26 @@ public final class SystemSessionProperties
         return Optional.ofNullable(session.getSystemProperty(QUERY_MAX_SCAN_PHYSICAL_BYTES, DataSize.class));
     }
 
+    public static boolean isQueryResultCacheEnabled(Session session)
+    {
+        return session.getSystemProperty(QUERY_RESULT_CACHE_ENABLED, Boolean.class);
+    }
+
+    public static boolean isResultSegmentsEnabled(Session session)
+    {
+        return session.getSystemProperty(RESULT_SEGMENTS_ENABLED, Boolean.class);
+    }
+
+    public static RetryPolicy getRetryPolicy(Session session)
+    {
+        return session.getSystemProperty(RETRY_POLICY, RetryPolicy.class);
+    }
+
+    public static int getQueryRetryAttempts(Session session)
+    {
+        return session.getSystemProperty(QUERY_RETRY_ATTEMPTS, Integer.class);
+    }
+
     public static boolean isSpillEnabled(Session session)
     {
         return session.getSystemProperty(SPILL_ENABLED, Boolean.class);
@@ -821,6 +988,21 @@ public final class SystemSessionProperties
         return session.getSystemProperty(EXCHANGE_COMPRESSION, Boolean.class);
     }
 
+    public static ExchangeCompressionCodec getExchangeCompressionCodec(Session session)
+    {
+        return session.getSystemProperty(EXCHANGE_COMPRESSION_CODEC, ExchangeCompressionCodec.class);
+    }
+
+    public static DataSize getExchangeCompressionNetworkThroughput(Session session)
+    {
+        return session.getSystemProperty(EXCHANGE_COMPRESSION_NETWORK_THROUGHPUT, DataSize.class);
+    }
+
+    public static boolean isExchangeSpoolingEnabled(Session session)
+    {
+        return session.getSystemProperty(EXCHANGE_SPOOLING, Boolean.class);
+    }
+
     public static boolean isEnableIntermediateAggregations(Session session)
     {
         return session.getSystemProperty(ENABLE_INTERMEDIATE_AGGREGATIONS, Boolean.class);
@@ -866,6 +1048,21 @@ public final class SystemSessionProperties
         return session.getSystemProperty(PREFER_PARTIAL_AGGREGATION, Boolean.class);
     }
 
+    public static boolean isAdaptivePartialAggregationEnabled(Session session)
+    {
+        return session.getSystemProperty(ADAPTIVE_PARTIAL_AGGREGATION_ENABLED, Boolean.class);
+    }
+
+    public static long getAdaptivePartialAggregationMinRows(Session session)
+    {
+        return session.getSystemProperty(ADAPTIVE_PARTIAL_AGGREGATION_MIN_ROWS, Long.class);
+    }
+
+    public static double getAdaptivePartialAggregationUniqueRowsRatioThreshold(Session session)
+    {
+        return session.getSystemProperty(ADAPTIVE_PARTIAL_AGGREGATION_UNIQUE_ROWS_RATIO_THRESHOLD, Double.class);
+    }
+
     public static boolean isOptimizeTopNRanking(Session session)
     {
         return session.getSystemProperty(OPTIMIZE_TOP_N_RANKING, Boolean.class);
@@ -947,6 +1144,16 @@ public final class SystemSessionProperties
         return session.getSystemProperty(IGNORE_STATS_CALCULATOR_FAILURES, Boolean.class);
     }
 
+    public static boolean isHistoryBasedStatisticsEnabled(Session session)
+    {
+        return session.getSystemProperty(HISTORY_BASED_STATISTICS_ENABLED, Boolean.class);
+    }
+
+    public static boolean isAdaptiveJoinReplanningEnabled(Session session)
+    {
+        return session.getSystemProperty(ADAPTIVE_JOIN_REPLANNING_ENABLED, Boolean.class);
+    }
+
     public static boolean isDefaultFilterFactorEnabled(Session session)
     {
         return session.getSystemProperty(DEFAULT_FILTER_FACTOR_ENABLED, Boolean.class);
@@ -987,6 +1194,16 @@ public final class SystemSessionProperties
         return session.getSystemProperty(ENABLE_LARGE_DYNAMIC_FILTERS, Boolean.class);
     }
 
+    public static boolean isEnableBloomFilterDynamicFilters(Session session)
+    {
+        return session.getSystemProperty(ENABLE_BLOOM_FILTER_DYNAMIC_FILTERS, Boolean.class);
+    }
+
+    public static DataSize getDynamicFilteringBloomFilterMaxSize(Session session)
+    {
+        return session.getSystemProperty(DYNAMIC_FILTERING_BLOOM_FILTER_MAX_SIZE, DataSize.class);
+    }
+
     public static DataSize getQueryMaxMemoryPerNode(Session session)
     {
         return session.getSystemProperty(QUERY_MAX_MEMORY_PER_NODE, DataSize.class);
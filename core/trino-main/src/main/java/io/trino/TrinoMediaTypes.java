@@ -19,6 +19,8 @@ public final class TrinoMediaTypes
 {
     public static final String TRINO_PAGES = "application/X-trino-pages";
     public static final MediaType TRINO_PAGES_TYPE = MediaType.create("application", "X-trino-pages");
+    public static final String JACKSON_SMILE = "application/x-jackson-smile";
+    public static final MediaType JACKSON_SMILE_TYPE = MediaType.create("application", "x-jackson-smile");
 
     private TrinoMediaTypes()
     {
@@ -0,0 +1,530 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.cost;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import io.trino.Session;
+import io.trino.metadata.Metadata;
+import io.trino.metadata.QualifiedObjectName;
+import io.trino.metadata.TableHandle;
+import io.trino.spi.connector.ColumnHandle;
+import io.trino.spi.connector.ConnectorTableHandle;
+import io.trino.spi.connector.Constraint;
+import io.trino.spi.connector.ConstraintApplicationResult;
+import io.trino.spi.predicate.TupleDomain;
+import io.trino.sql.planner.Symbol;
+import io.trino.sql.planner.iterative.GroupReference;
+import io.trino.sql.planner.iterative.Lookup;
+import io.trino.sql.planner.plan.AggregationNode;
+import io.trino.sql.planner.plan.DistinctLimitNode;
+import io.trino.sql.planner.plan.ExchangeNode;
+import io.trino.sql.planner.plan.FilterNode;
+import io.trino.sql.planner.plan.JoinNode;
+import io.trino.sql.planner.plan.LimitNode;
+import io.trino.sql.planner.plan.PlanNode;
+import io.trino.sql.planner.plan.PlanNodeId;
+import io.trino.sql.planner.plan.PlanVisitor;
+import io.trino.sql.planner.plan.ProjectNode;
+import io.trino.sql.planner.plan.SampleNode;
+import io.trino.sql.planner.plan.SemiJoinNode;
+import io.trino.sql.planner.plan.TableScanNode;
+import io.trino.sql.planner.plan.ValuesNode;
+import io.trino.sql.tree.Expression;
+import io.trino.sql.tree.ExpressionRewriter;
+import io.trino.sql.tree.ExpressionTreeRewriter;
+import io.trino.sql.tree.Literal;
+import io.trino.sql.tree.Parameter;
+import io.trino.sql.tree.SymbolReference;
+
+import javax.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.trino.sql.DynamicFilters.extractDynamicFilters;
+import static io.trino.sql.planner.iterative.Lookup.noLookup;
+import static io.trino.sql.planner.plan.AggregationNode.Step.FINAL;
+import static io.trino.sql.planner.plan.AggregationNode.Step.INTERMEDIATE;
+import static io.trino.sql.planner.plan.AggregationNode.Step.PARTIAL;
+import static io.trino.sql.planner.plan.JoinNode.Type.FULL;
+import static io.trino.sql.planner.plan.JoinNode.Type.INNER;
+import static io.trino.sql.planner.plan.JoinNode.Type.LEFT;
+import static io.trino.sql.planner.plan.JoinNode.Type.RIGHT;
+import static java.lang.String.format;
+import static java.lang.String.join;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Computes keys identifying the output of plan subtrees across executions of recurring queries,
+ * for {@link HistoricalStatisticsStore}. The canonical form of a subtree does not depend on
+ * plan node ids, on symbol names, on the values of literals, or on nodes that do not change
+ * the number of rows, such as projections and exchanges. Symbols are identified by the column
+ * they are read from, or by their position in the output of the node producing them. This way
+ * the plan of a join input considered during join reordering matches the subtree observed in the
+ * fragmented plan of a previous execution.
+ * <p>
+ * Only the nodes the stats calculator typically has to guess the output of are supported:
+ * table scans, filters, joins, semi joins and aggregations. Subtrees with other nodes have no key,
+ * and neither do table scans into which the connector accepted more than the enforced constraint,
+ * such as a limit, an aggregation, a join or a sample.
+ * <p>
+ * The stats calculator asks for the key of every node it estimates, often repeatedly while the
+ * iterative optimizer rewrites the plan, so the canonical form of each node is cached along with
+ * the nodes its group references resolved to, and reused for as long as they resolve to the same nodes.
+ */
+public class CanonicalPlanHasher
+{
+    private static final Parameter LITERAL_PLACEHOLDER = new Parameter(0);
+
+    private final Metadata metadata;
+    // table handles are compared by value, so that the handles the optimizer recreates for the same table share the entry
+    private final Cache<TableHandle, Optional<String>> tableNames = CacheBuilder.newBuilder()
+            .maximumSize(10_000)
+            .build();
+    private final Cache<TableHandle, Map<ColumnHandle, String>> columnNames = CacheBuilder.newBuilder()
+            .maximumSize(10_000)
+            .build();
+    // weak keys are compared by identity, and plan nodes are immutable
+    private final Cache<PlanNode, CanonicalForm> canonicalForms = CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumSize(100_000)
+            .build();
+
+    @Inject
+    public CanonicalPlanHasher(Metadata metadata)
+    {
+        this.metadata = requireNonNull(metadata, "metadata is null");
+    }
+
+    /**
+     * Returns the key of the output of the node, or empty if the subtree is not supported.
+     */
+    public Optional<String> hash(PlanNode node, Lookup lookup, Session session)
+    {
+        Canonicalizer canonicalizer = new Canonicalizer(lookup, session);
+        PlanNode source = canonicalizer.skipRowPreservingNodes(node);
+        if (isPartialAggregation(source)) {
+            // the output of partial aggregations depends on how the input is distributed
+            return Optional.empty();
+        }
+        return canonicalizer.canonicalizeNode(source).getHash();
+    }
+
+    /**
+     * Returns the keys of the nodes of a fully optimized plan whose output can be recorded
+     * after the query finishes. Nodes below a limit may be stopped before producing all rows,
+     * nodes below a sample produce only some of their rows, and the output of nodes filtered with
+     * dynamic filters, including the table scans below them, depends on the other side of the join,
+     * so they are not recorded.
+     */
+    public Map<PlanNodeId, String> hashAll(PlanNode root, Session session)
+    {
+        Map<PlanNodeId, String> hashes = new HashMap<>();
+        hashRecordableNodes(root, session, hashes);
+        return ImmutableMap.copyOf(hashes);
+    }
+
+    private void hashRecordableNodes(PlanNode node, Session session, Map<PlanNodeId, String> hashes)
+    {
+        if (node instanceof LimitNode || node instanceof DistinctLimitNode || node instanceof SampleNode || isDynamicallyFiltered(node)) {
+            return;
+        }
+        hash(node, noLookup(), session).ifPresent(hash -> hashes.put(node.getId(), hash));
+        for (PlanNode source : node.getSources()) {
+            hashRecordableNodes(source, session, hashes);
+        }
+    }
+
+    private static boolean isDynamicallyFiltered(PlanNode node)
+    {
+        while (node instanceof ProjectNode || (node instanceof ExchangeNode && node.getSources().size() == 1)) {
+            node = node.getSources().get(0);
+        }
+        return node instanceof FilterNode && !extractDynamicFilters(((FilterNode) node).getPredicate()).getDynamicConjuncts().isEmpty();
+    }
+
+    private static boolean isPartialAggregation(PlanNode node)
+    {
+        return node instanceof AggregationNode && (((AggregationNode) node).getStep() == PARTIAL || ((AggregationNode) node).getStep() == INTERMEDIATE);
+    }
+
+    /**
+     * Returns the name of the scanned table, or empty if the scan was changed by other pushdowns
+     * than the enforced constraint, which may reduce its output.
+     */
+    private Optional<String> getTableName(Session session, TableScanNode node)
+    {
+        TableHandle table = node.getTable();
+        Optional<String> tableName = tableNames.getIfPresent(table);
+        if (tableName == null) {
+            QualifiedObjectName qualifiedName = metadata.getTableMetadata(session, table).getQualifiedName();
+            tableName = metadata.getTableHandle(session, qualifiedName)
+                    .filter(baseTable -> table.getConnectorHandle().equals(getExpectedHandle(session, baseTable, node.getEnforcedConstraint())))
+                    .map(baseTable -> qualifiedName.toString());
+            tableNames.put(table, tableName);
+        }
+        return tableName;
+    }
+
+    private String getColumnName(Session session, TableHandle table, ColumnHandle column)
+    {
+        return columnNames.asMap().computeIfAbsent(table, ignored -> new ConcurrentHashMap<>())
+                .computeIfAbsent(column, ignored -> metadata.getColumnMetadata(session, table, column).getName());
+    }
+
+    private ConnectorTableHandle getExpectedHandle(Session session, TableHandle baseTable, TupleDomain<ColumnHandle> enforcedConstraint)
+    {
+        if (enforcedConstraint.isAll()) {
+            return baseTable.getConnectorHandle();
+        }
+        return metadata.applyFilter(session, baseTable, new Constraint(enforcedConstraint))
+                .map(ConstraintApplicationResult::getHandle)
+                .orElse(baseTable)
+                .getConnectorHandle();
+    }
+
+    private static String canonicalize(Expression expression, Function<Symbol, String> symbols)
+    {
+        return ExpressionTreeRewriter.rewriteWith(new ExpressionRewriter<Void>()
+        {
+            @Override
+            public Expression rewriteLiteral(Literal node, Void context, ExpressionTreeRewriter<Void> treeRewriter)
+            {
+                return LITERAL_PLACEHOLDER;
+            }
+
+            @Override
+            public Expression rewriteSymbolReference(SymbolReference node, Void context, ExpressionTreeRewriter<Void> treeRewriter)
+            {
+                return new SymbolReference(symbols.apply(Symbol.from(node)));
+            }
+        }, expression).toString();
+    }
+
+    private static List<String> canonicalizeConjuncts(Expression expression, Function<Symbol, String> symbols)
+    {
+        return extractDynamicFilters(expression).getStaticConjuncts().stream()
+                .map(conjunct -> canonicalize(conjunct, symbols))
+                .sorted()
+                .collect(toImmutableList());
+    }
+
+    private static class CanonicalForm
+    {
+        private final Optional<String> plan;
+        private final Optional<String> hash;
+        // the canonical form is valid as long as these group references resolve to the same nodes
+        private final List<PlanNode> groupReferences;
+        private final List<PlanNode> resolvedNodes;
+
+        public CanonicalForm(Optional<String> plan, List<PlanNode> groupReferences, List<PlanNode> resolvedNodes)
+        {
+            this.plan = requireNonNull(plan, "plan is null");
+            this.hash = plan.map(canonicalPlan -> Hashing.sha256().hashString(canonicalPlan, UTF_8).toString());
+            this.groupReferences = ImmutableList.copyOf(requireNonNull(groupReferences, "groupReferences is null"));
+            this.resolvedNodes = ImmutableList.copyOf(requireNonNull(resolvedNodes, "resolvedNodes is null"));
+        }
+
+        public Optional<String> getPlan()
+        {
+            return plan;
+        }
+
+        public Optional<String> getHash()
+        {
+            return hash;
+        }
+
+        public List<PlanNode> getGroupReferences()
+        {
+            return groupReferences;
+        }
+
+        public List<PlanNode> getResolvedNodes()
+        {
+            return resolvedNodes;
+        }
+
+        public boolean isValid(Lookup lookup)
+        {
+            for (int i = 0; i < groupReferences.size(); i++) {
+                if (lookup.resolve(groupReferences.get(i)) != resolvedNodes.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private class Canonicalizer
+            extends PlanVisitor<Optional<String>, Void>
+    {
+        private final Lookup lookup;
+        private final Session session;
+        // the group references resolved while computing the canonical forms in progress
+        private final List<PlanNode> groupReferences = new ArrayList<>();
+        private final List<PlanNode> resolvedNodes = new ArrayList<>();
+
+        public Canonicalizer(Lookup lookup, Session session)
+        {
+            this.lookup = requireNonNull(lookup, "lookup is null");
+            this.session = requireNonNull(session, "session is null");
+        }
+
+        private PlanNode resolve(PlanNode node)
+        {
+            if (node instanceof GroupReference) {
+                PlanNode resolved = lookup.resolve(node);
+                groupReferences.add(node);
+                resolvedNodes.add(resolved);
+                return resolved;
+            }
+            return node;
+        }
+
+        /**
+         * Returns the canonical form of a resolved node, reusing the cached one when the group
+         * references it depends on still resolve to the same nodes.
+         */
+        public CanonicalForm canonicalizeNode(PlanNode node)
+        {
+            CanonicalForm canonicalForm = canonicalForms.getIfPresent(node);
+            if (canonicalForm == null || !canonicalForm.isValid(lookup)) {
+                int start = groupReferences.size();
+                Optional<String> plan = node.accept(this, null);
+                canonicalForm = new CanonicalForm(
+                        plan,
+                        groupReferences.subList(start, groupReferences.size()),
+                        resolvedNodes.subList(start, resolvedNodes.size()));
+                canonicalForms.put(node, canonicalForm);
+                return canonicalForm;
+            }
+            // the canonical forms in progress depend on the same group references
+            groupReferences.addAll(canonicalForm.getGroupReferences());
+            resolvedNodes.addAll(canonicalForm.getResolvedNodes());
+            return canonicalForm;
+        }
+
+        private PlanNode skipRowPreservingNodes(PlanNode node)
+        {
+            node = resolve(node);
+            while (node instanceof ProjectNode || (node instanceof ExchangeNode && node.getSources().size() == 1)) {
+                node = resolve(node.getSources().get(0));
+            }
+            return node;
+        }
+
+        private Optional<String> canonicalizeSource(PlanNode source)
+        {
+            return canonicalizeNode(skipRowPreservingNodes(source)).getPlan();
+        }
+
+        /**
+         * Follows the symbol through the nodes which pass it unchanged, to the column it is read from
+         * or to its position in the output of the node computing it.
+         */
+        private String canonicalizeSymbol(Symbol symbol, PlanNode source)
+        {
+            PlanNode node = resolve(source);
+            while (true) {
+                if (node instanceof ProjectNode) {
+                    ProjectNode project = (ProjectNode) node;
+                    Expression expression = project.getAssignments().get(symbol);
+                    if (expression == null) {
+                        break;
+                    }
+                    if (!(expression instanceof SymbolReference)) {
+                        return canonicalize(expression, projected -> canonicalizeSymbol(projected, project.getSource()));
+                    }
+                    symbol = Symbol.from(expression);
+                }
+                else if (node instanceof ExchangeNode && node.getSources().size() == 1) {
+                    int index = node.getOutputSymbols().indexOf(symbol);
+                    if (index < 0) {
+                        break;
+                    }
+                    symbol = ((ExchangeNode) node).getInputs().get(0).get(index);
+                }
+                else if (node instanceof TableScanNode) {
+                    TableScanNode tableScan = (TableScanNode) node;
+                    ColumnHandle column = tableScan.getAssignments().get(symbol);
+                    if (column == null) {
+                        break;
+                    }
+                    return getColumnName(session, tableScan.getTable(), column);
+                }
+                else if (!(node instanceof FilterNode) && !(isPartialAggregation(node) && ((AggregationNode) node).getGroupingKeys().contains(symbol))) {
+                    break;
+                }
+                node = resolve(node.getSources().get(0));
+            }
+            return "#" + node.getOutputSymbols().indexOf(symbol);
+        }
+
+        @Override
+        protected Optional<String> visitPlan(PlanNode node, Void context)
+        {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<String> visitGroupReference(GroupReference node, Void context)
+        {
+            return canonicalizeSource(node);
+        }
+
+        @Override
+        public Optional<String> visitProject(ProjectNode node, Void context)
+        {
+            return canonicalizeSource(node.getSource());
+        }
+
+        @Override
+        public Optional<String> visitExchange(ExchangeNode node, Void context)
+        {
+            if (node.getSources().size() != 1) {
+                return Optional.empty();
+            }
+            return canonicalizeSource(node.getSources().get(0));
+        }
+
+        @Override
+        public Optional<String> visitTableScan(TableScanNode node, Void context)
+        {
+            Optional<String> tableName = getTableName(session, node);
+            if (tableName.isEmpty()) {
+                return Optional.empty();
+            }
+
+            // the domains pushed into the connector depend on literals, but the constrained columns do not
+            TupleDomain<ColumnHandle> constraint = node.getEnforcedConstraint();
+            String constrainedColumns = constraint.getDomains()
+                    .map(domains -> domains.keySet().stream()
+                            .map(column -> getColumnName(session, node.getTable(), column))
+                            .sorted()
+                            .collect(toImmutableList())
+                            .toString())
+                    .orElse("none");
+            return Optional.of(format("TableScan[%s, constrained=%s]", tableName.get(), constrainedColumns));
+        }
+
+        @Override
+        public Optional<String> visitValues(ValuesNode node, Void context)
+        {
+            return Optional.of(format("Values[%s]", node.getRowCount()));
+        }
+
+        @Override
+        public Optional<String> visitFilter(FilterNode node, Void context)
+        {
+            List<String> conjuncts = canonicalizeConjuncts(node.getPredicate(), symbol -> canonicalizeSymbol(symbol, node.getSource()));
+            if (conjuncts.isEmpty()) {
+                // dynamic filters are not known to the planner when joins are reordered
+                return canonicalizeSource(node.getSource());
+            }
+            return canonicalizeSource(node.getSource())
+                    .map(source -> format("Filter[%s](%s)", join(" AND ", conjuncts), source));
+        }
+
+        @Override
+        public Optional<String> visitJoin(JoinNode node, Void context)
+        {
+            Optional<String> left = canonicalizeSource(node.getLeft());
+            Optional<String> right = canonicalizeSource(node.getRight());
+            if (left.isEmpty() || right.isEmpty()) {
+                return Optional.empty();
+            }
+
+            JoinNode.Type type = node.getType();
+            boolean symmetric = type == INNER || type == FULL;
+            // a right join is a left join with flipped sides, which the planner may choose,
+            // and the sides of symmetric joins are ordered by their canonical form
+            boolean flipped = type == RIGHT || (symmetric && left.get().compareTo(right.get()) > 0);
+            if (type == RIGHT) {
+                type = LEFT;
+            }
+
+            Function<Symbol, String> symbols = symbol -> {
+                boolean fromLeft = node.getLeft().getOutputSymbols().contains(symbol);
+                String side = fromLeft != flipped ? "left" : "right";
+                return side + "." + canonicalizeSymbol(symbol, fromLeft ? node.getLeft() : node.getRight());
+            };
+            List<String> criteria = node.getCriteria().stream()
+                    .map(clause -> {
+                        String leftSymbol = symbols.apply(clause.getLeft());
+                        String rightSymbol = symbols.apply(clause.getRight());
+                        return flipped ? rightSymbol + "=" + leftSymbol : leftSymbol + "=" + rightSymbol;
+                    })
+                    .sorted()
+                    .collect(toImmutableList());
+            List<String> sources = flipped ? ImmutableList.of(right.get(), left.get()) : ImmutableList.of(left.get(), right.get());
+            List<String> filter = node.getFilter()
+                    .map(expression -> canonicalizeConjuncts(expression, symbols))
+                    .orElse(ImmutableList.of());
+            return Optional.of(format("Join[%s, %s, filter=%s](%s, %s)", type, criteria, filter, sources.get(0), sources.get(1)));
+        }
+
+        @Override
+        public Optional<String> visitSemiJoin(SemiJoinNode node, Void context)
+        {
+            Optional<String> source = canonicalizeSource(node.getSource());
+            Optional<String> filteringSource = canonicalizeSource(node.getFilteringSource());
+            if (source.isEmpty() || filteringSource.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(format(
+                    "SemiJoin[%s](%s, %s)",
+                    canonicalizeSymbol(node.getSourceJoinSymbol(), node.getSource()) + "=" + canonicalizeSymbol(node.getFilteringSourceJoinSymbol(), node.getFilteringSource()),
+                    source.get(),
+                    filteringSource.get()));
+        }
+
+        @Override
+        public Optional<String> visitAggregation(AggregationNode node, Void context)
+        {
+            if (isPartialAggregation(node)) {
+                return Optional.empty();
+            }
+
+            // a final aggregation has the same output as the single aggregation it was split from
+            PlanNode source = skipRowPreservingNodes(node.getSource());
+            while (node.getStep() == FINAL && isPartialAggregation(source)) {
+                source = skipRowPreservingNodes(((AggregationNode) source).getSource());
+            }
+
+            List<String> functions = node.getAggregations().values().stream()
+                    .map(aggregation -> aggregation.getResolvedFunction().getSignature().getName() + (aggregation.isDistinct() ? "(DISTINCT)" : ""))
+                    .sorted()
+                    .collect(toImmutableList());
+            List<String> groupingKeys = node.getGroupingKeys().stream()
+                    .map(symbol -> canonicalizeSymbol(symbol, node.getSource()))
+                    .sorted()
+                    .collect(toImmutableList());
+            int groupingSetCount = node.getGroupingSetCount();
+            return canonicalizeNode(source).getPlan()
+                    .map(canonicalSource -> format("Aggregation[%s, sets=%s, %s](%s)", groupingKeys, groupingSetCount, functions, canonicalSource));
+        }
+    }
+}
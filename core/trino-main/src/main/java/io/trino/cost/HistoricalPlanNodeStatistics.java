@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.cost;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Output of a plan node observed in an execution of a query.
+ */
+public class HistoricalPlanNodeStatistics
+{
+    private final long outputRowCount;
+    private final long outputSizeInBytes;
+
+    @JsonCreator
+    public HistoricalPlanNodeStatistics(
+            @JsonProperty("outputRowCount") long outputRowCount,
+            @JsonProperty("outputSizeInBytes") long outputSizeInBytes)
+    {
+        checkArgument(outputRowCount >= 0, "outputRowCount is negative");
+        checkArgument(outputSizeInBytes >= 0, "outputSizeInBytes is negative");
+        this.outputRowCount = outputRowCount;
+        this.outputSizeInBytes = outputSizeInBytes;
+    }
+
+    @JsonProperty
+    public long getOutputRowCount()
+    {
+        return outputRowCount;
+    }
+
+    @JsonProperty
+    public long getOutputSizeInBytes()
+    {
+        return outputSizeInBytes;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        HistoricalPlanNodeStatistics that = (HistoricalPlanNodeStatistics) o;
+        return outputRowCount == that.outputRowCount &&
+                outputSizeInBytes == that.outputSizeInBytes;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(outputRowCount, outputSizeInBytes);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("outputRowCount", outputRowCount)
+                .add("outputSizeInBytes", outputSizeInBytes)
+                .toString();
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.cost;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Statistics observed in executions of plan nodes, keyed by the hash of the canonical form
+ * of the plan subtree, as computed by {@link CanonicalPlanHasher}.
+ */
+public interface HistoricalStatisticsStore
+{
+    /**
+     * Returns true if the store has no statistics, allowing callers to skip hashing plans.
+     */
+    boolean isEmpty();
+
+    Optional<HistoricalPlanNodeStatistics> get(String planHash);
+
+    /**
+     * Records the statistics observed in an execution of a query, replacing any previously
+     * recorded statistics for the same plans.
+     */
+    void putAll(Map<String, HistoricalPlanNodeStatistics> statistics);
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.cost;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.Duration;
+import io.airlift.units.MinDuration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+public class HistoricalStatisticsStoreConfig
+{
+    private int maxEntries = 100_000;
+    private Path file;
+    private Duration flushInterval = new Duration(1, MINUTES);
+
+    @Min(1)
+    public int getMaxEntries()
+    {
+        return maxEntries;
+    }
+
+    @Config("optimizer.history-based-statistics.max-entries")
+    @ConfigDescription("Maximum number of plan nodes with observed statistics kept by the coordinator")
+    public HistoricalStatisticsStoreConfig setMaxEntries(int maxEntries)
+    {
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    public Optional<Path> getFile()
+    {
+        return Optional.ofNullable(file);
+    }
+
+    @Config("optimizer.history-based-statistics.file")
+    @ConfigDescription("Local file the observed statistics are saved to, so that they survive restarts of the coordinator")
+    public HistoricalStatisticsStoreConfig setFile(String file)
+    {
+        this.file = file == null ? null : Paths.get(file);
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1s")
+    public Duration getFlushInterval()
+    {
+        return flushInterval;
+    }
+
+    @Config("optimizer.history-based-statistics.flush-interval")
+    @ConfigDescription("How often newly observed statistics are saved to the file")
+    public HistoricalStatisticsStoreConfig setFlushInterval(Duration flushInterval)
+    {
+        this.flushInterval = flushInterval;
+        return this;
+    }
+}
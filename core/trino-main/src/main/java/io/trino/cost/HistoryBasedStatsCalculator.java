@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.cost;
+
+import io.trino.Session;
+import io.trino.sql.planner.TypeProvider;
+import io.trino.sql.planner.iterative.Lookup;
+import io.trino.sql.planner.plan.PlanNode;
+
+import java.util.Optional;
+
+import static io.trino.SystemSessionProperties.isHistoryBasedStatisticsEnabled;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Replaces the estimated output row count of plan nodes with the row count observed in previous
+ * executions of the same plan subtree, when available. The symbol statistics of the estimate are
+ * kept, and normalized to the observed row count.
+ */
+public class HistoryBasedStatsCalculator
+        implements StatsCalculator
+{
+    private final StatsCalculator delegate;
+    private final CanonicalPlanHasher planHasher;
+    private final HistoricalStatisticsStore statisticsStore;
+    private final StatsNormalizer normalizer;
+
+    public HistoryBasedStatsCalculator(StatsCalculator delegate, CanonicalPlanHasher planHasher, HistoricalStatisticsStore statisticsStore, StatsNormalizer normalizer)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.planHasher = requireNonNull(planHasher, "planHasher is null");
+        this.statisticsStore = requireNonNull(statisticsStore, "statisticsStore is null");
+        this.normalizer = requireNonNull(normalizer, "normalizer is null");
+    }
+
+    @Override
+    public PlanNodeStatsEstimate calculateStats(PlanNode node, StatsProvider sourceStats, Lookup lookup, Session session, TypeProvider types)
+    {
+        PlanNodeStatsEstimate estimate = delegate.calculateStats(node, sourceStats, lookup, session, types);
+        if (!isHistoryBasedStatisticsEnabled(session) || statisticsStore.isEmpty()) {
+            return estimate;
+        }
+
+        Optional<HistoricalPlanNodeStatistics> observed = planHasher.hash(node, lookup, session).flatMap(statisticsStore::get);
+        if (observed.isEmpty()) {
+            return estimate;
+        }
+        PlanNodeStatsEstimate adjusted = PlanNodeStatsEstimate.buildFrom(estimate)
+                .setOutputRowCount(observed.get().getOutputRowCount())
+                .build();
+        return normalizer.normalize(adjusted, types);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.cost;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.airlift.jmx.CacheStatsMBean;
+import io.airlift.json.JsonCodec;
+import io.airlift.log.Logger;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.json.JsonCodec.mapJsonCodec;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Keeps the observed statistics on the coordinator, evicting the least recently used plans when
+ * the store is full. When a file is configured, the statistics are loaded from it on startup and
+ * saved to it periodically and on shutdown.
+ */
+@ThreadSafe
+public class LocalHistoricalStatisticsStore
+        implements HistoricalStatisticsStore
+{
+    private static final Logger log = Logger.get(LocalHistoricalStatisticsStore.class);
+    private static final JsonCodec<Map<String, HistoricalPlanNodeStatistics>> STATISTICS_CODEC = mapJsonCodec(String.class, HistoricalPlanNodeStatistics.class);
+
+    private final Cache<String, HistoricalPlanNodeStatistics> statistics;
+    private final CacheStatsMBean cacheStats;
+    private final Optional<Path> file;
+    private final Duration flushInterval;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final ScheduledExecutorService flushExecutor = newSingleThreadScheduledExecutor(daemonThreadsNamed("historical-statistics-flush"));
+
+    @Inject
+    public LocalHistoricalStatisticsStore(HistoricalStatisticsStoreConfig config)
+    {
+        this(requireNonNull(config, "config is null").getMaxEntries(), config.getFile(), config.getFlushInterval());
+    }
+
+    @VisibleForTesting
+    LocalHistoricalStatisticsStore(int maxEntries, Optional<Path> file, Duration flushInterval)
+    {
+        checkArgument(maxEntries > 0, "maxEntries must be positive");
+        this.statistics = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        this.cacheStats = new CacheStatsMBean(statistics);
+        this.file = requireNonNull(file, "file is null");
+        this.flushInterval = requireNonNull(flushInterval, "flushInterval is null");
+        file.filter(Files::exists).ifPresent(this::load);
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        if (file.isPresent()) {
+            flushExecutor.scheduleWithFixedDelay(this::tryFlush, flushInterval.toMillis(), flushInterval.toMillis(), MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        flushExecutor.shutdownNow();
+        tryFlush();
+    }
+
+    private void tryFlush()
+    {
+        try {
+            flush();
+        }
+        catch (Throwable e) {
+            log.warn(e, "Error saving observed statistics to %s", file.orElseThrow());
+        }
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return statistics.size() == 0;
+    }
+
+    @Override
+    public Optional<HistoricalPlanNodeStatistics> get(String planHash)
+    {
+        return Optional.ofNullable(statistics.getIfPresent(planHash));
+    }
+
+    @Override
+    public void putAll(Map<String, HistoricalPlanNodeStatistics> statistics)
+    {
+        if (statistics.isEmpty()) {
+            return;
+        }
+        this.statistics.putAll(statistics);
+        dirty.set(true);
+    }
+
+    @VisibleForTesting
+    synchronized void flush()
+    {
+        if (file.isEmpty() || !dirty.getAndSet(false)) {
+            return;
+        }
+        Path temporaryFile = file.get().resolveSibling(file.get().getFileName() + ".tmp");
+        try {
+            Files.write(temporaryFile, STATISTICS_CODEC.toJsonBytes(new LinkedHashMap<>(statistics.asMap())));
+            Files.move(temporaryFile, file.get(), REPLACE_EXISTING, ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            dirty.set(true);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void load(Path file)
+    {
+        try {
+            statistics.putAll(STATISTICS_CODEC.fromJson(Files.readAllBytes(file)));
+        }
+        catch (IOException | IllegalArgumentException e) {
+            // the statistics only improve estimates, so the coordinator can start without them
+            log.warn(e, "Error loading observed statistics from %s", file);
+        }
+    }
+
+    @Managed
+    public long getSize()
+    {
+        return statistics.size();
+    }
+
+    @Managed
+    @Nested
+    public CacheStatsMBean getCacheStats()
+    {
+        return cacheStats;
+    }
+
+    @Managed
+    public void invalidateAll()
+    {
+        statistics.invalidateAll();
+        dirty.set(true);
+    }
+}
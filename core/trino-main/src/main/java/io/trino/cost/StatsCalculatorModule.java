@@ -17,21 +17,35 @@ import com.google.common.collect.ImmutableList;
 import com.google.inject.Binder;
 import com.google.inject.Module;
 import com.google.inject.Provides;
+import com.google.inject.Scopes;
 import io.trino.metadata.Metadata;
 import io.trino.sql.planner.TypeAnalyzer;
 
 import javax.inject.Singleton;
 
+import static io.airlift.configuration.ConfigBinder.configBinder;
+import static org.weakref.jmx.guice.ExportBinder.newExporter;
+
 public class StatsCalculatorModule
         implements Module
 {
     @Override
     public void configure(Binder binder)
     {
+        configBinder(binder).bindConfig(HistoricalStatisticsStoreConfig.class);
+        binder.bind(CanonicalPlanHasher.class).in(Scopes.SINGLETON);
+        binder.bind(LocalHistoricalStatisticsStore.class).in(Scopes.SINGLETON);
+        binder.bind(HistoricalStatisticsStore.class).to(LocalHistoricalStatisticsStore.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(LocalHistoricalStatisticsStore.class).withGeneratedName();
     }
 
     @Provides
     @Singleton
+    public static StatsCalculator createStatsCalculator(Metadata metadata, TypeAnalyzer typeAnalyzer, CanonicalPlanHasher planHasher, HistoricalStatisticsStore historicalStatisticsStore)
+    {
+        return new HistoryBasedStatsCalculator(createNewStatsCalculator(metadata, typeAnalyzer), planHasher, historicalStatisticsStore, new StatsNormalizer());
+    }
+
     public static StatsCalculator createNewStatsCalculator(Metadata metadata, TypeAnalyzer typeAnalyzer)
     {
         StatsNormalizer normalizer = new StatsNormalizer();
@@ -0,0 +1,180 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.execution;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.DataSize;
+import io.trino.cost.HistoricalPlanNodeStatistics;
+import io.trino.cost.HistoricalStatisticsStore;
+import io.trino.cost.PlanNodeStatsEstimate;
+import io.trino.execution.scheduler.SqlQueryScheduler.QueryReplanning;
+import io.trino.sql.planner.PlanFragment;
+import io.trino.sql.planner.SubPlan;
+import io.trino.sql.planner.TypeProvider;
+import io.trino.sql.planner.plan.JoinNode;
+import io.trino.sql.planner.plan.PlanFragmentId;
+import io.trino.sql.planner.plan.PlanNode;
+import io.trino.sql.planner.plan.PlanNodeId;
+import io.trino.sql.planner.plan.RemoteSourceNode;
+import io.trino.sql.planner.plan.SemiJoinNode;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static io.trino.sql.planner.SystemPartitioningHandle.FIXED_BROADCAST_DISTRIBUTION;
+import static io.trino.sql.planner.optimizations.PlanNodeSearcher.searchFrom;
+import static io.trino.sql.planner.plan.JoinNode.DistributionType.REPLICATED;
+import static java.util.Objects.requireNonNull;
+import static java.util.function.Function.identity;
+
+/**
+ * Plans a query again when the build side of a broadcast join turns out to be larger than
+ * the maximum broadcast table size, and much larger than estimated. The observed output of the
+ * build side is recorded as historical statistics, so that the new plan can partition the join
+ * or swap its sides. The build side is checked while it is running, in which case the observed
+ * output is a lower bound of its size.
+ */
+public class BroadcastJoinReplanning
+        implements QueryReplanning
+{
+    // the build side must be at least this many times larger than estimated to plan the query again
+    private static final double MIN_ESTIMATION_ERROR = 2;
+
+    private final Map<PlanFragmentId, BuildSide> buildSides;
+    private final DataSize joinMaxBroadcastTableSize;
+    private final HistoricalStatisticsStore statisticsStore;
+    private final Runnable replan;
+
+    public BroadcastJoinReplanning(SubPlan plan, Map<PlanNodeId, String> planHashes, DataSize joinMaxBroadcastTableSize, HistoricalStatisticsStore statisticsStore, Runnable replan)
+    {
+        requireNonNull(plan, "plan is null");
+        requireNonNull(planHashes, "planHashes is null");
+        this.buildSides = extractBuildSides(plan, planHashes);
+        this.joinMaxBroadcastTableSize = requireNonNull(joinMaxBroadcastTableSize, "joinMaxBroadcastTableSize is null");
+        this.statisticsStore = requireNonNull(statisticsStore, "statisticsStore is null");
+        this.replan = requireNonNull(replan, "replan is null");
+    }
+
+    @Override
+    public Set<PlanFragmentId> getCheckedFragments()
+    {
+        return buildSides.keySet();
+    }
+
+    @Override
+    public boolean shouldReplan(PlanFragmentId fragmentId, StageStats stageStats)
+    {
+        BuildSide buildSide = buildSides.get(fragmentId);
+        if (buildSide == null) {
+            return false;
+        }
+        double outputSizeInBytes = stageStats.getOutputDataSize().toBytes();
+        if (outputSizeInBytes <= joinMaxBroadcastTableSize.toBytes()) {
+            return false;
+        }
+        return Double.isNaN(buildSide.getEstimatedSizeInBytes()) || outputSizeInBytes > buildSide.getEstimatedSizeInBytes() * MIN_ESTIMATION_ERROR;
+    }
+
+    @Override
+    public void replan(PlanFragmentId fragmentId, StageStats stageStats, boolean outputComplete)
+    {
+        BuildSide buildSide = buildSides.get(fragmentId);
+        HistoricalPlanNodeStatistics observed = new HistoricalPlanNodeStatistics(stageStats.getOutputPositions(), stageStats.getOutputDataSize().toBytes());
+        HistoricalPlanNodeStatistics statistics = observed;
+        if (!outputComplete) {
+            // the partial output is a lower bound, so larger statistics recorded by a complete execution remain valid
+            statistics = statisticsStore.get(buildSide.getPlanHash())
+                    .filter(previous -> previous.getOutputSizeInBytes() > observed.getOutputSizeInBytes())
+                    .orElse(observed);
+        }
+        statisticsStore.putAll(ImmutableMap.of(buildSide.getPlanHash(), statistics));
+        replan.run();
+    }
+
+    private static Map<PlanFragmentId, BuildSide> extractBuildSides(SubPlan plan, Map<PlanNodeId, String> planHashes)
+    {
+        Map<PlanFragmentId, PlanFragment> fragments = plan.getAllFragments().stream()
+                .collect(toImmutableMap(PlanFragment::getId, identity()));
+
+        Set<PlanFragmentId> buildFragmentIds = new HashSet<>();
+        for (PlanFragment fragment : fragments.values()) {
+            for (PlanNode node : searchFrom(fragment.getRoot()).where(BroadcastJoinReplanning::canBePartitioned).findAll()) {
+                PlanNode buildSide = node instanceof JoinNode ? ((JoinNode) node).getRight() : ((SemiJoinNode) node).getFilteringSource();
+                buildFragmentIds.addAll(getSourceFragmentIds(buildSide));
+            }
+        }
+
+        ImmutableMap.Builder<PlanFragmentId, BuildSide> buildSides = ImmutableMap.builder();
+        for (PlanFragmentId fragmentId : buildFragmentIds) {
+            PlanFragment fragment = fragments.get(fragmentId);
+            PlanNode root = fragment.getRoot();
+            String planHash = planHashes.get(root.getId());
+            if (planHash == null || !fragment.getPartitioningScheme().getPartitioning().getHandle().equals(FIXED_BROADCAST_DISTRIBUTION)) {
+                continue;
+            }
+            PlanNodeStatsEstimate estimate = fragment.getStatsAndCosts().getStats().getOrDefault(root.getId(), PlanNodeStatsEstimate.unknown());
+            double estimatedSizeInBytes = estimate.getOutputSizeInBytes(root.getOutputSymbols(), TypeProvider.viewOf(fragment.getSymbols()));
+            buildSides.put(fragmentId, new BuildSide(planHash, estimatedSizeInBytes));
+        }
+        return buildSides.build();
+    }
+
+    private static boolean canBePartitioned(PlanNode node)
+    {
+        // joins without criteria, and spatial joins, can only be executed as broadcast joins
+        if (node instanceof JoinNode) {
+            JoinNode join = (JoinNode) node;
+            return join.getDistributionType().equals(Optional.of(REPLICATED)) && !join.getCriteria().isEmpty();
+        }
+        if (node instanceof SemiJoinNode) {
+            return ((SemiJoinNode) node).getDistributionType().equals(Optional.of(SemiJoinNode.DistributionType.REPLICATED));
+        }
+        return false;
+    }
+
+    private static Set<PlanFragmentId> getSourceFragmentIds(PlanNode buildSide)
+    {
+        Set<PlanFragmentId> fragmentIds = new HashSet<>();
+        searchFrom(buildSide)
+                .where(RemoteSourceNode.class::isInstance)
+                .findAll()
+                .forEach(remoteSource -> fragmentIds.addAll(((RemoteSourceNode) remoteSource).getSourceFragmentIds()));
+        return fragmentIds;
+    }
+
+    private static class BuildSide
+    {
+        private final String planHash;
+        private final double estimatedSizeInBytes;
+
+        public BuildSide(String planHash, double estimatedSizeInBytes)
+        {
+            this.planHash = requireNonNull(planHash, "planHash is null");
+            this.estimatedSizeInBytes = estimatedSizeInBytes;
+        }
+
+        public String getPlanHash()
+        {
+            return planHash;
+        }
+
+        public double getEstimatedSizeInBytes()
+        {
+            return estimatedSizeInBytes;
+        }
+    }
+}
@@ -192,6 +192,13 @@ public class DataDefinitionExecution<T extends Statement>
         // DDL does not have an output
     }
 
+    @Override
+    public Optional<QueryOutputInfo> getQueryOutputInfo()
+    {
+        // DDL does not have an output
+        return Optional.empty();
+    }
+
     @Override
     public ListenableFuture<QueryState> getStateChange(QueryState currentState)
     {
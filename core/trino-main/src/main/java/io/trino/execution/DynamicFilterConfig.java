@@ -18,10 +18,12 @@ import io.airlift.configuration.DefunctConfig;
 import io.airlift.configuration.LegacyConfig;
 import io.airlift.units.DataSize;
 import io.airlift.units.MaxDataSize;
+import io.airlift.units.MinDataSize;
 
 import javax.validation.constraints.Min;
 
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
 
 @DefunctConfig({
         "dynamic-filtering-max-per-driver-row-count",
@@ -51,6 +53,9 @@ public class DynamicFilterConfig
     private DataSize largePartitionedMaxSizePerDriver = DataSize.of(50, KILOBYTE);
     private int largePartitionedRangeRowLimitPerDriver = 1_000;
 
+    private boolean enableBloomFilters;
+    private DataSize bloomFilterMaxSize = DataSize.of(1, MEGABYTE);
+
     public boolean isEnableDynamicFiltering()
     {
         return enableDynamicFiltering;
@@ -244,4 +249,30 @@ public class DynamicFilterConfig
         this.largePartitionedRangeRowLimitPerDriver = largePartitionedRangeRowLimitPerDriver;
         return this;
     }
+
+    public boolean isEnableBloomFilters()
+    {
+        return enableBloomFilters;
+    }
+
+    @Config("dynamic-filtering.bloom-filter.enabled")
+    public DynamicFilterConfig setEnableBloomFilters(boolean enableBloomFilters)
+    {
+        this.enableBloomFilters = enableBloomFilters;
+        return this;
+    }
+
+    @MinDataSize("64B")
+    @MaxDataSize("64MB")
+    public DataSize getBloomFilterMaxSize()
+    {
+        return bloomFilterMaxSize;
+    }
+
+    @Config("dynamic-filtering.bloom-filter.max-size")
+    public DynamicFilterConfig setBloomFilterMaxSize(DataSize bloomFilterMaxSize)
+    {
+        this.bloomFilterMaxSize = bloomFilterMaxSize;
+        return this;
+    }
 }
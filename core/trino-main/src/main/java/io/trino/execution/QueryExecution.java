@@ -24,15 +24,19 @@ import io.trino.execution.StateMachine.StateChangeListener;
 import io.trino.execution.warnings.WarningCollector;
 import io.trino.memory.VersionedMemoryPoolId;
 import io.trino.server.BasicQueryInfo;
+import io.trino.server.protocol.QueryResultCache;
+import io.trino.server.protocol.QueryResultCache.CachedQueryResult;
 import io.trino.server.protocol.Slug;
 import io.trino.spi.type.Type;
 import io.trino.sql.planner.Plan;
 
 import java.net.URI;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
 public interface QueryExecution
@@ -46,6 +50,8 @@ public interface QueryExecution
 
     void addOutputInfoListener(Consumer<QueryOutputInfo> listener);
 
+    Optional<QueryOutputInfo> getQueryOutputInfo();
+
     Plan getQueryPlan();
 
     BasicQueryInfo getBasicQueryInfo();
@@ -91,6 +97,8 @@ public interface QueryExecution
      * contain the full location set, but may be empty.  Users of this data should keep a private copy of the seen buffers to
      * handle out of order events from the listener.  Once noMoreBufferLocations is set the locations will never change, and
      * it is guaranteed that all previously sent locations are contained in the buffer locations.
+     * When the results of the query are served from the {@link QueryResultCache}, there are no buffer locations
+     * and the info contains the cached results instead.
      */
     class QueryOutputInfo
     {
@@ -98,13 +106,29 @@ public interface QueryExecution
         private final List<Type> columnTypes;
         private final Set<URI> bufferLocations;
         private final boolean noMoreBufferLocations;
+        private final Optional<String> resultCacheKey;
+        private final Optional<CachedQueryResult> cachedResult;
 
         public QueryOutputInfo(List<String> columnNames, List<Type> columnTypes, Set<URI> bufferLocations, boolean noMoreBufferLocations)
+        {
+            this(columnNames, columnTypes, bufferLocations, noMoreBufferLocations, Optional.empty(), Optional.empty());
+        }
+
+        public QueryOutputInfo(
+                List<String> columnNames,
+                List<Type> columnTypes,
+                Set<URI> bufferLocations,
+                boolean noMoreBufferLocations,
+                Optional<String> resultCacheKey,
+                Optional<CachedQueryResult> cachedResult)
         {
             this.columnNames = ImmutableList.copyOf(requireNonNull(columnNames, "columnNames is null"));
             this.columnTypes = ImmutableList.copyOf(requireNonNull(columnTypes, "columnTypes is null"));
             this.bufferLocations = ImmutableSet.copyOf(requireNonNull(bufferLocations, "bufferLocations is null"));
             this.noMoreBufferLocations = noMoreBufferLocations;
+            this.resultCacheKey = requireNonNull(resultCacheKey, "resultCacheKey is null");
+            this.cachedResult = requireNonNull(cachedResult, "cachedResult is null");
+            checkArgument(cachedResult.isEmpty() || bufferLocations.isEmpty(), "Cached results can not be combined with buffer locations");
         }
 
         public List<String> getColumnNames()
@@ -126,5 +150,18 @@ public interface QueryExecution
         {
             return noMoreBufferLocations;
         }
+
+        /**
+         * Key the results of the query should be cached under once the query finishes successfully.
+         */
+        public Optional<String> getResultCacheKey()
+        {
+            return resultCacheKey;
+        }
+
+        public Optional<CachedQueryResult> getCachedResult()
+        {
+            return cachedResult;
+        }
     }
 }
@@ -22,6 +22,7 @@ import io.trino.spi.QueryId;
 
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.function.Consumer;
 
 public interface QueryManager
@@ -36,6 +37,15 @@ public interface QueryManager
     void addOutputInfoListener(QueryId queryId, Consumer<QueryExecution.QueryOutputInfo> listener)
             throws NoSuchElementException;
 
+    /**
+     * Gets the query output, if the output locations are already known. Unlike the output info
+     * listeners, this reflects all output set before the query reached its current state.
+     *
+     * @throws NoSuchElementException if query does not exist
+     */
+    Optional<QueryExecution.QueryOutputInfo> getQueryOutputInfo(QueryId queryId)
+            throws NoSuchElementException;
+
     /**
      * Add a listener that fires each time the query state changes.
      * Listener is always notified asynchronously using a dedicated notification thread pool so, care should
@@ -20,6 +20,7 @@ import io.airlift.configuration.LegacyConfig;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 import io.airlift.units.MinDuration;
+import io.trino.server.remotetask.RemoteTaskEncoding;
 
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
@@ -28,6 +29,9 @@ import javax.validation.constraints.NotNull;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+
 @DefunctConfig({
         "query.max-pending-splits-per-node",
         "query.queue-config-file",
@@ -57,6 +61,7 @@ public class QueryManagerConfig
 
     private Duration remoteTaskMaxErrorDuration = new Duration(5, TimeUnit.MINUTES);
     private int remoteTaskMaxCallbackThreads = 1000;
+    private RemoteTaskEncoding remoteTaskEncoding = RemoteTaskEncoding.SMILE;
 
     private String queryExecutionPolicy = "all-at-once";
     private Duration queryMaxRunTime = new Duration(100, TimeUnit.DAYS);
@@ -67,6 +72,18 @@ public class QueryManagerConfig
     private int requiredWorkers = 1;
     private Duration requiredWorkersMaxWait = new Duration(5, TimeUnit.MINUTES);
 
+    private boolean resultCacheEnabled;
+    private DataSize resultCacheMaxSize = DataSize.of(256, MEGABYTE);
+    private DataSize resultCacheMaxEntrySize = DataSize.of(8, MEGABYTE);
+    private Duration resultCacheTtl = new Duration(1, TimeUnit.MINUTES);
+
+    private boolean resultSegmentsEnabled;
+    private DataSize resultSegmentsMaxRetainedSize = DataSize.of(1, GIGABYTE);
+    private DataSize resultSegmentsMaxRetainedSizePerQuery = DataSize.of(128, MEGABYTE);
+
+    private RetryPolicy retryPolicy = RetryPolicy.NONE;
+    private int queryRetryAttempts = 4;
+
     @Min(1)
     public int getScheduleSplitBatchSize()
     {
@@ -324,6 +341,20 @@ public class QueryManagerConfig
         return this;
     }
 
+    @NotNull
+    public RemoteTaskEncoding getRemoteTaskEncoding()
+    {
+        return remoteTaskEncoding;
+    }
+
+    @Config("query.remote-task.encoding")
+    @ConfigDescription("Encoding of task updates, task info, task status and dynamic filters exchanged with workers")
+    public QueryManagerConfig setRemoteTaskEncoding(RemoteTaskEncoding remoteTaskEncoding)
+    {
+        this.remoteTaskEncoding = remoteTaskEncoding;
+        return this;
+    }
+
     @NotNull
     public String getQueryExecutionPolicy()
     {
@@ -364,4 +395,129 @@ public class QueryManagerConfig
         this.requiredWorkersMaxWait = requiredWorkersMaxWait;
         return this;
     }
+
+    public boolean isResultCacheEnabled()
+    {
+        return resultCacheEnabled;
+    }
+
+    @Config("query.result-cache.enabled")
+    @ConfigDescription("Reuse results of identical deterministic queries while the tables they read do not change")
+    public QueryManagerConfig setResultCacheEnabled(boolean resultCacheEnabled)
+    {
+        this.resultCacheEnabled = resultCacheEnabled;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getResultCacheMaxSize()
+    {
+        return resultCacheMaxSize;
+    }
+
+    @Config("query.result-cache.max-size")
+    @ConfigDescription("Maximum size of the off-heap memory used for cached query results")
+    public QueryManagerConfig setResultCacheMaxSize(DataSize resultCacheMaxSize)
+    {
+        this.resultCacheMaxSize = resultCacheMaxSize;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getResultCacheMaxEntrySize()
+    {
+        return resultCacheMaxEntrySize;
+    }
+
+    @Config("query.result-cache.max-entry-size")
+    @ConfigDescription("Results of queries larger than this size are not cached")
+    public QueryManagerConfig setResultCacheMaxEntrySize(DataSize resultCacheMaxEntrySize)
+    {
+        this.resultCacheMaxEntrySize = resultCacheMaxEntrySize;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1ms")
+    public Duration getResultCacheTtl()
+    {
+        return resultCacheTtl;
+    }
+
+    @Config("query.result-cache.ttl")
+    @ConfigDescription("Time after which cached query results are discarded")
+    public QueryManagerConfig setResultCacheTtl(Duration resultCacheTtl)
+    {
+        this.resultCacheTtl = resultCacheTtl;
+        return this;
+    }
+
+    public boolean isResultSegmentsEnabled()
+    {
+        return resultSegmentsEnabled;
+    }
+
+    @Config("query.result-segments.enabled")
+    @ConfigDescription("Return query results to supporting clients as segments that can be fetched in parallel")
+    public QueryManagerConfig setResultSegmentsEnabled(boolean resultSegmentsEnabled)
+    {
+        this.resultSegmentsEnabled = resultSegmentsEnabled;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getResultSegmentsMaxRetainedSize()
+    {
+        return resultSegmentsMaxRetainedSize;
+    }
+
+    @Config("query.result-segments.max-retained-size")
+    @ConfigDescription("Maximum size of the result segments retained on the coordinator for all queries")
+    public QueryManagerConfig setResultSegmentsMaxRetainedSize(DataSize resultSegmentsMaxRetainedSize)
+    {
+        this.resultSegmentsMaxRetainedSize = resultSegmentsMaxRetainedSize;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getResultSegmentsMaxRetainedSizePerQuery()
+    {
+        return resultSegmentsMaxRetainedSizePerQuery;
+    }
+
+    @Config("query.result-segments.max-retained-size-per-query")
+    @ConfigDescription("Maximum size of the result segments retained on the coordinator for a single query")
+    public QueryManagerConfig setResultSegmentsMaxRetainedSizePerQuery(DataSize resultSegmentsMaxRetainedSizePerQuery)
+    {
+        this.resultSegmentsMaxRetainedSizePerQuery = resultSegmentsMaxRetainedSizePerQuery;
+        return this;
+    }
+
+    @NotNull
+    public RetryPolicy getRetryPolicy()
+    {
+        return retryPolicy;
+    }
+
+    @Config("retry-policy")
+    @ConfigDescription("How queries react to the failure of one of their tasks")
+    public QueryManagerConfig setRetryPolicy(RetryPolicy retryPolicy)
+    {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    @Min(0)
+    public int getQueryRetryAttempts()
+    {
+        return queryRetryAttempts;
+    }
+
+    @Config("query-retry-attempts")
+    @ConfigDescription("Maximum number of times a failed query is restarted when the retry policy is QUERY")
+    public QueryManagerConfig setQueryRetryAttempts(int queryRetryAttempts)
+    {
+        this.queryRetryAttempts = queryRetryAttempts;
+        return this;
+    }
 }
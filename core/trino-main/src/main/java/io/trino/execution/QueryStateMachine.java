@@ -35,6 +35,7 @@ import io.trino.operator.OperatorStats;
 import io.trino.security.AccessControl;
 import io.trino.server.BasicQueryInfo;
 import io.trino.server.BasicQueryStats;
+import io.trino.server.protocol.QueryResultCache.CachedQueryResult;
 import io.trino.spi.ErrorCode;
 import io.trino.spi.QueryId;
 import io.trino.spi.TrinoException;
@@ -640,6 +641,11 @@ public class QueryStateMachine
         outputManager.addOutputInfoListener(listener);
     }
 
+    public Optional<QueryOutputInfo> getQueryOutputInfo()
+    {
+        return outputManager.getQueryOutputInfo();
+    }
+
     public void setColumns(List<String> columnNames, List<Type> columnTypes)
     {
         outputManager.setColumns(columnNames, columnTypes);
@@ -650,6 +656,16 @@ public class QueryStateMachine
         outputManager.updateOutputLocations(newExchangeLocations, noMoreExchangeLocations);
     }
 
+    public void setResultCacheKey(String resultCacheKey)
+    {
+        outputManager.setResultCacheKey(resultCacheKey);
+    }
+
+    public void setCachedResult(CachedQueryResult cachedResult)
+    {
+        outputManager.setCachedResult(cachedResult);
+    }
+
     public void setInputs(List<Input> inputs)
     {
         requireNonNull(inputs, "inputs is null");
@@ -1178,6 +1194,10 @@ public class QueryStateMachine
         private final Set<URI> exchangeLocations = new LinkedHashSet<>();
         @GuardedBy("this")
         private boolean noMoreExchangeLocations;
+        @GuardedBy("this")
+        private Optional<String> resultCacheKey = Optional.empty();
+        @GuardedBy("this")
+        private Optional<CachedQueryResult> cachedResult = Optional.empty();
 
         public QueryOutputManager(Executor executor)
         {
@@ -1196,6 +1216,20 @@ public class QueryStateMachine
             queryOutputInfo.ifPresent(info -> executor.execute(() -> listener.accept(info)));
         }
 
+        public synchronized void setResultCacheKey(String resultCacheKey)
+        {
+            requireNonNull(resultCacheKey, "resultCacheKey is null");
+            checkState(columnNames == null, "result cache key must be set before output fields");
+            this.resultCacheKey = Optional.of(resultCacheKey);
+        }
+
+        public synchronized void setCachedResult(CachedQueryResult cachedResult)
+        {
+            requireNonNull(cachedResult, "cachedResult is null");
+            checkState(columnNames == null, "cached result must be set before output fields");
+            this.cachedResult = Optional.of(cachedResult);
+        }
+
         public void setColumns(List<String> columnNames, List<Type> columnTypes)
         {
             requireNonNull(columnNames, "columnNames is null");
@@ -1235,12 +1269,12 @@ public class QueryStateMachine
             queryOutputInfo.ifPresent(info -> fireStateChanged(info, outputInfoListeners));
         }
 
-        private synchronized Optional<QueryOutputInfo> getQueryOutputInfo()
+        public synchronized Optional<QueryOutputInfo> getQueryOutputInfo()
         {
             if (columnNames == null || columnTypes == null) {
                 return Optional.empty();
             }
-            return Optional.of(new QueryOutputInfo(columnNames, columnTypes, exchangeLocations, noMoreExchangeLocations));
+            return Optional.of(new QueryOutputInfo(columnNames, columnTypes, exchangeLocations, noMoreExchangeLocations, resultCacheKey, cachedResult));
         }
 
         private void fireStateChanged(QueryOutputInfo queryOutputInfo, List<Consumer<QueryOutputInfo>> outputInfoListeners)
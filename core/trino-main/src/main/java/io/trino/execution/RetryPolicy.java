@@ -0,0 +1,30 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.execution;
+
+/**
+ * How a query reacts to the failure of one of its tasks
+ */
+public enum RetryPolicy
+{
+    /**
+     * Fail the query
+     */
+    NONE,
+    /**
+     * Restart all stages of the query, as long as no results have been returned to the client yet.
+     * Queries that write data are not restarted, since the writes of the failed attempt are not rolled back.
+     */
+    QUERY,
+}
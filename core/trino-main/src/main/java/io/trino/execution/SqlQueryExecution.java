@@ -13,6 +13,8 @@
  */
 package io.trino.execution;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.concurrent.SetThreadName;
 import io.airlift.log.Logger;
@@ -21,7 +23,10 @@ import io.airlift.units.Duration;
 import io.trino.Session;
 import io.trino.SystemSessionProperties;
 import io.trino.connector.CatalogName;
+import io.trino.cost.CanonicalPlanHasher;
 import io.trino.cost.CostCalculator;
+import io.trino.cost.HistoricalPlanNodeStatistics;
+import io.trino.cost.HistoricalStatisticsStore;
 import io.trino.cost.StatsCalculator;
 import io.trino.execution.QueryPreparer.PreparedQuery;
 import io.trino.execution.StateMachine.StateChangeListener;
@@ -31,6 +36,7 @@ import io.trino.execution.scheduler.ExecutionPolicy;
 import io.trino.execution.scheduler.NodeScheduler;
 import io.trino.execution.scheduler.SplitSchedulerStats;
 import io.trino.execution.scheduler.SqlQueryScheduler;
+import io.trino.execution.scheduler.SqlQueryScheduler.QueryReplanning;
 import io.trino.execution.warnings.WarningCollector;
 import io.trino.failuredetector.FailureDetector;
 import io.trino.memory.VersionedMemoryPoolId;
@@ -40,6 +46,8 @@ import io.trino.operator.ForScheduler;
 import io.trino.security.AccessControl;
 import io.trino.server.BasicQueryInfo;
 import io.trino.server.DynamicFilterService;
+import io.trino.server.protocol.QueryResultCache;
+import io.trino.server.protocol.QueryResultCache.CachedQueryResult;
 import io.trino.server.protocol.Slug;
 import io.trino.spi.QueryId;
 import io.trino.spi.TrinoException;
@@ -57,6 +65,7 @@ import io.trino.sql.planner.LogicalPlanner;
 import io.trino.sql.planner.NodePartitioningManager;
 import io.trino.sql.planner.PartitioningHandle;
 import io.trino.sql.planner.Plan;
+import io.trino.sql.planner.PlanFragment;
 import io.trino.sql.planner.PlanFragmenter;
 import io.trino.sql.planner.PlanNodeIdAllocator;
 import io.trino.sql.planner.PlanOptimizers;
@@ -64,6 +73,12 @@ import io.trino.sql.planner.StageExecutionPlan;
 import io.trino.sql.planner.SubPlan;
 import io.trino.sql.planner.TypeAnalyzer;
 import io.trino.sql.planner.optimizations.PlanOptimizer;
+import io.trino.sql.planner.plan.ExchangeNode;
+import io.trino.sql.planner.plan.OutputNode;
+import io.trino.sql.planner.plan.PlanNode;
+import io.trino.sql.planner.plan.PlanNodeId;
+import io.trino.sql.planner.plan.UnionNode;
+import io.trino.sql.planner.planprinter.PlanNodeStats;
 import io.trino.sql.tree.Explain;
 import io.trino.sql.tree.Query;
 import io.trino.sql.tree.Statement;
@@ -73,11 +88,13 @@ import javax.annotation.concurrent.ThreadSafe;
 import javax.inject.Inject;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
@@ -85,13 +102,22 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Throwables.throwIfInstanceOf;
 import static io.airlift.units.DataSize.succinctBytes;
+import static io.trino.SystemSessionProperties.getJoinDistributionType;
+import static io.trino.SystemSessionProperties.getJoinMaxBroadcastTableSize;
+import static io.trino.SystemSessionProperties.getQueryRetryAttempts;
+import static io.trino.SystemSessionProperties.getRetryPolicy;
+import static io.trino.SystemSessionProperties.isAdaptiveJoinReplanningEnabled;
 import static io.trino.SystemSessionProperties.isEnableDynamicFiltering;
+import static io.trino.SystemSessionProperties.isHistoryBasedStatisticsEnabled;
+import static io.trino.execution.QueryState.FINISHED;
 import static io.trino.execution.buffer.OutputBuffers.BROADCAST_PARTITION_ID;
 import static io.trino.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
 import static io.trino.execution.scheduler.SqlQueryScheduler.createSqlQueryScheduler;
 import static io.trino.server.DynamicFilterService.DynamicFiltersStats;
 import static io.trino.spi.StandardErrorCode.NOT_SUPPORTED;
 import static io.trino.sql.ParameterUtils.parameterExtractor;
+import static io.trino.sql.analyzer.FeaturesConfig.JoinDistributionType.AUTOMATIC;
+import static io.trino.sql.planner.planprinter.PlanNodeStatsSummarizer.aggregateStageStats;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
@@ -120,6 +146,8 @@ public class SqlQueryExecution
     private final FailureDetector failureDetector;
 
     private final AtomicReference<SqlQueryScheduler> queryScheduler = new AtomicReference<>();
+    // stage ids are unique across the attempts of a query, so that restarted tasks do not collide with the ones of a failed attempt
+    private final AtomicInteger nextStageId = new AtomicInteger();
     private final AtomicReference<Plan> queryPlan = new AtomicReference<>();
     private final NodeTaskMap nodeTaskMap;
     private final ExecutionPolicy executionPolicy;
@@ -128,6 +156,9 @@ public class SqlQueryExecution
     private final StatsCalculator statsCalculator;
     private final CostCalculator costCalculator;
     private final DynamicFilterService dynamicFilterService;
+    private final QueryResultCache resultCache;
+    private final CanonicalPlanHasher planHasher;
+    private final HistoricalStatisticsStore historicalStatisticsStore;
 
     private SqlQueryExecution(
             PreparedQuery preparedQuery,
@@ -155,6 +186,9 @@ public class SqlQueryExecution
             StatsCalculator statsCalculator,
             CostCalculator costCalculator,
             DynamicFilterService dynamicFilterService,
+            QueryResultCache resultCache,
+            CanonicalPlanHasher planHasher,
+            HistoricalStatisticsStore historicalStatisticsStore,
             WarningCollector warningCollector)
     {
         try (SetThreadName ignored = new SetThreadName("Query-%s", stateMachine.getQueryId())) {
@@ -176,6 +210,9 @@ public class SqlQueryExecution
             this.statsCalculator = requireNonNull(statsCalculator, "statsCalculator is null");
             this.costCalculator = requireNonNull(costCalculator, "costCalculator is null");
             this.dynamicFilterService = requireNonNull(dynamicFilterService, "dynamicFilterService is null");
+            this.resultCache = requireNonNull(resultCache, "resultCache is null");
+            this.planHasher = requireNonNull(planHasher, "planHasher is null");
+            this.historicalStatisticsStore = requireNonNull(historicalStatisticsStore, "historicalStatisticsStore is null");
 
             checkArgument(scheduleSplitBatchSize > 0, "scheduleSplitBatchSize must be greater than 0");
             this.scheduleSplitBatchSize = scheduleSplitBatchSize;
@@ -380,10 +417,19 @@ public class SqlQueryExecution
                 }
 
                 PlanRoot plan = planQuery();
+                if (plan.getResultCacheKey().isPresent()) {
+                    Optional<CachedQueryResult> cachedResult = resultCache.get(plan.getResultCacheKey().get());
+                    if (cachedResult.isPresent()) {
+                        finishWithCachedResult(plan, cachedResult.get());
+                        return;
+                    }
+                    // results are cached by the client protocol once they have all been delivered
+                    stateMachine.setResultCacheKey(plan.getResultCacheKey().get());
+                }
                 // DynamicFilterService needs plan for query to be registered.
                 // Query should be registered before dynamic filter suppliers are requested in distribution planning.
                 registerDynamicFilteringQuery(plan);
-                planDistribution(plan);
+                planDistribution(plan, 0);
 
                 if (!stateMachine.transitionToStarting()) {
                     // query already started or finished
@@ -404,6 +450,67 @@ public class SqlQueryExecution
         }
     }
 
+    private void retry(PlanRoot plan, int attempt, Throwable failure)
+    {
+        try (SetThreadName ignored = new SetThreadName("Query-%s", stateMachine.getQueryId())) {
+            try {
+                if (stateMachine.isDone()) {
+                    return;
+                }
+                log.warn(failure, "Restarting query %s after failure, retry %s of %s", stateMachine.getQueryId(), attempt, getQueryRetryAttempts(stateMachine.getSession()));
+                startAttempt(plan, attempt);
+            }
+            catch (Throwable e) {
+                fail(e);
+                throwIfInstanceOf(e, Error.class);
+            }
+        }
+    }
+
+    private void replan(int attempt)
+    {
+        try (SetThreadName ignored = new SetThreadName("Query-%s", stateMachine.getQueryId())) {
+            try {
+                if (stateMachine.isDone()) {
+                    return;
+                }
+                log.info("Restarting query %s with a new plan, since the build side of a broadcast join is larger than estimated", stateMachine.getQueryId());
+                startAttempt(planQuery(), attempt);
+            }
+            catch (Throwable e) {
+                fail(e);
+                throwIfInstanceOf(e, Error.class);
+            }
+        }
+    }
+
+    private void startAttempt(PlanRoot plan, int attempt)
+    {
+        // dynamic filters are collected again by the tasks of the new attempt
+        dynamicFilterService.removeQuery(stateMachine.getQueryId());
+        registerDynamicFilteringQuery(plan);
+        planDistribution(plan, attempt);
+
+        SqlQueryScheduler scheduler = queryScheduler.get();
+        if (!stateMachine.isDone()) {
+            scheduler.start();
+        }
+    }
+
+    private void finishWithCachedResult(PlanRoot plan, CachedQueryResult cachedResult)
+    {
+        // the results are served by the client protocol, so no stages are scheduled
+        PlanFragment outputFragment = plan.getRoot().getFragment();
+        stateMachine.setCachedResult(cachedResult);
+        stateMachine.setColumns(((OutputNode) outputFragment.getRoot()).getColumnNames(), outputFragment.getTypes());
+        stateMachine.updateOutputLocations(ImmutableSet.of(), true);
+
+        if (stateMachine.transitionToStarting()) {
+            stateMachine.transitionToRunning();
+            stateMachine.transitionToFinishing();
+        }
+    }
+
     @Override
     public void addStateChangeListener(StateChangeListener<QueryState> stateChangeListener)
     {
@@ -450,6 +557,13 @@ public class SqlQueryExecution
         Plan plan = logicalPlanner.plan(analysis);
         queryPlan.set(plan);
 
+        Map<PlanNodeId, String> planHashes = ImmutableMap.of();
+        if (isHistoryBasedStatisticsEnabled(stateMachine.getSession())) {
+            // table metadata is only accessible while the transaction is active
+            planHashes = planHasher.hashAll(plan.getRoot(), stateMachine.getSession());
+            addHistoricalStatisticsListener(plan, planHashes);
+        }
+
         // fragment the plan
         SubPlan fragmentedPlan = planFragmenter.createSubPlans(stateMachine.getSession(), plan, false, stateMachine.getWarningCollector());
 
@@ -459,11 +573,60 @@ public class SqlQueryExecution
 
         stateMachine.setOutput(analysis.getTarget());
 
+        Optional<String> resultCacheKey = Optional.empty();
+        if (analysis.getStatement() instanceof Query) {
+            resultCacheKey = resultCache.getCacheKey(stateMachine.getSession(), plan.getRoot());
+        }
+
         boolean explainAnalyze = analysis.getStatement() instanceof Explain && ((Explain) analysis.getStatement()).isAnalyze();
-        return new PlanRoot(fragmentedPlan, !explainAnalyze);
+        return new PlanRoot(fragmentedPlan, !explainAnalyze, resultCacheKey, planHashes);
+    }
+
+    private void addHistoricalStatisticsListener(Plan plan, Map<PlanNodeId, String> planHashes)
+    {
+        stateMachine.addQueryInfoStateChangeListener(queryInfo -> {
+            // the plan is replaced when the query is planned again
+            if (queryPlan.get() == plan) {
+                recordHistoricalStatistics(queryInfo, plan.getRoot(), planHashes);
+            }
+        });
+    }
+
+    private void recordHistoricalStatistics(QueryInfo queryInfo, PlanNode root, Map<PlanNodeId, String> planHashes)
+    {
+        if (queryInfo.getState() != FINISHED || queryInfo.getOutputStage().isEmpty() || planHashes.isEmpty()) {
+            return;
+        }
+        Map<PlanNodeId, PlanNodeStats> planNodeStats = aggregateStageStats(StageInfo.getAllStages(queryInfo.getOutputStage()));
+        Map<String, HistoricalPlanNodeStatistics> statistics = new HashMap<>();
+        collectHistoricalStatistics(root, planHashes, planNodeStats, statistics);
+        historicalStatisticsStore.putAll(statistics);
+    }
+
+    private static void collectHistoricalStatistics(PlanNode node, Map<PlanNodeId, String> planHashes, Map<PlanNodeId, PlanNodeStats> planNodeStats, Map<String, HistoricalPlanNodeStatistics> statistics)
+    {
+        String planHash = planHashes.get(node.getId());
+        PlanNodeStats stats = planNodeStats.get(node.getId());
+        if (planHash != null && stats != null) {
+            statistics.put(planHash, new HistoricalPlanNodeStatistics(stats.getPlanNodeOutputPositions(), stats.getPlanNodeOutputDataSize().toBytes()));
+        }
+
+        List<PlanNode> sources = node.getSources();
+        if (sources.size() > 1 && !(node instanceof UnionNode) && !(node instanceof ExchangeNode)) {
+            // joins stop reading the probe side when the build side is empty
+            boolean buildSidesProducedRows = sources.subList(1, sources.size()).stream()
+                    .map(source -> planNodeStats.get(source.getId()))
+                    .allMatch(sourceStats -> sourceStats != null && sourceStats.getPlanNodeOutputPositions() > 0);
+            if (!buildSidesProducedRows) {
+                sources = sources.subList(1, sources.size());
+            }
+        }
+        for (PlanNode source : sources) {
+            collectHistoricalStatistics(source, planHashes, planNodeStats, statistics);
+        }
     }
 
-    private void planDistribution(PlanRoot plan)
+    private void planDistribution(PlanRoot plan, int attempt)
     {
         // plan the execution on the active nodes
         DistributedExecutionPlanner distributedPlanner = new DistributedExecutionPlanner(splitManager, metadata, dynamicFilterService);
@@ -481,14 +644,38 @@ public class SqlQueryExecution
             return;
         }
 
-        // record output field
-        stateMachine.setColumns(outputStageExecutionPlan.getFieldNames(), outputStageExecutionPlan.getFragment().getTypes());
+        if (attempt == 0) {
+            // record output field
+            stateMachine.setColumns(outputStageExecutionPlan.getFieldNames(), outputStageExecutionPlan.getFragment().getTypes());
+        }
 
         PartitioningHandle partitioningHandle = plan.getRoot().getFragment().getPartitioningScheme().getPartitioning().getHandle();
         OutputBuffers rootOutputBuffers = createInitialEmptyOutputBuffers(partitioningHandle)
                 .withBuffer(OUTPUT_BUFFER_ID, BROADCAST_PARTITION_ID)
                 .withNoMoreBufferIds();
 
+        Optional<Consumer<Throwable>> queryRetry = Optional.empty();
+        Session session = stateMachine.getSession();
+        // queries that write data are not restarted, since the writes of the failed attempt are not rolled back
+        if (getRetryPolicy(session) == RetryPolicy.QUERY && attempt < getQueryRetryAttempts(session) && analysis.getUpdateType() == null) {
+            queryRetry = Optional.of(failure -> queryExecutor.execute(() -> retry(plan, attempt + 1, failure)));
+        }
+
+        // a query is planned again at most once, and the build side statistics are used through the historical statistics
+        Optional<QueryReplanning> queryReplanning = Optional.empty();
+        if (attempt == 0 && isAdaptiveJoinReplanningEnabled(session) && !plan.getPlanHashes().isEmpty() && analysis.getUpdateType() == null && getJoinDistributionType(session) == AUTOMATIC) {
+            BroadcastJoinReplanning replanning = new BroadcastJoinReplanning(
+                    plan.getRoot(),
+                    plan.getPlanHashes(),
+                    getJoinMaxBroadcastTableSize(session),
+                    historicalStatisticsStore,
+                    () -> queryExecutor.execute(() -> replan(attempt + 1)));
+            // without a broadcast build side to check, re-planning would only delay publishing the output
+            if (!replanning.getCheckedFragments().isEmpty()) {
+                queryReplanning = Optional.of(replanning);
+            }
+        }
+
         // build the stage execution objects (this doesn't schedule execution)
         SqlQueryScheduler scheduler = createSqlQueryScheduler(
                 stateMachine,
@@ -506,7 +693,10 @@ public class SqlQueryExecution
                 nodeTaskMap,
                 executionPolicy,
                 schedulerStats,
-                dynamicFilterService);
+                dynamicFilterService,
+                nextStageId,
+                queryRetry,
+                queryReplanning);
 
         queryScheduler.set(scheduler);
 
@@ -573,6 +763,12 @@ public class SqlQueryExecution
         stateMachine.addOutputInfoListener(listener);
     }
 
+    @Override
+    public Optional<QueryOutputInfo> getQueryOutputInfo()
+    {
+        return stateMachine.getQueryOutputInfo();
+    }
+
     @Override
     public ListenableFuture<QueryState> getStateChange(QueryState currentState)
     {
@@ -660,11 +856,15 @@ public class SqlQueryExecution
     {
         private final SubPlan root;
         private final boolean summarizeTaskInfos;
+        private final Optional<String> resultCacheKey;
+        private final Map<PlanNodeId, String> planHashes;
 
-        public PlanRoot(SubPlan root, boolean summarizeTaskInfos)
+        public PlanRoot(SubPlan root, boolean summarizeTaskInfos, Optional<String> resultCacheKey, Map<PlanNodeId, String> planHashes)
         {
             this.root = requireNonNull(root, "root is null");
             this.summarizeTaskInfos = summarizeTaskInfos;
+            this.resultCacheKey = requireNonNull(resultCacheKey, "resultCacheKey is null");
+            this.planHashes = ImmutableMap.copyOf(requireNonNull(planHashes, "planHashes is null"));
         }
 
         public SubPlan getRoot()
@@ -676,6 +876,16 @@ public class SqlQueryExecution
         {
             return summarizeTaskInfos;
         }
+
+        public Optional<String> getResultCacheKey()
+        {
+            return resultCacheKey;
+        }
+
+        public Map<PlanNodeId, String> getPlanHashes()
+        {
+            return planHashes;
+        }
     }
 
     public static class SqlQueryExecutionFactory
@@ -703,6 +913,9 @@ public class SqlQueryExecution
         private final StatsCalculator statsCalculator;
         private final CostCalculator costCalculator;
         private final DynamicFilterService dynamicFilterService;
+        private final QueryResultCache resultCache;
+        private final CanonicalPlanHasher planHasher;
+        private final HistoricalStatisticsStore historicalStatisticsStore;
 
         @Inject
         SqlQueryExecutionFactory(
@@ -727,7 +940,10 @@ public class SqlQueryExecution
                 SplitSchedulerStats schedulerStats,
                 StatsCalculator statsCalculator,
                 CostCalculator costCalculator,
-                DynamicFilterService dynamicFilterService)
+                DynamicFilterService dynamicFilterService,
+                QueryResultCache resultCache,
+                CanonicalPlanHasher planHasher,
+                HistoricalStatisticsStore historicalStatisticsStore)
         {
             requireNonNull(config, "config is null");
             this.schedulerStats = requireNonNull(schedulerStats, "schedulerStats is null");
@@ -752,6 +968,9 @@ public class SqlQueryExecution
             this.statsCalculator = requireNonNull(statsCalculator, "statsCalculator is null");
             this.costCalculator = requireNonNull(costCalculator, "costCalculator is null");
             this.dynamicFilterService = requireNonNull(dynamicFilterService, "dynamicFilterService is null");
+            this.resultCache = requireNonNull(resultCache, "resultCache is null");
+            this.planHasher = requireNonNull(planHasher, "planHasher is null");
+            this.historicalStatisticsStore = requireNonNull(historicalStatisticsStore, "historicalStatisticsStore is null");
         }
 
         @Override
@@ -791,6 +1010,9 @@ public class SqlQueryExecution
                     statsCalculator,
                     costCalculator,
                     dynamicFilterService,
+                    resultCache,
+                    planHasher,
+                    historicalStatisticsStore,
                     warningCollector);
         }
     }
@@ -155,6 +155,12 @@ public class SqlQueryManager
         queryTracker.getQuery(queryId).addOutputInfoListener(listener);
     }
 
+    @Override
+    public Optional<QueryOutputInfo> getQueryOutputInfo(QueryId queryId)
+    {
+        return queryTracker.getQuery(queryId).getQueryOutputInfo();
+    }
+
     @Override
     public void addStateChangeListener(QueryId queryId, StateChangeListener<QueryState> listener)
     {
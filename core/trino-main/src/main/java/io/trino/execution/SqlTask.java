@@ -27,12 +27,13 @@ import io.trino.execution.DynamicFiltersCollector.VersionedDynamicFilterDomains;
 import io.trino.execution.StateMachine.StateChangeListener;
 import io.trino.execution.buffer.BufferResult;
 import io.trino.execution.buffer.LazyOutputBuffer;
-import io.trino.execution.buffer.OutputBuffer;
 import io.trino.execution.buffer.OutputBuffers;
 import io.trino.execution.buffer.OutputBuffers.OutputBufferId;
+import io.trino.execution.buffer.PageSpoolFactory;
 import io.trino.memory.QueryContext;
 import io.trino.operator.PipelineContext;
 import io.trino.operator.PipelineStatus;
+import io.trino.operator.SpillContext;
 import io.trino.operator.TaskContext;
 import io.trino.operator.TaskStats;
 import io.trino.sql.planner.PlanFragment;
@@ -59,6 +60,7 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static io.airlift.units.DataSize.succinctBytes;
+import static io.trino.SystemSessionProperties.isExchangeSpoolingEnabled;
 import static io.trino.execution.DynamicFiltersCollector.INITIAL_DYNAMIC_FILTERS_VERSION;
 import static io.trino.execution.DynamicFiltersCollector.INITIAL_DYNAMIC_FILTER_DOMAINS;
 import static io.trino.execution.TaskState.ABORTED;
@@ -77,7 +79,7 @@ public class SqlTask
     private final URI location;
     private final String nodeId;
     private final TaskStateMachine taskStateMachine;
-    private final OutputBuffer outputBuffer;
+    private final LazyOutputBuffer outputBuffer;
     private final QueryContext queryContext;
 
     private final SqlTaskExecutionFactory sqlTaskExecutionFactory;
@@ -100,9 +102,10 @@ public class SqlTask
             Consumer<SqlTask> onDone,
             DataSize maxBufferSize,
             DataSize maxBroadcastBufferSize,
+            PageSpoolFactory pageSpoolFactory,
             CounterStat failedTasks)
     {
-        SqlTask sqlTask = new SqlTask(taskId, location, nodeId, queryContext, sqlTaskExecutionFactory, taskNotificationExecutor, maxBufferSize, maxBroadcastBufferSize);
+        SqlTask sqlTask = new SqlTask(taskId, location, nodeId, queryContext, sqlTaskExecutionFactory, taskNotificationExecutor, maxBufferSize, maxBroadcastBufferSize, pageSpoolFactory);
         sqlTask.initialize(onDone, failedTasks);
         return sqlTask;
     }
@@ -115,7 +118,8 @@ public class SqlTask
             SqlTaskExecutionFactory sqlTaskExecutionFactory,
             ExecutorService taskNotificationExecutor,
             DataSize maxBufferSize,
-            DataSize maxBroadcastBufferSize)
+            DataSize maxBroadcastBufferSize,
+            PageSpoolFactory pageSpoolFactory)
     {
         this.taskId = requireNonNull(taskId, "taskId is null");
         this.taskInstanceId = UUID.randomUUID().toString();
@@ -125,6 +129,7 @@ public class SqlTask
         this.sqlTaskExecutionFactory = requireNonNull(sqlTaskExecutionFactory, "sqlTaskExecutionFactory is null");
         this.taskNotificationExecutor = requireNonNull(taskNotificationExecutor, "taskNotificationExecutor is null");
         requireNonNull(maxBufferSize, "maxBufferSize is null");
+        requireNonNull(pageSpoolFactory, "pageSpoolFactory is null");
 
         outputBuffer = new LazyOutputBuffer(
                 taskId,
@@ -135,10 +140,24 @@ public class SqlTask
                 // Pass a memory context supplier instead of a memory context to the output buffer,
                 // because we haven't created the task context that holds the memory context yet.
                 () -> queryContext.getTaskContextByTaskId(taskId).localSystemMemoryContext(),
-                () -> notifyStatusChanged());
+                () -> notifyStatusChanged(),
+                // spooled pages count towards the spill limits of the query
+                Optional.of(() -> pageSpoolFactory.createPageSpool(createSpillContext(queryContext.getTaskContextByTaskId(taskId)))));
         taskStateMachine = new TaskStateMachine(taskId, taskNotificationExecutor);
     }
 
+    private static SpillContext createSpillContext(TaskContext taskContext)
+    {
+        return bytes -> {
+            if (bytes >= 0) {
+                taskContext.reserveSpill(bytes);
+            }
+            else {
+                taskContext.freeSpill(-bytes);
+            }
+        };
+    }
+
     // this is a separate method to ensure that the `this` reference is not leaked during construction
     private void initialize(Consumer<SqlTask> onDone, CounterStat failedTasks)
     {
@@ -412,7 +431,7 @@ public class SqlTask
             // The LazyOutput buffer does not support write methods, so the actual
             // output buffer must be established before drivers are created (e.g.
             // a VALUES query).
-            outputBuffer.setOutputBuffers(outputBuffers);
+            outputBuffer.setOutputBuffers(outputBuffers, isExchangeSpoolingEnabled(session));
 
             // assure the task execution is only created once
             SqlTaskExecution taskExecution;
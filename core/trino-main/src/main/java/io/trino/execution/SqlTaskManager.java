@@ -33,6 +33,7 @@ import io.trino.execution.StateMachine.StateChangeListener;
 import io.trino.execution.buffer.BufferResult;
 import io.trino.execution.buffer.OutputBuffers;
 import io.trino.execution.buffer.OutputBuffers.OutputBufferId;
+import io.trino.execution.buffer.PageSpoolFactory;
 import io.trino.execution.executor.TaskExecutor;
 import io.trino.memory.LocalMemoryManager;
 import io.trino.memory.MemoryPool;
@@ -131,10 +132,12 @@ public class SqlTaskManager
             NodeMemoryConfig nodeMemoryConfig,
             LocalSpillManager localSpillManager,
             NodeSpillConfig nodeSpillConfig,
+            PageSpoolFactory pageSpoolFactory,
             GcMonitor gcMonitor)
     {
         requireNonNull(nodeInfo, "nodeInfo is null");
         requireNonNull(config, "config is null");
+        requireNonNull(pageSpoolFactory, "pageSpoolFactory is null");
         infoCacheTime = config.getInfoMaxAge();
         clientTimeout = config.getClientTimeout();
 
@@ -172,6 +175,7 @@ public class SqlTaskManager
                         sqlTask -> finishedTaskStats.merge(sqlTask.getIoStats()),
                         maxBufferSize,
                         maxBroadcastBufferSize,
+                        pageSpoolFactory,
                         failedTasks)));
     }
 
@@ -18,6 +18,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableSet;
 import io.trino.execution.buffer.BufferInfo;
 import io.trino.execution.buffer.OutputBufferInfo;
+import io.trino.operator.PipelineStats;
 import io.trino.operator.TaskStats;
 import io.trino.sql.planner.plan.PlanNodeId;
 import org.joda.time.DateTime;
@@ -26,11 +27,17 @@ import javax.annotation.concurrent.Immutable;
 
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static io.trino.execution.TaskStatus.initialTaskStatus;
 import static io.trino.execution.buffer.BufferState.OPEN;
+import static java.util.Comparator.comparingInt;
 import static java.util.Objects.requireNonNull;
 
 @Immutable
@@ -105,6 +112,62 @@ public class TaskInfo
         return new TaskInfo(taskStatus, lastHeartbeat, outputBuffers.summarize(), noMoreSplits, stats.summarize(), needsPlan);
     }
 
+    /**
+     * Returns the number of completed drivers of each idle pipeline, keyed by pipeline id.
+     */
+    public Map<Integer, Integer> getIdlePipelines()
+    {
+        return stats.getPipelines().stream()
+                .filter(PipelineStats::isIdle)
+                .collect(toImmutableMap(PipelineStats::getPipelineId, PipelineStats::getCompletedDrivers));
+    }
+
+    /**
+     * Removes the stats of pipelines that are still idle with the same number of completed drivers
+     * as in {@code idlePipelines}, as the requester already has them. The stats of a task that is
+     * done are never removed, so that the final task info is always complete.
+     */
+    public TaskInfo withoutIdlePipelines(Map<Integer, Integer> idlePipelines)
+    {
+        if (idlePipelines.isEmpty() || taskStatus.getState().isDone()) {
+            return this;
+        }
+        List<PipelineStats> pipelines = stats.getPipelines().stream()
+                .filter(pipeline -> !isUnchangedIdlePipeline(pipeline, idlePipelines))
+                .collect(toImmutableList());
+        if (pipelines.size() == stats.getPipelines().size()) {
+            return this;
+        }
+        return new TaskInfo(taskStatus, lastHeartbeat, outputBuffers, noMoreSplits, stats.withPipelines(pipelines), needsPlan);
+    }
+
+    /**
+     * Restores the stats of idle pipelines removed by {@link #withoutIdlePipelines} from the
+     * previous task info of the same task.
+     */
+    public TaskInfo withIdlePipelinesFrom(TaskInfo previous)
+    {
+        List<PipelineStats> previousPipelines = previous.getStats().getPipelines();
+        if (taskStatus.getState().isDone() || stats.getPipelines().size() >= previousPipelines.size()) {
+            return this;
+        }
+        Set<Integer> pipelineIds = stats.getPipelines().stream()
+                .map(PipelineStats::getPipelineId)
+                .collect(toImmutableSet());
+        List<PipelineStats> pipelines = Stream.concat(
+                stats.getPipelines().stream(),
+                previousPipelines.stream().filter(pipeline -> pipeline.isIdle() && !pipelineIds.contains(pipeline.getPipelineId())))
+                .sorted(comparingInt(PipelineStats::getPipelineId))
+                .collect(toImmutableList());
+        return new TaskInfo(taskStatus, lastHeartbeat, outputBuffers, noMoreSplits, stats.withPipelines(pipelines), needsPlan);
+    }
+
+    private static boolean isUnchangedIdlePipeline(PipelineStats pipeline, Map<Integer, Integer> idlePipelines)
+    {
+        Integer completedDrivers = idlePipelines.get(pipeline.getPipelineId());
+        return pipeline.isIdle() && completedDrivers != null && completedDrivers == pipeline.getCompletedDrivers();
+    }
+
     @Override
     public String toString()
     {
@@ -119,7 +182,7 @@ public class TaskInfo
         return new TaskInfo(
                 initialTaskStatus(taskId, location, nodeId),
                 DateTime.now(),
-                new OutputBufferInfo("UNINITIALIZED", OPEN, true, true, 0, 0, 0, 0, bufferStates),
+                new OutputBufferInfo("UNINITIALIZED", OPEN, true, true, 0, 0, 0, 0, 0, bufferStates),
                 ImmutableSet.of(),
                 taskStats,
                 true);
@@ -74,6 +74,7 @@ public class TaskManagerConfig
     private int taskYieldThreads = 3;
 
     private BigDecimal levelTimeMultiplier = new BigDecimal(2.0);
+    private boolean workStealingEnabled;
 
     @MinDuration("1ms")
     @MaxDuration("10s")
@@ -209,6 +210,19 @@ public class TaskManagerConfig
         return this;
     }
 
+    public boolean isWorkStealingEnabled()
+    {
+        return workStealingEnabled;
+    }
+
+    @Config("task.work-stealing-enabled")
+    @ConfigDescription("Use a split queue for each worker thread, with idle threads stealing splits from the queues of other threads")
+    public TaskManagerConfig setWorkStealingEnabled(boolean workStealingEnabled)
+    {
+        this.workStealingEnabled = workStealingEnabled;
+        return this;
+    }
+
     @Min(1)
     public int getMaxWorkerThreads()
     {
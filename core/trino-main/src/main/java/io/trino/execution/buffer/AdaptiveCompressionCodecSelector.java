@@ -0,0 +1,168 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.execution.buffer;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.sun.management.OperatingSystemMXBean;
+import io.airlift.units.DataSize;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import java.lang.management.ManagementFactory;
+import java.util.Optional;
+import java.util.function.DoubleSupplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Chooses the codec with the lowest estimated cost of getting a page onto the wire, where the cost of
+ * a codec is the time spent compressing the page, scaled up as the CPU headroom of the sender shrinks,
+ * plus the time needed to transfer the compressed page at the expected network throughput. The
+ * compression ratio and speed of each codec are estimated from the pages recently compressed with it,
+ * and every codec is periodically retried so that the estimates follow changes in the data.
+ */
+@NotThreadSafe
+public class AdaptiveCompressionCodecSelector
+        implements CompressionCodecSelector
+{
+    private static final CompressionCodec[] CODECS = CompressionCodec.values();
+    @VisibleForTesting
+    static final int EXPLORATION_INTERVAL = 64;
+    private static final double SMOOTHING_FACTOR = 0.2;
+    private static final double MINIMUM_CPU_HEADROOM = 0.05;
+    private static final long CPU_LOAD_REFRESH_INTERVAL_NANOS = SECONDS.toNanos(1);
+
+    private final double networkNanosPerByte;
+    private final DoubleSupplier cpuLoad;
+    private final Ticker ticker;
+    private final CodecEstimate[] estimates = new CodecEstimate[CODECS.length];
+
+    private long selectedPages;
+    private int nextExploredCodec;
+    private double cpuWeight = 1;
+    private long cpuWeightUpdateNanos;
+    private boolean cpuWeightInitialized;
+
+    public AdaptiveCompressionCodecSelector(DataSize networkThroughput)
+    {
+        this(networkThroughput, createSystemCpuLoadSupplier(), Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    AdaptiveCompressionCodecSelector(DataSize networkThroughput, DoubleSupplier cpuLoad, Ticker ticker)
+    {
+        requireNonNull(networkThroughput, "networkThroughput is null");
+        checkArgument(networkThroughput.toBytes() > 0, "networkThroughput must be positive");
+        this.networkNanosPerByte = ((double) SECONDS.toNanos(1)) / networkThroughput.toBytes();
+        this.cpuLoad = requireNonNull(cpuLoad, "cpuLoad is null");
+        this.ticker = requireNonNull(ticker, "ticker is null");
+        for (int i = 0; i < CODECS.length; i++) {
+            estimates[i] = new CodecEstimate();
+        }
+    }
+
+    @Override
+    public Optional<CompressionCodec> selectCodec()
+    {
+        selectedPages++;
+        for (int i = 0; i < CODECS.length; i++) {
+            if (!estimates[i].hasSamples()) {
+                return Optional.of(CODECS[i]);
+            }
+        }
+        if (selectedPages % EXPLORATION_INTERVAL == 0) {
+            CompressionCodec codec = CODECS[nextExploredCodec];
+            nextExploredCodec = (nextExploredCodec + 1) % CODECS.length;
+            return Optional.of(codec);
+        }
+
+        updateCpuWeight();
+        Optional<CompressionCodec> selected = Optional.empty();
+        // sending the page uncompressed costs only the transfer
+        double lowestCost = networkNanosPerByte;
+        for (int i = 0; i < CODECS.length; i++) {
+            double cost = estimates[i].getCost(cpuWeight, networkNanosPerByte);
+            if (cost < lowestCost) {
+                lowestCost = cost;
+                selected = Optional.of(CODECS[i]);
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public void recordCompression(CompressionCodec codec, int uncompressedSize, int serializedSize, long compressionNanos)
+    {
+        if (uncompressedSize > 0) {
+            estimates[codec.ordinal()].add(((double) serializedSize) / uncompressedSize, ((double) compressionNanos) / uncompressedSize);
+        }
+    }
+
+    private void updateCpuWeight()
+    {
+        long now = ticker.read();
+        if (cpuWeightInitialized && now - cpuWeightUpdateNanos < CPU_LOAD_REFRESH_INTERVAL_NANOS) {
+            return;
+        }
+        // the load is negative when it is not available, in which case the sender is assumed idle
+        double headroom = 1 - min(max(cpuLoad.getAsDouble(), 0), 1);
+        cpuWeight = 1 / max(headroom, MINIMUM_CPU_HEADROOM);
+        cpuWeightUpdateNanos = now;
+        cpuWeightInitialized = true;
+    }
+
+    private static DoubleSupplier createSystemCpuLoadSupplier()
+    {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof OperatingSystemMXBean) {
+            // we want the com.sun.management sub-interface of java.lang.management.OperatingSystemMXBean
+            OperatingSystemMXBean operatingSystemMXBean = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+            return operatingSystemMXBean::getSystemCpuLoad;
+        }
+        return () -> 0;
+    }
+
+    private static class CodecEstimate
+    {
+        private boolean hasSamples;
+        private double ratio;
+        private double nanosPerByte;
+
+        public boolean hasSamples()
+        {
+            return hasSamples;
+        }
+
+        public void add(double ratio, double nanosPerByte)
+        {
+            if (!hasSamples) {
+                this.ratio = ratio;
+                this.nanosPerByte = nanosPerByte;
+                hasSamples = true;
+                return;
+            }
+            this.ratio += SMOOTHING_FACTOR * (ratio - this.ratio);
+            this.nanosPerByte += SMOOTHING_FACTOR * (nanosPerByte - this.nanosPerByte);
+        }
+
+        public double getCost(double cpuWeight, double networkNanosPerByte)
+        {
+            return nanosPerByte * cpuWeight + ratio * networkNanosPerByte;
+        }
+    }
+}
@@ -158,6 +158,7 @@ public class ArbitraryOutputBuffer
                 totalBufferedPages,
                 totalRowsAdded.get(),
                 totalPagesAdded.get(),
+                0,
                 infos.build());
     }
 
@@ -144,6 +144,7 @@ public class BroadcastOutputBuffer
                 totalBufferedPages.get(),
                 totalRowsAdded.get(),
                 totalPagesAdded.get(),
+                0,
                 buffers.stream()
                         .map(ClientBuffer::getInfo)
                         .collect(toImmutableList()));
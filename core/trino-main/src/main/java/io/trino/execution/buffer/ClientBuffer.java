@@ -70,6 +70,9 @@ class ClientBuffer
     @GuardedBy("this")
     private PendingRead pendingRead;
 
+    // serializes loads from the pages supplier, which happen outside of the lock on this
+    private final Object loadLock = new Object();
+
     public ClientBuffer(String taskInstanceId, OutputBufferId bufferId, PagesReleasedListener onPagesReleased)
     {
         this.taskInstanceId = requireNonNull(taskInstanceId, "taskInstanceId is null");
@@ -267,13 +270,18 @@ class ClientBuffer
 
         boolean dataAddedOrNoMorePages;
         List<SerializedPageReference> pageReferences;
-        synchronized (this) {
-            if (noMorePages) {
-                return false;
-            }
+        // The pages supplier may read the pages from disk, so the pages are loaded outside of the lock on this,
+        // which would otherwise block the client and the producers. Loads are serialized so that the pages
+        // are added in the order they are supplied.
+        synchronized (loadLock) {
+            synchronized (this) {
+                if (noMorePages) {
+                    return false;
+                }
 
-            if (!pages.isEmpty()) {
-                return false;
+                if (!pages.isEmpty()) {
+                    return false;
+                }
             }
 
             // The page supplier has incremented the page reference count, and addPages below also increments
@@ -281,14 +289,20 @@ class ClientBuffer
             // is performed outside of synchronized to avoid making a callback while holding a lock.
             pageReferences = pagesSupplier.getPages(maxSize);
 
-            // add the pages to this buffer, which will increase the reference count
-            addPages(pageReferences);
+            synchronized (this) {
+                // the pages of a destroyed buffer are never read
+                if (!destroyed.get()) {
+                    // add the pages to this buffer, which will increase the reference count
+                    addPages(pageReferences);
+                }
+                pagesSupplier.pagesAdded();
 
-            // check for no more pages
-            if (!pagesSupplier.mayHaveMorePages()) {
-                noMorePages = true;
+                // check for no more pages
+                if (!pagesSupplier.mayHaveMorePages()) {
+                    noMorePages = true;
+                }
+                dataAddedOrNoMorePages = !pageReferences.isEmpty() || noMorePages;
             }
-            dataAddedOrNoMorePages = !pageReferences.isEmpty() || noMorePages;
         }
 
         // sent pages will have an initial reference count, so drop it
@@ -484,5 +498,10 @@ class ClientBuffer
          * @return true if more pages may be produced; false otherwise
          */
         boolean mayHaveMorePages();
+
+        /**
+         * Called once the pages returned by {@link #getPages} have been added to the buffer.
+         */
+        default void pagesAdded() {}
     }
 }
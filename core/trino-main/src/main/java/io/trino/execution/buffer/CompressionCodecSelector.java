@@ -0,0 +1,42 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.execution.buffer;
+
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Chooses the codec used to compress each page serialized by a {@link PagesSerde}.
+ * Instances are owned by a single serde and are not thread safe.
+ */
+public interface CompressionCodecSelector
+{
+    /**
+     * Returns the codec to compress the next page with, or empty if the page should be sent uncompressed
+     */
+    Optional<CompressionCodec> selectCodec();
+
+    /**
+     * Records the outcome of compressing a page with {@code codec}. {@code serializedSize} is the size of
+     * the page as it is sent, which equals {@code uncompressedSize} when the compressed form was discarded.
+     */
+    default void recordCompression(CompressionCodec codec, int uncompressedSize, int serializedSize, long compressionNanos) {}
+
+    static CompressionCodecSelector fixed(CompressionCodec codec)
+    {
+        Optional<CompressionCodec> selected = Optional.of(requireNonNull(codec, "codec is null"));
+        return () -> selected;
+    }
+}
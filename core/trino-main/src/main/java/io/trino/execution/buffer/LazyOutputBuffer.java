@@ -30,6 +30,7 @@ import javax.annotation.concurrent.GuardedBy;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.function.Supplier;
@@ -54,6 +55,7 @@ public class LazyOutputBuffer
     private final Supplier<LocalMemoryContext> systemMemoryContextSupplier;
     private final Executor executor;
     private final Runnable notifyStatusChanged;
+    private final Optional<Supplier<PageSpool>> pageSpoolSupplier;
 
     // Note: this is a write once field, so an unsynchronized volatile read that returns a non-null value is safe, but if a null value is observed instead
     // a subsequent synchronized read is required to ensure the writing thread can complete any in-flight initialization
@@ -74,6 +76,19 @@ public class LazyOutputBuffer
             DataSize maxBroadcastBufferSize,
             Supplier<LocalMemoryContext> systemMemoryContextSupplier,
             Runnable notifyStatusChanged)
+    {
+        this(taskId, taskInstanceId, executor, maxBufferSize, maxBroadcastBufferSize, systemMemoryContextSupplier, notifyStatusChanged, Optional.empty());
+    }
+
+    public LazyOutputBuffer(
+            TaskId taskId,
+            String taskInstanceId,
+            Executor executor,
+            DataSize maxBufferSize,
+            DataSize maxBroadcastBufferSize,
+            Supplier<LocalMemoryContext> systemMemoryContextSupplier,
+            Runnable notifyStatusChanged,
+            Optional<Supplier<PageSpool>> pageSpoolSupplier)
     {
         requireNonNull(taskId, "taskId is null");
         this.taskInstanceId = requireNonNull(taskInstanceId, "taskInstanceId is null");
@@ -84,6 +99,7 @@ public class LazyOutputBuffer
         checkArgument(maxBufferSize.toBytes() > 0, "maxBufferSize must be at least 1");
         this.systemMemoryContextSupplier = requireNonNull(systemMemoryContextSupplier, "systemMemoryContextSupplier is null");
         this.notifyStatusChanged = requireNonNull(notifyStatusChanged, "notifyStatusChanged is null");
+        this.pageSpoolSupplier = requireNonNull(pageSpoolSupplier, "pageSpoolSupplier is null");
     }
 
     @Override
@@ -139,6 +155,7 @@ public class LazyOutputBuffer
                     0,
                     0,
                     0,
+                    0,
                     ImmutableList.of());
         }
         return outputBuffer.getInfo();
@@ -146,6 +163,14 @@ public class LazyOutputBuffer
 
     @Override
     public void setOutputBuffers(OutputBuffers newOutputBuffers)
+    {
+        setOutputBuffers(newOutputBuffers, false);
+    }
+
+    /**
+     * @param spoolingEnabled whether a partitioned buffer created by this call spools pages to disk once it is full
+     */
+    public void setOutputBuffers(OutputBuffers newOutputBuffers, boolean spoolingEnabled)
     {
         Set<OutputBufferId> abortedBuffers = ImmutableSet.of();
         List<PendingRead> pendingReads = ImmutableList.of();
@@ -160,7 +185,14 @@ public class LazyOutputBuffer
                     }
                     switch (newOutputBuffers.getType()) {
                         case PARTITIONED:
-                            outputBuffer = new PartitionedOutputBuffer(taskInstanceId, state, newOutputBuffers, maxBufferSize, systemMemoryContextSupplier, executor);
+                            outputBuffer = new PartitionedOutputBuffer(
+                                    taskInstanceId,
+                                    state,
+                                    newOutputBuffers,
+                                    maxBufferSize,
+                                    systemMemoryContextSupplier,
+                                    executor,
+                                    spoolingEnabled ? pageSpoolSupplier : Optional.empty());
                             break;
                         case BROADCAST:
                             outputBuffer = new BroadcastOutputBuffer(taskInstanceId, state, maxBroadcastBufferSize, systemMemoryContextSupplier, executor, notifyStatusChanged);
@@ -32,6 +32,7 @@ public final class OutputBufferInfo
     private final long totalBufferedPages;
     private final long totalRowsSent;
     private final long totalPagesSent;
+    private final long totalSpooledBytes;
     private final List<BufferInfo> buffers;
 
     @JsonCreator
@@ -44,6 +45,7 @@ public final class OutputBufferInfo
             @JsonProperty("totalBufferedPages") long totalBufferedPages,
             @JsonProperty("totalRowsSent") long totalRowsSent,
             @JsonProperty("totalPagesSent") long totalPagesSent,
+            @JsonProperty("totalSpooledBytes") long totalSpooledBytes,
             @JsonProperty("buffers") List<BufferInfo> buffers)
     {
         this.type = type;
@@ -54,6 +56,7 @@ public final class OutputBufferInfo
         this.totalBufferedPages = totalBufferedPages;
         this.totalRowsSent = totalRowsSent;
         this.totalPagesSent = totalPagesSent;
+        this.totalSpooledBytes = totalSpooledBytes;
         this.buffers = ImmutableList.copyOf(buffers);
     }
 
@@ -111,9 +114,18 @@ public final class OutputBufferInfo
         return totalPagesSent;
     }
 
+    /**
+     * Bytes of pages that were written to local disk because the buffer was full
+     */
+    @JsonProperty
+    public long getTotalSpooledBytes()
+    {
+        return totalSpooledBytes;
+    }
+
     public OutputBufferInfo summarize()
     {
-        return new OutputBufferInfo(type, state, canAddBuffers, canAddPages, totalBufferedBytes, totalBufferedPages, totalRowsSent, totalPagesSent, ImmutableList.of());
+        return new OutputBufferInfo(type, state, canAddBuffers, canAddPages, totalBufferedBytes, totalBufferedPages, totalRowsSent, totalPagesSent, totalSpooledBytes, ImmutableList.of());
     }
 
     @Override
@@ -133,6 +145,7 @@ public final class OutputBufferInfo
                 Objects.equals(totalBufferedPages, that.totalBufferedPages) &&
                 Objects.equals(totalRowsSent, that.totalRowsSent) &&
                 Objects.equals(totalPagesSent, that.totalPagesSent) &&
+                Objects.equals(totalSpooledBytes, that.totalSpooledBytes) &&
                 state == that.state &&
                 Objects.equals(buffers, that.buffers);
     }
@@ -140,7 +153,7 @@ public final class OutputBufferInfo
     @Override
     public int hashCode()
     {
-        return Objects.hash(state, canAddBuffers, canAddPages, totalBufferedBytes, totalBufferedPages, totalRowsSent, totalPagesSent, buffers);
+        return Objects.hash(state, canAddBuffers, canAddPages, totalBufferedBytes, totalBufferedPages, totalRowsSent, totalPagesSent, totalSpooledBytes, buffers);
     }
 
     @Override
@@ -155,6 +168,7 @@ public final class OutputBufferInfo
                 .add("totalBufferedPages", totalBufferedPages)
                 .add("totalRowsSent", totalRowsSent)
                 .add("totalPagesSent", totalPagesSent)
+                .add("totalSpooledBytes", totalSpooledBytes)
                 .add("buffers", buffers)
                 .toString();
     }
@@ -26,7 +26,12 @@ import static com.google.common.base.Preconditions.checkArgument;
 public enum PageCodecMarker
 {
     COMPRESSED(1),
-    ENCRYPTED(2);
+    ENCRYPTED(2),
+    /**
+     * Set together with {@link #COMPRESSED} when the page was compressed with {@link CompressionCodec#ZSTD}
+     * instead of the default {@link CompressionCodec#LZ4}
+     */
+    ZSTD_COMPRESSED(3);
 
     private final int mask;
 
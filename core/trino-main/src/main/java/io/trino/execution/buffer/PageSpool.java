@@ -0,0 +1,40 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.execution.buffer;
+
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * First-in first-out store of serialized pages outside of the heap. Output buffers use it to hold
+ * the pages of clients that read slower than the task produces them, instead of blocking the task.
+ */
+public interface PageSpool
+        extends Closeable
+{
+    /**
+     * Appends the pages to the spool, or ignores them if the spool is closed
+     */
+    void write(List<SerializedPage> pages);
+
+    /**
+     * Removes and returns the oldest pages up to the specified size, or a single page that exceeds the size
+     */
+    List<SerializedPage> read(long maxSizeInBytes);
+
+    boolean isEmpty();
+
+    @Override
+    void close();
+}
@@ -25,12 +25,16 @@ import io.trino.spiller.SpillCipher;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static io.trino.execution.buffer.CompressionCodec.ZSTD;
 import static io.trino.execution.buffer.PageCodecMarker.COMPRESSED;
 import static io.trino.execution.buffer.PageCodecMarker.ENCRYPTED;
+import static io.trino.execution.buffer.PageCodecMarker.ZSTD_COMPRESSED;
 import static io.trino.execution.buffer.PagesSerdeUtil.readRawPage;
 import static io.trino.execution.buffer.PagesSerdeUtil.writeRawPage;
 import static io.trino.spi.block.PageBuilderStatus.DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
@@ -43,16 +47,15 @@ public class PagesSerde
     private static final double MINIMUM_COMPRESSION_RATIO = 0.8;
 
     private final BlockEncodingSerde blockEncodingSerde;
-    private final Optional<Compressor> compressor;
-    private final Optional<Decompressor> decompressor;
+    private final Optional<CompressionCodecSelector> codecSelector;
     private final Optional<SpillCipher> spillCipher;
+    private final Map<CompressionCodec, Compressor> compressors = new EnumMap<>(CompressionCodec.class);
+    private final Map<CompressionCodec, Decompressor> decompressors = new EnumMap<>(CompressionCodec.class);
 
-    public PagesSerde(BlockEncodingSerde blockEncodingSerde, Optional<Compressor> compressor, Optional<Decompressor> decompressor, Optional<SpillCipher> spillCipher)
+    public PagesSerde(BlockEncodingSerde blockEncodingSerde, Optional<CompressionCodecSelector> codecSelector, Optional<SpillCipher> spillCipher)
     {
         this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
-        checkArgument(compressor.isPresent() == decompressor.isPresent(), "compressor and decompressor must both be present or both be absent");
-        this.compressor = requireNonNull(compressor, "compressor is null");
-        this.decompressor = requireNonNull(decompressor, "decompressor is null");
+        this.codecSelector = requireNonNull(codecSelector, "codecSelector is null");
         this.spillCipher = requireNonNull(spillCipher, "spillCipher is null");
     }
 
@@ -71,9 +74,12 @@ public class PagesSerde
             int uncompressedSize = serializationBuffer.size();
             MarkerSet markers = MarkerSet.empty();
 
-            if (compressor.isPresent()) {
-                byte[] compressed = context.acquireBuffer(compressor.get().maxCompressedLength(uncompressedSize));
-                int compressedSize = compressor.get().compress(
+            Optional<CompressionCodec> codec = codecSelector.flatMap(CompressionCodecSelector::selectCodec);
+            if (codec.isPresent()) {
+                Compressor compressor = compressors.computeIfAbsent(codec.get(), CompressionCodec::createCompressor);
+                long start = System.nanoTime();
+                byte[] compressed = context.acquireBuffer(compressor.maxCompressedLength(uncompressedSize));
+                int compressedSize = compressor.compress(
                         slice.byteArray(),
                         slice.byteArrayOffset(),
                         uncompressedSize,
@@ -84,12 +90,16 @@ public class PagesSerde
                 if ((((double) compressedSize) / uncompressedSize) <= MINIMUM_COMPRESSION_RATIO) {
                     slice = Slices.wrappedBuffer(compressed, 0, compressedSize);
                     markers.add(COMPRESSED);
+                    if (codec.get() == ZSTD) {
+                        markers.add(ZSTD_COMPRESSED);
+                    }
                     inUseTempBuffer = compressed; // Track the compression buffer as in use
                 }
                 else {
                     // Eager release of the compression buffer to enable reusing it for encryption without an extra allocation
                     context.releaseBuffer(compressed);
                 }
+                codecSelector.get().recordCompression(codec.get(), uncompressedSize, slice.length(), System.nanoTime() - start);
             }
 
             if (spillCipher.isPresent()) {
@@ -150,12 +160,13 @@ public class PagesSerde
             inUseTempBuffer = decrypted;
         }
 
-        if (serializedPage.isCompressed()) {
-            checkState(decompressor.isPresent(), "Page is compressed, but decompressor is missing");
+        Optional<CompressionCodec> codec = serializedPage.getCompressionCodec();
+        if (codec.isPresent()) {
+            Decompressor decompressor = decompressors.computeIfAbsent(codec.get(), CompressionCodec::createDecompressor);
 
             int uncompressedSize = serializedPage.getUncompressedSizeInBytes();
             byte[] decompressed = context.acquireBuffer(uncompressedSize);
-            checkState(decompressor.get().decompress(
+            checkState(decompressor.decompress(
                     slice.byteArray(),
                     slice.byteArrayOffset(),
                     slice.length(),
@@ -13,42 +13,68 @@
  */
 package io.trino.execution.buffer;
 
-import io.airlift.compress.lz4.Lz4Compressor;
-import io.airlift.compress.lz4.Lz4Decompressor;
+import io.airlift.units.DataSize;
 import io.trino.spi.block.BlockEncodingSerde;
 import io.trino.spiller.SpillCipher;
 
 import java.util.Optional;
 
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static io.trino.execution.buffer.CompressionCodec.LZ4;
+import static io.trino.execution.buffer.CompressionCodec.ZSTD;
 import static java.util.Objects.requireNonNull;
 
 public class PagesSerdeFactory
 {
+    public static final DataSize DEFAULT_NETWORK_THROUGHPUT = DataSize.of(125, MEGABYTE);
+
     private final BlockEncodingSerde blockEncodingSerde;
     private final boolean compressionEnabled;
+    private final ExchangeCompressionCodec compressionCodec;
+    private final DataSize networkThroughput;
 
     public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, boolean compressionEnabled)
+    {
+        this(blockEncodingSerde, compressionEnabled, ExchangeCompressionCodec.LZ4, DEFAULT_NETWORK_THROUGHPUT);
+    }
+
+    public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, boolean compressionEnabled, ExchangeCompressionCodec compressionCodec, DataSize networkThroughput)
     {
         this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
         this.compressionEnabled = compressionEnabled;
+        this.compressionCodec = requireNonNull(compressionCodec, "compressionCodec is null");
+        this.networkThroughput = requireNonNull(networkThroughput, "networkThroughput is null");
     }
 
     public PagesSerde createPagesSerde()
     {
-        return createPagesSerdeInternal(Optional.empty());
+        if (!compressionEnabled) {
+            return new PagesSerde(blockEncodingSerde, Optional.empty(), Optional.empty());
+        }
+        switch (compressionCodec) {
+            case LZ4:
+                return new PagesSerde(blockEncodingSerde, Optional.of(CompressionCodecSelector.fixed(LZ4)), Optional.empty());
+            case ZSTD:
+                return new PagesSerde(blockEncodingSerde, Optional.of(CompressionCodecSelector.fixed(ZSTD)), Optional.empty());
+            case ADAPTIVE:
+                // each serde adapts to the data and the destination of the operator that owns it
+                return new PagesSerde(blockEncodingSerde, Optional.of(new AdaptiveCompressionCodecSelector(networkThroughput)), Optional.empty());
+        }
+        throw new IllegalArgumentException("Unsupported compression codec: " + compressionCodec);
     }
 
     public PagesSerde createPagesSerdeForSpill(Optional<SpillCipher> spillCipher)
     {
-        return createPagesSerdeInternal(spillCipher);
+        return createPagesSerdeForSpill(spillCipher, LZ4);
     }
 
-    private PagesSerde createPagesSerdeInternal(Optional<SpillCipher> spillCipher)
+    public PagesSerde createPagesSerdeForSpill(Optional<SpillCipher> spillCipher, CompressionCodec compressionCodec)
     {
+        requireNonNull(compressionCodec, "compressionCodec is null");
         if (compressionEnabled) {
-            return new PagesSerde(blockEncodingSerde, Optional.of(new Lz4Compressor()), Optional.of(new Lz4Decompressor()), spillCipher);
+            return new PagesSerde(blockEncodingSerde, Optional.of(CompressionCodecSelector.fixed(compressionCodec)), spillCipher);
         }
 
-        return new PagesSerde(blockEncodingSerde, Optional.empty(), Optional.empty(), spillCipher);
+        return new PagesSerde(blockEncodingSerde, Optional.empty(), spillCipher);
     }
 }
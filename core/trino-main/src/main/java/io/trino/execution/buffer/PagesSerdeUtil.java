@@ -14,6 +14,8 @@
 package io.trino.execution.buffer;
 
 import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
 import io.airlift.slice.Slice;
 import io.airlift.slice.SliceInput;
 import io.airlift.slice.SliceOutput;
@@ -23,9 +25,15 @@ import io.trino.spi.Page;
 import io.trino.spi.block.Block;
 import io.trino.spi.block.BlockEncodingSerde;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Iterator;
 import java.util.List;
 
+import static io.airlift.slice.SizeOf.SIZE_OF_BYTE;
+import static io.airlift.slice.SizeOf.SIZE_OF_INT;
 import static io.trino.block.BlockSerdeUtil.readBlock;
 import static io.trino.block.BlockSerdeUtil.writeBlock;
 import static java.util.Arrays.asList;
@@ -42,6 +50,8 @@ public final class PagesSerdeUtil
      */
     public static final long NO_CHECKSUM = 0x0123456789abcdefL;
 
+    private static final int SERIALIZED_PAGE_HEADER_SIZE = SIZE_OF_INT + SIZE_OF_BYTE + SIZE_OF_INT + SIZE_OF_INT;
+
     static void writeRawPage(Page page, SliceOutput output, BlockEncodingSerde serde)
     {
         output.writeInt(page.getChannelCount());
@@ -103,6 +113,54 @@ public final class PagesSerdeUtil
         return size;
     }
 
+    /**
+     * Writes pages in the same format as {@link #writeSerializedPages(SliceOutput, Iterable)}, but writes the data
+     * of each page from the page itself, instead of copying it into the buffer of a {@link SliceOutput} first.
+     */
+    public static void writeSerializedPagesTo(OutputStream output, Iterable<SerializedPage> pages)
+            throws IOException
+    {
+        Slice header = Slices.allocate(SERIALIZED_PAGE_HEADER_SIZE);
+        for (SerializedPage page : pages) {
+            header.setInt(0, page.getPositionCount());
+            header.setByte(SIZE_OF_INT, page.getPageCodecMarkers());
+            header.setInt(SIZE_OF_INT + SIZE_OF_BYTE, page.getUncompressedSizeInBytes());
+            header.setInt(SIZE_OF_INT + SIZE_OF_BYTE + SIZE_OF_INT, page.getSizeInBytes());
+            header.getBytes(0, output, SERIALIZED_PAGE_HEADER_SIZE);
+            page.getSlice().getBytes(0, output, page.getSizeInBytes());
+        }
+    }
+
+    /**
+     * Reads all pages from the stream. Unlike {@link #readSerializedPages(SliceInput)}, the data of each page is read
+     * from the stream directly into memory allocated for the page, instead of being copied through the buffer of a
+     * {@link SliceInput}, so that pages received from the network are copied only once before they are decompressed.
+     */
+    public static List<SerializedPage> readSerializedPagesFrom(InputStream input)
+            throws IOException
+    {
+        ImmutableList.Builder<SerializedPage> pages = ImmutableList.builder();
+        byte[] headerBytes = new byte[SERIALIZED_PAGE_HEADER_SIZE];
+        Slice header = Slices.wrappedBuffer(headerBytes);
+        while (true) {
+            int headerSize = ByteStreams.read(input, headerBytes, 0, headerBytes.length);
+            if (headerSize == 0) {
+                return pages.build();
+            }
+            if (headerSize < headerBytes.length) {
+                throw new EOFException("Unexpected end of stream while reading page header");
+            }
+            int positionCount = header.getInt(0);
+            PageCodecMarker.MarkerSet markers = PageCodecMarker.MarkerSet.fromByteValue(header.getByte(SIZE_OF_INT));
+            int uncompressedSizeInBytes = header.getInt(SIZE_OF_INT + SIZE_OF_BYTE);
+            int sizeInBytes = header.getInt(SIZE_OF_INT + SIZE_OF_BYTE + SIZE_OF_INT);
+
+            byte[] data = new byte[sizeInBytes];
+            ByteStreams.readFully(input, data);
+            pages.add(new SerializedPage(Slices.wrappedBuffer(data), markers, positionCount, uncompressedSizeInBytes));
+        }
+    }
+
     public static long calculateChecksum(List<SerializedPage> pages)
     {
         XxHash64 hash = new XxHash64();
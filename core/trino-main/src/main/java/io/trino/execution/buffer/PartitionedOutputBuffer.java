@@ -19,17 +19,23 @@ import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.units.DataSize;
 import io.trino.execution.StateMachine;
 import io.trino.execution.StateMachine.StateChangeListener;
+import io.trino.execution.buffer.ClientBuffer.PagesSupplier;
 import io.trino.execution.buffer.OutputBuffers.OutputBufferId;
 import io.trino.execution.buffer.SerializedPageReference.PagesReleasedListener;
 import io.trino.memory.context.LocalMemoryContext;
 
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static io.trino.execution.buffer.BufferState.FAILED;
 import static io.trino.execution.buffer.BufferState.FINISHED;
 import static io.trino.execution.buffer.BufferState.FLUSHING;
@@ -49,9 +55,13 @@ public class PartitionedOutputBuffer
     private final PagesReleasedListener onPagesReleased;
 
     private final List<ClientBuffer> partitions;
+    // when spooling is enabled, pages of a partition go to its spool instead of blocking the producers once the buffer is full
+    private final Optional<List<PartitionSpool>> partitionSpools;
+    private final long maxBufferedBytes;
 
     private final AtomicLong totalPagesAdded = new AtomicLong();
     private final AtomicLong totalRowsAdded = new AtomicLong();
+    private final AtomicLong totalSpooledBytes = new AtomicLong();
 
     public PartitionedOutputBuffer(
             String taskInstanceId,
@@ -60,6 +70,18 @@ public class PartitionedOutputBuffer
             DataSize maxBufferSize,
             Supplier<LocalMemoryContext> systemMemoryContextSupplier,
             Executor notificationExecutor)
+    {
+        this(taskInstanceId, state, outputBuffers, maxBufferSize, systemMemoryContextSupplier, notificationExecutor, Optional.empty());
+    }
+
+    public PartitionedOutputBuffer(
+            String taskInstanceId,
+            StateMachine<BufferState> state,
+            OutputBuffers outputBuffers,
+            DataSize maxBufferSize,
+            Supplier<LocalMemoryContext> systemMemoryContextSupplier,
+            Executor notificationExecutor,
+            Optional<Supplier<PageSpool>> pageSpoolSupplier)
     {
         this.state = requireNonNull(state, "state is null");
 
@@ -72,6 +94,7 @@ public class PartitionedOutputBuffer
                 requireNonNull(systemMemoryContextSupplier, "systemMemoryContextSupplier is null"),
                 requireNonNull(notificationExecutor, "notificationExecutor is null"));
         this.onPagesReleased = PagesReleasedListener.forOutputBufferMemoryManager(memoryManager);
+        this.maxBufferedBytes = maxBufferSize.toBytes();
 
         ImmutableList.Builder<ClientBuffer> partitions = ImmutableList.builder();
         for (OutputBufferId bufferId : outputBuffers.getBuffers().keySet()) {
@@ -80,6 +103,15 @@ public class PartitionedOutputBuffer
         }
         this.partitions = partitions.build();
 
+        requireNonNull(pageSpoolSupplier, "pageSpoolSupplier is null");
+        this.partitionSpools = pageSpoolSupplier.map(supplier -> this.partitions.stream()
+                .map(partition -> new PartitionSpool(supplier))
+                .collect(toImmutableList()));
+        if (partitionSpools.isPresent()) {
+            // producers are only blocked when the memory pool is exhausted
+            memoryManager.setNoBlockOnFull();
+        }
+
         state.compareAndSet(OPEN, NO_MORE_BUFFERS);
         state.compareAndSet(NO_MORE_PAGES, FLUSHING);
         checkFlushComplete();
@@ -136,6 +168,7 @@ public class PartitionedOutputBuffer
                 totalBufferedPages,
                 totalRowsAdded.get(),
                 totalPagesAdded.get(),
+                totalSpooledBytes.get(),
                 infos.build());
     }
 
@@ -178,6 +211,25 @@ public class PartitionedOutputBuffer
             return;
         }
 
+        if (partitionSpools.isPresent()) {
+            PartitionSpool partitionSpool = partitionSpools.get().get(partitionNumber);
+            if (partitionSpool.spoolIfNecessary(pages)) {
+                long rowCount = 0;
+                long spooledBytes = 0;
+                for (SerializedPage page : pages) {
+                    rowCount += page.getPositionCount();
+                    spooledBytes += page.getSizeInBytes();
+                }
+                totalRowsAdded.addAndGet(rowCount);
+                totalPagesAdded.addAndGet(pages.size());
+                totalSpooledBytes.addAndGet(spooledBytes);
+
+                // serve a waiting client from the spool
+                partitions.get(partitionNumber).loadPagesIfNecessary(partitionSpool);
+                return;
+            }
+        }
+
         ImmutableList.Builder<SerializedPageReference> references = ImmutableList.builderWithExpectedSize(pages.size());
         long bytesAdded = 0;
         long rowCount = 0;
@@ -209,7 +261,11 @@ public class PartitionedOutputBuffer
         requireNonNull(outputBufferId, "outputBufferId is null");
         checkArgument(maxSize.toBytes() > 0, "maxSize must be at least 1 byte");
 
-        return partitions.get(outputBufferId.getId()).getPages(startingSequenceId, maxSize);
+        int partition = outputBufferId.getId();
+        if (partitionSpools.isPresent()) {
+            return partitions.get(partition).getPages(startingSequenceId, maxSize, Optional.of(partitionSpools.get().get(partition)));
+        }
+        return partitions.get(partition).getPages(startingSequenceId, maxSize);
     }
 
     @Override
@@ -226,6 +282,7 @@ public class PartitionedOutputBuffer
         requireNonNull(bufferId, "bufferId is null");
 
         partitions.get(bufferId.getId()).destroy();
+        partitionSpools.ifPresent(spools -> spools.get(bufferId.getId()).close());
 
         checkFlushComplete();
     }
@@ -237,7 +294,22 @@ public class PartitionedOutputBuffer
         state.compareAndSet(NO_MORE_BUFFERS, FLUSHING);
         memoryManager.setNoBlockOnFull();
 
-        partitions.forEach(ClientBuffer::setNoMorePages);
+        if (partitionSpools.isPresent()) {
+            for (int partition = 0; partition < partitions.size(); partition++) {
+                PartitionSpool partitionSpool = partitionSpools.get().get(partition);
+                partitionSpool.setNoMorePages();
+                // clients with spooled pages finish once they have read them from the spool
+                if (partitionSpool.mayHaveMorePages()) {
+                    partitions.get(partition).loadPagesIfNecessary(partitionSpool);
+                }
+                else {
+                    partitions.get(partition).setNoMorePages();
+                }
+            }
+        }
+        else {
+            partitions.forEach(ClientBuffer::setNoMorePages);
+        }
 
         checkFlushComplete();
     }
@@ -250,6 +322,7 @@ public class PartitionedOutputBuffer
             partitions.forEach(ClientBuffer::destroy);
             memoryManager.setNoBlockOnFull();
             forceFreeMemory();
+            closeSpools();
         }
     }
 
@@ -260,6 +333,7 @@ public class PartitionedOutputBuffer
         if (state.setIf(FAILED, oldState -> !oldState.isTerminal())) {
             memoryManager.setNoBlockOnFull();
             forceFreeMemory();
+            closeSpools();
             // DO NOT destroy buffers or set no more pages.  The coordinator manages the teardown of failed queries.
         }
     }
@@ -270,6 +344,11 @@ public class PartitionedOutputBuffer
         return memoryManager.getPeakMemoryUsage();
     }
 
+    private void closeSpools()
+    {
+        partitionSpools.ifPresent(spools -> spools.forEach(PartitionSpool::close));
+    }
+
     @VisibleForTesting
     void forceFreeMemory()
     {
@@ -292,4 +371,149 @@ public class PartitionedOutputBuffer
     {
         return memoryManager;
     }
+
+    /**
+     * Spool of a single partition. Once a page of the partition is spooled, all following pages
+     * of the partition are spooled too until the client has read the spool, which keeps the pages
+     * of the partition in order. The spool is read and written outside of the lock on this, which
+     * only guards the decision where the pages go.
+     */
+    @ThreadSafe
+    private class PartitionSpool
+            implements PagesSupplier
+    {
+        private final Supplier<PageSpool> pageSpoolSupplier;
+
+        @GuardedBy("this")
+        private PageSpool pageSpool;
+        // pages that are being written to the spool, or read from it and not yet added to the client buffer,
+        // keep the following pages in the spool as well
+        @GuardedBy("this")
+        private int pendingWrites;
+        @GuardedBy("this")
+        private boolean reading;
+        @GuardedBy("this")
+        private boolean noMorePages;
+        @GuardedBy("this")
+        private boolean closed;
+
+        public PartitionSpool(Supplier<PageSpool> pageSpoolSupplier)
+        {
+            this.pageSpoolSupplier = requireNonNull(pageSpoolSupplier, "pageSpoolSupplier is null");
+        }
+
+        /**
+         * @return true if the pages were spooled; false if they should be buffered in memory
+         */
+        public boolean spoolIfNecessary(List<SerializedPage> pages)
+        {
+            PageSpool pageSpool;
+            synchronized (this) {
+                if (closed || (!hasPendingPages() && memoryManager.getBufferedBytes() < maxBufferedBytes)) {
+                    return false;
+                }
+                pendingWrites++;
+                pageSpool = this.pageSpool;
+            }
+
+            try {
+                if (pageSpool == null) {
+                    pageSpool = createPageSpool();
+                }
+                // a spool closed in the meantime ignores the pages
+                pageSpool.write(pages);
+            }
+            finally {
+                synchronized (this) {
+                    pendingWrites--;
+                }
+            }
+            return true;
+        }
+
+        private PageSpool createPageSpool()
+        {
+            PageSpool newPageSpool = pageSpoolSupplier.get();
+            PageSpool pageSpool;
+            synchronized (this) {
+                if (this.pageSpool == null && !closed) {
+                    this.pageSpool = newPageSpool;
+                    return newPageSpool;
+                }
+                pageSpool = this.pageSpool;
+            }
+            // another producer created the spool first, or the spool was closed
+            newPageSpool.close();
+            return pageSpool == null ? newPageSpool : pageSpool;
+        }
+
+        @Override
+        public List<SerializedPageReference> getPages(DataSize maxSize)
+        {
+            PageSpool pageSpool;
+            synchronized (this) {
+                if (closed || this.pageSpool == null || this.pageSpool.isEmpty()) {
+                    return ImmutableList.of();
+                }
+                reading = true;
+                pageSpool = this.pageSpool;
+            }
+
+            List<SerializedPage> pages;
+            try {
+                pages = pageSpool.read(maxSize.toBytes());
+            }
+            catch (RuntimeException e) {
+                pagesAdded();
+                throw e;
+            }
+            ImmutableList.Builder<SerializedPageReference> references = ImmutableList.builder();
+            long bytesAdded = 0;
+            for (SerializedPage page : pages) {
+                bytesAdded += page.getRetainedSizeInBytes();
+                references.add(new SerializedPageReference(page, 1));
+            }
+            // pages read from the spool are buffered in memory until the client acknowledges them
+            memoryManager.updateMemoryUsage(bytesAdded);
+            return references.build();
+        }
+
+        @Override
+        public synchronized void pagesAdded()
+        {
+            reading = false;
+        }
+
+        @Override
+        public synchronized boolean mayHaveMorePages()
+        {
+            return !noMorePages || hasPendingPages();
+        }
+
+        public synchronized void setNoMorePages()
+        {
+            noMorePages = true;
+        }
+
+        public void close()
+        {
+            PageSpool pageSpool;
+            synchronized (this) {
+                closed = true;
+                pageSpool = this.pageSpool;
+            }
+            if (pageSpool != null) {
+                pageSpool.close();
+            }
+        }
+
+        @GuardedBy("this")
+        private boolean hasPendingPages()
+        {
+            if (closed) {
+                return false;
+            }
+            return pendingWrites > 0 || reading || (pageSpool != null && !pageSpool.isEmpty());
+        }
+    }
 }
@@ -16,10 +16,13 @@ package io.trino.execution.buffer;
 import io.airlift.slice.Slice;
 import org.openjdk.jol.info.ClassLayout;
 
+import java.util.Optional;
+
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static io.trino.execution.buffer.PageCodecMarker.COMPRESSED;
 import static io.trino.execution.buffer.PageCodecMarker.ENCRYPTED;
+import static io.trino.execution.buffer.PageCodecMarker.ZSTD_COMPRESSED;
 import static java.util.Objects.requireNonNull;
 
 public class SerializedPage
@@ -89,6 +92,17 @@ public class SerializedPage
         return ENCRYPTED.isSet(pageCodecMarkers);
     }
 
+    /**
+     * Returns the codec the page was compressed with, or empty if the page is not compressed
+     */
+    public Optional<CompressionCodec> getCompressionCodec()
+    {
+        if (!isCompressed()) {
+            return Optional.empty();
+        }
+        return Optional.of(ZSTD_COMPRESSED.isSet(pageCodecMarkers) ? CompressionCodec.ZSTD : CompressionCodec.LZ4);
+    }
+
     @Override
     public String toString()
     {
@@ -24,10 +24,11 @@ import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 import javax.inject.Inject;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
@@ -43,43 +44,75 @@ public class MultilevelSplitQueue
     static final int[] LEVEL_THRESHOLD_SECONDS = {0, 1, 10, 60, 300};
     static final long LEVEL_CONTRIBUTION_CAP = SECONDS.toNanos(30);
 
-    @GuardedBy("lock")
-    private final List<PriorityQueue<PrioritizedSplitRunner>> levelWaitingSplits;
+    /**
+     * Waiting splits are partitioned between runner queues. With a single queue all
+     * runner threads share one lock. With a queue per runner thread, a split returns to the
+     * queue of the thread it last ran on, and runner threads without local splits steal
+     * splits from the other queues. The scheduled time of the levels is tracked for all
+     * queues together.
+     */
+    private final List<RunnerQueue> runnerQueues;
+    private final AtomicInteger nextRunnerQueue = new AtomicInteger();
 
     private final AtomicLong[] levelScheduledTime = new AtomicLong[LEVEL_THRESHOLD_SECONDS.length];
+    private final AtomicIntegerArray levelWaitingSplitCount = new AtomicIntegerArray(LEVEL_THRESHOLD_SECONDS.length);
+    private final AtomicInteger waitingSplitCount = new AtomicInteger();
 
     private final AtomicLong[] levelMinPriority;
     private final List<CounterStat> selectedLevelCounters;
 
-    private final ReentrantLock lock = new ReentrantLock();
-    private final Condition notEmpty = lock.newCondition();
+    // runner threads without waiting splits wait here
+    private final ReentrantLock idleLock = new ReentrantLock();
+    private final Condition notEmpty = idleLock.newCondition();
+    private final AtomicInteger idleRunners = new AtomicInteger();
+
+    private final CounterStat contendedLockAcquisitions = new CounterStat();
+    private final CounterStat stolenSplits = new CounterStat();
 
     private final double levelTimeMultiplier;
 
     @Inject
     public MultilevelSplitQueue(TaskManagerConfig taskManagerConfig)
     {
-        this(taskManagerConfig.getLevelTimeMultiplier().doubleValue());
+        this(
+                taskManagerConfig.getLevelTimeMultiplier().doubleValue(),
+                taskManagerConfig.isWorkStealingEnabled() ? taskManagerConfig.getMaxWorkerThreads() : 1);
     }
 
     public MultilevelSplitQueue(double levelTimeMultiplier)
     {
+        this(levelTimeMultiplier, 1);
+    }
+
+    public MultilevelSplitQueue(double levelTimeMultiplier, int runnerQueueCount)
+    {
+        checkArgument(runnerQueueCount > 0, "runnerQueueCount must be at least 1");
         this.levelMinPriority = new AtomicLong[LEVEL_THRESHOLD_SECONDS.length];
-        this.levelWaitingSplits = new ArrayList<>(LEVEL_THRESHOLD_SECONDS.length);
         ImmutableList.Builder<CounterStat> counters = ImmutableList.builder();
 
         for (int i = 0; i < LEVEL_THRESHOLD_SECONDS.length; i++) {
             levelScheduledTime[i] = new AtomicLong();
             levelMinPriority[i] = new AtomicLong(-1);
-            levelWaitingSplits.add(new PriorityQueue<>());
             counters.add(new CounterStat());
         }
 
         this.selectedLevelCounters = counters.build();
 
+        ImmutableList.Builder<RunnerQueue> runnerQueues = ImmutableList.builder();
+        for (int i = 0; i < runnerQueueCount; i++) {
+            runnerQueues.add(new RunnerQueue());
+        }
+        this.runnerQueues = runnerQueues.build();
+
         this.levelTimeMultiplier = levelTimeMultiplier;
     }
 
+    @Managed
+    public int getRunnerQueueCount()
+    {
+        return runnerQueues.size();
+    }
+
     private void addLevelTime(int level, long nanos)
     {
         levelScheduledTime[level].addAndGet(nanos);
@@ -101,9 +134,10 @@ public class MultilevelSplitQueue
 
         split.setReady();
         int level = split.getPriority().getLevel();
-        lock.lock();
+        RunnerQueue runnerQueue = runnerQueues.get(getRunnerQueueIndex(split));
+        lock(runnerQueue.lock);
         try {
-            if (levelWaitingSplits.get(level).isEmpty()) {
+            if (levelWaitingSplitCount.get(level) == 0) {
                 // Accesses to levelScheduledTime are not synchronized, so we have a data race
                 // here - our level time math will be off. However, the staleness is bounded by
                 // the fact that only running splits that complete during this computation
@@ -114,40 +148,122 @@ public class MultilevelSplitQueue
                 levelScheduledTime[level].addAndGet(delta);
             }
 
-            levelWaitingSplits.get(level).offer(split);
-            notEmpty.signal();
+            runnerQueue.levelWaitingSplits.get(level).offer(split);
+            levelWaitingSplitCount.incrementAndGet(level);
+            waitingSplitCount.incrementAndGet();
         }
         finally {
-            lock.unlock();
+            runnerQueue.lock.unlock();
+        }
+
+        if (idleRunners.get() > 0) {
+            idleLock.lock();
+            try {
+                notEmpty.signal();
+            }
+            finally {
+                idleLock.unlock();
+            }
         }
     }
 
-    public PrioritizedSplitRunner take()
+    private int getRunnerQueueIndex(PrioritizedSplitRunner split)
+    {
+        int index = split.getRunnerQueue();
+        if (index < 0 || index >= runnerQueues.size()) {
+            // spread new splits over all queues
+            index = Math.floorMod(nextRunnerQueue.getAndIncrement(), runnerQueues.size());
+            split.setRunnerQueue(index);
+        }
+        return index;
+    }
+
+    /**
+     * Takes the next split from the queue of the runner thread, or steals one from another
+     * runner queue if there are no local splits.
+     */
+    public PrioritizedSplitRunner take(int runnerQueueIndex)
             throws InterruptedException
     {
+        checkArgument(runnerQueueIndex >= 0, "runnerQueueIndex is negative");
+        int index = runnerQueueIndex % runnerQueues.size();
         while (true) {
-            lock.lockInterruptibly();
+            PrioritizedSplitRunner result = pollSplit(runnerQueues.get(index));
+            if (result == null) {
+                result = stealSplit(index);
+            }
+            if (result == null) {
+                awaitSplit();
+                continue;
+            }
+
+            // subsequent quanta of the split run on this thread
+            result.setRunnerQueue(index);
+            if (result.updateLevelPriority()) {
+                offer(result);
+                continue;
+            }
+
+            int selectedLevel = result.getPriority().getLevel();
+            levelMinPriority[selectedLevel].set(result.getPriority().getLevelPriority());
+            selectedLevelCounters.get(selectedLevel).update(1);
+
+            return result;
+        }
+    }
+
+    private PrioritizedSplitRunner stealSplit(int runnerQueueIndex)
+    {
+        for (int i = 1; i < runnerQueues.size(); i++) {
+            RunnerQueue victim = runnerQueues.get((runnerQueueIndex + i) % runnerQueues.size());
+            // do not wait for queues that are busy, as their own runner thread is likely using them
+            if (!victim.lock.tryLock()) {
+                continue;
+            }
             try {
-                PrioritizedSplitRunner result;
-                while ((result = pollSplit()) == null) {
-                    notEmpty.await();
+                PrioritizedSplitRunner split = pollSplit(victim.levelWaitingSplits);
+                if (split != null) {
+                    stolenSplits.update(1);
+                    return split;
                 }
+            }
+            finally {
+                victim.lock.unlock();
+            }
+        }
+        return null;
+    }
 
-                if (result.updateLevelPriority()) {
-                    offer(result);
-                    continue;
+    private void awaitSplit()
+            throws InterruptedException
+    {
+        idleLock.lockInterruptibly();
+        try {
+            idleRunners.incrementAndGet();
+            try {
+                // splits offered after the increment signal this thread
+                if (waitingSplitCount.get() == 0) {
+                    notEmpty.await();
                 }
-
-                int selectedLevel = result.getPriority().getLevel();
-                levelMinPriority[selectedLevel].set(result.getPriority().getLevelPriority());
-                selectedLevelCounters.get(selectedLevel).update(1);
-
-                return result;
             }
             finally {
-                lock.unlock();
+                idleRunners.decrementAndGet();
             }
         }
+        finally {
+            idleLock.unlock();
+        }
+    }
+
+    private PrioritizedSplitRunner pollSplit(RunnerQueue runnerQueue)
+    {
+        lock(runnerQueue.lock);
+        try {
+            return pollSplit(runnerQueue.levelWaitingSplits);
+        }
+        finally {
+            runnerQueue.lock.unlock();
+        }
     }
 
     /**
@@ -158,8 +274,7 @@ public class MultilevelSplitQueue
      * with the objective of minimizing deviation from the target scheduled time. From this level,
      * we pick the split with the lowest priority.
      */
-    @GuardedBy("lock")
-    private PrioritizedSplitRunner pollSplit()
+    private PrioritizedSplitRunner pollSplit(List<PriorityQueue<PrioritizedSplitRunner>> levelWaitingSplits)
     {
         long targetScheduledTime = getLevel0TargetTime();
         double worstRatio = 1;
@@ -183,11 +298,20 @@ public class MultilevelSplitQueue
 
         PrioritizedSplitRunner result = levelWaitingSplits.get(selectedLevel).poll();
         checkState(result != null, "pollSplit cannot return null");
+        levelWaitingSplitCount.decrementAndGet(selectedLevel);
+        waitingSplitCount.decrementAndGet();
 
         return result;
     }
 
-    @GuardedBy("lock")
+    private void lock(ReentrantLock lock)
+    {
+        if (!lock.tryLock()) {
+            contendedLockAcquisitions.update(1);
+            lock.lock();
+        }
+    }
+
     private long getLevel0TargetTime()
     {
         long level0TargetTime = levelScheduledTime[0].get();
@@ -247,27 +371,39 @@ public class MultilevelSplitQueue
     public void remove(PrioritizedSplitRunner split)
     {
         checkArgument(split != null, "split is null");
-        lock.lock();
-        try {
-            for (PriorityQueue<PrioritizedSplitRunner> level : levelWaitingSplits) {
-                level.remove(split);
+        for (RunnerQueue runnerQueue : runnerQueues) {
+            lock(runnerQueue.lock);
+            try {
+                for (int level = 0; level < LEVEL_THRESHOLD_SECONDS.length; level++) {
+                    if (runnerQueue.levelWaitingSplits.get(level).remove(split)) {
+                        levelWaitingSplitCount.decrementAndGet(level);
+                        waitingSplitCount.decrementAndGet();
+                    }
+                }
+            }
+            finally {
+                runnerQueue.lock.unlock();
             }
-        }
-        finally {
-            lock.unlock();
         }
     }
 
     public void removeAll(Collection<PrioritizedSplitRunner> splits)
     {
-        lock.lock();
-        try {
-            for (PriorityQueue<PrioritizedSplitRunner> level : levelWaitingSplits) {
-                level.removeAll(splits);
+        for (RunnerQueue runnerQueue : runnerQueues) {
+            lock(runnerQueue.lock);
+            try {
+                for (int level = 0; level < LEVEL_THRESHOLD_SECONDS.length; level++) {
+                    PriorityQueue<PrioritizedSplitRunner> levelSplits = runnerQueue.levelWaitingSplits.get(level);
+                    int removed = levelSplits.size();
+                    levelSplits.removeAll(splits);
+                    removed -= levelSplits.size();
+                    levelWaitingSplitCount.addAndGet(level, -removed);
+                    waitingSplitCount.addAndGet(-removed);
+                }
+            }
+            finally {
+                runnerQueue.lock.unlock();
             }
-        }
-        finally {
-            lock.unlock();
         }
     }
 
@@ -279,17 +415,7 @@ public class MultilevelSplitQueue
 
     public int size()
     {
-        lock.lock();
-        try {
-            int total = 0;
-            for (PriorityQueue<PrioritizedSplitRunner> level : levelWaitingSplits) {
-                total += level.size();
-            }
-            return total;
-        }
-        finally {
-            lock.unlock();
-        }
+        return waitingSplitCount.get();
     }
 
     public static int computeLevel(long threadUsageNanos)
@@ -374,4 +500,34 @@ public class MultilevelSplitQueue
     {
         return selectedLevelCounters.get(4);
     }
+
+    @Managed
+    @Nested
+    public CounterStat getContendedLockAcquisitions()
+    {
+        return contendedLockAcquisitions;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getStolenSplits()
+    {
+        return stolenSplits;
+    }
+
+    private static class RunnerQueue
+    {
+        private final ReentrantLock lock = new ReentrantLock();
+        @GuardedBy("lock")
+        private final List<PriorityQueue<PrioritizedSplitRunner>> levelWaitingSplits;
+
+        public RunnerQueue()
+        {
+            ImmutableList.Builder<PriorityQueue<PrioritizedSplitRunner>> levelWaitingSplits = ImmutableList.builder();
+            for (int i = 0; i < LEVEL_THRESHOLD_SECONDS.length; i++) {
+                levelWaitingSplits.add(new PriorityQueue<>());
+            }
+            this.levelWaitingSplits = levelWaitingSplits.build();
+        }
+    }
 }
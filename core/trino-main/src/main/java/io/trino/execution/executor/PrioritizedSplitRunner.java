@@ -55,6 +55,9 @@ public class PrioritizedSplitRunner
 
     private final AtomicBoolean destroyed = new AtomicBoolean();
 
+    // runner queue the split was last taken from, or -1 if it has not run yet
+    private volatile int runnerQueue = -1;
+
     protected final AtomicReference<Priority> priority = new AtomicReference<>(new Priority(0, 0));
 
     protected final AtomicLong lastRun = new AtomicLong();
@@ -190,6 +193,16 @@ public class PrioritizedSplitRunner
         }
     }
 
+    int getRunnerQueue()
+    {
+        return runnerQueue;
+    }
+
+    void setRunnerQueue(int runnerQueue)
+    {
+        this.runnerQueue = runnerQueue;
+    }
+
     public void setReady()
     {
         lastReady.set(ticker.read());
@@ -14,6 +14,7 @@
 package io.trino.execution.scheduler;
 
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
 import io.airlift.configuration.DefunctConfig;
 import io.airlift.configuration.LegacyConfig;
 
@@ -36,6 +37,7 @@ public class NodeSchedulerConfig
     private int maxPendingSplitsPerTask = 10;
     private NodeSchedulerPolicy nodeSchedulerPolicy = NodeSchedulerPolicy.UNIFORM;
     private boolean optimizedLocalScheduling = true;
+    private boolean splitCacheAffinity;
 
     @NotNull
     public NodeSchedulerPolicy getNodeSchedulerPolicy()
@@ -127,4 +129,17 @@ public class NodeSchedulerConfig
         this.optimizedLocalScheduling = optimizedLocalScheduling;
         return this;
     }
+
+    public boolean isSplitCacheAffinity()
+    {
+        return splitCacheAffinity;
+    }
+
+    @Config("node-scheduler.split-cache-affinity")
+    @ConfigDescription("Schedule splits with a cache identifier on the same nodes, so they can be served from the worker split cache")
+    public NodeSchedulerConfig setSplitCacheAffinity(boolean splitCacheAffinity)
+    {
+        this.splitCacheAffinity = splitCacheAffinity;
+        return this;
+    }
 }
@@ -36,12 +36,14 @@ import io.trino.execution.SqlStageExecution;
 import io.trino.execution.StageId;
 import io.trino.execution.StageInfo;
 import io.trino.execution.StageState;
+import io.trino.execution.StageStats;
 import io.trino.execution.TaskStatus;
 import io.trino.execution.buffer.OutputBuffers;
 import io.trino.execution.buffer.OutputBuffers.OutputBufferId;
 import io.trino.failuredetector.FailureDetector;
 import io.trino.metadata.InternalNode;
 import io.trino.server.DynamicFilterService;
+import io.trino.spi.ErrorCode;
 import io.trino.spi.TrinoException;
 import io.trino.spi.connector.ConnectorPartitionHandle;
 import io.trino.split.SplitSource;
@@ -52,6 +54,8 @@ import io.trino.sql.planner.StageExecutionPlan;
 import io.trino.sql.planner.plan.PlanFragmentId;
 import io.trino.sql.planner.plan.PlanNodeId;
 
+import javax.annotation.concurrent.GuardedBy;
+
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -65,8 +69,10 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -94,6 +100,8 @@ import static io.trino.execution.StageState.FLUSHING;
 import static io.trino.execution.StageState.RUNNING;
 import static io.trino.execution.StageState.SCHEDULED;
 import static io.trino.execution.scheduler.SourcePartitionedScheduler.newSourcePartitionedSchedulerAsStageScheduler;
+import static io.trino.spi.ErrorType.EXTERNAL;
+import static io.trino.spi.ErrorType.INTERNAL_ERROR;
 import static io.trino.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static io.trino.spi.StandardErrorCode.NO_NODES_AVAILABLE;
 import static io.trino.spi.connector.NotPartitionedPartitionHandle.NOT_PARTITIONED;
@@ -102,6 +110,7 @@ import static io.trino.sql.planner.SystemPartitioningHandle.SCALED_WRITER_DISTRI
 import static io.trino.sql.planner.SystemPartitioningHandle.SOURCE_DISTRIBUTION;
 import static io.trino.sql.planner.plan.ExchangeNode.Type.REPLICATE;
 import static io.trino.util.Failures.checkCondition;
+import static io.trino.util.Failures.toFailure;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -121,8 +130,25 @@ public class SqlQueryScheduler
     private final SplitSchedulerStats schedulerStats;
     private final boolean summarizeTaskInfo;
     private final DynamicFilterService dynamicFilterService;
+    private final ScheduledExecutorService schedulerExecutor;
     private final AtomicBoolean started = new AtomicBoolean();
 
+    // when present, a failure of this attempt restarts the query instead of failing it, as long as the output has not been published
+    private final Optional<Consumer<Throwable>> queryRetry;
+    // when present, the query is planned again if the output of a stage shows that the plan is a poor fit, as long as the output has not been published
+    private final Optional<QueryReplanning> queryReplanning;
+    private final OutputBufferId rootBufferId;
+    @GuardedBy("this")
+    private final Set<RemoteTask> outputTasks = new HashSet<>();
+    @GuardedBy("this")
+    private boolean noMoreOutputTasks;
+    @GuardedBy("this")
+    private boolean outputPublished;
+    @GuardedBy("this")
+    private boolean attemptAborted;
+    @GuardedBy("this")
+    private ScheduledFuture<?> outputCheck;
+
     public static SqlQueryScheduler createSqlQueryScheduler(
             QueryStateMachine queryStateMachine,
             StageExecutionPlan plan,
@@ -139,7 +165,10 @@ public class SqlQueryScheduler
             NodeTaskMap nodeTaskMap,
             ExecutionPolicy executionPolicy,
             SplitSchedulerStats schedulerStats,
-            DynamicFilterService dynamicFilterService)
+            DynamicFilterService dynamicFilterService,
+            AtomicInteger nextStageId,
+            Optional<Consumer<Throwable>> queryRetry,
+            Optional<QueryReplanning> queryReplanning)
     {
         SqlQueryScheduler sqlQueryScheduler = new SqlQueryScheduler(
                 queryStateMachine,
@@ -157,7 +186,10 @@ public class SqlQueryScheduler
                 nodeTaskMap,
                 executionPolicy,
                 schedulerStats,
-                dynamicFilterService);
+                dynamicFilterService,
+                nextStageId,
+                queryRetry,
+                queryReplanning);
         sqlQueryScheduler.initialize();
         return sqlQueryScheduler;
     }
@@ -178,13 +210,21 @@ public class SqlQueryScheduler
             NodeTaskMap nodeTaskMap,
             ExecutionPolicy executionPolicy,
             SplitSchedulerStats schedulerStats,
-            DynamicFilterService dynamicFilterService)
+            DynamicFilterService dynamicFilterService,
+            AtomicInteger nextStageId,
+            Optional<Consumer<Throwable>> queryRetry,
+            Optional<QueryReplanning> queryReplanning)
     {
         this.queryStateMachine = requireNonNull(queryStateMachine, "queryStateMachine is null");
         this.executionPolicy = requireNonNull(executionPolicy, "schedulerPolicyFactory is null");
         this.schedulerStats = requireNonNull(schedulerStats, "schedulerStats is null");
         this.summarizeTaskInfo = summarizeTaskInfo;
         this.dynamicFilterService = requireNonNull(dynamicFilterService, "dynamicFilterService is null");
+        this.schedulerExecutor = requireNonNull(schedulerExecutor, "schedulerExecutor is null");
+        this.queryRetry = requireNonNull(queryRetry, "queryRetry is null");
+        this.queryReplanning = requireNonNull(queryReplanning, "queryReplanning is null");
+        // without retries or re-planning the output locations are published to the client as soon as the tasks are created
+        this.outputPublished = this.queryRetry.isEmpty() && this.queryReplanning.isEmpty();
 
         // todo come up with a better way to build this, or eliminate this map
         ImmutableMap.Builder<StageId, StageScheduler> stageSchedulers = ImmutableMap.builder();
@@ -193,10 +233,10 @@ public class SqlQueryScheduler
         // Only fetch a distribution once per query to assure all stages see the same machine assignments
         Map<PartitioningHandle, NodePartitionMap> partitioningCache = new HashMap<>();
 
-        OutputBufferId rootBufferId = Iterables.getOnlyElement(rootOutputBuffers.getBuffers().keySet());
+        this.rootBufferId = Iterables.getOnlyElement(rootOutputBuffers.getBuffers().keySet());
         List<SqlStageExecution> stages = createStages(
-                (fragmentId, tasks, noMoreExchangeLocations) -> updateQueryOutputLocations(queryStateMachine, rootBufferId, tasks, noMoreExchangeLocations),
-                new AtomicInteger(),
+                (fragmentId, tasks, noMoreExchangeLocations) -> addOutputTasks(tasks, noMoreExchangeLocations),
+                requireNonNull(nextStageId, "nextStageId is null"),
                 plan.withBucketToPartition(Optional.of(new int[1])),
                 nodeScheduler,
                 remoteTaskFactory,
@@ -229,7 +269,15 @@ public class SqlQueryScheduler
     {
         SqlStageExecution rootStage = stages.get(rootStageId);
         rootStage.addStateChangeListener(state -> {
-            if (state == FINISHED) {
+            if (isAttemptAborted()) {
+                return;
+            }
+            if (state == FLUSHING) {
+                // all output has been produced
+                publishOutput();
+            }
+            else if (state == FINISHED) {
+                publishOutput();
                 queryStateMachine.transitionToFinishing();
             }
             else if (state == CANCELED) {
@@ -240,15 +288,15 @@ public class SqlQueryScheduler
 
         for (SqlStageExecution stage : stages.values()) {
             stage.addStateChangeListener(state -> {
-                if (queryStateMachine.isDone()) {
+                if (queryStateMachine.isDone() || isAttemptAborted()) {
                     return;
                 }
                 if (state == FAILED) {
-                    queryStateMachine.transitionToFailed(stage.getStageInfo().getFailureCause().toException());
+                    fail(stage.getStageInfo().getFailureCause().toException());
                 }
                 else if (state == ABORTED) {
                     // this should never happen, since abort can only be triggered in query clean up after the query is finished
-                    queryStateMachine.transitionToFailed(new TrinoException(GENERIC_INTERNAL_ERROR, "Query stage was aborted"));
+                    fail(new TrinoException(GENERIC_INTERNAL_ERROR, "Query stage was aborted"));
                 }
                 else if (queryStateMachine.getQueryState() == QueryState.STARTING) {
                     // if the stage has at least one task, we are running
@@ -261,16 +309,55 @@ public class SqlQueryScheduler
 
         // when query is done or any time a stage completes, attempt to transition query to "final query info ready"
         queryStateMachine.addStateChangeListener(newState -> {
-            if (newState.isDone()) {
+            if (newState.isDone() && !isAttemptAborted()) {
                 queryStateMachine.updateQueryInfo(Optional.ofNullable(getStageInfo()));
             }
         });
         for (SqlStageExecution stage : stages.values()) {
-            stage.addFinalStageInfoListener(status -> queryStateMachine.updateQueryInfo(Optional.ofNullable(getStageInfo())));
+            stage.addFinalStageInfoListener(status -> {
+                if (!isAttemptAborted()) {
+                    queryStateMachine.updateQueryInfo(Optional.ofNullable(getStageInfo()));
+                }
+            });
+        }
+    }
+
+    private void addOutputTasks(Set<RemoteTask> tasks, boolean noMoreTasks)
+    {
+        synchronized (this) {
+            if (!outputPublished) {
+                outputTasks.addAll(tasks);
+                noMoreOutputTasks = noMoreTasks;
+                return;
+            }
         }
+        updateQueryOutputLocations(tasks, noMoreTasks);
     }
 
-    private static void updateQueryOutputLocations(QueryStateMachine queryStateMachine, OutputBufferId rootBufferId, Set<RemoteTask> tasks, boolean noMoreExchangeLocations)
+    /**
+     * Makes the output of the query available to the client. Once the client may have
+     * received results, the query can no longer be restarted.
+     */
+    private void publishOutput()
+    {
+        Set<RemoteTask> tasks;
+        boolean noMoreTasks;
+        synchronized (this) {
+            if (outputPublished || attemptAborted) {
+                return;
+            }
+            outputPublished = true;
+            if (outputCheck != null) {
+                outputCheck.cancel(false);
+            }
+            tasks = ImmutableSet.copyOf(outputTasks);
+            noMoreTasks = noMoreOutputTasks;
+            outputTasks.clear();
+        }
+        updateQueryOutputLocations(tasks, noMoreTasks);
+    }
+
+    private void updateQueryOutputLocations(Set<RemoteTask> tasks, boolean noMoreExchangeLocations)
     {
         Set<URI> bufferLocations = tasks.stream()
                 .map(task -> task.getTaskStatus().getSelf())
@@ -279,6 +366,89 @@ public class SqlQueryScheduler
         queryStateMachine.updateOutputLocations(bufferLocations, noMoreExchangeLocations);
     }
 
+    private void checkOutputProduced()
+    {
+        // the output stage does not report when it produces data, so the latest task infos are checked instead
+        boolean outputProduced = stages.get(rootStageId).getAllTasks().stream()
+                .anyMatch(task -> task.getTaskInfo().getOutputBuffers().getTotalPagesSent() > 0);
+        if (outputProduced) {
+            publishOutput();
+        }
+    }
+
+    private void checkReplanning()
+    {
+        if (queryReplanning.isEmpty()) {
+            return;
+        }
+        for (SqlStageExecution stage : stages.values()) {
+            PlanFragmentId fragmentId = stage.getFragment().getId();
+            StageState state = stage.getState();
+            // running stages are checked too, so that the query is aborted as soon as the partial output is too large
+            if (!queryReplanning.get().getCheckedFragments().contains(fragmentId) || (state.isDone() && state != FINISHED)) {
+                continue;
+            }
+            StageStats stageStats = stage.getStageInfo().getStageStats();
+            if (!queryReplanning.get().shouldReplan(fragmentId, stageStats)) {
+                continue;
+            }
+            synchronized (this) {
+                if (outputPublished || attemptAborted) {
+                    return;
+                }
+                attemptAborted = true;
+                if (outputCheck != null) {
+                    outputCheck.cancel(false);
+                }
+            }
+            abort();
+            queryReplanning.get().replan(fragmentId, stageStats, state == FLUSHING || state == FINISHED);
+            return;
+        }
+    }
+
+    private void fail(Throwable failure)
+    {
+        if (!retryQuery(failure)) {
+            queryStateMachine.transitionToFailed(failure);
+        }
+    }
+
+    /**
+     * @return true if the failure is handled by restarting the query
+     */
+    private boolean retryQuery(Throwable failure)
+    {
+        synchronized (this) {
+            if (attemptAborted) {
+                // the query is already being restarted
+                return true;
+            }
+            if (queryRetry.isEmpty() || outputPublished || !isRetryableFailure(failure)) {
+                return false;
+            }
+            attemptAborted = true;
+            if (outputCheck != null) {
+                outputCheck.cancel(false);
+            }
+        }
+        abort();
+        queryRetry.get().accept(failure);
+        return true;
+    }
+
+    private synchronized boolean isAttemptAborted()
+    {
+        return attemptAborted;
+    }
+
+    private static boolean isRetryableFailure(Throwable failure)
+    {
+        // user errors and exceeded resource limits would fail the query again
+        ErrorCode errorCode = toFailure(failure).getErrorCode();
+        return errorCode != null && (errorCode.getType() == INTERNAL_ERROR || errorCode.getType() == EXTERNAL);
+    }
+
     private List<SqlStageExecution> createStages(
             ExchangeLocationsConsumer parent,
             AtomicInteger nextStageId,
@@ -531,6 +701,14 @@ public class SqlQueryScheduler
     public void start()
     {
         if (started.compareAndSet(false, true)) {
+            synchronized (this) {
+                if (!outputPublished) {
+                    outputCheck = schedulerExecutor.scheduleWithFixedDelay(() -> {
+                        checkReplanning();
+                        checkOutputProduced();
+                    }, 500, 500, MILLISECONDS);
+                }
+            }
             executor.submit(this::schedule);
         }
     }
@@ -607,7 +785,7 @@ public class SqlQueryScheduler
             }
         }
         catch (Throwable t) {
-            queryStateMachine.transitionToFailed(t);
+            fail(t);
             throw t;
         }
         finally {
@@ -617,7 +795,7 @@ public class SqlQueryScheduler
                     scheduler.close();
                 }
                 catch (Throwable t) {
-                    queryStateMachine.transitionToFailed(t);
+                    fail(t);
                     // Self-suppression not permitted
                     if (closeError != t) {
                         closeError.addSuppressed(t);
@@ -642,6 +820,11 @@ public class SqlQueryScheduler
     public void abort()
     {
         try (SetThreadName ignored = new SetThreadName("Query-%s", queryStateMachine.getQueryId())) {
+            synchronized (this) {
+                if (outputCheck != null) {
+                    outputCheck.cancel(false);
+                }
+            }
             stages.values().forEach(SqlStageExecution::abort);
         }
     }
@@ -665,6 +848,24 @@ public class SqlQueryScheduler
         return future;
     }
 
+    /**
+     * Decides whether a query is planned again, based on the output statistics of stages. Stages are checked
+     * while they are running, so the statistics may cover only part of their output.
+     */
+    public interface QueryReplanning
+    {
+        Set<PlanFragmentId> getCheckedFragments();
+
+        boolean shouldReplan(PlanFragmentId fragmentId, StageStats stageStats);
+
+        /**
+         * Plans and starts the query again. Called after the stages of the current attempt are aborted.
+         *
+         * @param outputComplete whether the stage had produced all of its output
+         */
+        void replan(PlanFragmentId fragmentId, StageStats stageStats, boolean outputComplete);
+    }
+
     private interface ExchangeLocationsConsumer
     {
         void addExchangeLocations(PlanFragmentId fragmentId, Set<RemoteTask> tasks, boolean noMoreExchangeLocations);
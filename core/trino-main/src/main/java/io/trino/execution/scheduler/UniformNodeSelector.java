@@ -19,6 +19,7 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.log.Logger;
 import io.trino.execution.NodeTaskMap;
@@ -50,7 +51,9 @@ import static io.trino.execution.scheduler.NodeScheduler.selectExactNodes;
 import static io.trino.execution.scheduler.NodeScheduler.selectNodes;
 import static io.trino.execution.scheduler.NodeScheduler.toWhenHasSplitQueueSpaceFuture;
 import static io.trino.spi.StandardErrorCode.NO_NODES_AVAILABLE;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Comparator.comparingInt;
+import static java.util.Comparator.comparingLong;
 import static java.util.Objects.requireNonNull;
 
 public class UniformNodeSelector
@@ -58,6 +61,9 @@ public class UniformNodeSelector
 {
     private static final Logger log = Logger.get(UniformNodeSelector.class);
 
+    // splits are spread between two nodes, so that a hot split does not overload a single node
+    private static final int SPLIT_CACHE_AFFINITY_CANDIDATES = 2;
+
     private final InternalNodeManager nodeManager;
     private final NodeTaskMap nodeTaskMap;
     private final boolean includeCoordinator;
@@ -66,6 +72,7 @@ public class UniformNodeSelector
     private final int maxSplitsPerNode;
     private final int maxPendingSplitsPerTask;
     private final boolean optimizedLocalScheduling;
+    private final boolean splitCacheAffinity;
 
     public UniformNodeSelector(
             InternalNodeManager nodeManager,
@@ -75,7 +82,8 @@ public class UniformNodeSelector
             int minCandidates,
             int maxSplitsPerNode,
             int maxPendingSplitsPerTask,
-            boolean optimizedLocalScheduling)
+            boolean optimizedLocalScheduling,
+            boolean splitCacheAffinity)
     {
         this.nodeManager = requireNonNull(nodeManager, "nodeManager is null");
         this.nodeTaskMap = requireNonNull(nodeTaskMap, "nodeTaskMap is null");
@@ -85,6 +93,7 @@ public class UniformNodeSelector
         this.maxSplitsPerNode = maxSplitsPerNode;
         this.maxPendingSplitsPerTask = maxPendingSplitsPerTask;
         this.optimizedLocalScheduling = optimizedLocalScheduling;
+        this.splitCacheAffinity = splitCacheAffinity;
     }
 
     @Override
@@ -157,6 +166,9 @@ public class UniformNodeSelector
             if (!split.isRemotelyAccessible()) {
                 candidateNodes = selectExactNodes(nodeMap, split.getAddresses(), includeCoordinator);
             }
+            else if (splitCacheAffinity && split.getConnectorSplit().getCacheIdentifier().isPresent()) {
+                candidateNodes = selectAffinityNodes(nodeMap, split.getConnectorSplit().getCacheIdentifier().get(), includeCoordinator);
+            }
             else {
                 candidateNodes = selectNodes(minCandidates, randomCandidates);
             }
@@ -214,6 +226,24 @@ public class UniformNodeSelector
         return new SplitPlacementResult(blocked, assignment);
     }
 
+    /**
+     * Selects the nodes the split cache of which most likely holds the results of the split. Nodes are ranked
+     * by rendezvous hashing, so that only the splits of a removed node move when the cluster changes.
+     */
+    private static List<InternalNode> selectAffinityNodes(NodeMap nodeMap, String cacheIdentifier, boolean includeCoordinator)
+    {
+        long splitHash = Hashing.murmur3_128().hashString(cacheIdentifier, UTF_8).asLong();
+        return getAllNodes(nodeMap, includeCoordinator).stream()
+                .sorted(comparingLong((InternalNode node) -> Hashing.murmur3_128().newHasher()
+                        .putLong(splitHash)
+                        .putString(node.getNodeIdentifier(), UTF_8)
+                        .hash()
+                        .asLong())
+                        .thenComparing(InternalNode::getNodeIdentifier))
+                .limit(SPLIT_CACHE_AFFINITY_CANDIDATES)
+                .collect(toImmutableList());
+    }
+
     @Override
     public SplitPlacementResult computeAssignments(Set<Split> splits, List<RemoteTask> existingTasks, BucketNodeMap bucketNodeMap)
     {
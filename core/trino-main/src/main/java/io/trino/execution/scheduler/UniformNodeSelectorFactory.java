@@ -57,6 +57,7 @@ public class UniformNodeSelectorFactory
     private final int maxSplitsPerNode;
     private final int maxPendingSplitsPerTask;
     private final boolean optimizedLocalScheduling;
+    private final boolean splitCacheAffinity;
     private final NodeTaskMap nodeTaskMap;
     private final Duration nodeMapMemoizationDuration;
 
@@ -86,6 +87,7 @@ public class UniformNodeSelectorFactory
         this.maxSplitsPerNode = config.getMaxSplitsPerNode();
         this.maxPendingSplitsPerTask = config.getMaxPendingSplitsPerTask();
         this.optimizedLocalScheduling = config.getOptimizedLocalScheduling();
+        this.splitCacheAffinity = config.isSplitCacheAffinity();
         this.nodeTaskMap = requireNonNull(nodeTaskMap, "nodeTaskMap is null");
         checkArgument(maxSplitsPerNode >= maxPendingSplitsPerTask, "maxSplitsPerNode must be > maxPendingSplitsPerTask");
         this.nodeMapMemoizationDuration = nodeMapMemoizationDuration;
@@ -116,7 +118,8 @@ public class UniformNodeSelectorFactory
                 minCandidates,
                 maxSplitsPerNode,
                 maxPendingSplitsPerTask,
-                optimizedLocalScheduling);
+                optimizedLocalScheduling,
+                splitCacheAffinity);
     }
 
     private NodeMap createNodeMap(Optional<CatalogName> catalogName)
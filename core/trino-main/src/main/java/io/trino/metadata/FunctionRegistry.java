@@ -807,7 +807,8 @@ public class FunctionRegistry
         try {
             if (function instanceof SqlAggregationFunction) {
                 InternalAggregationFunction aggregationFunction = specializedAggregationCache.get(functionBinding, () -> specializedAggregation(functionBinding, functionDependencies));
-                return supplier(function.getFunctionMetadata().getSignature(), aggregationFunction);
+                boolean decomposable = getAggregationFunctionMetadata(functionBinding).getIntermediateType().isPresent();
+                return supplier(function.getFunctionMetadata().getSignature(), aggregationFunction, decomposable);
             }
             return specializedWindowCache.get(functionBinding, () -> specializeWindow(functionBinding, functionDependencies));
         }
@@ -126,6 +126,11 @@ public interface Metadata
      */
     TableStatistics getTableStatistics(Session session, TableHandle tableHandle, Constraint constraint);
 
+    /**
+     * Returns a version of the data of the table, or empty if the connector does not track changes of the table.
+     */
+    OptionalLong getTableVersion(Session session, TableHandle tableHandle);
+
     /**
      * Get the names that match the specified table prefix (never null).
      */
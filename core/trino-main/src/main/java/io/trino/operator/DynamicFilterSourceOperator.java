@@ -20,6 +20,7 @@ import io.trino.operator.aggregation.TypedSet;
 import io.trino.spi.Page;
 import io.trino.spi.block.Block;
 import io.trino.spi.block.BlockBuilder;
+import io.trino.spi.predicate.BloomFilter;
 import io.trino.spi.predicate.Domain;
 import io.trino.spi.predicate.TupleDomain;
 import io.trino.spi.predicate.ValueSet;
@@ -32,6 +33,8 @@ import io.trino.type.BlockTypeOperators.BlockPositionComparison;
 import javax.annotation.Nullable;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.function.Consumer;
 
 import static com.google.common.base.Preconditions.checkState;
@@ -51,6 +54,7 @@ import static java.util.stream.Collectors.toSet;
  * The collected pages' value are used for creating a run-time filtering constraint (for probe-side table scan in an inner join).
  * We record all values for the run-time filter only for small build-side pages (which should be the case when using "broadcast" join).
  * For large inputs on build side, we can optionally record the min and max values per channel for orderable types (except Double and Real).
+ * When enabled, a Bloom filter is additionally built for channels of supported types once the collected values become too large.
  */
 public class DynamicFilterSourceOperator
         implements Operator
@@ -82,6 +86,8 @@ public class DynamicFilterSourceOperator
         private final DataSize maxFilterSize;
         private final int minMaxCollectionLimit;
         private final BlockTypeOperators blockTypeOperators;
+        private final Optional<Consumer<Map<DynamicFilterId, BloomFilter>>> bloomFilterConsumer;
+        private final DataSize bloomFilterMaxSize;
 
         private boolean closed;
 
@@ -94,6 +100,35 @@ public class DynamicFilterSourceOperator
                 DataSize maxFilterSize,
                 int minMaxCollectionLimit,
                 BlockTypeOperators blockTypeOperators)
+        {
+            this(
+                    operatorId,
+                    planNodeId,
+                    dynamicPredicateConsumer,
+                    channels,
+                    maxDisinctValues,
+                    maxFilterSize,
+                    minMaxCollectionLimit,
+                    blockTypeOperators,
+                    Optional.empty(),
+                    DataSize.ofBytes(0));
+        }
+
+        /**
+         * @param bloomFilterConsumer when present, is notified exactly once per operator with the Bloom filters
+         * built after the collected values became too large (no entries if the values were collected exactly)
+         */
+        public DynamicFilterSourceOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                Consumer<TupleDomain<DynamicFilterId>> dynamicPredicateConsumer,
+                List<Channel> channels,
+                int maxDisinctValues,
+                DataSize maxFilterSize,
+                int minMaxCollectionLimit,
+                BlockTypeOperators blockTypeOperators,
+                Optional<Consumer<Map<DynamicFilterId, BloomFilter>>> bloomFilterConsumer,
+                DataSize bloomFilterMaxSize)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -107,6 +142,8 @@ public class DynamicFilterSourceOperator
             this.maxFilterSize = maxFilterSize;
             this.minMaxCollectionLimit = minMaxCollectionLimit;
             this.blockTypeOperators = requireNonNull(blockTypeOperators, "blockTypeOperators is null");
+            this.bloomFilterConsumer = requireNonNull(bloomFilterConsumer, "bloomFilterConsumer is null");
+            this.bloomFilterMaxSize = requireNonNull(bloomFilterMaxSize, "bloomFilterMaxSize is null");
         }
 
         @Override
@@ -121,7 +158,9 @@ public class DynamicFilterSourceOperator
                     maxDisinctValues,
                     maxFilterSize,
                     minMaxCollectionLimit,
-                    blockTypeOperators);
+                    blockTypeOperators,
+                    bloomFilterConsumer,
+                    bloomFilterMaxSize);
         }
 
         @Override
@@ -149,6 +188,13 @@ public class DynamicFilterSourceOperator
     private final List<Integer> minMaxChannels;
     private final List<BlockPositionComparison> minMaxComparisons;
 
+    private final Optional<Consumer<Map<DynamicFilterId, BloomFilter>>> bloomFilterConsumer;
+    private final long bloomFilterMaxSizeInBytes;
+    private final List<Integer> bloomFilterChannels;
+    // Created once the collected values are dropped because the predicate became too large.
+    @Nullable
+    private BloomFilter[] bloomFilters;
+
     // May be dropped if the predicate becomes too large.
     @Nullable
     private BlockBuilder[] blockBuilders;
@@ -169,7 +215,9 @@ public class DynamicFilterSourceOperator
             int maxDistinctValues,
             DataSize maxFilterSize,
             int minMaxCollectionLimit,
-            BlockTypeOperators blockTypeOperators)
+            BlockTypeOperators blockTypeOperators,
+            Optional<Consumer<Map<DynamicFilterId, BloomFilter>>> bloomFilterConsumer,
+            DataSize bloomFilterMaxSize)
     {
         this.context = requireNonNull(context, "context is null");
         this.maxDistinctValues = maxDistinctValues;
@@ -182,8 +230,12 @@ public class DynamicFilterSourceOperator
         this.valueSets = new TypedSet[channels.size()];
         ImmutableList.Builder<Integer> minMaxChannelsBuilder = ImmutableList.builder();
         ImmutableList.Builder<BlockPositionComparison> minMaxComparisonsBuilder = ImmutableList.builder();
+        ImmutableList.Builder<Integer> bloomFilterChannelsBuilder = ImmutableList.builder();
         for (int channelIndex = 0; channelIndex < channels.size(); ++channelIndex) {
             Type type = channels.get(channelIndex).type;
+            if (bloomFilterConsumer.isPresent() && BloomFilter.isSupportedType(type)) {
+                bloomFilterChannelsBuilder.add(channelIndex);
+            }
             // Skipping DOUBLE and REAL in collectMinMaxValues to avoid dealing with NaN values
             if (minMaxCollectionLimit > 0 && type.isOrderable() && type != DOUBLE && type != REAL) {
                 minMaxChannelsBuilder.add(channelIndex);
@@ -207,6 +259,10 @@ public class DynamicFilterSourceOperator
             this.maxValues = new Block[channels.size()];
         }
         this.minMaxComparisons = minMaxComparisonsBuilder.build();
+
+        this.bloomFilterConsumer = requireNonNull(bloomFilterConsumer, "bloomFilterConsumer is null");
+        this.bloomFilterMaxSizeInBytes = requireNonNull(bloomFilterMaxSize, "bloomFilterMaxSize is null").toBytes();
+        this.bloomFilterChannels = bloomFilterChannelsBuilder.build();
     }
 
     @Override
@@ -227,6 +283,11 @@ public class DynamicFilterSourceOperator
         verify(!finished, "DynamicFilterSourceOperator: addInput() may not be called after finish()");
         current = page;
         if (valueSets == null) {
+            if (bloomFilters != null) {
+                for (int channelIndex : bloomFilterChannels) {
+                    addToBloomFilter(bloomFilters[channelIndex], page.getBlock(channels.get(channelIndex).index));
+                }
+            }
             if (minValues == null) {
                 // there are too many rows to collect min/max range
                 return;
@@ -268,6 +329,18 @@ public class DynamicFilterSourceOperator
     private void handleTooLargePredicate()
     {
         // The resulting predicate is too large
+        if (!bloomFilterChannels.isEmpty()) {
+            // continue with Bloom filters seeded with the values collected so far
+            bloomFilters = new BloomFilter[channels.size()];
+            long bloomFiltersSizeInBytes = 0;
+            for (int channelIndex : bloomFilterChannels) {
+                BloomFilter bloomFilter = BloomFilter.create(channels.get(channelIndex).type, bloomFilterMaxSizeInBytes);
+                addToBloomFilter(bloomFilter, blockBuilders[channelIndex].build());
+                bloomFilters[channelIndex] = bloomFilter;
+                bloomFiltersSizeInBytes += bloomFilter.getRetainedSizeInBytes();
+            }
+            context.localSystemMemoryContext().setBytes(bloomFiltersSizeInBytes);
+        }
         if (minMaxChannels.isEmpty()) {
             // allow all probe-side values to be read.
             dynamicPredicateConsumer.accept(TupleDomain.all());
@@ -300,6 +373,15 @@ public class DynamicFilterSourceOperator
         maxValues = null;
     }
 
+    private static void addToBloomFilter(BloomFilter bloomFilter, Block block)
+    {
+        for (int position = 0; position < block.getPositionCount(); ++position) {
+            if (!block.isNull(position)) {
+                bloomFilter.add(block, position);
+            }
+        }
+    }
+
     private void updateMinMaxValues(Block block, int channelIndex, BlockPositionComparison comparison)
     {
         checkState(minValues != null && maxValues != null);
@@ -362,6 +444,7 @@ public class DynamicFilterSourceOperator
             return;
         }
         finished = true;
+        bloomFilterConsumer.ifPresent(consumer -> consumer.accept(getBloomFilters()));
         ImmutableMap.Builder<DynamicFilterId, Domain> domainsBuilder = new ImmutableMap.Builder<>();
         if (valueSets == null) {
             if (minValues == null) {
@@ -400,6 +483,21 @@ public class DynamicFilterSourceOperator
         dynamicPredicateConsumer.accept(TupleDomain.withColumnDomains(domainsBuilder.build()));
     }
 
+    private Map<DynamicFilterId, BloomFilter> getBloomFilters()
+    {
+        if (bloomFilters == null) {
+            // values were collected exactly
+            return ImmutableMap.of();
+        }
+        ImmutableMap.Builder<DynamicFilterId, BloomFilter> bloomFiltersBuilder = ImmutableMap.builder();
+        for (int channelIndex : bloomFilterChannels) {
+            bloomFiltersBuilder.put(channels.get(channelIndex).filterId, bloomFilters[channelIndex]);
+        }
+        bloomFilters = null;
+        context.localSystemMemoryContext().setBytes(0);
+        return bloomFiltersBuilder.build();
+    }
+
     private Domain convertToDomain(Type type, Block block)
     {
         ImmutableList.Builder<Object> values = ImmutableList.builder();
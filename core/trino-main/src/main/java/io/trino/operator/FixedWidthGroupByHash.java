@@ -0,0 +1,594 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.operator;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import io.trino.array.LongBigArray;
+import io.trino.operator.scalar.CombineHashFunction;
+import io.trino.spi.Page;
+import io.trino.spi.PageBuilder;
+import io.trino.spi.TrinoException;
+import io.trino.spi.block.Block;
+import io.trino.spi.block.BlockBuilder;
+import io.trino.spi.block.LongArrayBlock;
+import io.trino.spi.type.AbstractLongType;
+import io.trino.spi.type.FixedWidthType;
+import io.trino.spi.type.Type;
+import org.openjdk.jol.info.ClassLayout;
+
+import javax.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static io.trino.spi.StandardErrorCode.GENERIC_INSUFFICIENT_RESOURCES;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.DateType.DATE;
+import static io.trino.spi.type.IntegerType.INTEGER;
+import static io.trino.spi.type.SmallintType.SMALLINT;
+import static io.trino.spi.type.TinyintType.TINYINT;
+import static io.trino.sql.planner.optimizations.HashGenerationOptimizer.INITIAL_HASH_VALUE;
+import static io.trino.type.IntervalDayTimeType.INTERVAL_DAY_TIME;
+import static io.trino.type.IntervalYearMonthType.INTERVAL_YEAR_MONTH;
+import static io.trino.type.TypeUtils.NULL_HASH_CODE;
+import static io.trino.util.HashCollisionsEstimator.estimateNumberOfHashCollisions;
+import static it.unimi.dsi.fastutil.HashCommon.arraySize;
+import static it.unimi.dsi.fastutil.HashCommon.murmurHash3;
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Group by hash for keys consisting only of fixed width types, which are compared by their long value.
+ * Keys are stored in flat rows of longs ({@code [null mask, value 1, ..., value n]}) instead of blocks,
+ * and input is processed in batches: values and hashes of a batch are computed channel by channel
+ * before the batch is inserted into the open addressing hash table.
+ * <p>
+ * Raw hashes are computed the same way as by {@link InterpretedHashGenerator}, so they are consistent
+ * with hashes precomputed by the planner.
+ */
+// This implementation assumes arrays used in the hash are always a power of 2
+public class FixedWidthGroupByHash
+        implements GroupByHash
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(FixedWidthGroupByHash.class).instanceSize();
+    private static final float FILL_RATIO = 0.75f;
+    private static final int BATCH_SIZE = 1024;
+    private static final int MAX_CHANNELS = Long.SIZE;
+
+    // types which use AbstractLongType.hash of their long value as the hash code and long equality as the equal operator
+    private static final Set<Type> SUPPORTED_TYPES = ImmutableSet.of(BIGINT, INTEGER, SMALLINT, TINYINT, DATE, INTERVAL_DAY_TIME, INTERVAL_YEAR_MONTH);
+
+    private final List<Type> types;
+    private final Type[] hashTypes;
+    private final int[] valueSizes;
+    private final int[] channels;
+    private final Optional<Integer> inputHashChannel;
+    private final int rowWidth;
+
+    private int hashCapacity;
+    private int maxFill;
+    private int mask;
+    private int[] groupIdsByHash;
+    private byte[] rawHashByHashPosition;
+
+    // group rows: null mask followed by the values of the group
+    private final LongBigArray groupRows;
+    private final LongBigArray rawHashByGroupId;
+
+    // current batch of input, stored column by column
+    private final long[][] batchValues;
+    private final long[] batchNullMasks = new long[BATCH_SIZE];
+    private final long[] batchRawHashes = new long[BATCH_SIZE];
+
+    private int nextGroupId;
+    private long hashCollisions;
+    private double expectedHashCollisions;
+
+    // reserve enough memory before rehash
+    private final UpdateMemory updateMemory;
+    private long preallocatedMemoryInBytes;
+    private long currentPageSizeInBytes;
+
+    public static boolean isSupportedTypes(List<? extends Type> hashTypes)
+    {
+        return !hashTypes.isEmpty() && hashTypes.size() <= MAX_CHANNELS && SUPPORTED_TYPES.containsAll(hashTypes);
+    }
+
+    public FixedWidthGroupByHash(
+            List<? extends Type> hashTypes,
+            int[] hashChannels,
+            Optional<Integer> inputHashChannel,
+            int expectedSize,
+            UpdateMemory updateMemory)
+    {
+        requireNonNull(hashTypes, "hashTypes is null");
+        requireNonNull(hashChannels, "hashChannels is null");
+        checkArgument(isSupportedTypes(hashTypes), "Unsupported hash types: %s", hashTypes);
+        checkArgument(hashTypes.size() == hashChannels.length, "hashTypes and hashChannels have different sizes");
+        checkArgument(expectedSize > 0, "expectedSize must be greater than zero");
+
+        this.hashTypes = hashTypes.toArray(new Type[0]);
+        this.valueSizes = hashTypes.stream()
+                .mapToInt(type -> ((FixedWidthType) type).getFixedSize())
+                .toArray();
+        this.channels = hashChannels.clone();
+        this.inputHashChannel = requireNonNull(inputHashChannel, "inputHashChannel is null");
+        this.types = inputHashChannel.isPresent() ? ImmutableList.copyOf(Iterables.concat(hashTypes, ImmutableList.of(BIGINT))) : ImmutableList.copyOf(hashTypes);
+        this.rowWidth = hashChannels.length + 1;
+
+        hashCapacity = arraySize(expectedSize, FILL_RATIO);
+        maxFill = calculateMaxFill(hashCapacity);
+        mask = hashCapacity - 1;
+        groupIdsByHash = new int[hashCapacity];
+        Arrays.fill(groupIdsByHash, -1);
+        rawHashByHashPosition = new byte[hashCapacity];
+
+        groupRows = new LongBigArray();
+        groupRows.ensureCapacity((long) maxFill * rowWidth);
+        rawHashByGroupId = new LongBigArray();
+        rawHashByGroupId.ensureCapacity(maxFill);
+
+        batchValues = new long[hashChannels.length][BATCH_SIZE];
+
+        // This interface is used for actively reserving memory (push model) for rehash.
+        // The caller can also query memory usage on this object (pull model)
+        this.updateMemory = requireNonNull(updateMemory, "updateMemory is null");
+    }
+
+    @Override
+    public long getEstimatedSize()
+    {
+        return INSTANCE_SIZE +
+                sizeOf(groupIdsByHash) +
+                sizeOf(rawHashByHashPosition) +
+                groupRows.sizeOf() +
+                rawHashByGroupId.sizeOf() +
+                (long) batchValues.length * sizeOf(batchValues[0]) +
+                sizeOf(batchNullMasks) +
+                sizeOf(batchRawHashes) +
+                preallocatedMemoryInBytes;
+    }
+
+    @Override
+    public long getHashCollisions()
+    {
+        return hashCollisions;
+    }
+
+    @Override
+    public double getExpectedHashCollisions()
+    {
+        return expectedHashCollisions + estimateNumberOfHashCollisions(getGroupCount(), hashCapacity);
+    }
+
+    @Override
+    public List<Type> getTypes()
+    {
+        return types;
+    }
+
+    @Override
+    public int getGroupCount()
+    {
+        return nextGroupId;
+    }
+
+    @Override
+    public void appendValuesTo(int groupId, PageBuilder pageBuilder, int outputChannelOffset)
+    {
+        checkArgument(groupId >= 0, "groupId is negative");
+        long row = (long) groupId * rowWidth;
+        long nullMask = groupRows.get(row);
+        for (int channel = 0; channel < hashTypes.length; channel++) {
+            BlockBuilder blockBuilder = pageBuilder.getBlockBuilder(outputChannelOffset + channel);
+            if ((nullMask & nullBit(channel)) != 0) {
+                blockBuilder.appendNull();
+            }
+            else {
+                hashTypes[channel].writeLong(blockBuilder, groupRows.get(row + 1 + channel));
+            }
+        }
+
+        if (inputHashChannel.isPresent()) {
+            BlockBuilder hashBlockBuilder = pageBuilder.getBlockBuilder(outputChannelOffset + hashTypes.length);
+            BIGINT.writeLong(hashBlockBuilder, rawHashByGroupId.get(groupId));
+        }
+    }
+
+    @Override
+    public Work<?> addPage(Page page)
+    {
+        currentPageSizeInBytes = page.getRetainedSizeInBytes();
+        return new AddPageWork(page);
+    }
+
+    @Override
+    public Work<GroupByIdBlock> getGroupIds(Page page)
+    {
+        currentPageSizeInBytes = page.getRetainedSizeInBytes();
+        return new GetGroupIdsWork(page);
+    }
+
+    @Override
+    public boolean contains(int position, Page page, int[] hashChannels)
+    {
+        loadValues(page, hashChannels, position, 1);
+        computeRawHashes(1);
+        return findGroupId(0) != -1;
+    }
+
+    @Override
+    public boolean contains(int position, Page page, int[] hashChannels, long rawHash)
+    {
+        loadValues(page, hashChannels, position, 1);
+        batchRawHashes[0] = rawHash;
+        return findGroupId(0) != -1;
+    }
+
+    @Override
+    public long getRawHash(int groupId)
+    {
+        return rawHashByGroupId.get(groupId);
+    }
+
+    @VisibleForTesting
+    @Override
+    public int getCapacity()
+    {
+        return hashCapacity;
+    }
+
+    /**
+     * Puts positions of the page starting at {@code start} into the hash until all positions are processed or rehash is needed.
+     *
+     * @return position of the first position which was not processed
+     */
+    private int putIfAbsent(Page page, int start, @Nullable long[] groupIds)
+    {
+        int positionCount = page.getPositionCount();
+        int position = start;
+        while (position < positionCount && !needRehash()) {
+            int batchSize = min(BATCH_SIZE, positionCount - position);
+            loadBatch(page, position, batchSize);
+            for (int batchPosition = 0; batchPosition < batchSize && !needRehash(); batchPosition++) {
+                int groupId = putIfAbsent(batchPosition);
+                if (groupIds != null) {
+                    groupIds[position] = groupId;
+                }
+                position++;
+            }
+        }
+        return position;
+    }
+
+    private int putIfAbsent(int batchPosition)
+    {
+        long rawHash = batchRawHashes[batchPosition];
+        int hashPosition = getHashPosition(rawHash, mask);
+
+        // look for an empty slot or a slot containing this key
+        while (true) {
+            int groupId = groupIdsByHash[hashPosition];
+            if (groupId == -1) {
+                break;
+            }
+
+            if (rawHashByHashPosition[hashPosition] == (byte) rawHash && batchPositionEqualsGroup(batchPosition, groupId)) {
+                return groupId;
+            }
+
+            // increment position and mask to handle wrap around
+            hashPosition = (hashPosition + 1) & mask;
+            hashCollisions++;
+        }
+
+        return addNewGroup(hashPosition, batchPosition, rawHash);
+    }
+
+    private int findGroupId(int batchPosition)
+    {
+        long rawHash = batchRawHashes[batchPosition];
+        int hashPosition = getHashPosition(rawHash, mask);
+
+        // look for an empty slot or a slot containing this key
+        while (true) {
+            int groupId = groupIdsByHash[hashPosition];
+            if (groupId == -1 || (rawHashByHashPosition[hashPosition] == (byte) rawHash && batchPositionEqualsGroup(batchPosition, groupId))) {
+                return groupId;
+            }
+
+            // increment position and mask to handle wrap around
+            hashPosition = (hashPosition + 1) & mask;
+        }
+    }
+
+    private boolean batchPositionEqualsGroup(int batchPosition, int groupId)
+    {
+        if (rawHashByGroupId.get(groupId) != batchRawHashes[batchPosition]) {
+            return false;
+        }
+        long row = (long) groupId * rowWidth;
+        if (groupRows.get(row) != batchNullMasks[batchPosition]) {
+            return false;
+        }
+        for (int channel = 0; channel < batchValues.length; channel++) {
+            if (groupRows.get(row + 1 + channel) != batchValues[channel][batchPosition]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int addNewGroup(int hashPosition, int batchPosition, long rawHash)
+    {
+        // record group id in hash
+        int groupId = nextGroupId++;
+
+        long row = (long) groupId * rowWidth;
+        groupRows.set(row, batchNullMasks[batchPosition]);
+        for (int channel = 0; channel < batchValues.length; channel++) {
+            groupRows.set(row + 1 + channel, batchValues[channel][batchPosition]);
+        }
+        rawHashByGroupId.set(groupId, rawHash);
+
+        groupIdsByHash[hashPosition] = groupId;
+        rawHashByHashPosition[hashPosition] = (byte) rawHash;
+
+        // increase capacity, if necessary
+        if (needRehash()) {
+            tryRehash();
+        }
+        return groupId;
+    }
+
+    private void loadBatch(Page page, int offset, int length)
+    {
+        loadValues(page, channels, offset, length);
+        if (inputHashChannel.isPresent()) {
+            Block hashBlock = page.getBlock(inputHashChannel.get());
+            for (int i = 0; i < length; i++) {
+                batchRawHashes[i] = BIGINT.getLong(hashBlock, offset + i);
+            }
+        }
+        else {
+            computeRawHashes(length);
+        }
+    }
+
+    private void loadValues(Page page, int[] channels, int offset, int length)
+    {
+        Arrays.fill(batchNullMasks, 0, length, 0);
+        for (int channel = 0; channel < channels.length; channel++) {
+            Block block = page.getBlock(channels[channel]);
+            long[] values = batchValues[channel];
+            switch (valueSizes[channel]) {
+                case Long.BYTES:
+                    for (int i = 0; i < length; i++) {
+                        values[i] = block.getLong(offset + i, 0);
+                    }
+                    break;
+                case Integer.BYTES:
+                    for (int i = 0; i < length; i++) {
+                        values[i] = block.getInt(offset + i, 0);
+                    }
+                    break;
+                case Short.BYTES:
+                    for (int i = 0; i < length; i++) {
+                        values[i] = block.getShort(offset + i, 0);
+                    }
+                    break;
+                case Byte.BYTES:
+                    for (int i = 0; i < length; i++) {
+                        values[i] = block.getByte(offset + i, 0);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported value size: " + valueSizes[channel]);
+            }
+
+            if (block.mayHaveNull()) {
+                long nullBit = nullBit(channel);
+                for (int i = 0; i < length; i++) {
+                    if (block.isNull(offset + i)) {
+                        // null values are stored as zeros, so that rows with equal keys are equal
+                        values[i] = 0;
+                        batchNullMasks[i] |= nullBit;
+                    }
+                }
+            }
+        }
+    }
+
+    private void computeRawHashes(int length)
+    {
+        Arrays.fill(batchRawHashes, 0, length, INITIAL_HASH_VALUE);
+        for (int channel = 0; channel < batchValues.length; channel++) {
+            long[] values = batchValues[channel];
+            long nullBit = nullBit(channel);
+            for (int i = 0; i < length; i++) {
+                long hash = (batchNullMasks[i] & nullBit) == 0 ? AbstractLongType.hash(values[i]) : NULL_HASH_CODE;
+                batchRawHashes[i] = CombineHashFunction.getHash(batchRawHashes[i], hash);
+            }
+        }
+    }
+
+    private boolean tryRehash()
+    {
+        long newCapacityLong = hashCapacity * 2L;
+        if (newCapacityLong > Integer.MAX_VALUE) {
+            throw new TrinoException(GENERIC_INSUFFICIENT_RESOURCES, "Size of hash table cannot exceed 1 billion entries");
+        }
+        int newCapacity = toIntExact(newCapacityLong);
+
+        // An estimate of how much extra memory is needed before we can go ahead and expand the hash table.
+        // This includes the new capacity for the hash table, the group rows and raw hashes as well as the size of the current page
+        preallocatedMemoryInBytes = (newCapacity - hashCapacity) * (long) (Integer.BYTES + Byte.BYTES) +
+                (long) (calculateMaxFill(newCapacity) - maxFill) * (rowWidth + 1) * Long.BYTES +
+                currentPageSizeInBytes;
+        if (!updateMemory.update()) {
+            // reserved memory but has exceeded the limit
+            return false;
+        }
+        preallocatedMemoryInBytes = 0;
+
+        expectedHashCollisions += estimateNumberOfHashCollisions(getGroupCount(), hashCapacity);
+
+        int newMask = newCapacity - 1;
+        int[] newGroupIdsByHash = new int[newCapacity];
+        Arrays.fill(newGroupIdsByHash, -1);
+        byte[] newRawHashByHashPosition = new byte[newCapacity];
+
+        for (int groupId = 0; groupId < nextGroupId; groupId++) {
+            long rawHash = rawHashByGroupId.get(groupId);
+
+            // find an empty slot for the group
+            int hashPosition = getHashPosition(rawHash, newMask);
+            while (newGroupIdsByHash[hashPosition] != -1) {
+                hashPosition = (hashPosition + 1) & newMask;
+                hashCollisions++;
+            }
+
+            // record the mapping
+            newGroupIdsByHash[hashPosition] = groupId;
+            newRawHashByHashPosition[hashPosition] = (byte) rawHash;
+        }
+
+        mask = newMask;
+        hashCapacity = newCapacity;
+        maxFill = calculateMaxFill(hashCapacity);
+        groupIdsByHash = newGroupIdsByHash;
+        rawHashByHashPosition = newRawHashByHashPosition;
+
+        groupRows.ensureCapacity((long) maxFill * rowWidth);
+        rawHashByGroupId.ensureCapacity(maxFill);
+        return true;
+    }
+
+    private boolean needRehash()
+    {
+        return nextGroupId >= maxFill;
+    }
+
+    private static long nullBit(int channel)
+    {
+        return 1L << channel;
+    }
+
+    private static int getHashPosition(long rawHash, int mask)
+    {
+        return (int) (murmurHash3(rawHash) & mask);
+    }
+
+    private static int calculateMaxFill(int hashSize)
+    {
+        checkArgument(hashSize > 0, "hashSize must be greater than 0");
+        int maxFill = (int) Math.ceil(hashSize * FILL_RATIO);
+        if (maxFill == hashSize) {
+            maxFill--;
+        }
+        checkArgument(hashSize > maxFill, "hashSize must be larger than maxFill");
+        return maxFill;
+    }
+
+    private class AddPageWork
+            implements Work<Void>
+    {
+        private final Page page;
+
+        private int lastPosition;
+
+        public AddPageWork(Page page)
+        {
+            this.page = requireNonNull(page, "page is null");
+        }
+
+        @Override
+        public boolean process()
+        {
+            int positionCount = page.getPositionCount();
+            checkState(lastPosition < positionCount, "position count out of bound");
+
+            // needRehash() == false indicates we have reached capacity boundary and a rehash is needed.
+            // We can only proceed if tryRehash() successfully did a rehash.
+            if (needRehash() && !tryRehash()) {
+                return false;
+            }
+
+            // putIfAbsent will rehash automatically if rehash is needed, unless there isn't enough memory to do so.
+            // Therefore needRehash will not generally return true even if we have just crossed the capacity boundary.
+            lastPosition = putIfAbsent(page, lastPosition, null);
+            return lastPosition == positionCount;
+        }
+
+        @Override
+        public Void getResult()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class GetGroupIdsWork
+            implements Work<GroupByIdBlock>
+    {
+        private final Page page;
+        private final long[] groupIds;
+
+        private boolean finished;
+        private int lastPosition;
+
+        public GetGroupIdsWork(Page page)
+        {
+            this.page = requireNonNull(page, "page is null");
+            // we know the exact size required for the block
+            this.groupIds = new long[page.getPositionCount()];
+        }
+
+        @Override
+        public boolean process()
+        {
+            int positionCount = page.getPositionCount();
+            checkState(lastPosition < positionCount, "position count out of bound");
+            checkState(!finished);
+
+            // needRehash() == false indicates we have reached capacity boundary and a rehash is needed.
+            // We can only proceed if tryRehash() successfully did a rehash.
+            if (needRehash() && !tryRehash()) {
+                return false;
+            }
+
+            // putIfAbsent will rehash automatically if rehash is needed, unless there isn't enough memory to do so.
+            // Therefore needRehash will not generally return true even if we have just crossed the capacity boundary.
+            lastPosition = putIfAbsent(page, lastPosition, groupIds);
+            return lastPosition == positionCount;
+        }
+
+        @Override
+        public GroupByIdBlock getResult()
+        {
+            checkState(lastPosition == page.getPositionCount(), "process has not yet finished");
+            checkState(!finished, "result has produced");
+            finished = true;
+            return new GroupByIdBlock(nextGroupId, new LongArrayBlock(groupIds.length, Optional.empty(), groupIds));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.operator;
+
+import io.airlift.slice.XxHash64;
+import io.trino.spi.Page;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Assigns rows of a spilled join partition to sub-partitions, when the partition is too large
+ * to be unspilled at once. Every recursion level uses a different hash seed, so that rows of
+ * a partition are distributed independently of the partitioning at the previous levels.
+ */
+public class GraceHashPartitionFunction
+        implements PartitionFunction
+{
+    private static final long SEED_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final HashGenerator hashGenerator;
+    private final long seed;
+    private final int partitionCount;
+    private final int hashMask;
+
+    public GraceHashPartitionFunction(HashGenerator hashGenerator, int level, int partitionCount)
+    {
+        this.hashGenerator = requireNonNull(hashGenerator, "hashGenerator is null");
+        checkArgument(level > 0, "level must be positive");
+        checkArgument(Integer.bitCount(partitionCount) == 1, "partitionCount must be a power of 2");
+        this.seed = level * SEED_MULTIPLIER;
+        this.partitionCount = partitionCount;
+        this.hashMask = partitionCount - 1;
+    }
+
+    @Override
+    public int getPartitionCount()
+    {
+        return partitionCount;
+    }
+
+    @Override
+    public int getPartition(Page page, int position)
+    {
+        long rawHash = hashGenerator.hashPosition(position, page);
+        return (int) XxHash64.hash(Long.reverse(rawHash) ^ seed) & hashMask;
+    }
+}
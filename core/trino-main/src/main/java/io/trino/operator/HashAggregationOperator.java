@@ -23,6 +23,9 @@ import io.trino.operator.aggregation.AccumulatorFactory;
 import io.trino.operator.aggregation.builder.HashAggregationBuilder;
 import io.trino.operator.aggregation.builder.InMemoryHashAggregationBuilder;
 import io.trino.operator.aggregation.builder.SpillableHashAggregationBuilder;
+import io.trino.operator.aggregation.partial.PartialAggregationController;
+import io.trino.operator.aggregation.partial.PartialAggregationInfo;
+import io.trino.operator.aggregation.partial.SkipAggregationBuilder;
 import io.trino.operator.scalar.CombineHashFunction;
 import io.trino.spi.Page;
 import io.trino.spi.PageBuilder;
@@ -38,11 +41,13 @@ import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static io.trino.operator.aggregation.builder.InMemoryHashAggregationBuilder.toTypes;
 import static io.trino.sql.planner.optimizations.HashGenerationOptimizer.INITIAL_HASH_VALUE;
+import static io.trino.sql.planner.plan.AggregationNode.Step.PARTIAL;
 import static io.trino.type.TypeUtils.NULL_HASH_CODE;
 import static java.util.Objects.requireNonNull;
 
@@ -74,6 +79,7 @@ public class HashAggregationOperator
         private final JoinCompiler joinCompiler;
         private final BlockTypeOperators blockTypeOperators;
         private final boolean useSystemMemory;
+        private final Optional<PartialAggregationController> partialAggregationController;
 
         private boolean closed;
 
@@ -114,7 +120,8 @@ public class HashAggregationOperator
                     },
                     joinCompiler,
                     blockTypeOperators,
-                    useSystemMemory);
+                    useSystemMemory,
+                    Optional.empty());
         }
 
         public HashAggregationOperatorFactory(
@@ -135,7 +142,8 @@ public class HashAggregationOperator
                 SpillerFactory spillerFactory,
                 JoinCompiler joinCompiler,
                 BlockTypeOperators blockTypeOperators,
-                boolean useSystemMemory)
+                boolean useSystemMemory,
+                Optional<PartialAggregationController> partialAggregationController)
         {
             this(operatorId,
                     planNodeId,
@@ -155,7 +163,8 @@ public class HashAggregationOperator
                     spillerFactory,
                     joinCompiler,
                     blockTypeOperators,
-                    useSystemMemory);
+                    useSystemMemory,
+                    partialAggregationController);
         }
 
         @VisibleForTesting
@@ -178,7 +187,8 @@ public class HashAggregationOperator
                 SpillerFactory spillerFactory,
                 JoinCompiler joinCompiler,
                 BlockTypeOperators blockTypeOperators,
-                boolean useSystemMemory)
+                boolean useSystemMemory,
+                Optional<PartialAggregationController> partialAggregationController)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -199,6 +209,7 @@ public class HashAggregationOperator
             this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
             this.blockTypeOperators = requireNonNull(blockTypeOperators, "blockTypeOperators is null");
             this.useSystemMemory = useSystemMemory;
+            this.partialAggregationController = requireNonNull(partialAggregationController, "partialAggregationController is null");
         }
 
         @Override
@@ -225,7 +236,8 @@ public class HashAggregationOperator
                     spillerFactory,
                     joinCompiler,
                     blockTypeOperators,
-                    useSystemMemory);
+                    useSystemMemory,
+                    partialAggregationController);
             return hashAggregationOperator;
         }
 
@@ -257,7 +269,8 @@ public class HashAggregationOperator
                     spillerFactory,
                     joinCompiler,
                     blockTypeOperators,
-                    useSystemMemory);
+                    useSystemMemory,
+                    partialAggregationController.map(PartialAggregationController::duplicate));
         }
     }
 
@@ -279,6 +292,7 @@ public class HashAggregationOperator
     private final JoinCompiler joinCompiler;
     private final BlockTypeOperators blockTypeOperators;
     private final boolean useSystemMemory;
+    private final Optional<PartialAggregationController> partialAggregationController;
 
     private final List<Type> types;
     private final HashCollisionsCounter hashCollisionsCounter;
@@ -293,6 +307,12 @@ public class HashAggregationOperator
     // for yield when memory is not available
     private Work<?> unfinishedWork;
 
+    // adaptive partial aggregation statistics
+    private long aggregationInputRowsProcessed;
+    private long aggregatedInputRows;
+    private long aggregatedOutputRows;
+    private long passThroughRows;
+
     public HashAggregationOperator(
             OperatorContext operatorContext,
             List<Type> groupByTypes,
@@ -311,7 +331,8 @@ public class HashAggregationOperator
             SpillerFactory spillerFactory,
             JoinCompiler joinCompiler,
             BlockTypeOperators blockTypeOperators,
-            boolean useSystemMemory)
+            boolean useSystemMemory,
+            Optional<PartialAggregationController> partialAggregationController)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         requireNonNull(step, "step is null");
@@ -336,8 +357,15 @@ public class HashAggregationOperator
         this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
         this.blockTypeOperators = requireNonNull(blockTypeOperators, "blockTypeOperators is null");
         this.hashCollisionsCounter = new HashCollisionsCounter(operatorContext);
-        operatorContext.setInfoSupplier(hashCollisionsCounter);
         this.useSystemMemory = useSystemMemory;
+        this.partialAggregationController = requireNonNull(partialAggregationController, "partialAggregationController is null");
+        checkArgument(partialAggregationController.isEmpty() || step == PARTIAL, "partialAggregationController should be present only for partial aggregation");
+        if (partialAggregationController.isPresent()) {
+            operatorContext.setInfoSupplier(this::getPartialAggregationInfo);
+        }
+        else {
+            operatorContext.setInfoSupplier(hashCollisionsCounter);
+        }
 
         this.memoryContext = operatorContext.localUserMemoryContext();
         if (useSystemMemory) {
@@ -385,7 +413,10 @@ public class HashAggregationOperator
         requireNonNull(page, "page is null");
         inputProcessed = true;
 
-        if (aggregationBuilder == null) {
+        if (aggregationBuilder == null && skipPartialAggregation()) {
+            aggregationBuilder = new SkipAggregationBuilder(groupByChannels, hashChannel, accumulatorFactories, memoryContext);
+        }
+        else if (aggregationBuilder == null) {
             // TODO: We ignore spillEnabled here if any aggregate has ORDER BY clause or DISTINCT because they are not yet implemented for spilling.
             if (step.isOutputPartial() || !spillEnabled || hasOrderBy() || hasDistinct()) {
                 aggregationBuilder = new InMemoryHashAggregationBuilder(
@@ -431,6 +462,13 @@ public class HashAggregationOperator
             checkState(!aggregationBuilder.isFull(), "Aggregation buffer is full");
         }
 
+        if (aggregationBuilder instanceof SkipAggregationBuilder) {
+            passThroughRows += page.getPositionCount();
+        }
+        else {
+            aggregationInputRowsProcessed += page.getPositionCount();
+        }
+
         // process the current page; save the unfinished work if we are waiting for memory
         unfinishedWork = aggregationBuilder.processPage(page);
         if (unfinishedWork.process()) {
@@ -439,6 +477,11 @@ public class HashAggregationOperator
         aggregationBuilder.updateMemory();
     }
 
+    private boolean skipPartialAggregation()
+    {
+        return partialAggregationController.isPresent() && partialAggregationController.get().isPartialAggregationDisabled();
+    }
+
     private boolean hasOrderBy()
     {
         return accumulatorFactories.stream().anyMatch(AccumulatorFactory::hasOrderBy);
@@ -502,6 +545,14 @@ public class HashAggregationOperator
                 return null;
             }
 
+            if (partialAggregationController.isPresent() && aggregationBuilder instanceof InMemoryHashAggregationBuilder) {
+                long groupCount = ((InMemoryHashAggregationBuilder) aggregationBuilder).getGroupCount();
+                partialAggregationController.get().onFlush(aggregationInputRowsProcessed, groupCount);
+                aggregatedInputRows += aggregationInputRowsProcessed;
+                aggregatedOutputRows += groupCount;
+                aggregationInputRowsProcessed = 0;
+            }
+
             outputPages = aggregationBuilder.buildResult();
         }
 
@@ -529,6 +580,18 @@ public class HashAggregationOperator
         return aggregationBuilder;
     }
 
+    private PartialAggregationInfo getPartialAggregationInfo()
+    {
+        PartialAggregationController controller = partialAggregationController.orElseThrow();
+        return new PartialAggregationInfo(
+                hashCollisionsCounter.get(),
+                aggregatedInputRows,
+                aggregatedOutputRows,
+                passThroughRows,
+                controller.getUniqueRowsRatioThreshold(),
+                controller.isPartialAggregationDisabled());
+    }
+
     private void closeAggregationBuilder()
     {
         outputPages = null;
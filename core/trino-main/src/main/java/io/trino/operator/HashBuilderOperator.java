@@ -20,6 +20,8 @@ import com.google.common.util.concurrent.ListenableFuture;
 import io.trino.execution.Lifespan;
 import io.trino.memory.context.LocalMemoryContext;
 import io.trino.spi.Page;
+import io.trino.spiller.GenericPartitioningSpiller;
+import io.trino.spiller.PartitioningSpiller;
 import io.trino.spiller.SingleStreamSpiller;
 import io.trino.spiller.SingleStreamSpillerFactory;
 import io.trino.sql.gen.JoinFilterFunctionCompiler.JoinFilterFunctionFactory;
@@ -28,19 +30,24 @@ import io.trino.sql.planner.plan.PlanNodeId;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.Queue;
+import java.util.stream.IntStream;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static io.airlift.concurrent.MoreFutures.checkSuccess;
 import static io.airlift.concurrent.MoreFutures.getDone;
@@ -179,6 +186,16 @@ public class HashBuilderOperator
          */
         INPUT_UNSPILLING,
 
+        /**
+         * Spilled input does not fit in memory and is being split into sub-partitions, which are unspilled one at a time
+         */
+        INPUT_REPARTITIONING,
+
+        /**
+         * All sub-partitions of spilled input have been consumed
+         */
+        INPUT_REPARTITIONED,
+
         /**
          * Spilled input has been unspilled, LookupSource built from it
          */
@@ -192,6 +209,17 @@ public class HashBuilderOperator
 
     private static final double INDEX_COMPACTION_ON_REVOCATION_TARGET = 0.8;
 
+    /**
+     * Number of sub-partitions a spilled partition is split into when it does not fit in memory
+     */
+    @VisibleForTesting
+    static final int SPILL_REPARTITION_FANOUT = 8;
+
+    /**
+     * Sub-partitions at this recursion level are unspilled regardless of their size
+     */
+    public static final int MAX_SPILL_REPARTITION_LEVEL = 3;
+
     private final OperatorContext operatorContext;
     private final LocalMemoryContext localUserMemoryContext;
     private final LocalMemoryContext localRevocableMemoryContext;
@@ -217,6 +245,11 @@ public class HashBuilderOperator
     private Optional<ListenableFuture<?>> lookupSourceNotNeeded = Optional.empty();
     private final SpilledLookupSourceHandle spilledLookupSourceHandle = new SpilledLookupSourceHandle();
     private Optional<SingleStreamSpiller> spiller = Optional.empty();
+    // (sub-)partition which is currently unspilled, see INPUT_REPARTITIONING
+    private SpilledLookupSourceHandle currentSpilledLookupSourceHandle = spilledLookupSourceHandle;
+    private final Deque<RepartitionedInput> repartitionedInputs = new ArrayDeque<>();
+    private Optional<PartitioningSpiller> repartitioningSpiller = Optional.empty();
+    private Optional<Iterator<Page>> pagesToRepartition = Optional.empty();
     private ListenableFuture<?> spillInProgress = NOT_BLOCKED;
     private Optional<ListenableFuture<List<Page>>> unspillInProgress = Optional.empty();
     @Nullable
@@ -291,13 +324,19 @@ public class HashBuilderOperator
                 return lookupSourceNotNeeded.orElseThrow(() -> new IllegalStateException("Lookup source built, but disposal future not set"));
 
             case INPUT_SPILLED:
-                return spilledLookupSourceHandle.getUnspillingOrDisposeRequested();
+                return currentSpilledLookupSourceHandle.getUnspillingOrDisposeRequested();
 
             case INPUT_UNSPILLING:
                 return unspillInProgress.orElseThrow(() -> new IllegalStateException("Unspilling in progress, but unspilling future not set"));
 
+            case INPUT_REPARTITIONING:
+                return spillInProgress;
+
+            case INPUT_REPARTITIONED:
+                return repartitionedInputs.element().getSpilledLookupSourceHandle().getDisposeRequested();
+
             case INPUT_UNSPILLED_AND_BUILT:
-                return spilledLookupSourceHandle.getDisposeRequested();
+                return currentSpilledLookupSourceHandle.getDisposeRequested();
 
             case CLOSED:
                 return NOT_BLOCKED;
@@ -451,8 +490,8 @@ public class HashBuilderOperator
                 return;
 
             case INPUT_SPILLED:
-                if (spilledLookupSourceHandle.getDisposeRequested().isDone()) {
-                    close();
+                if (currentSpilledLookupSourceHandle.getDisposeRequested().isDone()) {
+                    finishSpilledPartition();
                 }
                 else {
                     unspillLookupSourceIfRequested();
@@ -463,6 +502,14 @@ public class HashBuilderOperator
                 finishLookupSourceUnspilling();
                 return;
 
+            case INPUT_REPARTITIONING:
+                repartitionSpilledInput();
+                return;
+
+            case INPUT_REPARTITIONED:
+                finishRepartitionedInputIfDisposed();
+                return;
+
             case INPUT_UNSPILLED_AND_BUILT:
                 disposeUnspilledLookupSourceIfRequested();
                 return;
@@ -524,7 +571,7 @@ public class HashBuilderOperator
     private void unspillLookupSourceIfRequested()
     {
         checkState(state == State.INPUT_SPILLED);
-        if (!spilledLookupSourceHandle.getUnspillingRequested().isDone()) {
+        if (!currentSpilledLookupSourceHandle.getUnspillingRequested().isDone()) {
             // Nothing to do yet.
             return;
         }
@@ -532,12 +579,131 @@ public class HashBuilderOperator
         verify(spiller.isPresent());
         verify(unspillInProgress.isEmpty());
 
-        localUserMemoryContext.setBytes(getSpiller().getSpilledPagesInMemorySize() + index.getEstimatedSize().toBytes());
-        unspillInProgress = Optional.of(getSpiller().getAllSpilledPages());
+        long unspilledBytes = getSpilledPagesInMemorySize() + index.getEstimatedSize().toBytes();
+        if (currentSpilledLookupSourceHandle.getLevel() < MAX_SPILL_REPARTITION_LEVEL && !localUserMemoryContext.trySetBytes(unspilledBytes)) {
+            // Partition does not fit in memory. Split it into sub-partitions, so that they can be unspilled one at a time.
+            startRepartitioning();
+            return;
+        }
+
+        localUserMemoryContext.setBytes(unspilledBytes);
+        unspillInProgress = Optional.of(getAllSpilledPages());
 
         state = State.INPUT_UNSPILLING;
     }
 
+    private void startRepartitioning()
+    {
+        checkState(state == State.INPUT_SPILLED);
+        verify(repartitioningSpiller.isEmpty());
+
+        int level = currentSpilledLookupSourceHandle.getLevel() + 1;
+        repartitioningSpiller = Optional.of(new GenericPartitioningSpiller(
+                index.getTypes(),
+                new GraceHashPartitionFunction(index.createHashGenerator(hashChannels, preComputedHashChannel), level, SPILL_REPARTITION_FANOUT),
+                operatorContext.getSpillContext().newLocalSpillContext(),
+                operatorContext.newAggregateSystemMemoryContext(),
+                singleStreamSpillerFactory));
+        pagesToRepartition = Optional.of(getSpilledPages());
+
+        state = State.INPUT_REPARTITIONING;
+        repartitionSpilledInput();
+    }
+
+    private void repartitionSpilledInput()
+    {
+        checkState(state == State.INPUT_REPARTITIONING);
+        PartitioningSpiller partitioningSpiller = repartitioningSpiller.orElseThrow(() -> new IllegalStateException("Repartitioning spiller not created"));
+        Iterator<Page> pages = pagesToRepartition.orElseThrow(() -> new IllegalStateException("Pages to repartition not set"));
+
+        while (spillInProgress.isDone()) {
+            checkSuccess(spillInProgress, "spilling failed");
+            if (!pages.hasNext()) {
+                finishRepartitioning(partitioningSpiller);
+                return;
+            }
+            spillInProgress = partitioningSpiller.partitionAndSpill(pages.next(), partition -> true).getSpillingFuture();
+        }
+    }
+
+    private void finishRepartitioning(PartitioningSpiller partitioningSpiller)
+    {
+        SpilledLookupSourceHandle repartitionedHandle = currentSpilledLookupSourceHandle;
+        List<SpilledLookupSourceHandle> subPartitions = IntStream.range(0, SPILL_REPARTITION_FANOUT)
+                .mapToObj(partition -> repartitionedHandle.createSubPartition())
+                .collect(toImmutableList());
+        repartitionedInputs.push(new RepartitionedInput(repartitionedHandle, partitioningSpiller, subPartitions));
+        repartitioningSpiller = Optional.empty();
+        pagesToRepartition = Optional.empty();
+
+        currentSpilledLookupSourceHandle = subPartitions.get(0);
+        state = State.INPUT_SPILLED;
+        repartitionedHandle.setRepartitioned(subPartitions);
+    }
+
+    private void finishSpilledPartition()
+    {
+        RepartitionedInput repartitionedInput = repartitionedInputs.peek();
+        if (repartitionedInput == null) {
+            close();
+            return;
+        }
+
+        if (repartitionedInput.advance()) {
+            currentSpilledLookupSourceHandle = repartitionedInput.getCurrentSubPartition();
+            state = State.INPUT_SPILLED;
+            return;
+        }
+
+        state = State.INPUT_REPARTITIONED;
+        finishRepartitionedInputIfDisposed();
+    }
+
+    private void finishRepartitionedInputIfDisposed()
+    {
+        checkState(state == State.INPUT_REPARTITIONED);
+        RepartitionedInput repartitionedInput = repartitionedInputs.element();
+        if (!repartitionedInput.getSpilledLookupSourceHandle().getDisposeRequested().isDone()) {
+            return;
+        }
+
+        repartitionedInputs.pop();
+        try {
+            repartitionedInput.close();
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        currentSpilledLookupSourceHandle = repartitionedInput.getSpilledLookupSourceHandle();
+        finishSpilledPartition();
+    }
+
+    private long getSpilledPagesInMemorySize()
+    {
+        RepartitionedInput repartitionedInput = repartitionedInputs.peek();
+        if (repartitionedInput == null) {
+            return getSpiller().getSpilledPagesInMemorySize();
+        }
+        return repartitionedInput.getSpiller().getSpilledPagesInMemorySize(repartitionedInput.getCurrentSubPartitionNumber());
+    }
+
+    private Iterator<Page> getSpilledPages()
+    {
+        RepartitionedInput repartitionedInput = repartitionedInputs.peek();
+        if (repartitionedInput == null) {
+            return getSpiller().getSpilledPages();
+        }
+        return repartitionedInput.getSpiller().getSpilledPages(repartitionedInput.getCurrentSubPartitionNumber());
+    }
+
+    private ListenableFuture<List<Page>> getAllSpilledPages()
+    {
+        if (repartitionedInputs.isEmpty()) {
+            return getSpiller().getAllSpilledPages();
+        }
+        return immediateFuture(ImmutableList.copyOf(getSpilledPages()));
+    }
+
     private void finishLookupSourceUnspilling()
     {
         checkState(state == State.INPUT_UNSPILLING);
@@ -548,6 +714,7 @@ public class HashBuilderOperator
 
         // Use Queue so that Pages already consumed by Index are not retained by us.
         Queue<Page> pages = new ArrayDeque<>(getDone(unspillInProgress.get()));
+        unspillInProgress = Optional.empty();
         long memoryRetainedByRemainingPages = pages.stream()
                 .mapToLong(Page::getRetainedSizeInBytes)
                 .sum();
@@ -562,11 +729,13 @@ public class HashBuilderOperator
         }
 
         LookupSourceSupplier partition = buildLookupSource();
-        lookupSourceChecksum.ifPresent(checksum ->
-                checkState(partition.checksum() == checksum, "Unspilled lookupSource checksum does not match original one"));
+        if (repartitionedInputs.isEmpty()) {
+            lookupSourceChecksum.ifPresent(checksum ->
+                    checkState(partition.checksum() == checksum, "Unspilled lookupSource checksum does not match original one"));
+        }
         localUserMemoryContext.setBytes(partition.get().getInMemorySizeInBytes());
 
-        spilledLookupSourceHandle.setLookupSource(partition);
+        currentSpilledLookupSourceHandle.setLookupSource(partition);
 
         state = State.INPUT_UNSPILLED_AND_BUILT;
     }
@@ -574,14 +743,15 @@ public class HashBuilderOperator
     private void disposeUnspilledLookupSourceIfRequested()
     {
         checkState(state == State.INPUT_UNSPILLED_AND_BUILT);
-        if (!spilledLookupSourceHandle.getDisposeRequested().isDone()) {
+        if (!currentSpilledLookupSourceHandle.getDisposeRequested().isDone()) {
             return;
         }
 
         index.clear();
         localUserMemoryContext.setBytes(index.getEstimatedSize().toBytes());
+        lookupSourceSupplier = null;
 
-        close();
+        finishSpilledPartition();
     }
 
     private LookupSourceSupplier buildLookupSource()
@@ -625,6 +795,8 @@ public class HashBuilderOperator
         try (Closer closer = Closer.create()) {
             closer.register(index::clear);
             spiller.ifPresent(closer::register);
+            repartitioningSpiller.ifPresent(closer::register);
+            repartitionedInputs.forEach(closer::register);
             closer.register(() -> localUserMemoryContext.setBytes(0));
             closer.register(() -> localRevocableMemoryContext.setBytes(0));
         }
@@ -632,4 +804,60 @@ public class HashBuilderOperator
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Spilled partition, which has been split into sub-partitions
+     */
+    private static class RepartitionedInput
+            implements Closeable
+    {
+        private final SpilledLookupSourceHandle spilledLookupSourceHandle;
+        private final PartitioningSpiller spiller;
+        private final List<SpilledLookupSourceHandle> subPartitions;
+        private int currentSubPartition;
+
+        private RepartitionedInput(SpilledLookupSourceHandle spilledLookupSourceHandle, PartitioningSpiller spiller, List<SpilledLookupSourceHandle> subPartitions)
+        {
+            this.spilledLookupSourceHandle = requireNonNull(spilledLookupSourceHandle, "spilledLookupSourceHandle is null");
+            this.spiller = requireNonNull(spiller, "spiller is null");
+            this.subPartitions = ImmutableList.copyOf(requireNonNull(subPartitions, "subPartitions is null"));
+            checkArgument(!subPartitions.isEmpty(), "subPartitions is empty");
+        }
+
+        public SpilledLookupSourceHandle getSpilledLookupSourceHandle()
+        {
+            return spilledLookupSourceHandle;
+        }
+
+        public PartitioningSpiller getSpiller()
+        {
+            return spiller;
+        }
+
+        public int getCurrentSubPartitionNumber()
+        {
+            return currentSubPartition;
+        }
+
+        public SpilledLookupSourceHandle getCurrentSubPartition()
+        {
+            return subPartitions.get(currentSubPartition);
+        }
+
+        /**
+         * @return whether there are more sub-partitions to unspill
+         */
+        public boolean advance()
+        {
+            currentSubPartition++;
+            return currentSubPartition < subPartitions.size();
+        }
+
+        @Override
+        public void close()
+                throws IOException
+        {
+            spiller.close();
+        }
+    }
 }
@@ -15,6 +15,7 @@ package io.trino.operator;
 
 import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
 import com.google.common.net.MediaType;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
@@ -27,8 +28,8 @@ import io.airlift.http.client.Response;
 import io.airlift.http.client.ResponseHandler;
 import io.airlift.http.client.ResponseTooLargeException;
 import io.airlift.log.Logger;
-import io.airlift.slice.InputStreamSliceInput;
-import io.airlift.slice.SliceInput;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 import io.trino.execution.buffer.SerializedPage;
@@ -44,6 +45,7 @@ import javax.annotation.concurrent.ThreadSafe;
 import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URI;
 import java.util.List;
@@ -65,10 +67,12 @@ import static io.airlift.http.client.Request.Builder.prepareGet;
 import static io.airlift.http.client.ResponseHandlerUtils.propagate;
 import static io.airlift.http.client.StatusResponseHandler.StatusResponse;
 import static io.airlift.http.client.StatusResponseHandler.createStatusResponseHandler;
+import static io.airlift.slice.SizeOf.SIZE_OF_INT;
+import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
 import static io.trino.TrinoMediaTypes.TRINO_PAGES_TYPE;
 import static io.trino.execution.buffer.PagesSerdeUtil.NO_CHECKSUM;
 import static io.trino.execution.buffer.PagesSerdeUtil.calculateChecksum;
-import static io.trino.execution.buffer.PagesSerdeUtil.readSerializedPages;
+import static io.trino.execution.buffer.PagesSerdeUtil.readSerializedPagesFrom;
 import static io.trino.operator.HttpPageBufferClient.PagesResponse.createEmptyPagesResponse;
 import static io.trino.operator.HttpPageBufferClient.PagesResponse.createPagesResponse;
 import static io.trino.server.InternalHeaders.TRINO_BUFFER_COMPLETE;
@@ -641,14 +645,18 @@ public final class HttpPageBufferClient
                 long nextToken = getNextToken(response, uri);
                 boolean complete = getComplete(response, uri);
 
-                try (SliceInput input = new InputStreamSliceInput(response.getInputStream())) {
-                    int magic = input.readInt();
+                try (InputStream input = response.getInputStream()) {
+                    byte[] headerBytes = new byte[SIZE_OF_INT + SIZE_OF_LONG + SIZE_OF_INT];
+                    ByteStreams.readFully(input, headerBytes);
+                    Slice header = Slices.wrappedBuffer(headerBytes);
+                    int magic = header.getInt(0);
                     if (magic != SERIALIZED_PAGES_MAGIC) {
                         throw new IllegalStateException(format("Invalid stream header, expected 0x%08x, but was 0x%08x", SERIALIZED_PAGES_MAGIC, magic));
                     }
-                    long checksum = input.readLong();
-                    int pagesCount = input.readInt();
-                    List<SerializedPage> pages = ImmutableList.copyOf(readSerializedPages(input));
+                    long checksum = header.getLong(SIZE_OF_INT);
+                    int pagesCount = header.getInt(SIZE_OF_INT + SIZE_OF_LONG);
+                    // pages are read from the response directly into their own memory, without an intermediate buffer
+                    List<SerializedPage> pages = readSerializedPagesFrom(input);
                     verifyChecksum(checksum, pages);
                     checkState(pages.size() == pagesCount, "Wrong number of pages, expected %s, but read %s", pagesCount, pages.size());
                     return createPagesResponse(taskInstanceId, token, nextToken, pages, complete);
@@ -24,6 +24,7 @@ import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static io.trino.operator.JoinStatisticsCounter.HISTOGRAM_BUCKETS;
+import static io.trino.operator.JoinStatisticsCounter.SPILL_LEVELS;
 
 public class JoinOperatorInfo
         implements Mergeable<JoinOperatorInfo>, OperatorInfo
@@ -32,8 +33,17 @@ public class JoinOperatorInfo
     private final long[] logHistogramProbes;
     private final long[] logHistogramOutput;
     private final Optional<Long> lookupSourcePositions;
+    private final long[] spilledPartitionsPerLevel;
+    private final long[] spilledBuildPositionsPerLevel;
+    private final long[] spilledProbePositionsPerLevel;
 
-    public static JoinOperatorInfo createJoinOperatorInfo(JoinType joinType, long[] logHistogramCounters, Optional<Long> lookupSourcePositions)
+    public static JoinOperatorInfo createJoinOperatorInfo(
+            JoinType joinType,
+            long[] logHistogramCounters,
+            Optional<Long> lookupSourcePositions,
+            long[] spilledPartitionsPerLevel,
+            long[] spilledBuildPositionsPerLevel,
+            long[] spilledProbePositionsPerLevel)
     {
         long[] logHistogramProbes = new long[HISTOGRAM_BUCKETS];
         long[] logHistogramOutput = new long[HISTOGRAM_BUCKETS];
@@ -41,7 +51,14 @@ public class JoinOperatorInfo
             logHistogramProbes[i] = logHistogramCounters[2 * i];
             logHistogramOutput[i] = logHistogramCounters[2 * i + 1];
         }
-        return new JoinOperatorInfo(joinType, logHistogramProbes, logHistogramOutput, lookupSourcePositions);
+        return new JoinOperatorInfo(
+                joinType,
+                logHistogramProbes,
+                logHistogramOutput,
+                lookupSourcePositions,
+                spilledPartitionsPerLevel,
+                spilledBuildPositionsPerLevel,
+                spilledProbePositionsPerLevel);
     }
 
     @JsonCreator
@@ -49,14 +66,23 @@ public class JoinOperatorInfo
             @JsonProperty("joinType") JoinType joinType,
             @JsonProperty("logHistogramProbes") long[] logHistogramProbes,
             @JsonProperty("logHistogramOutput") long[] logHistogramOutput,
-            @JsonProperty("lookupSourcePositions") Optional<Long> lookupSourcePositions)
+            @JsonProperty("lookupSourcePositions") Optional<Long> lookupSourcePositions,
+            @JsonProperty("spilledPartitionsPerLevel") long[] spilledPartitionsPerLevel,
+            @JsonProperty("spilledBuildPositionsPerLevel") long[] spilledBuildPositionsPerLevel,
+            @JsonProperty("spilledProbePositionsPerLevel") long[] spilledProbePositionsPerLevel)
     {
         checkArgument(logHistogramProbes.length == HISTOGRAM_BUCKETS);
         checkArgument(logHistogramOutput.length == HISTOGRAM_BUCKETS);
+        checkArgument(spilledPartitionsPerLevel.length == SPILL_LEVELS);
+        checkArgument(spilledBuildPositionsPerLevel.length == SPILL_LEVELS);
+        checkArgument(spilledProbePositionsPerLevel.length == SPILL_LEVELS);
         this.joinType = joinType;
         this.logHistogramProbes = logHistogramProbes;
         this.logHistogramOutput = logHistogramOutput;
         this.lookupSourcePositions = lookupSourcePositions;
+        this.spilledPartitionsPerLevel = spilledPartitionsPerLevel;
+        this.spilledBuildPositionsPerLevel = spilledBuildPositionsPerLevel;
+        this.spilledProbePositionsPerLevel = spilledProbePositionsPerLevel;
     }
 
     @JsonProperty
@@ -86,6 +112,28 @@ public class JoinOperatorInfo
         return lookupSourcePositions;
     }
 
+    /**
+     * Number of spilled partitions joined, per repartitioning level. Level 0 are partitions spilled by the build operators,
+     * higher levels are sub-partitions of partitions which were too large to be unspilled.
+     */
+    @JsonProperty
+    public long[] getSpilledPartitionsPerLevel()
+    {
+        return spilledPartitionsPerLevel;
+    }
+
+    @JsonProperty
+    public long[] getSpilledBuildPositionsPerLevel()
+    {
+        return spilledBuildPositionsPerLevel;
+    }
+
+    @JsonProperty
+    public long[] getSpilledProbePositionsPerLevel()
+    {
+        return spilledProbePositionsPerLevel;
+    }
+
     @Override
     public String toString()
     {
@@ -94,6 +142,9 @@ public class JoinOperatorInfo
                 .add("logHistogramProbes", logHistogramProbes)
                 .add("logHistogramOutput", logHistogramOutput)
                 .add("lookupSourcePositions", lookupSourcePositions)
+                .add("spilledPartitionsPerLevel", spilledPartitionsPerLevel)
+                .add("spilledBuildPositionsPerLevel", spilledBuildPositionsPerLevel)
+                .add("spilledProbePositionsPerLevel", spilledProbePositionsPerLevel)
                 .toString();
     }
 
@@ -113,7 +164,23 @@ public class JoinOperatorInfo
             mergedSourcePositions = Optional.of(this.lookupSourcePositions.orElse(0L) + other.lookupSourcePositions.orElse(0L));
         }
 
-        return new JoinOperatorInfo(this.joinType, logHistogramProbes, logHistogramOutput, mergedSourcePositions);
+        long[] spilledPartitionsPerLevel = new long[SPILL_LEVELS];
+        long[] spilledBuildPositionsPerLevel = new long[SPILL_LEVELS];
+        long[] spilledProbePositionsPerLevel = new long[SPILL_LEVELS];
+        for (int i = 0; i < SPILL_LEVELS; i++) {
+            spilledPartitionsPerLevel[i] = this.spilledPartitionsPerLevel[i] + other.spilledPartitionsPerLevel[i];
+            spilledBuildPositionsPerLevel[i] = this.spilledBuildPositionsPerLevel[i] + other.spilledBuildPositionsPerLevel[i];
+            spilledProbePositionsPerLevel[i] = this.spilledProbePositionsPerLevel[i] + other.spilledProbePositionsPerLevel[i];
+        }
+
+        return new JoinOperatorInfo(
+                this.joinType,
+                logHistogramProbes,
+                logHistogramOutput,
+                mergedSourcePositions,
+                spilledPartitionsPerLevel,
+                spilledBuildPositionsPerLevel,
+                spilledProbePositionsPerLevel);
     }
 
     @Override
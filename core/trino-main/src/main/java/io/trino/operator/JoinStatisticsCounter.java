@@ -26,6 +26,8 @@ public class JoinStatisticsCounter
 {
     public static final int HISTOGRAM_BUCKETS = 8;
 
+    public static final int SPILL_LEVELS = HashBuilderOperator.MAX_SPILL_REPARTITION_LEVEL + 1;
+
     private static final int INDIVIDUAL_BUCKETS = 4;
 
     private final JoinType joinType;
@@ -35,6 +37,10 @@ public class JoinStatisticsCounter
     //      [2*bucket]      count probe positions that produced "bucket" rows on source side,
     //      [2*bucket + 1]  total count of rows that were produces by probe rows in this bucket.
     private final long[] logHistogramCounters = new long[HISTOGRAM_BUCKETS * 2];
+    // Spilled partitions joined after unspilling, indexed by repartitioning level (0 for partitions spilled by the lookup source factory)
+    private final long[] spilledPartitionsPerLevel = new long[SPILL_LEVELS];
+    private final long[] spilledBuildPositionsPerLevel = new long[SPILL_LEVELS];
+    private final long[] spilledProbePositionsPerLevel = new long[SPILL_LEVELS];
 
     /**
      * Estimated number of positions in on the build side
@@ -70,9 +76,26 @@ public class JoinStatisticsCounter
         logHistogramCounters[2 * bucket + 1] += numSourcePositions;
     }
 
+    public void recordSpilledPartition(int level, long buildPositions)
+    {
+        spilledPartitionsPerLevel[level]++;
+        spilledBuildPositionsPerLevel[level] += buildPositions;
+    }
+
+    public void recordSpilledProbePositions(int level, long probePositions)
+    {
+        spilledProbePositionsPerLevel[level] += probePositions;
+    }
+
     @Override
     public JoinOperatorInfo get()
     {
-        return createJoinOperatorInfo(joinType, logHistogramCounters, lookupSourcePositions);
+        return createJoinOperatorInfo(
+                joinType,
+                logHistogramCounters,
+                lookupSourcePositions,
+                spilledPartitionsPerLevel.clone(),
+                spilledBuildPositionsPerLevel.clone(),
+                spilledProbePositionsPerLevel.clone());
     }
 }
@@ -14,7 +14,6 @@
 package io.trino.operator;
 
 import com.google.common.io.Closer;
-import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.trino.memory.context.MemoryTrackingContext;
 import io.trino.operator.JoinProbe.JoinProbeFactory;
@@ -34,13 +33,17 @@ import io.trino.spiller.PartitioningSpillerFactory;
 
 import javax.annotation.Nullable;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.function.IntFunction;
 import java.util.function.IntPredicate;
 import java.util.function.Supplier;
 
@@ -50,7 +53,7 @@ import static com.google.common.base.Suppliers.memoize;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.base.Verify.verifyNotNull;
 import static com.google.common.collect.Iterators.singletonIterator;
-import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static io.airlift.concurrent.MoreFutures.addSuccessCallback;
 import static io.airlift.concurrent.MoreFutures.checkSuccess;
 import static io.airlift.concurrent.MoreFutures.getDone;
@@ -172,6 +175,10 @@ public class LookupJoinOperator
         private JoinProbe probe;
         private long spillEpoch = NO_SPILL_EPOCH;
         private long joinPosition = -1;
+        // number of lookup source positions visited for current probe position after the first one
+        private int joinPositionsVisited;
+        // number of lookup source positions to skip for restored probe position, see replayJoinPositions
+        private int joinPositionsToReplay = -1;
         private int joinSourcePositions;
         private boolean currentProbePositionProducedRow;
 
@@ -304,6 +311,9 @@ public class LookupJoinOperator
 
         private void processProbe(LookupSource lookupSource)
         {
+            if (joinPositionsToReplay >= 0) {
+                replayJoinPositions(lookupSource);
+            }
             do {
                 if (probe.getPosition() >= 0) {
                     if (!joinCurrentPosition(lookupSource, yieldSignal)) {
@@ -348,6 +358,7 @@ public class LookupJoinOperator
                 else {
                     // get next position on lookup side for this probe row
                     joinPosition = lookupSource.getNextJoinPosition(joinPosition, probe.getPosition(), probe.getPage());
+                    joinPositionsVisited++;
                 }
 
                 if (yieldSignal.isSet() || pageBuilder.isFull()) {
@@ -383,6 +394,7 @@ public class LookupJoinOperator
             // update join position
             joinPosition = probe.getCurrentJoinPosition(lookupSource);
             // reset row join state for next row
+            joinPositionsVisited = 0;
             joinSourcePositions = 0;
             currentProbePositionProducedRow = false;
             return true;
@@ -411,7 +423,7 @@ public class LookupJoinOperator
                 if (currentRowSpilled) {
                     spilledRows.merge(
                             currentRowPartition,
-                            new SavedRow(probe.getPage(), probe.getPosition(), getJoinPositionWithinPartition(), currentProbePositionProducedRow, joinSourcePositions),
+                            new SavedRow(probe.getPage(), probe.getPosition(), getJoinPositionWithinPartition(), joinPositionsVisited, currentProbePositionProducedRow, joinSourcePositions),
                             (oldValue, newValue) -> {
                                 throw new IllegalStateException(format("Partition %s is already spilled", currentRowPartition));
                             });
@@ -471,6 +483,7 @@ public class LookupJoinOperator
         private void resetProbeRowState()
         {
             joinPosition = -1;
+            joinPositionsVisited = 0;
             joinSourcePositions = 0;
             currentProbePositionProducedRow = false;
         }
@@ -479,12 +492,36 @@ public class LookupJoinOperator
         {
             probe = joinProbeFactory.createJoinProbe(savedRow.row);
             verify(probe.advanceNextPosition());
-            joinPosition = savedRow.joinPositionWithinPartition;
+            if (savedRow.repartitioned && savedRow.joinPositionWithinPartition >= 0) {
+                // join positions within sub-partition are not known until its lookup source is available
+                joinPosition = -1;
+                joinPositionsToReplay = savedRow.joinPositionsVisited;
+            }
+            else {
+                joinPosition = savedRow.joinPositionWithinPartition;
+                joinPositionsVisited = savedRow.joinPositionsVisited;
+            }
             currentProbePositionProducedRow = savedRow.currentProbePositionProducedRow;
             joinSourcePositions = savedRow.joinSourcePositions;
             spillEpoch = NO_SPILL_EPOCH; // irrelevant
         }
 
+        /**
+         * Restores join position of a saved row in lookup source built from a sub-partition of the partition the row was saved for.
+         * All lookup source positions matching the row belong to the same sub-partition and preserve their relative order,
+         * so they are visited in the same order as in the lookup source of the original partition.
+         */
+        private void replayJoinPositions(LookupSource lookupSource)
+        {
+            verify(probe.getPosition() >= 0, "probe position not set");
+            joinPosition = probe.getCurrentJoinPosition(lookupSource);
+            for (int i = 0; i < joinPositionsToReplay && joinPosition >= 0; i++) {
+                joinPosition = lookupSource.getNextJoinPosition(joinPosition, probe.getPosition(), probe.getPage());
+            }
+            joinPositionsVisited = joinPositionsToReplay;
+            joinPositionsToReplay = -1;
+        }
+
         private Page pageTail(Page currentPage, int startAtPosition)
         {
             verify(currentPage.getPositionCount() - startAtPosition >= 0);
@@ -522,19 +559,17 @@ public class LookupJoinOperator
         private final JoinProbeFactory joinProbeFactory;
         private final LookupSourceFactory lookupSourceFactory;
         private final JoinStatisticsCounter statisticsCounter;
+        private final PartitioningSpillerFactory partitioningSpillerFactory;
         private final PageJoiner sourcePagesJoiner;
         private final WorkProcessor<Page> joinedSourcePages;
+        // spilled partitions being consumed; sub-partitions of a repartitioned partition are on top of the partitions they come from
+        private final Deque<SpilledPartitions> spilledPartitions = new ArrayDeque<>();
 
         private boolean closed;
 
         @Nullable
-        private ListenableFuture<PartitionedConsumption<Supplier<LookupSource>>> partitionedConsumption;
-        @Nullable
-        private Iterator<Partition<Supplier<LookupSource>>> lookupPartitions;
-        @Nullable
-        private Partition<Supplier<LookupSource>> previousPartition;
-        @Nullable
-        private ListenableFuture<Supplier<LookupSource>> previousPartitionLookupSource;
+        private ListenableFuture<PartitionedConsumption<UnspilledPartition>> partitionedConsumption;
+        private boolean consumptionStarted;
 
         private SpillingJoinProcessor(
                 ProcessorContext processorContext,
@@ -563,6 +598,7 @@ public class LookupJoinOperator
             this.joinProbeFactory = requireNonNull(joinProbeFactory, "joinProbeFactory is null");
             this.lookupSourceFactory = requireNonNull(lookupSourceFactory, "lookupSourceFactory is null");
             this.statisticsCounter = requireNonNull(statisticsCounter, "statisticsCounter is null");
+            this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
             sourcePagesJoiner = new PageJoiner(
                     processorContext,
                     probeTypes,
@@ -591,48 +627,91 @@ public class LookupJoinOperator
                 return ProcessState.blocked(partitionedConsumption);
             }
 
-            if (lookupPartitions == null) {
-                lookupPartitions = getDone(partitionedConsumption).beginConsumption();
+            if (!consumptionStarted) {
+                consumptionStarted = true;
+                spilledPartitions.push(new SpilledPartitions(
+                        getDone(partitionedConsumption).beginConsumption(),
+                        partitionNumber -> sourcePagesJoiner.getSpiller()
+                                .map(spiller -> spiller.getSpilledPages(partitionNumber))
+                                .orElse(emptyIterator()),
+                        sourcePagesJoiner.getSpilledRows()));
             }
 
-            if (previousPartition != null) {
-                // If we had no rows for the previous spill partition, we would finish before it is unspilled.
+            while (!spilledPartitions.isEmpty()) {
+                SpilledPartitions partitions = spilledPartitions.element();
+                ListenableFuture<?> repartitioning = partitions.repartitionProbePages();
+                if (!repartitioning.isDone()) {
+                    return ProcessState.blocked(repartitioning);
+                }
+
+                if (!partitions.hasCurrentPartition()) {
+                    if (!partitions.nextPartition()) {
+                        spilledPartitions.pop();
+                        closeSpilledPartitions(partitions);
+                        continue;
+                    }
+                }
+
+                // If we had no rows for the spill partition, we would finish before it is unspilled.
                 // Partition must be loaded before it can be released. // TODO remove this constraint
-                if (!previousPartitionLookupSource.isDone()) {
-                    return ProcessState.blocked(previousPartitionLookupSource);
+                ListenableFuture<UnspilledPartition> unspilledPartitionFuture = partitions.getCurrentPartitionLoaded();
+                if (!unspilledPartitionFuture.isDone()) {
+                    return ProcessState.blocked(unspilledPartitionFuture);
                 }
 
-                previousPartition.release();
-                previousPartition = null;
-                previousPartitionLookupSource = null;
-            }
+                if (partitions.startCurrentPartitionConsumption()) {
+                    UnspilledPartition unspilledPartition = getDone(unspilledPartitionFuture);
+                    if (unspilledPartition.isRepartitioned()) {
+                        spilledPartitions.push(repartition(partitions, unspilledPartition));
+                        continue;
+                    }
+                    return ProcessState.ofResult(joinUnspilledPages(partitions, unspilledPartition));
+                }
 
-            if (!lookupPartitions.hasNext()) {
-                close();
-                return ProcessState.finished();
+                partitions.releaseCurrentPartition();
             }
 
-            Partition<Supplier<LookupSource>> partition = lookupPartitions.next();
-            previousPartition = partition;
-            previousPartitionLookupSource = partition.load();
+            close();
+            return ProcessState.finished();
+        }
 
-            return ProcessState.ofResult(joinUnspilledPages(partition));
+        private SpilledPartitions repartition(SpilledPartitions partitions, UnspilledPartition unspilledPartition)
+        {
+            int partitionNumber = partitions.getCurrentPartitionNumber();
+            PartitionFunction subPartitionFunction = unspilledPartition.createSubPartitionFunction(hashGenerator);
+            PartitioningSpiller spiller = partitioningSpillerFactory.create(
+                    probeTypes,
+                    subPartitionFunction,
+                    processorContext.getSpillContext().newLocalSpillContext(),
+                    processorContext.getMemoryTrackingContext().newAggregateSystemMemoryContext());
+
+            Map<Integer, SavedRow> savedRows = new HashMap<>();
+            Optional.ofNullable(partitions.getSavedRows().remove(partitionNumber))
+                    .ifPresent(savedRow -> savedRows.put(subPartitionFunction.getPartition(savedRow.row, 0), savedRow.repartitioned()));
+
+            return new SpilledPartitions(
+                    unspilledPartition.getSubPartitions().beginConsumption(),
+                    spiller,
+                    partitions.getSpilledPages(partitionNumber),
+                    savedRows);
         }
 
-        private WorkProcessor<Page> joinUnspilledPages(Partition<Supplier<LookupSource>> partition)
+        private WorkProcessor<Page> joinUnspilledPages(SpilledPartitions partitions, UnspilledPartition unspilledPartition)
         {
-            int partitionNumber = partition.number();
-            WorkProcessor<Page> unspilledInputPages = WorkProcessor.fromIterator(sourcePagesJoiner.getSpiller()
-                    .map(spiller -> spiller.getSpilledPages(partitionNumber))
-                    .orElse(emptyIterator()));
-            Iterator<SavedRow> savedRow = Optional.ofNullable(sourcePagesJoiner.getSpilledRows().remove(partitionNumber))
+            int partitionNumber = partitions.getCurrentPartitionNumber();
+            int level = unspilledPartition.getLevel();
+            WorkProcessor<Page> unspilledInputPages = WorkProcessor.fromIterator(partitions.getSpilledPages(partitionNumber))
+                    .map(page -> {
+                        statisticsCounter.recordSpilledProbePositions(level, page.getPositionCount());
+                        return page;
+                    });
+            Iterator<SavedRow> savedRow = Optional.ofNullable(partitions.getSavedRows().remove(partitionNumber))
                     .map(row -> (Iterator<SavedRow>) singletonIterator(row))
                     .orElse(emptyIterator());
 
-            ListenableFuture<LookupSourceProvider> unspilledLookupSourceProvider = Futures.transform(
-                    partition.load(),
-                    supplier -> new StaticLookupSourceProvider(supplier.get()),
-                    directExecutor());
+            LookupSource lookupSource = unspilledPartition.getLookupSource().get();
+            statisticsCounter.recordSpilledPartition(level, lookupSource.getJoinPositionCount());
+            ListenableFuture<LookupSourceProvider> unspilledLookupSourceProvider = immediateFuture(new StaticLookupSourceProvider(lookupSource));
 
             return unspilledInputPages.transform(new PageJoiner(
                     processorContext,
@@ -649,6 +728,16 @@ public class LookupJoinOperator
                     savedRow));
         }
 
+        private static void closeSpilledPartitions(SpilledPartitions partitions)
+        {
+            try {
+                partitions.close();
+            }
+            catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
         private void close()
         {
             if (closed) {
@@ -663,6 +752,7 @@ public class LookupJoinOperator
 
                 closer.register(sourcePagesJoiner::close);
                 sourcePagesJoiner.getSpiller().ifPresent(closer::register);
+                spilledPartitions.forEach(closer::register);
             }
             catch (IOException e) {
                 throw new RuntimeException(e);
@@ -670,6 +760,133 @@ public class LookupJoinOperator
         }
     }
 
+    /**
+     * Spilled partitions consumed by {@link SpillingJoinProcessor} after all probe input has been processed. These are either
+     * partitions spilled by the lookup source factory or sub-partitions of a partition which was too large to be unspilled at once.
+     * In the latter case, probe pages of the original partition are split into sub-partitions first, using the same partitioning as the build side.
+     */
+    private static class SpilledPartitions
+            implements Closeable
+    {
+        private final Iterator<Partition<UnspilledPartition>> partitions;
+        private final IntFunction<Iterator<Page>> spilledPages;
+        private final Map<Integer, SavedRow> savedRows;
+        private final Optional<PartitioningSpiller> spiller;
+        private final Iterator<Page> pagesToRepartition;
+        private ListenableFuture<?> spillInProgress = NOT_BLOCKED;
+
+        @Nullable
+        private Partition<UnspilledPartition> currentPartition;
+        @Nullable
+        private ListenableFuture<UnspilledPartition> currentPartitionLoaded;
+        private boolean currentPartitionConsumed;
+
+        private SpilledPartitions(Iterator<Partition<UnspilledPartition>> partitions, IntFunction<Iterator<Page>> spilledPages, Map<Integer, SavedRow> savedRows)
+        {
+            this(partitions, spilledPages, savedRows, Optional.empty(), emptyIterator());
+        }
+
+        private SpilledPartitions(Iterator<Partition<UnspilledPartition>> partitions, PartitioningSpiller spiller, Iterator<Page> pagesToRepartition, Map<Integer, SavedRow> savedRows)
+        {
+            this(partitions, spiller::getSpilledPages, savedRows, Optional.of(spiller), pagesToRepartition);
+        }
+
+        private SpilledPartitions(
+                Iterator<Partition<UnspilledPartition>> partitions,
+                IntFunction<Iterator<Page>> spilledPages,
+                Map<Integer, SavedRow> savedRows,
+                Optional<PartitioningSpiller> spiller,
+                Iterator<Page> pagesToRepartition)
+        {
+            this.partitions = requireNonNull(partitions, "partitions is null");
+            this.spilledPages = requireNonNull(spilledPages, "spilledPages is null");
+            this.savedRows = requireNonNull(savedRows, "savedRows is null");
+            this.spiller = requireNonNull(spiller, "spiller is null");
+            this.pagesToRepartition = requireNonNull(pagesToRepartition, "pagesToRepartition is null");
+        }
+
+        /**
+         * Spills probe pages of the repartitioned partition into sub-partitions. Must be finished before any sub-partition is joined.
+         */
+        public ListenableFuture<?> repartitionProbePages()
+        {
+            while (spillInProgress.isDone()) {
+                checkSuccess(spillInProgress, "spilling failed");
+                if (!pagesToRepartition.hasNext()) {
+                    return NOT_BLOCKED;
+                }
+                PartitioningSpiller partitioningSpiller = spiller.orElseThrow(() -> new IllegalStateException("Spiller not created"));
+                spillInProgress = partitioningSpiller.partitionAndSpill(pagesToRepartition.next(), partition -> true).getSpillingFuture();
+            }
+            return spillInProgress;
+        }
+
+        public boolean hasCurrentPartition()
+        {
+            return currentPartition != null;
+        }
+
+        public boolean nextPartition()
+        {
+            verify(currentPartition == null, "current partition not released");
+            if (!partitions.hasNext()) {
+                return false;
+            }
+            currentPartition = partitions.next();
+            currentPartitionLoaded = currentPartition.load();
+            currentPartitionConsumed = false;
+            return true;
+        }
+
+        public int getCurrentPartitionNumber()
+        {
+            return requireNonNull(currentPartition, "currentPartition is null").number();
+        }
+
+        public ListenableFuture<UnspilledPartition> getCurrentPartitionLoaded()
+        {
+            return requireNonNull(currentPartitionLoaded, "currentPartitionLoaded is null");
+        }
+
+        /**
+         * @return true if current partition was not consumed yet
+         */
+        public boolean startCurrentPartitionConsumption()
+        {
+            if (currentPartitionConsumed) {
+                return false;
+            }
+            currentPartitionConsumed = true;
+            return true;
+        }
+
+        public void releaseCurrentPartition()
+        {
+            requireNonNull(currentPartition, "currentPartition is null").release();
+            currentPartition = null;
+            currentPartitionLoaded = null;
+        }
+
+        public Iterator<Page> getSpilledPages(int partitionNumber)
+        {
+            return spilledPages.apply(partitionNumber);
+        }
+
+        public Map<Integer, SavedRow> getSavedRows()
+        {
+            return savedRows;
+        }
+
+        @Override
+        public void close()
+                throws IOException
+        {
+            if (spiller.isPresent()) {
+                spiller.get().close();
+            }
+        }
+    }
+
     // This class must be public because LookupJoinOperator is isolated.
     public static class SpillInfoSnapshot
     {
@@ -714,6 +931,11 @@ public class LookupJoinOperator
          */
         public final long joinPositionWithinPartition;
 
+        /**
+         * A snapshot of {@link PageJoiner#joinPositionsVisited}
+         */
+        public final int joinPositionsVisited;
+
         /**
          * A snapshot of {@link PageJoiner#currentProbePositionProducedRow}
          */
@@ -724,13 +946,31 @@ public class LookupJoinOperator
          */
         public final int joinSourcePositions;
 
-        public SavedRow(Page page, int position, long joinPositionWithinPartition, boolean currentProbePositionProducedRow, int joinSourcePositions)
+        /**
+         * Whether the row is to be joined with a sub-partition of the partition it was saved for, in which case
+         * {@link #joinPositionWithinPartition} does not apply and join position is restored from {@link #joinPositionsVisited}.
+         */
+        public final boolean repartitioned;
+
+        public SavedRow(Page page, int position, long joinPositionWithinPartition, int joinPositionsVisited, boolean currentProbePositionProducedRow, int joinSourcePositions)
         {
-            this.row = page.getSingleValuePage(position);
+            this(page.getSingleValuePage(position), joinPositionWithinPartition, joinPositionsVisited, currentProbePositionProducedRow, joinSourcePositions, false);
+        }
+
+        private SavedRow(Page row, long joinPositionWithinPartition, int joinPositionsVisited, boolean currentProbePositionProducedRow, int joinSourcePositions, boolean repartitioned)
+        {
+            this.row = requireNonNull(row, "row is null");
 
             this.joinPositionWithinPartition = joinPositionWithinPartition;
+            this.joinPositionsVisited = joinPositionsVisited;
             this.currentProbePositionProducedRow = currentProbePositionProducedRow;
             this.joinSourcePositions = joinSourcePositions;
+            this.repartitioned = repartitioned;
+        }
+
+        public SavedRow repartitioned()
+        {
+            return new SavedRow(row, joinPositionWithinPartition, joinPositionsVisited, currentProbePositionProducedRow, joinSourcePositions, true);
         }
     }
 }
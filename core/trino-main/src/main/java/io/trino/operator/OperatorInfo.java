@@ -17,6 +17,7 @@ import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import io.trino.operator.PartitionedOutputOperator.PartitionedOutputInfo;
 import io.trino.operator.TableWriterOperator.TableWriterInfo;
+import io.trino.operator.aggregation.partial.PartialAggregationInfo;
 import io.trino.operator.exchange.LocalExchangeBufferInfo;
 
 @JsonTypeInfo(
@@ -28,6 +29,7 @@ import io.trino.operator.exchange.LocalExchangeBufferInfo;
         @JsonSubTypes.Type(value = TableFinishInfo.class, name = "tableFinish"),
         @JsonSubTypes.Type(value = SplitOperatorInfo.class, name = "splitOperator"),
         @JsonSubTypes.Type(value = HashCollisionsInfo.class, name = "hashCollisionsInfo"),
+        @JsonSubTypes.Type(value = PartialAggregationInfo.class, name = "partialAggregationInfo"),
         @JsonSubTypes.Type(value = PartitionedOutputInfo.class, name = "partitionedOutput"),
         @JsonSubTypes.Type(value = JoinOperatorInfo.class, name = "joinOperatorInfo"),
         @JsonSubTypes.Type(value = WindowInfo.class, name = "windowInfo"),
@@ -454,6 +454,20 @@ public class PagesIndex
                 blockTypeOperators);
     }
 
+    /**
+     * Creates hash generator for pages with layout of this index, consistent with hashes of the lookup source
+     */
+    public HashGenerator createHashGenerator(List<Integer> joinChannels, OptionalInt hashChannel)
+    {
+        if (hashChannel.isPresent()) {
+            return new PrecomputedHashGenerator(hashChannel.getAsInt());
+        }
+        List<Type> joinChannelTypes = joinChannels.stream()
+                .map(types::get)
+                .collect(toImmutableList());
+        return new InterpretedHashGenerator(joinChannelTypes, joinChannels, blockTypeOperators);
+    }
+
     public PagesIndexComparator createChannelComparator(int leftChannel, int rightChannel)
     {
         checkArgument(types.get(leftChannel).equals(types.get(rightChannel)), "comparing channels of different types: %s and %s", types.get(leftChannel), types.get(rightChannel));
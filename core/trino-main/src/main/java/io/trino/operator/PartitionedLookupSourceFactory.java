@@ -96,7 +96,7 @@ public final class PartitionedLookupSourceFactory
     private OptionalInt partitionedConsumptionParticipants = OptionalInt.empty();
 
     @GuardedBy("lock")
-    private final SettableFuture<PartitionedConsumption<Supplier<LookupSource>>> partitionedConsumption = SettableFuture.create();
+    private final SettableFuture<PartitionedConsumption<UnspilledPartition>> partitionedConsumption = SettableFuture.create();
 
     /**
      * Cached LookupSource on behalf of LookupJoinOperator (represented by SpillAwareLookupSourceProvider). LookupSource instantiation has non-negligible cost.
@@ -296,7 +296,7 @@ public final class PartitionedLookupSourceFactory
     }
 
     @Override
-    public ListenableFuture<PartitionedConsumption<Supplier<LookupSource>>> finishProbeOperator(OptionalInt lookupJoinsCount)
+    public ListenableFuture<PartitionedConsumption<UnspilledPartition>> finishProbeOperator(OptionalInt lookupJoinsCount)
     {
         lock.writeLock().lock();
         try {
@@ -325,10 +325,11 @@ public final class PartitionedLookupSourceFactory
                 // We can dispose partitions now since as right outer is not supported with spill
                 freePartitions();
                 verify(!partitionedConsumption.isDone());
+                int consumersCount = partitionedConsumptionParticipants.getAsInt();
                 partitionedConsumption.set(new PartitionedConsumption<>(
-                        partitionedConsumptionParticipants.getAsInt(),
+                        consumersCount,
                         spilledPartitions.keySet(),
-                        this::loadSpilledLookupSource,
+                        partitionNumber -> loadSpilledLookupSource(partitionNumber, consumersCount),
                         this::disposeSpilledLookupSource));
             }
 
@@ -339,9 +340,9 @@ public final class PartitionedLookupSourceFactory
         }
     }
 
-    private ListenableFuture<Supplier<LookupSource>> loadSpilledLookupSource(int partitionNumber)
+    private ListenableFuture<UnspilledPartition> loadSpilledLookupSource(int partitionNumber, int consumersCount)
     {
-        return getSpilledLookupSourceHandle(partitionNumber).getLookupSource();
+        return getSpilledLookupSourceHandle(partitionNumber).getLookupSource(consumersCount);
     }
 
     private void disposeSpilledLookupSource(int partitionNumber)
@@ -16,9 +16,11 @@ package io.trino.operator;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.units.DataSize;
+import io.trino.execution.buffer.CompressionCodec;
 import io.trino.execution.buffer.OutputBuffer;
 import io.trino.execution.buffer.PagesSerde;
 import io.trino.execution.buffer.PagesSerdeFactory;
@@ -32,29 +34,42 @@ import io.trino.spi.predicate.NullableValue;
 import io.trino.spi.type.Type;
 import io.trino.sql.planner.plan.PlanNodeId;
 import io.trino.util.Mergeable;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static io.trino.execution.buffer.PageSplitterUtil.splitPage;
 import static io.trino.spi.block.PageBuilderStatus.DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.lang.Math.toIntExact;
+import static java.util.Comparator.comparingLong;
 import static java.util.Objects.requireNonNull;
 
 public class PartitionedOutputOperator
         implements Operator
 {
+    // sample one in n positions on average, so the cost of hashing and updating the sketch is negligible
+    private static final int HEAVY_HITTER_SAMPLING_INTERVAL = 16;
+    private static final int HEAVY_HITTER_SKETCH_CAPACITY = 64;
+    private static final int MIN_HEAVY_HITTER_SAMPLES = 16;
+    private static final int MAX_REPORTED_HEAVY_HITTERS = 10;
+
     public static class PartitionedOutputFactory
             implements OutputFactory
     {
@@ -64,6 +79,8 @@ public class PartitionedOutputOperator
         private final OutputBuffer outputBuffer;
         private final boolean replicatesAnyRow;
         private final OptionalInt nullChannel;
+        private final List<Integer> spreadNullChannels;
+        private final Optional<HashGenerator> heavyHitterHashGenerator;
         private final DataSize maxMemory;
 
         public PartitionedOutputFactory(
@@ -72,6 +89,8 @@ public class PartitionedOutputOperator
                 List<Optional<NullableValue>> partitionConstants,
                 boolean replicatesAnyRow,
                 OptionalInt nullChannel,
+                List<Integer> spreadNullChannels,
+                Optional<HashGenerator> heavyHitterHashGenerator,
                 OutputBuffer outputBuffer,
                 DataSize maxMemory)
         {
@@ -80,6 +99,8 @@ public class PartitionedOutputOperator
             this.partitionConstants = requireNonNull(partitionConstants, "partitionConstants is null");
             this.replicatesAnyRow = replicatesAnyRow;
             this.nullChannel = requireNonNull(nullChannel, "nullChannel is null");
+            this.spreadNullChannels = ImmutableList.copyOf(requireNonNull(spreadNullChannels, "spreadNullChannels is null"));
+            this.heavyHitterHashGenerator = requireNonNull(heavyHitterHashGenerator, "heavyHitterHashGenerator is null");
             this.outputBuffer = requireNonNull(outputBuffer, "outputBuffer is null");
             this.maxMemory = requireNonNull(maxMemory, "maxMemory is null");
         }
@@ -102,6 +123,8 @@ public class PartitionedOutputOperator
                     partitionConstants,
                     replicatesAnyRow,
                     nullChannel,
+                    spreadNullChannels,
+                    heavyHitterHashGenerator,
                     outputBuffer,
                     serdeFactory,
                     maxMemory);
@@ -120,6 +143,8 @@ public class PartitionedOutputOperator
         private final List<Optional<NullableValue>> partitionConstants;
         private final boolean replicatesAnyRow;
         private final OptionalInt nullChannel;
+        private final List<Integer> spreadNullChannels;
+        private final Optional<HashGenerator> heavyHitterHashGenerator;
         private final OutputBuffer outputBuffer;
         private final PagesSerdeFactory serdeFactory;
         private final DataSize maxMemory;
@@ -134,6 +159,8 @@ public class PartitionedOutputOperator
                 List<Optional<NullableValue>> partitionConstants,
                 boolean replicatesAnyRow,
                 OptionalInt nullChannel,
+                List<Integer> spreadNullChannels,
+                Optional<HashGenerator> heavyHitterHashGenerator,
                 OutputBuffer outputBuffer,
                 PagesSerdeFactory serdeFactory,
                 DataSize maxMemory)
@@ -147,6 +174,8 @@ public class PartitionedOutputOperator
             this.partitionConstants = requireNonNull(partitionConstants, "partitionConstants is null");
             this.replicatesAnyRow = replicatesAnyRow;
             this.nullChannel = requireNonNull(nullChannel, "nullChannel is null");
+            this.spreadNullChannels = ImmutableList.copyOf(requireNonNull(spreadNullChannels, "spreadNullChannels is null"));
+            this.heavyHitterHashGenerator = requireNonNull(heavyHitterHashGenerator, "heavyHitterHashGenerator is null");
             this.outputBuffer = requireNonNull(outputBuffer, "outputBuffer is null");
             this.serdeFactory = requireNonNull(serdeFactory, "serdeFactory is null");
             this.maxMemory = requireNonNull(maxMemory, "maxMemory is null");
@@ -165,6 +194,8 @@ public class PartitionedOutputOperator
                     partitionConstants,
                     replicatesAnyRow,
                     nullChannel,
+                    spreadNullChannels,
+                    heavyHitterHashGenerator,
                     outputBuffer,
                     serdeFactory,
                     maxMemory);
@@ -188,6 +219,8 @@ public class PartitionedOutputOperator
                     partitionConstants,
                     replicatesAnyRow,
                     nullChannel,
+                    spreadNullChannels,
+                    heavyHitterHashGenerator,
                     outputBuffer,
                     serdeFactory,
                     maxMemory);
@@ -211,6 +244,8 @@ public class PartitionedOutputOperator
             List<Optional<NullableValue>> partitionConstants,
             boolean replicatesAnyRow,
             OptionalInt nullChannel,
+            List<Integer> spreadNullChannels,
+            Optional<HashGenerator> heavyHitterHashGenerator,
             OutputBuffer outputBuffer,
             PagesSerdeFactory serdeFactory,
             DataSize maxMemory)
@@ -223,6 +258,8 @@ public class PartitionedOutputOperator
                 partitionConstants,
                 replicatesAnyRow,
                 nullChannel,
+                spreadNullChannels,
+                heavyHitterHashGenerator,
                 outputBuffer,
                 serdeFactory,
                 sourceTypes,
@@ -317,9 +354,22 @@ public class PartitionedOutputOperator
         private final PageBuilder[] pageBuilders;
         private final boolean replicatesAnyRow;
         private final OptionalInt nullChannel; // when present, send the position to every partition if this channel is null.
+        private final int[] spreadNullChannels; // send the position to the next partition in round-robin order if any of these channels is null.
+        @Nullable
+        private final HashGenerator heavyHitterHashGenerator; // hashes partition function arguments of the sampled positions
+        @GuardedBy("this")
+        @Nullable
+        private final SpaceSavingSketch heavyHitters;
+        private final LongArrayList heavyHitterSamples = new LongArrayList();
         private final AtomicLong rowsAdded = new AtomicLong();
         private final AtomicLong pagesAdded = new AtomicLong();
+        private final AtomicLong spreadNullRows = new AtomicLong();
+        private final AtomicLong lz4CompressedPages = new AtomicLong();
+        private final AtomicLong zstdCompressedPages = new AtomicLong();
+        private final AtomicLong compressionSavedBytes = new AtomicLong();
         private boolean hasAnyRowBeenReplicated;
+        private int nextSpreadPartition;
+        private int positionsUntilNextSample = nextSamplingInterval();
         private final OperatorContext operatorContext;
 
         public PagePartitioner(
@@ -328,6 +378,8 @@ public class PartitionedOutputOperator
                 List<Optional<NullableValue>> partitionConstants,
                 boolean replicatesAnyRow,
                 OptionalInt nullChannel,
+                List<Integer> spreadNullChannels,
+                Optional<HashGenerator> heavyHitterHashGenerator,
                 OutputBuffer outputBuffer,
                 PagesSerdeFactory serdeFactory,
                 List<Type> sourceTypes,
@@ -347,6 +399,10 @@ public class PartitionedOutputOperator
             }
             this.replicatesAnyRow = replicatesAnyRow;
             this.nullChannel = requireNonNull(nullChannel, "nullChannel is null");
+            this.spreadNullChannels = Ints.toArray(requireNonNull(spreadNullChannels, "spreadNullChannels is null"));
+            checkArgument(nullChannel.isEmpty() || this.spreadNullChannels.length == 0, "Nulls cannot be both replicated and spread");
+            this.heavyHitterHashGenerator = requireNonNull(heavyHitterHashGenerator, "heavyHitterHashGenerator is null").orElse(null);
+            this.heavyHitters = heavyHitterHashGenerator.isPresent() ? new SpaceSavingSketch(HEAVY_HITTER_SKETCH_CAPACITY) : null;
             this.outputBuffer = requireNonNull(outputBuffer, "outputBuffer is null");
             this.sourceTypes = requireNonNull(sourceTypes, "sourceTypes is null");
             this.serde = requireNonNull(serdeFactory, "serdeFactory is null").createPagesSerde();
@@ -368,6 +424,9 @@ public class PartitionedOutputOperator
             for (int i = 0; i < partitionCount; i++) {
                 pageBuilders[i] = PageBuilder.withMaxPageSize(pageSize, sourceTypes);
             }
+
+            // start at a different partition in every operator, so spread rows do not pile up in the first partitions
+            this.nextSpreadPartition = ThreadLocalRandom.current().nextInt(partitionCount);
         }
 
         public ListenableFuture<?> isFull()
@@ -400,7 +459,32 @@ public class PartitionedOutputOperator
 
         public PartitionedOutputInfo getInfo()
         {
-            return new PartitionedOutputInfo(rowsAdded.get(), pagesAdded.get(), outputBuffer.getPeakMemoryUsage());
+            return new PartitionedOutputInfo(
+                    rowsAdded.get(),
+                    pagesAdded.get(),
+                    outputBuffer.getPeakMemoryUsage(),
+                    spreadNullRows.get(),
+                    getHeavyHitters(),
+                    lz4CompressedPages.get(),
+                    zstdCompressedPages.get(),
+                    compressionSavedBytes.get());
+        }
+
+        private List<HeavyHitter> getHeavyHitters()
+        {
+            if (heavyHitters == null || pageBuilders.length == 1) {
+                return ImmutableList.of();
+            }
+            List<SpaceSavingSketch.Entry> frequentValues;
+            synchronized (this) {
+                // a key is heavy when it alone has more rows than a partition would have with an even distribution
+                long minCount = max(MIN_HEAVY_HITTER_SAMPLES, heavyHitters.getTotalCount() / pageBuilders.length);
+                frequentValues = heavyHitters.getFrequentValues(minCount);
+            }
+            return frequentValues.stream()
+                    .limit(MAX_REPORTED_HEAVY_HITTERS)
+                    .map(entry -> new HeavyHitter(entry.getValue(), entry.getCount() * HEAVY_HITTER_SAMPLING_INTERVAL))
+                    .collect(toImmutableList());
         }
 
         public void partitionPage(Page page)
@@ -408,6 +492,8 @@ public class PartitionedOutputOperator
             requireNonNull(page, "page is null");
 
             Page partitionFunctionArgs = getPartitionFunctionArguments(page);
+            Block[] spreadNullBlocks = getSpreadNullBlocks(page);
+            long spreadNullPositions = 0;
             for (int position = 0; position < page.getPositionCount(); position++) {
                 boolean shouldReplicate = (replicatesAnyRow && !hasAnyRowBeenReplicated) ||
                         nullChannel.isPresent() && page.getBlock(nullChannel.getAsInt()).isNull(position);
@@ -417,14 +503,83 @@ public class PartitionedOutputOperator
                     }
                     hasAnyRowBeenReplicated = true;
                 }
+                else if (spreadNullBlocks != null && isAnyNull(spreadNullBlocks, position)) {
+                    appendRow(pageBuilders[nextSpreadPartition], page, position);
+                    nextSpreadPartition++;
+                    if (nextSpreadPartition == pageBuilders.length) {
+                        nextSpreadPartition = 0;
+                    }
+                    spreadNullPositions++;
+                }
                 else {
                     int partition = partitionFunction.getPartition(partitionFunctionArgs, position);
                     appendRow(pageBuilders[partition], page, position);
+                    if (heavyHitterHashGenerator != null) {
+                        positionsUntilNextSample--;
+                        if (positionsUntilNextSample == 0) {
+                            positionsUntilNextSample = nextSamplingInterval();
+                            heavyHitterSamples.add(heavyHitterHashGenerator.hashPosition(position, partitionFunctionArgs));
+                        }
+                    }
                 }
             }
+            if (spreadNullPositions > 0) {
+                spreadNullRows.addAndGet(spreadNullPositions);
+            }
+            recordHeavyHitterSamples();
             flush(false);
         }
 
+        private static int nextSamplingInterval()
+        {
+            // randomize the interval, so that periodic input is not sampled at the same phase every time
+            return ThreadLocalRandom.current().nextInt(1, 2 * HEAVY_HITTER_SAMPLING_INTERVAL);
+        }
+
+        @Nullable
+        private Block[] getSpreadNullBlocks(Page page)
+        {
+            if (spreadNullChannels.length == 0) {
+                return null;
+            }
+            Block[] blocks = new Block[spreadNullChannels.length];
+            int nullableBlocks = 0;
+            for (int channel : spreadNullChannels) {
+                Block block = page.getBlock(channel);
+                if (block.mayHaveNull()) {
+                    blocks[nullableBlocks] = block;
+                    nullableBlocks++;
+                }
+            }
+            if (nullableBlocks == 0) {
+                return null;
+            }
+            return Arrays.copyOf(blocks, nullableBlocks);
+        }
+
+        private static boolean isAnyNull(Block[] blocks, int position)
+        {
+            for (Block block : blocks) {
+                if (block.isNull(position)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void recordHeavyHitterSamples()
+        {
+            if (heavyHitterSamples.isEmpty()) {
+                return;
+            }
+            synchronized (this) {
+                for (int i = 0; i < heavyHitterSamples.size(); i++) {
+                    heavyHitters.add(heavyHitterSamples.getLong(i));
+                }
+            }
+            heavyHitterSamples.clear();
+        }
+
         private Page getPartitionFunctionArguments(Page page)
         {
             // Fast path for no constants
@@ -480,10 +635,29 @@ public class PartitionedOutputOperator
             List<Page> split = splitPage(page, DEFAULT_MAX_PAGE_SIZE_IN_BYTES);
             ImmutableList.Builder<SerializedPage> builder = ImmutableList.builderWithExpectedSize(split.size());
             for (Page p : split) {
-                builder.add(serde.serialize(context, p));
+                SerializedPage serializedPage = serde.serialize(context, p);
+                recordCompression(serializedPage);
+                builder.add(serializedPage);
             }
             return builder.build();
         }
+
+        private void recordCompression(SerializedPage serializedPage)
+        {
+            Optional<CompressionCodec> codec = serializedPage.getCompressionCodec();
+            if (codec.isEmpty()) {
+                return;
+            }
+            switch (codec.get()) {
+                case LZ4:
+                    lz4CompressedPages.incrementAndGet();
+                    break;
+                case ZSTD:
+                    zstdCompressedPages.incrementAndGet();
+                    break;
+            }
+            compressionSavedBytes.addAndGet(serializedPage.getUncompressedSizeInBytes() - serializedPage.getSizeInBytes());
+        }
     }
 
     public static class PartitionedOutputInfo
@@ -492,16 +666,31 @@ public class PartitionedOutputOperator
         private final long rowsAdded;
         private final long pagesAdded;
         private final long outputBufferPeakMemoryUsage;
+        private final long spreadNullRows;
+        private final List<HeavyHitter> heavyHitters;
+        private final long lz4CompressedPages;
+        private final long zstdCompressedPages;
+        private final long compressionSavedBytes;
 
         @JsonCreator
         public PartitionedOutputInfo(
                 @JsonProperty("rowsAdded") long rowsAdded,
                 @JsonProperty("pagesAdded") long pagesAdded,
-                @JsonProperty("outputBufferPeakMemoryUsage") long outputBufferPeakMemoryUsage)
+                @JsonProperty("outputBufferPeakMemoryUsage") long outputBufferPeakMemoryUsage,
+                @JsonProperty("spreadNullRows") long spreadNullRows,
+                @JsonProperty("heavyHitters") List<HeavyHitter> heavyHitters,
+                @JsonProperty("lz4CompressedPages") long lz4CompressedPages,
+                @JsonProperty("zstdCompressedPages") long zstdCompressedPages,
+                @JsonProperty("compressionSavedBytes") long compressionSavedBytes)
         {
             this.rowsAdded = rowsAdded;
             this.pagesAdded = pagesAdded;
             this.outputBufferPeakMemoryUsage = outputBufferPeakMemoryUsage;
+            this.spreadNullRows = spreadNullRows;
+            this.heavyHitters = ImmutableList.copyOf(requireNonNull(heavyHitters, "heavyHitters is null"));
+            this.lz4CompressedPages = lz4CompressedPages;
+            this.zstdCompressedPages = zstdCompressedPages;
+            this.compressionSavedBytes = compressionSavedBytes;
         }
 
         @JsonProperty
@@ -522,13 +711,75 @@ public class PartitionedOutputOperator
             return outputBufferPeakMemoryUsage;
         }
 
+        @JsonProperty
+        public long getSpreadNullRows()
+        {
+            return spreadNullRows;
+        }
+
+        /**
+         * Partitioning keys, identified by their hash, that alone account for more rows
+         * than a partition would receive with an even distribution.
+         */
+        @JsonProperty
+        public List<HeavyHitter> getHeavyHitters()
+        {
+            return heavyHitters;
+        }
+
+        @JsonProperty
+        public long getLz4CompressedPages()
+        {
+            return lz4CompressedPages;
+        }
+
+        @JsonProperty
+        public long getZstdCompressedPages()
+        {
+            return zstdCompressedPages;
+        }
+
+        /**
+         * Difference between the uncompressed and the compressed size of the compressed pages
+         */
+        @JsonProperty
+        public long getCompressionSavedBytes()
+        {
+            return compressionSavedBytes;
+        }
+
         @Override
         public PartitionedOutputInfo mergeWith(PartitionedOutputInfo other)
         {
             return new PartitionedOutputInfo(
                     rowsAdded + other.rowsAdded,
                     pagesAdded + other.pagesAdded,
-                    Math.max(outputBufferPeakMemoryUsage, other.outputBufferPeakMemoryUsage));
+                    Math.max(outputBufferPeakMemoryUsage, other.outputBufferPeakMemoryUsage),
+                    spreadNullRows + other.spreadNullRows,
+                    mergeHeavyHitters(heavyHitters, other.heavyHitters),
+                    lz4CompressedPages + other.lz4CompressedPages,
+                    zstdCompressedPages + other.zstdCompressedPages,
+                    compressionSavedBytes + other.compressionSavedBytes);
+        }
+
+        private static List<HeavyHitter> mergeHeavyHitters(List<HeavyHitter> first, List<HeavyHitter> second)
+        {
+            if (second.isEmpty()) {
+                return first;
+            }
+            if (first.isEmpty()) {
+                return second;
+            }
+            // all operators of a stage hash the keys the same way, so estimates of the same key can be summed
+            Map<Long, Long> estimatedRows = new HashMap<>();
+            for (HeavyHitter heavyHitter : Iterables.concat(first, second)) {
+                estimatedRows.merge(heavyHitter.getKeyHash(), heavyHitter.getEstimatedRows(), Long::sum);
+            }
+            return estimatedRows.entrySet().stream()
+                    .map(entry -> new HeavyHitter(entry.getKey(), entry.getValue()))
+                    .sorted(comparingLong(HeavyHitter::getEstimatedRows).reversed().thenComparingLong(HeavyHitter::getKeyHash))
+                    .limit(MAX_REPORTED_HEAVY_HITTERS)
+                    .collect(toImmutableList());
         }
 
         @Override
@@ -544,6 +795,67 @@ public class PartitionedOutputOperator
                     .add("rowsAdded", rowsAdded)
                     .add("pagesAdded", pagesAdded)
                     .add("outputBufferPeakMemoryUsage", outputBufferPeakMemoryUsage)
+                    .add("spreadNullRows", spreadNullRows)
+                    .add("heavyHitters", heavyHitters)
+                    .add("lz4CompressedPages", lz4CompressedPages)
+                    .add("zstdCompressedPages", zstdCompressedPages)
+                    .add("compressionSavedBytes", compressionSavedBytes)
+                    .toString();
+        }
+    }
+
+    public static class HeavyHitter
+    {
+        private final long keyHash;
+        private final long estimatedRows;
+
+        @JsonCreator
+        public HeavyHitter(
+                @JsonProperty("keyHash") long keyHash,
+                @JsonProperty("estimatedRows") long estimatedRows)
+        {
+            this.keyHash = keyHash;
+            this.estimatedRows = estimatedRows;
+        }
+
+        @JsonProperty
+        public long getKeyHash()
+        {
+            return keyHash;
+        }
+
+        @JsonProperty
+        public long getEstimatedRows()
+        {
+            return estimatedRows;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            HeavyHitter that = (HeavyHitter) o;
+            return keyHash == that.keyHash &&
+                    estimatedRows == that.estimatedRows;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(keyHash, estimatedRows);
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("keyHash", keyHash)
+                    .add("estimatedRows", estimatedRows)
                     .toString();
         }
     }
@@ -428,6 +428,15 @@ public class PipelineStats
         return drivers;
     }
 
+    /**
+     * Returns true if the pipeline has no queued, running or blocked drivers, in which case
+     * its stats do not change until another driver is created.
+     */
+    public boolean isIdle()
+    {
+        return queuedDrivers == 0 && runningDrivers == 0 && blockedDrivers == 0;
+    }
+
     public PipelineStats summarize()
     {
         return new PipelineStats(
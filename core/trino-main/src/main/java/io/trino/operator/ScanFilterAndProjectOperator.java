@@ -30,6 +30,7 @@ import io.trino.operator.project.CursorProcessorOutput;
 import io.trino.operator.project.PageProcessor;
 import io.trino.spi.Page;
 import io.trino.spi.PageBuilder;
+import io.trino.spi.block.Block;
 import io.trino.spi.connector.ColumnHandle;
 import io.trino.spi.connector.ConnectorPageSource;
 import io.trino.spi.connector.DynamicFilter;
@@ -37,9 +38,12 @@ import io.trino.spi.connector.EmptyPageSource;
 import io.trino.spi.connector.RecordCursor;
 import io.trino.spi.connector.RecordPageSource;
 import io.trino.spi.connector.UpdatablePageSource;
+import io.trino.spi.predicate.BloomFilter;
 import io.trino.spi.type.Type;
 import io.trino.split.EmptySplit;
 import io.trino.split.PageSourceProvider;
+import io.trino.split.SplitCache;
+import io.trino.split.SplitCache.ScanCache;
 import io.trino.sql.planner.plan.PlanNodeId;
 
 import javax.annotation.Nullable;
@@ -47,6 +51,7 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
@@ -70,6 +75,10 @@ public class ScanFilterAndProjectOperator
     private RecordCursor cursor;
     @Nullable
     private ConnectorPageSource pageSource;
+    @Nullable
+    private SplitCache.Reader splitCacheReader;
+    @Nullable
+    private SplitCache.Writer splitCacheWriter;
 
     private long processedPositions;
     private long processedBytes;
@@ -91,6 +100,7 @@ public class ScanFilterAndProjectOperator
             Iterable<Type> types,
             DataSize minOutputPageSize,
             int minOutputPageRowCount,
+            Optional<ScanCache> scanCache,
             boolean avoidPageMaterialization)
     {
         pages = splits.flatTransform(
@@ -107,6 +117,7 @@ public class ScanFilterAndProjectOperator
                         requireNonNull(memoryTrackingContext, "memoryTrackingContext is null").aggregateSystemMemoryContext(),
                         minOutputPageSize,
                         minOutputPageRowCount,
+                        scanCache,
                         avoidPageMaterialization));
     }
 
@@ -166,6 +177,13 @@ public class ScanFilterAndProjectOperator
     @Override
     public void close()
     {
+        if (splitCacheReader != null) {
+            splitCacheReader.close();
+        }
+        if (splitCacheWriter != null) {
+            // discard the pages unless all of them were produced
+            splitCacheWriter.close();
+        }
         if (pageSource != null) {
             try {
                 pageSource.close();
@@ -197,6 +215,7 @@ public class ScanFilterAndProjectOperator
         final LocalMemoryContext outputMemoryContext;
         final DataSize minOutputPageSize;
         final int minOutputPageRowCount;
+        final Optional<ScanCache> scanCache;
         final boolean avoidPageMaterialization;
 
         SplitToPages(
@@ -212,6 +231,7 @@ public class ScanFilterAndProjectOperator
                 AggregatedMemoryContext aggregatedMemoryContext,
                 DataSize minOutputPageSize,
                 int minOutputPageRowCount,
+                Optional<ScanCache> scanCache,
                 boolean avoidPageMaterialization)
         {
             this.session = requireNonNull(session, "session is null");
@@ -229,6 +249,7 @@ public class ScanFilterAndProjectOperator
             this.outputMemoryContext = localAggregatedMemoryContext.newLocalMemoryContext(ScanFilterAndProjectOperator.class.getSimpleName());
             this.minOutputPageSize = requireNonNull(minOutputPageSize, "minOutputPageSize is null");
             this.minOutputPageRowCount = minOutputPageRowCount;
+            this.scanCache = requireNonNull(scanCache, "scanCache is null");
             this.avoidPageMaterialization = avoidPageMaterialization;
         }
 
@@ -240,12 +261,23 @@ public class ScanFilterAndProjectOperator
                 return finished();
             }
 
-            checkState(cursor == null && pageSource == null, "Table scan split already set");
+            checkState(cursor == null && pageSource == null && splitCacheReader == null, "Table scan split already set");
 
             if (!dynamicFilter.getCurrentPredicate().isAll()) {
                 dynamicFilterSplitsProcessed++;
             }
 
+            Optional<String> splitCacheKey = scanCache.flatMap(cache -> cache.getSplitKey(split));
+            if (splitCacheKey.isPresent()) {
+                Optional<SplitCache.Reader> cachedPages = scanCache.get().read(splitCacheKey.get());
+                if (cachedPages.isPresent()) {
+                    // the pages are already filtered and projected, so neither the source nor the processor is needed
+                    splitCacheReader = cachedPages.get();
+                    return ofResult(WorkProcessor.fromIterator(splitCacheReader).yielding(yieldSignal::isSet));
+                }
+                splitCacheWriter = scanCache.get().write(splitCacheKey.get());
+            }
+
             ConnectorPageSource source;
             if (split.getConnectorSplit() instanceof EmptySplit) {
                 source = new EmptyPageSource();
@@ -254,14 +286,30 @@ public class ScanFilterAndProjectOperator
                 source = pageSourceProvider.createPageSource(session, split, table, columns, dynamicFilter);
             }
 
+            WorkProcessor<Page> pages;
             if (source instanceof RecordPageSource) {
                 cursor = ((RecordPageSource) source).getCursor();
-                return ofResult(processColumnSource());
+                pages = processColumnSource();
             }
             else {
                 pageSource = source;
-                return ofResult(processPageSource());
+                pages = processPageSource();
+            }
+
+            if (splitCacheWriter != null) {
+                SplitCache.Writer writer = splitCacheWriter;
+                pages = pages
+                        .map(page -> {
+                            writer.append(page);
+                            return page;
+                        })
+                        .withProcessStateMonitor(state -> {
+                            if (state.getType() == ProcessState.Type.FINISHED) {
+                                writer.commit();
+                            }
+                        });
             }
+            return ofResult(pages);
         }
 
         WorkProcessor<Page> processColumnSource()
@@ -277,6 +325,7 @@ public class ScanFilterAndProjectOperator
             return WorkProcessor
                     .create(new ConnectorPageSourceToPages(pageSourceMemoryContext))
                     .yielding(yieldSignal::isSet)
+                    .map(this::applyBloomFilters)
                     .flatMap(page -> pageProcessor.createWorkProcessor(
                             session.toConnectorSession(),
                             yieldSignal,
@@ -286,6 +335,41 @@ public class ScanFilterAndProjectOperator
                     .transformProcessor(processor -> mergePages(types, minOutputPageSize.toBytes(), minOutputPageRowCount, processor, localAggregatedMemoryContext))
                     .withProcessStateMonitor(state -> memoryContext.setBytes(localAggregatedMemoryContext.getBytes()));
         }
+
+        Page applyBloomFilters(Page page)
+        {
+            Map<ColumnHandle, BloomFilter> bloomFilters = dynamicFilter.getBloomFilters();
+            if (bloomFilters.isEmpty() || page.getPositionCount() == 0) {
+                return page;
+            }
+
+            int positionCount = page.getPositionCount();
+            int[] positions = new int[positionCount];
+            for (int position = 0; position < positionCount; position++) {
+                positions[position] = position;
+            }
+            for (Map.Entry<ColumnHandle, BloomFilter> entry : bloomFilters.entrySet()) {
+                int channel = columns.indexOf(entry.getKey());
+                if (channel < 0) {
+                    continue;
+                }
+                Block block = page.getBlock(channel);
+                BloomFilter bloomFilter = entry.getValue();
+                int selectedCount = 0;
+                for (int i = 0; i < positionCount; i++) {
+                    if (bloomFilter.mightContain(block, positions[i])) {
+                        positions[selectedCount] = positions[i];
+                        selectedCount++;
+                    }
+                }
+                positionCount = selectedCount;
+            }
+
+            if (positionCount == page.getPositionCount()) {
+                return page;
+            }
+            return page.getPositions(positions, 0, positionCount);
+        }
     }
 
     private class RecordCursorToPages
@@ -411,6 +495,7 @@ public class ScanFilterAndProjectOperator
         private final List<Type> types;
         private final DataSize minOutputPageSize;
         private final int minOutputPageRowCount;
+        private final Optional<ScanCache> scanCache;
         private boolean closed;
 
         public ScanFilterAndProjectOperatorFactory(
@@ -425,7 +510,8 @@ public class ScanFilterAndProjectOperator
                 DynamicFilter dynamicFilter,
                 List<Type> types,
                 DataSize minOutputPageSize,
-                int minOutputPageRowCount)
+                int minOutputPageRowCount,
+                Optional<ScanCache> scanCache)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -439,6 +525,7 @@ public class ScanFilterAndProjectOperator
             this.types = requireNonNull(types, "types is null");
             this.minOutputPageSize = requireNonNull(minOutputPageSize, "minOutputPageSize is null");
             this.minOutputPageRowCount = minOutputPageRowCount;
+            this.scanCache = requireNonNull(scanCache, "scanCache is null");
         }
 
         @Override
@@ -514,6 +601,7 @@ public class ScanFilterAndProjectOperator
                     types,
                     minOutputPageSize,
                     minOutputPageRowCount,
+                    scanCache,
                     avoidPageMaterialization);
         }
 
@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.operator;
+
+import com.google.common.collect.ImmutableList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Comparator.comparingLong;
+
+/**
+ * Space-Saving sketch (Metwally, Agrawal, El Abbadi) tracking the most frequent values of a stream
+ * in a fixed amount of memory. When a value that is not tracked arrives and the sketch is full, it
+ * replaces the value with the lowest count and inherits that count as its error. Any value occurring
+ * more than {@code totalCount / capacity} times is guaranteed to be tracked.
+ */
+public class SpaceSavingSketch
+{
+    private final long[] values;
+    private final long[] counts;
+    private final long[] errors;
+    private final Long2IntOpenHashMap slotByValue;
+    private int size;
+    private long totalCount;
+
+    public SpaceSavingSketch(int capacity)
+    {
+        checkArgument(capacity > 0, "capacity must be positive");
+        values = new long[capacity];
+        counts = new long[capacity];
+        errors = new long[capacity];
+        slotByValue = new Long2IntOpenHashMap(capacity);
+        slotByValue.defaultReturnValue(-1);
+    }
+
+    public void add(long value)
+    {
+        totalCount++;
+
+        int slot = slotByValue.get(value);
+        if (slot >= 0) {
+            counts[slot]++;
+            return;
+        }
+
+        if (size < values.length) {
+            slot = size;
+            size++;
+            errors[slot] = 0;
+            counts[slot] = 1;
+        }
+        else {
+            slot = findMinimumSlot();
+            slotByValue.remove(values[slot]);
+            errors[slot] = counts[slot];
+            counts[slot]++;
+        }
+        values[slot] = value;
+        slotByValue.put(value, slot);
+    }
+
+    private int findMinimumSlot()
+    {
+        int minimumSlot = 0;
+        for (int slot = 1; slot < size; slot++) {
+            if (counts[slot] < counts[minimumSlot]) {
+                minimumSlot = slot;
+            }
+        }
+        return minimumSlot;
+    }
+
+    public long getTotalCount()
+    {
+        return totalCount;
+    }
+
+    /**
+     * Returns tracked values that occurred at least {@code minGuaranteedCount} times for sure,
+     * ordered from the most frequent one.
+     */
+    public List<Entry> getFrequentValues(long minGuaranteedCount)
+    {
+        List<Entry> entries = new ArrayList<>();
+        for (int slot = 0; slot < size; slot++) {
+            if (counts[slot] - errors[slot] >= minGuaranteedCount) {
+                entries.add(new Entry(values[slot], counts[slot], errors[slot]));
+            }
+        }
+        entries.sort(comparingLong(Entry::getCount).reversed().thenComparingLong(Entry::getValue));
+        return ImmutableList.copyOf(entries);
+    }
+
+    public static class Entry
+    {
+        private final long value;
+        private final long count;
+        private final long error;
+
+        public Entry(long value, long count, long error)
+        {
+            this.value = value;
+            this.count = count;
+            this.error = error;
+        }
+
+        public long getValue()
+        {
+            return value;
+        }
+
+        /**
+         * Upper bound of the number of occurrences of the value.
+         */
+        public long getCount()
+        {
+            return count;
+        }
+
+        /**
+         * Maximum overestimation of the count.
+         */
+        public long getError()
+        {
+            return error;
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("value", value)
+                    .add("count", count)
+                    .add("error", error)
+                    .toString();
+        }
+    }
+}
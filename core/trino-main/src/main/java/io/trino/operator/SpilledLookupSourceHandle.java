@@ -21,9 +21,13 @@ import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
+import java.util.List;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static io.airlift.concurrent.MoreFutures.whenAnyComplete;
 import static java.util.Objects.requireNonNull;
 
@@ -38,32 +42,62 @@ final class SpilledLookupSourceHandle
         DISPOSED
     }
 
+    private final int level;
+
     @GuardedBy("this")
     private State state = State.SPILLED;
 
     private final SettableFuture<?> unspillingRequested = SettableFuture.create();
 
+    @GuardedBy("this")
+    private int consumersCount;
+
     @GuardedBy("this")
     @Nullable
-    private SettableFuture<Supplier<LookupSource>> unspilledLookupSource;
+    private SettableFuture<UnspilledPartition> unspilledPartition;
+
+    @GuardedBy("this")
+    private List<SpilledLookupSourceHandle> subPartitions = ImmutableList.of();
 
     private final SettableFuture<?> disposeRequested = SettableFuture.create();
 
     private final ListenableFuture<?> unspillingOrDisposeRequested = whenAnyComplete(ImmutableList.of(unspillingRequested, disposeRequested));
 
+    public SpilledLookupSourceHandle()
+    {
+        this(0);
+    }
+
+    private SpilledLookupSourceHandle(int level)
+    {
+        this.level = level;
+    }
+
+    public int getLevel()
+    {
+        return level;
+    }
+
+    public SpilledLookupSourceHandle createSubPartition()
+    {
+        return new SpilledLookupSourceHandle(level + 1);
+    }
+
     public SettableFuture<?> getUnspillingRequested()
     {
         return unspillingRequested;
     }
 
-    public synchronized ListenableFuture<Supplier<LookupSource>> getLookupSource()
+    public synchronized ListenableFuture<UnspilledPartition> getLookupSource(int consumersCount)
     {
+        checkArgument(consumersCount > 0, "consumersCount must be positive");
         assertState(State.SPILLED);
+        this.consumersCount = consumersCount;
         unspillingRequested.set(null);
         setState(State.UNSPILLING);
-        checkState(unspilledLookupSource == null, "unspilledLookupSource already set");
-        unspilledLookupSource = SettableFuture.create();
-        return unspilledLookupSource;
+        checkState(unspilledPartition == null, "unspilledPartition already set");
+        unspilledPartition = SettableFuture.create();
+        return unspilledPartition;
     }
 
     public synchronized void setLookupSource(Supplier<LookupSource> lookupSource)
@@ -75,16 +109,44 @@ final class SpilledLookupSourceHandle
         }
 
         assertState(State.UNSPILLING);
-        checkState(unspilledLookupSource != null, "unspilledLookupSource not set");
-        unspilledLookupSource.set(lookupSource);
-        unspilledLookupSource = null; // let the memory go
+        checkState(unspilledPartition != null, "unspilledPartition not set");
+        unspilledPartition.set(UnspilledPartition.loaded(level, lookupSource));
+        unspilledPartition = null; // let the memory go
+        setState(State.PRODUCED);
+    }
+
+    /**
+     * Provides the partition as a sequence of sub-partitions, which are requested by probe operators one at a time.
+     */
+    public synchronized void setRepartitioned(List<SpilledLookupSourceHandle> subPartitions)
+    {
+        List<SpilledLookupSourceHandle> handles = ImmutableList.copyOf(requireNonNull(subPartitions, "subPartitions is null"));
+        handles.forEach(handle -> checkArgument(handle.getLevel() == level + 1, "Sub-partition must have level %s", level + 1));
+
+        if (state == State.DISPOSED) {
+            handles.forEach(SpilledLookupSourceHandle::dispose);
+            return;
+        }
+
+        assertState(State.UNSPILLING);
+        checkState(unspilledPartition != null, "unspilledPartition not set");
+        this.subPartitions = handles;
+        int subPartitionConsumers = consumersCount;
+        PartitionedConsumption<UnspilledPartition> subPartitionsConsumption = new PartitionedConsumption<>(
+                subPartitionConsumers,
+                IntStream.range(0, handles.size()).boxed().collect(toImmutableList()),
+                partition -> handles.get(partition).getLookupSource(subPartitionConsumers),
+                partition -> handles.get(partition).dispose());
+        unspilledPartition.set(UnspilledPartition.repartitioned(level, handles.size(), subPartitionsConsumption));
+        unspilledPartition = null; // let the memory go
         setState(State.PRODUCED);
     }
 
     public synchronized void dispose()
     {
         disposeRequested.set(null);
-        unspilledLookupSource = null; // let the memory go
+        unspilledPartition = null; // let the memory go
+        subPartitions.forEach(SpilledLookupSourceHandle::dispose);
         setState(State.DISPOSED);
     }
 
@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.operator;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Build side of a spilled join partition, as provided to probe operators when the partition is requested.
+ * A partition which does not fit in memory is not loaded, but split into sub-partitions (see {@link GraceHashPartitionFunction})
+ * which are consumed one after another instead.
+ */
+public final class UnspilledPartition
+{
+    private final int level;
+    private final Optional<Supplier<LookupSource>> lookupSource;
+    private final int subPartitionCount;
+    private final Optional<PartitionedConsumption<UnspilledPartition>> subPartitions;
+
+    public static UnspilledPartition loaded(int level, Supplier<LookupSource> lookupSource)
+    {
+        return new UnspilledPartition(level, Optional.of(lookupSource), 0, Optional.empty());
+    }
+
+    public static UnspilledPartition repartitioned(int level, int subPartitionCount, PartitionedConsumption<UnspilledPartition> subPartitions)
+    {
+        return new UnspilledPartition(level, Optional.empty(), subPartitionCount, Optional.of(subPartitions));
+    }
+
+    private UnspilledPartition(
+            int level,
+            Optional<Supplier<LookupSource>> lookupSource,
+            int subPartitionCount,
+            Optional<PartitionedConsumption<UnspilledPartition>> subPartitions)
+    {
+        checkArgument(level >= 0, "level is negative");
+        this.level = level;
+        this.lookupSource = requireNonNull(lookupSource, "lookupSource is null");
+        this.subPartitionCount = subPartitionCount;
+        this.subPartitions = requireNonNull(subPartitions, "subPartitions is null");
+    }
+
+    /**
+     * Recursion level of the partition, 0 for partitions spilled by {@link HashBuilderOperator}
+     */
+    public int getLevel()
+    {
+        return level;
+    }
+
+    public boolean isRepartitioned()
+    {
+        return subPartitions.isPresent();
+    }
+
+    public Supplier<LookupSource> getLookupSource()
+    {
+        checkState(lookupSource.isPresent(), "Partition was repartitioned");
+        return lookupSource.get();
+    }
+
+    /**
+     * Partition function which assigns probe rows of this partition to its sub-partitions
+     */
+    public PartitionFunction createSubPartitionFunction(HashGenerator hashGenerator)
+    {
+        checkState(isRepartitioned(), "Partition was not repartitioned");
+        return new GraceHashPartitionFunction(hashGenerator, level + 1, subPartitionCount);
+    }
+
+    public PartitionedConsumption<UnspilledPartition> getSubPartitions()
+    {
+        return subPartitions.orElseThrow(() -> new IllegalStateException("Partition was not repartitioned"));
+    }
+}
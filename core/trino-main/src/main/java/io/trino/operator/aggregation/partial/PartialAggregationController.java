@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.operator.aggregation.partial;
+
+import io.trino.operator.HashAggregationOperator;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Controls whether partial aggregation is enabled for all {@link HashAggregationOperator}s created
+ * by a single operator factory. Every operator reports the number of input rows and unique rows
+ * (groups) it produced whenever it flushes its hash table. Once enough input rows have been seen,
+ * partial aggregation is disabled if it does not reduce the number of rows sufficiently, and the
+ * operators switch to passing input rows through as single row groups.
+ */
+@ThreadSafe
+public class PartialAggregationController
+{
+    private final long minNumberOfRowsProcessed;
+    private final double uniqueRowsRatioThreshold;
+
+    private volatile boolean partialAggregationDisabled;
+    @GuardedBy("this")
+    private long totalRowsProcessed;
+    @GuardedBy("this")
+    private long totalUniqueRowsProduced;
+
+    public PartialAggregationController(long minNumberOfRowsProcessed, double uniqueRowsRatioThreshold)
+    {
+        checkArgument(minNumberOfRowsProcessed >= 0, "minNumberOfRowsProcessed is negative");
+        checkArgument(uniqueRowsRatioThreshold >= 0.0 && uniqueRowsRatioThreshold <= 1.0, "uniqueRowsRatioThreshold must be between 0.0 and 1.0");
+        this.minNumberOfRowsProcessed = minNumberOfRowsProcessed;
+        this.uniqueRowsRatioThreshold = uniqueRowsRatioThreshold;
+    }
+
+    public boolean isPartialAggregationDisabled()
+    {
+        return partialAggregationDisabled;
+    }
+
+    public synchronized void onFlush(long rowsProcessed, long uniqueRowsProduced)
+    {
+        if (partialAggregationDisabled) {
+            return;
+        }
+
+        totalRowsProcessed += rowsProcessed;
+        totalUniqueRowsProduced += uniqueRowsProduced;
+        if (totalRowsProcessed >= minNumberOfRowsProcessed && getUniqueRowsRatio() > uniqueRowsRatioThreshold) {
+            partialAggregationDisabled = true;
+        }
+    }
+
+    public synchronized double getUniqueRowsRatio()
+    {
+        if (totalRowsProcessed == 0) {
+            return 0;
+        }
+        return ((double) totalUniqueRowsProduced) / totalRowsProcessed;
+    }
+
+    public double getUniqueRowsRatioThreshold()
+    {
+        return uniqueRowsRatioThreshold;
+    }
+
+    public PartialAggregationController duplicate()
+    {
+        return new PartialAggregationController(minNumberOfRowsProcessed, uniqueRowsRatioThreshold);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.operator.aggregation.partial;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.trino.operator.HashCollisionsInfo;
+import io.trino.operator.OperatorInfo;
+import io.trino.util.Mergeable;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Statistics of an adaptive partial aggregation. Rows aggregated through the hash table
+ * and rows passed through without aggregation are reported separately, so it is possible
+ * to tell how many rows were processed before partial aggregation got disabled and why
+ * (the observed unique rows ratio compared to the configured threshold).
+ */
+public class PartialAggregationInfo
+        implements Mergeable<PartialAggregationInfo>, OperatorInfo
+{
+    private final HashCollisionsInfo hashCollisionsInfo;
+    private final long aggregatedInputRows;
+    private final long aggregatedOutputRows;
+    private final long passThroughRows;
+    private final double uniqueRowsRatioThreshold;
+    private final boolean partialAggregationDisabled;
+
+    @JsonCreator
+    public PartialAggregationInfo(
+            @JsonProperty("hashCollisionsInfo") HashCollisionsInfo hashCollisionsInfo,
+            @JsonProperty("aggregatedInputRows") long aggregatedInputRows,
+            @JsonProperty("aggregatedOutputRows") long aggregatedOutputRows,
+            @JsonProperty("passThroughRows") long passThroughRows,
+            @JsonProperty("uniqueRowsRatioThreshold") double uniqueRowsRatioThreshold,
+            @JsonProperty("partialAggregationDisabled") boolean partialAggregationDisabled)
+    {
+        this.hashCollisionsInfo = requireNonNull(hashCollisionsInfo, "hashCollisionsInfo is null");
+        this.aggregatedInputRows = aggregatedInputRows;
+        this.aggregatedOutputRows = aggregatedOutputRows;
+        this.passThroughRows = passThroughRows;
+        this.uniqueRowsRatioThreshold = uniqueRowsRatioThreshold;
+        this.partialAggregationDisabled = partialAggregationDisabled;
+    }
+
+    @JsonProperty
+    public HashCollisionsInfo getHashCollisionsInfo()
+    {
+        return hashCollisionsInfo;
+    }
+
+    @JsonProperty
+    public long getAggregatedInputRows()
+    {
+        return aggregatedInputRows;
+    }
+
+    @JsonProperty
+    public long getAggregatedOutputRows()
+    {
+        return aggregatedOutputRows;
+    }
+
+    @JsonProperty
+    public long getPassThroughRows()
+    {
+        return passThroughRows;
+    }
+
+    @JsonProperty
+    public double getUniqueRowsRatioThreshold()
+    {
+        return uniqueRowsRatioThreshold;
+    }
+
+    @JsonProperty
+    public boolean isPartialAggregationDisabled()
+    {
+        return partialAggregationDisabled;
+    }
+
+    public double getUniqueRowsRatio()
+    {
+        if (aggregatedInputRows == 0) {
+            return 0;
+        }
+        return ((double) aggregatedOutputRows) / aggregatedInputRows;
+    }
+
+    @Override
+    public PartialAggregationInfo mergeWith(PartialAggregationInfo other)
+    {
+        return new PartialAggregationInfo(
+                hashCollisionsInfo.mergeWith(other.getHashCollisionsInfo()),
+                aggregatedInputRows + other.getAggregatedInputRows(),
+                aggregatedOutputRows + other.getAggregatedOutputRows(),
+                passThroughRows + other.getPassThroughRows(),
+                uniqueRowsRatioThreshold,
+                partialAggregationDisabled || other.isPartialAggregationDisabled());
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("aggregatedInputRows", aggregatedInputRows)
+                .add("aggregatedOutputRows", aggregatedOutputRows)
+                .add("passThroughRows", passThroughRows)
+                .add("uniqueRowsRatioThreshold", uniqueRowsRatioThreshold)
+                .add("partialAggregationDisabled", partialAggregationDisabled)
+                .toString();
+    }
+}
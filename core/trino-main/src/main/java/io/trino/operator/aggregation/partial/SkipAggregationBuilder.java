@@ -0,0 +1,155 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.operator.aggregation.partial;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.trino.memory.context.LocalMemoryContext;
+import io.trino.operator.CompletedWork;
+import io.trino.operator.GroupByIdBlock;
+import io.trino.operator.HashCollisionsCounter;
+import io.trino.operator.Work;
+import io.trino.operator.WorkProcessor;
+import io.trino.operator.aggregation.AccumulatorFactory;
+import io.trino.operator.aggregation.GroupedAccumulator;
+import io.trino.operator.aggregation.builder.HashAggregationBuilder;
+import io.trino.spi.Page;
+import io.trino.spi.block.Block;
+import io.trino.spi.block.BlockBuilder;
+import io.trino.spi.block.LongArrayBlock;
+
+import javax.annotation.Nullable;
+
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link HashAggregationBuilder} that does not aggregate input rows at all.
+ * Every input row is converted into a separate group and emitted immediately
+ * as its intermediate aggregation state, together with the group by and hash channels.
+ */
+public class SkipAggregationBuilder
+        implements HashAggregationBuilder
+{
+    private final LocalMemoryContext memoryContext;
+    private final List<AccumulatorFactory> accumulatorFactories;
+    private final int[] groupByChannels;
+    private final Optional<Integer> hashChannel;
+
+    @Nullable
+    private Page currentPage;
+
+    public SkipAggregationBuilder(
+            List<Integer> groupByChannels,
+            Optional<Integer> hashChannel,
+            List<AccumulatorFactory> accumulatorFactories,
+            LocalMemoryContext memoryContext)
+    {
+        this.memoryContext = requireNonNull(memoryContext, "memoryContext is null");
+        this.groupByChannels = Ints.toArray(requireNonNull(groupByChannels, "groupByChannels is null"));
+        this.hashChannel = requireNonNull(hashChannel, "hashChannel is null");
+        this.accumulatorFactories = ImmutableList.copyOf(requireNonNull(accumulatorFactories, "accumulatorFactories is null"));
+    }
+
+    @Override
+    public Work<?> processPage(Page page)
+    {
+        checkState(currentPage == null, "Previous page has not been consumed yet");
+        currentPage = processInput(page);
+        return new CompletedWork<>(currentPage);
+    }
+
+    @Override
+    public WorkProcessor<Page> buildResult()
+    {
+        if (currentPage == null) {
+            return WorkProcessor.of();
+        }
+
+        Page result = currentPage;
+        currentPage = null;
+        return WorkProcessor.of(result);
+    }
+
+    @Override
+    public boolean isFull()
+    {
+        return currentPage != null;
+    }
+
+    @Override
+    public void updateMemory()
+    {
+        memoryContext.setBytes(currentPage == null ? 0 : currentPage.getSizeInBytes());
+    }
+
+    @Override
+    public void recordHashCollisions(HashCollisionsCounter hashCollisionsCounter)
+    {
+        // no hashing is done
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        throw new UnsupportedOperationException("startMemoryRevoke not supported for SkipAggregationBuilder");
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        throw new UnsupportedOperationException("finishMemoryRevoke not supported for SkipAggregationBuilder");
+    }
+
+    private Page processInput(Page page)
+    {
+        int positionCount = page.getPositionCount();
+        GroupByIdBlock groupIds = singleRowGroups(positionCount);
+
+        Block[] outputBlocks = new Block[groupByChannels.length + (hashChannel.isPresent() ? 1 : 0) + accumulatorFactories.size()];
+        int outputChannel = 0;
+        for (int groupByChannel : groupByChannels) {
+            outputBlocks[outputChannel++] = page.getBlock(groupByChannel);
+        }
+        if (hashChannel.isPresent()) {
+            outputBlocks[outputChannel++] = page.getBlock(hashChannel.get());
+        }
+        for (AccumulatorFactory accumulatorFactory : accumulatorFactories) {
+            GroupedAccumulator accumulator = accumulatorFactory.createGroupedAccumulator();
+            accumulator.addInput(groupIds, page);
+            BlockBuilder blockBuilder = accumulator.getIntermediateType().createBlockBuilder(null, positionCount);
+            for (int groupId = 0; groupId < positionCount; groupId++) {
+                accumulator.evaluateIntermediate(groupId, blockBuilder);
+            }
+            outputBlocks[outputChannel++] = blockBuilder.build();
+        }
+        return new Page(positionCount, outputBlocks);
+    }
+
+    private static GroupByIdBlock singleRowGroups(int positionCount)
+    {
+        long[] groupIds = new long[positionCount];
+        for (int position = 0; position < positionCount; position++) {
+            groupIds[position] = position;
+        }
+        return new GroupByIdBlock(positionCount, new LongArrayBlock(positionCount, Optional.empty(), groupIds));
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.operator.project;
+
+import io.trino.operator.CompletedWork;
+import io.trino.operator.DriverYieldSignal;
+import io.trino.operator.Work;
+import io.trino.spi.Page;
+import io.trino.spi.block.Block;
+import io.trino.spi.block.IntArrayBlock;
+import io.trino.spi.block.LongArrayBlock;
+import io.trino.spi.connector.ConnectorSession;
+import io.trino.spi.type.FixedWidthType;
+import io.trino.spi.type.Type;
+import io.trino.type.BigintOperators;
+import io.trino.type.IntegerOperators;
+
+import javax.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.IntegerType.INTEGER;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Evaluates {@code bigint} or {@code integer} addition, subtraction or multiplication of two columns,
+ * or a column and a constant, a whole batch of positions at a time. Overflows are detected for the
+ * whole batch with bitwise arithmetic, so the main loops have no branches and can be turned into SIMD
+ * instructions by the JIT compiler. When an overflow is detected, the batch is evaluated again with
+ * the regular operators to report the first overflow the same way the generated code does.
+ */
+public class BatchArithmeticPageProjection
+        implements PageProjection
+{
+    private final Type type;
+    private final Operation operation;
+    private final Operand left;
+    private final Operand right;
+    private final InputChannels inputChannels;
+
+    public BatchArithmeticPageProjection(Type type, Operation operation, Operand left, Operand right, InputChannels inputChannels)
+    {
+        this.type = requireNonNull(type, "type is null");
+        checkArgument(type.equals(BIGINT) || type.equals(INTEGER), "Unsupported type: %s", type);
+        this.operation = requireNonNull(operation, "operation is null");
+        this.left = requireNonNull(left, "left is null");
+        this.right = requireNonNull(right, "right is null");
+        checkArgument(left.getChannel().isPresent() || right.getChannel().isPresent(), "At least one operand must be a column");
+        this.inputChannels = requireNonNull(inputChannels, "inputChannels is null");
+    }
+
+    @Override
+    public Type getType()
+    {
+        return type;
+    }
+
+    @Override
+    public boolean isDeterministic()
+    {
+        return true;
+    }
+
+    @Override
+    public InputChannels getInputChannels()
+    {
+        return inputChannels;
+    }
+
+    @Override
+    public Work<Block> project(ConnectorSession session, DriverYieldSignal yieldSignal, Page page, SelectedPositions selectedPositions)
+    {
+        int size = selectedPositions.size();
+        long[] leftValues = new long[size];
+        long[] rightValues = new long[size];
+        boolean[] leftNulls = readOperand(left, page, selectedPositions, leftValues);
+        boolean[] rightNulls = readOperand(right, page, selectedPositions, rightValues);
+        boolean[] isNull = mergeNulls(leftNulls, rightNulls, size);
+
+        long[] result = new long[size];
+        boolean overflow;
+        if (type.equals(BIGINT)) {
+            overflow = computeBigint(leftValues, rightValues, result, size);
+        }
+        else {
+            overflow = computeInteger(leftValues, rightValues, result, size);
+        }
+        if (overflow) {
+            throwOnOverflow(leftValues, rightValues, isNull, size);
+        }
+
+        Optional<boolean[]> valueIsNull = Optional.ofNullable(isNull);
+        if (type.equals(BIGINT)) {
+            return new CompletedWork<>(new LongArrayBlock(size, valueIsNull, result));
+        }
+        int[] intResult = new int[size];
+        for (int i = 0; i < size; i++) {
+            intResult[i] = (int) result[i];
+        }
+        return new CompletedWork<>(new IntArrayBlock(size, valueIsNull, intResult));
+    }
+
+    @Nullable
+    private boolean[] readOperand(Operand operand, Page page, SelectedPositions selectedPositions, long[] values)
+    {
+        if (operand.getChannel().isEmpty()) {
+            Arrays.fill(values, operand.getConstant());
+            return null;
+        }
+        Block block = page.getBlock(operand.getChannel().getAsInt()).getLoadedBlock();
+        FixedWidthValues.read(block, ((FixedWidthType) type).getFixedSize(), selectedPositions, values);
+        return FixedWidthValues.readNulls(block, selectedPositions);
+    }
+
+    @Nullable
+    private static boolean[] mergeNulls(@Nullable boolean[] left, @Nullable boolean[] right, int size)
+    {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        for (int i = 0; i < size; i++) {
+            left[i] |= right[i];
+        }
+        return left;
+    }
+
+    private boolean computeBigint(long[] left, long[] right, long[] result, int size)
+    {
+        // the sign bit of overflow is set when any of the results overflowed
+        long overflow = 0;
+        switch (operation) {
+            case ADD:
+                for (int i = 0; i < size; i++) {
+                    long value = left[i] + right[i];
+                    overflow |= (left[i] ^ value) & (right[i] ^ value);
+                    result[i] = value;
+                }
+                return overflow < 0;
+            case SUBTRACT:
+                for (int i = 0; i < size; i++) {
+                    long value = left[i] - right[i];
+                    overflow |= (left[i] ^ right[i]) & (left[i] ^ value);
+                    result[i] = value;
+                }
+                return overflow < 0;
+            case MULTIPLY:
+                boolean multiplyOverflow = false;
+                for (int i = 0; i < size; i++) {
+                    long value = left[i] * right[i];
+                    multiplyOverflow |= Math.multiplyHigh(left[i], right[i]) != (value >> 63);
+                    result[i] = value;
+                }
+                return multiplyOverflow;
+        }
+        throw new UnsupportedOperationException("Unsupported operation: " + operation);
+    }
+
+    private boolean computeInteger(long[] left, long[] right, long[] result, int size)
+    {
+        // integer operands can not overflow a long, but the result has to fit an integer
+        long overflow = 0;
+        switch (operation) {
+            case ADD:
+                for (int i = 0; i < size; i++) {
+                    long value = left[i] + right[i];
+                    overflow |= value ^ (int) value;
+                    result[i] = value;
+                }
+                return overflow != 0;
+            case SUBTRACT:
+                for (int i = 0; i < size; i++) {
+                    long value = left[i] - right[i];
+                    overflow |= value ^ (int) value;
+                    result[i] = value;
+                }
+                return overflow != 0;
+            case MULTIPLY:
+                for (int i = 0; i < size; i++) {
+                    long value = left[i] * right[i];
+                    overflow |= value ^ (int) value;
+                    result[i] = value;
+                }
+                return overflow != 0;
+        }
+        throw new UnsupportedOperationException("Unsupported operation: " + operation);
+    }
+
+    private void throwOnOverflow(long[] left, long[] right, @Nullable boolean[] isNull, int size)
+    {
+        // values of null positions are arbitrary, and can overflow without the expression failing
+        for (int i = 0; i < size; i++) {
+            if (isNull == null || !isNull[i]) {
+                evaluate(left[i], right[i]);
+            }
+        }
+    }
+
+    private long evaluate(long left, long right)
+    {
+        if (type.equals(BIGINT)) {
+            switch (operation) {
+                case ADD:
+                    return BigintOperators.add(left, right);
+                case SUBTRACT:
+                    return BigintOperators.subtract(left, right);
+                case MULTIPLY:
+                    return BigintOperators.multiply(left, right);
+            }
+        }
+        else {
+            switch (operation) {
+                case ADD:
+                    return IntegerOperators.add(left, right);
+                case SUBTRACT:
+                    return IntegerOperators.subtract(left, right);
+                case MULTIPLY:
+                    return IntegerOperators.multiply(left, right);
+            }
+        }
+        throw new UnsupportedOperationException("Unsupported operation: " + operation);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("type", type)
+                .add("operation", operation)
+                .add("left", left)
+                .add("right", right)
+                .add("inputChannels", inputChannels)
+                .toString();
+    }
+
+    public enum Operation
+    {
+        ADD,
+        SUBTRACT,
+        MULTIPLY,
+    }
+
+    public static class Operand
+    {
+        private final OptionalInt channel;
+        private final long constant;
+
+        public static Operand column(int channel)
+        {
+            return new Operand(OptionalInt.of(channel), 0);
+        }
+
+        public static Operand constant(long value)
+        {
+            return new Operand(OptionalInt.empty(), value);
+        }
+
+        private Operand(OptionalInt channel, long constant)
+        {
+            this.channel = channel;
+            this.constant = constant;
+        }
+
+        public OptionalInt getChannel()
+        {
+            return channel;
+        }
+
+        public long getConstant()
+        {
+            return constant;
+        }
+
+        @Override
+        public String toString()
+        {
+            if (channel.isPresent()) {
+                return "#" + channel.getAsInt();
+            }
+            return String.valueOf(constant);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.operator.project;
+
+import com.google.common.collect.ImmutableList;
+import io.trino.spi.Page;
+import io.trino.spi.block.Block;
+import io.trino.spi.connector.ConnectorSession;
+
+import java.util.List;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static io.trino.operator.project.PageFilter.positionsArrayToSelectedPositions;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Evaluates a conjunction of comparisons between fixed width columns and constants a whole page at a time.
+ * The values of a column are first copied to a {@code long[]} and then checked in a loop without branches
+ * or calls, which the JIT compiler can turn into SIMD instructions.
+ */
+public class BatchComparisonPageFilter
+        implements PageFilter
+{
+    private final InputChannels inputChannels;
+    private final List<ColumnComparison> comparisons;
+
+    private long[] values = new long[0];
+    private boolean[] selectedPositions = new boolean[0];
+
+    public BatchComparisonPageFilter(InputChannels inputChannels, List<ColumnComparison> comparisons)
+    {
+        this.inputChannels = requireNonNull(inputChannels, "inputChannels is null");
+        this.comparisons = ImmutableList.copyOf(requireNonNull(comparisons, "comparisons is null"));
+    }
+
+    @Override
+    public boolean isDeterministic()
+    {
+        return true;
+    }
+
+    @Override
+    public InputChannels getInputChannels()
+    {
+        return inputChannels;
+    }
+
+    @Override
+    public SelectedPositions filter(ConnectorSession session, Page page)
+    {
+        int positionCount = page.getPositionCount();
+        if (selectedPositions.length < positionCount) {
+            values = new long[positionCount];
+            selectedPositions = new boolean[positionCount];
+        }
+
+        boolean first = true;
+        for (ColumnComparison comparison : comparisons) {
+            Block block = page.getBlock(comparison.getChannel()).getLoadedBlock();
+            FixedWidthValues.read(block, comparison.getValueSize(), positionCount, values);
+            if (first) {
+                selectInRange(values, positionCount, comparison.getLow(), comparison.getHigh(), comparison.isNegated(), selectedPositions);
+                first = false;
+            }
+            else {
+                retainInRange(values, positionCount, comparison.getLow(), comparison.getHigh(), comparison.isNegated(), selectedPositions);
+            }
+            if (block.mayHaveNull()) {
+                // comparisons with null are never true
+                for (int position = 0; position < positionCount; position++) {
+                    selectedPositions[position] &= !block.isNull(position);
+                }
+            }
+        }
+
+        return positionsArrayToSelectedPositions(selectedPositions, positionCount);
+    }
+
+    private static void selectInRange(long[] values, int positionCount, long low, long high, boolean negated, boolean[] selected)
+    {
+        // low <= value <= high is evaluated as a single unsigned comparison
+        long width = high - low;
+        for (int position = 0; position < positionCount; position++) {
+            selected[position] = (values[position] - low + Long.MIN_VALUE <= width + Long.MIN_VALUE) != negated;
+        }
+    }
+
+    private static void retainInRange(long[] values, int positionCount, long low, long high, boolean negated, boolean[] selected)
+    {
+        long width = high - low;
+        for (int position = 0; position < positionCount; position++) {
+            selected[position] &= (values[position] - low + Long.MIN_VALUE <= width + Long.MIN_VALUE) != negated;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("inputChannels", inputChannels)
+                .add("comparisons", comparisons)
+                .toString();
+    }
+
+    /**
+     * Checks that {@code low <= value <= high}, or the opposite when negated.
+     */
+    public static class ColumnComparison
+    {
+        private final int channel;
+        private final int valueSize;
+        private final long low;
+        private final long high;
+        private final boolean negated;
+
+        public ColumnComparison(int channel, int valueSize, long low, long high, boolean negated)
+        {
+            this.channel = channel;
+            this.valueSize = valueSize;
+            this.low = low;
+            this.high = high;
+            this.negated = negated;
+        }
+
+        public int getChannel()
+        {
+            return channel;
+        }
+
+        public int getValueSize()
+        {
+            return valueSize;
+        }
+
+        public long getLow()
+        {
+            return low;
+        }
+
+        public long getHigh()
+        {
+            return high;
+        }
+
+        public boolean isNegated()
+        {
+            return negated;
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("channel", channel)
+                    .add("valueSize", valueSize)
+                    .add("low", low)
+                    .add("high", high)
+                    .add("negated", negated)
+                    .toString();
+        }
+    }
+}
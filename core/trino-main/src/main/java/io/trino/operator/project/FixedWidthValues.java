@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.operator.project;
+
+import io.trino.spi.block.Block;
+
+import javax.annotation.Nullable;
+
+final class FixedWidthValues
+{
+    private FixedWidthValues() {}
+
+    /**
+     * Copies the first {@code positionCount} values of the block to {@code values}, sign extended to longs.
+     * Values of null positions are unspecified.
+     */
+    public static void read(Block block, int valueSize, int positionCount, long[] values)
+    {
+        switch (valueSize) {
+            case Long.BYTES:
+                for (int position = 0; position < positionCount; position++) {
+                    values[position] = block.getLong(position, 0);
+                }
+                return;
+            case Integer.BYTES:
+                for (int position = 0; position < positionCount; position++) {
+                    values[position] = block.getInt(position, 0);
+                }
+                return;
+            case Short.BYTES:
+                for (int position = 0; position < positionCount; position++) {
+                    values[position] = block.getShort(position, 0);
+                }
+                return;
+            case Byte.BYTES:
+                for (int position = 0; position < positionCount; position++) {
+                    values[position] = block.getByte(position, 0);
+                }
+                return;
+            default:
+                throw new IllegalArgumentException("Unsupported value size: " + valueSize);
+        }
+    }
+
+    /**
+     * Copies the values at the selected positions of the block to {@code values}, sign extended to longs.
+     */
+    public static void read(Block block, int valueSize, SelectedPositions selectedPositions, long[] values)
+    {
+        if (!selectedPositions.isList()) {
+            int offset = selectedPositions.getOffset();
+            if (offset == 0) {
+                read(block, valueSize, selectedPositions.size(), values);
+                return;
+            }
+            read(block.getRegion(offset, selectedPositions.size()), valueSize, selectedPositions.size(), values);
+            return;
+        }
+
+        int[] positions = selectedPositions.getPositions();
+        int offset = selectedPositions.getOffset();
+        int size = selectedPositions.size();
+        switch (valueSize) {
+            case Long.BYTES:
+                for (int i = 0; i < size; i++) {
+                    values[i] = block.getLong(positions[offset + i], 0);
+                }
+                return;
+            case Integer.BYTES:
+                for (int i = 0; i < size; i++) {
+                    values[i] = block.getInt(positions[offset + i], 0);
+                }
+                return;
+            case Short.BYTES:
+                for (int i = 0; i < size; i++) {
+                    values[i] = block.getShort(positions[offset + i], 0);
+                }
+                return;
+            case Byte.BYTES:
+                for (int i = 0; i < size; i++) {
+                    values[i] = block.getByte(positions[offset + i], 0);
+                }
+                return;
+            default:
+                throw new IllegalArgumentException("Unsupported value size: " + valueSize);
+        }
+    }
+
+    /**
+     * Returns null flags of the selected positions of the block, or null if none of them is null.
+     */
+    @Nullable
+    public static boolean[] readNulls(Block block, SelectedPositions selectedPositions)
+    {
+        if (!block.mayHaveNull()) {
+            return null;
+        }
+        int offset = selectedPositions.getOffset();
+        int size = selectedPositions.size();
+        boolean[] isNull = new boolean[size];
+        boolean hasNull = false;
+        if (selectedPositions.isList()) {
+            int[] positions = selectedPositions.getPositions();
+            for (int i = 0; i < size; i++) {
+                isNull[i] = block.isNull(positions[offset + i]);
+                hasNull |= isNull[i];
+            }
+        }
+        else {
+            for (int i = 0; i < size; i++) {
+                isNull[i] = block.isNull(offset + i);
+                hasNull |= isNull[i];
+            }
+        }
+        return hasNull ? isNull : null;
+    }
+}
@@ -33,16 +33,26 @@ import static java.util.Objects.requireNonNull;
 public class AggregateWindowFunction
         implements WindowFunction
 {
+    private static final int SEGMENT_TREE_BUCKET_SIZE = 32;
+    // smaller frames are cheaper to accumulate row by row than to assemble from the segment tree
+    private static final int SEGMENT_TREE_MIN_FRAME_SIZE = 4 * SEGMENT_TREE_BUCKET_SIZE;
+
     private final List<Integer> argumentChannels;
     private final AccumulatorFactory accumulatorFactory;
     private final boolean accumulatorHasRemoveInput;
+    // the segment tree combines intermediate states, which aggregations that are not decomposable do not support
+    private final boolean decomposable;
+    // set when the intermediate states turn out to grow with the number of rows, which makes the segment tree too large
+    private boolean stateGrows;
 
     private WindowIndex windowIndex;
     private Accumulator accumulator;
+    // built on first use for each partition, when frames slide and the accumulator cannot remove input
+    private AggregationSegmentTree segmentTree;
     private int currentStart;
     private int currentEnd;
 
-    private AggregateWindowFunction(InternalAggregationFunction function, List<Integer> argumentChannels, List<LambdaProvider> lambdaProviders)
+    private AggregateWindowFunction(InternalAggregationFunction function, boolean decomposable, List<Integer> argumentChannels, List<LambdaProvider> lambdaProviders)
     {
         this.argumentChannels = ImmutableList.copyOf(argumentChannels);
         this.accumulatorFactory = function.bind(
@@ -59,12 +69,14 @@ public class AggregateWindowFunction
                 null);
 
         this.accumulatorHasRemoveInput = accumulatorFactory.hasRemoveInput();
+        this.decomposable = decomposable;
     }
 
     @Override
     public void reset(WindowIndex windowIndex)
     {
         this.windowIndex = windowIndex;
+        this.segmentTree = null;
         resetAccumulator();
     }
 
@@ -122,7 +134,17 @@ public class AggregateWindowFunction
 
         // We couldn't or didn't want to modify the accumulation: instead, discard the current accumulation and start fresh.
         resetAccumulator();
-        accumulate(frameStart, frameEnd);
+        if (!accumulatorHasRemoveInput && decomposable && !stateGrows && segmentTree == null && (frameEnd - frameStart + 1) >= SEGMENT_TREE_MIN_FRAME_SIZE) {
+            Optional<AggregationSegmentTree> newSegmentTree = AggregationSegmentTree.create(windowIndex, argumentChannels, accumulatorFactory, SEGMENT_TREE_BUCKET_SIZE);
+            stateGrows = newSegmentTree.isEmpty();
+            segmentTree = newSegmentTree.orElse(null);
+        }
+        if (segmentTree != null && (frameEnd - frameStart + 1) >= SEGMENT_TREE_MIN_FRAME_SIZE) {
+            segmentTree.accumulate(accumulator, frameStart, frameEnd);
+        }
+        else {
+            accumulate(frameStart, frameEnd);
+        }
         currentStart = frameStart;
         currentEnd = frameEnd;
     }
@@ -146,7 +168,7 @@ public class AggregateWindowFunction
         }
     }
 
-    public static WindowFunctionSupplier supplier(Signature signature, InternalAggregationFunction function)
+    public static WindowFunctionSupplier supplier(Signature signature, InternalAggregationFunction function, boolean decomposable)
     {
         requireNonNull(function, "function is null");
         return new AbstractWindowFunctionSupplier(signature, null, function.getLambdaInterfaces())
@@ -154,7 +176,7 @@ public class AggregateWindowFunction
             @Override
             protected WindowFunction newWindowFunction(List<Integer> inputs, boolean ignoreNulls, List<LambdaProvider> lambdaProviders)
             {
-                return new AggregateWindowFunction(function, inputs, lambdaProviders);
+                return new AggregateWindowFunction(function, decomposable, inputs, lambdaProviders);
             }
         };
     }
@@ -0,0 +1,179 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.operator.window;
+
+import com.google.common.collect.ImmutableList;
+import io.trino.operator.aggregation.Accumulator;
+import io.trino.operator.aggregation.AccumulatorFactory;
+import io.trino.spi.block.Block;
+import io.trino.spi.block.BlockBuilder;
+import io.trino.spi.function.WindowIndex;
+
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Segment tree over the intermediate states of an aggregation for buckets of consecutive rows of a window
+ * partition. Aggregations that cannot remove input use it to evaluate sliding frames by combining a
+ * logarithmic number of intermediate states, instead of accumulating every row of every frame.
+ * <p>
+ * States are combined in the order of the rows they cover, so aggregations whose result depends on
+ * the order of the input produce the same result as when accumulating the rows one by one.
+ * <p>
+ * The tree is only worth its memory for aggregations with states of a bounded size. When the states grow
+ * with the number of rows they cover, as for array_agg or map_agg, each level of the tree would hold a
+ * copy of the partition, so the tree is not built.
+ */
+class AggregationSegmentTree
+{
+    // a combined state more than this many times larger than the largest of the states it combines is growing
+    private static final double MIN_STATE_GROWTH = 1.5;
+
+    private final WindowIndex windowIndex;
+    private final List<Integer> argumentChannels;
+    private final AccumulatorFactory accumulatorFactory;
+    private final int bucketSize;
+    private final int bucketCount;
+    // leaves start at this index, and node i has the children 2 * i and 2 * i + 1
+    private final int leafOffset;
+    private final Block[] nodes;
+    private final Block[] rightNodes;
+
+    /**
+     * Returns an empty result when the intermediate states of the aggregation grow with the number of rows they cover.
+     */
+    public static Optional<AggregationSegmentTree> create(WindowIndex windowIndex, List<Integer> argumentChannels, AccumulatorFactory accumulatorFactory, int bucketSize)
+    {
+        AggregationSegmentTree segmentTree = new AggregationSegmentTree(windowIndex, argumentChannels, accumulatorFactory, bucketSize);
+        if (!segmentTree.buildNodes()) {
+            return Optional.empty();
+        }
+        return Optional.of(segmentTree);
+    }
+
+    private AggregationSegmentTree(WindowIndex windowIndex, List<Integer> argumentChannels, AccumulatorFactory accumulatorFactory, int bucketSize)
+    {
+        checkArgument(bucketSize > 0, "bucketSize must be positive");
+        this.windowIndex = requireNonNull(windowIndex, "windowIndex is null");
+        this.argumentChannels = ImmutableList.copyOf(requireNonNull(argumentChannels, "argumentChannels is null"));
+        this.accumulatorFactory = requireNonNull(accumulatorFactory, "accumulatorFactory is null");
+        this.bucketSize = bucketSize;
+        this.bucketCount = (windowIndex.size() + bucketSize - 1) / bucketSize;
+
+        int leafOffset = 1;
+        while (leafOffset < bucketCount) {
+            leafOffset <<= 1;
+        }
+        this.leafOffset = leafOffset;
+        this.nodes = new Block[2 * leafOffset];
+        this.rightNodes = new Block[Integer.numberOfTrailingZeros(leafOffset) + 1];
+    }
+
+    /**
+     * @return false if the intermediate states grow, in which case the tree is incomplete
+     */
+    private boolean buildNodes()
+    {
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            Accumulator accumulator = accumulatorFactory.createAccumulator();
+            accumulator.addInput(windowIndex, argumentChannels, bucketStart(bucket), bucketEnd(bucket));
+            nodes[leafOffset + bucket] = evaluateIntermediate(accumulator);
+        }
+        for (int node = leafOffset - 1; node > 0; node--) {
+            Block left = nodes[2 * node];
+            if (left == null) {
+                // only padding leaves below this node
+                continue;
+            }
+            Accumulator accumulator = accumulatorFactory.createAccumulator();
+            accumulator.addIntermediate(left);
+            long childrenSize = left.getSizeInBytes();
+            Block right = nodes[2 * node + 1];
+            if (right != null) {
+                accumulator.addIntermediate(right);
+                childrenSize = max(childrenSize, right.getSizeInBytes());
+            }
+            nodes[node] = evaluateIntermediate(accumulator);
+            if (nodes[node].getSizeInBytes() > childrenSize * MIN_STATE_GROWTH) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the rows between start and end, both inclusive, to the accumulator.
+     */
+    public void accumulate(Accumulator accumulator, int start, int end)
+    {
+        // buckets that are entirely within the rows
+        int firstBucket = (start + bucketSize - 1) / bucketSize;
+        int lastBucket = (end == windowIndex.size() - 1) ? bucketCount - 1 : ((end + 1) / bucketSize) - 1;
+        if (firstBucket > lastBucket) {
+            accumulator.addInput(windowIndex, argumentChannels, start, end);
+            return;
+        }
+
+        if (start < bucketStart(firstBucket)) {
+            accumulator.addInput(windowIndex, argumentChannels, start, bucketStart(firstBucket) - 1);
+        }
+
+        int rightNodeCount = 0;
+        int left = leafOffset + firstBucket;
+        int right = leafOffset + lastBucket + 1;
+        while (left < right) {
+            if ((left & 1) == 1) {
+                accumulator.addIntermediate(nodes[left]);
+                left++;
+            }
+            if ((right & 1) == 1) {
+                right--;
+                rightNodes[rightNodeCount] = nodes[right];
+                rightNodeCount++;
+            }
+            left >>= 1;
+            right >>= 1;
+        }
+        // the nodes on the right were visited from the end of the rows
+        for (int i = rightNodeCount - 1; i >= 0; i--) {
+            accumulator.addIntermediate(rightNodes[i]);
+        }
+
+        if (bucketEnd(lastBucket) < end) {
+            accumulator.addInput(windowIndex, argumentChannels, bucketEnd(lastBucket) + 1, end);
+        }
+    }
+
+    private int bucketStart(int bucket)
+    {
+        return bucket * bucketSize;
+    }
+
+    private int bucketEnd(int bucket)
+    {
+        return min(windowIndex.size(), (bucket + 1) * bucketSize) - 1;
+    }
+
+    private static Block evaluateIntermediate(Accumulator accumulator)
+    {
+        BlockBuilder blockBuilder = accumulator.getIntermediateType().createBlockBuilder(null, 1);
+        accumulator.evaluateIntermediate(blockBuilder);
+        return blockBuilder.build();
+    }
+}
@@ -74,6 +74,8 @@ import io.trino.memory.TotalReservationOnBlockedNodesLowMemoryKiller;
 import io.trino.metadata.CatalogManager;
 import io.trino.operator.ForScheduler;
 import io.trino.server.protocol.ExecutingStatementResource;
+import io.trino.server.protocol.QueryResultCache;
+import io.trino.server.protocol.ResultSegmentsMemoryLimit;
 import io.trino.server.remotetask.RemoteTaskStats;
 import io.trino.server.ui.WebUiModule;
 import io.trino.server.ui.WorkerResource;
@@ -83,6 +85,7 @@ import io.trino.sql.analyzer.QueryExplainer;
 import io.trino.sql.planner.PlanFragmenter;
 import io.trino.sql.planner.PlanOptimizers;
 import io.trino.sql.planner.RuleStatsRecorder;
+import io.trino.sql.planner.plan.PlanNode;
 import io.trino.transaction.ForTransactionManager;
 import io.trino.transaction.InMemoryTransactionManager;
 import io.trino.transaction.TransactionManager;
@@ -137,6 +140,15 @@ public class CoordinatorModule
         binder.bind(StatementHttpExecutionMBean.class).in(Scopes.SINGLETON);
         newExporter(binder).export(StatementHttpExecutionMBean.class).withGeneratedName();
 
+        // query result cache
+        jsonCodecBinder(binder).bindJsonCodec(PlanNode.class);
+        binder.bind(QueryResultCache.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(QueryResultCache.class).withGeneratedName();
+
+        // result segments retained for clients
+        binder.bind(ResultSegmentsMemoryLimit.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(ResultSegmentsMemoryLimit.class).withGeneratedName();
+
         // allow large prepared statements in headers
         configBinder(binder).bindConfigDefaults(HttpServerConfig.class, config -> {
             config.setMaxRequestHeaderSize(DataSize.of(2, MEGABYTE));
@@ -13,11 +13,16 @@
  */
 package io.trino.server;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
 import io.airlift.concurrent.BoundedExecutor;
 import io.airlift.concurrent.ThreadPoolExecutorMBean;
 import io.airlift.http.client.HttpClient;
 import io.airlift.json.JsonCodec;
+import io.airlift.json.JsonCodecFactory;
 import io.airlift.units.Duration;
 import io.trino.Session;
 import io.trino.execution.DynamicFiltersCollector.VersionedDynamicFilterDomains;
@@ -35,7 +40,10 @@ import io.trino.metadata.InternalNode;
 import io.trino.metadata.Split;
 import io.trino.operator.ForScheduler;
 import io.trino.server.remotetask.HttpRemoteTask;
+import io.trino.server.remotetask.RemoteTaskCodec;
+import io.trino.server.remotetask.RemoteTaskEncoding;
 import io.trino.server.remotetask.RemoteTaskStats;
+import io.trino.server.remotetask.SmileObjectMapperProvider;
 import io.trino.sql.planner.PlanFragment;
 import io.trino.sql.planner.plan.PlanNodeId;
 import org.weakref.jmx.Managed;
@@ -44,6 +52,7 @@ import org.weakref.jmx.Nested;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
+import java.util.Map;
 import java.util.OptionalInt;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
@@ -54,16 +63,19 @@ import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MINUTES;
 
 public class HttpRemoteTaskFactory
         implements RemoteTaskFactory
 {
     private final HttpClient httpClient;
     private final LocationFactory locationFactory;
-    private final JsonCodec<TaskStatus> taskStatusCodec;
-    private final JsonCodec<VersionedDynamicFilterDomains> dynamicFilterDomainsCodec;
-    private final JsonCodec<TaskInfo> taskInfoCodec;
-    private final JsonCodec<TaskUpdateRequest> taskUpdateRequestCodec;
+    private final RemoteTaskCodec<TaskStatus> taskStatusCodec;
+    private final RemoteTaskCodec<VersionedDynamicFilterDomains> dynamicFilterDomainsCodec;
+    private final RemoteTaskCodec<TaskInfo> taskInfoCodec;
+    private final RemoteTaskCodec<TaskUpdateRequest> taskUpdateRequestCodec;
+    // all tasks of a stage are created with the same fragment, so it is only encoded once per stage
+    private final Map<RemoteTaskEncoding, LoadingCache<PlanFragment, byte[]>> encodedPlanFragments;
     private final Duration maxErrorDuration;
     private final Duration taskStatusRefreshMaxWait;
     private final Duration taskInfoUpdateInterval;
@@ -85,22 +97,39 @@ public class HttpRemoteTaskFactory
             JsonCodec<VersionedDynamicFilterDomains> dynamicFilterDomainsCodec,
             JsonCodec<TaskInfo> taskInfoCodec,
             JsonCodec<TaskUpdateRequest> taskUpdateRequestCodec,
+            JsonCodec<PlanFragment> planFragmentCodec,
+            SmileObjectMapperProvider smileObjectMapperProvider,
             RemoteTaskStats stats,
             DynamicFilterService dynamicFilterService)
     {
         this.httpClient = httpClient;
         this.locationFactory = locationFactory;
-        this.taskStatusCodec = taskStatusCodec;
-        this.dynamicFilterDomainsCodec = dynamicFilterDomainsCodec;
-        this.taskInfoCodec = taskInfoCodec;
-        this.taskUpdateRequestCodec = taskUpdateRequestCodec;
+        this.stats = requireNonNull(stats, "stats is null");
+        RemoteTaskEncoding encoding = config.getRemoteTaskEncoding();
+        JsonCodecFactory smileCodecFactory = new JsonCodecFactory(smileObjectMapperProvider);
+        this.taskStatusCodec = new RemoteTaskCodec<>(taskStatusCodec, smileCodecFactory.jsonCodec(TaskStatus.class), encoding, stats);
+        this.dynamicFilterDomainsCodec = new RemoteTaskCodec<>(dynamicFilterDomainsCodec, smileCodecFactory.jsonCodec(VersionedDynamicFilterDomains.class), encoding, stats);
+        this.taskInfoCodec = new RemoteTaskCodec<>(taskInfoCodec, smileCodecFactory.jsonCodec(TaskInfo.class), encoding, stats);
+        this.taskUpdateRequestCodec = new RemoteTaskCodec<>(taskUpdateRequestCodec, smileCodecFactory.jsonCodec(TaskUpdateRequest.class), encoding, stats);
+        RemoteTaskCodec<PlanFragment> fragmentCodec = new RemoteTaskCodec<>(planFragmentCodec, smileCodecFactory.jsonCodec(PlanFragment.class), encoding, stats);
+        // The fragment is encoded with the encoding of the task update request that embeds it, which falls back to JSON
+        // for workers that reject the configured encoding. Fragments are compared by identity, and expire while finished
+        // queries still reference them.
+        ImmutableMap.Builder<RemoteTaskEncoding, LoadingCache<PlanFragment, byte[]>> encodedPlanFragments = ImmutableMap.builder();
+        for (RemoteTaskEncoding fragmentEncoding : RemoteTaskEncoding.values()) {
+            encodedPlanFragments.put(fragmentEncoding, CacheBuilder.newBuilder()
+                    .weakKeys()
+                    .expireAfterAccess(5, MINUTES)
+                    // workers don't need the embedded JSON representation of the fragment
+                    .build(CacheLoader.from(fragment -> fragmentCodec.encode(fragment.withoutEmbeddedJsonRepresentation(), fragmentEncoding))));
+        }
+        this.encodedPlanFragments = encodedPlanFragments.build();
         this.maxErrorDuration = config.getRemoteTaskMaxErrorDuration();
         this.taskStatusRefreshMaxWait = taskConfig.getStatusRefreshMaxWait();
         this.taskInfoUpdateInterval = taskConfig.getInfoUpdateInterval();
         this.coreExecutor = newCachedThreadPool(daemonThreadsNamed("remote-task-callback-%s"));
         this.executor = new BoundedExecutor(coreExecutor, config.getRemoteTaskMaxCallbackThreads());
         this.executorMBean = new ThreadPoolExecutorMBean((ThreadPoolExecutor) coreExecutor);
-        this.stats = requireNonNull(stats, "stats is null");
         this.dynamicFilterService = requireNonNull(dynamicFilterService, "dynamicFilterService is null");
 
         this.updateScheduledExecutor = newSingleThreadScheduledExecutor(daemonThreadsNamed("task-info-update-scheduler-%s"));
@@ -139,6 +168,7 @@ public class HttpRemoteTaskFactory
                 node.getNodeIdentifier(),
                 locationFactory.createTaskLocation(node, taskId),
                 fragment,
+                fragmentEncoding -> encodedPlanFragments.get(fragmentEncoding).getUnchecked(fragment),
                 initialSplits,
                 totalPartitions,
                 outputBuffers,
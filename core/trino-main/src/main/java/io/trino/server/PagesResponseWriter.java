@@ -14,8 +14,8 @@
 package io.trino.server;
 
 import com.google.common.reflect.TypeToken;
-import io.airlift.slice.OutputStreamSliceOutput;
-import io.airlift.slice.SliceOutput;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
 import io.trino.execution.buffer.SerializedPage;
 import io.trino.sql.analyzer.FeaturesConfig;
 import io.trino.sql.analyzer.FeaturesConfig.DataIntegrityVerification;
@@ -31,15 +31,16 @@ import javax.ws.rs.ext.Provider;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.UncheckedIOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.util.List;
 
+import static io.airlift.slice.SizeOf.SIZE_OF_INT;
+import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
 import static io.trino.TrinoMediaTypes.TRINO_PAGES;
 import static io.trino.execution.buffer.PagesSerdeUtil.NO_CHECKSUM;
 import static io.trino.execution.buffer.PagesSerdeUtil.calculateChecksum;
-import static io.trino.execution.buffer.PagesSerdeUtil.writeSerializedPages;
+import static io.trino.execution.buffer.PagesSerdeUtil.writeSerializedPagesTo;
 import static java.util.Objects.requireNonNull;
 
 @Provider
@@ -95,20 +96,19 @@ public class PagesResponseWriter
             throws IOException, WebApplicationException
     {
         try {
-            SliceOutput sliceOutput = new OutputStreamSliceOutput(output);
-            sliceOutput.writeInt(SERIALIZED_PAGES_MAGIC);
-            sliceOutput.writeLong(dataIntegrityVerificationEnabled ? calculateChecksum(serializedPages) : NO_CHECKSUM);
-            sliceOutput.writeInt(serializedPages.size());
-            writeSerializedPages(sliceOutput, serializedPages);
+            Slice header = Slices.allocate(SIZE_OF_INT + SIZE_OF_LONG + SIZE_OF_INT);
+            header.setInt(0, SERIALIZED_PAGES_MAGIC);
+            header.setLong(SIZE_OF_INT, dataIntegrityVerificationEnabled ? calculateChecksum(serializedPages) : NO_CHECKSUM);
+            header.setInt(SIZE_OF_INT + SIZE_OF_LONG, serializedPages.size());
+            header.getBytes(0, output, header.length());
+            // Page data is written directly from the pages, without copying it into an intermediate buffer
+            writeSerializedPagesTo(output, serializedPages);
             // We use flush instead of close, because the underlying stream would be closed and that is not allowed.
-            sliceOutput.flush();
+            output.flush();
         }
-        catch (UncheckedIOException e) {
+        catch (EOFException e) {
             // EOF exception occurs when the client disconnects while writing data
             // This is not a "server" problem so we don't want to log this
-            if (!(e.getCause() instanceof EOFException)) {
-                throw e;
-            }
         }
     }
 }
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.server;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.net.MediaType;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.airlift.json.JsonCodec;
+import io.airlift.json.JsonCodecFactory;
+import io.airlift.slice.Slice;
+import io.trino.server.remotetask.SmileObjectMapperProvider;
+import io.trino.sql.planner.PlanFragment;
+import org.weakref.jmx.Managed;
+
+import javax.inject.Inject;
+
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static io.airlift.slice.Slices.wrappedBuffer;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static io.trino.TrinoMediaTypes.JACKSON_SMILE_TYPE;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * Decodes the plan fragments of task update requests. The coordinator encodes the fragment of a stage once
+ * for all of its tasks, and sends it again when an update is retried or a query is restarted, so decoded
+ * fragments are cached by their encoded content and shared by the tasks on this node.
+ */
+public class PlanFragmentDecoder
+{
+    private static final long MAX_CACHED_BYTES = MEGABYTE.inBytes() * 64;
+
+    private final JsonCodec<PlanFragment> jsonCodec;
+    private final JsonCodec<PlanFragment> smileCodec;
+    private final Cache<Slice, PlanFragment> fragments = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_CACHED_BYTES)
+            .<Slice, PlanFragment>weigher((encoded, fragment) -> encoded.length())
+            .expireAfterAccess(5, MINUTES)
+            .recordStats()
+            .build();
+
+    @Inject
+    public PlanFragmentDecoder(JsonCodec<PlanFragment> planFragmentCodec, SmileObjectMapperProvider smileObjectMapperProvider)
+    {
+        this.jsonCodec = requireNonNull(planFragmentCodec, "planFragmentCodec is null");
+        this.smileCodec = new JsonCodecFactory(requireNonNull(smileObjectMapperProvider, "smileObjectMapperProvider is null")).jsonCodec(PlanFragment.class);
+    }
+
+    /**
+     * Decodes a fragment that is encoded like the request with the given content type.
+     */
+    public PlanFragment decode(byte[] fragment, String contentType)
+    {
+        JsonCodec<PlanFragment> codec = (contentType != null && MediaType.parse(contentType).is(JACKSON_SMILE_TYPE)) ? smileCodec : jsonCodec;
+        try {
+            return fragments.get(wrappedBuffer(fragment), () -> codec.fromJson(fragment));
+        }
+        catch (ExecutionException | UncheckedExecutionException e) {
+            throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Managed
+    public long getCacheHitCount()
+    {
+        return fragments.stats().hitCount();
+    }
+
+    @Managed
+    public long getCacheMissCount()
+    {
+        return fragments.stats().missCount();
+    }
+}
@@ -53,6 +53,7 @@ import io.trino.execution.TaskManagementExecutor;
 import io.trino.execution.TaskManager;
 import io.trino.execution.TaskManagerConfig;
 import io.trino.execution.TaskStatus;
+import io.trino.execution.buffer.PageSpoolFactory;
 import io.trino.execution.executor.MultilevelSplitQueue;
 import io.trino.execution.executor.TaskExecutor;
 import io.trino.execution.scheduler.NodeScheduler;
@@ -94,10 +95,13 @@ import io.trino.server.ExpressionSerialization.ExpressionSerializer;
 import io.trino.server.SliceSerialization.SliceDeserializer;
 import io.trino.server.SliceSerialization.SliceSerializer;
 import io.trino.server.remotetask.HttpLocationFactory;
+import io.trino.server.remotetask.SmileObjectMapperProvider;
 import io.trino.spi.PageIndexerFactory;
 import io.trino.spi.PageSorter;
 import io.trino.spi.block.Block;
 import io.trino.spi.block.BlockEncodingSerde;
+import io.trino.spi.connector.ColumnHandle;
+import io.trino.spi.connector.ConnectorTableHandle;
 import io.trino.spi.type.Type;
 import io.trino.spi.type.TypeOperators;
 import io.trino.spi.type.TypeSignature;
@@ -114,6 +118,8 @@ import io.trino.split.PageSinkManager;
 import io.trino.split.PageSinkProvider;
 import io.trino.split.PageSourceManager;
 import io.trino.split.PageSourceProvider;
+import io.trino.split.SplitCache;
+import io.trino.split.SplitCacheConfig;
 import io.trino.split.SplitManager;
 import io.trino.sql.SqlEnvironmentConfig;
 import io.trino.sql.analyzer.FeaturesConfig;
@@ -126,6 +132,7 @@ import io.trino.sql.parser.SqlParser;
 import io.trino.sql.planner.CompilerConfig;
 import io.trino.sql.planner.LocalExecutionPlanner;
 import io.trino.sql.planner.NodePartitioningManager;
+import io.trino.sql.planner.PlanFragment;
 import io.trino.sql.planner.RuleStatsRecorder;
 import io.trino.sql.planner.TypeAnalyzer;
 import io.trino.sql.tree.Expression;
@@ -260,6 +267,8 @@ public class ServerMainModule
         // task execution
         jaxrsBinder(binder).bind(TaskResource.class);
         newExporter(binder).export(TaskResource.class).withGeneratedName();
+        binder.bind(PlanFragmentDecoder.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(PlanFragmentDecoder.class).withGeneratedName();
         jaxrsBinder(binder).bind(TaskExecutorResource.class);
         newExporter(binder).export(TaskExecutorResource.class).withGeneratedName();
         binder.bind(TaskManagementExecutor.class).in(Scopes.SINGLETON);
@@ -309,6 +318,8 @@ public class ServerMainModule
         jsonCodecBinder(binder).bindJsonCodec(TaskInfo.class);
         jsonCodecBinder(binder).bindJsonCodec(OperatorStats.class);
         jsonCodecBinder(binder).bindJsonCodec(ExecutionFailureInfo.class);
+        jsonCodecBinder(binder).bindJsonCodec(PlanFragment.class);
+        binder.bind(SmileObjectMapperProvider.class).in(Scopes.SINGLETON);
         jaxrsBinder(binder).bind(PagesResponseWriter.class);
 
         // exchange client
@@ -343,6 +354,13 @@ public class ServerMainModule
         binder.bind(PageSourceManager.class).in(Scopes.SINGLETON);
         binder.bind(PageSourceProvider.class).to(PageSourceManager.class).in(Scopes.SINGLETON);
 
+        // split cache
+        configBinder(binder).bindConfig(SplitCacheConfig.class);
+        binder.bind(SplitCache.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(SplitCache.class).withGeneratedName();
+        jsonCodecBinder(binder).bindJsonCodec(ConnectorTableHandle.class);
+        jsonCodecBinder(binder).bindJsonCodec(ColumnHandle.class);
+
         // page sink provider
         binder.bind(PageSinkManager.class).in(Scopes.SINGLETON);
         binder.bind(PageSinkProvider.class).to(PageSinkManager.class).in(Scopes.SINGLETON);
@@ -431,7 +449,9 @@ public class ServerMainModule
 
         // Spiller
         binder.bind(SpillerFactory.class).to(GenericSpillerFactory.class).in(Scopes.SINGLETON);
+        binder.bind(FileSingleStreamSpillerFactory.class).in(Scopes.SINGLETON);
         binder.bind(SingleStreamSpillerFactory.class).to(FileSingleStreamSpillerFactory.class).in(Scopes.SINGLETON);
+        binder.bind(PageSpoolFactory.class).to(FileSingleStreamSpillerFactory.class).in(Scopes.SINGLETON);
         binder.bind(PartitioningSpillerFactory.class).to(GenericPartitioningSpillerFactory.class).in(Scopes.SINGLETON);
         binder.bind(SpillerStats.class).in(Scopes.SINGLETON);
         newExporter(binder).export(SpillerFactory.class).withGeneratedName();
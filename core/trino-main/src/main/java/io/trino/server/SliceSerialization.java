@@ -47,7 +47,7 @@ public final class SliceSerialization
         public Slice deserialize(JsonParser jsonParser, DeserializationContext deserializationContext)
                 throws IOException
         {
-            return utf8Slice(jsonParser.readValueAs(String.class));
+            return utf8Slice(deserializationContext.readValue(jsonParser, String.class));
         }
     }
 }
@@ -15,6 +15,7 @@ package io.trino.server;
 
 import io.trino.execution.executor.TaskExecutor;
 import io.trino.server.security.ResourceSecurity;
+import org.weakref.jmx.Managed;
 
 import javax.inject.Inject;
 import javax.ws.rs.GET;
@@ -44,4 +45,16 @@ public class TaskExecutorResource
     {
         return taskExecutor.getMaxActiveSplitsInfo();
     }
+
+    @Managed(description = "Splits taken from the queue of another runner thread")
+    public long getStolenSplits()
+    {
+        return taskExecutor.getStolenSplits();
+    }
+
+    @Managed(description = "Split queue lock acquisitions that had to wait for another thread")
+    public long getContendedSplitQueueLocks()
+    {
+        return taskExecutor.getContendedSplitQueueLocks();
+    }
 }
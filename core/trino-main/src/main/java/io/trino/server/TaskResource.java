@@ -13,6 +13,7 @@
  */
 package io.trino.server;
 
+import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.reflect.TypeToken;
 import com.google.common.util.concurrent.Futures;
@@ -57,17 +58,22 @@ import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
 
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static com.google.common.collect.Iterables.transform;
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static io.airlift.concurrent.MoreFutures.addTimeout;
 import static io.airlift.jaxrs.AsyncResponseHandler.bindAsyncResponse;
+import static io.trino.TrinoMediaTypes.JACKSON_SMILE;
 import static io.trino.TrinoMediaTypes.TRINO_PAGES;
 import static io.trino.server.InternalHeaders.TRINO_BUFFER_COMPLETE;
 import static io.trino.server.InternalHeaders.TRINO_CURRENT_VERSION;
+import static io.trino.server.InternalHeaders.TRINO_IDLE_PIPELINES;
 import static io.trino.server.InternalHeaders.TRINO_MAX_SIZE;
 import static io.trino.server.InternalHeaders.TRINO_MAX_WAIT;
 import static io.trino.server.InternalHeaders.TRINO_PAGE_NEXT_TOKEN;
@@ -86,9 +92,11 @@ public class TaskResource
 {
     private static final Duration ADDITIONAL_WAIT_TIME = new Duration(5, SECONDS);
     private static final Duration DEFAULT_MAX_WAIT_TIME = new Duration(2, SECONDS);
+    private static final Splitter.MapSplitter IDLE_PIPELINES_SPLITTER = Splitter.on(',').omitEmptyStrings().withKeyValueSeparator(':');
 
     private final TaskManager taskManager;
     private final SessionPropertyManager sessionPropertyManager;
+    private final PlanFragmentDecoder planFragmentDecoder;
     private final Executor responseExecutor;
     private final ScheduledExecutorService timeoutExecutor;
     private final TimeStat readFromOutputBufferTime = new TimeStat();
@@ -98,11 +106,13 @@ public class TaskResource
     public TaskResource(
             TaskManager taskManager,
             SessionPropertyManager sessionPropertyManager,
+            PlanFragmentDecoder planFragmentDecoder,
             @ForAsyncHttp BoundedExecutor responseExecutor,
             @ForAsyncHttp ScheduledExecutorService timeoutExecutor)
     {
         this.taskManager = requireNonNull(taskManager, "taskManager is null");
         this.sessionPropertyManager = requireNonNull(sessionPropertyManager, "sessionPropertyManager is null");
+        this.planFragmentDecoder = requireNonNull(planFragmentDecoder, "planFragmentDecoder is null");
         this.responseExecutor = requireNonNull(responseExecutor, "responseExecutor is null");
         this.timeoutExecutor = requireNonNull(timeoutExecutor, "timeoutExecutor is null");
     }
@@ -122,16 +132,21 @@ public class TaskResource
     @ResourceSecurity(INTERNAL_ONLY)
     @POST
     @Path("{taskId}")
-    @Consumes(MediaType.APPLICATION_JSON)
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response createOrUpdateTask(@PathParam("taskId") TaskId taskId, TaskUpdateRequest taskUpdateRequest, @Context UriInfo uriInfo)
+    @Consumes({MediaType.APPLICATION_JSON, JACKSON_SMILE})
+    @Produces({MediaType.APPLICATION_JSON, JACKSON_SMILE})
+    public Response createOrUpdateTask(
+            @PathParam("taskId") TaskId taskId,
+            TaskUpdateRequest taskUpdateRequest,
+            @HeaderParam(CONTENT_TYPE) String contentType,
+            @HeaderParam(TRINO_IDLE_PIPELINES) String idlePipelines,
+            @Context UriInfo uriInfo)
     {
         requireNonNull(taskUpdateRequest, "taskUpdateRequest is null");
 
         Session session = taskUpdateRequest.getSession().toSession(sessionPropertyManager, taskUpdateRequest.getExtraCredentials());
         TaskInfo taskInfo = taskManager.updateTask(session,
                 taskId,
-                taskUpdateRequest.getFragment(),
+                taskUpdateRequest.getFragment().map(fragment -> planFragmentDecoder.decode(fragment, contentType)),
                 taskUpdateRequest.getSources(),
                 taskUpdateRequest.getOutputIds(),
                 taskUpdateRequest.getTotalPartitions());
@@ -139,6 +154,9 @@ public class TaskResource
         if (shouldSummarize(uriInfo)) {
             taskInfo = taskInfo.summarize();
         }
+        else {
+            taskInfo = withoutIdlePipelines(taskInfo, idlePipelines);
+        }
 
         return Response.ok().entity(taskInfo).build();
     }
@@ -146,11 +164,12 @@ public class TaskResource
     @ResourceSecurity(INTERNAL_ONLY)
     @GET
     @Path("{taskId}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, JACKSON_SMILE})
     public void getTaskInfo(
             @PathParam("taskId") TaskId taskId,
             @HeaderParam(TRINO_CURRENT_VERSION) Long currentVersion,
             @HeaderParam(TRINO_MAX_WAIT) Duration maxWait,
+            @HeaderParam(TRINO_IDLE_PIPELINES) String idlePipelines,
             @Context UriInfo uriInfo,
             @Suspended AsyncResponse asyncResponse)
     {
@@ -161,6 +180,9 @@ public class TaskResource
             if (shouldSummarize(uriInfo)) {
                 taskInfo = taskInfo.summarize();
             }
+            else {
+                taskInfo = withoutIdlePipelines(taskInfo, idlePipelines);
+            }
             asyncResponse.resume(taskInfo);
             return;
         }
@@ -175,6 +197,9 @@ public class TaskResource
         if (shouldSummarize(uriInfo)) {
             futureTaskInfo = Futures.transform(futureTaskInfo, TaskInfo::summarize, directExecutor());
         }
+        else if (idlePipelines != null) {
+            futureTaskInfo = Futures.transform(futureTaskInfo, taskInfo -> withoutIdlePipelines(taskInfo, idlePipelines), directExecutor());
+        }
 
         // For hard timeout, add an additional time to max wait for thread scheduling contention and GC
         Duration timeout = new Duration(waitTime.toMillis() + ADDITIONAL_WAIT_TIME.toMillis(), MILLISECONDS);
@@ -185,7 +210,7 @@ public class TaskResource
     @ResourceSecurity(INTERNAL_ONLY)
     @GET
     @Path("{taskId}/status")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, JACKSON_SMILE})
     public void getTaskStatus(
             @PathParam("taskId") TaskId taskId,
             @HeaderParam(TRINO_CURRENT_VERSION) Long currentVersion,
@@ -220,7 +245,7 @@ public class TaskResource
     @ResourceSecurity(INTERNAL_ONLY)
     @GET
     @Path("{taskId}/dynamicfilters")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, JACKSON_SMILE})
     public VersionedDynamicFilterDomains acknowledgeAndGetNewDynamicFilterDomains(
             @PathParam("taskId") TaskId taskId,
             @HeaderParam(TRINO_CURRENT_VERSION) Long currentDynamicFiltersVersion,
@@ -234,7 +259,7 @@ public class TaskResource
     @ResourceSecurity(INTERNAL_ONLY)
     @DELETE
     @Path("{taskId}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, JACKSON_SMILE})
     public TaskInfo deleteTask(
             @PathParam("taskId") TaskId taskId,
             @QueryParam("abort") @DefaultValue("true") boolean abort,
@@ -361,6 +386,17 @@ public class TaskResource
         return uriInfo.getQueryParameters().containsKey("summarize");
     }
 
+    private static TaskInfo withoutIdlePipelines(TaskInfo taskInfo, String idlePipelines)
+    {
+        if (idlePipelines == null) {
+            return taskInfo;
+        }
+        // the requester already has the stats of these pipelines, keyed by pipeline id with the number of completed drivers
+        Map<Integer, Integer> completedDrivers = IDLE_PIPELINES_SPLITTER.split(idlePipelines).entrySet().stream()
+                .collect(toImmutableMap(entry -> Integer.parseInt(entry.getKey()), entry -> Integer.parseInt(entry.getValue())));
+        return taskInfo.withoutIdlePipelines(completedDrivers);
+    }
+
     private static Duration randomizeWaitTime(Duration waitTime)
     {
         // Randomize in [T/2, T], so wait is not near zero and the client-supplied max wait time is respected
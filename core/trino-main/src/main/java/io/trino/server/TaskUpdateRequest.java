@@ -19,7 +19,6 @@ import com.google.common.collect.ImmutableList;
 import io.trino.SessionRepresentation;
 import io.trino.execution.TaskSource;
 import io.trino.execution.buffer.OutputBuffers;
-import io.trino.sql.planner.PlanFragment;
 
 import java.util.List;
 import java.util.Map;
@@ -34,7 +33,8 @@ public class TaskUpdateRequest
     private final SessionRepresentation session;
     // extraCredentials is stored separately from SessionRepresentation to avoid being leaked
     private final Map<String, String> extraCredentials;
-    private final Optional<PlanFragment> fragment;
+    // encoded with the same encoding as the request, so that all tasks of a stage can share the bytes
+    private final Optional<byte[]> fragment;
     private final List<TaskSource> sources;
     private final OutputBuffers outputIds;
     private final OptionalInt totalPartitions;
@@ -43,7 +43,7 @@ public class TaskUpdateRequest
     public TaskUpdateRequest(
             @JsonProperty("session") SessionRepresentation session,
             @JsonProperty("extraCredentials") Map<String, String> extraCredentials,
-            @JsonProperty("fragment") Optional<PlanFragment> fragment,
+            @JsonProperty("fragment") Optional<byte[]> fragment,
             @JsonProperty("sources") List<TaskSource> sources,
             @JsonProperty("outputIds") OutputBuffers outputIds,
             @JsonProperty("totalPartitions") OptionalInt totalPartitions)
@@ -76,7 +76,7 @@ public class TaskUpdateRequest
     }
 
     @JsonProperty
-    public Optional<PlanFragment> getFragment()
+    public Optional<byte[]> getFragment()
     {
         return fragment;
     }
@@ -105,7 +105,7 @@ public class TaskUpdateRequest
         return toStringHelper(this)
                 .add("session", session)
                 .add("extraCredentials", extraCredentials.keySet())
-                .add("fragment", fragment)
+                .add("fragmentSize", fragment.map(bytes -> bytes.length))
                 .add("sources", sources)
                 .add("outputIds", outputIds)
                 .add("totalPartitions", totalPartitions)
@@ -0,0 +1,154 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.server.protocol;
+
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.SliceOutput;
+import io.trino.client.ColumnarData;
+import io.trino.spi.Page;
+import io.trino.spi.block.Block;
+import io.trino.spi.type.Type;
+
+import java.util.List;
+
+import static io.trino.client.ClientStandardTypes.BIGINT;
+import static io.trino.client.ClientStandardTypes.BOOLEAN;
+import static io.trino.client.ClientStandardTypes.DOUBLE;
+import static io.trino.client.ClientStandardTypes.INTEGER;
+import static io.trino.client.ClientStandardTypes.REAL;
+import static io.trino.client.ClientStandardTypes.SMALLINT;
+import static io.trino.client.ClientStandardTypes.TINYINT;
+import static java.lang.Math.toIntExact;
+
+/**
+ * Writes result pages in the {@link ColumnarData} encoding.
+ */
+final class ColumnarDataEncoder
+{
+    private ColumnarDataEncoder() {}
+
+    public static byte[] encode(List<Type> types, List<Page> pages)
+    {
+        int rowCount = pages.stream()
+                .mapToInt(Page::getPositionCount)
+                .sum();
+        long sizeInBytes = pages.stream()
+                .mapToLong(Page::getSizeInBytes)
+                .sum();
+
+        SliceOutput output = new DynamicSliceOutput(toIntExact(Integer.BYTES + sizeInBytes));
+        output.writeInt(rowCount);
+        for (int channel = 0; channel < types.size(); channel++) {
+            writeColumn(output, types.get(channel), channel, pages);
+        }
+        return output.slice().getBytes();
+    }
+
+    private static void writeColumn(SliceOutput output, Type type, int channel, List<Page> pages)
+    {
+        boolean hasNulls = false;
+        for (Page page : pages) {
+            hasNulls |= hasNull(page.getBlock(channel));
+        }
+
+        output.writeByte(hasNulls ? 1 : 0);
+        if (hasNulls) {
+            for (Page page : pages) {
+                Block block = page.getBlock(channel);
+                for (int position = 0; position < block.getPositionCount(); position++) {
+                    output.writeByte(block.isNull(position) ? 1 : 0);
+                }
+            }
+        }
+
+        String rawType = type.getTypeSignature().getBase();
+        if (ColumnarData.getFixedWidth(rawType) == 0) {
+            writeVariableWidthValues(output, type, channel, pages);
+        }
+        else {
+            writeFixedWidthValues(output, type, rawType, channel, pages);
+        }
+    }
+
+    private static void writeFixedWidthValues(SliceOutput output, Type type, String rawType, int channel, List<Page> pages)
+    {
+        for (Page page : pages) {
+            Block block = page.getBlock(channel);
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                boolean isNull = block.isNull(position);
+                switch (rawType) {
+                    case BOOLEAN:
+                        output.writeByte(!isNull && type.getBoolean(block, position) ? 1 : 0);
+                        break;
+                    case TINYINT:
+                        output.writeByte(isNull ? 0 : (int) type.getLong(block, position));
+                        break;
+                    case SMALLINT:
+                        output.writeShort(isNull ? 0 : (int) type.getLong(block, position));
+                        break;
+                    case INTEGER:
+                    case REAL:
+                        // real values are stored as int bits of the float value
+                        output.writeInt(isNull ? 0 : (int) type.getLong(block, position));
+                        break;
+                    case BIGINT:
+                        output.writeLong(isNull ? 0 : type.getLong(block, position));
+                        break;
+                    case DOUBLE:
+                        output.writeDouble(isNull ? 0 : type.getDouble(block, position));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported type for columnar data: " + type);
+                }
+            }
+        }
+    }
+
+    private static void writeVariableWidthValues(SliceOutput output, Type type, int channel, List<Page> pages)
+    {
+        int offset = 0;
+        output.writeInt(offset);
+        for (Page page : pages) {
+            Block block = page.getBlock(channel);
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                if (!block.isNull(position)) {
+                    offset += block.getSliceLength(position);
+                }
+                output.writeInt(offset);
+            }
+        }
+
+        for (Page page : pages) {
+            Block block = page.getBlock(channel);
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                if (!block.isNull(position)) {
+                    output.writeBytes(type.getSlice(block, position));
+                }
+            }
+        }
+    }
+
+    private static boolean hasNull(Block block)
+    {
+        if (!block.mayHaveNull()) {
+            return false;
+        }
+        for (int position = 0; position < block.getPositionCount(); position++) {
+            if (block.isNull(position)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
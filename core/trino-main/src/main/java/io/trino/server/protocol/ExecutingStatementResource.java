@@ -23,6 +23,7 @@ import io.airlift.units.Duration;
 import io.trino.Session;
 import io.trino.client.ProtocolHeaders;
 import io.trino.client.QueryResults;
+import io.trino.client.ResultSegment;
 import io.trino.execution.QueryManager;
 import io.trino.memory.context.SimpleLocalMemoryContext;
 import io.trino.operator.ExchangeClient;
@@ -85,6 +86,8 @@ public class ExecutingStatementResource
 
     private final QueryManager queryManager;
     private final ExchangeClientSupplier exchangeClientSupplier;
+    private final QueryResultCache resultCache;
+    private final ResultSegmentsMemoryLimit resultSegmentsMemoryLimit;
     private final BlockEncodingSerde blockEncodingSerde;
     private final BoundedExecutor responseExecutor;
     private final ScheduledExecutorService timeoutExecutor;
@@ -97,6 +100,8 @@ public class ExecutingStatementResource
     public ExecutingStatementResource(
             QueryManager queryManager,
             ExchangeClientSupplier exchangeClientSupplier,
+            QueryResultCache resultCache,
+            ResultSegmentsMemoryLimit resultSegmentsMemoryLimit,
             BlockEncodingSerde blockEncodingSerde,
             @ForStatementResource BoundedExecutor responseExecutor,
             @ForStatementResource ScheduledExecutorService timeoutExecutor,
@@ -104,6 +109,8 @@ public class ExecutingStatementResource
     {
         this.queryManager = requireNonNull(queryManager, "queryManager is null");
         this.exchangeClientSupplier = requireNonNull(exchangeClientSupplier, "exchangeClientSupplier is null");
+        this.resultCache = requireNonNull(resultCache, "resultCache is null");
+        this.resultSegmentsMemoryLimit = requireNonNull(resultSegmentsMemoryLimit, "resultSegmentsMemoryLimit is null");
         this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
         this.responseExecutor = requireNonNull(responseExecutor, "responseExecutor is null");
         this.timeoutExecutor = requireNonNull(timeoutExecutor, "timeoutExecutor is null");
@@ -120,6 +127,8 @@ public class ExecutingStatementResource
                             catch (NoSuchElementException e) {
                                 // query is no longer registered
                                 queries.remove(entry.getKey());
+                                // release the result segments the client has not acknowledged
+                                entry.getValue().dispose();
                             }
                         }
                     }
@@ -186,6 +195,8 @@ public class ExecutingStatementResource
                     querySlug,
                     queryManager,
                     exchangeClient,
+                    resultCache,
+                    resultSegmentsMemoryLimit,
                     responseExecutor,
                     timeoutExecutor,
                     blockEncodingSerde);
@@ -308,6 +319,31 @@ public class ExecutingStatementResource
         query.partialCancel(stage);
     }
 
+    @ResourceSecurity(PUBLIC)
+    @GET
+    @Path("segment/{queryId}/{slug}/{token}/{segment}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getResultSegment(
+            @PathParam("queryId") QueryId queryId,
+            @PathParam("slug") String slug,
+            @PathParam("token") long token,
+            @PathParam("segment") int segment)
+    {
+        Query query = queries.get(queryId);
+        if (query == null || !query.isSlugValid(slug, token)) {
+            throw badRequest(NOT_FOUND, "Query not found");
+        }
+
+        ResultSegment resultSegment = query.getResultSegment(token, segment)
+                .orElseThrow(() -> badRequest(NOT_FOUND, "Result segment not found"));
+
+        ResponseBuilder response = Response.ok(resultSegment);
+        if (!compressionEnabled) {
+            response.encoding("identity");
+        }
+        return response.build();
+    }
+
     private static WebApplicationException badRequest(Status status, String message)
     {
         throw new WebApplicationException(
@@ -13,10 +13,12 @@
  */
 package io.trino.server.protocol;
 
+import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Table;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.log.Logger;
@@ -32,6 +34,7 @@ import io.trino.client.NamedClientTypeSignature;
 import io.trino.client.ProtocolHeaders;
 import io.trino.client.QueryError;
 import io.trino.client.QueryResults;
+import io.trino.client.ResultSegment;
 import io.trino.client.RowFieldName;
 import io.trino.client.StageStats;
 import io.trino.client.StatementStats;
@@ -49,6 +52,7 @@ import io.trino.execution.buffer.PagesSerde;
 import io.trino.execution.buffer.PagesSerdeFactory;
 import io.trino.execution.buffer.SerializedPage;
 import io.trino.operator.ExchangeClient;
+import io.trino.server.protocol.QueryResultCache.CachedQueryResult;
 import io.trino.spi.ErrorCode;
 import io.trino.spi.Page;
 import io.trino.spi.QueryId;
@@ -62,6 +66,12 @@ import io.trino.spi.type.TypeSignature;
 import io.trino.spi.type.TypeSignatureParameter;
 import io.trino.sql.ExpressionFormatter;
 import io.trino.sql.analyzer.TypeSignatureTranslator;
+import io.trino.sql.planner.PlanFragment;
+import io.trino.sql.planner.optimizations.PlanNodeSearcher;
+import io.trino.sql.planner.plan.ExchangeNode;
+import io.trino.sql.planner.plan.RemoteSourceNode;
+import io.trino.sql.planner.plan.SortNode;
+import io.trino.sql.planner.plan.TopNNode;
 import io.trino.sql.tree.DataType;
 import io.trino.sql.tree.DateTimeDataType;
 import io.trino.sql.tree.GenericDataType;
@@ -79,7 +89,9 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -98,6 +110,7 @@ import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static io.airlift.concurrent.MoreFutures.addTimeout;
 import static io.trino.SystemSessionProperties.isExchangeCompressionEnabled;
+import static io.trino.SystemSessionProperties.isResultSegmentsEnabled;
 import static io.trino.execution.QueryState.FAILED;
 import static io.trino.server.protocol.QueryResultRows.queryResultRowsBuilder;
 import static io.trino.server.protocol.Slug.Context.EXECUTING_QUERY;
@@ -111,6 +124,7 @@ import static io.trino.spi.type.StandardTypes.TIME_WITH_TIME_ZONE;
 import static io.trino.util.Failures.toFailure;
 import static io.trino.util.MoreLists.mappedCopy;
 import static java.lang.String.format;
+import static java.util.Collections.emptyIterator;
 import static java.util.Objects.requireNonNull;
 
 @ThreadSafe
@@ -118,6 +132,9 @@ class Query
 {
     private static final Logger log = Logger.get(Query.class);
 
+    // maximum number of result segments returned in a single response
+    private static final int MAX_RESULT_SEGMENTS = 8;
+
     private final QueryManager queryManager;
     private final QueryId queryId;
     private final Session session;
@@ -126,11 +143,16 @@ class Query
     @GuardedBy("this")
     private final ExchangeClient exchangeClient;
 
+    private final QueryResultCache resultCache;
+    private final ResultSegmentsMemoryLimit resultSegmentsMemoryLimit;
+
     private final Executor resultsProcessorExecutor;
     private final ScheduledExecutorService timeoutExecutor;
 
+    private final PagesSerdeFactory serdeFactory;
     private final PagesSerde serde;
     private final boolean supportsParametricDateTime;
+    private final boolean segmentedResults;
 
     @GuardedBy("this")
     private OptionalLong nextToken = OptionalLong.of(0);
@@ -183,16 +205,42 @@ class Query
     @GuardedBy("this")
     private Long updateCount;
 
+    @GuardedBy("this")
+    private boolean servedFromResultCache;
+
+    @GuardedBy("this")
+    private Iterator<SerializedPage> cachedPages = emptyIterator();
+
+    @GuardedBy("this")
+    private Optional<String> resultCacheKey = Optional.empty();
+
+    // pages delivered to the client, recorded until they exceed the maximum size of a cached result
+    @GuardedBy("this")
+    private List<SerializedPage> resultPages;
+
+    @GuardedBy("this")
+    private long resultPagesSizeInBytes;
+
+    // result segments of the current and the previous results, by token and index. Segments are retained until
+    // the client requests the results after the next ones, so that failed segment fetches can be retried.
+    @GuardedBy("this")
+    private final Table<Long, Integer, List<SerializedPage>> resultSegments = HashBasedTable.create();
+
+    @GuardedBy("this")
+    private long resultSegmentsSizeInBytes;
+
     public static Query create(
             Session session,
             Slug slug,
             QueryManager queryManager,
             ExchangeClient exchangeClient,
+            QueryResultCache resultCache,
+            ResultSegmentsMemoryLimit resultSegmentsMemoryLimit,
             Executor dataProcessorExecutor,
             ScheduledExecutorService timeoutExecutor,
             BlockEncodingSerde blockEncodingSerde)
     {
-        Query result = new Query(session, slug, queryManager, exchangeClient, dataProcessorExecutor, timeoutExecutor, blockEncodingSerde);
+        Query result = new Query(session, slug, queryManager, exchangeClient, resultCache, resultSegmentsMemoryLimit, dataProcessorExecutor, timeoutExecutor, blockEncodingSerde);
 
         result.queryManager.addOutputInfoListener(result.getQueryId(), result::setQueryOutputInfo);
 
@@ -211,6 +259,8 @@ class Query
             Slug slug,
             QueryManager queryManager,
             ExchangeClient exchangeClient,
+            QueryResultCache resultCache,
+            ResultSegmentsMemoryLimit resultSegmentsMemoryLimit,
             Executor resultsProcessorExecutor,
             ScheduledExecutorService timeoutExecutor,
             BlockEncodingSerde blockEncodingSerde)
@@ -219,6 +269,8 @@ class Query
         requireNonNull(slug, "slug is null");
         requireNonNull(queryManager, "queryManager is null");
         requireNonNull(exchangeClient, "exchangeClient is null");
+        requireNonNull(resultCache, "resultCache is null");
+        requireNonNull(resultSegmentsMemoryLimit, "resultSegmentsMemoryLimit is null");
         requireNonNull(resultsProcessorExecutor, "resultsProcessorExecutor is null");
         requireNonNull(timeoutExecutor, "timeoutExecutor is null");
         requireNonNull(blockEncodingSerde, "serde is null");
@@ -229,10 +281,14 @@ class Query
         this.session = session;
         this.slug = slug;
         this.exchangeClient = exchangeClient;
+        this.resultCache = resultCache;
+        this.resultSegmentsMemoryLimit = resultSegmentsMemoryLimit;
         this.resultsProcessorExecutor = resultsProcessorExecutor;
         this.timeoutExecutor = timeoutExecutor;
         this.supportsParametricDateTime = session.getClientCapabilities().contains(ClientCapabilities.PARAMETRIC_DATETIME.toString());
-        serde = new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session)).createPagesSerde();
+        this.segmentedResults = session.getClientCapabilities().contains(ClientCapabilities.SEGMENTED_DATA.toString()) && isResultSegmentsEnabled(session);
+        serdeFactory = new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session));
+        serde = serdeFactory.createPagesSerde();
     }
 
     public void cancel()
@@ -255,6 +311,9 @@ class Query
     public synchronized void dispose()
     {
         exchangeClient.close();
+        resultSegments.clear();
+        resultSegmentsMemoryLimit.free(resultSegmentsSizeInBytes);
+        resultSegmentsSizeInBytes = 0;
     }
 
     public QueryId getQueryId()
@@ -416,8 +475,40 @@ class Query
         QueryInfo queryInfo = queryManager.getFullQueryInfo(queryId);
         queryManager.recordHeartbeat(queryId);
 
+        // output info listeners are notified asynchronously, so a query served from the result cache
+        // can be observed as done before the listener was called
+        if (columns == null && queryInfo.getState().isDone()) {
+            queryManager.getQueryOutputInfo(queryId).ifPresent(this::setQueryOutputInfo);
+        }
+
         // fetch result data from exchange
-        QueryResultRows resultRows = removePagesFromExchange(queryInfo, targetResultSize.toBytes());
+        QueryResultRows resultRows;
+        List<URI> segmentUris = null;
+        if (isSegmentedResult(queryInfo)) {
+            // requesting this token acknowledges the previous results, whose segments may still be downloading,
+            // so only the segments of the results before them are released
+            for (Long segmentToken : ImmutableList.copyOf(resultSegments.rowKeySet())) {
+                if (segmentToken < token - 1) {
+                    resultSegments.rowMap().remove(segmentToken).values().forEach(this::releaseResultSegment);
+                }
+            }
+            List<List<SerializedPage>> segments = removeSegmentsFromExchange(targetResultSize.toBytes(), resultSegmentsMemoryLimit.getAvailableBytes(resultSegmentsSizeInBytes));
+            ImmutableList.Builder<URI> uris = ImmutableList.builder();
+            for (int index = 0; index < segments.size(); index++) {
+                long segmentSizeInBytes = getRetainedSizeInBytes(segments.get(index));
+                resultSegments.put(token, index, segments.get(index));
+                resultSegmentsSizeInBytes += segmentSizeInBytes;
+                resultSegmentsMemoryLimit.reserve(segmentSizeInBytes);
+                uris.add(createResultSegmentUri(uriInfo, token, index));
+            }
+            segmentUris = uris.build();
+            resultRows = queryResultRowsBuilder(session)
+                    .withColumnsAndTypes(columns, types)
+                    .build();
+        }
+        else {
+            resultRows = removePagesFromExchange(queryInfo, targetResultSize.toBytes());
+        }
 
         if ((queryInfo.getUpdateType() != null) && (updateCount == null)) {
             // grab the update count for non-queries
@@ -425,18 +516,22 @@ class Query
             updateCount = updatedRowsCount.orElse(null);
         }
 
+        // encode the data in the binary columnar format if the client supports it
+        Optional<byte[]> columnarData = resultRows.getColumnarData();
+
         closeExchangeClientIfNecessary(queryInfo);
 
         // advance next token
         // only return a next if
         // (1) the query is not done AND the query state is not FAILED
         //   OR
-        // (2)there is more data to send (due to buffering)
-        if ((!queryInfo.isFinalQueryInfo() && queryInfo.getState() != FAILED) || !exchangeClient.isClosed()) {
+        // (2)there is more data to send (due to buffering or the result cache)
+        if ((!queryInfo.isFinalQueryInfo() && queryInfo.getState() != FAILED) || !exchangeClient.isClosed() || cachedPages.hasNext()) {
             nextToken = OptionalLong.of(token + 1);
         }
         else {
             nextToken = OptionalLong.empty();
+            cacheResultIfPossible(queryInfo);
         }
 
         URI nextResultsUri = null;
@@ -475,7 +570,10 @@ class Query
                 partialCancelUri,
                 nextResultsUri,
                 resultRows.getColumns().orElse(null),
-                resultRows.isEmpty() ? null : resultRows, // client excepts null that indicates "no data"
+                (resultRows.isEmpty() || columnarData.isPresent()) ? null : resultRows, // client excepts null that indicates "no data"
+                columnarData.orElse(null),
+                segmentUris,
+                (segmentUris == null) ? null : isOrderedResult(queryInfo),
                 toStatementStats(queryInfo),
                 toQueryError(queryInfo, typeSerializationException),
                 mappedCopy(queryInfo.getWarnings(), Query::toClientWarning),
@@ -492,7 +590,7 @@ class Query
     private synchronized QueryResultRows removePagesFromExchange(QueryInfo queryInfo, long targetResultBytes)
     {
         // For queries with no output, return a fake boolean result for clients that require it.
-        if ((queryInfo.getState() == QueryState.FINISHED) && queryInfo.getOutputStage().isEmpty()) {
+        if ((queryInfo.getState() == QueryState.FINISHED) && queryInfo.getOutputStage().isEmpty() && !servedFromResultCache) {
             return queryResultRowsBuilder(session)
                     .withSingleBooleanValue(createColumn("result", BooleanType.BOOLEAN), true)
                     .build();
@@ -512,10 +610,11 @@ class Query
         try (PagesSerde.PagesSerdeContext context = serde.newContext()) {
             long bytes = 0;
             while (bytes < targetResultBytes) {
-                SerializedPage serializedPage = exchangeClient.pollPage();
+                SerializedPage serializedPage = pollPage();
                 if (serializedPage == null) {
                     break;
                 }
+                recordResultPage(serializedPage);
 
                 Page page = serde.deserialize(context, serializedPage);
                 bytes += page.getLogicalSizeInBytes();
@@ -529,6 +628,137 @@ class Query
         return resultBuilder.build();
     }
 
+    private synchronized boolean isSegmentedResult(QueryInfo queryInfo)
+    {
+        // results without an output stage are returned inline, as there is little data
+        return segmentedResults &&
+                queryInfo.getUpdateType() == null &&
+                columns != null &&
+                (queryInfo.getOutputStage().isPresent() || servedFromResultCache);
+    }
+
+    private synchronized List<List<SerializedPage>> removeSegmentsFromExchange(long targetSegmentBytes, long availableBytes)
+    {
+        // Pages are removed from the exchange while holding the lock for the same reason as in removePagesFromExchange,
+        // but they are only deserialized when the client fetches the segment
+        ImmutableList.Builder<List<SerializedPage>> segments = ImmutableList.builder();
+        long retainedBytes = 0;
+        for (int segment = 0; segment < MAX_RESULT_SEGMENTS; segment++) {
+            // the first segment is always created, so that the client makes progress while previous segments are retained
+            if (segment > 0 && retainedBytes >= availableBytes) {
+                break;
+            }
+            ImmutableList.Builder<SerializedPage> pages = ImmutableList.builder();
+            long bytes = 0;
+            while (bytes < targetSegmentBytes) {
+                SerializedPage serializedPage = pollPage();
+                if (serializedPage == null) {
+                    break;
+                }
+                recordResultPage(serializedPage);
+                bytes += serializedPage.getUncompressedSizeInBytes();
+                retainedBytes += serializedPage.getRetainedSizeInBytes();
+                pages.add(serializedPage);
+            }
+            if (bytes == 0) {
+                break;
+            }
+            segments.add(pages.build());
+        }
+        return segments.build();
+    }
+
+    public Optional<ResultSegment> getResultSegment(long token, int index)
+    {
+        List<SerializedPage> serializedPages;
+        QueryResultRows.Builder resultBuilder;
+        synchronized (this) {
+            serializedPages = resultSegments.get(token, index);
+            if (serializedPages == null) {
+                return Optional.empty();
+            }
+            resultBuilder = queryResultRowsBuilder(session)
+                    .withExceptionConsumer(this::handleSerializationException)
+                    .withColumnsAndTypes(columns, types);
+        }
+
+        // the segment is decoded outside of the lock, so that segments are served concurrently
+        PagesSerde serde = serdeFactory.createPagesSerde();
+        try (PagesSerde.PagesSerdeContext context = serde.newContext()) {
+            for (SerializedPage serializedPage : serializedPages) {
+                resultBuilder.addPage(serde.deserialize(context, serializedPage));
+            }
+        }
+        QueryResultRows resultRows = resultBuilder.build();
+
+        Optional<byte[]> columnarData = resultRows.getColumnarData();
+        if (columnarData.isPresent()) {
+            return Optional.of(new ResultSegment(null, columnarData.get()));
+        }
+        return Optional.of(new ResultSegment(resultRows, null));
+    }
+
+    private synchronized void releaseResultSegment(List<SerializedPage> serializedPages)
+    {
+        long segmentSizeInBytes = getRetainedSizeInBytes(serializedPages);
+        resultSegmentsSizeInBytes -= segmentSizeInBytes;
+        resultSegmentsMemoryLimit.free(segmentSizeInBytes);
+    }
+
+    private static long getRetainedSizeInBytes(List<SerializedPage> serializedPages)
+    {
+        return serializedPages.stream()
+                .mapToLong(SerializedPage::getRetainedSizeInBytes)
+                .sum();
+    }
+
+    private static boolean isOrderedResult(QueryInfo queryInfo)
+    {
+        // the order of the rows only matters for queries with an ORDER BY in the output fragment
+        PlanFragment plan = queryInfo.getOutputStage()
+                .map(StageInfo::getPlan)
+                .orElse(null);
+        if (plan == null) {
+            return true;
+        }
+        return PlanNodeSearcher.searchFrom(plan.getRoot())
+                .where(node -> node instanceof SortNode ||
+                        node instanceof TopNNode ||
+                        (node instanceof ExchangeNode && ((ExchangeNode) node).getOrderingScheme().isPresent()) ||
+                        (node instanceof RemoteSourceNode && ((RemoteSourceNode) node).getOrderingScheme().isPresent()))
+                .matches();
+    }
+
+    private synchronized SerializedPage pollPage()
+    {
+        if (servedFromResultCache) {
+            return cachedPages.hasNext() ? cachedPages.next() : null;
+        }
+        return exchangeClient.pollPage();
+    }
+
+    private synchronized void recordResultPage(SerializedPage page)
+    {
+        if (resultPages == null) {
+            return;
+        }
+        resultPagesSizeInBytes += page.getSizeInBytes();
+        if (resultPagesSizeInBytes > resultCache.getMaxEntrySizeInBytes()) {
+            // too large to be cached, so stop retaining the pages
+            resultPages = null;
+            return;
+        }
+        resultPages.add(page);
+    }
+
+    private synchronized void cacheResultIfPossible(QueryInfo queryInfo)
+    {
+        if (resultPages != null && queryInfo.getState() == QueryState.FINISHED && typeSerializationException.isEmpty()) {
+            resultCache.put(resultCacheKey.get(), resultPages);
+        }
+        resultPages = null;
+    }
+
     private synchronized void closeExchangeClientIfNecessary(QueryInfo queryInfo)
     {
         // Close the exchange client if the query has failed, or if the query
@@ -569,6 +799,18 @@ class Query
             }
             columns = list.build();
             types = outputInfo.getColumnTypes();
+
+            Optional<CachedQueryResult> cachedResult = outputInfo.getCachedResult();
+            if (cachedResult.isPresent()) {
+                // the query did not schedule any stages, so there is nothing to fetch
+                servedFromResultCache = true;
+                cachedPages = cachedResult.get().getPages().iterator();
+                exchangeClient.close();
+            }
+            resultCacheKey = outputInfo.getResultCacheKey();
+            if (resultCacheKey.isPresent()) {
+                resultPages = new ArrayList<>();
+            }
         }
 
         for (URI outputLocation : outputInfo.getBufferLocations()) {
@@ -598,6 +840,18 @@ class Query
                 .build();
     }
 
+    private URI createResultSegmentUri(UriInfo uriInfo, long token, int index)
+    {
+        return uriInfo.getBaseUriBuilder()
+                .replacePath("/v1/statement/executing/segment")
+                .path(queryId.toString())
+                .path(slug.makeSlug(EXECUTING_QUERY, token))
+                .path(String.valueOf(token))
+                .path(String.valueOf(index))
+                .replaceQuery("")
+                .build();
+    }
+
     private URI createPartialCancelUri(int stage, UriInfo uriInfo, long nextToken)
     {
         return uriInfo.getBaseUriBuilder()
@@ -0,0 +1,336 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.server.protocol;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.airlift.jmx.CacheStatsMBean;
+import io.airlift.json.JsonCodec;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import io.airlift.stats.CounterStat;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import io.trino.Session;
+import io.trino.execution.QueryManagerConfig;
+import io.trino.execution.buffer.PageCodecMarker.MarkerSet;
+import io.trino.execution.buffer.SerializedPage;
+import io.trino.metadata.Metadata;
+import io.trino.metadata.ResolvedFunction;
+import io.trino.sql.planner.plan.AggregationNode;
+import io.trino.sql.planner.plan.IndexSourceNode;
+import io.trino.sql.planner.plan.PlanNode;
+import io.trino.sql.planner.plan.TableScanNode;
+import io.trino.sql.planner.plan.WindowNode;
+import io.trino.sql.tree.Cast;
+import io.trino.sql.tree.Expression;
+import io.trino.sql.tree.FunctionCall;
+import io.trino.sql.tree.Node;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static io.trino.SystemSessionProperties.isQueryResultCacheEnabled;
+import static io.trino.sql.analyzer.TypeSignatureTranslator.toTypeSignature;
+import static io.trino.sql.planner.DeterminismEvaluator.isDeterministic;
+import static io.trino.sql.planner.ExpressionExtractor.extractExpressionsNonRecursive;
+import static io.trino.sql.planner.optimizations.PlanNodeSearcher.searchFrom;
+import static io.trino.sql.util.AstUtils.preOrder;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Results of finished queries, so that identical deterministic queries can be answered
+ * without scheduling any stages. Results are keyed by the plan of the query, the versions of
+ * the tables it reads, and the parts of the session the results may depend on. The pages
+ * are kept off-heap in the serialized form they were received in from the output stage.
+ */
+@ThreadSafe
+public class QueryResultCache
+{
+    // functions depending on the start time of the query, which is not part of the key
+    private static final Set<String> START_TIME_FUNCTIONS = ImmutableSet.of(
+            "now",
+            "current_date",
+            "$current_time",
+            "$current_timestamp",
+            "$localtime",
+            "$localtimestamp",
+            "at_timezone");
+
+    private final Metadata metadata;
+    private final JsonCodec<PlanNode> planCodec;
+    private final long maxEntrySizeInBytes;
+    private final Cache<String, CachedQueryResult> cache;
+    private final CacheStatsMBean cacheStats;
+    private final CounterStat savedBytes = new CounterStat();
+    private final CounterStat rejectedResults = new CounterStat();
+
+    @Inject
+    public QueryResultCache(Metadata metadata, JsonCodec<PlanNode> planCodec, QueryManagerConfig config)
+    {
+        this(
+                metadata,
+                planCodec,
+                requireNonNull(config, "config is null").getResultCacheMaxSize(),
+                config.getResultCacheMaxEntrySize(),
+                config.getResultCacheTtl(),
+                Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    QueryResultCache(Metadata metadata, JsonCodec<PlanNode> planCodec, DataSize maxSize, DataSize maxEntrySize, Duration ttl, Ticker ticker)
+    {
+        this.metadata = requireNonNull(metadata, "metadata is null");
+        this.planCodec = requireNonNull(planCodec, "planCodec is null");
+        this.maxEntrySizeInBytes = requireNonNull(maxEntrySize, "maxEntrySize is null").toBytes();
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(requireNonNull(maxSize, "maxSize is null").toBytes())
+                .weigher((String key, CachedQueryResult result) -> (int) Math.min(result.getRetainedSizeInBytes(), Integer.MAX_VALUE))
+                .expireAfterWrite(requireNonNull(ttl, "ttl is null").toMillis(), MILLISECONDS)
+                .ticker(requireNonNull(ticker, "ticker is null"))
+                .recordStats()
+                .build();
+        this.cacheStats = new CacheStatsMBean(cache);
+    }
+
+    /**
+     * Returns the key the results of the query can be cached under, or empty if the results
+     * of the query must not be reused.
+     */
+    public Optional<String> getCacheKey(Session session, PlanNode root)
+    {
+        if (!isQueryResultCacheEnabled(session)) {
+            return Optional.empty();
+        }
+
+        Hasher hasher = Hashing.sha256().newHasher();
+        for (PlanNode node : searchFrom(root).findAll()) {
+            if (!isDeterministicNode(node)) {
+                return Optional.empty();
+            }
+            if (node instanceof TableScanNode) {
+                OptionalLong version = metadata.getTableVersion(session, ((TableScanNode) node).getTable());
+                if (version.isEmpty()) {
+                    return Optional.empty();
+                }
+                hasher.putLong(version.getAsLong());
+            }
+        }
+
+        hasher.putString(planCodec.toJson(root), UTF_8);
+        hasher.putString(session.getUser(), UTF_8);
+        hasher.putString(session.getTimeZoneKey().getId(), UTF_8);
+        hasher.putString(session.getLocale().toLanguageTag(), UTF_8);
+        hasher.putString(new TreeMap<>(session.getSystemProperties()).toString(), UTF_8);
+        Map<String, Map<String, String>> connectorProperties = new TreeMap<>();
+        session.getConnectorProperties().forEach((catalog, properties) -> connectorProperties.put(catalog.getCatalogName(), new TreeMap<>(properties)));
+        hasher.putString(connectorProperties.toString(), UTF_8);
+        return Optional.of(hasher.hash().toString());
+    }
+
+    private boolean isDeterministicNode(PlanNode node)
+    {
+        if (node instanceof IndexSourceNode) {
+            return false;
+        }
+        if (node instanceof AggregationNode) {
+            for (AggregationNode.Aggregation aggregation : ((AggregationNode) node).getAggregations().values()) {
+                if (!isDeterministicFunction(aggregation.getResolvedFunction())) {
+                    return false;
+                }
+            }
+        }
+        if (node instanceof WindowNode) {
+            for (WindowNode.Function function : ((WindowNode) node).getWindowFunctions().values()) {
+                if (!isDeterministicFunction(function.getResolvedFunction())) {
+                    return false;
+                }
+            }
+        }
+        for (Expression expression : extractExpressionsNonRecursive(node)) {
+            if (!isDeterministic(expression, metadata) || dependsOnStartTime(expression)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isDeterministicFunction(ResolvedFunction function)
+    {
+        return metadata.getFunctionMetadata(function).isDeterministic() && !START_TIME_FUNCTIONS.contains(function.getSignature().getName());
+    }
+
+    private static boolean dependsOnStartTime(Expression expression)
+    {
+        return preOrder(expression).anyMatch(QueryResultCache::dependsOnStartTime);
+    }
+
+    private static boolean dependsOnStartTime(Node node)
+    {
+        if (node instanceof FunctionCall) {
+            return START_TIME_FUNCTIONS.contains(ResolvedFunction.extractFunctionName(((FunctionCall) node).getName()));
+        }
+        if (node instanceof Cast) {
+            // casts between time and timestamp types use the current date
+            return toTypeSignature(((Cast) node).getType()).getBase().startsWith("time");
+        }
+        return false;
+    }
+
+    public Optional<CachedQueryResult> get(String key)
+    {
+        CachedQueryResult result = cache.getIfPresent(key);
+        if (result == null) {
+            return Optional.empty();
+        }
+        savedBytes.update(result.getSizeInBytes());
+        return Optional.of(result);
+    }
+
+    /**
+     * Caches the results of a successfully finished query. The pages are copied off-heap.
+     * Returns false if the results are too large to be cached.
+     */
+    public boolean put(String key, List<SerializedPage> pages)
+    {
+        long sizeInBytes = 0;
+        for (SerializedPage page : pages) {
+            sizeInBytes += page.getSizeInBytes();
+        }
+        if (sizeInBytes > maxEntrySizeInBytes) {
+            rejectedResults.update(1);
+            return false;
+        }
+
+        ImmutableList.Builder<SerializedPage> offHeapPages = ImmutableList.builderWithExpectedSize(pages.size());
+        for (SerializedPage page : pages) {
+            offHeapPages.add(copyPage(page, Slices.allocateDirect(page.getSizeInBytes())));
+        }
+        cache.put(key, new CachedQueryResult(offHeapPages.build(), sizeInBytes));
+        return true;
+    }
+
+    private static SerializedPage copyPage(SerializedPage page, Slice target)
+    {
+        target.setBytes(0, page.getSlice());
+        return new SerializedPage(target, MarkerSet.fromByteValue(page.getPageCodecMarkers()), page.getPositionCount(), page.getUncompressedSizeInBytes());
+    }
+
+    public long getMaxEntrySizeInBytes()
+    {
+        return maxEntrySizeInBytes;
+    }
+
+    @Managed
+    public long getSize()
+    {
+        return cache.size();
+    }
+
+    @Managed
+    public long getRetainedSizeInBytes()
+    {
+        long size = 0;
+        for (CachedQueryResult result : cache.asMap().values()) {
+            size += result.getRetainedSizeInBytes();
+        }
+        return size;
+    }
+
+    @Managed
+    public double getHitRate()
+    {
+        return cache.stats().hitRate();
+    }
+
+    @Managed
+    @Nested
+    public CacheStatsMBean getCacheStats()
+    {
+        return cacheStats;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getSavedBytes()
+    {
+        return savedBytes;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRejectedResults()
+    {
+        return rejectedResults;
+    }
+
+    @Managed
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+
+    public static class CachedQueryResult
+    {
+        private final List<SerializedPage> pages;
+        private final long sizeInBytes;
+
+        private CachedQueryResult(List<SerializedPage> pages, long sizeInBytes)
+        {
+            this.pages = ImmutableList.copyOf(requireNonNull(pages, "pages is null"));
+            this.sizeInBytes = sizeInBytes;
+        }
+
+        /**
+         * Returns a view of the cached pages which copies each page to the heap when it is accessed,
+         * as compressed pages can only be deserialized from heap memory.
+         */
+        public List<SerializedPage> getPages()
+        {
+            return Lists.transform(pages, page -> copyPage(page, Slices.allocate(page.getSizeInBytes())));
+        }
+
+        public long getSizeInBytes()
+        {
+            return sizeInBytes;
+        }
+
+        public long getRetainedSizeInBytes()
+        {
+            long size = 0;
+            for (SerializedPage page : pages) {
+                size += page.getRetainedSizeInBytes();
+            }
+            return size;
+        }
+    }
+}
@@ -19,6 +19,7 @@ import com.google.common.collect.ImmutableList;
 import io.trino.Session;
 import io.trino.client.ClientCapabilities;
 import io.trino.client.Column;
+import io.trino.client.ColumnarData;
 import io.trino.spi.Page;
 import io.trino.spi.TrinoException;
 import io.trino.spi.block.Block;
@@ -71,6 +72,7 @@ public class QueryResultRows
     private final Optional<Consumer<Throwable>> exceptionConsumer;
     private final long totalRows;
     private final boolean supportsParametricDateTime;
+    private final boolean supportsColumnarData;
 
     private Page currentPage;
     private int rowPosition = -1;
@@ -85,6 +87,7 @@ public class QueryResultRows
         this.totalRows = countRows(pages);
         this.currentPage = this.pages.pollFirst();
         this.supportsParametricDateTime = session.getClientCapabilities().contains(ClientCapabilities.PARAMETRIC_DATETIME.toString());
+        this.supportsColumnarData = session.getClientCapabilities().contains(ClientCapabilities.COLUMNAR_DATA.toString());
 
         verify(totalRows == 0 || (totalRows > 0 && columns.isPresent()), "data present without columns and types");
     }
@@ -129,6 +132,27 @@ public class QueryResultRows
         return Optional.ofNullable(value).map(Number::longValue);
     }
 
+    /**
+     * Returns the rows in the {@link ColumnarData} encoding, if the client supports it and the types of all columns can be encoded.
+     * Must be called before the rows are iterated.
+     */
+    public Optional<byte[]> getColumnarData()
+    {
+        if (!supportsColumnarData || totalRows == 0 || !ColumnarData.isSupported(getColumns().orElseThrow())) {
+            return Optional.empty();
+        }
+        verify(rowPosition == -1, "rows have already been iterated");
+
+        List<Type> types = columns.orElseThrow().stream()
+                .map(ColumnAndType::getType)
+                .collect(toImmutableList());
+        List<Page> pages = ImmutableList.<Page>builder()
+                .add(currentPage)
+                .addAll(this.pages)
+                .build();
+        return Optional.of(ColumnarDataEncoder.encode(types, pages));
+    }
+
     @Override
     protected List<Object> computeNext()
     {
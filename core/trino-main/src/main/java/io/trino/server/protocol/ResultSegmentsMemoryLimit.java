@@ -0,0 +1,86 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.server.protocol;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.airlift.units.DataSize;
+import io.trino.execution.QueryManagerConfig;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bounds the size of the result segments retained on the coordinator until clients acknowledge them,
+ * both for each query and for all queries. A response always includes at least one segment, so that
+ * clients make progress, and the retained size can exceed the limits by the size of one segment per query.
+ */
+@ThreadSafe
+public class ResultSegmentsMemoryLimit
+{
+    private final long maxRetainedSizeInBytes;
+    private final long maxRetainedSizePerQueryInBytes;
+
+    @GuardedBy("this")
+    private long retainedSizeInBytes;
+
+    @Inject
+    public ResultSegmentsMemoryLimit(QueryManagerConfig config)
+    {
+        this(
+                requireNonNull(config, "config is null").getResultSegmentsMaxRetainedSize(),
+                config.getResultSegmentsMaxRetainedSizePerQuery());
+    }
+
+    @VisibleForTesting
+    ResultSegmentsMemoryLimit(DataSize maxRetainedSize, DataSize maxRetainedSizePerQuery)
+    {
+        this.maxRetainedSizeInBytes = requireNonNull(maxRetainedSize, "maxRetainedSize is null").toBytes();
+        this.maxRetainedSizePerQueryInBytes = requireNonNull(maxRetainedSizePerQuery, "maxRetainedSizePerQuery is null").toBytes();
+    }
+
+    /**
+     * Returns the size of the segments that a query retaining the given size can add.
+     */
+    public synchronized long getAvailableBytes(long queryRetainedSizeInBytes)
+    {
+        return max(0, min(maxRetainedSizePerQueryInBytes - queryRetainedSizeInBytes, maxRetainedSizeInBytes - retainedSizeInBytes));
+    }
+
+    public synchronized void reserve(long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        retainedSizeInBytes += bytes;
+    }
+
+    public synchronized void free(long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        checkState(retainedSizeInBytes >= bytes, "more bytes freed than reserved");
+        retainedSizeInBytes -= bytes;
+    }
+
+    @Managed
+    public synchronized long getRetainedSizeInBytes()
+    {
+        return retainedSizeInBytes;
+    }
+}
@@ -18,8 +18,6 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
-import com.google.common.net.HttpHeaders;
-import com.google.common.net.MediaType;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -28,7 +26,6 @@ import io.airlift.http.client.FullJsonResponseHandler.JsonResponse;
 import io.airlift.http.client.HttpClient;
 import io.airlift.http.client.HttpUriBuilder;
 import io.airlift.http.client.Request;
-import io.airlift.json.JsonCodec;
 import io.airlift.log.Logger;
 import io.airlift.units.Duration;
 import io.trino.Session;
@@ -76,14 +73,16 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.net.HttpHeaders.ACCEPT;
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
-import static io.airlift.http.client.FullJsonResponseHandler.createFullJsonResponseHandler;
 import static io.airlift.http.client.HttpUriBuilder.uriBuilderFrom;
 import static io.airlift.http.client.Request.Builder.prepareDelete;
 import static io.airlift.http.client.Request.Builder.preparePost;
@@ -92,6 +91,7 @@ import static io.trino.execution.TaskInfo.createInitialTask;
 import static io.trino.execution.TaskState.ABORTED;
 import static io.trino.execution.TaskState.FAILED;
 import static io.trino.execution.TaskStatus.failWith;
+import static io.trino.server.InternalHeaders.TRINO_IDLE_PIPELINES;
 import static io.trino.server.remotetask.RequestErrorTracker.logError;
 import static io.trino.util.Failures.toFailure;
 import static java.util.Objects.requireNonNull;
@@ -109,6 +109,7 @@ public final class HttpRemoteTask
     private final Session session;
     private final String nodeId;
     private final PlanFragment planFragment;
+    private final Function<RemoteTaskEncoding, byte[]> encodedPlanFragment;
     private final OptionalInt totalPartitions;
 
     private final AtomicLong nextSplitId = new AtomicLong();
@@ -147,8 +148,11 @@ public final class HttpRemoteTask
     private final Executor executor;
     private final ScheduledExecutorService errorScheduledExecutor;
 
-    private final JsonCodec<TaskInfo> taskInfoCodec;
-    private final JsonCodec<TaskUpdateRequest> taskUpdateRequestCodec;
+    private final RemoteTaskCodec<TaskInfo> taskInfoCodec;
+    private final RemoteTaskCodec<TaskUpdateRequest> taskUpdateRequestCodec;
+    // workers that do not support the configured encoding get task updates as JSON
+    @GuardedBy("this")
+    private RemoteTaskEncoding updateEncoding;
 
     private final RequestErrorTracker updateErrorTracker;
 
@@ -165,6 +169,7 @@ public final class HttpRemoteTask
             String nodeId,
             URI location,
             PlanFragment planFragment,
+            Function<RemoteTaskEncoding, byte[]> encodedPlanFragment,
             Multimap<PlanNodeId, Split> initialSplits,
             OptionalInt totalPartitions,
             OutputBuffers outputBuffers,
@@ -176,10 +181,10 @@ public final class HttpRemoteTask
             Duration taskStatusRefreshMaxWait,
             Duration taskInfoUpdateInterval,
             boolean summarizeTaskInfo,
-            JsonCodec<TaskStatus> taskStatusCodec,
-            JsonCodec<VersionedDynamicFilterDomains> dynamicFilterDomainsCodec,
-            JsonCodec<TaskInfo> taskInfoCodec,
-            JsonCodec<TaskUpdateRequest> taskUpdateRequestCodec,
+            RemoteTaskCodec<TaskStatus> taskStatusCodec,
+            RemoteTaskCodec<VersionedDynamicFilterDomains> dynamicFilterDomainsCodec,
+            RemoteTaskCodec<TaskInfo> taskInfoCodec,
+            RemoteTaskCodec<TaskUpdateRequest> taskUpdateRequestCodec,
             PartitionedSplitCountTracker partitionedSplitCountTracker,
             RemoteTaskStats stats,
             DynamicFilterService dynamicFilterService)
@@ -189,6 +194,7 @@ public final class HttpRemoteTask
         requireNonNull(nodeId, "nodeId is null");
         requireNonNull(location, "location is null");
         requireNonNull(planFragment, "planFragment is null");
+        requireNonNull(encodedPlanFragment, "encodedPlanFragment is null");
         requireNonNull(totalPartitions, "totalPartitions is null");
         requireNonNull(outputBuffers, "outputBuffers is null");
         requireNonNull(httpClient, "httpClient is null");
@@ -204,6 +210,7 @@ public final class HttpRemoteTask
             this.session = session;
             this.nodeId = nodeId;
             this.planFragment = planFragment;
+            this.encodedPlanFragment = encodedPlanFragment;
             this.totalPartitions = totalPartitions;
             this.outputBuffers.set(outputBuffers);
             this.httpClient = httpClient;
@@ -212,6 +219,7 @@ public final class HttpRemoteTask
             this.summarizeTaskInfo = summarizeTaskInfo;
             this.taskInfoCodec = taskInfoCodec;
             this.taskUpdateRequestCodec = taskUpdateRequestCodec;
+            this.updateEncoding = taskUpdateRequestCodec.getEncoding();
             this.updateErrorTracker = new RequestErrorTracker(taskId, location, maxErrorDuration, errorScheduledExecutor, "updating task");
             this.partitionedSplitCountTracker = requireNonNull(partitionedSplitCountTracker, "partitionedSplitCountTracker is null");
             this.stats = stats;
@@ -522,8 +530,8 @@ public final class HttpRemoteTask
 
         List<TaskSource> sources = getSources();
 
-        // Workers don't need the embedded JSON representation when the fragment is sent
-        Optional<PlanFragment> fragment = sendPlan.get() ? Optional.of(planFragment.withoutEmbeddedJsonRepresentation()) : Optional.empty();
+        // the fragment is decoded by the worker with the codec for the content type of the request
+        Optional<byte[]> fragment = sendPlan.get() ? Optional.of(encodedPlanFragment.apply(updateEncoding)) : Optional.empty();
         TaskUpdateRequest updateRequest = new TaskUpdateRequest(
                 session.toSessionRepresentation(),
                 session.getIdentity().getExtraCredentials(),
@@ -531,21 +539,23 @@ public final class HttpRemoteTask
                 sources,
                 outputBuffers.get(),
                 totalPartitions);
-        byte[] taskUpdateRequestJson = taskUpdateRequestCodec.toJsonBytes(updateRequest);
+        byte[] taskUpdateRequestBytes = taskUpdateRequestCodec.encode(updateRequest, updateEncoding);
         if (fragment.isPresent()) {
-            stats.updateWithPlanBytes(taskUpdateRequestJson.length);
+            stats.updateWithPlanBytes(taskUpdateRequestBytes.length);
         }
 
         HttpUriBuilder uriBuilder = getHttpUriBuilder(taskStatus);
-        Request request = preparePost()
+        Request.Builder requestBuilder = preparePost()
                 .setUri(uriBuilder.build())
-                .setHeader(HttpHeaders.CONTENT_TYPE, MediaType.JSON_UTF_8.toString())
-                .setBodyGenerator(createStaticBodyGenerator(taskUpdateRequestJson))
-                .build();
+                .setHeader(CONTENT_TYPE, RemoteTaskCodec.getContentType(updateEncoding))
+                .setHeader(ACCEPT, taskInfoCodec.getAccept())
+                .setBodyGenerator(createStaticBodyGenerator(taskUpdateRequestBytes));
+        taskInfoFetcher.getIdlePipelines().ifPresent(idlePipelines -> requestBuilder.setHeader(TRINO_IDLE_PIPELINES, idlePipelines));
+        Request request = requestBuilder.build();
 
         updateErrorTracker.startRequest();
 
-        ListenableFuture<JsonResponse<TaskInfo>> future = httpClient.executeAsync(request, createFullJsonResponseHandler(taskInfoCodec));
+        ListenableFuture<JsonResponse<TaskInfo>> future = httpClient.executeAsync(request, taskInfoCodec.createResponseHandler());
         currentRequest = future;
         currentRequestStartNanos = System.nanoTime();
 
@@ -593,6 +603,7 @@ public final class HttpRemoteTask
             HttpUriBuilder uriBuilder = getHttpUriBuilder(taskStatus).addParameter("abort", "false");
             Request request = prepareDelete()
                     .setUri(uriBuilder.build())
+                    .setHeader(ACCEPT, taskInfoCodec.getAccept())
                     .build();
             scheduleAsyncCleanupRequest(createCleanupBackoff(), request, "cancel");
         }
@@ -624,6 +635,7 @@ public final class HttpRemoteTask
         HttpUriBuilder uriBuilder = getHttpUriBuilder(getTaskStatus());
         Request request = prepareDelete()
                 .setUri(uriBuilder.build())
+                .setHeader(ACCEPT, taskInfoCodec.getAccept())
                 .build();
 
         scheduleAsyncCleanupRequest(createCleanupBackoff(), request, "cleanup");
@@ -650,6 +662,7 @@ public final class HttpRemoteTask
             HttpUriBuilder uriBuilder = getHttpUriBuilder(getTaskStatus());
             Request request = prepareDelete()
                     .setUri(uriBuilder.build())
+                    .setHeader(ACCEPT, taskInfoCodec.getAccept())
                     .build();
             scheduleAsyncCleanupRequest(createCleanupBackoff(), request, "abort");
         }
@@ -667,7 +680,7 @@ public final class HttpRemoteTask
 
     private void doScheduleAsyncCleanupRequest(Backoff cleanupBackoff, Request request, String action)
     {
-        Futures.addCallback(httpClient.executeAsync(request, createFullJsonResponseHandler(taskInfoCodec)), new FutureCallback<>()
+        Futures.addCallback(httpClient.executeAsync(request, taskInfoCodec.createResponseHandler()), new FutureCallback<>()
         {
             @Override
             public void onSuccess(JsonResponse<TaskInfo> result)
@@ -845,6 +858,27 @@ public final class HttpRemoteTask
             }
         }
 
+        @Override
+        public void unsupportedEncoding(Throwable cause)
+        {
+            try (SetThreadName ignored = new SetThreadName("UpdateResponseHandler-%s", taskId)) {
+                RemoteTaskEncoding rejectedEncoding;
+                synchronized (HttpRemoteTask.this) {
+                    currentRequest = null;
+                    rejectedEncoding = updateEncoding;
+                    updateEncoding = RemoteTaskEncoding.JSON;
+                }
+                if (rejectedEncoding == RemoteTaskEncoding.JSON) {
+                    failTask(cause);
+                    return;
+                }
+                // the worker does not accept the configured encoding, so the update and the fragment are sent again as JSON
+                log.debug("Worker for task %s does not accept %s task updates, falling back to JSON", taskId, rejectedEncoding);
+                needsUpdate.set(true);
+                sendUpdate();
+            }
+        }
+
         private void updateStats(long currentRequestStartNanos)
         {
             Duration requestRoundTrip = Duration.nanosSince(currentRequestStartNanos);
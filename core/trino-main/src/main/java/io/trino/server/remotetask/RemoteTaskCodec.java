@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.server.remotetask;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.net.MediaType;
+import io.airlift.http.client.FullJsonResponseHandler.JsonResponse;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.ResponseHandler;
+import io.airlift.json.JsonCodec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static com.google.common.net.MediaType.JSON_UTF_8;
+import static io.airlift.http.client.ResponseHandlerUtils.propagate;
+import static io.trino.TrinoMediaTypes.JACKSON_SMILE_TYPE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Encodes requests to the task resource of workers with the configured {@link RemoteTaskEncoding}, and
+ * decodes responses in whichever of the encodings the worker has chosen. The configured encoding is
+ * preferred for responses, so workers that do not support it fall back to JSON.
+ */
+public class RemoteTaskCodec<T>
+{
+    private final JsonCodec<T> jsonCodec;
+    private final JsonCodec<T> smileCodec;
+    private final RemoteTaskEncoding encoding;
+    private final RemoteTaskStats stats;
+
+    public RemoteTaskCodec(JsonCodec<T> jsonCodec, JsonCodec<T> smileCodec, RemoteTaskEncoding encoding, RemoteTaskStats stats)
+    {
+        this.jsonCodec = requireNonNull(jsonCodec, "jsonCodec is null");
+        this.smileCodec = requireNonNull(smileCodec, "smileCodec is null");
+        this.encoding = requireNonNull(encoding, "encoding is null");
+        this.stats = requireNonNull(stats, "stats is null");
+    }
+
+    public RemoteTaskEncoding getEncoding()
+    {
+        return encoding;
+    }
+
+    public String getContentType()
+    {
+        return getContentType(encoding);
+    }
+
+    public static String getContentType(RemoteTaskEncoding encoding)
+    {
+        return encoding.getMediaType().toString();
+    }
+
+    public String getAccept()
+    {
+        if (encoding == RemoteTaskEncoding.JSON) {
+            return JSON_UTF_8.withoutParameters().toString();
+        }
+        return encoding.getMediaType() + ", " + JSON_UTF_8.withoutParameters() + "; q=0.5";
+    }
+
+    public byte[] encode(T value)
+    {
+        return encode(value, encoding);
+    }
+
+    public byte[] encode(T value, RemoteTaskEncoding encoding)
+    {
+        long start = System.nanoTime();
+        byte[] bytes = (encoding == RemoteTaskEncoding.SMILE) ? smileCodec.toJsonBytes(value) : jsonCodec.toJsonBytes(value);
+        stats.requestEncoded(System.nanoTime() - start);
+        return bytes;
+    }
+
+    public ResponseHandler<JsonResponse<T>, RuntimeException> createResponseHandler()
+    {
+        return new RemoteTaskResponseHandler();
+    }
+
+    private class RemoteTaskResponseHandler
+            implements ResponseHandler<JsonResponse<T>, RuntimeException>
+    {
+        @Override
+        public JsonResponse<T> handleException(Request request, Exception exception)
+        {
+            throw propagate(request, exception);
+        }
+
+        @Override
+        public JsonResponse<T> handle(Request request, Response response)
+        {
+            byte[] bytes = readResponseBytes(response);
+            String contentType = response.getHeader(CONTENT_TYPE);
+            if (contentType == null) {
+                return new JsonResponse<>(response.getStatusCode(), response.getHeaders(), bytes);
+            }
+
+            MediaType mediaType = MediaType.parse(contentType);
+            JsonCodec<T> codec;
+            if (mediaType.is(JACKSON_SMILE_TYPE)) {
+                codec = smileCodec;
+            }
+            else if (mediaType.is(JSON_UTF_8.withoutParameters())) {
+                codec = jsonCodec;
+            }
+            else {
+                return new JsonResponse<>(response.getStatusCode(), response.getHeaders(), bytes);
+            }
+
+            long start = System.nanoTime();
+            JsonResponse<T> jsonResponse = new JsonResponse<>(response.getStatusCode(), response.getHeaders(), codec, bytes);
+            stats.responseDecoded(System.nanoTime() - start);
+            return jsonResponse;
+        }
+    }
+
+    private static byte[] readResponseBytes(Response response)
+    {
+        try {
+            return ByteStreams.toByteArray(response.getInputStream());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Error reading response from server", e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.server.remotetask;
+
+import com.google.common.net.MediaType;
+
+import static com.google.common.net.MediaType.JSON_UTF_8;
+import static io.trino.TrinoMediaTypes.JACKSON_SMILE_TYPE;
+import static java.util.Objects.requireNonNull;
+
+public enum RemoteTaskEncoding
+{
+    JSON(JSON_UTF_8),
+    SMILE(JACKSON_SMILE_TYPE);
+
+    private final MediaType mediaType;
+
+    RemoteTaskEncoding(MediaType mediaType)
+    {
+        this.mediaType = requireNonNull(mediaType, "mediaType is null");
+    }
+
+    public MediaType getMediaType()
+    {
+        return mediaType;
+    }
+}
@@ -14,12 +14,16 @@
 package io.trino.server.remotetask;
 
 import com.google.common.util.concurrent.AtomicDouble;
+import io.airlift.stats.CounterStat;
 import io.airlift.stats.DistributionStat;
+import io.airlift.stats.TimeStat;
 import org.weakref.jmx.Managed;
 import org.weakref.jmx.Nested;
 
 import javax.annotation.concurrent.ThreadSafe;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
 public class RemoteTaskStats
 {
     private final IncrementalAverage updateRoundTripMillis = new IncrementalAverage();
@@ -27,6 +31,10 @@ public class RemoteTaskStats
     private final IncrementalAverage statusRoundTripMillis = new IncrementalAverage();
     private final IncrementalAverage responseSizeBytes = new IncrementalAverage();
     private final DistributionStat updateWithPlanBytes = new DistributionStat();
+    private final TimeStat requestEncodeTime = new TimeStat(NANOSECONDS);
+    private final TimeStat responseDecodeTime = new TimeStat(NANOSECONDS);
+    private final CounterStat reusedPipelineStats = new CounterStat();
+    private final CounterStat reusedOperatorStats = new CounterStat();
 
     private long requestSuccess;
     private long requestFailure;
@@ -66,6 +74,22 @@ public class RemoteTaskStats
         updateWithPlanBytes.add(bytes);
     }
 
+    public void requestEncoded(long nanos)
+    {
+        requestEncodeTime.add(nanos, NANOSECONDS);
+    }
+
+    public void responseDecoded(long nanos)
+    {
+        responseDecodeTime.add(nanos, NANOSECONDS);
+    }
+
+    public void idlePipelinesReused(int pipelines, int operators)
+    {
+        reusedPipelineStats.update(pipelines);
+        reusedOperatorStats.update(operators);
+    }
+
     @Managed
     public double getResponseSizeBytes()
     {
@@ -109,6 +133,34 @@ public class RemoteTaskStats
         return updateWithPlanBytes;
     }
 
+    @Managed
+    @Nested
+    public TimeStat getRequestEncodeTime()
+    {
+        return requestEncodeTime;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getResponseDecodeTime()
+    {
+        return responseDecodeTime;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getReusedPipelineStats()
+    {
+        return reusedPipelineStats;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getReusedOperatorStats()
+    {
+        return reusedOperatorStats;
+    }
+
     @ThreadSafe
     private static class IncrementalAverage
     {
@@ -20,4 +20,12 @@ public interface SimpleHttpResponseCallback<T>
     void failed(Throwable cause);
 
     void fatal(Throwable cause);
+
+    /**
+     * Called when the server does not accept the encoding of the request, or cannot produce an acceptable response.
+     */
+    default void unsupportedEncoding(Throwable cause)
+    {
+        fatal(cause);
+    }
 }
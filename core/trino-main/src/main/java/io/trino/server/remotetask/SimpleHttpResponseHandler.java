@@ -51,6 +51,9 @@ public class SimpleHttpResponseHandler<T>
             else if (response.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE.code()) {
                 callback.failed(new ServiceUnavailableException(uri));
             }
+            else if (response.getStatusCode() == HttpStatus.UNSUPPORTED_MEDIA_TYPE.code() || response.getStatusCode() == HttpStatus.NOT_ACCEPTABLE.code()) {
+                callback.unsupportedEncoding(new TrinoException(REMOTE_TASK_ERROR, format("Server %s does not support the encoding of the request, response code was %s", uri, response.getStatusCode())));
+            }
             else {
                 // Something is broken in the server or the client, so fail the task immediately (includes 500 errors)
                 Exception cause = response.getException();
@@ -0,0 +1,30 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.server.remotetask;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.airlift.json.ObjectMapperProvider;
+
+/**
+ * Provides object mappers for the Smile binary encoding of JSON, which use the same
+ * serializers, deserializers and modules as the JSON object mapper.
+ */
+public class SmileObjectMapperProvider
+        extends ObjectMapperProvider
+{
+    public SmileObjectMapperProvider()
+    {
+        super(new SmileFactory());
+    }
+}
@@ -13,6 +13,7 @@
  */
 package io.trino.server.remotetask;
 
+import com.google.common.base.Joiner;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.concurrent.SetThreadName;
@@ -20,17 +21,19 @@ import io.airlift.http.client.FullJsonResponseHandler;
 import io.airlift.http.client.HttpClient;
 import io.airlift.http.client.HttpUriBuilder;
 import io.airlift.http.client.Request;
-import io.airlift.json.JsonCodec;
 import io.airlift.units.Duration;
 import io.trino.execution.StateMachine;
 import io.trino.execution.StateMachine.StateChangeListener;
 import io.trino.execution.TaskId;
 import io.trino.execution.TaskInfo;
 import io.trino.execution.TaskStatus;
+import io.trino.operator.PipelineStats;
 
 import javax.annotation.concurrent.GuardedBy;
 
 import java.net.URI;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
@@ -39,23 +42,24 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
-import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
-import static com.google.common.net.MediaType.JSON_UTF_8;
-import static io.airlift.http.client.FullJsonResponseHandler.createFullJsonResponseHandler;
+import static com.google.common.net.HttpHeaders.ACCEPT;
 import static io.airlift.http.client.HttpUriBuilder.uriBuilderFrom;
 import static io.airlift.http.client.Request.Builder.prepareGet;
 import static io.airlift.units.Duration.nanosSince;
+import static io.trino.server.InternalHeaders.TRINO_IDLE_PIPELINES;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 public class TaskInfoFetcher
         implements SimpleHttpResponseCallback<TaskInfo>
 {
+    private static final Joiner.MapJoiner IDLE_PIPELINES_JOINER = Joiner.on(',').withKeyValueSeparator(':');
+
     private final TaskId taskId;
     private final Consumer<Throwable> onFail;
     private final StateMachine<TaskInfo> taskInfo;
     private final StateMachine<Optional<TaskInfo>> finalTaskInfo;
-    private final JsonCodec<TaskInfo> taskInfoCodec;
+    private final RemoteTaskCodec<TaskInfo> taskInfoCodec;
 
     private final long updateIntervalMillis;
     private final AtomicLong lastUpdateNanos = new AtomicLong();
@@ -86,7 +90,7 @@ public class TaskInfoFetcher
             TaskInfo initialTask,
             HttpClient httpClient,
             Duration updateInterval,
-            JsonCodec<TaskInfo> taskInfoCodec,
+            RemoteTaskCodec<TaskInfo> taskInfoCodec,
             Duration maxErrorDuration,
             boolean summarizeTaskInfo,
             Executor executor,
@@ -202,19 +206,42 @@ public class TaskInfoFetcher
 
         HttpUriBuilder httpUriBuilder = uriBuilderFrom(taskStatus.getSelf());
         URI uri = summarizeTaskInfo ? httpUriBuilder.addParameter("summarize").build() : httpUriBuilder.build();
-        Request request = prepareGet()
+        Request.Builder requestBuilder = prepareGet()
                 .setUri(uri)
-                .setHeader(CONTENT_TYPE, JSON_UTF_8.toString())
-                .build();
+                .setHeader(ACCEPT, taskInfoCodec.getAccept());
+        getIdlePipelines().ifPresent(idlePipelines -> requestBuilder.setHeader(TRINO_IDLE_PIPELINES, idlePipelines));
+        Request request = requestBuilder.build();
 
         errorTracker.startRequest();
-        future = httpClient.executeAsync(request, createFullJsonResponseHandler(taskInfoCodec));
+        future = httpClient.executeAsync(request, taskInfoCodec.createResponseHandler());
         currentRequestStartNanos.set(System.nanoTime());
         Futures.addCallback(future, new SimpleHttpResponseHandler<>(this, request.getUri(), stats), executor);
     }
 
-    synchronized void updateTaskInfo(TaskInfo newValue)
+    /**
+     * Returns the idle pipelines of the current task info, in the format of the {@code X-Trino-Idle-Pipelines} header.
+     * Workers omit the stats of these pipelines from the task info as long as they stay idle, and
+     * {@link #updateTaskInfo} restores them from the current task info.
+     */
+    Optional<String> getIdlePipelines()
+    {
+        if (summarizeTaskInfo) {
+            return Optional.empty();
+        }
+        Map<Integer, Integer> idlePipelines = getTaskInfo().getIdlePipelines();
+        if (idlePipelines.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(IDLE_PIPELINES_JOINER.join(idlePipelines));
+    }
+
+    synchronized void updateTaskInfo(TaskInfo taskInfoUpdate)
     {
+        TaskInfo newValue = taskInfoUpdate.withIdlePipelinesFrom(taskInfo.get());
+        if (newValue != taskInfoUpdate) {
+            recordReusedPipelines(taskInfoUpdate, newValue);
+        }
+
         boolean updated = taskInfo.setIf(newValue, oldValue -> {
             TaskStatus oldTaskStatus = oldValue.getTaskStatus();
             TaskStatus newTaskStatus = newValue.getTaskStatus();
@@ -278,11 +305,26 @@ public class TaskInfoFetcher
         }
     }
 
+    private void recordReusedPipelines(TaskInfo taskInfoUpdate, TaskInfo newValue)
+    {
+        stats.idlePipelinesReused(
+                newValue.getStats().getPipelines().size() - taskInfoUpdate.getStats().getPipelines().size(),
+                countOperators(newValue) - countOperators(taskInfoUpdate));
+    }
+
     private void updateStats(long currentRequestStartNanos)
     {
         stats.infoRoundTripMillis(nanosSince(currentRequestStartNanos).toMillis());
     }
 
+    private static int countOperators(TaskInfo taskInfo)
+    {
+        return taskInfo.getStats().getPipelines().stream()
+                .map(PipelineStats::getOperatorSummaries)
+                .mapToInt(List::size)
+                .sum();
+    }
+
     private static boolean isDone(TaskInfo taskInfo)
     {
         return taskInfo.getTaskStatus().getState().isDone();
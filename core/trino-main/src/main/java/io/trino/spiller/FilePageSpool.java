@@ -0,0 +1,307 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.spiller;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import io.trino.execution.buffer.PageCodecMarker.MarkerSet;
+import io.trino.execution.buffer.PageSpool;
+import io.trino.execution.buffer.SerializedPage;
+import io.trino.operator.SpillContext;
+import io.trino.spi.TrinoException;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Optional;
+
+import static io.trino.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
+import static io.trino.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_PREFIX;
+import static io.trino.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_SUFFIX;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Appends pages to a single spill file and reads them back in order. Only the page contents are
+ * stored in the file, the page headers stay in memory. The file is truncated whenever all pages
+ * have been read, so a spool that keeps up with its reader does not grow on disk.
+ * <p>
+ * Writes and reads are serialized by separate locks, so that a reader does not wait for a writer,
+ * and the file is accessed outside of the lock on this, so that checking whether the spool is
+ * empty never waits for the disk.
+ */
+@ThreadSafe
+public class FilePageSpool
+        implements PageSpool
+{
+    private final Path file;
+    private final FileChannel channel;
+    private final Optional<SpillCipher> spillCipher;
+    private final SpillerStats spillerStats;
+    private final SpillContext localSpillContext;
+    private final Runnable fileSystemErrorHandler;
+
+    // lock order: readLock, writeLock, this
+    private final Object readLock = new Object();
+    private final Object writeLock = new Object();
+
+    @GuardedBy("this")
+    private final ArrayDeque<SpooledPage> pages = new ArrayDeque<>();
+    @GuardedBy("readLock")
+    private long readPosition;
+    @GuardedBy("writeLock")
+    private long writePosition;
+    @GuardedBy("this")
+    private boolean closed;
+
+    public FilePageSpool(
+            Path spillPath,
+            Optional<SpillCipher> spillCipher,
+            SpillerStats spillerStats,
+            SpillContext spillContext,
+            Runnable fileSystemErrorHandler)
+    {
+        requireNonNull(spillPath, "spillPath is null");
+        this.spillCipher = requireNonNull(spillCipher, "spillCipher is null");
+        this.spillerStats = requireNonNull(spillerStats, "spillerStats is null");
+        this.localSpillContext = requireNonNull(spillContext, "spillContext is null").newLocalSpillContext();
+        this.fileSystemErrorHandler = requireNonNull(fileSystemErrorHandler, "fileSystemErrorHandler is null");
+        try {
+            this.file = Files.createTempFile(spillPath, SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX);
+            this.channel = FileChannel.open(file, READ, WRITE);
+        }
+        catch (IOException e) {
+            fileSystemErrorHandler.run();
+            throw new TrinoException(GENERIC_INTERNAL_ERROR, "Failed to create spool file", e);
+        }
+    }
+
+    @Override
+    public void write(List<SerializedPage> pages)
+    {
+        synchronized (writeLock) {
+            if (isClosed()) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            long bytesWritten = 0;
+            ImmutableList.Builder<SpooledPage> spooledPages = ImmutableList.builderWithExpectedSize(pages.size());
+            try {
+                for (SerializedPage page : pages) {
+                    ByteBuffer buffer = spillCipher.map(cipher -> encrypt(cipher, page.getSlice()))
+                            .orElseGet(() -> page.getSlice().toByteBuffer());
+                    int storedSize = buffer.remaining();
+                    while (buffer.hasRemaining()) {
+                        writePosition += channel.write(buffer, writePosition);
+                    }
+                    spooledPages.add(new SpooledPage(page.getPositionCount(), page.getPageCodecMarkers(), page.getUncompressedSizeInBytes(), storedSize));
+                    bytesWritten += storedSize;
+                }
+            }
+            catch (IOException e) {
+                fileSystemErrorHandler.run();
+                throw new TrinoException(GENERIC_INTERNAL_ERROR, "Failed to spool pages", e);
+            }
+            finally {
+                localSpillContext.updateBytes(bytesWritten);
+                spillerStats.addToTotalSpilledBytes(bytesWritten);
+                spillerStats.addToTotalSpillWriteTime(System.nanoTime() - start);
+            }
+
+            // the pages become visible to the reader once they are in the file
+            synchronized (this) {
+                this.pages.addAll(spooledPages.build());
+            }
+        }
+    }
+
+    @Override
+    public List<SerializedPage> read(long maxSizeInBytes)
+    {
+        synchronized (readLock) {
+            List<SpooledPage> spooledPages = pollPages(maxSizeInBytes);
+            if (spooledPages.isEmpty()) {
+                return ImmutableList.of();
+            }
+
+            long start = System.nanoTime();
+            long bytesRead = 0;
+            ImmutableList.Builder<SerializedPage> result = ImmutableList.builderWithExpectedSize(spooledPages.size());
+            try {
+                for (SpooledPage page : spooledPages) {
+                    ByteBuffer buffer = ByteBuffer.allocate(page.getStoredSize());
+                    while (buffer.hasRemaining()) {
+                        int read = channel.read(buffer, readPosition + buffer.position());
+                        if (read < 0) {
+                            throw new EOFException("Unexpected end of spool file");
+                        }
+                    }
+                    readPosition += page.getStoredSize();
+                    bytesRead += page.getStoredSize();
+
+                    Slice slice = Slices.wrappedBuffer(buffer.array());
+                    if (spillCipher.isPresent()) {
+                        slice = decrypt(spillCipher.get(), slice);
+                    }
+                    result.add(new SerializedPage(slice, MarkerSet.fromByteValue(page.getMarkers()), page.getPositionCount(), page.getUncompressedSize()));
+                }
+
+                truncateIfDrained();
+            }
+            catch (IOException e) {
+                fileSystemErrorHandler.run();
+                throw new TrinoException(GENERIC_INTERNAL_ERROR, "Failed to read spooled pages", e);
+            }
+            finally {
+                spillerStats.addToTotalUnspilledBytes(bytesRead, System.nanoTime() - start);
+            }
+            return result.build();
+        }
+    }
+
+    /**
+     * Removes the headers of the oldest pages up to the specified size, or of a single page that exceeds the size.
+     */
+    private synchronized List<SpooledPage> pollPages(long maxSizeInBytes)
+    {
+        if (closed) {
+            return ImmutableList.of();
+        }
+        ImmutableList.Builder<SpooledPage> result = ImmutableList.builder();
+        long size = 0;
+        while (!pages.isEmpty() && (size == 0 || size + pages.peek().getStoredSize() <= maxSizeInBytes)) {
+            SpooledPage page = pages.poll();
+            size += page.getStoredSize();
+            result.add(page);
+        }
+        return result.build();
+    }
+
+    @GuardedBy("readLock")
+    private void truncateIfDrained()
+            throws IOException
+    {
+        // no page can be written while the write lock is held
+        synchronized (writeLock) {
+            if (!isEmpty() || isClosed()) {
+                return;
+            }
+            // reclaim the disk space of the pages that have been read
+            channel.truncate(0);
+            localSpillContext.updateBytes(-writePosition);
+            readPosition = 0;
+            writePosition = 0;
+        }
+    }
+
+    @Override
+    public synchronized boolean isEmpty()
+    {
+        return pages.isEmpty();
+    }
+
+    private synchronized boolean isClosed()
+    {
+        return closed;
+    }
+
+    @Override
+    public void close()
+    {
+        // wait for the reads and writes in progress, which use the file and the cipher
+        synchronized (readLock) {
+            synchronized (writeLock) {
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                    closed = true;
+                    pages.clear();
+                }
+                try {
+                    channel.close();
+                    Files.deleteIfExists(file);
+                }
+                catch (IOException e) {
+                    throw new TrinoException(GENERIC_INTERNAL_ERROR, "Failed to delete spool file", e);
+                }
+                finally {
+                    localSpillContext.close();
+                    spillCipher.ifPresent(SpillCipher::close);
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer encrypt(SpillCipher cipher, Slice slice)
+    {
+        byte[] encrypted = new byte[cipher.encryptedMaxLength(slice.length())];
+        int encryptedSize = cipher.encrypt(slice.byteArray(), slice.byteArrayOffset(), slice.length(), encrypted, 0);
+        return ByteBuffer.wrap(encrypted, 0, encryptedSize);
+    }
+
+    private static Slice decrypt(SpillCipher cipher, Slice slice)
+    {
+        byte[] decrypted = new byte[cipher.decryptedMaxLength(slice.length())];
+        int decryptedSize = cipher.decrypt(slice.byteArray(), slice.byteArrayOffset(), slice.length(), decrypted, 0);
+        return Slices.wrappedBuffer(decrypted, 0, decryptedSize);
+    }
+
+    private static class SpooledPage
+    {
+        private final int positionCount;
+        private final byte markers;
+        private final int uncompressedSize;
+        private final int storedSize;
+
+        public SpooledPage(int positionCount, byte markers, int uncompressedSize, int storedSize)
+        {
+            this.positionCount = positionCount;
+            this.markers = markers;
+            this.uncompressedSize = uncompressedSize;
+            this.storedSize = storedSize;
+        }
+
+        public int getPositionCount()
+        {
+            return positionCount;
+        }
+
+        public byte getMarkers()
+        {
+            return markers;
+        }
+
+        public int getUncompressedSize()
+        {
+            return uncompressedSize;
+        }
+
+        public int getStoredSize()
+        {
+            return storedSize;
+        }
+    }
+}
@@ -24,7 +24,6 @@ import io.airlift.slice.InputStreamSliceInput;
 import io.airlift.slice.OutputStreamSliceOutput;
 import io.airlift.slice.SliceOutput;
 import io.trino.execution.buffer.PagesSerde;
-import io.trino.execution.buffer.PagesSerdeUtil;
 import io.trino.execution.buffer.SerializedPage;
 import io.trino.memory.context.LocalMemoryContext;
 import io.trino.operator.SpillContext;
@@ -39,15 +38,21 @@ import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.concurrent.MoreFutures.getFutureValue;
+import static io.trino.execution.buffer.PagesSerdeUtil.readSerializedPages;
 import static io.trino.execution.buffer.PagesSerdeUtil.writeSerializedPage;
 import static io.trino.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static io.trino.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_PREFIX;
 import static io.trino.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_SUFFIX;
+import static java.lang.Math.max;
 import static java.nio.file.StandardOpenOption.APPEND;
 import static java.util.Objects.requireNonNull;
 
@@ -55,10 +60,12 @@ import static java.util.Objects.requireNonNull;
 public class FileSingleStreamSpiller
         implements SingleStreamSpiller
 {
-    @VisibleForTesting
-    static final int BUFFER_SIZE = 4 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // the batch of pages being consumed, and the batch being read ahead
+    private static final int READ_AHEAD_BATCHES = 2;
 
-    private final FileHolder targetFile;
+    // Pages are striped round-robin across the target files, which are placed on different spill paths when striping is enabled
+    private final List<FileHolder> targetFiles;
     private final Closer closer = Closer.create();
     private final PagesSerde serde;
     private final SpillerStats spillerStats;
@@ -69,14 +76,16 @@ public class FileSingleStreamSpiller
 
     private boolean writable = true;
     private long spilledPagesInMemorySize;
+    private long spilledPagesCount;
     private ListenableFuture<?> spillInProgress = Futures.immediateFuture(null);
+    private ListenableFuture<?> readAheadInProgress = Futures.immediateFuture(null);
 
     private final Runnable fileSystemErrorHandler;
 
     public FileSingleStreamSpiller(
             PagesSerde serde,
             ListeningExecutorService executor,
-            Path spillPath,
+            List<Path> spillPaths,
             SpillerStats spillerStats,
             SpillContext spillContext,
             LocalMemoryContext memoryContext,
@@ -101,10 +110,18 @@ public class FileSingleStreamSpiller
         // This means we start accounting for the memory before the spiller thread allocates it, and we release the memory reservation
         // before/after the spiller thread allocates that memory -- -- whether before or after depends on whether writePages() is in the
         // middle of execution when close() is called (note that this applies to both readPages() and writePages() methods).
-        this.memoryContext.setBytes(BUFFER_SIZE);
+        // The reservation covers the buffer of every target file and the batches of pages read ahead. It is adjusted to the
+        // size of the batches on the driver thread when pages are larger than the buffer (see ReadAheadPageReader).
+        requireNonNull(spillPaths, "spillPaths is null");
+        checkArgument(!spillPaths.isEmpty(), "spillPaths is empty");
+        this.memoryContext.setBytes(getMemoryReservation(spillPaths.size()));
         this.fileSystemErrorHandler = requireNonNull(fileSystemErrorHandler, "filesystemErrorHandler is null");
         try {
-            this.targetFile = closer.register(new FileHolder(Files.createTempFile(spillPath, SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX)));
+            ImmutableList.Builder<FileHolder> targetFiles = ImmutableList.builder();
+            for (Path spillPath : spillPaths) {
+                targetFiles.add(closer.register(new FileHolder(Files.createTempFile(spillPath, SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX))));
+            }
+            this.targetFiles = targetFiles.build();
         }
         catch (IOException e) {
             this.fileSystemErrorHandler.run();
@@ -131,20 +148,39 @@ public class FileSingleStreamSpiller
     public Iterator<Page> getSpilledPages()
     {
         checkNoSpillInProgress();
-        return readPages();
+        return readPages(true);
     }
 
     @Override
     public ListenableFuture<List<Page>> getAllSpilledPages()
     {
-        return executor.submit(() -> ImmutableList.copyOf(getSpilledPages()));
+        // Pages are already read on the executor, so there is no need to read ahead.
+        // Doing so could also deadlock when all executor threads are waiting for reads.
+        checkNoSpillInProgress();
+        return executor.submit(() -> ImmutableList.copyOf(readPages(false)));
+    }
+
+    @VisibleForTesting
+    static long getMemoryReservation(int spillPathsCount)
+    {
+        return getMemoryReservation(spillPathsCount, BUFFER_SIZE);
+    }
+
+    private static long getMemoryReservation(int spillPathsCount, long readAheadBatchSize)
+    {
+        return (long) BUFFER_SIZE * spillPathsCount + READ_AHEAD_BATCHES * max(readAheadBatchSize, BUFFER_SIZE);
     }
 
     private void writePages(Iterator<Page> pageIterator)
     {
         checkState(writable, "Spilling no longer allowed. The spiller has been made non-writable on first read for subsequent reads to be consistent");
-        try (SliceOutput output = new OutputStreamSliceOutput(targetFile.newOutputStream(APPEND), BUFFER_SIZE);
+        long start = System.nanoTime();
+        try (Closer outputs = Closer.create();
                 PagesSerde.PagesSerdeContext context = serde.newContext()) {
+            List<SliceOutput> stripes = new ArrayList<>(targetFiles.size());
+            for (FileHolder targetFile : targetFiles) {
+                stripes.add(outputs.register(new OutputStreamSliceOutput(targetFile.newOutputStream(APPEND), BUFFER_SIZE)));
+            }
             while (pageIterator.hasNext()) {
                 Page page = pageIterator.next();
                 spilledPagesInMemorySize += page.getSizeInBytes();
@@ -152,24 +188,36 @@ public class FileSingleStreamSpiller
                 long pageSize = serializedPage.getSizeInBytes();
                 localSpillContext.updateBytes(pageSize);
                 spillerStats.addToTotalSpilledBytes(pageSize);
-                writeSerializedPage(output, serializedPage);
+                writeSerializedPage(stripes.get((int) (spilledPagesCount % stripes.size())), serializedPage);
+                spilledPagesCount++;
             }
         }
         catch (UncheckedIOException | IOException e) {
             fileSystemErrorHandler.run();
             throw new TrinoException(GENERIC_INTERNAL_ERROR, "Failed to spill pages", e);
         }
+        finally {
+            spillerStats.addToTotalSpillWriteTime(System.nanoTime() - start);
+        }
     }
 
-    private Iterator<Page> readPages()
+    private Iterator<Page> readPages(boolean readAhead)
     {
         checkState(writable, "Repeated reads are disallowed to prevent potential resource leaks");
         writable = false;
 
         try {
-            InputStream input = closer.register(targetFile.newInputStream());
-            Iterator<Page> pages = PagesSerdeUtil.readPages(serde, new InputStreamSliceInput(input, BUFFER_SIZE));
-            return closeWhenExhausted(pages, input);
+            Closer inputs = closer.register(Closer.create());
+            List<Iterator<SerializedPage>> stripes = new ArrayList<>(targetFiles.size());
+            for (FileHolder targetFile : targetFiles) {
+                InputStream input = inputs.register(targetFile.newInputStream());
+                stripes.add(readSerializedPages(new InputStreamSliceInput(input, BUFFER_SIZE)));
+            }
+            Iterator<SerializedPage> serializedPages = new StripedPageReader(stripes);
+            if (readAhead) {
+                serializedPages = new ReadAheadPageReader(serializedPages);
+            }
+            return closeWhenExhausted(deserialize(serializedPages), inputs);
         }
         catch (IOException e) {
             fileSystemErrorHandler.run();
@@ -177,9 +225,27 @@ public class FileSingleStreamSpiller
         }
     }
 
+    private Iterator<Page> deserialize(Iterator<SerializedPage> serializedPages)
+    {
+        PagesSerde.PagesSerdeContext context = serde.newContext();
+        return new AbstractIterator<>()
+        {
+            @Override
+            protected Page computeNext()
+            {
+                if (!serializedPages.hasNext()) {
+                    context.close(); // Release context buffers
+                    return endOfData();
+                }
+                return serde.deserialize(context, serializedPages.next());
+            }
+        };
+    }
+
     @Override
     public void close()
     {
+        closer.register(() -> readAheadInProgress.cancel(true));
         closer.register(localSpillContext);
         closer.register(() -> memoryContext.setBytes(0));
         try {
@@ -196,6 +262,95 @@ public class FileSingleStreamSpiller
         checkState(spillInProgress.isDone(), "spill in progress");
     }
 
+    /**
+     * Reads pages in the order they were spilled, i.e. round-robin over the stripes, starting with the first one.
+     */
+    private class StripedPageReader
+            extends AbstractIterator<SerializedPage>
+    {
+        private final List<Iterator<SerializedPage>> stripes;
+        private int nextStripe;
+
+        StripedPageReader(List<Iterator<SerializedPage>> stripes)
+        {
+            this.stripes = ImmutableList.copyOf(requireNonNull(stripes, "stripes is null"));
+        }
+
+        @Override
+        protected SerializedPage computeNext()
+        {
+            long start = System.nanoTime();
+            Iterator<SerializedPage> stripe = stripes.get(nextStripe);
+            if (!stripe.hasNext()) {
+                return endOfData();
+            }
+            SerializedPage page = stripe.next();
+            nextStripe = (nextStripe + 1) % stripes.size();
+            spillerStats.addToTotalUnspilledBytes(page.getSizeInBytes(), System.nanoTime() - start);
+            return page;
+        }
+    }
+
+    /**
+     * Reads the next batch of pages on the spill executor while the current batch is being consumed.
+     * A batch ends with the page that makes it reach the buffer size, so with pages larger than the buffer
+     * a batch is larger than the buffer. The memory reservation is then adjusted to the size of the batch
+     * being consumed, assuming the batch being read is of a similar size, since spilled pages usually are.
+     */
+    private class ReadAheadPageReader
+            extends AbstractIterator<SerializedPage>
+    {
+        private final Iterator<SerializedPage> pages;
+        private Iterator<SerializedPage> currentBatch = Collections.emptyIterator();
+        private ListenableFuture<List<SerializedPage>> nextBatch;
+
+        ReadAheadPageReader(Iterator<SerializedPage> pages)
+        {
+            this.pages = requireNonNull(pages, "pages is null");
+        }
+
+        @Override
+        protected SerializedPage computeNext()
+        {
+            while (!currentBatch.hasNext()) {
+                if (nextBatch == null) {
+                    nextBatch = readNextBatch();
+                }
+                List<SerializedPage> batch = getFutureValue(nextBatch);
+                if (batch.isEmpty()) {
+                    return endOfData();
+                }
+                memoryContext.setBytes(getMemoryReservation(targetFiles.size(), getSizeInBytes(batch)));
+                currentBatch = batch.iterator();
+                nextBatch = readNextBatch();
+            }
+            return currentBatch.next();
+        }
+
+        private ListenableFuture<List<SerializedPage>> readNextBatch()
+        {
+            ListenableFuture<List<SerializedPage>> batch = executor.submit(() -> {
+                ImmutableList.Builder<SerializedPage> pagesBatch = ImmutableList.builder();
+                long batchSize = 0;
+                while (batchSize < BUFFER_SIZE && pages.hasNext()) {
+                    SerializedPage page = pages.next();
+                    batchSize += page.getSizeInBytes();
+                    pagesBatch.add(page);
+                }
+                return pagesBatch.build();
+            });
+            readAheadInProgress = batch;
+            return batch;
+        }
+    }
+
+    private static long getSizeInBytes(List<SerializedPage> pages)
+    {
+        return pages.stream()
+                .mapToLong(SerializedPage::getSizeInBytes)
+                .sum();
+    }
+
     private static <T> Iterator<T> closeWhenExhausted(Iterator<T> iterator, Closeable resource)
     {
         requireNonNull(iterator, "iterator is null");
@@ -21,6 +21,9 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.inject.Inject;
 import io.airlift.log.Logger;
+import io.trino.execution.buffer.CompressionCodec;
+import io.trino.execution.buffer.PageSpool;
+import io.trino.execution.buffer.PageSpoolFactory;
 import io.trino.execution.buffer.PagesSerde;
 import io.trino.execution.buffer.PagesSerdeFactory;
 import io.trino.memory.context.LocalMemoryContext;
@@ -28,6 +31,7 @@ import io.trino.metadata.Metadata;
 import io.trino.operator.SpillContext;
 import io.trino.spi.TrinoException;
 import io.trino.spi.block.BlockEncodingSerde;
+import io.trino.spi.type.FixedWidthType;
 import io.trino.spi.type.Type;
 import io.trino.sql.analyzer.FeaturesConfig;
 
@@ -44,6 +48,8 @@ import java.util.Optional;
 
 import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.trino.execution.buffer.CompressionCodec.LZ4;
+import static io.trino.execution.buffer.CompressionCodec.ZSTD;
 import static io.trino.spi.StandardErrorCode.OUT_OF_SPILL_SPACE;
 import static io.trino.sql.analyzer.FeaturesConfig.SPILLER_SPILL_PATH;
 import static java.lang.String.format;
@@ -60,7 +66,7 @@ import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newFixedThreadPool;
 
 public class FileSingleStreamSpillerFactory
-        implements SingleStreamSpillerFactory
+        implements SingleStreamSpillerFactory, PageSpoolFactory
 {
     private static final Logger log = Logger.get(FileSingleStreamSpillerFactory.class);
 
@@ -77,6 +83,7 @@ public class FileSingleStreamSpillerFactory
     private final SpillerStats spillerStats;
     private final double maxUsedSpaceThreshold;
     private final boolean spillEncryptionEnabled;
+    private final boolean spillStripingEnabled;
     private int roundRobinIndex;
     private final LoadingCache<Path, Boolean> spillPathHealthCache;
 
@@ -92,7 +99,8 @@ public class FileSingleStreamSpillerFactory
                 requireNonNull(featuresConfig, "featuresConfig is null").getSpillerSpillPaths(),
                 requireNonNull(featuresConfig, "featuresConfig is null").getSpillMaxUsedSpaceThreshold(),
                 requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").isSpillCompressionEnabled(),
-                requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").isSpillEncryptionEnabled());
+                requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").isSpillEncryptionEnabled(),
+                requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").isSpillStripingEnabled());
     }
 
     @VisibleForTesting
@@ -104,6 +112,20 @@ public class FileSingleStreamSpillerFactory
             double maxUsedSpaceThreshold,
             boolean spillCompressionEnabled,
             boolean spillEncryptionEnabled)
+    {
+        this(executor, blockEncodingSerde, spillerStats, spillPaths, maxUsedSpaceThreshold, spillCompressionEnabled, spillEncryptionEnabled, false);
+    }
+
+    @VisibleForTesting
+    public FileSingleStreamSpillerFactory(
+            ListeningExecutorService executor,
+            BlockEncodingSerde blockEncodingSerde,
+            SpillerStats spillerStats,
+            List<Path> spillPaths,
+            double maxUsedSpaceThreshold,
+            boolean spillCompressionEnabled,
+            boolean spillEncryptionEnabled,
+            boolean spillStripingEnabled)
     {
         this.serdeFactory = new PagesSerdeFactory(blockEncodingSerde, spillCompressionEnabled);
         this.executor = requireNonNull(executor, "executor is null");
@@ -123,6 +145,7 @@ public class FileSingleStreamSpillerFactory
         });
         this.maxUsedSpaceThreshold = maxUsedSpaceThreshold;
         this.spillEncryptionEnabled = spillEncryptionEnabled;
+        this.spillStripingEnabled = spillStripingEnabled;
         this.roundRobinIndex = 0;
 
         this.spillPathHealthCache = CacheBuilder.newBuilder()
@@ -167,11 +190,11 @@ public class FileSingleStreamSpillerFactory
         if (spillEncryptionEnabled) {
             spillCipher = Optional.of(new AesSpillCipher());
         }
-        PagesSerde serde = serdeFactory.createPagesSerdeForSpill(spillCipher);
+        PagesSerde serde = serdeFactory.createPagesSerdeForSpill(spillCipher, getCompressionCodec(types));
         return new FileSingleStreamSpiller(
                 serde,
                 executor,
-                getNextSpillPath(),
+                getNextSpillPaths(),
                 spillerStats,
                 spillContext,
                 memoryContext,
@@ -179,6 +202,43 @@ public class FileSingleStreamSpillerFactory
                 spillPathHealthCache::invalidateAll);
     }
 
+    @Override
+    public PageSpool createPageSpool(SpillContext spillContext)
+    {
+        Optional<SpillCipher> spillCipher = Optional.empty();
+        if (spillEncryptionEnabled) {
+            spillCipher = Optional.of(new AesSpillCipher());
+        }
+        return new FilePageSpool(getNextSpillPath(), spillCipher, spillerStats, spillContext, spillPathHealthCache::invalidateAll);
+    }
+
+    @VisibleForTesting
+    static CompressionCodec getCompressionCodec(List<Type> types)
+    {
+        // Variable width data, such as strings, compresses much better with ZSTD, which is worth the extra CPU when
+        // spilling is disk bound. Fixed width data gains little, so the cheaper LZ4 is used.
+        // Pages that do not compress well (e.g. dictionaries of unique values) are stored uncompressed by PagesSerde.
+        return types.stream().allMatch(FixedWidthType.class::isInstance) ? LZ4 : ZSTD;
+    }
+
+    private synchronized List<Path> getNextSpillPaths()
+    {
+        Path firstPath = getNextSpillPath();
+        if (!spillStripingEnabled) {
+            return ImmutableList.of(firstPath);
+        }
+        ImmutableList.Builder<Path> paths = ImmutableList.builder();
+        paths.add(firstPath);
+        int firstPathIndex = spillPaths.indexOf(firstPath);
+        for (int i = 1; i < spillPaths.size(); ++i) {
+            Path path = spillPaths.get((firstPathIndex + i) % spillPaths.size());
+            if (hasEnoughDiskSpace(path) && spillPathHealthCache.getUnchecked(path)) {
+                paths.add(path);
+            }
+        }
+        return paths.build();
+    }
+
     private synchronized Path getNextSpillPath()
     {
         int spillPathsCount = spillPaths.size();
@@ -98,6 +98,14 @@ public class GenericPartitioningSpiller
         return getSpiller(partition).getSpilledPages();
     }
 
+    @Override
+    public synchronized long getSpilledPagesInMemorySize(int partition)
+    {
+        return pageBuilders.get(partition).getSizeInBytes() + spillers.get(partition)
+                .map(SingleStreamSpiller::getSpilledPagesInMemorySize)
+                .orElse(0L);
+    }
+
     @Override
     public synchronized void verifyAllPartitionsRead()
     {
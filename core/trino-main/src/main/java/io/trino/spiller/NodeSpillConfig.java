@@ -26,6 +26,7 @@ public class NodeSpillConfig
 
     private boolean spillCompressionEnabled;
     private boolean spillEncryptionEnabled;
+    private boolean spillStripingEnabled;
 
     @NotNull
     public DataSize getMaxSpillPerNode()
@@ -80,4 +81,16 @@ public class NodeSpillConfig
         this.spillEncryptionEnabled = spillEncryptionEnabled;
         return this;
     }
+
+    public boolean isSpillStripingEnabled()
+    {
+        return spillStripingEnabled;
+    }
+
+    @Config("spill-striping-enabled")
+    public NodeSpillConfig setSpillStripingEnabled(boolean spillStripingEnabled)
+    {
+        this.spillStripingEnabled = spillStripingEnabled;
+        return this;
+    }
 }
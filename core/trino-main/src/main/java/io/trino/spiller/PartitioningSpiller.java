@@ -45,6 +45,13 @@ public interface PartitioningSpiller
     // TODO getSpilledPages should not need flush last buffer to disk
     Iterator<Page> getSpilledPages(int partition);
 
+    /**
+     * Returns estimated size of pages of given partition when they are loaded back into memory.
+     * <p>
+     * This method may not be called if previously initiated spilling is not finished yet.
+     */
+    long getSpilledPagesInMemorySize(int partition);
+
     void verifyAllPartitionsRead();
 
     /**
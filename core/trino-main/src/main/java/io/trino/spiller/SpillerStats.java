@@ -17,9 +17,14 @@ import org.weakref.jmx.Managed;
 
 import java.util.concurrent.atomic.AtomicLong;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
+
 public class SpillerStats
 {
     protected final AtomicLong totalSpilledBytes = new AtomicLong();
+    protected final AtomicLong totalSpillWriteNanos = new AtomicLong();
+    protected final AtomicLong totalUnspilledBytes = new AtomicLong();
+    protected final AtomicLong totalUnspillReadNanos = new AtomicLong();
 
     @Managed
     public long getTotalSpilledBytes()
@@ -31,4 +36,47 @@ public class SpillerStats
     {
         totalSpilledBytes.addAndGet(delta);
     }
+
+    public void addToTotalSpillWriteTime(long nanos)
+    {
+        totalSpillWriteNanos.addAndGet(nanos);
+    }
+
+    @Managed
+    public long getTotalUnspilledBytes()
+    {
+        return totalUnspilledBytes.get();
+    }
+
+    public void addToTotalUnspilledBytes(long bytes, long readNanos)
+    {
+        totalUnspilledBytes.addAndGet(bytes);
+        totalUnspillReadNanos.addAndGet(readNanos);
+    }
+
+    /**
+     * Bytes written per second spent writing spill files, including serialization and compression
+     */
+    @Managed
+    public double getSpillWriteThroughput()
+    {
+        return throughput(totalSpilledBytes.get(), totalSpillWriteNanos.get());
+    }
+
+    /**
+     * Bytes read per second spent reading spill files
+     */
+    @Managed
+    public double getUnspillReadThroughput()
+    {
+        return throughput(totalUnspilledBytes.get(), totalUnspillReadNanos.get());
+    }
+
+    private static double throughput(long bytes, long nanos)
+    {
+        if (nanos == 0) {
+            return 0;
+        }
+        return (double) bytes * SECONDS.toNanos(1) / nanos;
+    }
 }
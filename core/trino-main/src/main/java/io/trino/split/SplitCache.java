@@ -0,0 +1,600 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.split;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.airlift.jmx.CacheStatsMBean;
+import io.airlift.json.JsonCodec;
+import io.airlift.log.Logger;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.InputStreamSliceInput;
+import io.airlift.slice.OutputStreamSliceOutput;
+import io.airlift.slice.SliceOutput;
+import io.airlift.stats.CounterStat;
+import io.trino.Session;
+import io.trino.execution.buffer.PagesSerde;
+import io.trino.execution.buffer.PagesSerdeFactory;
+import io.trino.execution.buffer.SerializedPage;
+import io.trino.metadata.Metadata;
+import io.trino.metadata.Split;
+import io.trino.metadata.TableHandle;
+import io.trino.spi.Page;
+import io.trino.spi.TrinoException;
+import io.trino.spi.block.BlockEncodingSerde;
+import io.trino.spi.connector.ColumnHandle;
+import io.trino.spi.connector.ConnectorTableHandle;
+import io.trino.spi.connector.DynamicFilter;
+import io.trino.spi.type.Type;
+import io.trino.sql.relational.CallExpression;
+import io.trino.sql.relational.ConstantExpression;
+import io.trino.sql.relational.DeterminismEvaluator;
+import io.trino.sql.relational.InputReferenceExpression;
+import io.trino.sql.relational.LambdaDefinitionExpression;
+import io.trino.sql.relational.RowExpression;
+import io.trino.sql.relational.RowExpressionVisitor;
+import io.trino.sql.relational.SpecialForm;
+import io.trino.sql.relational.VariableReferenceExpression;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Verify.verify;
+import static io.trino.execution.buffer.PagesSerdeUtil.readPages;
+import static io.trino.execution.buffer.PagesSerdeUtil.writeSerializedPage;
+import static io.trino.spi.predicate.Utils.nativeValueToBlock;
+import static io.trino.sql.relational.Expressions.subExpressions;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Worker-local cache of the pages produced by filtering and projecting splits, for splits
+ * of immutable data (see {@link io.trino.spi.connector.ConnectorSplit#getCacheIdentifier()}).
+ * Pages are stored compressed in files in a local directory, while the index of the cached
+ * splits is kept in memory. The least recently used splits are evicted once the size of the
+ * files exceeds the configured maximum.
+ */
+@ThreadSafe
+public class SplitCache
+{
+    private static final Logger log = Logger.get(SplitCache.class);
+
+    private static final String FILE_SUFFIX = ".pages";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // functions depending on the start time of the query
+    private static final Set<String> START_TIME_FUNCTIONS = ImmutableSet.of(
+            "now",
+            "current_date",
+            "$current_time",
+            "$current_timestamp",
+            "$localtime",
+            "$localtimestamp",
+            "at_timezone");
+
+    private final boolean enabled;
+    private final Optional<Path> directory;
+    private final long maxSplitSizeInBytes;
+    private final PagesSerdeFactory serdeFactory;
+    private final ExpressionHasher expressionHasher;
+    private final DeterminismEvaluator determinismEvaluator;
+    private final JsonCodec<ConnectorTableHandle> tableHandleCodec;
+    private final JsonCodec<ColumnHandle> columnHandleCodec;
+    private final Cache<String, CachedSplit> index;
+    private final CacheStatsMBean indexStats;
+    private final CounterStat readBytes = new CounterStat();
+    private final CounterStat writtenBytes = new CounterStat();
+    private final CounterStat rejectedSplits = new CounterStat();
+
+    @Inject
+    public SplitCache(
+            SplitCacheConfig config,
+            Metadata metadata,
+            JsonCodec<ConnectorTableHandle> tableHandleCodec,
+            JsonCodec<ColumnHandle> columnHandleCodec)
+    {
+        requireNonNull(config, "config is null");
+        requireNonNull(metadata, "metadata is null");
+        this.enabled = config.isEnabled();
+        this.directory = config.getDirectory();
+        this.maxSplitSizeInBytes = config.getMaxSplitSize().toBytes();
+        this.serdeFactory = new PagesSerdeFactory(metadata.getBlockEncodingSerde(), true);
+        this.expressionHasher = new ExpressionHasher(metadata.getBlockEncodingSerde());
+        this.determinismEvaluator = new DeterminismEvaluator(metadata);
+        this.tableHandleCodec = requireNonNull(tableHandleCodec, "tableHandleCodec is null");
+        this.columnHandleCodec = requireNonNull(columnHandleCodec, "columnHandleCodec is null");
+        this.index = CacheBuilder.newBuilder()
+                .maximumWeight(config.getMaxSize().toBytes())
+                .weigher((String key, CachedSplit split) -> (int) Math.min(split.getSizeInBytes(), Integer.MAX_VALUE))
+                .removalListener(SplitCache::deleteFile)
+                .recordStats()
+                .build();
+        this.indexStats = new CacheStatsMBean(index);
+
+        if (enabled) {
+            checkState(directory.isPresent(), "split cache directory is not set");
+            clearDirectory(directory.get());
+        }
+    }
+
+    private static void clearDirectory(Path directory)
+    {
+        // the index is not persisted, so files from a previous run can never be used
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(file -> file.getFileName().toString().endsWith(FILE_SUFFIX))
+                        .forEach(SplitCache::deleteFile);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to clear split cache directory " + directory, e);
+        }
+    }
+
+    /**
+     * Returns the cache for a scan, or empty if the results of the scan cannot be cached.
+     * Results depending on dynamic filters, on non-deterministic functions or on the start
+     * time of the query are not cached.
+     */
+    public Optional<ScanCache> createScanCache(
+            Session session,
+            TableHandle table,
+            List<ColumnHandle> columns,
+            Optional<RowExpression> filter,
+            List<RowExpression> projections,
+            DynamicFilter dynamicFilter)
+    {
+        if (!enabled || dynamicFilter != DynamicFilter.EMPTY) {
+            return Optional.empty();
+        }
+
+        List<RowExpression> expressions = ImmutableList.<RowExpression>builder()
+                .addAll(filter.map(ImmutableList::of).orElse(ImmutableList.of()))
+                .addAll(projections)
+                .build();
+        for (RowExpression expression : subExpressions(expressions)) {
+            if (!determinismEvaluator.isDeterministic(expression) || dependsOnStartTime(expression)) {
+                return Optional.empty();
+            }
+        }
+
+        Hasher hasher = Hashing.sha256().newHasher()
+                .putString(table.getCatalogName().getCatalogName(), UTF_8)
+                .putString(tableHandleCodec.toJson(table.getConnectorHandle()), UTF_8);
+        for (ColumnHandle column : columns) {
+            hasher.putString(columnHandleCodec.toJson(column), UTF_8);
+        }
+        hasher.putBoolean(filter.isPresent());
+        for (RowExpression expression : expressions) {
+            expression.accept(expressionHasher, hasher);
+        }
+        hasher.putString(session.getTimeZoneKey().getId(), UTF_8);
+        hasher.putString(new TreeMap<>(session.getConnectorProperties(table.getCatalogName())).toString(), UTF_8);
+        return Optional.of(new ScanCache(hasher.hash().toString()));
+    }
+
+    private static boolean dependsOnStartTime(RowExpression expression)
+    {
+        if (!(expression instanceof CallExpression)) {
+            return false;
+        }
+        CallExpression call = (CallExpression) expression;
+        if (START_TIME_FUNCTIONS.contains(call.getResolvedFunction().getSignature().getName())) {
+            return true;
+        }
+        // casts to time types use the start time of the query for the missing date
+        return call.getResolvedFunction().getSignature().getName().equals("$operator$CAST") &&
+                call.getType().getTypeSignature().getBase().startsWith("time");
+    }
+
+    /**
+     * Hashes the complete structure of an expression. The string form of an expression cannot
+     * be used, as it does not identify the values of constants.
+     */
+    private static class ExpressionHasher
+            implements RowExpressionVisitor<Void, Hasher>
+    {
+        private final BlockEncodingSerde blockEncodingSerde;
+
+        public ExpressionHasher(BlockEncodingSerde blockEncodingSerde)
+        {
+            this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
+        }
+
+        @Override
+        public Void visitCall(CallExpression call, Hasher hasher)
+        {
+            hasher.putString("call", UTF_8)
+                    .putString(call.getResolvedFunction().getFunctionId().toString(), UTF_8)
+                    .putString(call.getResolvedFunction().getSignature().toString(), UTF_8);
+            return visitArguments(call.getArguments(), hasher);
+        }
+
+        @Override
+        public Void visitSpecialForm(SpecialForm specialForm, Hasher hasher)
+        {
+            hasher.putString("special", UTF_8)
+                    .putString(specialForm.getForm().name(), UTF_8);
+            putType(specialForm.getType(), hasher);
+            return visitArguments(specialForm.getArguments(), hasher);
+        }
+
+        @Override
+        public Void visitInputReference(InputReferenceExpression reference, Hasher hasher)
+        {
+            hasher.putString("input", UTF_8)
+                    .putInt(reference.getField());
+            putType(reference.getType(), hasher);
+            return null;
+        }
+
+        @Override
+        public Void visitConstant(ConstantExpression literal, Hasher hasher)
+        {
+            hasher.putString("constant", UTF_8);
+            putType(literal.getType(), hasher);
+            hasher.putBoolean(literal.getValue() == null);
+            if (literal.getValue() != null) {
+                // constants are hashed in their serialized form, like the blocks of pages
+                DynamicSliceOutput output = new DynamicSliceOutput(64);
+                blockEncodingSerde.writeBlock(output, nativeValueToBlock(literal.getType(), literal.getValue()));
+                hasher.putInt(output.size())
+                        .putBytes(output.slice().getBytes());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitLambda(LambdaDefinitionExpression lambda, Hasher hasher)
+        {
+            hasher.putString("lambda", UTF_8)
+                    .putInt(lambda.getArguments().size());
+            for (int i = 0; i < lambda.getArguments().size(); i++) {
+                hasher.putString(lambda.getArguments().get(i), UTF_8);
+                putType(lambda.getArgumentTypes().get(i), hasher);
+            }
+            return lambda.getBody().accept(this, hasher);
+        }
+
+        @Override
+        public Void visitVariableReference(VariableReferenceExpression reference, Hasher hasher)
+        {
+            hasher.putString("variable", UTF_8)
+                    .putString(reference.getName(), UTF_8);
+            putType(reference.getType(), hasher);
+            return null;
+        }
+
+        private Void visitArguments(List<RowExpression> arguments, Hasher hasher)
+        {
+            hasher.putInt(arguments.size());
+            for (RowExpression argument : arguments) {
+                argument.accept(this, hasher);
+            }
+            return null;
+        }
+
+        private static void putType(Type type, Hasher hasher)
+        {
+            hasher.putString(type.getTypeSignature().toString(), UTF_8);
+        }
+    }
+
+    private Optional<Reader> read(String key)
+    {
+        CachedSplit cachedSplit = index.getIfPresent(key);
+        if (cachedSplit == null) {
+            return Optional.empty();
+        }
+
+        InputStream input;
+        try {
+            input = Files.newInputStream(cachedSplit.getFile());
+        }
+        catch (IOException e) {
+            // file was evicted concurrently
+            return Optional.empty();
+        }
+        readBytes.update(cachedSplit.getSizeInBytes());
+        return Optional.of(new Reader(serdeFactory.createPagesSerde(), input));
+    }
+
+    private Writer write(String key)
+    {
+        verify(directory.isPresent(), "split cache directory is not set");
+        return new Writer(key, serdeFactory.createPagesSerde(), directory.get());
+    }
+
+    private static void deleteFile(RemovalNotification<String, CachedSplit> notification)
+    {
+        deleteFile(notification.getValue().getFile());
+    }
+
+    private static void deleteFile(Path file)
+    {
+        try {
+            Files.deleteIfExists(file);
+        }
+        catch (IOException e) {
+            log.warn(e, "Failed to delete split cache file %s", file);
+        }
+    }
+
+    @VisibleForTesting
+    long getCachedSplitCount()
+    {
+        index.cleanUp();
+        return index.size();
+    }
+
+    @Managed
+    public long getCachedBytes()
+    {
+        long size = 0;
+        for (CachedSplit split : index.asMap().values()) {
+            size += split.getSizeInBytes();
+        }
+        return size;
+    }
+
+    @Managed
+    @Nested
+    public CacheStatsMBean getIndexStats()
+    {
+        return indexStats;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getReadBytes()
+    {
+        return readBytes;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getWrittenBytes()
+    {
+        return writtenBytes;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRejectedSplits()
+    {
+        return rejectedSplits;
+    }
+
+    @Managed
+    @PreDestroy
+    public void invalidateAll()
+    {
+        index.invalidateAll();
+    }
+
+    /**
+     * Cache for the splits of a single scan, with the table, columns, filter and projections
+     * of the scan already part of the key.
+     */
+    public class ScanCache
+    {
+        private final String scanKey;
+
+        private ScanCache(String scanKey)
+        {
+            this.scanKey = requireNonNull(scanKey, "scanKey is null");
+        }
+
+        public Optional<String> getSplitKey(Split split)
+        {
+            return split.getConnectorSplit().getCacheIdentifier()
+                    .map(identifier -> Hashing.sha256().newHasher()
+                            .putString(scanKey, UTF_8)
+                            .putString(identifier, UTF_8)
+                            .hash()
+                            .toString());
+        }
+
+        public Optional<Reader> read(String splitKey)
+        {
+            return SplitCache.this.read(splitKey);
+        }
+
+        public Writer write(String splitKey)
+        {
+            return SplitCache.this.write(splitKey);
+        }
+    }
+
+    public static class Reader
+            extends AbstractIterator<Page>
+            implements Closeable
+    {
+        private final InputStream input;
+        private final Iterator<Page> pages;
+
+        private Reader(PagesSerde serde, InputStream input)
+        {
+            this.input = requireNonNull(input, "input is null");
+            this.pages = readPages(serde, new InputStreamSliceInput(input, BUFFER_SIZE));
+        }
+
+        @Override
+        protected Page computeNext()
+        {
+            if (pages.hasNext()) {
+                return pages.next();
+            }
+            close();
+            return endOfData();
+        }
+
+        @Override
+        public void close()
+        {
+            try {
+                input.close();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes the pages of a split to a new file, which is added to the cache once all pages
+     * of the split were written. Failures are not propagated, as the split can always be
+     * read from the source instead.
+     */
+    public class Writer
+            implements Closeable
+    {
+        private final String key;
+        private final PagesSerde serde;
+        private final PagesSerde.PagesSerdeContext context;
+        private Path file;
+        private SliceOutput output;
+        private long sizeInBytes;
+
+        private Writer(String key, PagesSerde serde, Path directory)
+        {
+            this.key = requireNonNull(key, "key is null");
+            this.serde = requireNonNull(serde, "serde is null");
+            this.context = serde.newContext();
+            try {
+                file = Files.createTempFile(directory, key, FILE_SUFFIX);
+                output = new OutputStreamSliceOutput(Files.newOutputStream(file), BUFFER_SIZE);
+            }
+            catch (IOException e) {
+                log.warn(e, "Failed to create split cache file");
+                abort();
+            }
+        }
+
+        public void append(Page page)
+        {
+            if (output == null) {
+                return;
+            }
+            try {
+                SerializedPage serializedPage = serde.serialize(context, page.getLoadedPage());
+                sizeInBytes += serializedPage.getSizeInBytes();
+                if (sizeInBytes > maxSplitSizeInBytes) {
+                    rejectedSplits.update(1);
+                    abort();
+                    return;
+                }
+                writeSerializedPage(output, serializedPage);
+            }
+            catch (UncheckedIOException | TrinoException e) {
+                log.warn(e, "Failed to write split cache file %s", file);
+                abort();
+            }
+        }
+
+        public void commit()
+        {
+            if (output == null) {
+                return;
+            }
+            try {
+                output.close();
+                output = null;
+            }
+            catch (IOException e) {
+                log.warn(e, "Failed to write split cache file %s", file);
+                abort();
+                return;
+            }
+            context.close();
+            writtenBytes.update(sizeInBytes);
+            index.put(key, new CachedSplit(file, sizeInBytes));
+            file = null;
+        }
+
+        public void abort()
+        {
+            try {
+                if (output != null) {
+                    output.close();
+                }
+            }
+            catch (IOException e) {
+                log.warn(e, "Failed to close split cache file %s", file);
+            }
+            finally {
+                output = null;
+                context.close();
+                if (file != null) {
+                    deleteFile(file);
+                    file = null;
+                }
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            // no-op if the split was committed
+            abort();
+        }
+    }
+
+    private static class CachedSplit
+    {
+        private final Path file;
+        private final long sizeInBytes;
+
+        public CachedSplit(Path file, long sizeInBytes)
+        {
+            this.file = requireNonNull(file, "file is null");
+            this.sizeInBytes = sizeInBytes;
+        }
+
+        public Path getFile()
+        {
+            return file;
+        }
+
+        public long getSizeInBytes()
+        {
+            return sizeInBytes;
+        }
+    }
+}
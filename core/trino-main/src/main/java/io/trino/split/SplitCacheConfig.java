@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.split;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.DataSize;
+
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.NotNull;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+
+public class SplitCacheConfig
+{
+    private boolean enabled;
+    private Path directory;
+    private DataSize maxSize = DataSize.of(10, GIGABYTE);
+    private DataSize maxSplitSize = DataSize.of(64, MEGABYTE);
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Config("split-cache.enabled")
+    @ConfigDescription("Cache the filtered and projected pages of scanned splits that read immutable data")
+    public SplitCacheConfig setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public Optional<Path> getDirectory()
+    {
+        return Optional.ofNullable(directory);
+    }
+
+    @Config("split-cache.directory")
+    @ConfigDescription("Local directory for cached pages, preferably on an SSD. The directory is cleared on startup")
+    public SplitCacheConfig setDirectory(String directory)
+    {
+        this.directory = directory == null ? null : Paths.get(directory);
+        return this;
+    }
+
+    @NotNull
+    public DataSize getMaxSize()
+    {
+        return maxSize;
+    }
+
+    @Config("split-cache.max-size")
+    @ConfigDescription("Maximum size of all cached pages on a node")
+    public SplitCacheConfig setMaxSize(DataSize maxSize)
+    {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getMaxSplitSize()
+    {
+        return maxSplitSize;
+    }
+
+    @Config("split-cache.max-split-size")
+    @ConfigDescription("Maximum size of the cached pages of a single split")
+    public SplitCacheConfig setMaxSplitSize(DataSize maxSplitSize)
+    {
+        this.maxSplitSize = maxSplitSize;
+        return this;
+    }
+
+    @AssertTrue(message = "split-cache.directory must be set when the split cache is enabled")
+    public boolean isDirectorySetIfEnabled()
+    {
+        return !enabled || directory != null;
+    }
+}
@@ -15,13 +15,16 @@ package io.trino.sql;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
 import io.airlift.slice.Slice;
 import io.trino.metadata.Metadata;
 import io.trino.metadata.ResolvedFunction;
+import io.trino.spi.connector.ColumnHandle;
 import io.trino.spi.function.ScalarFunction;
 import io.trino.spi.function.SqlType;
 import io.trino.spi.function.TypeParameter;
+import io.trino.spi.predicate.BloomFilter;
 import io.trino.spi.predicate.Domain;
 import io.trino.spi.predicate.Range;
 import io.trino.spi.predicate.ValueSet;
@@ -30,6 +33,7 @@ import io.trino.spi.type.Type;
 import io.trino.spi.type.VarcharType;
 import io.trino.sql.planner.FunctionCallBuilder;
 import io.trino.sql.planner.Symbol;
+import io.trino.sql.planner.TypeProvider;
 import io.trino.sql.planner.plan.DynamicFilterId;
 import io.trino.sql.tree.BooleanLiteral;
 import io.trino.sql.tree.Cast;
@@ -40,7 +44,9 @@ import io.trino.sql.tree.QualifiedName;
 import io.trino.sql.tree.StringLiteral;
 import io.trino.sql.tree.SymbolReference;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -54,10 +60,14 @@ import static io.trino.sql.ExpressionUtils.extractConjuncts;
 import static io.trino.sql.tree.BooleanLiteral.FALSE_LITERAL;
 import static io.trino.sql.tree.BooleanLiteral.TRUE_LITERAL;
 import static io.trino.sql.tree.ComparisonExpression.Operator.EQUAL;
+import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
 public final class DynamicFilters
 {
+    // A Bloom filter letting through more non-matching values than this is not worth applying
+    public static final double MAX_BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY = 0.3;
+
     private DynamicFilters() {}
 
     public static Expression createDynamicFilterExpression(
@@ -144,6 +154,44 @@ public final class DynamicFilters
         return Symbol.from(((Cast) dynamicFilterExpression).getExpression());
     }
 
+    /**
+     * Adds the values of the domain to the Bloom filter, ignoring null.
+     * Returns false if the domain is not a discrete set of values and therefore cannot be added.
+     */
+    public static boolean addDiscreteValues(BloomFilter bloomFilter, Domain domain)
+    {
+        ValueSet values = domain.getValues();
+        if (values.isNone()) {
+            return true;
+        }
+        if (!values.isDiscreteSet()) {
+            return false;
+        }
+        values.getDiscreteSet().forEach(bloomFilter::add);
+        return true;
+    }
+
+    /**
+     * Maps a build-side Bloom filter onto the probe-side columns it can be applied to.
+     */
+    public static Map<ColumnHandle, BloomFilter> translateBloomFilter(
+            BloomFilter bloomFilter,
+            Collection<Descriptor> descriptors,
+            Map<Symbol, ColumnHandle> columnHandles,
+            TypeProvider typeProvider)
+    {
+        ImmutableMap.Builder<ColumnHandle, BloomFilter> bloomFilters = ImmutableMap.builder();
+        descriptors.stream()
+                .filter(Descriptor::isBloomFilterApplicable)
+                .map(descriptor -> Symbol.from(descriptor.getInput()))
+                .distinct()
+                .filter(probeSymbol -> typeProvider.get(probeSymbol).equals(bloomFilter.getType()))
+                .forEach(probeSymbol -> bloomFilters.put(
+                        requireNonNull(columnHandles.get(probeSymbol), () -> format("Missing probe column for %s", probeSymbol)),
+                        bloomFilter));
+        return bloomFilters.build();
+    }
+
     public static boolean isDynamicFilter(Expression expression)
     {
         return getDescriptor(expression).isPresent();
@@ -282,6 +330,14 @@ public final class DynamicFilters
                     .toString();
         }
 
+        /**
+         * Bloom filters can only test values for equality and never contain null.
+         */
+        public boolean isBloomFilterApplicable()
+        {
+            return operator == EQUAL && !nullAllowed;
+        }
+
         public Domain applyComparison(Domain domain)
         {
             if (domain.isAll()) {
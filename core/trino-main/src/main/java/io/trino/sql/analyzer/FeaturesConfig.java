@@ -23,7 +23,10 @@ import io.airlift.configuration.LegacyConfig;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 import io.airlift.units.MaxDataSize;
+import io.trino.execution.buffer.ExchangeCompressionCodec;
+import io.trino.execution.buffer.PagesSerdeFactory;
 
+import javax.validation.constraints.AssertTrue;
 import javax.validation.constraints.DecimalMax;
 import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Min;
@@ -84,10 +87,15 @@ public class FeaturesConfig
     private DataSize writerMinSize = DataSize.of(32, DataSize.Unit.MEGABYTE);
     private boolean optimizeMetadataQueries;
     private boolean optimizeHashGeneration = true;
+    private boolean spreadOuterJoinNullKeys;
+    private boolean heavyHitterDetectionEnabled;
     private boolean enableIntermediateAggregations;
     private boolean pushTableWriteThroughUnion = true;
     private DataIntegrityVerification exchangeDataIntegrityVerification = DataIntegrityVerification.ABORT;
     private boolean exchangeCompressionEnabled;
+    private ExchangeCompressionCodec exchangeCompressionCodec = ExchangeCompressionCodec.LZ4;
+    private DataSize exchangeCompressionNetworkThroughput = PagesSerdeFactory.DEFAULT_NETWORK_THROUGHPUT;
+    private boolean exchangeSpoolingEnabled;
     private boolean optimizeMixedDistinctAggregations;
     private boolean unwrapCasts = true;
     private boolean forceSingleNodeOutput = true;
@@ -111,6 +119,8 @@ public class FeaturesConfig
     private boolean enableStatsCalculator = true;
     private boolean collectPlanStatisticsForAllQueries;
     private boolean ignoreStatsCalculatorFailures = true;
+    private boolean historyBasedStatisticsEnabled;
+    private boolean adaptiveJoinReplanningEnabled;
     private boolean defaultFilterFactorEnabled;
     private boolean enableForcedExchangeBelowGroupId = true;
     private boolean pushAggregationThroughOuterJoin = true;
@@ -120,6 +130,9 @@ public class FeaturesConfig
     private boolean parseDecimalLiteralsAsDouble;
     private boolean useMarkDistinct = true;
     private boolean preferPartialAggregation = true;
+    private boolean adaptivePartialAggregationEnabled = true;
+    private long adaptivePartialAggregationMinRows = 100_000;
+    private double adaptivePartialAggregationUniqueRowsRatioThreshold = 0.8;
     private boolean optimizeTopNRanking = true;
     private boolean lateMaterializationEnabled;
     private boolean skipRedundantSort = true;
@@ -435,6 +448,48 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isAdaptivePartialAggregationEnabled()
+    {
+        return adaptivePartialAggregationEnabled;
+    }
+
+    @Config("adaptive-partial-aggregation.enabled")
+    @ConfigDescription("Disable partial aggregation at runtime when it does not reduce the number of rows")
+    public FeaturesConfig setAdaptivePartialAggregationEnabled(boolean adaptivePartialAggregationEnabled)
+    {
+        this.adaptivePartialAggregationEnabled = adaptivePartialAggregationEnabled;
+        return this;
+    }
+
+    @Min(0)
+    public long getAdaptivePartialAggregationMinRows()
+    {
+        return adaptivePartialAggregationMinRows;
+    }
+
+    @Config("adaptive-partial-aggregation.min-rows")
+    @ConfigDescription("Minimum number of input rows a partial aggregation has to process before it can be disabled")
+    public FeaturesConfig setAdaptivePartialAggregationMinRows(long adaptivePartialAggregationMinRows)
+    {
+        this.adaptivePartialAggregationMinRows = adaptivePartialAggregationMinRows;
+        return this;
+    }
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    public double getAdaptivePartialAggregationUniqueRowsRatioThreshold()
+    {
+        return adaptivePartialAggregationUniqueRowsRatioThreshold;
+    }
+
+    @Config("adaptive-partial-aggregation.unique-rows-ratio-threshold")
+    @ConfigDescription("Ratio of output to input rows above which partial aggregation is disabled")
+    public FeaturesConfig setAdaptivePartialAggregationUniqueRowsRatioThreshold(double adaptivePartialAggregationUniqueRowsRatioThreshold)
+    {
+        this.adaptivePartialAggregationUniqueRowsRatioThreshold = adaptivePartialAggregationUniqueRowsRatioThreshold;
+        return this;
+    }
+
     public boolean isOptimizeTopNRanking()
     {
         return optimizeTopNRanking;
@@ -460,6 +515,32 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isSpreadOuterJoinNullKeys()
+    {
+        return spreadOuterJoinNullKeys;
+    }
+
+    @Config("optimizer.spread-outer-join-null-keys")
+    @ConfigDescription("Distribute probe rows with null join keys of partitioned outer joins evenly instead of sending them to a single node")
+    public FeaturesConfig setSpreadOuterJoinNullKeys(boolean spreadOuterJoinNullKeys)
+    {
+        this.spreadOuterJoinNullKeys = spreadOuterJoinNullKeys;
+        return this;
+    }
+
+    public boolean isHeavyHitterDetectionEnabled()
+    {
+        return heavyHitterDetectionEnabled;
+    }
+
+    @Config("heavy-hitter-detection.enabled")
+    @ConfigDescription("Track the most frequent partitioning keys of partitioned outputs to make data skew visible")
+    public FeaturesConfig setHeavyHitterDetectionEnabled(boolean heavyHitterDetectionEnabled)
+    {
+        this.heavyHitterDetectionEnabled = heavyHitterDetectionEnabled;
+        return this;
+    }
+
     public boolean isPushTableWriteThroughUnion()
     {
         return pushTableWriteThroughUnion;
@@ -613,6 +694,32 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isHistoryBasedStatisticsEnabled()
+    {
+        return historyBasedStatisticsEnabled;
+    }
+
+    @Config("optimizer.history-based-statistics-enabled")
+    @ConfigDescription("Record the output of plan nodes in finished queries, and prefer it over estimates when planning the same plan again")
+    public FeaturesConfig setHistoryBasedStatisticsEnabled(boolean historyBasedStatisticsEnabled)
+    {
+        this.historyBasedStatisticsEnabled = historyBasedStatisticsEnabled;
+        return this;
+    }
+
+    public boolean isAdaptiveJoinReplanningEnabled()
+    {
+        return adaptiveJoinReplanningEnabled;
+    }
+
+    @Config("optimizer.adaptive-join-replanning-enabled")
+    @ConfigDescription("Plan a query again when the build side of a broadcast join is much larger than estimated")
+    public FeaturesConfig setAdaptiveJoinReplanningEnabled(boolean adaptiveJoinReplanningEnabled)
+    {
+        this.adaptiveJoinReplanningEnabled = adaptiveJoinReplanningEnabled;
+        return this;
+    }
+
     @Config("optimizer.default-filter-factor-enabled")
     public FeaturesConfig setDefaultFilterFactorEnabled(boolean defaultFilterFactorEnabled)
     {
@@ -759,6 +866,53 @@ public class FeaturesConfig
         return this;
     }
 
+    @NotNull
+    public ExchangeCompressionCodec getExchangeCompressionCodec()
+    {
+        return exchangeCompressionCodec;
+    }
+
+    @Config("exchange.compression-codec")
+    @ConfigDescription("Codec used to compress exchange pages, ADAPTIVE chooses between LZ4, ZSTD and no compression for each page")
+    public FeaturesConfig setExchangeCompressionCodec(ExchangeCompressionCodec exchangeCompressionCodec)
+    {
+        this.exchangeCompressionCodec = exchangeCompressionCodec;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getExchangeCompressionNetworkThroughput()
+    {
+        return exchangeCompressionNetworkThroughput;
+    }
+
+    @Config("exchange.compression-network-throughput")
+    @ConfigDescription("Expected network throughput per second between workers, used by ADAPTIVE exchange compression")
+    public FeaturesConfig setExchangeCompressionNetworkThroughput(DataSize exchangeCompressionNetworkThroughput)
+    {
+        this.exchangeCompressionNetworkThroughput = exchangeCompressionNetworkThroughput;
+        return this;
+    }
+
+    public boolean isExchangeSpoolingEnabled()
+    {
+        return exchangeSpoolingEnabled;
+    }
+
+    @Config("exchange.spooling-enabled")
+    @ConfigDescription("Spool pages of full partitioned output buffers to the spill paths instead of blocking the producers")
+    public FeaturesConfig setExchangeSpoolingEnabled(boolean exchangeSpoolingEnabled)
+    {
+        this.exchangeSpoolingEnabled = exchangeSpoolingEnabled;
+        return this;
+    }
+
+    @AssertTrue(message = SPILLER_SPILL_PATH + " must be configured when exchange.spooling-enabled is set")
+    public boolean isSpillPathsConfiguredIfExchangeSpoolingEnabled()
+    {
+        return !exchangeSpoolingEnabled || !spillerSpillPaths.isEmpty();
+    }
+
     public DataIntegrityVerification getExchangeDataIntegrityVerification()
     {
         return exchangeDataIntegrityVerification;
@@ -0,0 +1,272 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.sql.gen;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.trino.metadata.BoundSignature;
+import io.trino.operator.project.BatchArithmeticPageProjection;
+import io.trino.operator.project.BatchArithmeticPageProjection.Operand;
+import io.trino.operator.project.BatchArithmeticPageProjection.Operation;
+import io.trino.operator.project.BatchComparisonPageFilter;
+import io.trino.operator.project.BatchComparisonPageFilter.ColumnComparison;
+import io.trino.operator.project.InputChannels;
+import io.trino.operator.project.PageFilter;
+import io.trino.operator.project.PageProjection;
+import io.trino.spi.function.OperatorType;
+import io.trino.spi.type.FixedWidthType;
+import io.trino.spi.type.Type;
+import io.trino.sql.relational.CallExpression;
+import io.trino.sql.relational.ConstantExpression;
+import io.trino.sql.relational.InputReferenceExpression;
+import io.trino.sql.relational.RowExpression;
+import io.trino.sql.relational.SpecialForm;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static io.trino.metadata.Signature.isOperatorName;
+import static io.trino.metadata.Signature.unmangleOperator;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.BooleanType.BOOLEAN;
+import static io.trino.spi.type.DateType.DATE;
+import static io.trino.spi.type.IntegerType.INTEGER;
+import static io.trino.spi.type.SmallintType.SMALLINT;
+import static io.trino.spi.type.TinyintType.TINYINT;
+import static io.trino.sql.relational.SpecialForm.Form.AND;
+import static io.trino.sql.relational.SpecialForm.Form.BETWEEN;
+
+/**
+ * Recognizes filters and projections simple enough to be evaluated with the batch kernels from
+ * {@link io.trino.operator.project}, instead of the per row code generated by {@link PageFunctionCompiler}.
+ * Expressions are expected to be rewritten with {@link io.trino.operator.project.PageFieldsToInputParametersRewriter} first.
+ */
+final class BatchKernelCompiler
+{
+    private static final Set<Type> COMPARISON_TYPES = ImmutableSet.of(BIGINT, INTEGER, SMALLINT, TINYINT, DATE);
+    private static final Set<Type> ARITHMETIC_TYPES = ImmutableSet.of(BIGINT, INTEGER);
+
+    private BatchKernelCompiler() {}
+
+    /**
+     * Supports a conjunction of comparisons between a column and a constant, such as
+     * {@code a = 1}, {@code a <> 1}, {@code a < 1}, {@code 1 >= a} or {@code a BETWEEN 1 AND 5}.
+     */
+    public static Optional<Supplier<PageFilter>> tryCompileFilter(RowExpression filter, InputChannels inputChannels)
+    {
+        if (!filter.getType().equals(BOOLEAN)) {
+            return Optional.empty();
+        }
+        ImmutableList.Builder<ColumnComparison> comparisons = ImmutableList.builder();
+        if (!extractComparisons(filter, comparisons)) {
+            return Optional.empty();
+        }
+        List<ColumnComparison> columnComparisons = comparisons.build();
+        return Optional.of(() -> new BatchComparisonPageFilter(inputChannels, columnComparisons));
+    }
+
+    /**
+     * Supports addition, subtraction and multiplication of two {@code bigint} or {@code integer} columns,
+     * or of a column and a constant.
+     */
+    public static Optional<Supplier<PageProjection>> tryCompileProjection(RowExpression projection, InputChannels inputChannels)
+    {
+        if (!(projection instanceof CallExpression) || !ARITHMETIC_TYPES.contains(projection.getType())) {
+            return Optional.empty();
+        }
+        CallExpression call = (CallExpression) projection;
+        Optional<OperatorType> operatorType = getOperatorType(call);
+        if (operatorType.isEmpty() || !hasArgumentTypes(call, projection.getType())) {
+            return Optional.empty();
+        }
+
+        Operation operation;
+        switch (operatorType.get()) {
+            case ADD:
+                operation = Operation.ADD;
+                break;
+            case SUBTRACT:
+                operation = Operation.SUBTRACT;
+                break;
+            case MULTIPLY:
+                operation = Operation.MULTIPLY;
+                break;
+            default:
+                return Optional.empty();
+        }
+
+        Optional<Operand> left = toOperand(call.getArguments().get(0));
+        Optional<Operand> right = toOperand(call.getArguments().get(1));
+        if (left.isEmpty() || right.isEmpty() || (left.get().getChannel().isEmpty() && right.get().getChannel().isEmpty())) {
+            return Optional.empty();
+        }
+
+        // the projection is stateless, so a single instance can be shared
+        PageProjection pageProjection = new BatchArithmeticPageProjection(projection.getType(), operation, left.get(), right.get(), inputChannels);
+        return Optional.of(() -> pageProjection);
+    }
+
+    private static boolean extractComparisons(RowExpression expression, ImmutableList.Builder<ColumnComparison> comparisons)
+    {
+        if (expression instanceof SpecialForm) {
+            SpecialForm specialForm = (SpecialForm) expression;
+            if (specialForm.getForm() == AND) {
+                for (RowExpression argument : specialForm.getArguments()) {
+                    if (!extractComparisons(argument, comparisons)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            if (specialForm.getForm() == BETWEEN) {
+                return extractBetween(specialForm, comparisons);
+            }
+            return false;
+        }
+
+        if (!(expression instanceof CallExpression)) {
+            return false;
+        }
+        CallExpression call = (CallExpression) expression;
+        if (call.getResolvedFunction().getSignature().getName().equals("not") && call.getArguments().size() == 1) {
+            RowExpression argument = call.getArguments().get(0);
+            if (!(argument instanceof CallExpression) || getOperatorType((CallExpression) argument).orElse(null) != OperatorType.EQUAL) {
+                return false;
+            }
+            return extractComparison((CallExpression) argument, true, comparisons);
+        }
+        return extractComparison(call, false, comparisons);
+    }
+
+    private static boolean extractComparison(CallExpression call, boolean negated, ImmutableList.Builder<ColumnComparison> comparisons)
+    {
+        Optional<OperatorType> operatorType = getOperatorType(call);
+        if (operatorType.isEmpty() || call.getArguments().size() != 2) {
+            return false;
+        }
+        RowExpression left = call.getArguments().get(0);
+        RowExpression right = call.getArguments().get(1);
+        if (!COMPARISON_TYPES.contains(left.getType()) || !hasArgumentTypes(call, left.getType())) {
+            return false;
+        }
+
+        // move the column to the left side, and flip the comparison accordingly
+        boolean flipped = false;
+        if (left instanceof ConstantExpression && right instanceof InputReferenceExpression) {
+            RowExpression temp = left;
+            left = right;
+            right = temp;
+            flipped = true;
+        }
+        if (!(left instanceof InputReferenceExpression) || !(right instanceof ConstantExpression)) {
+            return false;
+        }
+        Object value = ((ConstantExpression) right).getValue();
+        if (value == null) {
+            return false;
+        }
+        long constant = (long) value;
+
+        long low = Long.MIN_VALUE;
+        long high = Long.MAX_VALUE;
+        switch (operatorType.get()) {
+            case EQUAL:
+                low = constant;
+                high = constant;
+                break;
+            case LESS_THAN:
+                if (flipped) {
+                    // constant < column
+                    if (constant == Long.MAX_VALUE) {
+                        return false;
+                    }
+                    low = constant + 1;
+                }
+                else {
+                    if (constant == Long.MIN_VALUE) {
+                        return false;
+                    }
+                    high = constant - 1;
+                }
+                break;
+            case LESS_THAN_OR_EQUAL:
+                if (flipped) {
+                    low = constant;
+                }
+                else {
+                    high = constant;
+                }
+                break;
+            default:
+                return false;
+        }
+
+        comparisons.add(new ColumnComparison(((InputReferenceExpression) left).getField(), ((FixedWidthType) left.getType()).getFixedSize(), low, high, negated));
+        return true;
+    }
+
+    private static boolean extractBetween(SpecialForm between, ImmutableList.Builder<ColumnComparison> comparisons)
+    {
+        RowExpression value = between.getArguments().get(0);
+        RowExpression min = between.getArguments().get(1);
+        RowExpression max = between.getArguments().get(2);
+        if (!(value instanceof InputReferenceExpression) || !(min instanceof ConstantExpression) || !(max instanceof ConstantExpression)) {
+            return false;
+        }
+        if (!COMPARISON_TYPES.contains(value.getType()) || !value.getType().equals(min.getType()) || !value.getType().equals(max.getType())) {
+            return false;
+        }
+        Object low = ((ConstantExpression) min).getValue();
+        Object high = ((ConstantExpression) max).getValue();
+        if (low == null || high == null || (long) low > (long) high) {
+            return false;
+        }
+        comparisons.add(new ColumnComparison(((InputReferenceExpression) value).getField(), ((FixedWidthType) value.getType()).getFixedSize(), (long) low, (long) high, false));
+        return true;
+    }
+
+    private static Optional<Operand> toOperand(RowExpression expression)
+    {
+        if (expression instanceof InputReferenceExpression) {
+            return Optional.of(Operand.column(((InputReferenceExpression) expression).getField()));
+        }
+        if (expression instanceof ConstantExpression) {
+            Object value = ((ConstantExpression) expression).getValue();
+            if (value == null) {
+                return Optional.empty();
+            }
+            return Optional.of(Operand.constant((long) value));
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<OperatorType> getOperatorType(CallExpression call)
+    {
+        String name = call.getResolvedFunction().getSignature().getName();
+        if (!isOperatorName(name)) {
+            return Optional.empty();
+        }
+        return Optional.of(unmangleOperator(name));
+    }
+
+    private static boolean hasArgumentTypes(CallExpression call, Type type)
+    {
+        BoundSignature signature = call.getResolvedFunction().getSignature();
+        return signature.getArgumentTypes().size() == 2 &&
+                signature.getArgumentTypes().stream().allMatch(type::equals) &&
+                call.getArguments().stream().map(RowExpression::getType).allMatch(type::equals);
+    }
+}
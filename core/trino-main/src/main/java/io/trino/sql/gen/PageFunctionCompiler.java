@@ -63,12 +63,14 @@ import org.weakref.jmx.Nested;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
+import java.lang.invoke.MethodHandle;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -102,9 +104,12 @@ public class PageFunctionCompiler
 {
     private final Metadata metadata;
     private final DeterminismEvaluator determinismEvaluator;
+    private final boolean batchKernelsEnabled;
 
-    private final LoadingCache<RowExpression, Supplier<PageProjection>> projectionCache;
-    private final LoadingCache<RowExpression, Supplier<PageFilter>> filterCache;
+    // the caches are keyed by expressions with their fields rewritten to input parameters, so that expressions
+    // which only differ in the channels they read share the generated class
+    private final LoadingCache<RowExpression, Function<InputChannels, Supplier<PageProjection>>> projectionCache;
+    private final LoadingCache<RowExpression, Function<InputChannels, Supplier<PageFilter>>> filterCache;
 
     private final CacheStatsMBean projectionCacheStats;
     private final CacheStatsMBean filterCacheStats;
@@ -112,13 +117,19 @@ public class PageFunctionCompiler
     @Inject
     public PageFunctionCompiler(Metadata metadata, CompilerConfig config)
     {
-        this(metadata, requireNonNull(config, "config is null").getExpressionCacheSize());
+        this(metadata, requireNonNull(config, "config is null").getExpressionCacheSize(), config.isBatchKernelsEnabled());
     }
 
     public PageFunctionCompiler(Metadata metadata, int expressionCacheSize)
+    {
+        this(metadata, expressionCacheSize, false);
+    }
+
+    public PageFunctionCompiler(Metadata metadata, int expressionCacheSize, boolean batchKernelsEnabled)
     {
         this.metadata = requireNonNull(metadata, "metadata is null");
         this.determinismEvaluator = new DeterminismEvaluator(metadata);
+        this.batchKernelsEnabled = batchKernelsEnabled;
 
         if (expressionCacheSize > 0) {
             projectionCache = CacheBuilder.newBuilder()
@@ -162,14 +173,6 @@ public class PageFunctionCompiler
     }
 
     public Supplier<PageProjection> compileProjection(RowExpression projection, Optional<String> classNameSuffix)
-    {
-        if (projectionCache == null) {
-            return compileProjectionInternal(projection, classNameSuffix);
-        }
-        return projectionCache.getUnchecked(projection);
-    }
-
-    private Supplier<PageProjection> compileProjectionInternal(RowExpression projection, Optional<String> classNameSuffix)
     {
         requireNonNull(projection, "projection is null");
 
@@ -187,10 +190,25 @@ public class PageFunctionCompiler
 
         PageFieldsToInputParametersRewriter.Result result = rewritePageFieldsToInputParameters(projection);
 
+        if (batchKernelsEnabled) {
+            Optional<Supplier<PageProjection>> batchProjection = BatchKernelCompiler.tryCompileProjection(result.getRewrittenExpression(), result.getInputChannels());
+            if (batchProjection.isPresent()) {
+                return batchProjection.get();
+            }
+        }
+
+        if (projectionCache == null) {
+            return compileProjectionInternal(result.getRewrittenExpression(), classNameSuffix).apply(result.getInputChannels());
+        }
+        return projectionCache.getUnchecked(result.getRewrittenExpression()).apply(result.getInputChannels());
+    }
+
+    private Function<InputChannels, Supplier<PageProjection>> compileProjectionInternal(RowExpression projection, Optional<String> classNameSuffix)
+    {
         CallSiteBinder callSiteBinder = new CallSiteBinder();
 
         // generate Work
-        ClassDefinition pageProjectionWorkDefinition = definePageProjectWorkClass(result.getRewrittenExpression(), callSiteBinder, classNameSuffix);
+        ClassDefinition pageProjectionWorkDefinition = definePageProjectWorkClass(projection, callSiteBinder, classNameSuffix);
 
         Class<?> pageProjectionWorkClass;
         try {
@@ -204,11 +222,9 @@ public class PageFunctionCompiler
             throw new TrinoException(COMPILER_ERROR, e);
         }
 
-        return () -> new GeneratedPageProjection(
-                result.getRewrittenExpression(),
-                determinismEvaluator.isDeterministic(result.getRewrittenExpression()),
-                result.getInputChannels(),
-                constructorMethodHandle(pageProjectionWorkClass, BlockBuilder.class, ConnectorSession.class, Page.class, SelectedPositions.class));
+        boolean deterministic = determinismEvaluator.isDeterministic(projection);
+        MethodHandle pageProjectionWorkFactory = constructorMethodHandle(pageProjectionWorkClass, BlockBuilder.class, ConnectorSession.class, Page.class, SelectedPositions.class);
+        return inputChannels -> () -> new GeneratedPageProjection(projection, deterministic, inputChannels, pageProjectionWorkFactory);
     }
 
     private static ParameterizedType generateProjectionWorkClassName(Optional<String> classNameSuffix)
@@ -366,20 +382,27 @@ public class PageFunctionCompiler
 
     public Supplier<PageFilter> compileFilter(RowExpression filter, Optional<String> classNameSuffix)
     {
+        requireNonNull(filter, "filter is null");
+
+        PageFieldsToInputParametersRewriter.Result result = rewritePageFieldsToInputParameters(filter);
+
+        if (batchKernelsEnabled) {
+            Optional<Supplier<PageFilter>> batchFilter = BatchKernelCompiler.tryCompileFilter(result.getRewrittenExpression(), result.getInputChannels());
+            if (batchFilter.isPresent()) {
+                return batchFilter.get();
+            }
+        }
+
         if (filterCache == null) {
-            return compileFilterInternal(filter, classNameSuffix);
+            return compileFilterInternal(result.getRewrittenExpression(), classNameSuffix).apply(result.getInputChannels());
         }
-        return filterCache.getUnchecked(filter);
+        return filterCache.getUnchecked(result.getRewrittenExpression()).apply(result.getInputChannels());
     }
 
-    private Supplier<PageFilter> compileFilterInternal(RowExpression filter, Optional<String> classNameSuffix)
+    private Function<InputChannels, Supplier<PageFilter>> compileFilterInternal(RowExpression filter, Optional<String> classNameSuffix)
     {
-        requireNonNull(filter, "filter is null");
-
-        PageFieldsToInputParametersRewriter.Result result = rewritePageFieldsToInputParameters(filter);
-
         CallSiteBinder callSiteBinder = new CallSiteBinder();
-        ClassDefinition classDefinition = defineFilterClass(result.getRewrittenExpression(), result.getInputChannels(), callSiteBinder, classNameSuffix);
+        ClassDefinition classDefinition = defineFilterClass(filter, callSiteBinder, classNameSuffix);
 
         Class<? extends PageFilter> functionClass;
         try {
@@ -393,9 +416,9 @@ public class PageFunctionCompiler
             throw new TrinoException(COMPILER_ERROR, filter.toString(), e.getCause());
         }
 
-        return () -> {
+        return inputChannels -> () -> {
             try {
-                return functionClass.getConstructor().newInstance();
+                return functionClass.getConstructor(InputChannels.class).newInstance(inputChannels);
             }
             catch (ReflectiveOperationException e) {
                 throw new TrinoException(COMPILER_ERROR, e);
@@ -408,7 +431,7 @@ public class PageFunctionCompiler
         return makeClassName(PageFilter.class.getSimpleName(), classNameSuffix);
     }
 
-    private ClassDefinition defineFilterClass(RowExpression filter, InputChannels inputChannels, CallSiteBinder callSiteBinder, Optional<String> classNameSuffix)
+    private ClassDefinition defineFilterClass(RowExpression filter, CallSiteBinder callSiteBinder, Optional<String> classNameSuffix)
     {
         ClassDefinition classDefinition = new ClassDefinition(
                 a(PUBLIC, FINAL),
@@ -424,6 +447,8 @@ public class PageFunctionCompiler
         FieldDefinition selectedPositions = classDefinition.declareField(a(PRIVATE), "selectedPositions", boolean[].class);
         generatePageFilterMethod(classDefinition, selectedPositions);
 
+        FieldDefinition inputChannelsField = classDefinition.declareField(a(PRIVATE, FINAL), "inputChannels", InputChannels.class);
+
         // isDeterministic
         classDefinition.declareMethod(a(PUBLIC), "isDeterministic", type(boolean.class))
                 .getBody()
@@ -431,9 +456,9 @@ public class PageFunctionCompiler
                 .retBoolean();
 
         // getInputChannels
-        classDefinition.declareMethod(a(PUBLIC), "getInputChannels", type(InputChannels.class))
-                .getBody()
-                .append(invoke(callSiteBinder.bind(inputChannels, InputChannels.class), "getInputChannels"))
+        MethodDefinition getInputChannels = classDefinition.declareMethod(a(PUBLIC), "getInputChannels", type(InputChannels.class));
+        getInputChannels.getBody()
+                .append(getInputChannels.getThis().getField(inputChannelsField))
                 .retObject();
 
         // toString
@@ -448,9 +473,12 @@ public class PageFunctionCompiler
                 .retObject();
 
         // constructor
-        generateConstructor(classDefinition, cachedInstanceBinder, method -> {
+        Parameter inputChannels = arg("inputChannels", InputChannels.class);
+        generateConstructor(classDefinition, cachedInstanceBinder, ImmutableList.of(inputChannels), method -> {
             Variable thisVariable = method.getScope().getThis();
-            method.getBody().append(thisVariable.setField(selectedPositions, newArray(type(boolean[].class), 0)));
+            method.getBody()
+                    .append(thisVariable.setField(inputChannelsField, inputChannels))
+                    .append(thisVariable.setField(selectedPositions, newArray(type(boolean[].class), 0)));
         });
 
         return classDefinition;
@@ -572,9 +600,10 @@ public class PageFunctionCompiler
     private static void generateConstructor(
             ClassDefinition classDefinition,
             CachedInstanceBinder cachedInstanceBinder,
+            List<Parameter> parameters,
             Consumer<MethodDefinition> additionalStatements)
     {
-        MethodDefinition constructorDefinition = classDefinition.declareConstructor(a(PUBLIC));
+        MethodDefinition constructorDefinition = classDefinition.declareConstructor(a(PUBLIC), parameters);
 
         BytecodeBlock body = constructorDefinition.getBody();
         Variable thisVariable = constructorDefinition.getThis();
@@ -23,6 +23,7 @@ import javax.validation.constraints.Min;
 public class CompilerConfig
 {
     private int expressionCacheSize = 10_000;
+    private boolean batchKernelsEnabled;
 
     @Min(0)
     public int getExpressionCacheSize()
@@ -37,4 +38,17 @@ public class CompilerConfig
         this.expressionCacheSize = expressionCacheSize;
         return this;
     }
+
+    public boolean isBatchKernelsEnabled()
+    {
+        return batchKernelsEnabled;
+    }
+
+    @Config("compiler.batch-kernels-enabled")
+    @Description("Evaluate simple filters and projections a batch of rows at a time instead of with generated code")
+    public CompilerConfig setBatchKernelsEnabled(boolean batchKernelsEnabled)
+    {
+        this.batchKernelsEnabled = batchKernelsEnabled;
+        return this;
+    }
 }
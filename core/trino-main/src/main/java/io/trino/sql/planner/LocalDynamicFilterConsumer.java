@@ -17,6 +17,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import io.trino.spi.predicate.BloomFilter;
 import io.trino.spi.predicate.Domain;
 import io.trino.spi.predicate.TupleDomain;
 import io.trino.spi.type.Type;
@@ -28,6 +29,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
 
@@ -35,7 +37,10 @@ import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.trino.sql.DynamicFilters.MAX_BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY;
+import static io.trino.sql.DynamicFilters.addDiscreteValues;
 import static java.util.Objects.requireNonNull;
 import static java.util.function.Function.identity;
 
@@ -55,7 +60,19 @@ public class LocalDynamicFilterConsumer
     // The resulting predicates from each build-side partition.
     private final List<TupleDomain<DynamicFilterId>> partitions;
 
+    private final boolean collectBloomFilters;
+
+    private final SettableFuture<Map<DynamicFilterId, BloomFilter>> bloomFiltersFuture;
+
+    // The Bloom filters from each build-side partition (empty for partitions which collected all values exactly).
+    private final List<Map<DynamicFilterId, BloomFilter>> bloomFilterPartitions;
+
     public LocalDynamicFilterConsumer(Map<DynamicFilterId, Integer> buildChannels, Map<DynamicFilterId, Type> filterBuildTypes, int partitionCount)
+    {
+        this(buildChannels, filterBuildTypes, partitionCount, false);
+    }
+
+    public LocalDynamicFilterConsumer(Map<DynamicFilterId, Integer> buildChannels, Map<DynamicFilterId, Type> filterBuildTypes, int partitionCount, boolean collectBloomFilters)
     {
         this.buildChannels = requireNonNull(buildChannels, "buildChannels is null");
         this.filterBuildTypes = requireNonNull(filterBuildTypes, "filterBuildTypes is null");
@@ -65,6 +82,10 @@ public class LocalDynamicFilterConsumer
 
         this.partitionCount = partitionCount;
         this.partitions = new ArrayList<>(partitionCount);
+
+        this.collectBloomFilters = collectBloomFilters;
+        this.bloomFiltersFuture = SettableFuture.create();
+        this.bloomFilterPartitions = new ArrayList<>(partitionCount);
     }
 
     public ListenableFuture<Map<DynamicFilterId, Domain>> getDynamicFilterDomains()
@@ -72,9 +93,22 @@ public class LocalDynamicFilterConsumer
         return Futures.transform(resultFuture, this::convertTupleDomain, directExecutor());
     }
 
+    /**
+     * Completes once all build-side partitions are collected, with the merged Bloom filters.
+     * A filter is absent when its values were collected exactly or its Bloom filter would not be selective.
+     */
+    public ListenableFuture<Map<DynamicFilterId, BloomFilter>> getBloomFilters()
+    {
+        if (!collectBloomFilters) {
+            return immediateFuture(ImmutableMap.of());
+        }
+        return bloomFiltersFuture;
+    }
+
     private void addPartition(TupleDomain<DynamicFilterId> tupleDomain)
     {
         TupleDomain<DynamicFilterId> result = null;
+        Map<DynamicFilterId, BloomFilter> bloomFilters = null;
         synchronized (this) {
             // Called concurrently by each DynamicFilterSourceOperator instance (when collection is over).
             verify(partitions.size() < partitionCount);
@@ -85,11 +119,64 @@ public class LocalDynamicFilterConsumer
                 // No more partitions are left to be processed.
                 result = TupleDomain.columnWiseUnion(partitions);
             }
+            if (isBloomFilterCollectionFinished()) {
+                bloomFilters = mergeBloomFilters();
+            }
         }
 
         if (result != null) {
             resultFuture.set(result);
         }
+        if (bloomFilters != null) {
+            bloomFiltersFuture.set(bloomFilters);
+        }
+    }
+
+    private void addBloomFilterPartition(Map<DynamicFilterId, BloomFilter> partitionBloomFilters)
+    {
+        Map<DynamicFilterId, BloomFilter> bloomFilters = null;
+        synchronized (this) {
+            verify(bloomFilterPartitions.size() < partitionCount);
+            bloomFilterPartitions.add(partitionBloomFilters);
+            if (isBloomFilterCollectionFinished()) {
+                bloomFilters = mergeBloomFilters();
+            }
+        }
+
+        if (bloomFilters != null) {
+            bloomFiltersFuture.set(bloomFilters);
+        }
+    }
+
+    private synchronized boolean isBloomFilterCollectionFinished()
+    {
+        // Bloom filters are merged with the exact values collected by the other partitions
+        return collectBloomFilters && partitions.size() == partitionCount && bloomFilterPartitions.size() == partitionCount;
+    }
+
+    private synchronized Map<DynamicFilterId, BloomFilter> mergeBloomFilters()
+    {
+        Map<DynamicFilterId, BloomFilter> merged = new HashMap<>();
+        for (Map<DynamicFilterId, BloomFilter> partitionBloomFilters : bloomFilterPartitions) {
+            partitionBloomFilters.forEach((filterId, bloomFilter) -> merged.merge(filterId, bloomFilter.copy(), (left, right) -> {
+                left.merge(right);
+                return left;
+            }));
+        }
+
+        ImmutableMap.Builder<DynamicFilterId, BloomFilter> result = ImmutableMap.builder();
+        merged.forEach((filterId, bloomFilter) -> {
+            // Partitions without a Bloom filter collected all values exactly. Values of the
+            // remaining partitions are added as well when their domain is discrete, which is harmless.
+            for (TupleDomain<DynamicFilterId> partition : partitions) {
+                Optional<Domain> domain = partition.getDomains().flatMap(domains -> Optional.ofNullable(domains.get(filterId)));
+                domain.ifPresent(value -> addDiscreteValues(bloomFilter, value));
+            }
+            if (bloomFilter.getApproximateFalsePositiveProbability() <= MAX_BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY) {
+                result.put(filterId, bloomFilter);
+            }
+        });
+        return result.build();
     }
 
     private Map<DynamicFilterId, Domain> convertTupleDomain(TupleDomain<DynamicFilterId> result)
@@ -110,7 +197,8 @@ public class LocalDynamicFilterConsumer
             JoinNode planNode,
             List<Type> buildSourceTypes,
             int partitionCount,
-            Set<DynamicFilterId> collectedFilters)
+            Set<DynamicFilterId> collectedFilters,
+            boolean collectBloomFilters)
     {
         checkArgument(!planNode.getDynamicFilters().isEmpty(), "Join node dynamicFilters is empty.");
         checkArgument(!collectedFilters.isEmpty(), "Collected dynamic filters set is empty");
@@ -134,7 +222,7 @@ public class LocalDynamicFilterConsumer
                 .collect(toImmutableMap(
                         Map.Entry::getKey,
                         entry -> buildSourceTypes.get(entry.getValue())));
-        return new LocalDynamicFilterConsumer(buildChannels, filterBuildTypes, partitionCount);
+        return new LocalDynamicFilterConsumer(buildChannels, filterBuildTypes, partitionCount, collectBloomFilters);
     }
 
     public Map<DynamicFilterId, Integer> getBuildChannels()
@@ -147,6 +235,14 @@ public class LocalDynamicFilterConsumer
         return this::addPartition;
     }
 
+    public Optional<Consumer<Map<DynamicFilterId, BloomFilter>>> getBloomFilterConsumer()
+    {
+        if (!collectBloomFilters) {
+            return Optional.empty();
+        }
+        return Optional.of(this::addBloomFilterPartition);
+    }
+
     @Override
     public String toString()
     {
@@ -13,6 +13,7 @@
  */
 package io.trino.sql.planner;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -21,6 +22,7 @@ import io.trino.Session;
 import io.trino.metadata.Metadata;
 import io.trino.spi.connector.ColumnHandle;
 import io.trino.spi.connector.DynamicFilter;
+import io.trino.spi.predicate.BloomFilter;
 import io.trino.spi.predicate.Domain;
 import io.trino.spi.predicate.TupleDomain;
 import io.trino.spi.type.Type;
@@ -44,6 +46,7 @@ import static io.airlift.concurrent.MoreFutures.addSuccessCallback;
 import static io.airlift.concurrent.MoreFutures.unmodifiableFuture;
 import static io.trino.sql.DynamicFilters.Descriptor;
 import static io.trino.sql.DynamicFilters.extractSourceSymbols;
+import static io.trino.sql.DynamicFilters.translateBloomFilter;
 import static io.trino.sql.planner.DomainCoercer.applySaturatedCasts;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
@@ -56,6 +59,8 @@ class LocalDynamicFiltersCollector
     private final Session session;
     // Each future blocks until its dynamic filter is collected.
     private final Map<DynamicFilterId, SettableFuture<Domain>> futures = new HashMap<>();
+    // Each future completes when the Bloom filter of its dynamic filter is collected (if there is one).
+    private final Map<DynamicFilterId, SettableFuture<BloomFilter>> bloomFilterFutures = new HashMap<>();
 
     public LocalDynamicFiltersCollector(Metadata metadata, TypeOperators typeOperators, Session session)
     {
@@ -70,6 +75,7 @@ class LocalDynamicFiltersCollector
         filterIds.forEach(filterId -> verify(
                 futures.put(filterId, SettableFuture.create()) == null,
                 "LocalDynamicFiltersCollector: duplicate filter %s", filterId));
+        filterIds.forEach(filterId -> bloomFilterFutures.put(filterId, SettableFuture.create()));
     }
 
     // Used during execution (after build-side dynamic filter collection is over).
@@ -87,6 +93,19 @@ class LocalDynamicFiltersCollector
                 });
     }
 
+    // Used during execution (after build-side dynamic filter collection is over).
+    // No need to be synchronized as the futures map doesn't change.
+    public void collectBloomFilters(Map<DynamicFilterId, BloomFilter> bloomFilters)
+    {
+        bloomFilters.forEach((filterId, bloomFilter) -> {
+            SettableFuture<BloomFilter> future = bloomFilterFutures.get(filterId);
+            // Skip dynamic filters that are not applied locally.
+            if (future != null) {
+                verify(future.set(bloomFilter), "Bloom filter %s already collected", filterId);
+            }
+        });
+    }
+
     // Called during TableScan planning (no need to be synchronized as local planning is single threaded)
     public DynamicFilter createDynamicFilter(List<Descriptor> descriptors, Map<Symbol, ColumnHandle> columnsMap, TypeProvider typeProvider)
     {
@@ -120,7 +139,14 @@ class LocalDynamicFiltersCollector
                             directExecutor());
                 })
                 .collect(toImmutableList());
-        return new TableSpecificDynamicFilter(predicateFutures);
+        List<ListenableFuture<Map<ColumnHandle, BloomFilter>>> bloomFilterFutures = descriptorMap.keySet().stream()
+                .filter(this.bloomFilterFutures.keySet()::contains)
+                .map(filterId -> Futures.transform(
+                        this.bloomFilterFutures.get(filterId),
+                        bloomFilter -> translateBloomFilter(bloomFilter, descriptorMap.get(filterId), columnsMap, typeProvider),
+                        directExecutor()))
+                .collect(toImmutableList());
+        return new TableSpecificDynamicFilter(predicateFutures, bloomFilterFutures);
     }
 
     // Table-specific dynamic filter (collects all domains for a specific table scan)
@@ -136,12 +162,26 @@ class LocalDynamicFiltersCollector
         @GuardedBy("this")
         private int futuresLeft;
 
-        private TableSpecificDynamicFilter(List<ListenableFuture<TupleDomain<ColumnHandle>>> predicateFutures)
+        // read for every page, so it is not guarded by the lock
+        private volatile Map<ColumnHandle, BloomFilter> bloomFilters = ImmutableMap.of();
+
+        private TableSpecificDynamicFilter(
+                List<ListenableFuture<TupleDomain<ColumnHandle>>> predicateFutures,
+                List<ListenableFuture<Map<ColumnHandle, BloomFilter>>> bloomFilterFutures)
         {
             this.futuresLeft = predicateFutures.size();
             this.isBlocked = predicateFutures.isEmpty() ? NOT_BLOCKED : new CompletableFuture();
             this.currentPredicate = TupleDomain.all();
             predicateFutures.stream().forEach(future -> addSuccessCallback(future, this::update, directExecutor()));
+            bloomFilterFutures.forEach(future -> addSuccessCallback(future, this::addBloomFilters, directExecutor()));
+        }
+
+        private synchronized void addBloomFilters(Map<ColumnHandle, BloomFilter> newBloomFilters)
+        {
+            Map<ColumnHandle, BloomFilter> updatedBloomFilters = new HashMap<>(newBloomFilters);
+            // when several dynamic filters apply to the same column, either of them is correct
+            updatedBloomFilters.putAll(bloomFilters);
+            bloomFilters = ImmutableMap.copyOf(updatedBloomFilters);
         }
 
         private void update(TupleDomain<ColumnHandle> predicate)
@@ -182,5 +222,11 @@ class LocalDynamicFiltersCollector
         {
             return currentPredicate;
         }
+
+        @Override
+        public Map<ColumnHandle, BloomFilter> getBloomFilters()
+        {
+            return bloomFilters;
+        }
     }
 }
@@ -57,7 +57,9 @@ import io.trino.operator.FilterAndProjectOperator;
 import io.trino.operator.GroupIdOperator;
 import io.trino.operator.HashAggregationOperator.HashAggregationOperatorFactory;
 import io.trino.operator.HashBuilderOperator.HashBuilderOperatorFactory;
+import io.trino.operator.HashGenerator;
 import io.trino.operator.HashSemiJoinOperator;
+import io.trino.operator.InterpretedHashGenerator;
 import io.trino.operator.JoinBridgeManager;
 import io.trino.operator.JoinOperatorFactory;
 import io.trino.operator.JoinOperatorFactory.OuterOperatorFactoryResult;
@@ -79,6 +81,7 @@ import io.trino.operator.PartitionFunction;
 import io.trino.operator.PartitionedLookupSourceFactory;
 import io.trino.operator.PartitionedOutputOperator.PartitionedOutputFactory;
 import io.trino.operator.PipelineExecutionStrategy;
+import io.trino.operator.PrecomputedHashGenerator;
 import io.trino.operator.RowNumberOperator;
 import io.trino.operator.ScanFilterAndProjectOperator.ScanFilterAndProjectOperatorFactory;
 import io.trino.operator.SetBuilderOperator.SetBuilderOperatorFactory;
@@ -104,6 +107,7 @@ import io.trino.operator.WorkProcessorPipelineSourceOperator;
 import io.trino.operator.aggregation.AccumulatorFactory;
 import io.trino.operator.aggregation.InternalAggregationFunction;
 import io.trino.operator.aggregation.LambdaProvider;
+import io.trino.operator.aggregation.partial.PartialAggregationController;
 import io.trino.operator.exchange.LocalExchange.LocalExchangeFactory;
 import io.trino.operator.exchange.LocalExchangeSinkOperator.LocalExchangeSinkOperatorFactory;
 import io.trino.operator.exchange.LocalExchangeSourceOperator.LocalExchangeSourceOperatorFactory;
@@ -129,6 +133,7 @@ import io.trino.spi.connector.ConnectorSession;
 import io.trino.spi.connector.DynamicFilter;
 import io.trino.spi.connector.RecordSet;
 import io.trino.spi.connector.SortOrder;
+import io.trino.spi.predicate.BloomFilter;
 import io.trino.spi.predicate.Domain;
 import io.trino.spi.predicate.NullableValue;
 import io.trino.spi.type.RowType;
@@ -140,6 +145,7 @@ import io.trino.spiller.SpillerFactory;
 import io.trino.split.MappedRecordSet;
 import io.trino.split.PageSinkManager;
 import io.trino.split.PageSourceProvider;
+import io.trino.split.SplitCache;
 import io.trino.sql.DynamicFilters;
 import io.trino.sql.gen.ExpressionCompiler;
 import io.trino.sql.gen.JoinCompiler;
@@ -238,13 +244,21 @@ import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.collect.Range.closedOpen;
 import static io.airlift.concurrent.MoreFutures.addSuccessCallback;
+import static io.trino.SystemSessionProperties.getAdaptivePartialAggregationMinRows;
+import static io.trino.SystemSessionProperties.getAdaptivePartialAggregationUniqueRowsRatioThreshold;
 import static io.trino.SystemSessionProperties.getAggregationOperatorUnspillMemoryLimit;
+import static io.trino.SystemSessionProperties.getDynamicFilteringBloomFilterMaxSize;
+import static io.trino.SystemSessionProperties.getExchangeCompressionCodec;
+import static io.trino.SystemSessionProperties.getExchangeCompressionNetworkThroughput;
 import static io.trino.SystemSessionProperties.getFilterAndProjectMinOutputPageRowCount;
 import static io.trino.SystemSessionProperties.getFilterAndProjectMinOutputPageSize;
 import static io.trino.SystemSessionProperties.getTaskConcurrency;
 import static io.trino.SystemSessionProperties.getTaskWriterCount;
+import static io.trino.SystemSessionProperties.isAdaptivePartialAggregationEnabled;
+import static io.trino.SystemSessionProperties.isEnableBloomFilterDynamicFilters;
 import static io.trino.SystemSessionProperties.isEnableLargeDynamicFilters;
 import static io.trino.SystemSessionProperties.isExchangeCompressionEnabled;
+import static io.trino.SystemSessionProperties.isHeavyHitterDetectionEnabled;
 import static io.trino.SystemSessionProperties.isLateMaterializationEnabled;
 import static io.trino.SystemSessionProperties.isSpillEnabled;
 import static io.trino.SystemSessionProperties.isSpillOrderBy;
@@ -313,6 +327,7 @@ public class LocalExecutionPlanner
     private final TypeAnalyzer typeAnalyzer;
     private final Optional<ExplainAnalyzeContext> explainAnalyzeContext;
     private final PageSourceProvider pageSourceProvider;
+    private final SplitCache splitCache;
     private final IndexManager indexManager;
     private final NodePartitioningManager nodePartitioningManager;
     private final PageSinkManager pageSinkManager;
@@ -342,6 +357,7 @@ public class LocalExecutionPlanner
             TypeAnalyzer typeAnalyzer,
             Optional<ExplainAnalyzeContext> explainAnalyzeContext,
             PageSourceProvider pageSourceProvider,
+            SplitCache splitCache,
             IndexManager indexManager,
             NodePartitioningManager nodePartitioningManager,
             PageSinkManager pageSinkManager,
@@ -364,6 +380,7 @@ public class LocalExecutionPlanner
     {
         this.explainAnalyzeContext = requireNonNull(explainAnalyzeContext, "explainAnalyzeContext is null");
         this.pageSourceProvider = requireNonNull(pageSourceProvider, "pageSourceProvider is null");
+        this.splitCache = requireNonNull(splitCache, "splitCache is null");
         this.indexManager = requireNonNull(indexManager, "indexManager is null");
         this.nodePartitioningManager = requireNonNull(nodePartitioningManager, "nodePartitioningManager is null");
         this.exchangeClientSupplier = exchangeClientSupplier;
@@ -455,6 +472,27 @@ public class LocalExecutionPlanner
             nullChannel = OptionalInt.of(outputLayout.indexOf(getOnlyElement(partitioningColumns)));
         }
 
+        List<Integer> spreadNullChannels = ImmutableList.of();
+        if (partitioningScheme.isSpreadNulls()) {
+            spreadNullChannels = partitioningColumns.stream()
+                    .map(outputLayout::indexOf)
+                    .collect(toImmutableList());
+        }
+
+        Optional<HashGenerator> heavyHitterHashGenerator = Optional.empty();
+        if (isHeavyHitterDetectionEnabled(taskContext.getSession()) && !partitioningColumns.isEmpty()) {
+            // the generator hashes the partition function arguments, which only hold the hash when it is precomputed
+            if (partitioningScheme.getHashColumn().isPresent()) {
+                heavyHitterHashGenerator = Optional.of(new PrecomputedHashGenerator(0));
+            }
+            else if (partitionChannelTypes.stream().allMatch(Type::isComparable)) {
+                heavyHitterHashGenerator = Optional.of(new InterpretedHashGenerator(
+                        partitionChannelTypes,
+                        IntStream.range(0, partitionChannelTypes.size()).toArray(),
+                        blockTypeOperators));
+            }
+        }
+
         return plan(
                 taskContext,
                 stageExecutionDescriptor,
@@ -468,6 +506,8 @@ public class LocalExecutionPlanner
                         partitionConstants,
                         partitioningScheme.isReplicateNullsAndAny(),
                         nullChannel,
+                        spreadNullChannels,
+                        heavyHitterHashGenerator,
                         outputBuffer,
                         maxPagePartitioningBufferSize));
     }
@@ -502,7 +542,7 @@ public class LocalExecutionPlanner
                                 plan.getId(),
                                 outputTypes,
                                 pagePreprocessor,
-                                new PagesSerdeFactory(metadata.getBlockEncodingSerde(), isExchangeCompressionEnabled(session))))
+                                createExchangePagesSerdeFactory(session)))
                         .build(),
                 context.getDriverInstanceCount(),
                 physicalOperation.getPipelineExecutionStrategy());
@@ -644,6 +684,11 @@ public class LocalExecutionPlanner
             dynamicFiltersCollector.collectDynamicFilterDomains(dynamicTupleDomain);
         }
 
+        private void addLocalBloomFilters(Map<DynamicFilterId, BloomFilter> bloomFilters)
+        {
+            dynamicFiltersCollector.collectBloomFilters(bloomFilters);
+        }
+
         private void addCoordinatorDynamicFilters(Map<DynamicFilterId, Domain> dynamicTupleDomain)
         {
             taskContext.updateDomains(dynamicTupleDomain);
@@ -787,7 +832,7 @@ public class LocalExecutionPlanner
                     context.getNextOperatorId(),
                     node.getId(),
                     exchangeClientSupplier,
-                    new PagesSerdeFactory(metadata.getBlockEncodingSerde(), isExchangeCompressionEnabled(session)),
+                    createExchangePagesSerdeFactory(session),
                     orderingCompiler,
                     types,
                     outputChannels,
@@ -807,7 +852,7 @@ public class LocalExecutionPlanner
                     context.getNextOperatorId(),
                     node.getId(),
                     exchangeClientSupplier,
-                    new PagesSerdeFactory(metadata.getBlockEncodingSerde(), isExchangeCompressionEnabled(session)));
+                    createExchangePagesSerdeFactory(session));
 
             return new PhysicalOperation(operatorFactory, makeLayout(node), context, UNGROUPED_EXECUTION);
         }
@@ -1365,7 +1410,8 @@ public class LocalExecutionPlanner
                             dynamicFilter,
                             getTypes(projections, expressionTypes),
                             getFilterAndProjectMinOutputPageSize(session),
-                            getFilterAndProjectMinOutputPageRowCount(session));
+                            getFilterAndProjectMinOutputPageRowCount(session),
+                            splitCache.createScanCache(session, table, columns, translatedFilter, translatedProjections, dynamicFilter));
 
                     return new PhysicalOperation(operatorFactory, outputMappings, context, stageExecutionDescriptor.isScanGroupedExecution(sourceNode.getId()) ? GROUPED_EXECUTION : UNGROUPED_EXECUTION);
                 }
@@ -2255,7 +2301,9 @@ public class LocalExecutionPlanner
                     getDynamicFilteringMaxDistinctValuesPerDriver(session, isReplicatedJoin),
                     getDynamicFilteringMaxSizePerDriver(session, isReplicatedJoin),
                     getDynamicFilteringRangeRowLimitPerDriver(session, isReplicatedJoin),
-                    blockTypeOperators);
+                    blockTypeOperators,
+                    dynamicFilter.getBloomFilterConsumer(),
+                    getDynamicFilteringBloomFilterMaxSize(session));
         }
 
         private Optional<LocalDynamicFilterConsumer> createDynamicFilter(
@@ -2277,10 +2325,17 @@ public class LocalExecutionPlanner
                     buildSource.getPipelineExecutionStrategy() != GROUPED_EXECUTION,
                     "Dynamic filtering cannot be used with grouped execution");
             log.debug("[Join] Dynamic filters: %s", node.getDynamicFilters());
-            LocalDynamicFilterConsumer filterConsumer = LocalDynamicFilterConsumer.create(node, buildSource.getTypes(), partitionCount, collectedDynamicFilters);
+            LocalDynamicFilterConsumer filterConsumer = LocalDynamicFilterConsumer.create(
+                    node,
+                    buildSource.getTypes(),
+                    partitionCount,
+                    collectedDynamicFilters,
+                    // Bloom filters are applied only by the scans of the task that collected them
+                    isEnableBloomFilterDynamicFilters(session) && !localDynamicFilters.isEmpty());
             ListenableFuture<Map<DynamicFilterId, Domain>> domainsFuture = filterConsumer.getDynamicFilterDomains();
             if (!localDynamicFilters.isEmpty()) {
                 addSuccessCallback(domainsFuture, context::addLocalDynamicFilters);
+                addSuccessCallback(filterConsumer.getBloomFilters(), context::addLocalBloomFilters);
             }
             if (!coordinatorDynamicFilters.isEmpty()) {
                 addSuccessCallback(
@@ -2414,10 +2469,12 @@ public class LocalExecutionPlanner
                 LocalDynamicFilterConsumer filterConsumer = new LocalDynamicFilterConsumer(
                         ImmutableMap.of(filterId, buildChannel),
                         ImmutableMap.of(filterId, buildSource.getTypes().get(buildChannel)),
-                        partitionCount);
+                        partitionCount,
+                        isEnableBloomFilterDynamicFilters(session) && isLocalDynamicFilter);
                 ListenableFuture<Map<DynamicFilterId, Domain>> domainsFuture = filterConsumer.getDynamicFilterDomains();
                 if (isLocalDynamicFilter) {
                     addSuccessCallback(domainsFuture, context::addLocalDynamicFilters);
+                    addSuccessCallback(filterConsumer.getBloomFilters(), context::addLocalBloomFilters);
                 }
                 if (isCoordinatorDynamicFilter) {
                     addSuccessCallback(domainsFuture, context::addCoordinatorDynamicFilters);
@@ -2431,7 +2488,9 @@ public class LocalExecutionPlanner
                         getDynamicFilteringMaxDistinctValuesPerDriver(session, isReplicatedJoin),
                         getDynamicFilteringMaxSizePerDriver(session, isReplicatedJoin),
                         getDynamicFilteringRangeRowLimitPerDriver(session, isReplicatedJoin),
-                        blockTypeOperators));
+                        blockTypeOperators,
+                        filterConsumer.getBloomFilterConsumer(),
+                        getDynamicFilteringBloomFilterMaxSize(session)));
             }
 
             Optional<Integer> buildHashChannel = node.getFilteringSourceHashSymbol().map(channelGetter(buildSource));
@@ -2536,7 +2595,8 @@ public class LocalExecutionPlanner
                         // Disabling partial pre-aggregation memory limit effectively
                         // turns PARTIAL aggregation into INTERMEDIATE.
                         Optional.empty(),
-                        true);
+                        true,
+                        Optional.empty());
             }).orElse(new DevNullOperatorFactory(context.getNextOperatorId(), node.getId()));
 
             List<Integer> inputChannels = node.getColumns().stream()
@@ -2616,7 +2676,8 @@ public class LocalExecutionPlanner
                         200,
                         // final aggregation ignores partial pre-aggregation memory limit
                         Optional.empty(),
-                        true);
+                        true,
+                        Optional.empty());
             }).orElse(new DevNullOperatorFactory(context.getNextOperatorId(), node.getId()));
 
             Map<Symbol, Integer> aggregationOutput = outputMapping.build();
@@ -3044,10 +3105,21 @@ public class LocalExecutionPlanner
                     mappings,
                     10_000,
                     Optional.of(maxPartialAggregationMemorySize),
-                    node.getStep().isOutputPartial());
+                    node.getStep().isOutputPartial(),
+                    createPartialAggregationController(node));
             return new PhysicalOperation(operatorFactory, mappings.build(), context, source);
         }
 
+        private Optional<PartialAggregationController> createPartialAggregationController(AggregationNode node)
+        {
+            if (node.getStep() != PARTIAL || !isAdaptivePartialAggregationEnabled(session)) {
+                return Optional.empty();
+            }
+            return Optional.of(new PartialAggregationController(
+                    getAdaptivePartialAggregationMinRows(session),
+                    getAdaptivePartialAggregationUniqueRowsRatioThreshold(session)));
+        }
+
         private OperatorFactory createHashAggregationOperatorFactory(
                 PlanNodeId planNodeId,
                 Map<Symbol, Aggregation> aggregations,
@@ -3066,7 +3138,8 @@ public class LocalExecutionPlanner
                 ImmutableMap.Builder<Symbol, Integer> outputMappings,
                 int expectedGroups,
                 Optional<DataSize> maxPartialAggregationMemorySize,
-                boolean useSystemMemory)
+                boolean useSystemMemory,
+                Optional<PartialAggregationController> partialAggregationController)
         {
             List<Symbol> aggregationOutputSymbols = new ArrayList<>();
             List<AccumulatorFactory> accumulatorFactories = new ArrayList<>();
@@ -3136,7 +3209,8 @@ public class LocalExecutionPlanner
                         spillerFactory,
                         joinCompiler,
                         blockTypeOperators,
-                        useSystemMemory);
+                        useSystemMemory,
+                        partialAggregationController);
             }
         }
     }
@@ -3183,6 +3257,15 @@ public class LocalExecutionPlanner
         return dynamicFilterConfig.getSmallPartitionedRangeRowLimitPerDriver();
     }
 
+    private PagesSerdeFactory createExchangePagesSerdeFactory(Session session)
+    {
+        return new PagesSerdeFactory(
+                metadata.getBlockEncodingSerde(),
+                isExchangeCompressionEnabled(session),
+                getExchangeCompressionCodec(session),
+                getExchangeCompressionNetworkThroughput(session));
+    }
+
     private static List<Type> getTypes(List<Expression> expressions, Map<NodeRef<Expression>, Type> expressionTypes)
     {
         return expressions.stream()
@@ -33,6 +33,7 @@ public class PartitioningScheme
     private final List<Symbol> outputLayout;
     private final Optional<Symbol> hashColumn;
     private final boolean replicateNullsAndAny;
+    private final boolean spreadNulls;
     private final Optional<int[]> bucketToPartition;
 
     public PartitioningScheme(Partitioning partitioning, List<Symbol> outputLayout)
@@ -55,12 +56,29 @@ public class PartitioningScheme
                 Optional.empty());
     }
 
+    public PartitioningScheme(
+            Partitioning partitioning,
+            List<Symbol> outputLayout,
+            Optional<Symbol> hashColumn,
+            boolean replicateNullsAndAny,
+            Optional<int[]> bucketToPartition)
+    {
+        this(
+                partitioning,
+                outputLayout,
+                hashColumn,
+                replicateNullsAndAny,
+                false,
+                bucketToPartition);
+    }
+
     @JsonCreator
     public PartitioningScheme(
             @JsonProperty("partitioning") Partitioning partitioning,
             @JsonProperty("outputLayout") List<Symbol> outputLayout,
             @JsonProperty("hashColumn") Optional<Symbol> hashColumn,
             @JsonProperty("replicateNullsAndAny") boolean replicateNullsAndAny,
+            @JsonProperty("spreadNulls") boolean spreadNulls,
             @JsonProperty("bucketToPartition") Optional<int[]> bucketToPartition)
     {
         this.partitioning = requireNonNull(partitioning, "partitioning is null");
@@ -76,6 +94,9 @@ public class PartitioningScheme
 
         checkArgument(!replicateNullsAndAny || columns.size() <= 1, "Must have at most one partitioning column when nullPartition is REPLICATE.");
         this.replicateNullsAndAny = replicateNullsAndAny;
+        checkArgument(!spreadNulls || !replicateNullsAndAny, "Nulls cannot be both replicated and spread");
+        checkArgument(!spreadNulls || !columns.isEmpty(), "Must have partitioning columns when nulls are spread");
+        this.spreadNulls = spreadNulls;
         this.bucketToPartition = requireNonNull(bucketToPartition, "bucketToPartition is null");
     }
 
@@ -103,6 +124,16 @@ public class PartitioningScheme
         return replicateNullsAndAny;
     }
 
+    /**
+     * Rows with a null value in any of the partitioning columns are sent to an arbitrary
+     * partition instead of the partition selected by the partitioning function.
+     */
+    @JsonProperty
+    public boolean isSpreadNulls()
+    {
+        return spreadNulls;
+    }
+
     @JsonProperty
     public Optional<int[]> getBucketToPartition()
     {
@@ -111,7 +142,7 @@ public class PartitioningScheme
 
     public PartitioningScheme withBucketToPartition(Optional<int[]> bucketToPartition)
     {
-        return new PartitioningScheme(partitioning, outputLayout, hashColumn, replicateNullsAndAny, bucketToPartition);
+        return new PartitioningScheme(partitioning, outputLayout, hashColumn, replicateNullsAndAny, spreadNulls, bucketToPartition);
     }
 
     public PartitioningScheme translateOutputLayout(List<Symbol> newOutputLayout)
@@ -126,7 +157,7 @@ public class PartitioningScheme
                 .map(outputLayout::indexOf)
                 .map(newOutputLayout::get);
 
-        return new PartitioningScheme(newPartitioning, newOutputLayout, newHashSymbol, replicateNullsAndAny, bucketToPartition);
+        return new PartitioningScheme(newPartitioning, newOutputLayout, newHashSymbol, replicateNullsAndAny, spreadNulls, bucketToPartition);
     }
 
     @Override
@@ -142,13 +173,14 @@ public class PartitioningScheme
         return Objects.equals(partitioning, that.partitioning) &&
                 Objects.equals(outputLayout, that.outputLayout) &&
                 replicateNullsAndAny == that.replicateNullsAndAny &&
+                spreadNulls == that.spreadNulls &&
                 Objects.equals(bucketToPartition, that.bucketToPartition);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(partitioning, outputLayout, replicateNullsAndAny, bucketToPartition);
+        return Objects.hash(partitioning, outputLayout, replicateNullsAndAny, spreadNulls, bucketToPartition);
     }
 
     @Override
@@ -159,6 +191,7 @@ public class PartitioningScheme
                 .add("outputLayout", outputLayout)
                 .add("hashChannel", hashColumn)
                 .add("replicateNullsAndAny", replicateNullsAndAny)
+                .add("spreadNulls", spreadNulls)
                 .add("bucketToPartition", bucketToPartition)
                 .toString();
     }
@@ -105,6 +105,7 @@ public class PruneExchangeColumns
                 newOutputs.build(),
                 exchangeNode.getPartitioningScheme().getHashColumn(),
                 exchangeNode.getPartitioningScheme().isReplicateNullsAndAny(),
+                exchangeNode.getPartitioningScheme().isSpreadNulls(),
                 exchangeNode.getPartitioningScheme().getBucketToPartition());
 
         return Optional.of(new ExchangeNode(
@@ -107,7 +107,8 @@ public class PushPartialAggregationThroughExchange
         // partial aggregation can only be pushed through exchange that doesn't change
         // the cardinality of the stream (i.e., gather or repartition)
         if ((exchangeNode.getType() != GATHER && exchangeNode.getType() != REPARTITION) ||
-                exchangeNode.getPartitioningScheme().isReplicateNullsAndAny()) {
+                exchangeNode.getPartitioningScheme().isReplicateNullsAndAny() ||
+                exchangeNode.getPartitioningScheme().isSpreadNulls()) {
             return Result.empty();
         }
 
@@ -182,6 +183,7 @@ public class PushPartialAggregationThroughExchange
                 aggregation.getOutputSymbols(),
                 exchange.getPartitioningScheme().getHashColumn(),
                 exchange.getPartitioningScheme().isReplicateNullsAndAny(),
+                exchange.getPartitioningScheme().isSpreadNulls(),
                 exchange.getPartitioningScheme().getBucketToPartition());
 
         return new ExchangeNode(
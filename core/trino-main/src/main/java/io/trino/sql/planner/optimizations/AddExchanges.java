@@ -90,6 +90,7 @@ import static io.trino.SystemSessionProperties.ignoreDownStreamPreferences;
 import static io.trino.SystemSessionProperties.isColocatedJoinEnabled;
 import static io.trino.SystemSessionProperties.isDistributedSortEnabled;
 import static io.trino.SystemSessionProperties.isForceSingleNodeOutput;
+import static io.trino.SystemSessionProperties.isSpreadOuterJoinNullKeys;
 import static io.trino.sql.planner.FragmentTableScanCounter.countSources;
 import static io.trino.sql.planner.FragmentTableScanCounter.hasMultipleSources;
 import static io.trino.sql.planner.SystemPartitioningHandle.FIXED_ARBITRARY_DISTRIBUTION;
@@ -108,6 +109,8 @@ import static io.trino.sql.planner.plan.ExchangeNode.mergingExchange;
 import static io.trino.sql.planner.plan.ExchangeNode.partitionedExchange;
 import static io.trino.sql.planner.plan.ExchangeNode.replicatedExchange;
 import static io.trino.sql.planner.plan.ExchangeNode.roundRobinExchange;
+import static io.trino.sql.planner.plan.JoinNode.Type.FULL;
+import static io.trino.sql.planner.plan.JoinNode.Type.LEFT;
 import static io.trino.sql.tree.BooleanLiteral.TRUE_LITERAL;
 import static java.lang.String.format;
 import static java.util.stream.Collectors.toList;
@@ -693,6 +696,8 @@ public class AddExchanges
             SetMultimap<Symbol, Symbol> leftToRight = createMapping(leftSymbols, rightSymbols);
 
             PlanWithProperties right;
+            // set when the probe side is repartitioned on the join keys by this method
+            Optional<ActualProperties> probeSourceProperties = Optional.empty();
 
             if (left.getProperties().isNodePartitionedOn(leftSymbols) && !left.getProperties().isSingleNode()) {
                 Partitioning rightPartitioning = left.getProperties().translate(createTranslator(leftToRight)).getNodePartitioning().get();
@@ -713,6 +718,7 @@ public class AddExchanges
                             left.getProperties());
                 }
                 else {
+                    probeSourceProperties = Optional.of(left.getProperties());
                     left = withDerivedProperties(
                             partitionedExchange(idAllocator.getNextId(), REMOTE, left.getNode(), leftSymbols, Optional.empty()),
                             left.getProperties());
@@ -732,9 +738,36 @@ public class AddExchanges
                         right.getProperties());
             }
 
+            if (probeSourceProperties.isPresent() && shouldSpreadProbeNulls(node)) {
+                // the probe side is no longer partitioned on the join keys, which makes the join
+                // output arbitrarily partitioned as well
+                ExchangeNode exchange = (ExchangeNode) left.getNode();
+                PartitioningScheme partitioningScheme = exchange.getPartitioningScheme();
+                left = withDerivedProperties(
+                        partitionedExchange(
+                                exchange.getId(),
+                                REMOTE,
+                                getOnlyElement(exchange.getSources()),
+                                new PartitioningScheme(
+                                        partitioningScheme.getPartitioning(),
+                                        partitioningScheme.getOutputLayout(),
+                                        partitioningScheme.getHashColumn(),
+                                        false,
+                                        true,
+                                        partitioningScheme.getBucketToPartition())),
+                        probeSourceProperties.get());
+            }
+
             return buildJoin(node, left, right, JoinNode.DistributionType.PARTITIONED);
         }
 
+        private boolean shouldSpreadProbeNulls(JoinNode node)
+        {
+            // probe rows with a null join key never match, so they can be processed by any partition
+            // as long as the join outputs them itself, which is the case for LEFT and FULL joins
+            return isSpreadOuterJoinNullKeys(session) && (node.getType() == LEFT || node.getType() == FULL);
+        }
+
         private PlanWithProperties planReplicatedJoin(JoinNode node, PlanWithProperties left)
         {
             // Broadcast Join
@@ -536,6 +536,7 @@ public class HashGenerationOptimizer
                             .build(),
                     partitionSymbols.map(newHashSymbols::get),
                     partitioningScheme.isReplicateNullsAndAny(),
+                    partitioningScheme.isSpreadNulls(),
                     partitioningScheme.getBucketToPartition());
 
             // add hash symbols to sources
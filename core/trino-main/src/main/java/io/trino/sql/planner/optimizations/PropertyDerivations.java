@@ -604,6 +604,13 @@ public final class PropertyDerivations
                             .constants(constants)
                             .build();
                 case REPARTITION:
+                    if (node.getPartitioningScheme().isSpreadNulls()) {
+                        // rows with null partitioning values can end up in any partition
+                        return ActualProperties.builder()
+                                .global(arbitraryPartition())
+                                .constants(constants)
+                                .build();
+                    }
                     return ActualProperties.builder()
                             .global(partitionedOn(
                                     node.getPartitioningScheme().getPartitioning(),
@@ -312,6 +312,7 @@ public class SymbolMapper
                 mapAndDistinct(sourceLayout),
                 scheme.getHashColumn().map(this::map),
                 scheme.isReplicateNullsAndAny(),
+                scheme.isSpreadNulls(),
                 scheme.getBucketToPartition());
     }
 
@@ -99,6 +99,7 @@ public class ExchangeNode
                 "local exchanges do not support constant partition function arguments");
 
         checkArgument(scope != REMOTE || type == Type.REPARTITION || !partitioningScheme.isReplicateNullsAndAny(), "Only REPARTITION can replicate remotely");
+        checkArgument((scope == REMOTE && type == Type.REPARTITION) || !partitioningScheme.isSpreadNulls(), "Only remote REPARTITION can spread nulls");
 
         orderingScheme.ifPresent(ordering -> {
             PartitioningHandle partitioningHandle = partitioningScheme.getPartitioning().getHandle();
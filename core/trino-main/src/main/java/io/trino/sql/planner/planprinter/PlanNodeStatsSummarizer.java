@@ -18,10 +18,12 @@ import io.airlift.units.Duration;
 import io.trino.execution.StageInfo;
 import io.trino.execution.TaskInfo;
 import io.trino.operator.HashCollisionsInfo;
+import io.trino.operator.OperatorInfo;
 import io.trino.operator.OperatorStats;
 import io.trino.operator.PipelineStats;
 import io.trino.operator.TaskStats;
 import io.trino.operator.WindowInfo;
+import io.trino.operator.aggregation.partial.PartialAggregationInfo;
 import io.trino.sql.planner.plan.PlanNodeId;
 
 import java.util.ArrayList;
@@ -29,6 +31,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import static com.google.common.collect.Iterables.getLast;
@@ -147,15 +150,15 @@ public final class PlanNodeStatsSummarizer
             for (OperatorStats operatorStats : pipelineStats.getOperatorSummaries()) {
                 PlanNodeId planNodeId = operatorStats.getPlanNodeId();
 
-                if (operatorStats.getInfo() instanceof HashCollisionsInfo) {
-                    HashCollisionsInfo hashCollisionsInfo = (HashCollisionsInfo) operatorStats.getInfo();
+                Optional<HashCollisionsInfo> hashCollisionsInfo = getHashCollisionsInfo(operatorStats.getInfo());
+                if (hashCollisionsInfo.isPresent()) {
                     operatorHashCollisionsStats.merge(planNodeId,
                             ImmutableMap.of(
                                     operatorStats.getOperatorType(),
                                     new OperatorHashCollisionsStats(
-                                            hashCollisionsInfo.getWeightedHashCollisions(),
-                                            hashCollisionsInfo.getWeightedSumSquaredHashCollisions(),
-                                            hashCollisionsInfo.getWeightedExpectedHashCollisions(),
+                                            hashCollisionsInfo.get().getWeightedHashCollisions(),
+                                            hashCollisionsInfo.get().getWeightedSumSquaredHashCollisions(),
+                                            hashCollisionsInfo.get().getWeightedExpectedHashCollisions(),
                                             operatorStats.getInputPositions())),
                             (map1, map2) -> mergeMaps(map1, map2, OperatorHashCollisionsStats::merge));
                 }
@@ -222,4 +225,15 @@ public final class PlanNodeStatsSummarizer
         }
         return stats;
     }
+
+    private static Optional<HashCollisionsInfo> getHashCollisionsInfo(OperatorInfo info)
+    {
+        if (info instanceof HashCollisionsInfo) {
+            return Optional.of((HashCollisionsInfo) info);
+        }
+        if (info instanceof PartialAggregationInfo) {
+            return Optional.of(((PartialAggregationInfo) info).getHashCollisionsInfo());
+        }
+        return Optional.empty();
+    }
 }
@@ -323,6 +323,12 @@ public class PlanPrinter
                     Joiner.on(", ").join(arguments),
                     formatHash(partitioningScheme.getHashColumn())));
         }
+        else if (partitioningScheme.isSpreadNulls()) {
+            builder.append(format("Output partitioning: %s (spread nulls) [%s]%s\n",
+                    partitioningScheme.getPartitioning().getHandle(),
+                    Joiner.on(", ").join(arguments),
+                    formatHash(partitioningScheme.getHashColumn())));
+        }
         else {
             builder.append(format("Output partitioning: %s [%s]%s\n",
                     partitioningScheme.getPartitioning().getHandle(),
@@ -1095,9 +1101,10 @@ public class PlanPrinter
             else {
                 addNode(node,
                         format("%sExchange", UPPER_UNDERSCORE.to(CaseFormat.UPPER_CAMEL, node.getScope().toString())),
-                        format("[%s%s]%s",
+                        format("[%s%s%s]%s",
                                 node.getType(),
                                 node.getPartitioningScheme().isReplicateNullsAndAny() ? " - REPLICATE NULLS AND ANY" : "",
+                                node.getPartitioningScheme().isSpreadNulls() ? " - SPREAD NULLS" : "",
                                 formatHash(node.getPartitioningScheme().getHashColumn())));
             }
             return processChildren(node, context);
@@ -113,7 +113,9 @@ import io.trino.server.security.PasswordAuthenticatorManager;
 import io.trino.spi.PageIndexerFactory;
 import io.trino.spi.PageSorter;
 import io.trino.spi.Plugin;
+import io.trino.spi.connector.ColumnHandle;
 import io.trino.spi.connector.ConnectorFactory;
+import io.trino.spi.connector.ConnectorTableHandle;
 import io.trino.spi.session.PropertyMetadata;
 import io.trino.spi.type.TypeOperators;
 import io.trino.spiller.FileSingleStreamSpillerFactory;
@@ -125,6 +127,8 @@ import io.trino.spiller.SpillerFactory;
 import io.trino.spiller.SpillerStats;
 import io.trino.split.PageSinkManager;
 import io.trino.split.PageSourceManager;
+import io.trino.split.SplitCache;
+import io.trino.split.SplitCacheConfig;
 import io.trino.split.SplitManager;
 import io.trino.split.SplitSource;
 import io.trino.sql.analyzer.Analysis;
@@ -202,6 +206,7 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
 import static io.airlift.concurrent.MoreFutures.getFutureValue;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.json.JsonCodec.jsonCodec;
 import static io.trino.cost.StatsCalculatorModule.createNewStatsCalculator;
 import static io.trino.spi.connector.ConnectorSplitManager.SplitSchedulingStrategy.GROUPED_SCHEDULING;
 import static io.trino.spi.connector.ConnectorSplitManager.SplitSchedulingStrategy.UNGROUPED_SCHEDULING;
@@ -744,6 +749,7 @@ public class LocalQueryRunner
                 new TypeAnalyzer(sqlParser, metadata),
                 Optional.empty(),
                 pageSourceManager,
+                new SplitCache(new SplitCacheConfig(), metadata, jsonCodec(ConnectorTableHandle.class), jsonCodec(ColumnHandle.class)),
                 indexManager,
                 nodePartitioningManager,
                 pageSinkManager,
@@ -0,0 +1,286 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.cost;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.trino.Session;
+import io.trino.connector.MockConnectorFactory;
+import io.trino.connector.MockConnectorTableHandle;
+import io.trino.metadata.Metadata;
+import io.trino.metadata.QualifiedObjectName;
+import io.trino.metadata.TableHandle;
+import io.trino.spi.connector.ColumnHandle;
+import io.trino.spi.connector.ConstraintApplicationResult;
+import io.trino.spi.connector.SchemaTableName;
+import io.trino.spi.predicate.Domain;
+import io.trino.spi.predicate.TupleDomain;
+import io.trino.sql.planner.PlanNodeIdAllocator;
+import io.trino.sql.planner.Symbol;
+import io.trino.sql.planner.iterative.GroupReference;
+import io.trino.sql.planner.iterative.Lookup;
+import io.trino.sql.planner.iterative.rule.test.PlanBuilder;
+import io.trino.sql.planner.plan.Assignments;
+import io.trino.sql.planner.plan.DynamicFilterId;
+import io.trino.sql.planner.plan.FilterNode;
+import io.trino.sql.planner.plan.JoinNode.EquiJoinClause;
+import io.trino.sql.planner.plan.PlanNode;
+import io.trino.sql.planner.plan.PlanNodeId;
+import io.trino.sql.planner.plan.SampleNode;
+import io.trino.testing.LocalQueryRunner;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.trino.SessionTestUtils.TEST_SESSION;
+import static io.trino.metadata.MetadataManager.createTestMetadataManager;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.VarcharType.createUnboundedVarcharType;
+import static io.trino.sql.DynamicFilters.createDynamicFilterExpression;
+import static io.trino.sql.ExpressionUtils.and;
+import static io.trino.sql.planner.iterative.Lookup.noLookup;
+import static io.trino.sql.planner.iterative.rule.test.PlanBuilder.expression;
+import static io.trino.sql.planner.plan.AggregationNode.Step.FINAL;
+import static io.trino.sql.planner.plan.AggregationNode.Step.PARTIAL;
+import static io.trino.sql.planner.plan.ExchangeNode.Scope.REMOTE;
+import static io.trino.sql.planner.plan.JoinNode.Type.INNER;
+import static io.trino.sql.planner.plan.JoinNode.Type.LEFT;
+import static io.trino.sql.planner.plan.JoinNode.Type.RIGHT;
+import static io.trino.testing.TestingSession.testSessionBuilder;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestCanonicalPlanHasher
+{
+    private final Metadata metadata = createTestMetadataManager();
+    private final CanonicalPlanHasher planHasher = new CanonicalPlanHasher(metadata);
+    private final PlanBuilder p = new PlanBuilder(new PlanNodeIdAllocator(), metadata);
+    private final Symbol a = p.symbol("a", BIGINT);
+    private final Symbol b = p.symbol("b", BIGINT);
+    private final Symbol c = p.symbol("c", BIGINT);
+    private final Symbol d = p.symbol("d", BIGINT);
+
+    @Test
+    public void testLiteralsAreIgnored()
+    {
+        assertEquals(
+                hash(p.filter(expression("a > BIGINT '5'"), p.values(10, a))),
+                hash(p.filter(expression("a > BIGINT '42'"), p.values(10, a))));
+        assertNotEquals(
+                hash(p.filter(expression("a > BIGINT '5'"), p.values(10, a))),
+                hash(p.filter(expression("a < BIGINT '5'"), p.values(10, a))));
+        assertEquals(
+                hash(p.filter(expression("a > BIGINT '5' AND a < BIGINT '10'"), p.values(10, a))),
+                hash(p.filter(expression("a < BIGINT '20' AND a > BIGINT '1'"), p.values(10, a))));
+    }
+
+    @Test
+    public void testRowPreservingNodesAreIgnored()
+    {
+        PlanNode filter = p.filter(expression("a > BIGINT '5'"), p.values(10, a));
+        assertEquals(hash(p.project(Assignments.identity(a), filter)), hash(filter));
+        assertEquals(hash(p.gatheringExchange(REMOTE, filter)), hash(filter));
+    }
+
+    @Test
+    public void testSymbolNamesAreIgnored()
+    {
+        assertEquals(
+                hash(p.filter(expression("a > BIGINT '5'"), p.values(10, a))),
+                hash(p.filter(expression("c > BIGINT '5'"), p.values(10, c))));
+        assertEquals(
+                hash(p.join(INNER, p.values(10, a), p.values(20, b), new EquiJoinClause(a, b))),
+                hash(p.join(INNER, p.values(10, c), p.values(20, d), new EquiJoinClause(c, d))));
+        assertEquals(
+                hash(p.aggregation(builder -> builder
+                        .source(p.values(10, a, b))
+                        .singleGroupingSet(a)
+                        .addAggregation(p.symbol("count", BIGINT), expression("count()"), ImmutableList.of()))),
+                hash(p.aggregation(builder -> builder
+                        .source(p.values(10, c, d))
+                        .singleGroupingSet(c)
+                        .addAggregation(p.symbol("count", BIGINT), expression("count()"), ImmutableList.of()))));
+
+        // symbols are identified by their position
+        assertNotEquals(
+                hash(p.filter(expression("a > BIGINT '5'"), p.values(10, a, b))),
+                hash(p.filter(expression("b > BIGINT '5'"), p.values(10, a, b))));
+        assertNotEquals(
+                hash(p.join(INNER, p.values(10, a, c), p.values(20, b), new EquiJoinClause(a, b))),
+                hash(p.join(INNER, p.values(10, a, c), p.values(20, b), new EquiJoinClause(c, b))));
+        assertNotEquals(
+                hash(p.aggregation(builder -> builder
+                        .source(p.values(10, a, b))
+                        .singleGroupingSet(a)
+                        .addAggregation(p.symbol("count", BIGINT), expression("count()"), ImmutableList.of()))),
+                hash(p.aggregation(builder -> builder
+                        .source(p.values(10, a, b))
+                        .singleGroupingSet(b)
+                        .addAggregation(p.symbol("count", BIGINT), expression("count()"), ImmutableList.of()))));
+    }
+
+    @Test
+    public void testJoinSides()
+    {
+        assertEquals(
+                hash(p.join(INNER, p.values(10, a), p.values(20, b), new EquiJoinClause(a, b))),
+                hash(p.join(INNER, p.values(20, b), p.values(10, a), new EquiJoinClause(b, a))));
+        assertEquals(
+                hash(p.join(LEFT, p.values(10, a), p.values(20, b), new EquiJoinClause(a, b))),
+                hash(p.join(RIGHT, p.values(20, b), p.values(10, a), new EquiJoinClause(b, a))));
+        assertNotEquals(
+                hash(p.join(LEFT, p.values(10, a), p.values(20, b), new EquiJoinClause(a, b))),
+                hash(p.join(LEFT, p.values(20, b), p.values(10, a), new EquiJoinClause(b, a))));
+    }
+
+    @Test
+    public void testGroupReferences()
+    {
+        AtomicReference<PlanNode> group = new AtomicReference<>(p.values(10, a));
+        Lookup lookup = Lookup.from(reference -> Stream.of(group.get()));
+        PlanNode filter = p.filter(expression("a > BIGINT '5'"), new GroupReference(new PlanNodeId("reference"), 1, ImmutableList.of(a)));
+        Optional<String> hash = planHasher.hash(filter, lookup, TEST_SESSION);
+        assertTrue(hash.isPresent());
+        assertEquals(hash, hash(p.filter(expression("a > BIGINT '5'"), p.values(10, a))));
+        assertEquals(planHasher.hash(filter, lookup, TEST_SESSION), hash);
+
+        // the cached canonical form is not used once the group is rewritten
+        group.set(p.values(20, a));
+        assertEquals(planHasher.hash(filter, lookup, TEST_SESSION), hash(p.filter(expression("a > BIGINT '5'"), p.values(20, a))));
+        assertNotEquals(planHasher.hash(filter, lookup, TEST_SESSION), hash);
+    }
+
+    @Test
+    public void testSplitAggregation()
+    {
+        PlanNode single = p.aggregation(builder -> builder
+                .source(p.values(10, a))
+                .singleGroupingSet(a)
+                .addAggregation(p.symbol("count", BIGINT), expression("count()"), ImmutableList.of()));
+        PlanNode partial = p.aggregation(builder -> builder
+                .source(p.values(10, a))
+                .singleGroupingSet(a)
+                .addAggregation(p.symbol("partial_count", BIGINT), expression("count()"), ImmutableList.of())
+                .step(PARTIAL));
+        PlanNode finalAggregation = p.aggregation(builder -> builder
+                .source(p.gatheringExchange(REMOTE, partial))
+                .singleGroupingSet(a)
+                .addAggregation(p.symbol("count", BIGINT), expression("count(partial_count)"), ImmutableList.of(BIGINT))
+                .step(FINAL));
+
+        assertTrue(hash(single).isPresent());
+        assertEquals(hash(finalAggregation), hash(single));
+        assertEquals(hash(partial), Optional.empty());
+        assertEquals(hash(p.gatheringExchange(REMOTE, partial)), Optional.empty());
+    }
+
+    @Test
+    public void testDynamicFiltersAreIgnored()
+    {
+        FilterNode filter = p.filter(
+                and(expression("a > BIGINT '5'"), createDynamicFilterExpression(metadata, new DynamicFilterId("df"), BIGINT, a.toSymbolReference())),
+                p.values(10, a));
+        assertEquals(hash(filter), hash(p.filter(expression("a > BIGINT '5'"), p.values(10, a))));
+
+        // the output of a dynamically filtered node and of the nodes below it is not recorded, but the output of the join is
+        PlanNode build = p.values(20, b);
+        PlanNode join = p.join(INNER, filter, build, new EquiJoinClause(a, b));
+        assertEquals(planHasher.hashAll(join, TEST_SESSION).keySet(), ImmutableSet.of(join.getId(), build.getId()));
+    }
+
+    @Test
+    public void testSampledNodesAreNotRecorded()
+    {
+        PlanNode source = p.filter(expression("a > BIGINT '5'"), p.values(10, a));
+        PlanNode build = p.values(20, b);
+        PlanNode join = p.join(INNER, p.sample(0.1, SampleNode.Type.SYSTEM, source), build, new EquiJoinClause(a, b));
+        assertEquals(planHasher.hashAll(join, TEST_SESSION).keySet(), ImmutableSet.of(build.getId()));
+    }
+
+    @Test
+    public void testTableScanPushdown()
+    {
+        SchemaTableName tableName = new SchemaTableName("default", "nation");
+        SchemaTableName aggregatedTableName = new SchemaTableName("default", "nation_aggregated");
+        TupleDomain<String> constraint = TupleDomain.withColumnDomains(ImmutableMap.of("column_0", Domain.singleValue(createUnboundedVarcharType(), utf8Slice("value"))));
+        MockConnectorFactory connectorFactory = MockConnectorFactory.builder()
+                .withGetTableHandle((session, name) -> name.equals(tableName) ? new MockConnectorTableHandle(name) : null)
+                .withApplyFilter((session, handle, filter) -> Optional.of(new ConstraintApplicationResult<>(
+                        new MockConnectorTableHandle(tableName, filter.getSummary(), Optional.empty()),
+                        TupleDomain.all())))
+                .build();
+        Session session = testSessionBuilder()
+                .setCatalog("mock")
+                .setSchema("default")
+                .build();
+
+        try (LocalQueryRunner queryRunner = LocalQueryRunner.create(session)) {
+            queryRunner.createCatalog("mock", connectorFactory, ImmutableMap.of());
+            Metadata metadata = queryRunner.getMetadata();
+            CanonicalPlanHasher planHasher = new CanonicalPlanHasher(metadata);
+            queryRunner.inTransaction(transactionSession -> {
+                TableHandle table = metadata.getTableHandle(transactionSession, new QualifiedObjectName("mock", "default", "nation")).orElseThrow();
+                ColumnHandle column = metadata.getColumnHandles(transactionSession, table).get("column_0");
+                PlanBuilder planBuilder = new PlanBuilder(new PlanNodeIdAllocator(), metadata);
+                Symbol symbol = planBuilder.symbol("column_0", createUnboundedVarcharType());
+
+                PlanNode scan = planBuilder.tableScan(table, ImmutableList.of(symbol), ImmutableMap.of(symbol, column));
+                assertTrue(planHasher.hash(scan, noLookup(), transactionSession).isPresent());
+
+                // a pushed down predicate is enforced by the connector
+                TupleDomain<ColumnHandle> enforcedConstraint = constraint.transform(ImmutableMap.of("column_0", column)::get);
+                TableHandle filteredTable = new TableHandle(
+                        table.getCatalogName(),
+                        new MockConnectorTableHandle(tableName, enforcedConstraint, Optional.empty()),
+                        table.getTransaction(),
+                        table.getLayout());
+                PlanNode filteredScan = planBuilder.tableScan(filteredTable, ImmutableList.of(symbol), ImmutableMap.of(symbol, column), enforcedConstraint);
+                assertTrue(planHasher.hash(filteredScan, noLookup(), transactionSession).isPresent());
+                assertNotEquals(planHasher.hash(filteredScan, noLookup(), transactionSession), planHasher.hash(scan, noLookup(), transactionSession));
+
+                // other pushdowns, like of an aggregation or a join, change what the handle represents
+                TableHandle reducedTable = new TableHandle(
+                        table.getCatalogName(),
+                        new MockConnectorTableHandle(aggregatedTableName),
+                        table.getTransaction(),
+                        table.getLayout());
+                PlanNode reducedScan = planBuilder.tableScan(reducedTable, ImmutableList.of(symbol), ImmutableMap.of(symbol, column));
+                assertEquals(planHasher.hash(reducedScan, noLookup(), transactionSession), Optional.empty());
+                assertTrue(planHasher.hashAll(reducedScan, transactionSession).isEmpty());
+                return null;
+            });
+        }
+    }
+
+    @Test
+    public void testUnsupportedNodes()
+    {
+        PlanNode limit = p.limit(5, p.filter(expression("a > BIGINT '5'"), p.values(10, a)));
+        assertEquals(hash(limit), Optional.empty());
+        assertEquals(hash(p.join(INNER, limit, p.values(20, b), new EquiJoinClause(a, b))), Optional.empty());
+
+        // the source of a limit may not have produced all rows
+        assertTrue(planHasher.hashAll(limit, TEST_SESSION).isEmpty());
+    }
+
+    private Optional<String> hash(PlanNode node)
+    {
+        return planHasher.hash(node, noLookup(), TEST_SESSION);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.cost;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.Duration;
+import io.trino.Session;
+import io.trino.metadata.Metadata;
+import io.trino.sql.planner.PlanNodeIdAllocator;
+import io.trino.sql.planner.Symbol;
+import io.trino.sql.planner.iterative.rule.test.PlanBuilder;
+import io.trino.sql.planner.plan.PlanNode;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+
+import static io.trino.SystemSessionProperties.HISTORY_BASED_STATISTICS_ENABLED;
+import static io.trino.metadata.MetadataManager.createTestMetadataManager;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.sql.planner.iterative.Lookup.noLookup;
+import static io.trino.sql.planner.iterative.rule.test.PlanBuilder.expression;
+import static io.trino.testing.TestingSession.testSessionBuilder;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+public class TestHistoryBasedStatsCalculator
+{
+    private static final Session SESSION = testSessionBuilder()
+            .setSystemProperty(HISTORY_BASED_STATISTICS_ENABLED, "true")
+            .build();
+
+    private final Metadata metadata = createTestMetadataManager();
+    private final PlanBuilder p = new PlanBuilder(new PlanNodeIdAllocator(), metadata);
+    private final Symbol a = p.symbol("a", BIGINT);
+
+    private final CanonicalPlanHasher planHasher = new CanonicalPlanHasher(metadata);
+    private final LocalHistoricalStatisticsStore statisticsStore = new LocalHistoricalStatisticsStore(100, Optional.empty(), new Duration(1, MINUTES));
+    private final StatsCalculator statsCalculator = new HistoryBasedStatsCalculator(
+            (node, sourceStats, lookup, session, types) -> PlanNodeStatsEstimate.builder()
+                    .setOutputRowCount(1000)
+                    .addSymbolStatistics(a, SymbolStatsEstimate.builder().setDistinctValuesCount(500).build())
+                    .build(),
+            planHasher,
+            statisticsStore,
+            new StatsNormalizer());
+
+    @Test
+    public void testObservedRowCount()
+    {
+        PlanNode filter = p.filter(expression("a > BIGINT '5'"), p.values(10, a));
+        assertStats(filter, SESSION)
+                .outputRowsCount(1000)
+                .symbolStats(a, symbolStats -> symbolStats.distinctValuesCount(500));
+
+        statisticsStore.putAll(ImmutableMap.of(planHasher.hash(filter, noLookup(), SESSION).orElseThrow(), new HistoricalPlanNodeStatistics(10, 80)));
+        assertStats(filter, SESSION)
+                .outputRowsCount(10)
+                .symbolStats(a, symbolStats -> symbolStats.distinctValuesCount(10));
+
+        // the observed row count is used for recurring queries with different literals
+        assertStats(p.filter(expression("a > BIGINT '7'"), p.values(10, a)), SESSION)
+                .outputRowsCount(10);
+
+        assertStats(p.filter(expression("a < BIGINT '5'"), p.values(10, a)), SESSION)
+                .outputRowsCount(1000);
+
+        assertStats(filter, testSessionBuilder().build())
+                .outputRowsCount(1000);
+    }
+
+    private PlanNodeStatsAssertion assertStats(PlanNode node, Session session)
+    {
+        return PlanNodeStatsAssertion.assertThat(statsCalculator.calculateStats(node, source -> PlanNodeStatsEstimate.unknown(), noLookup(), session, p.getTypes()));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.cost;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestLocalHistoricalStatisticsStore
+{
+    private static final Duration FLUSH_INTERVAL = new Duration(1, MINUTES);
+
+    @Test
+    public void testPutAndGet()
+    {
+        LocalHistoricalStatisticsStore store = new LocalHistoricalStatisticsStore(100, Optional.empty(), FLUSH_INTERVAL);
+        assertTrue(store.isEmpty());
+        assertEquals(store.get("a"), Optional.empty());
+
+        store.putAll(ImmutableMap.of("a", new HistoricalPlanNodeStatistics(10, 100), "b", new HistoricalPlanNodeStatistics(20, 200)));
+        assertFalse(store.isEmpty());
+        assertEquals(store.get("a"), Optional.of(new HistoricalPlanNodeStatistics(10, 100)));
+        assertEquals(store.get("b"), Optional.of(new HistoricalPlanNodeStatistics(20, 200)));
+
+        // the latest execution replaces the previous statistics
+        store.putAll(ImmutableMap.of("a", new HistoricalPlanNodeStatistics(30, 300)));
+        assertEquals(store.get("a"), Optional.of(new HistoricalPlanNodeStatistics(30, 300)));
+    }
+
+    @Test
+    public void testMaxEntries()
+    {
+        LocalHistoricalStatisticsStore store = new LocalHistoricalStatisticsStore(1, Optional.empty(), FLUSH_INTERVAL);
+        store.putAll(ImmutableMap.of("a", new HistoricalPlanNodeStatistics(10, 100)));
+        store.putAll(ImmutableMap.of("b", new HistoricalPlanNodeStatistics(20, 200)));
+        assertEquals(store.getSize(), 1);
+        assertEquals(store.get("a"), Optional.empty());
+        assertEquals(store.get("b"), Optional.of(new HistoricalPlanNodeStatistics(20, 200)));
+    }
+
+    @Test
+    public void testFile()
+            throws IOException
+    {
+        Path directory = Files.createTempDirectory("historical-statistics");
+        try {
+            Path file = directory.resolve("statistics.json");
+            LocalHistoricalStatisticsStore store = new LocalHistoricalStatisticsStore(100, Optional.of(file), FLUSH_INTERVAL);
+            store.start();
+            store.putAll(ImmutableMap.of("a", new HistoricalPlanNodeStatistics(10, 100)));
+            store.stop();
+            assertTrue(Files.exists(file));
+
+            LocalHistoricalStatisticsStore restarted = new LocalHistoricalStatisticsStore(100, Optional.of(file), FLUSH_INTERVAL);
+            assertEquals(restarted.get("a"), Optional.of(new HistoricalPlanNodeStatistics(10, 100)));
+
+            // a corrupted file does not prevent startup
+            Files.write(file, "corrupted".getBytes(UTF_8));
+            assertTrue(new LocalHistoricalStatisticsStore(100, Optional.of(file), FLUSH_INTERVAL).isEmpty());
+        }
+        finally {
+            deleteRecursively(directory, ALLOW_INSECURE);
+        }
+    }
+}
@@ -33,10 +33,14 @@ import io.trino.metadata.Split;
 import io.trino.operator.LookupJoinOperators;
 import io.trino.operator.PagesIndex;
 import io.trino.operator.index.IndexJoinLookupStats;
+import io.trino.spi.connector.ColumnHandle;
+import io.trino.spi.connector.ConnectorTableHandle;
 import io.trino.spi.type.TypeOperators;
 import io.trino.spiller.GenericSpillerFactory;
 import io.trino.split.PageSinkManager;
 import io.trino.split.PageSourceManager;
+import io.trino.split.SplitCache;
+import io.trino.split.SplitCacheConfig;
 import io.trino.sql.gen.ExpressionCompiler;
 import io.trino.sql.gen.JoinCompiler;
 import io.trino.sql.gen.JoinFilterFunctionCompiler;
@@ -62,6 +66,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
 
+import static io.airlift.json.JsonCodec.jsonCodec;
 import static io.trino.SessionTestUtils.TEST_SESSION;
 import static io.trino.metadata.MetadataManager.createTestMetadataManager;
 import static io.trino.operator.StageExecutionDescriptor.ungroupedExecution;
@@ -126,6 +131,7 @@ public final class TaskTestUtils
                 new TypeAnalyzer(new SqlParser(), metadata),
                 Optional.empty(),
                 pageSourceManager,
+                new SplitCache(new SplitCacheConfig(), metadata, jsonCodec(ConnectorTableHandle.class), jsonCodec(ColumnHandle.class)),
                 new IndexManager(),
                 nodePartitioningManager,
                 new PageSinkManager(),
@@ -0,0 +1,256 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.execution;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.stats.Distribution;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import io.trino.cost.HistoricalPlanNodeStatistics;
+import io.trino.cost.LocalHistoricalStatisticsStore;
+import io.trino.cost.PlanNodeStatsEstimate;
+import io.trino.cost.StatsAndCosts;
+import io.trino.spi.eventlistener.StageGcStatistics;
+import io.trino.sql.planner.Partitioning;
+import io.trino.sql.planner.PartitioningScheme;
+import io.trino.sql.planner.PlanFragment;
+import io.trino.sql.planner.SubPlan;
+import io.trino.sql.planner.Symbol;
+import io.trino.sql.planner.plan.JoinNode;
+import io.trino.sql.planner.plan.JoinNode.EquiJoinClause;
+import io.trino.sql.planner.plan.PlanFragmentId;
+import io.trino.sql.planner.plan.PlanNode;
+import io.trino.sql.planner.plan.PlanNodeId;
+import io.trino.sql.planner.plan.RemoteSourceNode;
+import io.trino.sql.planner.plan.TableScanNode;
+import io.trino.testing.TestingMetadata.TestingColumnHandle;
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.trino.operator.StageExecutionDescriptor.ungroupedExecution;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.sql.planner.SystemPartitioningHandle.FIXED_BROADCAST_DISTRIBUTION;
+import static io.trino.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
+import static io.trino.sql.planner.SystemPartitioningHandle.SOURCE_DISTRIBUTION;
+import static io.trino.sql.planner.plan.ExchangeNode.Type.REPLICATE;
+import static io.trino.sql.planner.plan.JoinNode.DistributionType.REPLICATED;
+import static io.trino.sql.planner.plan.JoinNode.Type.INNER;
+import static io.trino.testing.TestingHandles.TEST_TABLE_HANDLE;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestBroadcastJoinReplanning
+{
+    private static final Symbol PROBE_SYMBOL = new Symbol("probe");
+    private static final Symbol BUILD_SYMBOL = new Symbol("build");
+    // the estimated size of the build side is 900 bytes
+    private static final DataSize JOIN_MAX_BROADCAST_TABLE_SIZE = DataSize.ofBytes(1000);
+
+    @Test
+    public void testReplanning()
+    {
+        PlanFragment buildFragment = createBuildFragment(PlanNodeStatsEstimate.builder().setOutputRowCount(100).build());
+        PlanFragment joinFragment = createJoinFragment(buildFragment, ImmutableList.of(new EquiJoinClause(PROBE_SYMBOL, BUILD_SYMBOL)));
+        LocalHistoricalStatisticsStore statisticsStore = new LocalHistoricalStatisticsStore(100, Optional.empty(), new Duration(1, MINUTES));
+        AtomicInteger replans = new AtomicInteger();
+        BroadcastJoinReplanning replanning = new BroadcastJoinReplanning(
+                new SubPlan(joinFragment, ImmutableList.of(new SubPlan(buildFragment, ImmutableList.of()))),
+                ImmutableMap.of(buildFragment.getRoot().getId(), "build_hash"),
+                JOIN_MAX_BROADCAST_TABLE_SIZE,
+                statisticsStore,
+                replans::incrementAndGet);
+
+        assertEquals(replanning.getCheckedFragments(), ImmutableSet.of(buildFragment.getId()));
+        assertFalse(replanning.shouldReplan(joinFragment.getId(), createStageStats(10_000, 10_000)));
+
+        // smaller than the maximum broadcast table size
+        assertFalse(replanning.shouldReplan(buildFragment.getId(), createStageStats(100, 1000)));
+        // close to the estimate
+        assertFalse(replanning.shouldReplan(buildFragment.getId(), createStageStats(150, 1500)));
+        assertTrue(replanning.shouldReplan(buildFragment.getId(), createStageStats(200, 2000)));
+
+        replanning.replan(buildFragment.getId(), createStageStats(200, 2000), true);
+        assertEquals(replans.get(), 1);
+        assertEquals(statisticsStore.get("build_hash"), Optional.of(new HistoricalPlanNodeStatistics(200, 2000)));
+    }
+
+    @Test
+    public void testReplanningRunningStage()
+    {
+        PlanFragment buildFragment = createBuildFragment(PlanNodeStatsEstimate.builder().setOutputRowCount(100).build());
+        PlanFragment joinFragment = createJoinFragment(buildFragment, ImmutableList.of(new EquiJoinClause(PROBE_SYMBOL, BUILD_SYMBOL)));
+        LocalHistoricalStatisticsStore statisticsStore = new LocalHistoricalStatisticsStore(100, Optional.empty(), new Duration(1, MINUTES));
+        BroadcastJoinReplanning replanning = new BroadcastJoinReplanning(
+                new SubPlan(joinFragment, ImmutableList.of(new SubPlan(buildFragment, ImmutableList.of()))),
+                ImmutableMap.of(buildFragment.getRoot().getId(), "build_hash"),
+                JOIN_MAX_BROADCAST_TABLE_SIZE,
+                statisticsStore,
+                () -> {});
+
+        // the partial output of a running stage is recorded when nothing larger is known
+        replanning.replan(buildFragment.getId(), createStageStats(200, 2000), false);
+        assertEquals(statisticsStore.get("build_hash"), Optional.of(new HistoricalPlanNodeStatistics(200, 2000)));
+
+        // the partial output is a lower bound, so it does not replace larger statistics
+        statisticsStore.putAll(ImmutableMap.of("build_hash", new HistoricalPlanNodeStatistics(500, 5000)));
+        replanning.replan(buildFragment.getId(), createStageStats(300, 3000), false);
+        assertEquals(statisticsStore.get("build_hash"), Optional.of(new HistoricalPlanNodeStatistics(500, 5000)));
+        replanning.replan(buildFragment.getId(), createStageStats(600, 6000), false);
+        assertEquals(statisticsStore.get("build_hash"), Optional.of(new HistoricalPlanNodeStatistics(600, 6000)));
+
+        // the complete output replaces the recorded statistics
+        replanning.replan(buildFragment.getId(), createStageStats(300, 3000), true);
+        assertEquals(statisticsStore.get("build_hash"), Optional.of(new HistoricalPlanNodeStatistics(300, 3000)));
+    }
+
+    @Test
+    public void testUnknownEstimate()
+    {
+        PlanFragment buildFragment = createBuildFragment(PlanNodeStatsEstimate.unknown());
+        PlanFragment joinFragment = createJoinFragment(buildFragment, ImmutableList.of(new EquiJoinClause(PROBE_SYMBOL, BUILD_SYMBOL)));
+        BroadcastJoinReplanning replanning = createReplanning(joinFragment, buildFragment);
+
+        assertFalse(replanning.shouldReplan(buildFragment.getId(), createStageStats(100, 1000)));
+        assertTrue(replanning.shouldReplan(buildFragment.getId(), createStageStats(150, 1500)));
+    }
+
+    @Test
+    public void testCrossJoin()
+    {
+        // a join without criteria can only be executed as a broadcast join
+        PlanFragment buildFragment = createBuildFragment(PlanNodeStatsEstimate.builder().setOutputRowCount(100).build());
+        PlanFragment joinFragment = createJoinFragment(buildFragment, ImmutableList.of());
+        BroadcastJoinReplanning replanning = createReplanning(joinFragment, buildFragment);
+
+        assertTrue(replanning.getCheckedFragments().isEmpty());
+        assertFalse(replanning.shouldReplan(buildFragment.getId(), createStageStats(10_000, 100_000)));
+    }
+
+    private static BroadcastJoinReplanning createReplanning(PlanFragment joinFragment, PlanFragment buildFragment)
+    {
+        return new BroadcastJoinReplanning(
+                new SubPlan(joinFragment, ImmutableList.of(new SubPlan(buildFragment, ImmutableList.of()))),
+                ImmutableMap.of(buildFragment.getRoot().getId(), "build_hash"),
+                JOIN_MAX_BROADCAST_TABLE_SIZE,
+                new LocalHistoricalStatisticsStore(100, Optional.empty(), new Duration(1, MINUTES)),
+                () -> {});
+    }
+
+    private static PlanFragment createBuildFragment(PlanNodeStatsEstimate estimate)
+    {
+        PlanNode tableScan = TableScanNode.newInstance(
+                new PlanNodeId("build_scan"),
+                TEST_TABLE_HANDLE,
+                ImmutableList.of(BUILD_SYMBOL),
+                ImmutableMap.of(BUILD_SYMBOL, new TestingColumnHandle("build")),
+                false);
+        return new PlanFragment(
+                new PlanFragmentId("build"),
+                tableScan,
+                ImmutableMap.of(BUILD_SYMBOL, BIGINT),
+                SOURCE_DISTRIBUTION,
+                ImmutableList.of(tableScan.getId()),
+                new PartitioningScheme(Partitioning.create(FIXED_BROADCAST_DISTRIBUTION, ImmutableList.of()), tableScan.getOutputSymbols()),
+                ungroupedExecution(),
+                new StatsAndCosts(ImmutableMap.of(tableScan.getId(), estimate), ImmutableMap.of()),
+                Optional.empty());
+    }
+
+    private static PlanFragment createJoinFragment(PlanFragment buildFragment, List<EquiJoinClause> criteria)
+    {
+        PlanNode tableScan = TableScanNode.newInstance(
+                new PlanNodeId("probe_scan"),
+                TEST_TABLE_HANDLE,
+                ImmutableList.of(PROBE_SYMBOL),
+                ImmutableMap.of(PROBE_SYMBOL, new TestingColumnHandle("probe")),
+                false);
+        RemoteSourceNode remoteSource = new RemoteSourceNode(new PlanNodeId("remote_build"), buildFragment.getId(), ImmutableList.of(BUILD_SYMBOL), Optional.empty(), REPLICATE);
+        PlanNode join = new JoinNode(
+                new PlanNodeId("join"),
+                INNER,
+                tableScan,
+                remoteSource,
+                criteria,
+                tableScan.getOutputSymbols(),
+                remoteSource.getOutputSymbols(),
+                false,
+                Optional.empty(),
+                Optional.empty(),
+                Optional.empty(),
+                Optional.of(REPLICATED),
+                Optional.empty(),
+                ImmutableMap.of(),
+                Optional.empty());
+        return new PlanFragment(
+                new PlanFragmentId("join"),
+                join,
+                ImmutableMap.of(PROBE_SYMBOL, BIGINT, BUILD_SYMBOL, BIGINT),
+                SOURCE_DISTRIBUTION,
+                ImmutableList.of(tableScan.getId()),
+                new PartitioningScheme(Partitioning.create(SINGLE_DISTRIBUTION, ImmutableList.of()), join.getOutputSymbols()),
+                ungroupedExecution(),
+                StatsAndCosts.empty(),
+                Optional.empty());
+    }
+
+    private static StageStats createStageStats(long outputPositions, long outputDataSize)
+    {
+        return new StageStats(
+                new DateTime(0),
+                new Distribution().snapshot(),
+                1,
+                0,
+                1,
+                1,
+                0,
+                0,
+                0,
+                1,
+                0,
+                DataSize.ofBytes(0),
+                DataSize.ofBytes(0),
+                DataSize.ofBytes(0),
+                DataSize.ofBytes(0),
+                DataSize.ofBytes(0),
+                new Duration(0, NANOSECONDS),
+                new Duration(0, NANOSECONDS),
+                new Duration(0, NANOSECONDS),
+                false,
+                ImmutableSet.of(),
+                DataSize.ofBytes(0),
+                0,
+                new Duration(0, NANOSECONDS),
+                DataSize.ofBytes(0),
+                0,
+                DataSize.ofBytes(0),
+                0,
+                DataSize.ofBytes(0),
+                0,
+                DataSize.ofBytes(0),
+                DataSize.ofBytes(outputDataSize),
+                outputPositions,
+                DataSize.ofBytes(0),
+                new StageGcStatistics(0, 0, 0, 0, 0, 0, 0),
+                ImmutableList.of());
+    }
+}
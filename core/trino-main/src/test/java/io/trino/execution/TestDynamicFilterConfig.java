@@ -23,6 +23,7 @@ import static io.airlift.configuration.testing.ConfigAssertions.assertFullMappin
 import static io.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
 import static io.airlift.configuration.testing.ConfigAssertions.recordDefaults;
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
 
 public class TestDynamicFilterConfig
 {
@@ -44,7 +45,9 @@ public class TestDynamicFilterConfig
                 .setLargeBroadcastRangeRowLimitPerDriver(10_000)
                 .setLargePartitionedMaxDistinctValuesPerDriver(500)
                 .setLargePartitionedMaxSizePerDriver(DataSize.of(50, KILOBYTE))
-                .setLargePartitionedRangeRowLimitPerDriver(1_000));
+                .setLargePartitionedRangeRowLimitPerDriver(1_000)
+                .setEnableBloomFilters(false)
+                .setBloomFilterMaxSize(DataSize.of(1, MEGABYTE)));
     }
 
     @Test
@@ -66,6 +69,8 @@ public class TestDynamicFilterConfig
                 .put("dynamic-filtering.large-partitioned.max-distinct-values-per-driver", "256")
                 .put("dynamic-filtering.large-partitioned.max-size-per-driver", "64kB")
                 .put("dynamic-filtering.large-partitioned.range-row-limit-per-driver", "100000")
+                .put("dynamic-filtering.bloom-filter.enabled", "true")
+                .put("dynamic-filtering.bloom-filter.max-size", "4MB")
                 .build();
 
         DynamicFilterConfig expected = new DynamicFilterConfig()
@@ -83,7 +88,9 @@ public class TestDynamicFilterConfig
                 .setLargeBroadcastRangeRowLimitPerDriver(100000)
                 .setLargePartitionedMaxDistinctValuesPerDriver(256)
                 .setLargePartitionedMaxSizePerDriver(DataSize.of(64, KILOBYTE))
-                .setLargePartitionedRangeRowLimitPerDriver(100000);
+                .setLargePartitionedRangeRowLimitPerDriver(100000)
+                .setEnableBloomFilters(true)
+                .setBloomFilterMaxSize(DataSize.of(4, MEGABYTE));
 
         assertFullMapping(properties, expected);
     }
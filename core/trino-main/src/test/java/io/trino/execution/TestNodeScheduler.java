@@ -280,6 +280,37 @@ public class TestNodeScheduler
         assertEquals(assignments.size(), 1);
     }
 
+    @Test
+    public void testSplitCacheAffinity()
+    {
+        setUpNodes();
+        NodeSchedulerConfig nodeSchedulerConfig = new NodeSchedulerConfig()
+                .setMaxSplitsPerNode(20)
+                .setIncludeCoordinator(false)
+                .setMaxPendingSplitsPerTask(10)
+                .setSplitCacheAffinity(true);
+        NodeSelector nodeSelector = new NodeScheduler(new UniformNodeSelectorFactory(nodeManager, nodeSchedulerConfig, nodeTaskMap))
+                .createNodeSelector(Optional.of(CONNECTOR_ID));
+
+        // the same cacheable split is always assigned to one of its affinity nodes
+        Set<InternalNode> assignedNodes = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            Split split = new Split(CONNECTOR_ID, new TestSplitCacheable("file"), Lifespan.taskWide());
+            Multimap<InternalNode, Split> assignments = nodeSelector.computeAssignments(ImmutableSet.of(split), ImmutableList.copyOf(taskMap.values())).getAssignments();
+            assignedNodes.add(getOnlyElement(assignments.keySet()));
+        }
+        assertTrue(assignedNodes.size() <= 2);
+
+        // different splits are spread over all nodes
+        Set<Split> splits = new HashSet<>();
+        for (int i = 0; i < 30; i++) {
+            splits.add(new Split(CONNECTOR_ID, new TestSplitCacheable("file" + i), Lifespan.taskWide()));
+        }
+        Multimap<InternalNode, Split> assignments = nodeSelector.computeAssignments(splits, ImmutableList.copyOf(taskMap.values())).getAssignments();
+        assertEquals(assignments.size(), 30);
+        assertEquals(assignments.keySet().size(), 3);
+    }
+
     @Test
     public void testBasicAssignment()
     {
@@ -871,6 +902,23 @@ public class TestNodeScheduler
         }
     }
 
+    private static class TestSplitCacheable
+            extends TestSplitRemote
+    {
+        private final String cacheIdentifier;
+
+        TestSplitCacheable(String cacheIdentifier)
+        {
+            this.cacheIdentifier = requireNonNull(cacheIdentifier, "cacheIdentifier is null");
+        }
+
+        @Override
+        public Optional<String> getCacheIdentifier()
+        {
+            return Optional.of(cacheIdentifier);
+        }
+    }
+
     private static class TestNetworkTopology
             implements NetworkTopology
     {
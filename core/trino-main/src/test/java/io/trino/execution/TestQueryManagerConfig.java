@@ -16,6 +16,7 @@ package io.trino.execution;
 import com.google.common.collect.ImmutableMap;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
+import io.trino.server.remotetask.RemoteTaskEncoding;
 import org.testng.annotations.Test;
 
 import java.util.Map;
@@ -24,7 +25,9 @@ import java.util.concurrent.TimeUnit;
 import static io.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
 import static io.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
 import static io.airlift.configuration.testing.ConfigAssertions.recordDefaults;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
 
 public class TestQueryManagerConfig
 {
@@ -47,13 +50,23 @@ public class TestQueryManagerConfig
                 .setRemoteTaskMinErrorDuration(new Duration(5, TimeUnit.MINUTES))
                 .setRemoteTaskMaxErrorDuration(new Duration(5, TimeUnit.MINUTES))
                 .setRemoteTaskMaxCallbackThreads(1000)
+                .setRemoteTaskEncoding(RemoteTaskEncoding.SMILE)
                 .setQueryExecutionPolicy("all-at-once")
                 .setQueryMaxRunTime(new Duration(100, TimeUnit.DAYS))
                 .setQueryMaxExecutionTime(new Duration(100, TimeUnit.DAYS))
                 .setQueryMaxCpuTime(new Duration(1_000_000_000, TimeUnit.DAYS))
                 .setQueryMaxScanPhysicalBytes(null)
                 .setRequiredWorkers(1)
-                .setRequiredWorkersMaxWait(new Duration(5, TimeUnit.MINUTES)));
+                .setRequiredWorkersMaxWait(new Duration(5, TimeUnit.MINUTES))
+                .setResultCacheEnabled(false)
+                .setResultCacheMaxSize(DataSize.of(256, MEGABYTE))
+                .setResultCacheMaxEntrySize(DataSize.of(8, MEGABYTE))
+                .setResultCacheTtl(new Duration(1, TimeUnit.MINUTES))
+                .setResultSegmentsEnabled(false)
+                .setResultSegmentsMaxRetainedSize(DataSize.of(1, GIGABYTE))
+                .setResultSegmentsMaxRetainedSizePerQuery(DataSize.of(128, MEGABYTE))
+                .setRetryPolicy(RetryPolicy.NONE)
+                .setQueryRetryAttempts(4));
     }
 
     @Test
@@ -75,6 +88,7 @@ public class TestQueryManagerConfig
                 .put("query.remote-task.min-error-duration", "30s")
                 .put("query.remote-task.max-error-duration", "60s")
                 .put("query.remote-task.max-callback-threads", "10")
+                .put("query.remote-task.encoding", "JSON")
                 .put("query.execution-policy", "phased")
                 .put("query.max-run-time", "2h")
                 .put("query.max-execution-time", "3h")
@@ -82,6 +96,15 @@ public class TestQueryManagerConfig
                 .put("query.max-scan-physical-bytes", "1kB")
                 .put("query-manager.required-workers", "333")
                 .put("query-manager.required-workers-max-wait", "33m")
+                .put("query.result-cache.enabled", "true")
+                .put("query.result-cache.max-size", "1GB")
+                .put("query.result-cache.max-entry-size", "16MB")
+                .put("query.result-cache.ttl", "10s")
+                .put("query.result-segments.enabled", "true")
+                .put("query.result-segments.max-retained-size", "2GB")
+                .put("query.result-segments.max-retained-size-per-query", "64MB")
+                .put("retry-policy", "QUERY")
+                .put("query-retry-attempts", "2")
                 .build();
 
         QueryManagerConfig expected = new QueryManagerConfig()
@@ -100,13 +123,23 @@ public class TestQueryManagerConfig
                 .setRemoteTaskMinErrorDuration(new Duration(60, TimeUnit.SECONDS))
                 .setRemoteTaskMaxErrorDuration(new Duration(60, TimeUnit.SECONDS))
                 .setRemoteTaskMaxCallbackThreads(10)
+                .setRemoteTaskEncoding(RemoteTaskEncoding.JSON)
                 .setQueryExecutionPolicy("phased")
                 .setQueryMaxRunTime(new Duration(2, TimeUnit.HOURS))
                 .setQueryMaxExecutionTime(new Duration(3, TimeUnit.HOURS))
                 .setQueryMaxCpuTime(new Duration(2, TimeUnit.DAYS))
                 .setQueryMaxScanPhysicalBytes(DataSize.of(1, KILOBYTE))
                 .setRequiredWorkers(333)
-                .setRequiredWorkersMaxWait(new Duration(33, TimeUnit.MINUTES));
+                .setRequiredWorkersMaxWait(new Duration(33, TimeUnit.MINUTES))
+                .setResultCacheEnabled(true)
+                .setResultCacheMaxSize(DataSize.of(1, GIGABYTE))
+                .setResultCacheMaxEntrySize(DataSize.of(16, MEGABYTE))
+                .setResultCacheTtl(new Duration(10, TimeUnit.SECONDS))
+                .setResultSegmentsEnabled(true)
+                .setResultSegmentsMaxRetainedSize(DataSize.of(2, GIGABYTE))
+                .setResultSegmentsMaxRetainedSizePerQuery(DataSize.of(64, MEGABYTE))
+                .setRetryPolicy(RetryPolicy.QUERY)
+                .setQueryRetryAttempts(2);
 
         assertFullMapping(properties, expected);
     }
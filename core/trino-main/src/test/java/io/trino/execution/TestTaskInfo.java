@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.execution;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.stats.Distribution;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import io.trino.operator.PipelineStats;
+import io.trino.operator.TaskStats;
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.List;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.trino.execution.TaskState.FINISHED;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+public class TestTaskInfo
+{
+    @Test
+    public void testIdlePipelines()
+    {
+        TaskInfo taskInfo = createTaskInfo(pipeline(0, 0, 3), pipeline(1, 2, 5), pipeline(2, 0, 0));
+        assertEquals(taskInfo.getIdlePipelines(), ImmutableMap.of(0, 3, 2, 0));
+    }
+
+    @Test
+    public void testWithoutIdlePipelines()
+    {
+        TaskInfo taskInfo = createTaskInfo(pipeline(0, 0, 3), pipeline(1, 2, 5), pipeline(2, 0, 1));
+
+        // pipeline 2 completed another driver since the requester got its stats
+        TaskInfo delta = taskInfo.withoutIdlePipelines(ImmutableMap.of(0, 3, 1, 5, 2, 0));
+        assertEquals(pipelineIds(delta), ImmutableList.of(1, 2));
+
+        assertSame(taskInfo.withoutIdlePipelines(ImmutableMap.of()), taskInfo);
+        assertSame(taskInfo.withoutIdlePipelines(ImmutableMap.of(0, 2)), taskInfo);
+    }
+
+    @Test
+    public void testWithoutIdlePipelinesForFinalTaskInfo()
+    {
+        TaskInfo taskInfo = createTaskInfo(pipeline(0, 0, 3), pipeline(1, 0, 5));
+        TaskInfo finalTaskInfo = taskInfo.withTaskStatus(TaskStatus.failWith(taskInfo.getTaskStatus(), FINISHED, ImmutableList.of()));
+        assertSame(finalTaskInfo.withoutIdlePipelines(ImmutableMap.of(0, 3, 1, 5)), finalTaskInfo);
+    }
+
+    @Test
+    public void testWithIdlePipelinesFrom()
+    {
+        TaskInfo previous = createTaskInfo(pipeline(0, 0, 3), pipeline(1, 2, 5), pipeline(2, 0, 1));
+        TaskInfo current = createTaskInfo(pipeline(0, 0, 3), pipeline(1, 1, 6), pipeline(2, 0, 1));
+
+        TaskInfo merged = current.withoutIdlePipelines(previous.getIdlePipelines()).withIdlePipelinesFrom(previous);
+        assertEquals(pipelineIds(merged), ImmutableList.of(0, 1, 2));
+        assertEquals(merged.getStats().getPipelines().get(1).getCompletedDrivers(), 6);
+
+        assertSame(current.withIdlePipelinesFrom(previous), current);
+    }
+
+    private static List<Integer> pipelineIds(TaskInfo taskInfo)
+    {
+        return taskInfo.getStats().getPipelines().stream()
+                .map(PipelineStats::getPipelineId)
+                .collect(toImmutableList());
+    }
+
+    private static TaskInfo createTaskInfo(PipelineStats... pipelines)
+    {
+        TaskStats taskStats = new TaskStats(DateTime.now(), null).withPipelines(ImmutableList.copyOf(pipelines));
+        return TaskInfo.createInitialTask(new TaskId("query", 0, 0), URI.create("fake://task"), "node", ImmutableList.of(), taskStats);
+    }
+
+    private static PipelineStats pipeline(int pipelineId, int runningDrivers, int completedDrivers)
+    {
+        return new PipelineStats(
+                pipelineId,
+                null,
+                null,
+                null,
+                true,
+                false,
+                runningDrivers + completedDrivers,
+                0,
+                0,
+                runningDrivers,
+                runningDrivers,
+                0,
+                completedDrivers,
+                DataSize.ofBytes(0),
+                DataSize.ofBytes(0),
+                DataSize.ofBytes(0),
+                new Distribution().snapshot(),
+                new Distribution().snapshot(),
+                new Duration(0, NANOSECONDS),
+                new Duration(0, NANOSECONDS),
+                new Duration(0, NANOSECONDS),
+                false,
+                ImmutableSet.of(),
+                DataSize.ofBytes(0),
+                0,
+                new Duration(0, NANOSECONDS),
+                DataSize.ofBytes(0),
+                0,
+                DataSize.ofBytes(0),
+                0,
+                DataSize.ofBytes(0),
+                0,
+                DataSize.ofBytes(0),
+                0,
+                DataSize.ofBytes(0),
+                ImmutableList.of(),
+                ImmutableList.of());
+    }
+}
@@ -59,6 +59,7 @@ public class TestTaskManagerConfig
                 .setTaskNotificationThreads(5)
                 .setTaskYieldThreads(3)
                 .setLevelTimeMultiplier(new BigDecimal("2"))
+                .setWorkStealingEnabled(false)
                 .setStatisticsCpuTimerEnabled(true));
     }
 
@@ -92,6 +93,7 @@ public class TestTaskManagerConfig
                 .put("task.task-notification-threads", "13")
                 .put("task.task-yield-threads", "8")
                 .put("task.level-time-multiplier", "2.1")
+                .put("task.work-stealing-enabled", "true")
                 .put("task.statistics-cpu-timer-enabled", "false")
                 .build();
 
@@ -122,6 +124,7 @@ public class TestTaskManagerConfig
                 .setTaskNotificationThreads(13)
                 .setTaskYieldThreads(8)
                 .setLevelTimeMultiplier(new BigDecimal("2.1"))
+                .setWorkStealingEnabled(true)
                 .setStatisticsCpuTimerEnabled(false);
 
         assertFullMapping(properties, expected);
@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.execution.buffer;
+
+import com.google.common.base.Ticker;
+import io.airlift.units.DataSize;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static io.trino.execution.buffer.AdaptiveCompressionCodecSelector.EXPLORATION_INTERVAL;
+import static io.trino.execution.buffer.CompressionCodec.LZ4;
+import static io.trino.execution.buffer.CompressionCodec.ZSTD;
+import static org.testng.Assert.assertEquals;
+
+public class TestAdaptiveCompressionCodecSelector
+{
+    private static final int PAGE_SIZE = 1_000_000;
+
+    @Test
+    public void testSlowNetworkPrefersBetterRatio()
+    {
+        AdaptiveCompressionCodecSelector selector = createSelector(DataSize.of(10, MEGABYTE), 0);
+        sample(selector, 0.5, 2, 0.3, 10);
+        assertEquals(selector.selectCodec(), Optional.of(ZSTD));
+    }
+
+    @Test
+    public void testFastNetworkPrefersFasterCodec()
+    {
+        AdaptiveCompressionCodecSelector selector = createSelector(DataSize.of(1, GIGABYTE), 0);
+        sample(selector, 0.5, 0.1, 0.3, 10);
+        assertEquals(selector.selectCodec(), Optional.of(LZ4));
+    }
+
+    @Test
+    public void testBusyCpuDisablesCompression()
+    {
+        // LZ4 halves the network time of about 1ns per byte for 0.1ns of CPU time, which stops paying off once the CPU is busy
+        AdaptiveCompressionCodecSelector selector = createSelector(DataSize.of(1, GIGABYTE), 0.9);
+        sample(selector, 0.5, 0.1, 0.3, 10);
+        assertEquals(selector.selectCodec(), Optional.empty());
+    }
+
+    @Test
+    public void testIncompressibleData()
+    {
+        AdaptiveCompressionCodecSelector selector = createSelector(DataSize.of(10, MEGABYTE), 0);
+        sample(selector, 1, 0.1, 1, 1);
+        assertEquals(selector.selectCodec(), Optional.empty());
+    }
+
+    @Test
+    public void testPeriodicExploration()
+    {
+        AdaptiveCompressionCodecSelector selector = createSelector(DataSize.of(10, MEGABYTE), 0);
+        sample(selector, 1, 0.1, 1, 1);
+
+        int explored = 0;
+        for (int i = 0; i < EXPLORATION_INTERVAL * 2; i++) {
+            if (selector.selectCodec().isPresent()) {
+                explored++;
+            }
+        }
+        assertEquals(explored, 2);
+    }
+
+    private static AdaptiveCompressionCodecSelector createSelector(DataSize networkThroughput, double cpuLoad)
+    {
+        return new AdaptiveCompressionCodecSelector(networkThroughput, () -> cpuLoad, Ticker.systemTicker());
+    }
+
+    /**
+     * Lets the selector try each codec once and records the given ratio and CPU nanos per byte for it
+     */
+    private static void sample(AdaptiveCompressionCodecSelector selector, double lz4Ratio, double lz4NanosPerByte, double zstdRatio, double zstdNanosPerByte)
+    {
+        assertEquals(selector.selectCodec(), Optional.of(LZ4));
+        selector.recordCompression(LZ4, PAGE_SIZE, (int) (PAGE_SIZE * lz4Ratio), (long) (PAGE_SIZE * lz4NanosPerByte));
+        assertEquals(selector.selectCodec(), Optional.of(ZSTD));
+        selector.recordCompression(ZSTD, PAGE_SIZE, (int) (PAGE_SIZE * zstdRatio), (long) (PAGE_SIZE * zstdNanosPerByte));
+    }
+}
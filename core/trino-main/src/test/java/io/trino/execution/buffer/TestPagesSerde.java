@@ -22,14 +22,26 @@ import io.trino.spi.block.BlockBuilder;
 import io.trino.spi.type.Type;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 
 import static io.trino.execution.buffer.PagesSerdeUtil.readPages;
+import static io.trino.execution.buffer.PagesSerdeUtil.readSerializedPages;
+import static io.trino.execution.buffer.PagesSerdeUtil.readSerializedPagesFrom;
 import static io.trino.execution.buffer.PagesSerdeUtil.writePages;
+import static io.trino.execution.buffer.PagesSerdeUtil.writeSerializedPages;
+import static io.trino.execution.buffer.PagesSerdeUtil.writeSerializedPagesTo;
+import static io.trino.metadata.MetadataManager.createTestMetadataManager;
 import static io.trino.operator.PageAssertions.assertPageEquals;
 import static io.trino.spi.type.BigintType.BIGINT;
 import static io.trino.spi.type.VarcharType.VARCHAR;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.fail;
@@ -107,6 +119,64 @@ public class TestPagesSerde
         assertEquals(secondValueSize, 4 + 3); // length + "bob" (null shared with first entry)
     }
 
+    @Test
+    public void testSerializedPagesStreamRoundTrip()
+            throws IOException
+    {
+        PagesSerde serde = new TestingPagesSerdeFactory().createPagesSerde();
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, 1000);
+        for (int i = 0; i < 1000; i++) {
+            BIGINT.writeLong(blockBuilder, i);
+        }
+        Page expectedPage = new Page(blockBuilder.build());
+        List<SerializedPage> pages;
+        try (PagesSerde.PagesSerdeContext context = serde.newContext()) {
+            pages = ImmutableList.of(serde.serialize(context, expectedPage), serde.serialize(context, new Page(0)), serde.serialize(context, expectedPage));
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeSerializedPagesTo(output, pages);
+
+        // the stream format is the same as the one of the slice based serialization
+        DynamicSliceOutput sliceOutput = new DynamicSliceOutput(1024);
+        writeSerializedPages(sliceOutput, pages);
+        assertEquals(output.toByteArray(), sliceOutput.slice().getBytes());
+        assertEquals(ImmutableList.copyOf(readSerializedPages(sliceOutput.slice().getInput())).size(), pages.size());
+
+        List<SerializedPage> actual = readSerializedPagesFrom(new ByteArrayInputStream(output.toByteArray()));
+        assertEquals(actual.size(), pages.size());
+        assertPageEquals(ImmutableList.of(BIGINT), serde.deserialize(actual.get(0)), expectedPage);
+        assertEquals(serde.deserialize(actual.get(1)).getPositionCount(), 0);
+        assertPageEquals(ImmutableList.of(BIGINT), serde.deserialize(actual.get(2)), expectedPage);
+
+        byte[] truncated = Arrays.copyOf(output.toByteArray(), output.size() - 1);
+        assertThatThrownBy(() -> readSerializedPagesFrom(new ByteArrayInputStream(truncated)))
+                .isInstanceOf(EOFException.class);
+    }
+
+    @Test
+    public void testCompressionCodecMarker()
+    {
+        BlockBuilder blockBuilder = VARCHAR.createBlockBuilder(null, 1000);
+        for (int i = 0; i < 1000; i++) {
+            VARCHAR.writeString(blockBuilder, "value " + (i % 10));
+        }
+        Page page = new Page(blockBuilder.build());
+
+        PagesSerde zstdSerde = new PagesSerde(createTestMetadataManager().getBlockEncodingSerde(), Optional.of(CompressionCodecSelector.fixed(CompressionCodec.ZSTD)), Optional.empty());
+        PagesSerde lz4Serde = new TestingPagesSerdeFactory().createPagesSerde();
+        try (PagesSerde.PagesSerdeContext context = zstdSerde.newContext()) {
+            SerializedPage zstdPage = zstdSerde.serialize(context, page);
+            assertEquals(zstdPage.getCompressionCodec(), Optional.of(CompressionCodec.ZSTD));
+            SerializedPage lz4Page = lz4Serde.serialize(context, page);
+            assertEquals(lz4Page.getCompressionCodec(), Optional.of(CompressionCodec.LZ4));
+
+            // the codec is taken from the page markers rather than from the configuration of the receiving serde
+            assertPageEquals(ImmutableList.of(VARCHAR), lz4Serde.deserialize(context, zstdPage), page);
+            assertPageEquals(ImmutableList.of(VARCHAR), zstdSerde.deserialize(context, lz4Page), page);
+        }
+    }
+
     @Test
     public void testClosedContext()
     {
@@ -27,7 +27,9 @@ import org.testng.annotations.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
 
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.trino.execution.buffer.BufferResult.emptyResults;
@@ -388,6 +390,73 @@ public class TestPartitionedOutputBuffer
         enqueuePage(buffer, createPage(3), secondPartition);
     }
 
+    @Test
+    public void testFullBufferSpoolsPages()
+    {
+        TestingPageSpool pageSpool = new TestingPageSpool();
+        PartitionedOutputBuffer buffer = createPartitionedBuffer(
+                createInitialEmptyOutputBuffers(PARTITIONED)
+                        .withBuffer(FIRST, 0)
+                        .withNoMoreBufferIds(),
+                sizeOfPages(2),
+                Optional.of(() -> pageSpool));
+
+        // fill the buffer
+        addPage(buffer, createPage(0));
+        addPage(buffer, createPage(1));
+        assertEquals(pageSpool.getSpooledPages(), 0);
+
+        // the buffer is full, so the following pages are spooled instead of blocking the writer
+        addPage(buffer, createPage(2));
+        addPage(buffer, createPage(3));
+        assertEquals(pageSpool.getSpooledPages(), 2);
+        assertEquals(buffer.getInfo().getTotalSpooledBytes(), 2 * serializePage(createPage(2)).getSizeInBytes());
+        assertEquals(buffer.getInfo().getTotalPagesSent(), 4);
+
+        // buffered pages are read first
+        assertBufferResultEquals(TYPES, getBufferResult(buffer, FIRST, 0, sizeOfPages(10), NO_WAIT), bufferResult(0, createPage(0), createPage(1)));
+
+        // acknowledging the buffered pages loads the spooled pages
+        assertBufferResultEquals(TYPES, getBufferResult(buffer, FIRST, 2, sizeOfPages(10), NO_WAIT), bufferResult(2, createPage(2), createPage(3)));
+        assertTrue(pageSpool.isEmpty());
+
+        // the spool is drained, so the pages are buffered in memory again once there is space
+        acknowledgeBufferResult(buffer, FIRST, 4);
+        addPage(buffer, createPage(4));
+        assertEquals(pageSpool.getSpooledPages(), 2);
+
+        buffer.setNoMorePages();
+        assertBufferResultEquals(TYPES, getBufferResult(buffer, FIRST, 4, sizeOfPages(10), NO_WAIT), bufferResult(4, createPage(4)));
+        assertBufferResultEquals(TYPES, getBufferResult(buffer, FIRST, 5, sizeOfPages(10), NO_WAIT), emptyResults(TASK_INSTANCE_ID, 5, true));
+        buffer.destroy(FIRST);
+        assertFinished(buffer);
+        assertTrue(pageSpool.isClosed());
+    }
+
+    @Test
+    public void testFinishWithSpooledPages()
+    {
+        TestingPageSpool pageSpool = new TestingPageSpool();
+        PartitionedOutputBuffer buffer = createPartitionedBuffer(
+                createInitialEmptyOutputBuffers(PARTITIONED)
+                        .withBuffer(FIRST, 0)
+                        .withNoMoreBufferIds(),
+                sizeOfPages(1),
+                Optional.of(() -> pageSpool));
+
+        addPage(buffer, createPage(0));
+        addPage(buffer, createPage(1));
+        assertEquals(pageSpool.getSpooledPages(), 1);
+
+        // the client is not finished until it has read the spooled pages
+        buffer.setNoMorePages();
+        assertBufferResultEquals(TYPES, getBufferResult(buffer, FIRST, 0, sizeOfPages(10), NO_WAIT), bufferResult(0, createPage(0)));
+        assertBufferResultEquals(TYPES, getBufferResult(buffer, FIRST, 1, sizeOfPages(10), NO_WAIT), bufferResult(1, createPage(1)));
+        assertBufferResultEquals(TYPES, getBufferResult(buffer, FIRST, 2, sizeOfPages(10), NO_WAIT), emptyResults(TASK_INSTANCE_ID, 2, true));
+        buffer.destroy(FIRST);
+        assertFinished(buffer);
+    }
+
     @Test
     public void testAcknowledgementFreesWriters()
     {
@@ -836,6 +905,11 @@ public class TestPartitionedOutputBuffer
     }
 
     private PartitionedOutputBuffer createPartitionedBuffer(OutputBuffers buffers, DataSize dataSize)
+    {
+        return createPartitionedBuffer(buffers, dataSize, Optional.empty());
+    }
+
+    private PartitionedOutputBuffer createPartitionedBuffer(OutputBuffers buffers, DataSize dataSize, Optional<Supplier<PageSpool>> pageSpoolSupplier)
     {
         return new PartitionedOutputBuffer(
                 TASK_INSTANCE_ID,
@@ -843,7 +917,8 @@ public class TestPartitionedOutputBuffer
                 buffers,
                 dataSize,
                 () -> new SimpleLocalMemoryContext(newSimpleAggregatedMemoryContext(), "test"),
-                stateNotificationExecutor);
+                stateNotificationExecutor,
+                pageSpoolSupplier);
     }
 
     private static BufferResult bufferResult(long token, Page firstPage, Page... otherPages)
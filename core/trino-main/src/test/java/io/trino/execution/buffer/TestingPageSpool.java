@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.execution.buffer;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+@ThreadSafe
+public class TestingPageSpool
+        implements PageSpool
+{
+    @GuardedBy("this")
+    private final ArrayDeque<SerializedPage> pages = new ArrayDeque<>();
+    @GuardedBy("this")
+    private long spooledPages;
+    @GuardedBy("this")
+    private boolean closed;
+
+    @Override
+    public synchronized void write(List<SerializedPage> pages)
+    {
+        if (closed) {
+            return;
+        }
+        this.pages.addAll(pages);
+        spooledPages += pages.size();
+    }
+
+    @Override
+    public synchronized List<SerializedPage> read(long maxSizeInBytes)
+    {
+        ImmutableList.Builder<SerializedPage> result = ImmutableList.builder();
+        long bytes = 0;
+        while (!pages.isEmpty() && (bytes == 0 || bytes + pages.peek().getSizeInBytes() <= maxSizeInBytes)) {
+            SerializedPage page = pages.poll();
+            bytes += page.getSizeInBytes();
+            result.add(page);
+        }
+        return result.build();
+    }
+
+    @Override
+    public synchronized boolean isEmpty()
+    {
+        return pages.isEmpty();
+    }
+
+    public synchronized long getSpooledPages()
+    {
+        return spooledPages;
+    }
+
+    public synchronized boolean isClosed()
+    {
+        return closed;
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        closed = true;
+        pages.clear();
+    }
+}
@@ -13,10 +13,6 @@
  */
 package io.trino.execution.buffer;
 
-import io.airlift.compress.Compressor;
-import io.airlift.compress.Decompressor;
-import io.airlift.compress.lz4.Lz4Compressor;
-import io.airlift.compress.lz4.Lz4Decompressor;
 import io.trino.spi.Page;
 import io.trino.spi.block.BlockEncodingSerde;
 import io.trino.spiller.SpillCipher;
@@ -38,17 +34,16 @@ public class TestingPagesSerdeFactory
     {
         return new SynchronizedPagesSerde(
                 createTestMetadataManager().getBlockEncodingSerde(),
-                Optional.of(new Lz4Compressor()),
-                Optional.of(new Lz4Decompressor()),
+                Optional.of(CompressionCodecSelector.fixed(CompressionCodec.LZ4)),
                 Optional.empty());
     }
 
     private static class SynchronizedPagesSerde
             extends PagesSerde
     {
-        public SynchronizedPagesSerde(BlockEncodingSerde blockEncodingSerde, Optional<Compressor> compressor, Optional<Decompressor> decompressor, Optional<SpillCipher> spillCipher)
+        public SynchronizedPagesSerde(BlockEncodingSerde blockEncodingSerde, Optional<CompressionCodecSelector> codecSelector, Optional<SpillCipher> spillCipher)
         {
-            super(blockEncodingSerde, compressor, decompressor, spillCipher);
+            super(blockEncodingSerde, codecSelector, spillCipher);
         }
 
         @Override
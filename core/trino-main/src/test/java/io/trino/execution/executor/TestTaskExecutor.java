@@ -17,6 +17,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.stats.CounterStat;
+import io.airlift.stats.TimeStat;
 import io.airlift.testing.TestingTicker;
 import io.airlift.units.Duration;
 import io.trino.execution.SplitRunner;
@@ -364,6 +366,65 @@ public class TestTaskExecutor
         }
     }
 
+    @Test
+    public void testWorkStealing()
+            throws Exception
+    {
+        MultilevelSplitQueue splitQueue = new MultilevelSplitQueue(2, 2);
+        TestingTicker ticker = new TestingTicker();
+        TaskHandle handle = new TaskHandle(new TaskId("test", 0, 0), splitQueue, () -> 1, 1, new Duration(1, SECONDS), OptionalInt.empty());
+        PrioritizedSplitRunner split0 = createSplitRunner(handle, ticker);
+        PrioritizedSplitRunner split1 = createSplitRunner(handle, ticker);
+
+        // new splits are spread over the runner queues
+        splitQueue.offer(split0);
+        splitQueue.offer(split1);
+        assertEquals(splitQueue.size(), 2);
+
+        assertEquals(splitQueue.take(0), split0);
+        assertEquals(splitQueue.getStolenSplits().getTotalCount(), 0);
+        assertEquals(splitQueue.take(0), split1);
+        assertEquals(splitQueue.getStolenSplits().getTotalCount(), 1);
+        assertEquals(splitQueue.size(), 0);
+
+        // the stolen split returns to the queue of the thread that ran it
+        splitQueue.offer(split1);
+        assertEquals(splitQueue.take(0), split1);
+        assertEquals(splitQueue.getStolenSplits().getTotalCount(), 1);
+    }
+
+    @Test(timeOut = 30_000)
+    public void testTasksCompleteWithWorkStealing()
+            throws Exception
+    {
+        TestingTicker ticker = new TestingTicker();
+        TaskExecutor taskExecutor = new TaskExecutor(4, 8, 3, 4, new MultilevelSplitQueue(2, 4), ticker);
+        taskExecutor.start();
+
+        try {
+            TaskHandle taskHandle = taskExecutor.addTask(new TaskId("test", 0, 0), () -> 0, 10, new Duration(1, MILLISECONDS), OptionalInt.empty());
+
+            // all runner threads have to process a split at the same time for the jobs to advance
+            Phaser globalPhaser = new Phaser(5);
+            ImmutableList.Builder<TestingJob> jobs = ImmutableList.builder();
+            for (int i = 0; i < 4; i++) {
+                jobs.add(new TestingJob(ticker, globalPhaser, new Phaser(), new Phaser(), 10, 0));
+            }
+            List<ListenableFuture<?>> futures = taskExecutor.enqueueSplits(taskHandle, true, jobs.build());
+
+            for (int i = 0; i < 10; i++) {
+                globalPhaser.arriveAndAwaitAdvance();
+            }
+            for (ListenableFuture<?> future : futures) {
+                future.get(10, SECONDS);
+            }
+            assertEquals(taskExecutor.getWaitingSplits(), 0);
+        }
+        finally {
+            taskExecutor.stop();
+        }
+    }
+
     @Test(timeOut = 30_000)
     public void testMinMaxDriversPerTask()
     {
@@ -443,6 +504,18 @@ public class TestTaskExecutor
         }
     }
 
+    private static PrioritizedSplitRunner createSplitRunner(TaskHandle handle, TestingTicker ticker)
+    {
+        return new PrioritizedSplitRunner(
+                handle,
+                new TestingJob(ticker, new Phaser(), new Phaser(), new Phaser(), 1, 0),
+                ticker,
+                new CounterStat(),
+                new CounterStat(),
+                new TimeStat(),
+                new TimeStat());
+    }
+
     private void assertSplitStates(int endIndex, TestingJob[] splits)
     {
         // assert that splits up to and including endIndex are all started
@@ -138,6 +138,27 @@ public class BenchmarkGroupByHash
         return pageBuilder.build();
     }
 
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public Object fixedWidthGroupByHash(FixedWidthBenchmarkData data)
+    {
+        GroupByHash groupByHash = new FixedWidthGroupByHash(data.getTypes(), data.getChannels(), data.getHashChannel(), EXPECTED_SIZE, NOOP);
+        data.getPages().forEach(p -> groupByHash.getGroupIds(p).process());
+
+        ImmutableList.Builder<Page> pages = ImmutableList.builder();
+        PageBuilder pageBuilder = new PageBuilder(groupByHash.getTypes());
+        for (int groupId = 0; groupId < groupByHash.getGroupCount(); groupId++) {
+            pageBuilder.declarePosition();
+            groupByHash.appendValuesTo(groupId, pageBuilder, 0);
+            if (pageBuilder.isFull()) {
+                pages.add(pageBuilder.build());
+                pageBuilder.reset();
+            }
+        }
+        pages.add(pageBuilder.build());
+        return pageBuilder.build();
+    }
+
     @Benchmark
     @OperationsPerInvocation(POSITIONS)
     public long baseline(BaselinePagesData data)
@@ -384,6 +405,54 @@ public class BenchmarkGroupByHash
         }
     }
 
+    @SuppressWarnings("FieldMayBeFinal")
+    @State(Scope.Thread)
+    public static class FixedWidthBenchmarkData
+    {
+        @Param({"2", "3", "5", "10"})
+        private int channelCount = 3;
+
+        @Param({"true", "false"})
+        private boolean hashEnabled;
+
+        private List<Page> pages;
+        private Optional<Integer> hashChannel;
+        private List<Type> types;
+        private int[] channels;
+
+        @Setup
+        public void setup()
+        {
+            types = Collections.nCopies(channelCount, BIGINT);
+            pages = createBigintPages(POSITIONS, GROUP_COUNT, channelCount, hashEnabled);
+            hashChannel = hashEnabled ? Optional.of(channelCount) : Optional.empty();
+            channels = new int[channelCount];
+            for (int i = 0; i < channelCount; i++) {
+                channels[i] = i;
+            }
+        }
+
+        public List<Page> getPages()
+        {
+            return pages;
+        }
+
+        public Optional<Integer> getHashChannel()
+        {
+            return hashChannel;
+        }
+
+        public List<Type> getTypes()
+        {
+            return types;
+        }
+
+        public int[] getChannels()
+        {
+            return channels;
+        }
+    }
+
     private static JoinCompiler getJoinCompiler()
     {
         return new JoinCompiler(TYPE_OPERATORS);
@@ -402,6 +471,10 @@ public class BenchmarkGroupByHash
         singleChannelBenchmarkData.setup();
         new BenchmarkGroupByHash().bigintGroupByHash(singleChannelBenchmarkData);
 
+        FixedWidthBenchmarkData fixedWidthBenchmarkData = new FixedWidthBenchmarkData();
+        fixedWidthBenchmarkData.setup();
+        new BenchmarkGroupByHash().fixedWidthGroupByHash(fixedWidthBenchmarkData);
+
         Options options = new OptionsBuilder()
                 .verbosity(VerboseMode.NORMAL)
                 .include(".*" + BenchmarkGroupByHash.class.getSimpleName() + ".*")
@@ -271,7 +271,8 @@ public class BenchmarkHashAndStreamingAggregationOperators
                     spillerFactory,
                     JOIN_COMPILER,
                     BLOCK_TYPE_OPERATORS,
-                    false);
+                    false,
+                    Optional.empty());
         }
 
         private static void repeatToBigintBlock(long value, int count, BlockBuilder blockBuilder)
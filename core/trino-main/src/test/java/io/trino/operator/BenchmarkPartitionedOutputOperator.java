@@ -134,6 +134,8 @@ public class BenchmarkPartitionedOutputOperator
                     ImmutableList.of(Optional.empty()),
                     false,
                     OptionalInt.empty(),
+                    ImmutableList.of(),
+                    Optional.empty(),
                     buffer,
                     DataSize.of(1, GIGABYTE));
             return (PartitionedOutputOperator) operatorFactory
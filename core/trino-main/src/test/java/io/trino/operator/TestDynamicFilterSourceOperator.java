@@ -15,10 +15,12 @@ package io.trino.operator;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import io.airlift.units.DataSize;
 import io.trino.spi.Page;
 import io.trino.spi.block.Block;
 import io.trino.spi.block.BlockBuilder;
+import io.trino.spi.predicate.BloomFilter;
 import io.trino.spi.predicate.Domain;
 import io.trino.spi.predicate.TupleDomain;
 import io.trino.spi.predicate.ValueSet;
@@ -35,6 +37,8 @@ import org.testng.annotations.Test;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.stream.IntStream;
@@ -74,6 +78,8 @@ import static io.trino.type.ColorType.COLOR;
 import static java.lang.Float.floatToRawIntBits;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestDynamicFilterSourceOperator
@@ -568,4 +574,65 @@ public class TestDynamicFilterSourceOperator
                         new Page(createLongSequenceBlock(0, maxDistinctValues + 1))),
                 ImmutableList.of(TupleDomain.all()));
     }
+
+    @Test
+    public void testCollectBloomFilterWhenTooManyDistinctValues()
+    {
+        ImmutableList.Builder<Map<DynamicFilterId, BloomFilter>> bloomFilters = ImmutableList.builder();
+        OperatorFactory operatorFactory = new DynamicFilterSourceOperator.DynamicFilterSourceOperatorFactory(
+                0,
+                new PlanNodeId("PLAN_NODE_ID"),
+                this::consumePredicate,
+                ImmutableList.of(channel(0, BIGINT), channel(1, DOUBLE)),
+                10,
+                DataSize.of(10, KILOBYTE),
+                1_000_000,
+                blockTypeOperators,
+                Optional.of(bloomFilters::add),
+                DataSize.of(64, KILOBYTE));
+        verifyPassthrough(
+                createOperator(operatorFactory),
+                ImmutableList.of(BIGINT, DOUBLE),
+                new Page(createLongSequenceBlock(0, 5), createDoubleSequenceBlock(0, 5)),
+                new Page(createLongSequenceBlock(100, 200), createDoubleSequenceBlock(0, 100)));
+        operatorFactory.noMoreOperators();
+
+        assertEquals(partitions.build(), ImmutableList.of(TupleDomain.withColumnDomains(ImmutableMap.of(
+                new DynamicFilterId("0"),
+                Domain.create(ValueSet.ofRanges(range(BIGINT, 0L, true, 199L, true)), false)))));
+
+        // DOUBLE is not supported by Bloom filters
+        List<Map<DynamicFilterId, BloomFilter>> collected = bloomFilters.build();
+        assertEquals(collected.size(), 1);
+        assertEquals(collected.get(0).keySet(), ImmutableSet.of(new DynamicFilterId("0")));
+        BloomFilter bloomFilter = collected.get(0).get(new DynamicFilterId("0"));
+        // values collected before and after the predicate became too large
+        LongStream.range(0, 5).forEach(value -> assertTrue(bloomFilter.mightContain(value)));
+        LongStream.range(100, 200).forEach(value -> assertTrue(bloomFilter.mightContain(value)));
+        assertFalse(bloomFilter.mightContain(50L));
+    }
+
+    @Test
+    public void testNoBloomFilterBelowDistinctValuesLimit()
+    {
+        ImmutableList.Builder<Map<DynamicFilterId, BloomFilter>> bloomFilters = ImmutableList.builder();
+        OperatorFactory operatorFactory = new DynamicFilterSourceOperator.DynamicFilterSourceOperatorFactory(
+                0,
+                new PlanNodeId("PLAN_NODE_ID"),
+                this::consumePredicate,
+                ImmutableList.of(channel(0, BIGINT)),
+                10,
+                DataSize.of(10, KILOBYTE),
+                1_000_000,
+                blockTypeOperators,
+                Optional.of(bloomFilters::add),
+                DataSize.of(64, KILOBYTE));
+        verifyPassthrough(createOperator(operatorFactory), ImmutableList.of(BIGINT), new Page(createLongsBlock(1, 2, 3)));
+        operatorFactory.noMoreOperators();
+
+        assertEquals(partitions.build(), ImmutableList.of(TupleDomain.withColumnDomains(ImmutableMap.of(
+                new DynamicFilterId("0"),
+                Domain.create(ValueSet.of(BIGINT, 1L, 2L, 3L), false)))));
+        assertEquals(bloomFilters.build(), ImmutableList.of(ImmutableMap.of()));
+    }
 }
@@ -38,17 +38,22 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
 import static com.google.common.math.DoubleMath.log2;
+import static io.trino.block.BlockAssertions.createDateSequenceBlock;
+import static io.trino.block.BlockAssertions.createIntsBlock;
 import static io.trino.block.BlockAssertions.createLongSequenceBlock;
 import static io.trino.block.BlockAssertions.createLongsBlock;
 import static io.trino.block.BlockAssertions.createStringSequenceBlock;
 import static io.trino.operator.GroupByHash.createGroupByHash;
 import static io.trino.spi.block.DictionaryId.randomDictionaryId;
 import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.DateType.DATE;
 import static io.trino.spi.type.DoubleType.DOUBLE;
 import static io.trino.spi.type.VarcharType.VARCHAR;
 import static io.trino.type.TypeTestUtils.getHashBlock;
+import static java.lang.Math.toIntExact;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 public class TestGroupByHash
@@ -63,7 +68,7 @@ public class TestGroupByHash
     @DataProvider
     public Object[][] dataType()
     {
-        return new Object[][] {{VARCHAR}, {BIGINT}};
+        return new Object[][] {{VARCHAR}, {BIGINT}, {DATE}};
     }
 
     @Test
@@ -234,6 +239,56 @@ public class TestGroupByHash
         assertTrue(groupByHash.contains(0, new Page(testValuesBlock, testStringValuesBlock, testHashBlock), hashChannels));
     }
 
+    @Test
+    public void testFixedWidthMultipleColumns()
+    {
+        List<Type> types = ImmutableList.of(BIGINT, BIGINT, DATE);
+        int[] hashChannels = {0, 1, 2};
+        Block firstBlock = createLongsBlock(1L, 1L, null, 1L, 2L, null, 1L);
+        Block secondBlock = createLongsBlock(10L, 10L, 10L, 20L, 10L, 20L, null);
+        Block dateBlock = createIntsBlock(100, 100, 100, 100, 100, 100, 100);
+        Block hashBlock = getHashBlock(types, firstBlock, secondBlock, dateBlock);
+        Page page = new Page(firstBlock, secondBlock, dateBlock, hashBlock);
+
+        for (Optional<Integer> inputHashChannel : ImmutableList.of(Optional.<Integer>empty(), Optional.of(3))) {
+            GroupByHash groupByHash = createGroupByHash(TEST_SESSION, types, hashChannels, inputHashChannel, 1, JOIN_COMPILER, TYPE_OPERATOR_FACTORY);
+            assertTrue(groupByHash instanceof FixedWidthGroupByHash);
+
+            Work<GroupByIdBlock> work = groupByHash.getGroupIds(page);
+            work.process();
+            GroupByIdBlock groupIds = work.getResult();
+            assertEquals(groupByHash.getGroupCount(), 6);
+            assertEquals(groupIds.getGroupCount(), 6);
+            assertEquals(groupIds.getGroupId(0), groupIds.getGroupId(1));
+            assertEquals(IntStream.range(1, 7).mapToLong(groupIds::getGroupId).distinct().count(), 6);
+
+            // raw hashes are consistent with hashes precomputed by the planner
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                assertEquals(groupByHash.getRawHash(toIntExact(groupIds.getGroupId(position))), BIGINT.getLong(hashBlock, position));
+                assertTrue(groupByHash.contains(position, page, hashChannels));
+                assertTrue(groupByHash.contains(position, page, hashChannels, BIGINT.getLong(hashBlock, position)));
+            }
+
+            Block testFirstBlock = createLongsBlock(2L);
+            Block testSecondBlock = createLongsBlock((Long) null);
+            Block testDateBlock = createIntsBlock(100);
+            assertFalse(groupByHash.contains(0, new Page(testFirstBlock, testSecondBlock, testDateBlock), hashChannels));
+
+            PageBuilder pageBuilder = new PageBuilder(groupByHash.getTypes());
+            for (int groupId = 0; groupId < groupByHash.getGroupCount(); groupId++) {
+                pageBuilder.declarePosition();
+                groupByHash.appendValuesTo(groupId, pageBuilder, 0);
+            }
+            Page outputPage = pageBuilder.build();
+            assertEquals(outputPage.getChannelCount(), inputHashChannel.isPresent() ? 4 : 3);
+            int nullGroupId = toIntExact(groupIds.getGroupId(2));
+            assertTrue(outputPage.getBlock(0).isNull(nullGroupId));
+            assertEquals(BIGINT.getLong(outputPage.getBlock(1), nullGroupId), 10L);
+            assertEquals(DATE.getLong(outputPage.getBlock(2), nullGroupId), 100L);
+            assertNull(BIGINT.getObjectValue(TEST_SESSION.toConnectorSession(), outputPage.getBlock(1), toIntExact(groupIds.getGroupId(6))));
+        }
+    }
+
     @Test
     public void testForceRehash()
     {
@@ -263,6 +318,9 @@ public class TestGroupByHash
         else if (type == BIGINT) {
             valuesBlock = createLongSequenceBlock(0, length);
         }
+        else if (type == DATE) {
+            valuesBlock = createDateSequenceBlock(0, length);
+        }
         else {
             throw new IllegalArgumentException("unsupported data type");
         }
@@ -300,6 +358,9 @@ public class TestGroupByHash
         else if (type == BIGINT) {
             valuesBlock = createLongSequenceBlock(0, length);
         }
+        else if (type == DATE) {
+            valuesBlock = createDateSequenceBlock(0, length);
+        }
         else {
             throw new IllegalArgumentException("unsupported data type");
         }
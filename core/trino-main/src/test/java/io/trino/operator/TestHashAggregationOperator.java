@@ -27,6 +27,8 @@ import io.trino.operator.HashAggregationOperator.HashAggregationOperatorFactory;
 import io.trino.operator.aggregation.InternalAggregationFunction;
 import io.trino.operator.aggregation.builder.HashAggregationBuilder;
 import io.trino.operator.aggregation.builder.InMemoryHashAggregationBuilder;
+import io.trino.operator.aggregation.partial.PartialAggregationController;
+import io.trino.operator.aggregation.partial.PartialAggregationInfo;
 import io.trino.spi.Page;
 import io.trino.spi.block.BlockBuilder;
 import io.trino.spi.block.PageBuilderStatus;
@@ -67,6 +69,7 @@ import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static io.airlift.units.DataSize.succinctBytes;
 import static io.trino.RowPagesBuilder.rowPagesBuilder;
 import static io.trino.SessionTestUtils.TEST_SESSION;
+import static io.trino.block.BlockAssertions.createLongsBlock;
 import static io.trino.metadata.MetadataManager.createTestMetadataManager;
 import static io.trino.operator.GroupByHashYieldAssertion.GroupByHashYieldResult;
 import static io.trino.operator.GroupByHashYieldAssertion.createPagesWithDistinctHashKeys;
@@ -202,7 +205,8 @@ public class TestHashAggregationOperator
                 spillerFactory,
                 joinCompiler,
                 blockTypeOperators,
-                false);
+                false,
+                Optional.empty());
 
         DriverContext driverContext = createDriverContext(memoryLimitForMerge);
 
@@ -260,7 +264,8 @@ public class TestHashAggregationOperator
                 spillerFactory,
                 joinCompiler,
                 blockTypeOperators,
-                false);
+                false,
+                Optional.empty());
 
         DriverContext driverContext = createDriverContext(memoryLimitForMerge);
         MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, BIGINT, BIGINT, BIGINT, DOUBLE, VARCHAR, BIGINT, BIGINT)
@@ -309,7 +314,8 @@ public class TestHashAggregationOperator
                 spillerFactory,
                 joinCompiler,
                 blockTypeOperators,
-                false);
+                false,
+                Optional.empty());
 
         Operator operator = operatorFactory.createOperator(driverContext);
         toPages(operator, input.iterator(), revokeMemoryWhenAddingPages);
@@ -393,7 +399,8 @@ public class TestHashAggregationOperator
                 spillerFactory,
                 joinCompiler,
                 blockTypeOperators,
-                false);
+                false,
+                Optional.empty());
 
         toPages(operatorFactory, driverContext, input, revokeMemoryWhenAddingPages);
     }
@@ -623,7 +630,8 @@ public class TestHashAggregationOperator
                 spillerFactory,
                 joinCompiler,
                 blockTypeOperators,
-                false);
+                false,
+                Optional.empty());
 
         DriverContext driverContext = createDriverContext(smallPagesSpillThresholdSize);
 
@@ -680,7 +688,8 @@ public class TestHashAggregationOperator
                 new FailingSpillerFactory(),
                 joinCompiler,
                 blockTypeOperators,
-                false);
+                false,
+                Optional.empty());
 
         try {
             toPages(operatorFactory, driverContext, input);
@@ -746,6 +755,67 @@ public class TestHashAggregationOperator
         assertEquals(driverContext.getMemoryUsage(), 0);
     }
 
+    @Test
+    public void testAdaptivePartialAggregation()
+            throws Exception
+    {
+        List<Integer> hashChannels = Ints.asList(0);
+
+        PartialAggregationController partialAggregationController = new PartialAggregationController(5, 0.8);
+        HashAggregationOperatorFactory operatorFactory = new HashAggregationOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT),
+                hashChannels,
+                ImmutableList.of(),
+                Step.PARTIAL,
+                false,
+                ImmutableList.of(LONG_MIN.bind(ImmutableList.of(0), Optional.empty())),
+                Optional.empty(),
+                Optional.empty(),
+                100,
+                Optional.of(DataSize.ofBytes(1)), // this setting makes the operator flush after each page
+                false,
+                DataSize.ofBytes(0),
+                spillerFactory,
+                joinCompiler,
+                blockTypeOperators,
+                true,
+                Optional.of(partialAggregationController));
+
+        // all keys are unique, so partial aggregation does not reduce the number of rows
+        List<Page> operator1Input = rowPagesBuilder(false, hashChannels, BIGINT)
+                .addBlocksPage(createLongsBlock(0, 1, 2, 3, 4, 5, 6, 7, 8))
+                .build();
+        MaterializedResult operator1Expected = resultBuilder(TEST_SESSION, BIGINT, BIGINT)
+                .row(0L, 0L).row(1L, 1L).row(2L, 2L).row(3L, 3L).row(4L, 4L).row(5L, 5L).row(6L, 6L).row(7L, 7L).row(8L, 8L)
+                .build();
+        DriverContext driverContext = createDriverContext();
+        try (Operator operator = operatorFactory.createOperator(driverContext)) {
+            assertPagesEqualIgnoreOrder(driverContext, toPages(operator, operator1Input.iterator()), operator1Expected, false, Optional.empty());
+        }
+        assertTrue(partialAggregationController.isPartialAggregationDisabled());
+
+        // partial aggregation is disabled, so rows are passed through even though keys repeat
+        List<Page> operator2Input = rowPagesBuilder(false, hashChannels, BIGINT)
+                .addBlocksPage(createLongsBlock(0, 0, 0, 1))
+                .build();
+        MaterializedResult operator2Expected = resultBuilder(TEST_SESSION, BIGINT, BIGINT)
+                .row(0L, 0L).row(0L, 0L).row(0L, 0L).row(1L, 1L)
+                .build();
+        driverContext = createDriverContext();
+        try (Operator operator = operatorFactory.createOperator(driverContext)) {
+            assertPagesEqualIgnoreOrder(driverContext, toPages(operator, operator2Input.iterator()), operator2Expected, false, Optional.empty());
+
+            OperatorInfo info = operator.getOperatorContext().getOperatorStats().getInfo();
+            assertThat(info).isInstanceOf(PartialAggregationInfo.class);
+            PartialAggregationInfo partialAggregationInfo = (PartialAggregationInfo) info;
+            assertTrue(partialAggregationInfo.isPartialAggregationDisabled());
+            assertEquals(partialAggregationInfo.getAggregatedInputRows(), 0);
+            assertEquals(partialAggregationInfo.getPassThroughRows(), 4);
+        }
+    }
+
     private DriverContext createDriverContext()
     {
         return createDriverContext(Integer.MAX_VALUE);
@@ -80,6 +80,7 @@ import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static io.airlift.concurrent.MoreFutures.getFutureValue;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.testing.Assertions.assertEqualsIgnoreOrder;
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
 import static io.trino.RowPagesBuilder.rowPagesBuilder;
 import static io.trino.SessionTestUtils.TEST_SESSION;
 import static io.trino.operator.OperatorAssertion.assertOperatorEquals;
@@ -327,6 +328,12 @@ public class TestHashJoinOperator
         SPILL_BUILD, SPILL_JOIN, UNSPILL_BUILD, UNSPILL_JOIN
     }
 
+    @DataProvider
+    public Object[][] hashEnabledValues()
+    {
+        return new Object[][] {{true}, {false}};
+    }
+
     @DataProvider
     public Object[][] joinWithSpillValues()
     {
@@ -415,6 +422,102 @@ public class TestHashJoinOperator
         }
     }
 
+    @Test(dataProvider = "hashEnabledValues")
+    public void testInnerJoinWithSpillRepartitioning(boolean probeHashEnabled)
+            throws Exception
+    {
+        TaskStateMachine taskStateMachine = new TaskStateMachine(new TaskId("query", 0, 0), executor);
+        // spilled partitions do not fit in query memory limit and have to be repartitioned before they can be unspilled
+        TaskContext taskContext = TestingTaskContext.builder(executor, scheduledExecutor, TEST_SESSION)
+                .setTaskStateMachine(taskStateMachine)
+                .setQueryMaxMemory(DataSize.of(64, KILOBYTE))
+                .build();
+
+        DriverContext joinDriverContext = taskContext.addPipelineContext(2, true, true, false).addDriverContext();
+
+        // build factory
+        int buildRows = 20_000;
+        RowPagesBuilder buildPages = rowPagesBuilder(ImmutableList.of(VARCHAR, BIGINT));
+        for (int i = 0; i < buildRows; i += 1000) {
+            buildPages.addSequencePage(1000, i, i);
+        }
+
+        BuildSideSetup buildSideSetup = setupBuildSide(true, taskContext, Ints.asList(0), buildPages, Optional.empty(), true, SINGLE_STREAM_SPILLER_FACTORY);
+        JoinBridgeManager<PartitionedLookupSourceFactory> lookupSourceFactoryManager = buildSideSetup.getLookupSourceFactoryManager();
+
+        // probe factory
+        RowPagesBuilder probePages = rowPagesBuilder(probeHashEnabled, Ints.asList(0), ImmutableList.of(VARCHAR, BIGINT))
+                .addSequencePage(1000, 0, 123_000)
+                .addSequencePage(1000, 19_500, 123_000);
+        OperatorFactory joinOperatorFactory = innerJoinOperatorFactory(lookupSourceFactoryManager, probePages, PARTITIONING_SPILLER_FACTORY);
+
+        // build drivers and operators
+        instantiateBuildDrivers(buildSideSetup, taskContext);
+        List<Driver> buildDrivers = buildSideSetup.getBuildDrivers();
+        LookupSourceFactory lookupSourceFactory = lookupSourceFactoryManager.getJoinBridge(Lifespan.taskWide());
+
+        try (Operator joinOperator = joinOperatorFactory.createOperator(joinDriverContext)) {
+            // build lookup source, spilling all build partitions
+            ListenableFuture<LookupSourceProvider> lookupSourceProvider = lookupSourceFactory.createLookupSourceProvider();
+            while (!lookupSourceProvider.isDone()) {
+                for (int i = 0; i < buildDrivers.size(); i++) {
+                    checkErrors(taskStateMachine);
+                    buildDrivers.get(i).process();
+                    HashBuilderOperator buildOperator = buildSideSetup.getBuildOperators().get(i);
+                    if (buildOperator.getState() == HashBuilderOperator.State.CONSUMING_INPUT && buildOperator.getOperatorContext().getReservedRevocableBytes() > 0) {
+                        revokeMemory(buildOperator);
+                    }
+                }
+            }
+            getFutureValue(lookupSourceProvider).close();
+
+            for (Driver buildDriver : buildDrivers) {
+                runDriverInThread(executor, buildDriver);
+            }
+
+            ValuesOperatorFactory valuesOperatorFactory = new ValuesOperatorFactory(17, new PlanNodeId("values"), probePages.build());
+
+            PageBuffer pageBuffer = new PageBuffer(10);
+            PageBufferOperatorFactory pageBufferOperatorFactory = new PageBufferOperatorFactory(18, new PlanNodeId("pageBuffer"), pageBuffer);
+
+            Driver joinDriver = Driver.createDriver(joinDriverContext,
+                    valuesOperatorFactory.createOperator(joinDriverContext),
+                    joinOperator,
+                    pageBufferOperatorFactory.createOperator(joinDriverContext));
+
+            List<Page> actualPages = new ArrayList<>();
+            while (!joinDriver.isFinished()) {
+                processRow(joinDriver, taskStateMachine);
+                actualPages.addAll(getPages(pageBuffer));
+            }
+            checkErrors(taskStateMachine);
+            actualPages.addAll(getPages(pageBuffer));
+
+            MaterializedResult.Builder expected = MaterializedResult.resultBuilder(taskContext.getSession(), concat(probePages.getTypesWithoutHash(), buildPages.getTypesWithoutHash()));
+            for (int i = 0; i < 1000; i++) {
+                expected.row(String.valueOf(i), 123_000L + i, String.valueOf(i), (long) i);
+            }
+            for (int i = 0; i < 500; i++) {
+                expected.row(String.valueOf(19_500 + i), 123_000L + i, String.valueOf(19_500 + i), 19_500L + i);
+            }
+            assertEqualsIgnoreOrder(
+                    getProperColumns(joinOperator, concat(probePages.getTypes(), buildPages.getTypes()), probePages, actualPages).getMaterializedRows(),
+                    expected.build().getMaterializedRows());
+
+            JoinOperatorInfo joinOperatorInfo = (JoinOperatorInfo) joinOperator.getOperatorContext().getOperatorStats().getInfo();
+            long[] spilledPartitionsPerLevel = joinOperatorInfo.getSpilledPartitionsPerLevel();
+            long[] spilledBuildPositionsPerLevel = joinOperatorInfo.getSpilledBuildPositionsPerLevel();
+            // no partition is joined before it is repartitioned
+            assertEquals(spilledPartitionsPerLevel[0], 0);
+            assertEquals(spilledPartitionsPerLevel[1], PARTITION_COUNT * HashBuilderOperator.SPILL_REPARTITION_FANOUT);
+            assertEquals(Arrays.stream(spilledBuildPositionsPerLevel).sum(), buildRows);
+            assertEquals(Arrays.stream(joinOperatorInfo.getSpilledProbePositionsPerLevel()).sum(), 2000);
+        }
+        finally {
+            joinOperatorFactory.noMoreOperators();
+        }
+    }
+
     private void innerJoinWithSpill(boolean probeHashEnabled, List<WhenSpill> whenSpill, SingleStreamSpillerFactory buildSpillerFactory, PartitioningSpillerFactory joinSpillerFactory)
             throws Exception
     {
@@ -30,17 +30,26 @@ public class TestJoinOperatorInfo
                 JoinType.INNER,
                 makeHistogramArray(10, 20, 30, 40, 50, 60, 70, 80),
                 makeHistogramArray(12, 22, 32, 42, 52, 62, 72, 82),
-                Optional.of(1L));
+                Optional.of(1L),
+                makeSpillLevelsArray(1, 8, 0, 0),
+                makeSpillLevelsArray(100, 50, 0, 0),
+                makeSpillLevelsArray(1000, 500, 0, 0));
         JoinOperatorInfo other = new JoinOperatorInfo(
                 JoinType.INNER,
                 makeHistogramArray(11, 21, 31, 41, 51, 61, 71, 81),
                 makeHistogramArray(15, 25, 35, 45, 55, 65, 75, 85),
-                Optional.of(2L));
+                Optional.of(2L),
+                makeSpillLevelsArray(2, 8, 8, 0),
+                makeSpillLevelsArray(200, 50, 20, 0),
+                makeSpillLevelsArray(2000, 500, 200, 0));
 
         JoinOperatorInfo merged = base.mergeWith(other);
         assertEquals(makeHistogramArray(21, 41, 61, 81, 101, 121, 141, 161), merged.getLogHistogramProbes());
         assertEquals(makeHistogramArray(27, 47, 67, 87, 107, 127, 147, 167), merged.getLogHistogramOutput());
         assertEquals(merged.getLookupSourcePositions(), Optional.of(3L));
+        assertEquals(merged.getSpilledPartitionsPerLevel(), makeSpillLevelsArray(3, 16, 8, 0));
+        assertEquals(merged.getSpilledBuildPositionsPerLevel(), makeSpillLevelsArray(300, 100, 20, 0));
+        assertEquals(merged.getSpilledProbePositionsPerLevel(), makeSpillLevelsArray(3000, 1000, 200, 0));
     }
 
     private long[] makeHistogramArray(long... longArray)
@@ -48,4 +57,10 @@ public class TestJoinOperatorInfo
         checkArgument(longArray.length == 8);
         return longArray;
     }
+
+    private long[] makeSpillLevelsArray(long... longArray)
+    {
+        checkArgument(longArray.length == JoinStatisticsCounter.SPILL_LEVELS);
+        return longArray;
+    }
 }
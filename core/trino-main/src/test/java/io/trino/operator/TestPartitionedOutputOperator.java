@@ -14,16 +14,20 @@
 package io.trino.operator;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Longs;
 import io.airlift.units.DataSize;
 import io.trino.execution.StateMachine;
 import io.trino.execution.buffer.OutputBuffers;
 import io.trino.execution.buffer.PagesSerdeFactory;
 import io.trino.execution.buffer.PartitionedOutputBuffer;
 import io.trino.memory.context.SimpleLocalMemoryContext;
+import io.trino.operator.PartitionedOutputOperator.HeavyHitter;
+import io.trino.operator.PartitionedOutputOperator.PartitionedOutputInfo;
 import io.trino.operator.exchange.LocalPartitionGenerator;
 import io.trino.spi.Page;
 import io.trino.spi.block.Block;
 import io.trino.spi.block.RunLengthEncodedBlock;
+import io.trino.spi.predicate.NullableValue;
 import io.trino.spi.type.Type;
 import io.trino.spi.type.TypeOperators;
 import io.trino.sql.planner.plan.PlanNodeId;
@@ -34,6 +38,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.util.List;
+import java.util.LongSummaryStatistics;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Random;
@@ -46,6 +51,7 @@ import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static io.trino.SessionTestUtils.TEST_SESSION;
 import static io.trino.block.BlockAssertions.createLongDictionaryBlock;
 import static io.trino.block.BlockAssertions.createLongSequenceBlock;
+import static io.trino.block.BlockAssertions.createLongsBlock;
 import static io.trino.block.BlockAssertions.createRLEBlock;
 import static io.trino.execution.buffer.BufferState.OPEN;
 import static io.trino.execution.buffer.BufferState.TERMINAL_BUFFER_STATES;
@@ -55,6 +61,7 @@ import static io.trino.metadata.MetadataManager.createTestMetadataManager;
 import static io.trino.spi.type.BigintType.BIGINT;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.testng.Assert.assertEquals;
 
 public class TestPartitionedOutputOperator
@@ -179,7 +186,104 @@ public class TestPartitionedOutputOperator
         assertEquals(operatorContext.getOutputPositions().getTotalCount(), PAGE_COUNT * PARTITION_COUNT * TESTING_PAGE_WITH_NULL_BLOCK.getPositionCount());
     }
 
+    @Test
+    public void testOutputForPageWithSpreadNulls()
+    {
+        PartitionedOutputBuffer buffer = createPartitionedOutputBuffer();
+        PartitionedOutputOperator partitionedOutputOperator = createPartitionedOutputOperator(
+                buffer,
+                REPLICATION_TYPES,
+                ImmutableList.of(Optional.empty()),
+                OptionalInt.empty(),
+                ImmutableList.of(0),
+                Optional.empty());
+        for (int i = 0; i < PAGE_COUNT; i++) {
+            partitionedOutputOperator.addInput(TESTING_PAGE_WITH_NULL_BLOCK);
+        }
+        partitionedOutputOperator.finish();
+
+        OperatorContext operatorContext = partitionedOutputOperator.getOperatorContext();
+        assertEquals(operatorContext.getOutputPositions().getTotalCount(), PAGE_COUNT * POSITIONS_PER_PAGE);
+        assertEquals(partitionedOutputOperator.getInfo().getSpreadNullRows(), PAGE_COUNT * POSITIONS_PER_PAGE);
+
+        // rows with null partitioning values are distributed evenly instead of all going to the same partition
+        LongSummaryStatistics rowsPerPartition = buffer.getInfo().getBuffers().stream()
+                .mapToLong(bufferInfo -> bufferInfo.getPageBufferInfo().getRowsAdded())
+                .summaryStatistics();
+        assertEquals(rowsPerPartition.getSum(), PAGE_COUNT * POSITIONS_PER_PAGE);
+        assertThat(rowsPerPartition.getMax() - rowsPerPartition.getMin()).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    public void testHeavyHitterDetection()
+    {
+        HashGenerator hashGenerator = new InterpretedHashGenerator(ImmutableList.of(BIGINT), new int[] {0}, new BlockTypeOperators(new TypeOperators()));
+        PartitionedOutputOperator partitionedOutputOperator = createPartitionedOutputOperator(
+                createPartitionedOutputBuffer(),
+                TYPES,
+                ImmutableList.of(Optional.empty()),
+                OptionalInt.empty(),
+                ImmutableList.of(),
+                Optional.of(hashGenerator));
+
+        // every other row has the same key
+        long[] values = new long[POSITIONS_PER_PAGE];
+        for (int i = 0; i < PAGE_COUNT; i++) {
+            for (int position = 0; position < POSITIONS_PER_PAGE; position++) {
+                values[position] = position % 2 == 0 ? 42 : i * POSITIONS_PER_PAGE + position;
+            }
+            partitionedOutputOperator.addInput(new Page(createLongsBlock(Longs.asList(values))));
+        }
+        partitionedOutputOperator.finish();
+
+        List<HeavyHitter> heavyHitters = partitionedOutputOperator.getInfo().getHeavyHitters();
+        assertEquals(heavyHitters.size(), 1);
+        assertEquals(heavyHitters.get(0).getKeyHash(), hashGenerator.hashPosition(0, new Page(createLongsBlock(42))));
+        assertThat(heavyHitters.get(0).getEstimatedRows()).isBetween(4_000L, 6_000L);
+    }
+
+    @Test
+    public void testHeavyHittersMerge()
+    {
+        PartitionedOutputInfo first = new PartitionedOutputInfo(10, 1, 1024, 0, ImmutableList.of(new HeavyHitter(1, 100), new HeavyHitter(2, 50)), 1, 0, 100);
+        PartitionedOutputInfo second = new PartitionedOutputInfo(20, 2, 2048, 5, ImmutableList.of(new HeavyHitter(2, 70), new HeavyHitter(3, 10)), 1, 1, 300);
+
+        PartitionedOutputInfo merged = first.mergeWith(second);
+        assertEquals(merged.getRowsAdded(), 30);
+        assertEquals(merged.getSpreadNullRows(), 5);
+        assertEquals(merged.getHeavyHitters(), ImmutableList.of(new HeavyHitter(2, 120), new HeavyHitter(1, 100), new HeavyHitter(3, 10)));
+        assertEquals(merged.getLz4CompressedPages(), 2);
+        assertEquals(merged.getZstdCompressedPages(), 1);
+        assertEquals(merged.getCompressionSavedBytes(), 400);
+    }
+
     private PartitionedOutputOperator createPartitionedOutputOperator(boolean shouldReplicate)
+    {
+        if (shouldReplicate) {
+            return createPartitionedOutputOperator(
+                    createPartitionedOutputBuffer(),
+                    REPLICATION_TYPES,
+                    ImmutableList.of(Optional.empty()),
+                    OptionalInt.of(0),
+                    ImmutableList.of(),
+                    Optional.empty());
+        }
+        return createPartitionedOutputOperator(
+                createPartitionedOutputBuffer(),
+                TYPES,
+                ImmutableList.of(Optional.empty(), Optional.empty()),
+                OptionalInt.empty(),
+                ImmutableList.of(),
+                Optional.empty());
+    }
+
+    private PartitionedOutputOperator createPartitionedOutputOperator(
+            PartitionedOutputBuffer buffer,
+            List<Type> types,
+            List<Optional<NullableValue>> partitionConstants,
+            OptionalInt nullChannel,
+            List<Integer> spreadNullChannels,
+            Optional<HashGenerator> heavyHitterHashGenerator)
     {
         BlockTypeOperators blockTypeOperators = new BlockTypeOperators(new TypeOperators());
         PartitionFunction partitionFunction = new LocalPartitionGenerator(
@@ -193,44 +297,33 @@ public class TestPartitionedOutputOperator
                 .addPipelineContext(0, true, true, false)
                 .addDriverContext();
 
+        PartitionedOutputOperator.PartitionedOutputFactory operatorFactory = new PartitionedOutputOperator.PartitionedOutputFactory(
+                partitionFunction,
+                ImmutableList.of(0),
+                partitionConstants,
+                nullChannel.isPresent(),
+                nullChannel,
+                spreadNullChannels,
+                heavyHitterHashGenerator,
+                buffer,
+                PARTITION_MAX_MEMORY);
+        return (PartitionedOutputOperator) operatorFactory
+                .createOutputOperator(0, new PlanNodeId("plan-node-0"), types, Function.identity(), serdeFactory)
+                .createOperator(driverContext);
+    }
+
+    private PartitionedOutputBuffer createPartitionedOutputBuffer()
+    {
         OutputBuffers buffers = OutputBuffers.createInitialEmptyOutputBuffers(PARTITIONED);
         for (int partition = 0; partition < PARTITION_COUNT; partition++) {
             buffers = buffers.withBuffer(new OutputBuffers.OutputBufferId(partition), partition);
         }
-        PartitionedOutputBuffer buffer = new PartitionedOutputBuffer(
+        return new PartitionedOutputBuffer(
                 "task-instance-id",
                 new StateMachine<>("bufferState", scheduledExecutor, OPEN, TERMINAL_BUFFER_STATES),
                 buffers.withNoMoreBufferIds(),
                 DataSize.ofBytes(Long.MAX_VALUE),
                 () -> new SimpleLocalMemoryContext(newSimpleAggregatedMemoryContext(), "test"),
                 scheduledExecutor);
-
-        PartitionedOutputOperator.PartitionedOutputFactory operatorFactory;
-        if (shouldReplicate) {
-            operatorFactory = new PartitionedOutputOperator.PartitionedOutputFactory(
-                    partitionFunction,
-                    ImmutableList.of(0),
-                    ImmutableList.of(Optional.empty()),
-                    true,
-                    OptionalInt.of(0),
-                    buffer,
-                    PARTITION_MAX_MEMORY);
-            return (PartitionedOutputOperator) operatorFactory
-                    .createOutputOperator(0, new PlanNodeId("plan-node-0"), REPLICATION_TYPES, Function.identity(), serdeFactory)
-                    .createOperator(driverContext);
-        }
-        else {
-            operatorFactory = new PartitionedOutputOperator.PartitionedOutputFactory(
-                    partitionFunction,
-                    ImmutableList.of(0),
-                    ImmutableList.of(Optional.empty(), Optional.empty()),
-                    false,
-                    OptionalInt.empty(),
-                    buffer,
-                    PARTITION_MAX_MEMORY);
-            return (PartitionedOutputOperator) operatorFactory
-                    .createOutputOperator(0, new PlanNodeId("plan-node-0"), TYPES, Function.identity(), serdeFactory)
-                    .createOperator(driverContext);
-        }
     }
 }
@@ -13,28 +13,42 @@
  */
 package io.trino.operator;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
+import com.google.inject.Guice;
+import io.airlift.json.JsonCodecFactory;
+import io.airlift.json.JsonModule;
 import io.airlift.units.DataSize;
 import io.trino.SequencePageBuilder;
 import io.trino.block.BlockAssertions;
 import io.trino.connector.CatalogName;
+import io.trino.connector.system.SystemTableHandle;
 import io.trino.execution.Lifespan;
+import io.trino.metadata.HandleJsonModule;
 import io.trino.metadata.Metadata;
 import io.trino.metadata.Split;
 import io.trino.metadata.SqlScalarFunction;
+import io.trino.metadata.TableHandle;
 import io.trino.operator.index.PageRecordSet;
 import io.trino.operator.project.CursorProcessor;
 import io.trino.operator.project.PageProcessor;
 import io.trino.operator.project.TestPageProcessor.LazyPagePageProjection;
 import io.trino.operator.project.TestPageProcessor.SelectAllFilter;
 import io.trino.operator.scalar.AbstractTestFunctions;
+import io.trino.spi.HostAddress;
 import io.trino.spi.Page;
 import io.trino.spi.block.Block;
 import io.trino.spi.block.LazyBlock;
+import io.trino.spi.connector.ColumnHandle;
 import io.trino.spi.connector.ConnectorPageSource;
+import io.trino.spi.connector.ConnectorSplit;
+import io.trino.spi.connector.ConnectorTableHandle;
 import io.trino.spi.connector.DynamicFilter;
 import io.trino.spi.connector.FixedPageSource;
 import io.trino.spi.connector.RecordPageSource;
+import io.trino.spi.predicate.TupleDomain;
+import io.trino.split.SplitCache;
+import io.trino.split.SplitCacheConfig;
 import io.trino.sql.gen.ExpressionCompiler;
 import io.trino.sql.gen.PageFunctionCompiler;
 import io.trino.sql.planner.plan.PlanNodeId;
@@ -42,15 +56,22 @@ import io.trino.sql.relational.RowExpression;
 import io.trino.sql.tree.QualifiedName;
 import io.trino.testing.MaterializedResult;
 import io.trino.testing.TestingSplit;
+import io.trino.testing.TestingTransactionHandle;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
 import static io.trino.RowPagesBuilder.rowPagesBuilder;
@@ -116,7 +137,8 @@ public class TestScanFilterAndProjectOperator
                 DynamicFilter.EMPTY,
                 ImmutableList.of(VARCHAR),
                 DataSize.ofBytes(0),
-                0);
+                0,
+                Optional.empty());
 
         SourceOperator operator = factory.createOperator(driverContext);
         operator.addSplit(new Split(new CatalogName("test"), TestingSplit.createLocalSplit(), Lifespan.taskWide()));
@@ -129,6 +151,76 @@ public class TestScanFilterAndProjectOperator
         assertEquals(actual, expected);
     }
 
+    @Test
+    public void testSplitCache()
+            throws IOException
+    {
+        ObjectMapper objectMapper = Guice.createInjector(new JsonModule(), new HandleJsonModule()).getInstance(ObjectMapper.class);
+        JsonCodecFactory codecFactory = new JsonCodecFactory(() -> objectMapper);
+        Path directory = Files.createTempDirectory("split-cache");
+        try {
+            SplitCache splitCache = new SplitCache(
+                    new SplitCacheConfig()
+                            .setEnabled(true)
+                            .setDirectory(directory.toString()),
+                    metadata,
+                    codecFactory.jsonCodec(ConnectorTableHandle.class),
+                    codecFactory.jsonCodec(ColumnHandle.class));
+            TableHandle table = new TableHandle(
+                    new CatalogName("test"),
+                    new SystemTableHandle("schema", "table", TupleDomain.all()),
+                    TestingTransactionHandle.create(),
+                    Optional.empty());
+
+            List<Page> input = rowPagesBuilder(BIGINT)
+                    .addSequencePage(100, 0)
+                    .addSequencePage(100, 0)
+                    .build();
+            RowExpression filter = call(
+                    metadata.resolveOperator(EQUAL, ImmutableList.of(BIGINT, BIGINT)),
+                    field(0, BIGINT),
+                    constant(10L, BIGINT));
+            List<RowExpression> projections = ImmutableList.of(field(0, BIGINT));
+            AtomicInteger createdPageSources = new AtomicInteger();
+
+            ScanFilterAndProjectOperator.ScanFilterAndProjectOperatorFactory factory = new ScanFilterAndProjectOperator.ScanFilterAndProjectOperatorFactory(
+                    0,
+                    new PlanNodeId("test"),
+                    new PlanNodeId("0"),
+                    (session, split, tableHandle, columns, dynamicFilter) -> {
+                        createdPageSources.incrementAndGet();
+                        return new FixedPageSource(input);
+                    },
+                    expressionCompiler.compileCursorProcessor(Optional.of(filter), projections, "key"),
+                    expressionCompiler.compilePageProcessor(Optional.of(filter), projections),
+                    table,
+                    ImmutableList.of(),
+                    DynamicFilter.EMPTY,
+                    ImmutableList.of(BIGINT),
+                    DataSize.ofBytes(0),
+                    0,
+                    splitCache.createScanCache(TEST_SESSION, table, ImmutableList.of(), Optional.of(filter), projections, DynamicFilter.EMPTY));
+
+            for (int i = 0; i < 2; i++) {
+                SourceOperator operator = factory.createOperator(newDriverContext());
+                operator.addSplit(new Split(new CatalogName("test"), new CacheableSplit("file"), Lifespan.taskWide()));
+                operator.noMoreSplits();
+
+                List<Page> actual = toPages(operator);
+                assertEquals(actual.size(), 2);
+                for (Page page : actual) {
+                    assertEquals(toValues(BIGINT, page.getBlock(0)), ImmutableList.of(10L));
+                }
+            }
+            // the second scan reads the cached pages
+            assertEquals(createdPageSources.get(), 1);
+            assertEquals(splitCache.getIndexStats().getHitRate(), 0.5);
+        }
+        finally {
+            deleteRecursively(directory, ALLOW_INSECURE);
+        }
+    }
+
     @Test
     public void testPageSourceMergeOutput()
     {
@@ -159,7 +251,8 @@ public class TestScanFilterAndProjectOperator
                 DynamicFilter.EMPTY,
                 ImmutableList.of(BIGINT),
                 DataSize.of(64, KILOBYTE),
-                2);
+                2,
+                Optional.empty());
 
         SourceOperator operator = factory.createOperator(newDriverContext());
         operator.addSplit(new Split(new CatalogName("test"), TestingSplit.createLocalSplit(), Lifespan.taskWide()));
@@ -204,7 +297,8 @@ public class TestScanFilterAndProjectOperator
                 DynamicFilter.EMPTY,
                 ImmutableList.of(BIGINT),
                 DataSize.ofBytes(0),
-                0);
+                0,
+                Optional.empty());
 
         SourceOperator operator = factory.createOperator(driverContext);
         operator.addSplit(new Split(new CatalogName("test"), TestingSplit.createLocalSplit(), Lifespan.taskWide()));
@@ -239,7 +333,8 @@ public class TestScanFilterAndProjectOperator
                 DynamicFilter.EMPTY,
                 ImmutableList.of(VARCHAR),
                 DataSize.ofBytes(0),
-                0);
+                0,
+                Optional.empty());
 
         SourceOperator operator = factory.createOperator(driverContext);
         operator.addSplit(new Split(new CatalogName("test"), TestingSplit.createLocalSplit(), Lifespan.taskWide()));
@@ -292,7 +387,8 @@ public class TestScanFilterAndProjectOperator
                 DynamicFilter.EMPTY,
                 ImmutableList.of(BIGINT),
                 DataSize.ofBytes(0),
-                0);
+                0,
+                Optional.empty());
 
         SourceOperator operator = factory.createOperator(driverContext);
         operator.addSplit(new Split(new CatalogName("test"), TestingSplit.createLocalSplit(), Lifespan.taskWide()));
@@ -357,7 +453,8 @@ public class TestScanFilterAndProjectOperator
                 DynamicFilter.EMPTY,
                 ImmutableList.of(BIGINT),
                 DataSize.ofBytes(0),
-                0);
+                0,
+                Optional.empty());
 
         SourceOperator operator = factory.createOperator(driverContext);
         operator.addSplit(new Split(new CatalogName("test"), TestingSplit.createLocalSplit(), Lifespan.taskWide()));
@@ -378,6 +475,41 @@ public class TestScanFilterAndProjectOperator
         assertEquals(toValues(BIGINT, output.getBlock(0)), toValues(BIGINT, input.getBlock(0)));
     }
 
+    private static class CacheableSplit
+            implements ConnectorSplit
+    {
+        private final String cacheIdentifier;
+
+        public CacheableSplit(String cacheIdentifier)
+        {
+            this.cacheIdentifier = cacheIdentifier;
+        }
+
+        @Override
+        public boolean isRemotelyAccessible()
+        {
+            return true;
+        }
+
+        @Override
+        public List<HostAddress> getAddresses()
+        {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public Object getInfo()
+        {
+            return cacheIdentifier;
+        }
+
+        @Override
+        public Optional<String> getCacheIdentifier()
+        {
+            return Optional.of(cacheIdentifier);
+        }
+    }
+
     private static List<Page> toPages(Operator operator)
     {
         ImmutableList.Builder<Page> outputPages = ImmutableList.builder();
@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.operator;
+
+import io.trino.operator.SpaceSavingSketch.Entry;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestSpaceSavingSketch
+{
+    @Test
+    public void testExactCountsBelowCapacity()
+    {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+        add(sketch, 1, 5);
+        add(sketch, 2, 3);
+        add(sketch, 3, 1);
+
+        List<Entry> entries = sketch.getFrequentValues(0);
+        assertEquals(sketch.getTotalCount(), 9);
+        assertEquals(entries.size(), 3);
+        assertEntry(entries.get(0), 1, 5, 0);
+        assertEntry(entries.get(1), 2, 3, 0);
+        assertEntry(entries.get(2), 3, 1, 0);
+
+        assertEquals(sketch.getFrequentValues(3).size(), 2);
+    }
+
+    @Test
+    public void testReplacement()
+    {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        add(sketch, 1, 3);
+        add(sketch, 2, 1);
+        // replaces the least frequent value and inherits its count as the error
+        add(sketch, 3, 1);
+
+        List<Entry> entries = sketch.getFrequentValues(0);
+        assertEquals(entries.size(), 2);
+        assertEntry(entries.get(0), 1, 3, 0);
+        assertEntry(entries.get(1), 3, 2, 1);
+        assertEquals(sketch.getFrequentValues(2).size(), 1);
+    }
+
+    @Test
+    public void testHeavyHitterInLongTail()
+    {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(16);
+        for (long value = 0; value < 10_000; value++) {
+            sketch.add(value);
+            if (value % 4 == 0) {
+                sketch.add(-1);
+            }
+        }
+
+        // any value occurring more than totalCount / capacity times is tracked
+        List<Entry> entries = sketch.getFrequentValues(sketch.getTotalCount() / 16);
+        assertEquals(entries.size(), 1);
+        assertEquals(entries.get(0).getValue(), -1);
+        assertTrue(entries.get(0).getCount() >= 2_500);
+        assertTrue(entries.get(0).getCount() - entries.get(0).getError() <= 2_500);
+    }
+
+    private static void add(SpaceSavingSketch sketch, long value, int count)
+    {
+        for (int i = 0; i < count; i++) {
+            sketch.add(value);
+        }
+    }
+
+    private static void assertEntry(Entry entry, long value, long count, long error)
+    {
+        assertEquals(entry.getValue(), value);
+        assertEquals(entry.getCount(), count);
+        assertEquals(entry.getError(), error);
+    }
+}
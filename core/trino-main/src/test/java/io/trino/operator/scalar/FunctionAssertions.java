@@ -799,7 +799,8 @@ public final class FunctionAssertions
                     DynamicFilter.EMPTY,
                     ImmutableList.of(projection.getType()),
                     DataSize.ofBytes(0),
-                    0);
+                    0,
+                    Optional.empty());
         }
         catch (Throwable e) {
             if (e instanceof UncheckedExecutionException) {
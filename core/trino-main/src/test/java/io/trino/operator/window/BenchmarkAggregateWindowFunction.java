@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.operator.window;
+
+import com.google.common.collect.ImmutableList;
+import io.trino.metadata.Metadata;
+import io.trino.operator.PagesIndex;
+import io.trino.spi.Page;
+import io.trino.spi.block.Block;
+import io.trino.spi.block.BlockBuilder;
+import io.trino.spi.function.WindowFunction;
+import io.trino.spi.function.WindowIndex;
+import io.trino.sql.tree.QualifiedName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static io.trino.metadata.MetadataManager.createTestMetadataManager;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.sql.analyzer.TypeSignatureProvider.fromTypes;
+import static java.lang.Math.max;
+import static org.openjdk.jmh.annotations.Mode.AverageTime;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Evaluates aggregations over sliding {@code ROWS BETWEEN n PRECEDING AND CURRENT ROW} frames of a single partition.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(3)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@BenchmarkMode(AverageTime)
+@SuppressWarnings({"FieldMayBeFinal", "FieldCanBeLocal"})
+public class BenchmarkAggregateWindowFunction
+{
+    private static final Metadata METADATA = createTestMetadataManager();
+    private static final int ROWS = 100_000;
+
+    // sum can remove input from its accumulator, while max needs the segment tree for large frames
+    @Param({"max", "sum"})
+    private String function = "max";
+
+    @Param({"10", "100", "1000"})
+    private int precedingRows = 1000;
+
+    private WindowIndex windowIndex;
+    private WindowFunction windowFunction;
+
+    @Setup
+    public void setup()
+    {
+        BlockBuilder values = BIGINT.createBlockBuilder(null, ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            BIGINT.writeLong(values, ThreadLocalRandom.current().nextLong(1_000_000));
+        }
+        PagesIndex pagesIndex = new PagesIndex.TestingFactory(false).newPagesIndex(ImmutableList.of(BIGINT), ROWS);
+        pagesIndex.addPage(new Page(values.build()));
+        windowIndex = new PagesWindowIndex(pagesIndex, 0, ROWS);
+
+        windowFunction = METADATA.getWindowFunctionImplementation(METADATA.resolveFunction(QualifiedName.of(function), fromTypes(BIGINT)))
+                .createWindowFunction(ImmutableList.of(0), false, ImmutableList.of());
+    }
+
+    @Benchmark
+    public Block slidingFrame()
+    {
+        BlockBuilder output = BIGINT.createBlockBuilder(null, ROWS);
+        windowFunction.reset(windowIndex);
+        for (int row = 0; row < ROWS; row++) {
+            windowFunction.processRow(output, row, row, max(0, row - precedingRows), row);
+        }
+        return output.build();
+    }
+
+    @Test
+    public void verify()
+    {
+        for (String name : ImmutableList.of("max", "sum")) {
+            function = name;
+            setup();
+            Block result = slidingFrame();
+            for (int row = 0; row < ROWS; row += 997) {
+                long expected = "max".equals(function) ? Long.MIN_VALUE : 0;
+                for (int position = max(0, row - precedingRows); position <= row; position++) {
+                    long value = windowIndex.getLong(0, position);
+                    expected = "max".equals(function) ? max(expected, value) : expected + value;
+                }
+                assertEquals(BIGINT.getLong(result, row), expected, function + " of row " + row);
+            }
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkAggregateWindowFunction.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
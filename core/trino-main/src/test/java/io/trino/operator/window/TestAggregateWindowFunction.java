@@ -13,20 +13,44 @@
  */
 package io.trino.operator.window;
 
+import io.trino.metadata.FunctionListBuilder;
+import io.trino.operator.aggregation.state.NullableLongState;
+import io.trino.spi.block.BlockBuilder;
+import io.trino.spi.function.AggregationFunction;
+import io.trino.spi.function.AggregationState;
+import io.trino.spi.function.CombineFunction;
+import io.trino.spi.function.InputFunction;
+import io.trino.spi.function.OutputFunction;
+import io.trino.spi.function.SqlType;
+import io.trino.spi.type.ArrayType;
+import io.trino.spi.type.StandardTypes;
 import io.trino.testing.MaterializedResult;
 import org.intellij.lang.annotations.Language;
+import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.util.stream.LongStream;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static io.trino.SessionTestUtils.TEST_SESSION;
 import static io.trino.spi.type.BigintType.BIGINT;
 import static io.trino.spi.type.DoubleType.DOUBLE;
 import static io.trino.spi.type.IntegerType.INTEGER;
 import static io.trino.spi.type.VarcharType.VARCHAR;
 import static io.trino.testing.MaterializedResult.resultBuilder;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static org.testng.Assert.assertEquals;
 
 public class TestAggregateWindowFunction
         extends AbstractTestWindowFunction
 {
+    @BeforeClass
+    public void setup()
+    {
+        queryRunner.getMetadata().addFunctions(new FunctionListBuilder().aggregates(NonDecomposableMax.class).getFunctions());
+    }
+
     @Test
     public void testCountRowsOrdered()
     {
@@ -595,4 +619,68 @@ public class TestAggregateWindowFunction
                         .row(null, null, null)
                         .build());
     }
+
+    @Test
+    public void testLargeSlidingFrames()
+    {
+        // frames of at least 128 rows are evaluated with a segment tree for aggregations without removeInput
+        MaterializedResult actual = queryRunner.execute(
+                "SELECT x, " +
+                "max(x) OVER (ORDER BY x ROWS BETWEEN 200 PRECEDING AND 200 FOLLOWING), " +
+                "min(x) OVER (ORDER BY x ROWS BETWEEN 200 PRECEDING AND 200 FOLLOWING), " +
+                "array_agg(x) OVER (ORDER BY x ROWS BETWEEN 150 PRECEDING AND CURRENT ROW) " +
+                "FROM UNNEST(sequence(1, 1000)) t(x) " +
+                "ORDER BY x");
+
+        MaterializedResult.Builder expected = resultBuilder(TEST_SESSION, BIGINT, BIGINT, BIGINT, new ArrayType(BIGINT));
+        for (long x = 1; x <= 1000; x++) {
+            expected.row(
+                    x,
+                    min(x + 200, 1000),
+                    max(x - 200, 1),
+                    LongStream.rangeClosed(max(x - 150, 1), x).boxed().collect(toImmutableList()));
+        }
+        assertEquals(actual.getMaterializedRows(), expected.build().getMaterializedRows());
+    }
+
+    @Test
+    public void testLargeSlidingFramesNotDecomposable()
+    {
+        // the intermediate states of aggregations that are not decomposable cannot be combined
+        MaterializedResult actual = queryRunner.execute(
+                "SELECT x, non_decomposable_max(x) OVER (ORDER BY x ROWS BETWEEN 200 PRECEDING AND 200 FOLLOWING) " +
+                "FROM UNNEST(sequence(1, 1000)) t(x) " +
+                "ORDER BY x");
+
+        MaterializedResult.Builder expected = resultBuilder(TEST_SESSION, BIGINT, BIGINT);
+        for (long x = 1; x <= 1000; x++) {
+            expected.row(x, min(x + 200, 1000));
+        }
+        assertEquals(actual.getMaterializedRows(), expected.build().getMaterializedRows());
+    }
+
+    @AggregationFunction(value = "non_decomposable_max", decomposable = false)
+    public static final class NonDecomposableMax
+    {
+        private NonDecomposableMax() {}
+
+        @InputFunction
+        public static void input(@AggregationState NullableLongState state, @SqlType(StandardTypes.BIGINT) long value)
+        {
+            state.setLong(state.isNull() ? value : max(state.getLong(), value));
+            state.setNull(false);
+        }
+
+        @CombineFunction
+        public static void combine(@AggregationState NullableLongState state, @AggregationState NullableLongState otherState)
+        {
+            throw new UnsupportedOperationException("non_decomposable_max does not support combine");
+        }
+
+        @OutputFunction(StandardTypes.BIGINT)
+        public static void output(@AggregationState NullableLongState state, BlockBuilder out)
+        {
+            NullableLongState.write(BIGINT, state, out);
+        }
+    }
 }
@@ -0,0 +1,121 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.operator.window;
+
+import com.google.common.collect.ImmutableList;
+import io.trino.metadata.Metadata;
+import io.trino.operator.PagesIndex;
+import io.trino.operator.aggregation.Accumulator;
+import io.trino.operator.aggregation.AccumulatorFactory;
+import io.trino.operator.aggregation.InternalAggregationFunction;
+import io.trino.spi.Page;
+import io.trino.spi.block.Block;
+import io.trino.spi.block.BlockBuilder;
+import io.trino.spi.function.WindowIndex;
+import io.trino.sql.tree.QualifiedName;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static io.trino.metadata.MetadataManager.createTestMetadataManager;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.sql.analyzer.TypeSignatureProvider.fromTypes;
+import static io.trino.testing.TestingConnectorSession.SESSION;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestAggregationSegmentTree
+{
+    private static final Metadata METADATA = createTestMetadataManager();
+    private static final List<Integer> CHANNELS = ImmutableList.of(0);
+
+    @Test
+    public void testMax()
+    {
+        assertSegmentTree("max", true, 1);
+        assertSegmentTree("max", true, 3);
+        assertSegmentTree("max", true, 100);
+    }
+
+    @Test
+    public void testOrderSensitiveAggregation()
+    {
+        // arbitrary returns the first value
+        assertSegmentTree("arbitrary", false, 1);
+        assertSegmentTree("arbitrary", false, 3);
+        assertSegmentTree("arbitrary", false, 4);
+    }
+
+    @Test
+    public void testGrowingState()
+    {
+        // the states of these aggregations hold all the values they cover
+        for (String functionName : ImmutableList.of("array_agg", "histogram")) {
+            assertTrue(AggregationSegmentTree.create(createWindowIndex(true), CHANNELS, createAccumulatorFactory(functionName), 4).isEmpty(), functionName);
+        }
+    }
+
+    private static void assertSegmentTree(String functionName, boolean withNulls, int bucketSize)
+    {
+        WindowIndex windowIndex = createWindowIndex(withNulls);
+        int rows = windowIndex.size();
+        AccumulatorFactory accumulatorFactory = createAccumulatorFactory(functionName);
+        AggregationSegmentTree segmentTree = AggregationSegmentTree.create(windowIndex, CHANNELS, accumulatorFactory, bucketSize).orElseThrow();
+
+        for (int start = 0; start < rows; start++) {
+            for (int end = start; end < rows; end++) {
+                Accumulator expected = accumulatorFactory.createAccumulator();
+                expected.addInput(windowIndex, CHANNELS, start, end);
+
+                Accumulator actual = accumulatorFactory.createAccumulator();
+                segmentTree.accumulate(actual, start, end);
+
+                assertEquals(evaluateFinal(actual), evaluateFinal(expected), functionName + " of rows " + start + " to " + end);
+            }
+        }
+    }
+
+    private static WindowIndex createWindowIndex(boolean withNulls)
+    {
+        int rows = 23;
+        BlockBuilder values = BIGINT.createBlockBuilder(null, rows);
+        for (int i = 0; i < rows; i++) {
+            if (withNulls && i % 7 == 3) {
+                values.appendNull();
+            }
+            else {
+                BIGINT.writeLong(values, (i * 37L) % 11);
+            }
+        }
+        PagesIndex pagesIndex = new PagesIndex.TestingFactory(false).newPagesIndex(ImmutableList.of(BIGINT), rows);
+        pagesIndex.addPage(new Page(values.build()));
+        return new PagesWindowIndex(pagesIndex, 0, rows);
+    }
+
+    private static AccumulatorFactory createAccumulatorFactory(String functionName)
+    {
+        InternalAggregationFunction function = METADATA.getAggregateFunctionImplementation(
+                METADATA.resolveFunction(QualifiedName.of(functionName), fromTypes(BIGINT)));
+        return function.bind(CHANNELS, Optional.empty());
+    }
+
+    private static Object evaluateFinal(Accumulator accumulator)
+    {
+        BlockBuilder blockBuilder = accumulator.getFinalType().createBlockBuilder(null, 1);
+        accumulator.evaluateFinal(blockBuilder);
+        Block block = blockBuilder.build();
+        return accumulator.getFinalType().getObjectValue(SESSION, block, 0);
+    }
+}
@@ -13,6 +13,7 @@
  */
 package io.trino.server;
 
+import com.google.common.collect.ImmutableList;
 import com.google.inject.Key;
 import com.google.inject.TypeLiteral;
 import io.airlift.http.client.HttpClient;
@@ -20,9 +21,13 @@ import io.airlift.http.client.Request;
 import io.airlift.http.client.UnexpectedResponseException;
 import io.airlift.http.client.jetty.JettyHttpClient;
 import io.airlift.json.JsonCodec;
+import io.trino.client.Column;
 import io.trino.client.QueryResults;
+import io.trino.client.ResultSegment;
+import io.trino.dispatcher.DispatchManager;
 import io.trino.execution.QueryInfo;
 import io.trino.plugin.tpch.TpchPlugin;
+import io.trino.server.protocol.QueryResultCache;
 import io.trino.server.testing.TestingTrinoServer;
 import io.trino.spi.QueryId;
 import org.testng.annotations.AfterMethod;
@@ -43,8 +48,12 @@ import static io.airlift.http.client.StatusResponseHandler.createStatusResponseH
 import static io.airlift.json.JsonCodec.jsonCodec;
 import static io.airlift.json.JsonCodec.listJsonCodec;
 import static io.airlift.testing.Closeables.closeAll;
+import static io.trino.SystemSessionProperties.QUERY_RESULT_CACHE_ENABLED;
+import static io.trino.SystemSessionProperties.RESULT_SEGMENTS_ENABLED;
+import static io.trino.client.ClientCapabilities.SEGMENTED_DATA;
 import static io.trino.client.ProtocolHeaders.TRINO_HEADERS;
 import static io.trino.execution.QueryState.FAILED;
+import static io.trino.execution.QueryState.FINISHED;
 import static io.trino.execution.QueryState.RUNNING;
 import static io.trino.spi.StandardErrorCode.ADMINISTRATIVELY_KILLED;
 import static io.trino.spi.StandardErrorCode.ADMINISTRATIVELY_PREEMPTED;
@@ -55,10 +64,12 @@ import static io.trino.testing.TestingAccessControlManager.TestingPrivilegeType.
 import static io.trino.testing.TestingAccessControlManager.TestingPrivilegeType.VIEW_QUERY;
 import static io.trino.testing.TestingAccessControlManager.privilege;
 import static io.trino.testing.assertions.Assert.assertEquals;
+import static io.trino.testing.assertions.Assert.assertEventually;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -149,6 +160,90 @@ public class TestQueryResource
         assertEquals(info.getFailureInfo().getErrorCode(), DIVISION_BY_ZERO.toErrorCode());
     }
 
+    @Test
+    public void testResultCache()
+    {
+        QueryResultCache resultCache = server.getInstance(Key.get(QueryResultCache.class));
+        String sql = "SELECT name FROM tpch.tiny.nation ORDER BY nationkey";
+
+        List<List<Object>> expected = runToCompletionWithResultCache(sql);
+        assertEquals(expected.size(), 25);
+        assertEquals(resultCache.getSize(), 1);
+        assertEquals(resultCache.getHitRate(), 0.0);
+
+        assertEquals(runToCompletionWithResultCache(sql), expected);
+        assertEquals(resultCache.getHitRate(), 0.5);
+        assertTrue(resultCache.getSavedBytes().getTotalCount() > 0);
+
+        // results are fetched only after the query finished
+        assertEquals(runToCompletionWithResultCache(sql, true), expected);
+        assertEquals(resultCache.getHitRate(), 2.0 / 3);
+
+        // non-deterministic queries are not cached
+        runToCompletionWithResultCache("SELECT rand() FROM tpch.tiny.nation");
+        assertEquals(resultCache.getSize(), 1);
+
+        // the cache is opt-in
+        runToCompletion("SELECT regionkey FROM tpch.tiny.nation");
+        assertEquals(resultCache.getSize(), 1);
+    }
+
+    @Test
+    public void testResultSegments()
+    {
+        String sql = "SELECT name FROM tpch.tiny.nation ORDER BY nationkey";
+        List<List<Object>> expected = runToCompletionWithResultCache(sql);
+        assertEquals(expected.size(), 25);
+
+        URI uri = uriBuilderFrom(server.getBaseUrl().resolve("/v1/statement")).build();
+        Request request = preparePost()
+                .setHeader(TRINO_HEADERS.requestUser(), "user")
+                .setHeader(TRINO_HEADERS.requestClientCapabilities(), SEGMENTED_DATA.toString())
+                .setHeader(TRINO_HEADERS.requestSession(), RESULT_SEGMENTS_ENABLED + "=true")
+                .setUri(uri)
+                .setBodyGenerator(createStaticBodyGenerator(sql, UTF_8))
+                .build();
+        QueryResults queryResults = client.execute(request, createJsonResponseHandler(jsonCodec(QueryResults.class)));
+        ImmutableList.Builder<List<Object>> data = ImmutableList.builder();
+        int segments = 0;
+        List<URI> previousSegments = ImmutableList.of();
+        List<URI> acknowledgedSegments = ImmutableList.of();
+        while (queryResults.getNextUri() != null) {
+            request = prepareGet()
+                    .setHeader(TRINO_HEADERS.requestUser(), "user")
+                    .setUri(queryResults.getNextUri())
+                    .build();
+            queryResults = client.execute(request, createJsonResponseHandler(jsonCodec(QueryResults.class)));
+            assertNull(queryResults.getData());
+            if (queryResults.getSegments() == null) {
+                continue;
+            }
+
+            // segments are released once the results after the ones that returned them are requested
+            for (URI segmentUri : acknowledgedSegments) {
+                assertEquals(client.execute(prepareGet().setUri(segmentUri).build(), createStatusResponseHandler()).getStatusCode(), 404);
+            }
+            acknowledgedSegments = previousSegments;
+            previousSegments = queryResults.getSegments();
+
+            assertTrue(queryResults.getSegmentsOrdered());
+            List<Column> columns = queryResults.getColumns();
+            for (URI segmentUri : queryResults.getSegments()) {
+                ResultSegment segment = client.execute(prepareGet().setUri(segmentUri).build(), createJsonResponseHandler(jsonCodec(ResultSegment.class)));
+                List<List<Object>> rows = ImmutableList.copyOf(segment.decode(columns));
+                rows.forEach(data::add);
+                segments++;
+
+                // a failed fetch can be retried
+                ResultSegment retriedSegment = client.execute(prepareGet().setUri(segmentUri).build(), createJsonResponseHandler(jsonCodec(ResultSegment.class)));
+                assertEquals(ImmutableList.copyOf(retriedSegment.decode(columns)), rows);
+            }
+        }
+        assertNull(queryResults.getError());
+        assertTrue(segments > 0);
+        assertEquals(data.build(), expected);
+    }
+
     @Test
     public void testCancel()
     {
@@ -224,6 +319,43 @@ public class TestQueryResource
         return queryResults.getId();
     }
 
+    private List<List<Object>> runToCompletionWithResultCache(String sql)
+    {
+        return runToCompletionWithResultCache(sql, false);
+    }
+
+    private List<List<Object>> runToCompletionWithResultCache(String sql, boolean waitForFinished)
+    {
+        URI uri = uriBuilderFrom(server.getBaseUrl().resolve("/v1/statement")).build();
+        Request request = preparePost()
+                .setHeader(TRINO_HEADERS.requestUser(), "user")
+                .setHeader(TRINO_HEADERS.requestSession(), QUERY_RESULT_CACHE_ENABLED + "=true")
+                .setUri(uri)
+                .setBodyGenerator(createStaticBodyGenerator(sql, UTF_8))
+                .build();
+        QueryResults queryResults = client.execute(request, createJsonResponseHandler(jsonCodec(QueryResults.class)));
+        ImmutableList.Builder<List<Object>> data = ImmutableList.builder();
+        while (queryResults.getNextUri() != null) {
+            request = prepareGet()
+                    .setHeader(TRINO_HEADERS.requestUser(), "user")
+                    .setUri(queryResults.getNextUri())
+                    .build();
+            queryResults = client.execute(request, createJsonResponseHandler(jsonCodec(QueryResults.class)));
+            if (waitForFinished) {
+                // the query is dispatched once the client requests its results for the first time
+                QueryId queryId = new QueryId(queryResults.getId());
+                DispatchManager dispatchManager = server.getDispatchManager();
+                assertEventually(() -> assertTrue(dispatchManager.isQueryRegistered(queryId) && dispatchManager.getQueryInfo(queryId).getState() == FINISHED));
+                waitForFinished = false;
+            }
+            if (queryResults.getData() != null) {
+                queryResults.getData().forEach(data::add);
+            }
+        }
+        assertNull(queryResults.getError());
+        return data.build();
+    }
+
     private String startQuery(String sql)
     {
         URI uri = uriBuilderFrom(server.getBaseUrl()).replacePath("/v1/statement").build();
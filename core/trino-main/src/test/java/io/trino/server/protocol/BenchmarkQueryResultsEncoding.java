@@ -0,0 +1,193 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.server.protocol;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.json.JsonCodec;
+import io.trino.Session;
+import io.trino.client.ClientCapabilities;
+import io.trino.client.ClientTypeSignature;
+import io.trino.client.Column;
+import io.trino.client.QueryResults;
+import io.trino.client.StatementStats;
+import io.trino.spi.Page;
+import io.trino.spi.PageBuilder;
+import io.trino.spi.type.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Random;
+
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.trino.server.protocol.QueryResultRows.queryResultRowsBuilder;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.DoubleType.DOUBLE;
+import static io.trino.spi.type.IntegerType.INTEGER;
+import static io.trino.spi.type.VarcharType.VARCHAR;
+import static io.trino.testing.TestingSession.testSessionBuilder;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Compares the rows per second of the JSON and the binary columnar result encodings,
+ * including encoding on the coordinator and decoding on the client.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(SECONDS)
+@Fork(1)
+@Warmup(iterations = 10, time = 1, timeUnit = SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = SECONDS)
+@BenchmarkMode(Mode.Throughput)
+@OperationsPerInvocation(BenchmarkQueryResultsEncoding.ROW_COUNT)
+public class BenchmarkQueryResultsEncoding
+{
+    static final int ROW_COUNT = 100_000;
+
+    private static final JsonCodec<QueryResults> QUERY_RESULTS_CODEC = jsonCodec(QueryResults.class);
+    private static final List<Type> TYPES = ImmutableList.of(BIGINT, INTEGER, DOUBLE, VARCHAR);
+    private static final List<Column> COLUMNS = ImmutableList.of(
+            new Column("bigint", "bigint", new ClientTypeSignature("bigint")),
+            new Column("integer", "integer", new ClientTypeSignature("integer")),
+            new Column("double", "double", new ClientTypeSignature("double")),
+            new Column("varchar", "varchar", new ClientTypeSignature("varchar")));
+
+    @Benchmark
+    public void json(BenchmarkData data, Blackhole blackhole)
+    {
+        QueryResultRows rows = data.createRows(data.jsonSession);
+        consume(QUERY_RESULTS_CODEC.fromJson(QUERY_RESULTS_CODEC.toJsonBytes(createQueryResults(rows, null))), blackhole);
+    }
+
+    @Benchmark
+    public void columnar(BenchmarkData data, Blackhole blackhole)
+    {
+        QueryResultRows rows = data.createRows(data.columnarSession);
+        byte[] columnarData = rows.getColumnarData().orElseThrow();
+        consume(QUERY_RESULTS_CODEC.fromJson(QUERY_RESULTS_CODEC.toJsonBytes(createQueryResults(null, columnarData))), blackhole);
+    }
+
+    @Test
+    public void testBenchmarkData()
+    {
+        BenchmarkData data = new BenchmarkData();
+        data.initialize();
+
+        List<List<Object>> jsonRows = ImmutableList.copyOf(QUERY_RESULTS_CODEC.fromJson(QUERY_RESULTS_CODEC.toJsonBytes(
+                createQueryResults(data.createRows(data.jsonSession), null))).getData());
+        List<List<Object>> columnarRows = ImmutableList.copyOf(QUERY_RESULTS_CODEC.fromJson(QUERY_RESULTS_CODEC.toJsonBytes(
+                createQueryResults(null, data.createRows(data.columnarSession).getColumnarData().orElseThrow()))).getData());
+
+        assertEquals(jsonRows.size(), ROW_COUNT);
+        assertEquals(columnarRows, jsonRows);
+    }
+
+    private static QueryResults createQueryResults(QueryResultRows rows, byte[] columnarData)
+    {
+        return new QueryResults(
+                "query_id",
+                URI.create("http://localhost"),
+                null,
+                null,
+                COLUMNS,
+                rows,
+                columnarData,
+                null,
+                null,
+                StatementStats.builder().setState("RUNNING").build(),
+                null,
+                ImmutableList.of(),
+                null,
+                null);
+    }
+
+    private static void consume(QueryResults results, Blackhole blackhole)
+    {
+        for (List<Object> row : results.getData()) {
+            for (int column = 0; column < row.size(); column++) {
+                blackhole.consume(row.get(column));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BenchmarkData
+    {
+        private final Session jsonSession = testSessionBuilder().build();
+        private final Session columnarSession = testSessionBuilder()
+                .setClientCapabilities(ImmutableSet.of(ClientCapabilities.COLUMNAR_DATA.toString()))
+                .build();
+        private List<Page> pages;
+
+        @Setup
+        public void initialize()
+        {
+            Random random = new Random(0);
+            ImmutableList.Builder<Page> pages = ImmutableList.builder();
+            PageBuilder pageBuilder = new PageBuilder(TYPES);
+            for (int row = 0; row < ROW_COUNT; row++) {
+                pageBuilder.declarePosition();
+                BIGINT.writeLong(pageBuilder.getBlockBuilder(0), random.nextLong());
+                INTEGER.writeLong(pageBuilder.getBlockBuilder(1), random.nextInt());
+                DOUBLE.writeDouble(pageBuilder.getBlockBuilder(2), random.nextDouble());
+                VARCHAR.writeSlice(pageBuilder.getBlockBuilder(3), utf8Slice("value_" + random.nextInt(1000)));
+                if (pageBuilder.isFull()) {
+                    pages.add(pageBuilder.build());
+                    pageBuilder.reset();
+                }
+            }
+            if (!pageBuilder.isEmpty()) {
+                pages.add(pageBuilder.build());
+            }
+            this.pages = pages.build();
+        }
+
+        private QueryResultRows createRows(Session session)
+        {
+            return queryResultRowsBuilder(session)
+                    .withColumnsAndTypes(COLUMNS, TYPES)
+                    .addPages(pages)
+                    .build();
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkQueryResultsEncoding.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.server.protocol;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.testing.TestingTicker;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import io.trino.Session;
+import io.trino.execution.buffer.PagesSerde;
+import io.trino.execution.buffer.PagesSerdeFactory;
+import io.trino.execution.buffer.SerializedPage;
+import io.trino.metadata.Metadata;
+import io.trino.server.protocol.QueryResultCache.CachedQueryResult;
+import io.trino.spi.Page;
+import io.trino.spi.security.Identity;
+import io.trino.sql.planner.FunctionCallBuilder;
+import io.trino.sql.planner.plan.FilterNode;
+import io.trino.sql.planner.plan.PlanNode;
+import io.trino.sql.planner.plan.PlanNodeId;
+import io.trino.sql.planner.plan.ValuesNode;
+import io.trino.sql.tree.ComparisonExpression;
+import io.trino.sql.tree.DoubleLiteral;
+import io.trino.sql.tree.QualifiedName;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static io.trino.SystemSessionProperties.QUERY_RESULT_CACHE_ENABLED;
+import static io.trino.block.BlockAssertions.createLongRepeatBlock;
+import static io.trino.metadata.MetadataManager.createTestMetadataManager;
+import static io.trino.operator.PageAssertions.assertPageEquals;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.sql.tree.ComparisonExpression.Operator.GREATER_THAN;
+import static io.trino.testing.TestingSession.testSessionBuilder;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestQueryResultCache
+{
+    private static final Metadata METADATA = createTestMetadataManager();
+    private static final Session ENABLED_SESSION = testSessionBuilder()
+            .setSystemProperty(QUERY_RESULT_CACHE_ENABLED, "true")
+            .build();
+
+    @Test
+    public void testCacheKey()
+    {
+        QueryResultCache cache = createCache(DataSize.of(1, MEGABYTE), new TestingTicker());
+        PlanNode values = new ValuesNode(new PlanNodeId("0"), 1);
+
+        assertEquals(cache.getCacheKey(testSessionBuilder().build(), values), Optional.empty());
+        assertTrue(cache.getCacheKey(ENABLED_SESSION, values).isPresent());
+        assertEquals(cache.getCacheKey(ENABLED_SESSION, values), cache.getCacheKey(ENABLED_SESSION, values));
+
+        Session otherUser = testSessionBuilder()
+                .setSystemProperty(QUERY_RESULT_CACHE_ENABLED, "true")
+                .setIdentity(Identity.ofUser("other"))
+                .build();
+        assertNotEquals(cache.getCacheKey(otherUser, values), cache.getCacheKey(ENABLED_SESSION, values));
+
+        PlanNode filter = new FilterNode(
+                new PlanNodeId("1"),
+                values,
+                new ComparisonExpression(GREATER_THAN, new FunctionCallBuilder(METADATA).setName(QualifiedName.of("random")).build(), new DoubleLiteral("0.5")));
+        assertEquals(cache.getCacheKey(ENABLED_SESSION, filter), Optional.empty());
+    }
+
+    @Test
+    public void testPutAndGet()
+    {
+        QueryResultCache cache = createCache(DataSize.of(1, MEGABYTE), new TestingTicker());
+        PagesSerde serde = new PagesSerdeFactory(METADATA.getBlockEncodingSerde(), true).createPagesSerde();
+        Page page = new Page(createLongRepeatBlock(42, 1000));
+        SerializedPage serializedPage = serde.serialize(serde.newContext(), page);
+
+        assertEquals(cache.get("key"), Optional.empty());
+        assertTrue(cache.put("key", ImmutableList.of(serializedPage, serializedPage)));
+
+        CachedQueryResult result = cache.get("key").orElseThrow();
+        assertEquals(result.getSizeInBytes(), 2L * serializedPage.getSizeInBytes());
+        List<SerializedPage> pages = result.getPages();
+        assertEquals(pages.size(), 2);
+        for (SerializedPage cachedPage : pages) {
+            assertPageEquals(ImmutableList.of(BIGINT), serde.deserialize(cachedPage), page);
+        }
+
+        assertEquals(cache.getSavedBytes().getTotalCount(), result.getSizeInBytes());
+        assertEquals(cache.getHitRate(), 0.5);
+    }
+
+    @Test
+    public void testEntrySizeLimit()
+    {
+        QueryResultCache cache = createCache(DataSize.of(1, MEGABYTE), new TestingTicker());
+        PagesSerde serde = new PagesSerdeFactory(METADATA.getBlockEncodingSerde(), false).createPagesSerde();
+        SerializedPage serializedPage = serde.serialize(serde.newContext(), new Page(createLongRepeatBlock(42, 10_000)));
+        assertTrue(serializedPage.getSizeInBytes() > cache.getMaxEntrySizeInBytes());
+
+        assertFalse(cache.put("key", ImmutableList.of(serializedPage)));
+        assertEquals(cache.get("key"), Optional.empty());
+        assertEquals(cache.getRejectedResults().getTotalCount(), 1);
+    }
+
+    @Test
+    public void testExpiration()
+    {
+        TestingTicker ticker = new TestingTicker();
+        QueryResultCache cache = createCache(DataSize.of(1, MEGABYTE), ticker);
+
+        assertTrue(cache.put("key", ImmutableList.of()));
+        ticker.increment(30, SECONDS);
+        assertTrue(cache.get("key").isPresent());
+        ticker.increment(31, SECONDS);
+        assertEquals(cache.get("key"), Optional.empty());
+    }
+
+    private static QueryResultCache createCache(DataSize maxSize, TestingTicker ticker)
+    {
+        return new QueryResultCache(METADATA, jsonCodec(PlanNode.class), maxSize, DataSize.of(64, KILOBYTE), new Duration(1, MINUTES), ticker);
+    }
+}
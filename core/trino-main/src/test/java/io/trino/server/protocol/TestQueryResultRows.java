@@ -15,40 +15,60 @@ package io.trino.server.protocol;
 
 import com.google.common.base.VerifyException;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.json.JsonCodec;
 import io.trino.Session;
+import io.trino.client.ClientCapabilities;
 import io.trino.client.ClientTypeSignature;
 import io.trino.client.Column;
+import io.trino.client.QueryResults;
+import io.trino.client.StatementStats;
 import io.trino.metadata.Metadata;
 import io.trino.spi.Page;
 import io.trino.spi.TrinoException;
 import io.trino.spi.type.ArrayType;
 import io.trino.spi.type.BigintType;
 import io.trino.spi.type.BooleanType;
+import io.trino.spi.type.DoubleType;
 import io.trino.spi.type.IntegerType;
+import io.trino.spi.type.RealType;
 import io.trino.spi.type.RowType;
 import io.trino.spi.type.SmallintType;
 import io.trino.spi.type.TimestampType;
 import io.trino.spi.type.TimestampWithTimeZoneType;
+import io.trino.spi.type.TinyintType;
 import io.trino.spi.type.Type;
+import io.trino.spi.type.VarbinaryType;
+import io.trino.spi.type.VarcharType;
 import io.trino.testing.TestingSession;
 import io.trino.tests.BogusType;
 import org.testng.annotations.Test;
 
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.airlift.slice.Slices.wrappedBuffer;
 import static io.trino.RowPagesBuilder.rowPagesBuilder;
 import static io.trino.client.ClientStandardTypes.ARRAY;
 import static io.trino.client.ClientStandardTypes.BIGINT;
 import static io.trino.client.ClientStandardTypes.BOOLEAN;
+import static io.trino.client.ClientStandardTypes.DOUBLE;
 import static io.trino.client.ClientStandardTypes.INTEGER;
 import static io.trino.client.ClientStandardTypes.MAP;
+import static io.trino.client.ClientStandardTypes.REAL;
 import static io.trino.client.ClientStandardTypes.ROW;
+import static io.trino.client.ClientStandardTypes.SMALLINT;
 import static io.trino.client.ClientStandardTypes.TIMESTAMP;
 import static io.trino.client.ClientStandardTypes.TIMESTAMP_WITH_TIME_ZONE;
+import static io.trino.client.ClientStandardTypes.TINYINT;
+import static io.trino.client.ClientStandardTypes.VARBINARY;
+import static io.trino.client.ClientStandardTypes.VARCHAR;
 import static io.trino.metadata.MetadataManager.createTestMetadataManager;
 import static io.trino.server.protocol.QueryResultRows.queryResultRowsBuilder;
 import static io.trino.spi.type.TypeSignature.mapType;
@@ -452,6 +472,90 @@ public class TestQueryResultRows
                 .build();
     }
 
+    @Test
+    public void shouldEncodeColumnarData()
+    {
+        List<Column> columns = ImmutableList.of(
+                BOOLEAN_COLUMN.apply("_col0"),
+                new Column("_col1", TINYINT, new ClientTypeSignature(TINYINT)),
+                new Column("_col2", SMALLINT, new ClientTypeSignature(SMALLINT)),
+                INT_COLUMN.apply("_col3"),
+                BIGINT_COLUMN.apply("_col4"),
+                new Column("_col5", REAL, new ClientTypeSignature(REAL)),
+                new Column("_col6", DOUBLE, new ClientTypeSignature(DOUBLE)),
+                new Column("_col7", VARCHAR, new ClientTypeSignature(VARCHAR)),
+                new Column("_col8", VARBINARY, new ClientTypeSignature(VARBINARY)));
+        List<Type> types = ImmutableList.of(BooleanType.BOOLEAN, TinyintType.TINYINT, SmallintType.SMALLINT, IntegerType.INTEGER, BigintType.BIGINT, RealType.REAL, DoubleType.DOUBLE, VarcharType.VARCHAR, VarbinaryType.VARBINARY);
+
+        List<Page> pages = rowPagesBuilder(types)
+                .row(true, 1L, 2L, 3L, 4L, 5.5f, 6.5, utf8Slice("seven"), wrappedBuffer(new byte[] {8}))
+                .row(null, null, null, null, null, null, null, null, null)
+                .pageBreak()
+                .row(false, -1L, -2L, -3L, -4L, -5.5f, -6.5, utf8Slice(""), wrappedBuffer(new byte[0]))
+                .build();
+
+        QueryResultRows rows = queryResultRowsBuilder(getSessionWithColumnarData())
+                .withColumnsAndTypes(columns, types)
+                .addPages(pages)
+                .build();
+
+        byte[] columnarData = rows.getColumnarData().orElseThrow();
+
+        // columnar data is decoded when the results are received by the client
+        JsonCodec<QueryResults> codec = jsonCodec(QueryResults.class);
+        QueryResults queryResults = codec.fromJson(codec.toJson(new QueryResults(
+                "query_id",
+                URI.create("http://localhost"),
+                null,
+                null,
+                columns,
+                null,
+                columnarData,
+                null,
+                null,
+                StatementStats.builder().setState("RUNNING").build(),
+                null,
+                ImmutableList.of(),
+                null,
+                null)));
+
+        List<List<Object>> values = ImmutableList.copyOf(queryResults.getData());
+        assertThat(values).hasSize(3);
+        assertThat(values.get(0).subList(0, 8)).containsExactly(true, (byte) 1, (short) 2, 3, 4L, 5.5f, 6.5, "seven");
+        assertThat((byte[]) values.get(0).get(8)).containsExactly(8);
+        assertThat(values.get(1)).containsExactly(null, null, null, null, null, null, null, null, null);
+        assertThat(values.get(2).subList(0, 8)).containsExactly(false, (byte) -1, (short) -2, -3, -4L, -5.5f, -6.5, "");
+        assertThat((byte[]) values.get(2).get(8)).isEmpty();
+    }
+
+    @Test
+    public void shouldNotEncodeColumnarData()
+    {
+        List<Column> columns = ImmutableList.of(BIGINT_COLUMN.apply("_col0"));
+        List<Type> types = ImmutableList.of(BigintType.BIGINT);
+        List<Page> pages = rowPagesBuilder(types).row(1L).build();
+
+        // client does not support the columnar data
+        QueryResultRows rows = queryResultRowsBuilder(getSession())
+                .withColumnsAndTypes(columns, types)
+                .addPages(pages)
+                .build();
+        assertThat(rows.getColumnarData()).isEmpty();
+
+        // type cannot be encoded
+        rows = queryResultRowsBuilder(getSessionWithColumnarData())
+                .withColumnsAndTypes(ImmutableList.of(new Column("_col0", TIMESTAMP, new ClientTypeSignature(TIMESTAMP))), ImmutableList.of(TimestampType.TIMESTAMP_MILLIS))
+                .addPages(rowPagesBuilder(TimestampType.TIMESTAMP_MILLIS).row(1L).build())
+                .build();
+        assertThat(rows.getColumnarData()).isEmpty();
+
+        // no data
+        rows = queryResultRowsBuilder(getSessionWithColumnarData())
+                .withColumnsAndTypes(columns, types)
+                .build();
+        assertThat(rows.getColumnarData()).isEmpty();
+    }
+
     private static List<List<Object>> getAllValues(QueryResultRows rows)
     {
         ImmutableList.Builder<List<Object>> builder = ImmutableList.builder();
@@ -469,6 +573,13 @@ public class TestQueryResultRows
                 .build();
     }
 
+    private static Session getSessionWithColumnarData()
+    {
+        return TestingSession.testSessionBuilder()
+                .setClientCapabilities(ImmutableSet.of(ClientCapabilities.COLUMNAR_DATA.toString()))
+                .build();
+    }
+
     private static final class TestExceptionConsumer
             implements Consumer<Throwable>
     {
@@ -0,0 +1,47 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.server.protocol;
+
+import io.airlift.units.DataSize;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.testng.Assert.assertEquals;
+
+public class TestResultSegmentsMemoryLimit
+{
+    @Test
+    public void testLimits()
+    {
+        ResultSegmentsMemoryLimit limit = new ResultSegmentsMemoryLimit(DataSize.ofBytes(1000), DataSize.ofBytes(400));
+        assertEquals(limit.getAvailableBytes(0), 400);
+        assertEquals(limit.getAvailableBytes(300), 100);
+        assertEquals(limit.getAvailableBytes(500), 0);
+
+        // segments retained by other queries reduce the available size
+        limit.reserve(700);
+        assertEquals(limit.getRetainedSizeInBytes(), 700);
+        assertEquals(limit.getAvailableBytes(0), 300);
+        limit.reserve(400);
+        assertEquals(limit.getAvailableBytes(0), 0);
+
+        limit.free(1100);
+        assertEquals(limit.getRetainedSizeInBytes(), 0);
+        assertEquals(limit.getAvailableBytes(0), 400);
+
+        assertThatThrownBy(() -> limit.free(1))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("more bytes freed than reserved");
+    }
+}
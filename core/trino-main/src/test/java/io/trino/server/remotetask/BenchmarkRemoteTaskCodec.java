@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.server.remotetask;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.json.JsonCodec;
+import io.airlift.json.JsonCodecFactory;
+import io.airlift.json.ObjectMapperProvider;
+import io.trino.execution.TaskId;
+import io.trino.execution.TaskInfo;
+import io.trino.execution.TaskStatus;
+import io.trino.operator.TestTaskStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static org.openjdk.jmh.annotations.Mode.AverageTime;
+
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(3)
+@Warmup(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@BenchmarkMode(AverageTime)
+@SuppressWarnings({"FieldMayBeFinal", "FieldCanBeLocal"})
+public class BenchmarkRemoteTaskCodec
+{
+    @Param({"JSON", "SMILE"})
+    private RemoteTaskEncoding encoding = RemoteTaskEncoding.SMILE;
+
+    private JsonCodec<TaskInfo> taskInfoCodec;
+    private JsonCodec<TaskStatus> taskStatusCodec;
+
+    private TaskInfo taskInfo;
+    private byte[] taskInfoBytes;
+    private byte[] taskStatusBytes;
+
+    @Setup
+    public void setup()
+    {
+        ObjectMapperProvider objectMapperProvider = (encoding == RemoteTaskEncoding.SMILE) ? new SmileObjectMapperProvider() : new ObjectMapperProvider();
+        JsonCodecFactory codecFactory = new JsonCodecFactory(objectMapperProvider);
+        taskInfoCodec = codecFactory.jsonCodec(TaskInfo.class);
+        taskStatusCodec = codecFactory.jsonCodec(TaskStatus.class);
+
+        taskInfo = TaskInfo.createInitialTask(
+                new TaskId("query", 1, 2),
+                URI.create("http://worker.invalid:8080/v1/task/query.1.2"),
+                "worker",
+                ImmutableList.of(),
+                TestTaskStats.EXPECTED);
+        taskInfoBytes = taskInfoCodec.toJsonBytes(taskInfo);
+        taskStatusBytes = taskStatusCodec.toJsonBytes(taskInfo.getTaskStatus());
+    }
+
+    @Benchmark
+    public byte[] encodeTaskInfo()
+    {
+        return taskInfoCodec.toJsonBytes(taskInfo);
+    }
+
+    @Benchmark
+    public TaskInfo decodeTaskInfo()
+    {
+        return taskInfoCodec.fromJson(taskInfoBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeTaskStatus()
+    {
+        return taskStatusCodec.toJsonBytes(taskInfo.getTaskStatus());
+    }
+
+    @Benchmark
+    public TaskStatus decodeTaskStatus()
+    {
+        return taskStatusCodec.fromJson(taskStatusBytes);
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkRemoteTaskCodec.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -24,6 +24,7 @@ import com.google.inject.Provides;
 import io.airlift.bootstrap.Bootstrap;
 import io.airlift.http.client.testing.TestingHttpClient;
 import io.airlift.jaxrs.JsonMapper;
+import io.airlift.jaxrs.SmileMapper;
 import io.airlift.jaxrs.testing.JaxrsTestingHttpProcessor;
 import io.airlift.json.JsonCodec;
 import io.airlift.json.JsonModule;
@@ -54,6 +55,7 @@ import io.trino.metadata.Metadata;
 import io.trino.metadata.Split;
 import io.trino.server.DynamicFilterService;
 import io.trino.server.HttpRemoteTaskFactory;
+import io.trino.server.PlanFragmentDecoder;
 import io.trino.server.TaskUpdateRequest;
 import io.trino.spi.ErrorCode;
 import io.trino.spi.QueryId;
@@ -67,6 +69,7 @@ import io.trino.spi.predicate.TupleDomain;
 import io.trino.spi.type.Type;
 import io.trino.spi.type.TypeOperators;
 import io.trino.sql.DynamicFilters;
+import io.trino.sql.planner.PlanFragment;
 import io.trino.sql.planner.Symbol;
 import io.trino.sql.planner.SymbolAllocator;
 import io.trino.sql.planner.plan.DynamicFilterId;
@@ -88,8 +91,10 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
 import java.net.URI;
@@ -104,11 +109,13 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BooleanSupplier;
 
 import static com.google.common.collect.Iterables.getOnlyElement;
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
 import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
 import static io.airlift.json.JsonBinder.jsonBinder;
 import static io.airlift.json.JsonCodecBinder.jsonCodecBinder;
 import static io.airlift.testing.Assertions.assertGreaterThanOrEqual;
 import static io.trino.SessionTestUtils.TEST_SESSION;
+import static io.trino.TrinoMediaTypes.JACKSON_SMILE;
 import static io.trino.execution.DynamicFiltersCollector.INITIAL_DYNAMIC_FILTERS_VERSION;
 import static io.trino.execution.TaskTestUtils.TABLE_SCAN_NODE_ID;
 import static io.trino.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
@@ -126,6 +133,7 @@ import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 public class TestHttpRemoteTask
@@ -165,11 +173,24 @@ public class TestHttpRemoteTask
     @Test(timeOut = 30000)
     public void testRegular()
             throws Exception
+    {
+        testRegular(RemoteTaskEncoding.SMILE);
+    }
+
+    @Test(timeOut = 30000)
+    public void testRegularWithJsonEncoding()
+            throws Exception
+    {
+        testRegular(RemoteTaskEncoding.JSON);
+    }
+
+    private void testRegular(RemoteTaskEncoding encoding)
+            throws Exception
     {
         AtomicLong lastActivityNanos = new AtomicLong(System.nanoTime());
         TestingTaskResource testingTaskResource = new TestingTaskResource(lastActivityNanos, FailureScenario.NO_FAILURE);
 
-        HttpRemoteTaskFactory httpRemoteTaskFactory = createHttpRemoteTaskFactory(testingTaskResource);
+        HttpRemoteTaskFactory httpRemoteTaskFactory = createHttpRemoteTaskFactory(testingTaskResource, encoding);
 
         RemoteTask remoteTask = createRemoteTask(httpRemoteTaskFactory);
 
@@ -180,6 +201,8 @@ public class TestHttpRemoteTask
         remoteTask.addSplits(ImmutableMultimap.of(TABLE_SCAN_NODE_ID, new Split(new CatalogName("test"), TestingSplit.createLocalSplit(), lifespan)));
         poll(() -> testingTaskResource.getTaskSource(TABLE_SCAN_NODE_ID) != null);
         poll(() -> testingTaskResource.getTaskSource(TABLE_SCAN_NODE_ID).getSplits().size() == 1);
+        assertEquals(com.google.common.net.MediaType.parse(testingTaskResource.getTaskUpdateContentType()).withoutParameters(), encoding.getMediaType().withoutParameters());
+        assertEquals(testingTaskResource.getPlanFragment().getId(), TaskTestUtils.PLAN_FRAGMENT.getId());
 
         remoteTask.noMoreSplits(TABLE_SCAN_NODE_ID, lifespan);
         poll(() -> testingTaskResource.getTaskSource(TABLE_SCAN_NODE_ID).getNoMoreSplitsForLifespan().size() == 1);
@@ -194,6 +217,33 @@ public class TestHttpRemoteTask
         httpRemoteTaskFactory.stop();
     }
 
+    @Test(timeOut = 30000)
+    public void testFallbackToJsonEncoding()
+            throws Exception
+    {
+        TestingTaskResource testingTaskResource = new TestingTaskResource(new AtomicLong(System.nanoTime()), FailureScenario.NO_FAILURE);
+        testingTaskResource.setRejectSmileUpdates(true);
+
+        HttpRemoteTaskFactory httpRemoteTaskFactory = createHttpRemoteTaskFactory(testingTaskResource, RemoteTaskEncoding.SMILE);
+        RemoteTask remoteTask = createRemoteTask(httpRemoteTaskFactory);
+
+        testingTaskResource.setInitialTaskInfo(remoteTask.getTaskInfo());
+        remoteTask.start();
+
+        Lifespan lifespan = Lifespan.driverGroup(3);
+        remoteTask.addSplits(ImmutableMultimap.of(TABLE_SCAN_NODE_ID, new Split(new CatalogName("test"), TestingSplit.createLocalSplit(), lifespan)));
+        poll(() -> testingTaskResource.getTaskSource(TABLE_SCAN_NODE_ID) != null);
+        poll(() -> testingTaskResource.getTaskSource(TABLE_SCAN_NODE_ID).getSplits().size() == 1);
+        assertEquals(com.google.common.net.MediaType.parse(testingTaskResource.getTaskUpdateContentType()).withoutParameters(), RemoteTaskEncoding.JSON.getMediaType().withoutParameters());
+        assertEquals(testingTaskResource.getPlanFragment().getId(), TaskTestUtils.PLAN_FRAGMENT.getId());
+        assertFalse(remoteTask.getTaskStatus().getState().isDone());
+
+        remoteTask.cancel();
+        poll(() -> remoteTask.getTaskStatus().getState().isDone());
+
+        httpRemoteTaskFactory.stop();
+    }
+
     @Test(timeOut = 30000)
     public void testDynamicFilters()
             throws Exception
@@ -318,10 +368,20 @@ public class TestHttpRemoteTask
 
     private static HttpRemoteTaskFactory createHttpRemoteTaskFactory(TestingTaskResource testingTaskResource)
     {
-        return createHttpRemoteTaskFactory(testingTaskResource, new DynamicFilterService(createTestMetadataManager(), new TypeOperators(), new DynamicFilterConfig()));
+        return createHttpRemoteTaskFactory(testingTaskResource, RemoteTaskEncoding.SMILE);
+    }
+
+    private static HttpRemoteTaskFactory createHttpRemoteTaskFactory(TestingTaskResource testingTaskResource, RemoteTaskEncoding encoding)
+    {
+        return createHttpRemoteTaskFactory(testingTaskResource, new DynamicFilterService(createTestMetadataManager(), new TypeOperators(), new DynamicFilterConfig()), encoding);
     }
 
     private static HttpRemoteTaskFactory createHttpRemoteTaskFactory(TestingTaskResource testingTaskResource, DynamicFilterService dynamicFilterService)
+    {
+        return createHttpRemoteTaskFactory(testingTaskResource, dynamicFilterService, RemoteTaskEncoding.SMILE);
+    }
+
+    private static HttpRemoteTaskFactory createHttpRemoteTaskFactory(TestingTaskResource testingTaskResource, DynamicFilterService dynamicFilterService, RemoteTaskEncoding encoding)
     {
         Bootstrap app = new Bootstrap(
                 new JsonModule(),
@@ -332,6 +392,8 @@ public class TestHttpRemoteTask
                     public void configure(Binder binder)
                     {
                         binder.bind(JsonMapper.class);
+                        binder.bind(SmileMapper.class);
+                        binder.bind(SmileObjectMapperProvider.class);
                         binder.bind(Metadata.class).toInstance(createTestMetadataManager());
                         jsonBinder(binder).addDeserializerBinding(Type.class).to(TypeDeserializer.class);
                         jsonCodecBinder(binder).bindJsonCodec(TaskStatus.class);
@@ -340,6 +402,7 @@ public class TestHttpRemoteTask
                         jsonBinder(binder).addDeserializerBinding(Block.class).to(BlockJsonSerde.Deserializer.class);
                         jsonCodecBinder(binder).bindJsonCodec(TaskInfo.class);
                         jsonCodecBinder(binder).bindJsonCodec(TaskUpdateRequest.class);
+                        jsonCodecBinder(binder).bindJsonCodec(PlanFragment.class);
                     }
 
                     @Provides
@@ -352,16 +415,20 @@ public class TestHttpRemoteTask
                     @Provides
                     private HttpRemoteTaskFactory createHttpRemoteTaskFactory(
                             JsonMapper jsonMapper,
+                            SmileMapper smileMapper,
                             JsonCodec<TaskStatus> taskStatusCodec,
                             JsonCodec<VersionedDynamicFilterDomains> dynamicFilterDomainsCodec,
                             JsonCodec<TaskInfo> taskInfoCodec,
-                            JsonCodec<TaskUpdateRequest> taskUpdateRequestCodec)
+                            JsonCodec<TaskUpdateRequest> taskUpdateRequestCodec,
+                            JsonCodec<PlanFragment> planFragmentCodec,
+                            SmileObjectMapperProvider smileObjectMapperProvider)
                     {
-                        JaxrsTestingHttpProcessor jaxrsTestingHttpProcessor = new JaxrsTestingHttpProcessor(URI.create("http://fake.invalid/"), testingTaskResource, jsonMapper);
+                        JaxrsTestingHttpProcessor jaxrsTestingHttpProcessor = new JaxrsTestingHttpProcessor(URI.create("http://fake.invalid/"), testingTaskResource, jsonMapper, smileMapper);
                         TestingHttpClient testingHttpClient = new TestingHttpClient(jaxrsTestingHttpProcessor.setTrace(TRACE_HTTP));
                         testingTaskResource.setHttpClient(testingHttpClient);
+                        testingTaskResource.setPlanFragmentDecoder(new PlanFragmentDecoder(planFragmentCodec, smileObjectMapperProvider));
                         return new HttpRemoteTaskFactory(
-                                new QueryManagerConfig(),
+                                new QueryManagerConfig().setRemoteTaskEncoding(encoding),
                                 TASK_MANAGER_CONFIG,
                                 testingHttpClient,
                                 new TestSqlTaskManager.MockLocationFactory(),
@@ -369,6 +436,8 @@ public class TestHttpRemoteTask
                                 dynamicFilterDomainsCodec,
                                 taskInfoCodec,
                                 taskUpdateRequestCodec,
+                                planFragmentCodec,
+                                smileObjectMapperProvider,
                                 new RemoteTaskStats(),
                                 dynamicFilterService);
                     }
@@ -435,6 +504,7 @@ public class TestHttpRemoteTask
         private final FailureScenario failureScenario;
 
         private final AtomicReference<TestingHttpClient> httpClient = new AtomicReference<>();
+        private final AtomicReference<PlanFragmentDecoder> planFragmentDecoder = new AtomicReference<>();
 
         private TaskInfo initialTaskInfo;
         private TaskStatus initialTaskStatus;
@@ -444,7 +514,10 @@ public class TestHttpRemoteTask
         private String taskInstanceId = INITIAL_TASK_INSTANCE_ID;
 
         private long statusFetchCounter;
+        private String taskUpdateContentType;
+        private PlanFragment planFragment;
         private long dynamicFiltersFetchCounter;
+        private boolean rejectSmileUpdates;
 
         public TestingTaskResource(AtomicLong lastActivityNanos, FailureScenario failureScenario)
         {
@@ -457,9 +530,14 @@ public class TestHttpRemoteTask
             httpClient.set(newValue);
         }
 
+        public void setPlanFragmentDecoder(PlanFragmentDecoder newValue)
+        {
+            planFragmentDecoder.set(newValue);
+        }
+
         @GET
         @Path("{taskId}")
-        @Produces(MediaType.APPLICATION_JSON)
+        @Produces({MediaType.APPLICATION_JSON, JACKSON_SMILE})
         public synchronized TaskInfo getTaskInfo(
                 @PathParam("taskId") TaskId taskId,
                 @HeaderParam(TRINO_CURRENT_VERSION) Long currentVersion,
@@ -474,13 +552,19 @@ public class TestHttpRemoteTask
 
         @POST
         @Path("{taskId}")
-        @Consumes(MediaType.APPLICATION_JSON)
-        @Produces(MediaType.APPLICATION_JSON)
+        @Consumes({MediaType.APPLICATION_JSON, JACKSON_SMILE})
+        @Produces({MediaType.APPLICATION_JSON, JACKSON_SMILE})
         public synchronized TaskInfo createOrUpdateTask(
                 @PathParam("taskId") TaskId taskId,
                 TaskUpdateRequest taskUpdateRequest,
+                @HeaderParam(CONTENT_TYPE) String contentType,
                 @Context UriInfo uriInfo)
         {
+            if (rejectSmileUpdates && com.google.common.net.MediaType.parse(contentType).withoutParameters().equals(RemoteTaskEncoding.SMILE.getMediaType().withoutParameters())) {
+                throw new WebApplicationException(Response.Status.UNSUPPORTED_MEDIA_TYPE);
+            }
+            taskUpdateContentType = contentType;
+            taskUpdateRequest.getFragment().ifPresent(fragment -> planFragment = planFragmentDecoder.get().decode(fragment, contentType));
             for (TaskSource source : taskUpdateRequest.getSources()) {
                 taskSourceMap.compute(source.getPlanNodeId(), (planNodeId, taskSource) -> taskSource == null ? source : taskSource.update(source));
             }
@@ -488,6 +572,21 @@ public class TestHttpRemoteTask
             return buildTaskInfo();
         }
 
+        public synchronized void setRejectSmileUpdates(boolean rejectSmileUpdates)
+        {
+            this.rejectSmileUpdates = rejectSmileUpdates;
+        }
+
+        public synchronized String getTaskUpdateContentType()
+        {
+            return taskUpdateContentType;
+        }
+
+        public synchronized PlanFragment getPlanFragment()
+        {
+            return planFragment;
+        }
+
         public synchronized TaskSource getTaskSource(PlanNodeId planNodeId)
         {
             TaskSource source = taskSourceMap.get(planNodeId);
@@ -499,7 +598,7 @@ public class TestHttpRemoteTask
 
         @GET
         @Path("{taskId}/status")
-        @Produces(MediaType.APPLICATION_JSON)
+        @Produces({MediaType.APPLICATION_JSON, JACKSON_SMILE})
         public synchronized TaskStatus getTaskStatus(
                 @PathParam("taskId") TaskId taskId,
                 @HeaderParam(TRINO_CURRENT_VERSION) Long currentVersion,
@@ -515,7 +614,7 @@ public class TestHttpRemoteTask
 
         @GET
         @Path("{taskId}/dynamicfilters")
-        @Produces(MediaType.APPLICATION_JSON)
+        @Produces({MediaType.APPLICATION_JSON, JACKSON_SMILE})
         public synchronized VersionedDynamicFilterDomains acknowledgeAndGetNewDynamicFilterDomains(
                 @PathParam("taskId") TaskId taskId,
                 @HeaderParam(TRINO_CURRENT_VERSION) Long currentDynamicFiltersVersion,
@@ -527,7 +626,7 @@ public class TestHttpRemoteTask
 
         @DELETE
         @Path("{taskId}")
-        @Produces(MediaType.APPLICATION_JSON)
+        @Produces({MediaType.APPLICATION_JSON, JACKSON_SMILE})
         public synchronized TaskInfo deleteTask(
                 @PathParam("taskId") TaskId taskId,
                 @QueryParam("abort") @DefaultValue("true") boolean abort,
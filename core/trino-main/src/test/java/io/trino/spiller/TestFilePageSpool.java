@@ -0,0 +1,138 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.spiller;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import io.trino.execution.buffer.PageSpool;
+import io.trino.execution.buffer.PagesSerde;
+import io.trino.execution.buffer.PagesSerdeFactory;
+import io.trino.execution.buffer.SerializedPage;
+import io.trino.spi.Page;
+import io.trino.spi.block.BlockBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.MoreFiles.listFiles;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static io.trino.metadata.MetadataManager.createTestMetadataManager;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestFilePageSpool
+{
+    private final ListeningExecutorService executor = listeningDecorator(newCachedThreadPool());
+    private final File spillPath = Files.createTempDir();
+    private final PagesSerde serde = new PagesSerdeFactory(createTestMetadataManager().getBlockEncodingSerde(), false).createPagesSerde();
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        executor.shutdown();
+        deleteRecursively(spillPath.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testSpool()
+            throws Exception
+    {
+        assertSpool(false);
+    }
+
+    @Test
+    public void testSpoolEncryption()
+            throws Exception
+    {
+        assertSpool(true);
+    }
+
+    private void assertSpool(boolean encryption)
+            throws Exception
+    {
+        FileSingleStreamSpillerFactory spillerFactory = new FileSingleStreamSpillerFactory(
+                executor, // executor won't be closed, because we don't call destroy() on the spiller factory
+                createTestMetadataManager().getBlockEncodingSerde(),
+                new SpillerStats(),
+                ImmutableList.of(spillPath.toPath()),
+                1.0,
+                false,
+                encryption);
+        AtomicLong spilledBytes = new AtomicLong();
+        PageSpool spool = spillerFactory.createPageSpool(spilledBytes::addAndGet);
+        assertEquals(listFiles(spillPath.toPath()).size(), 1);
+        assertTrue(spool.isEmpty());
+
+        List<SerializedPage> pages = ImmutableList.of(serializePage(0), serializePage(1), serializePage(2));
+        spool.write(pages.subList(0, 2));
+        spool.write(pages.subList(2, 3));
+        assertFalse(spool.isEmpty());
+        assertTrue(spilledBytes.get() > 0);
+
+        // at least one page is returned regardless of the max size
+        assertPagesEqual(spool.read(1), pages.subList(0, 1));
+        assertPagesEqual(spool.read(Long.MAX_VALUE), pages.subList(1, 3));
+        assertTrue(spool.isEmpty());
+        // the spool file is truncated once all pages are read
+        assertEquals(spilledBytes.get(), 0);
+        assertEquals(spool.read(Long.MAX_VALUE), ImmutableList.of());
+
+        // the spool can be written again after it was drained
+        spool.write(pages.subList(0, 1));
+        assertTrue(spilledBytes.get() > 0);
+
+        spool.close();
+        assertEquals(spilledBytes.get(), 0);
+        assertEquals(listFiles(spillPath.toPath()).size(), 0);
+
+        // pages written by producers that have not observed the close are ignored
+        spool.write(pages);
+        assertTrue(spool.isEmpty());
+        assertEquals(spool.read(Long.MAX_VALUE), ImmutableList.of());
+        assertEquals(spilledBytes.get(), 0);
+    }
+
+    private SerializedPage serializePage(long value)
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, 100);
+        for (int i = 0; i < 100; i++) {
+            BIGINT.writeLong(blockBuilder, value + i);
+        }
+        try (PagesSerde.PagesSerdeContext context = serde.newContext()) {
+            return serde.serialize(context, new Page(blockBuilder.build()));
+        }
+    }
+
+    private static void assertPagesEqual(List<SerializedPage> actual, List<SerializedPage> expected)
+    {
+        assertEquals(actual.size(), expected.size());
+        for (int i = 0; i < actual.size(); i++) {
+            assertEquals(actual.get(i).getSlice(), expected.get(i).getSlice());
+            assertEquals(actual.get(i).getPageCodecMarkers(), expected.get(i).getPageCodecMarkers());
+            assertEquals(actual.get(i).getPositionCount(), expected.get(i).getPositionCount());
+            assertEquals(actual.get(i).getUncompressedSizeInBytes(), expected.get(i).getUncompressedSizeInBytes());
+        }
+    }
+}
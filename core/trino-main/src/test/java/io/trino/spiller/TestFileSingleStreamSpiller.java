@@ -38,6 +38,8 @@ import static com.google.common.io.MoreFiles.deleteRecursively;
 import static com.google.common.io.MoreFiles.listFiles;
 import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
 import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static io.trino.execution.buffer.CompressionCodec.LZ4;
+import static io.trino.execution.buffer.CompressionCodec.ZSTD;
 import static io.trino.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
 import static io.trino.metadata.MetadataManager.createTestMetadataManager;
 import static io.trino.spi.type.BigintType.BIGINT;
@@ -47,12 +49,14 @@ import static java.lang.Double.doubleToLongBits;
 import static java.nio.file.Files.newInputStream;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestFileSingleStreamSpiller
 {
     private static final List<Type> TYPES = ImmutableList.of(BIGINT, DOUBLE, VARBINARY);
+    private static final int POSITIONS_PER_PAGE = 10;
 
     private final ListeningExecutorService executor = listeningDecorator(newCachedThreadPool());
     private final File spillPath = Files.createTempDir();
@@ -112,7 +116,7 @@ public class TestFileSingleStreamSpiller
         Page page = buildPage();
 
         // The spillers will reserve memory in their constructors
-        assertEquals(memoryContext.getBytes(), 4096);
+        assertEquals(memoryContext.getBytes(), FileSingleStreamSpiller.getMemoryReservation(1));
         spiller.spill(page).get();
         spiller.spill(Iterators.forArray(page, page, page)).get();
         assertEquals(listFiles(spillPath.toPath()).size(), 1);
@@ -131,7 +135,7 @@ public class TestFileSingleStreamSpiller
         // assertEquals(memoryContext.getBytes(), 0);
 
         Iterator<Page> spilledPagesIterator = spiller.getSpilledPages();
-        assertEquals(memoryContext.getBytes(), FileSingleStreamSpiller.BUFFER_SIZE);
+        assertEquals(memoryContext.getBytes(), FileSingleStreamSpiller.getMemoryReservation(1));
         ImmutableList<Page> spilledPages = ImmutableList.copyOf(spilledPagesIterator);
         // The spillers release their memory reservations when they are closed, therefore at this point
         // they will have non-zero memory reservation.
@@ -147,15 +151,141 @@ public class TestFileSingleStreamSpiller
         assertEquals(memoryContext.getBytes(), 0);
     }
 
+    @Test
+    public void testSpillStriping()
+            throws Exception
+    {
+        File firstSpillPath = Files.createTempDir();
+        File secondSpillPath = Files.createTempDir();
+        try {
+            FileSingleStreamSpillerFactory spillerFactory = new FileSingleStreamSpillerFactory(
+                    executor, // executor won't be closed, because we don't call destroy() on the spiller factory
+                    createTestMetadataManager().getBlockEncodingSerde(),
+                    new SpillerStats(),
+                    ImmutableList.of(firstSpillPath.toPath(), secondSpillPath.toPath()),
+                    1.0,
+                    true,
+                    false,
+                    true);
+            LocalMemoryContext memoryContext = newSimpleAggregatedMemoryContext().newLocalMemoryContext("test");
+            SingleStreamSpiller spiller = spillerFactory.create(TYPES, bytes -> {}, memoryContext);
+            assertEquals(memoryContext.getBytes(), FileSingleStreamSpiller.getMemoryReservation(2));
+
+            List<Page> pages = ImmutableList.of(buildPage(1), buildPage(2), buildPage(3), buildPage(4), buildPage(5));
+            spiller.spill(pages.get(0)).get();
+            spiller.spill(pages.subList(1, pages.size()).iterator()).get();
+            assertEquals(listFiles(firstSpillPath.toPath()).size(), 1);
+            assertEquals(listFiles(secondSpillPath.toPath()).size(), 1);
+
+            List<Page> spilledPages = spiller.getAllSpilledPages().get();
+            assertEquals(spilledPages.size(), pages.size());
+            for (int i = 0; i < pages.size(); ++i) {
+                PageAssertions.assertPageEquals(TYPES, spilledPages.get(i), pages.get(i));
+            }
+
+            spiller.close();
+            assertEquals(listFiles(firstSpillPath.toPath()).size(), 0);
+            assertEquals(listFiles(secondSpillPath.toPath()).size(), 0);
+            assertEquals(memoryContext.getBytes(), 0);
+        }
+        finally {
+            deleteRecursively(firstSpillPath.toPath(), ALLOW_INSECURE);
+            deleteRecursively(secondSpillPath.toPath(), ALLOW_INSECURE);
+        }
+    }
+
+    @Test
+    public void testReadAhead()
+            throws Exception
+    {
+        FileSingleStreamSpillerFactory spillerFactory = new FileSingleStreamSpillerFactory(
+                executor, // executor won't be closed, because we don't call destroy() on the spiller factory
+                createTestMetadataManager().getBlockEncodingSerde(),
+                new SpillerStats(),
+                ImmutableList.of(spillPath.toPath()),
+                1.0,
+                false,
+                false);
+        LocalMemoryContext memoryContext = newSimpleAggregatedMemoryContext().newLocalMemoryContext("test");
+        try (SingleStreamSpiller spiller = spillerFactory.create(TYPES, bytes -> {}, memoryContext)) {
+            // spill enough pages for the reads to span multiple read ahead batches
+            ImmutableList.Builder<Page> pages = ImmutableList.builder();
+            for (int i = 0; i < 2_000; ++i) {
+                pages.add(buildPage(i));
+            }
+            List<Page> expectedPages = pages.build();
+            spiller.spill(expectedPages.iterator()).get();
+
+            List<Page> spilledPages = ImmutableList.copyOf(spiller.getSpilledPages());
+            assertEquals(spilledPages.size(), expectedPages.size());
+            for (int i = 0; i < expectedPages.size(); ++i) {
+                PageAssertions.assertPageEquals(TYPES, spilledPages.get(i), expectedPages.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testReadAheadLargePages()
+            throws Exception
+    {
+        FileSingleStreamSpillerFactory spillerFactory = new FileSingleStreamSpillerFactory(
+                executor, // executor won't be closed, because we don't call destroy() on the spiller factory
+                createTestMetadataManager().getBlockEncodingSerde(),
+                new SpillerStats(),
+                ImmutableList.of(spillPath.toPath()),
+                1.0,
+                false,
+                false);
+        LocalMemoryContext memoryContext = newSimpleAggregatedMemoryContext().newLocalMemoryContext("test");
+        try (SingleStreamSpiller spiller = spillerFactory.create(ImmutableList.of(BIGINT), bytes -> {}, memoryContext)) {
+            // pages larger than the buffer of the spiller
+            int positionsPerPage = 100_000;
+            ImmutableList.Builder<Page> pages = ImmutableList.builder();
+            for (int i = 0; i < 10; ++i) {
+                BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, positionsPerPage);
+                for (int position = 0; position < positionsPerPage; position++) {
+                    BIGINT.writeLong(blockBuilder, i);
+                }
+                pages.add(new Page(blockBuilder.build()));
+            }
+            List<Page> expectedPages = pages.build();
+            spiller.spill(expectedPages.iterator()).get();
+
+            Iterator<Page> spilledPages = spiller.getSpilledPages();
+            for (Page expectedPage : expectedPages) {
+                PageAssertions.assertPageEquals(ImmutableList.of(BIGINT), spilledPages.next(), expectedPage);
+                // the reservation covers the serialized page being consumed and the one being read ahead
+                assertTrue(memoryContext.getBytes() >= 2L * positionsPerPage * Long.BYTES);
+            }
+            assertFalse(spilledPages.hasNext());
+        }
+        assertEquals(memoryContext.getBytes(), 0);
+    }
+
+    @Test
+    public void testCompressionCodec()
+    {
+        assertEquals(FileSingleStreamSpillerFactory.getCompressionCodec(ImmutableList.of(BIGINT, DOUBLE)), LZ4);
+        assertEquals(FileSingleStreamSpillerFactory.getCompressionCodec(TYPES), ZSTD);
+    }
+
     private Page buildPage()
     {
-        BlockBuilder col1 = BIGINT.createBlockBuilder(null, 1);
-        BlockBuilder col2 = DOUBLE.createBlockBuilder(null, 1);
-        BlockBuilder col3 = VARBINARY.createBlockBuilder(null, 1);
+        return buildPage(42);
+    }
 
-        col1.writeLong(42).closeEntry();
-        col2.writeLong(doubleToLongBits(43.0)).closeEntry();
-        col3.writeLong(doubleToLongBits(43.0)).writeLong(1).closeEntry();
+    private Page buildPage(long value)
+    {
+        BlockBuilder col1 = BIGINT.createBlockBuilder(null, POSITIONS_PER_PAGE);
+        BlockBuilder col2 = DOUBLE.createBlockBuilder(null, POSITIONS_PER_PAGE);
+        BlockBuilder col3 = VARBINARY.createBlockBuilder(null, POSITIONS_PER_PAGE);
+
+        // repeated values, so the page is compressible with any codec
+        for (int i = 0; i < POSITIONS_PER_PAGE; i++) {
+            col1.writeLong(value).closeEntry();
+            col2.writeLong(doubleToLongBits(43.0)).closeEntry();
+            col3.writeLong(doubleToLongBits(43.0)).writeLong(1).closeEntry();
+        }
 
         return new Page(col1.build(), col2.build(), col3.build());
     }
@@ -34,7 +34,8 @@ public class TestNodeSpillConfig
                 .setMaxSpillPerNode(DataSize.of(100, GIGABYTE))
                 .setQueryMaxSpillPerNode(DataSize.of(100, GIGABYTE))
                 .setSpillCompressionEnabled(false)
-                .setSpillEncryptionEnabled(false));
+                .setSpillEncryptionEnabled(false)
+                .setSpillStripingEnabled(false));
     }
 
     @Test
@@ -45,13 +46,15 @@ public class TestNodeSpillConfig
                 .put("query-max-spill-per-node", "15 MB")
                 .put("spill-compression-enabled", "true")
                 .put("spill-encryption-enabled", "true")
+                .put("spill-striping-enabled", "true")
                 .build();
 
         NodeSpillConfig expected = new NodeSpillConfig()
                 .setMaxSpillPerNode(DataSize.of(10, MEGABYTE))
                 .setQueryMaxSpillPerNode(DataSize.of(15, MEGABYTE))
                 .setSpillCompressionEnabled(true)
-                .setSpillEncryptionEnabled(true);
+                .setSpillEncryptionEnabled(true)
+                .setSpillStripingEnabled(true);
 
         assertFullMapping(properties, expected);
     }
@@ -0,0 +1,342 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.split;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Guice;
+import io.airlift.json.JsonCodecFactory;
+import io.airlift.json.JsonModule;
+import io.airlift.units.DataSize;
+import io.trino.connector.CatalogName;
+import io.trino.connector.system.SystemColumnHandle;
+import io.trino.connector.system.SystemTableHandle;
+import io.trino.execution.Lifespan;
+import io.trino.metadata.HandleJsonModule;
+import io.trino.metadata.Metadata;
+import io.trino.metadata.Split;
+import io.trino.metadata.TableHandle;
+import io.trino.spi.HostAddress;
+import io.trino.spi.Page;
+import io.trino.spi.block.Block;
+import io.trino.spi.block.BlockBuilder;
+import io.trino.spi.connector.ColumnHandle;
+import io.trino.spi.connector.ConnectorSplit;
+import io.trino.spi.connector.ConnectorTableHandle;
+import io.trino.spi.connector.DynamicFilter;
+import io.trino.spi.predicate.TupleDomain;
+import io.trino.spi.type.ArrayType;
+import io.trino.spi.type.Type;
+import io.trino.split.SplitCache.ScanCache;
+import io.trino.sql.relational.RowExpression;
+import io.trino.sql.tree.QualifiedName;
+import io.trino.testing.TestingTransactionHandle;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.MoreFiles.listFiles;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.trino.SequencePageBuilder.createSequencePage;
+import static io.trino.SessionTestUtils.TEST_SESSION;
+import static io.trino.block.BlockAssertions.createLongsBlock;
+import static io.trino.metadata.MetadataManager.createTestMetadataManager;
+import static io.trino.operator.PageAssertions.assertPageEquals;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.DoubleType.DOUBLE;
+import static io.trino.spi.type.VarcharType.VARCHAR;
+import static io.trino.sql.analyzer.TypeSignatureProvider.fromTypes;
+import static io.trino.sql.relational.Expressions.call;
+import static io.trino.sql.relational.Expressions.constant;
+import static io.trino.sql.relational.Expressions.field;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestSplitCache
+{
+    private static final List<Type> TYPES = ImmutableList.of(BIGINT, BIGINT);
+    private static final TableHandle TABLE = new TableHandle(
+            new CatalogName("system"),
+            new SystemTableHandle("schema", "table", TupleDomain.all()),
+            TestingTransactionHandle.create(),
+            Optional.empty());
+    private static final List<ColumnHandle> COLUMNS = ImmutableList.of(new SystemColumnHandle("a"), new SystemColumnHandle("b"));
+    private static final List<RowExpression> PROJECTIONS = ImmutableList.of(field(0, BIGINT), field(1, BIGINT));
+
+    private final Metadata metadata = createTestMetadataManager();
+    private final JsonCodecFactory codecFactory;
+    private Path directory;
+
+    public TestSplitCache()
+    {
+        ObjectMapper objectMapper = Guice.createInjector(new JsonModule(), new HandleJsonModule()).getInstance(ObjectMapper.class);
+        codecFactory = new JsonCodecFactory(() -> objectMapper);
+    }
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        directory = Files.createTempDirectory("split-cache");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        deleteRecursively(directory, ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testRoundTrip()
+    {
+        SplitCache splitCache = createSplitCache(DataSize.of(1, DataSize.Unit.MEGABYTE));
+        ScanCache scanCache = splitCache.createScanCache(TEST_SESSION, TABLE, COLUMNS, Optional.empty(), PROJECTIONS, DynamicFilter.EMPTY).orElseThrow();
+
+        assertTrue(scanCache.getSplitKey(createSplit(Optional.empty())).isEmpty());
+        String key = scanCache.getSplitKey(createSplit(Optional.of("file"))).orElseThrow();
+        assertTrue(scanCache.read(key).isEmpty());
+
+        List<Page> pages = ImmutableList.of(createSequencePage(TYPES, 100), createSequencePage(TYPES, 10, 100, 200));
+        try (SplitCache.Writer writer = scanCache.write(key)) {
+            pages.forEach(writer::append);
+            writer.commit();
+        }
+        assertEquals(splitCache.getCachedSplitCount(), 1);
+
+        try (SplitCache.Reader reader = scanCache.read(key).orElseThrow()) {
+            List<Page> cachedPages = ImmutableList.copyOf(reader);
+            assertEquals(cachedPages.size(), pages.size());
+            for (int i = 0; i < pages.size(); i++) {
+                assertPageEquals(TYPES, cachedPages.get(i), pages.get(i));
+            }
+        }
+        assertEquals(splitCache.getIndexStats().getHitRate(), 0.5);
+    }
+
+    @Test
+    public void testAbort()
+            throws IOException
+    {
+        SplitCache splitCache = createSplitCache(DataSize.of(1, DataSize.Unit.MEGABYTE));
+        ScanCache scanCache = splitCache.createScanCache(TEST_SESSION, TABLE, COLUMNS, Optional.empty(), PROJECTIONS, DynamicFilter.EMPTY).orElseThrow();
+        String key = scanCache.getSplitKey(createSplit(Optional.of("file"))).orElseThrow();
+
+        // closing the writer before all pages of the split were written discards them
+        try (SplitCache.Writer writer = scanCache.write(key)) {
+            writer.append(createSequencePage(TYPES, 100));
+        }
+        assertTrue(scanCache.read(key).isEmpty());
+        assertTrue(listFiles(directory).isEmpty());
+    }
+
+    @Test
+    public void testMaxSplitSize()
+            throws IOException
+    {
+        SplitCache splitCache = createSplitCache(DataSize.of(1, DataSize.Unit.KILOBYTE));
+        ScanCache scanCache = splitCache.createScanCache(TEST_SESSION, TABLE, COLUMNS, Optional.empty(), PROJECTIONS, DynamicFilter.EMPTY).orElseThrow();
+        String key = scanCache.getSplitKey(createSplit(Optional.of("file"))).orElseThrow();
+
+        try (SplitCache.Writer writer = scanCache.write(key)) {
+            writer.append(createSequencePage(TYPES, 10_000));
+            writer.commit();
+        }
+        assertTrue(scanCache.read(key).isEmpty());
+        assertEquals(splitCache.getRejectedSplits().getTotalCount(), 1);
+        assertTrue(listFiles(directory).isEmpty());
+    }
+
+    @Test
+    public void testEviction()
+            throws IOException
+    {
+        SplitCache splitCache = new SplitCache(
+                new SplitCacheConfig()
+                        .setEnabled(true)
+                        .setDirectory(directory.toString())
+                        .setMaxSize(DataSize.of(40, DataSize.Unit.KILOBYTE)),
+                metadata,
+                codecFactory.jsonCodec(ConnectorTableHandle.class),
+                codecFactory.jsonCodec(ColumnHandle.class));
+        ScanCache scanCache = splitCache.createScanCache(TEST_SESSION, TABLE, COLUMNS, Optional.empty(), PROJECTIONS, DynamicFilter.EMPTY).orElseThrow();
+
+        for (int i = 0; i < 10; i++) {
+            String key = scanCache.getSplitKey(createSplit(Optional.of("file" + i))).orElseThrow();
+            try (SplitCache.Writer writer = scanCache.write(key)) {
+                writer.append(createRandomPage(1000));
+                writer.commit();
+            }
+        }
+        assertTrue(splitCache.getCachedSplitCount() < 10);
+        assertEquals(listFiles(directory).size(), splitCache.getCachedSplitCount());
+        assertTrue(splitCache.getCachedBytes() <= DataSize.of(40, DataSize.Unit.KILOBYTE).toBytes());
+
+        splitCache.invalidateAll();
+        assertTrue(listFiles(directory).isEmpty());
+    }
+
+    @Test
+    public void testScanKey()
+    {
+        SplitCache splitCache = createSplitCache(DataSize.of(1, DataSize.Unit.MEGABYTE));
+        Split split = createSplit(Optional.of("file"));
+
+        String key = splitCache.createScanCache(TEST_SESSION, TABLE, COLUMNS, Optional.empty(), PROJECTIONS, DynamicFilter.EMPTY).orElseThrow()
+                .getSplitKey(split).orElseThrow();
+        assertEquals(
+                splitCache.createScanCache(TEST_SESSION, TABLE, COLUMNS, Optional.empty(), PROJECTIONS, DynamicFilter.EMPTY).orElseThrow().getSplitKey(split),
+                Optional.of(key));
+        assertNotEquals(
+                splitCache.createScanCache(TEST_SESSION, TABLE, COLUMNS, Optional.empty(), PROJECTIONS.subList(0, 1), DynamicFilter.EMPTY).orElseThrow().getSplitKey(split),
+                Optional.of(key));
+        assertNotEquals(
+                splitCache.createScanCache(TEST_SESSION, TABLE, COLUMNS.subList(0, 1), Optional.empty(), PROJECTIONS.subList(0, 1), DynamicFilter.EMPTY).orElseThrow().getSplitKey(split),
+                Optional.of(key));
+        assertNotEquals(
+                splitCache.createScanCache(TEST_SESSION, TABLE, COLUMNS, Optional.empty(), PROJECTIONS, DynamicFilter.EMPTY).orElseThrow().getSplitKey(createSplit(Optional.of("other"))),
+                Optional.of(key));
+
+        // the pushed down predicate is part of the table handle
+        TableHandle filteredTable = new TableHandle(
+                TABLE.getCatalogName(),
+                new SystemTableHandle("schema", "table", TupleDomain.none()),
+                TABLE.getTransaction(),
+                Optional.empty());
+        assertNotEquals(
+                splitCache.createScanCache(TEST_SESSION, filteredTable, COLUMNS, Optional.empty(), PROJECTIONS, DynamicFilter.EMPTY).orElseThrow().getSplitKey(split),
+                Optional.of(key));
+    }
+
+    @Test
+    public void testConstantsInScanKey()
+    {
+        SplitCache splitCache = createSplitCache(DataSize.of(1, DataSize.Unit.MEGABYTE));
+        Split split = createSplit(Optional.of("file"));
+
+        // arrays of the same length with different elements
+        RowExpression firstArray = constant(createLongsBlock(1, 2, 3), new ArrayType(BIGINT));
+        RowExpression secondArray = constant(createLongsBlock(4, 5, 6), new ArrayType(BIGINT));
+        assertNotEquals(
+                splitCache.createScanCache(TEST_SESSION, TABLE, COLUMNS, Optional.empty(), ImmutableList.of(firstArray), DynamicFilter.EMPTY).orElseThrow().getSplitKey(split),
+                splitCache.createScanCache(TEST_SESSION, TABLE, COLUMNS, Optional.empty(), ImmutableList.of(secondArray), DynamicFilter.EMPTY).orElseThrow().getSplitKey(split));
+
+        // equal strings in different slices
+        RowExpression firstString = constant(utf8Slice("value"), VARCHAR);
+        RowExpression secondString = constant(utf8Slice("value"), VARCHAR);
+        RowExpression otherString = constant(utf8Slice("other"), VARCHAR);
+        Optional<String> key = splitCache.createScanCache(TEST_SESSION, TABLE, COLUMNS, Optional.of(firstString), PROJECTIONS, DynamicFilter.EMPTY).orElseThrow().getSplitKey(split);
+        assertEquals(
+                splitCache.createScanCache(TEST_SESSION, TABLE, COLUMNS, Optional.of(secondString), PROJECTIONS, DynamicFilter.EMPTY).orElseThrow().getSplitKey(split),
+                key);
+        assertNotEquals(
+                splitCache.createScanCache(TEST_SESSION, TABLE, COLUMNS, Optional.of(otherString), PROJECTIONS, DynamicFilter.EMPTY).orElseThrow().getSplitKey(split),
+                key);
+    }
+
+    @Test
+    public void testUncacheableScans()
+    {
+        assertTrue(new SplitCache(new SplitCacheConfig(), metadata, codecFactory.jsonCodec(ConnectorTableHandle.class), codecFactory.jsonCodec(ColumnHandle.class))
+                .createScanCache(TEST_SESSION, TABLE, COLUMNS, Optional.empty(), PROJECTIONS, DynamicFilter.EMPTY)
+                .isEmpty());
+
+        SplitCache splitCache = createSplitCache(DataSize.of(1, DataSize.Unit.MEGABYTE));
+        RowExpression random = call(metadata.resolveFunction(QualifiedName.of("random"), fromTypes(BIGINT)), constant(10L, BIGINT));
+        assertFalse(splitCache.createScanCache(TEST_SESSION, TABLE, COLUMNS, Optional.empty(), ImmutableList.of(random), DynamicFilter.EMPTY).isPresent());
+
+        RowExpression now = call(metadata.resolveFunction(QualifiedName.of("now"), ImmutableList.of()));
+        assertFalse(splitCache.createScanCache(TEST_SESSION, TABLE, COLUMNS, Optional.empty(), ImmutableList.of(now), DynamicFilter.EMPTY).isPresent());
+
+        List<RowExpression> castProjections = PROJECTIONS.stream()
+                .map(projection -> call(metadata.getCoercion(BIGINT, DOUBLE), projection))
+                .collect(toImmutableList());
+        assertTrue(splitCache.createScanCache(TEST_SESSION, TABLE, COLUMNS, Optional.empty(), castProjections, DynamicFilter.EMPTY).isPresent());
+    }
+
+    private SplitCache createSplitCache(DataSize maxSplitSize)
+    {
+        return new SplitCache(
+                new SplitCacheConfig()
+                        .setEnabled(true)
+                        .setDirectory(directory.toString())
+                        .setMaxSplitSize(maxSplitSize),
+                metadata,
+                codecFactory.jsonCodec(ConnectorTableHandle.class),
+                codecFactory.jsonCodec(ColumnHandle.class));
+    }
+
+    private static Page createRandomPage(int positionCount)
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, positionCount);
+        for (int i = 0; i < positionCount; i++) {
+            BIGINT.writeLong(blockBuilder, ThreadLocalRandom.current().nextLong());
+        }
+        Block block = blockBuilder.build();
+        return new Page(block, block);
+    }
+
+    private static Split createSplit(Optional<String> cacheIdentifier)
+    {
+        return new Split(new CatalogName("system"), new CacheableSplit(cacheIdentifier), Lifespan.taskWide());
+    }
+
+    private static class CacheableSplit
+            implements ConnectorSplit
+    {
+        private final Optional<String> cacheIdentifier;
+
+        public CacheableSplit(Optional<String> cacheIdentifier)
+        {
+            this.cacheIdentifier = cacheIdentifier;
+        }
+
+        @Override
+        public boolean isRemotelyAccessible()
+        {
+            return true;
+        }
+
+        @Override
+        public List<HostAddress> getAddresses()
+        {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public Object getInfo()
+        {
+            return cacheIdentifier;
+        }
+
+        @Override
+        public Optional<String> getCacheIdentifier()
+        {
+            return cacheIdentifier;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.split;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.DataSize;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static io.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
+import static io.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
+import static io.airlift.configuration.testing.ConfigAssertions.recordDefaults;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+
+public class TestSplitCacheConfig
+{
+    @Test
+    public void testDefaults()
+    {
+        assertRecordedDefaults(recordDefaults(SplitCacheConfig.class)
+                .setEnabled(false)
+                .setDirectory(null)
+                .setMaxSize(DataSize.of(10, GIGABYTE))
+                .setMaxSplitSize(DataSize.of(64, MEGABYTE)));
+    }
+
+    @Test
+    public void testExplicitPropertyMappings()
+    {
+        Map<String, String> properties = new ImmutableMap.Builder<String, String>()
+                .put("split-cache.enabled", "true")
+                .put("split-cache.directory", "/tmp/split-cache")
+                .put("split-cache.max-size", "1GB")
+                .put("split-cache.max-split-size", "16MB")
+                .build();
+
+        SplitCacheConfig expected = new SplitCacheConfig()
+                .setEnabled(true)
+                .setDirectory("/tmp/split-cache")
+                .setMaxSize(DataSize.of(1, GIGABYTE))
+                .setMaxSplitSize(DataSize.of(16, MEGABYTE));
+
+        assertFullMapping(properties, expected);
+    }
+}
@@ -16,16 +16,21 @@ package io.trino.sql.analyzer;
 import com.google.common.collect.ImmutableMap;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
+import io.trino.execution.buffer.ExchangeCompressionCodec;
 import io.trino.sql.analyzer.FeaturesConfig.DataIntegrityVerification;
 import io.trino.sql.analyzer.FeaturesConfig.JoinDistributionType;
 import io.trino.sql.analyzer.FeaturesConfig.JoinReorderingStrategy;
 import org.testng.annotations.Test;
 
+import javax.validation.constraints.AssertTrue;
+
 import java.util.Map;
 
 import static io.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
 import static io.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
 import static io.airlift.configuration.testing.ConfigAssertions.recordDefaults;
+import static io.airlift.testing.ValidationAssertions.assertFailsValidation;
+import static io.airlift.testing.ValidationAssertions.assertValidates;
 import static io.airlift.units.DataSize.Unit.GIGABYTE;
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
@@ -61,6 +66,8 @@ public class TestFeaturesConfig
                 .setWriterMinSize(DataSize.of(32, MEGABYTE))
                 .setOptimizeMetadataQueries(false)
                 .setOptimizeHashGeneration(true)
+                .setSpreadOuterJoinNullKeys(false)
+                .setHeavyHitterDetectionEnabled(false)
                 .setPushTableWriteThroughUnion(true)
                 .setDictionaryAggregation(false)
                 .setRegexLibrary(JONI)
@@ -81,9 +88,14 @@ public class TestFeaturesConfig
                 .setEnableStatsCalculator(true)
                 .setCollectPlanStatisticsForAllQueries(false)
                 .setIgnoreStatsCalculatorFailures(true)
+                .setHistoryBasedStatisticsEnabled(false)
+                .setAdaptiveJoinReplanningEnabled(false)
                 .setDefaultFilterFactorEnabled(false)
                 .setEnableForcedExchangeBelowGroupId(true)
                 .setExchangeCompressionEnabled(false)
+                .setExchangeCompressionCodec(ExchangeCompressionCodec.LZ4)
+                .setExchangeCompressionNetworkThroughput(DataSize.of(125, MEGABYTE))
+                .setExchangeSpoolingEnabled(false)
                 .setExchangeDataIntegrityVerification(DataIntegrityVerification.ABORT)
                 .setEnableIntermediateAggregations(false)
                 .setPushAggregationThroughOuterJoin(true)
@@ -95,6 +107,9 @@ public class TestFeaturesConfig
                 .setFilterAndProjectMinOutputPageRowCount(256)
                 .setUseMarkDistinct(true)
                 .setPreferPartialAggregation(true)
+                .setAdaptivePartialAggregationEnabled(true)
+                .setAdaptivePartialAggregationMinRows(100_000)
+                .setAdaptivePartialAggregationUniqueRowsRatioThreshold(0.8)
                 .setOptimizeTopNRanking(true)
                 .setDistributedSortEnabled(true)
                 .setMaxRecursionDepth(10)
@@ -122,6 +137,8 @@ public class TestFeaturesConfig
                 .put("enable-stats-calculator", "false")
                 .put("collect-plan-statistics-for-all-queries", "true")
                 .put("optimizer.ignore-stats-calculator-failures", "false")
+                .put("optimizer.history-based-statistics-enabled", "true")
+                .put("optimizer.adaptive-join-replanning-enabled", "true")
                 .put("optimizer.default-filter-factor-enabled", "true")
                 .put("enable-forced-exchange-below-group-id", "false")
                 .put("distributed-index-joins-enabled", "true")
@@ -140,6 +157,8 @@ public class TestFeaturesConfig
                 .put("writer-min-size", "42GB")
                 .put("optimizer.optimize-metadata-queries", "true")
                 .put("optimizer.optimize-hash-generation", "false")
+                .put("optimizer.spread-outer-join-null-keys", "true")
+                .put("heavy-hitter-detection.enabled", "true")
                 .put("optimizer.optimize-mixed-distinct-aggregations", "true")
                 .put("optimizer.unwrap-casts", "false")
                 .put("optimizer.push-table-write-through-union", "false")
@@ -159,6 +178,9 @@ public class TestFeaturesConfig
                 .put("memory-revoking-threshold", "0.2")
                 .put("memory-revoking-target", "0.8")
                 .put("exchange.compression-enabled", "true")
+                .put("exchange.compression-codec", "ADAPTIVE")
+                .put("exchange.compression-network-throughput", "1GB")
+                .put("exchange.spooling-enabled", "true")
                 .put("exchange.data-integrity-verification", "RETRY")
                 .put("optimizer.enable-intermediate-aggregations", "true")
                 .put("parse-decimal-literals-as-double", "true")
@@ -168,6 +190,9 @@ public class TestFeaturesConfig
                 .put("filter-and-project-min-output-page-row-count", "2048")
                 .put("optimizer.use-mark-distinct", "false")
                 .put("optimizer.prefer-partial-aggregation", "false")
+                .put("adaptive-partial-aggregation.enabled", "false")
+                .put("adaptive-partial-aggregation.min-rows", "1000")
+                .put("adaptive-partial-aggregation.unique-rows-ratio-threshold", "0.5")
                 .put("optimizer.optimize-top-n-ranking", "false")
                 .put("distributed-sort", "false")
                 .put("max-recursion-depth", "8")
@@ -192,6 +217,8 @@ public class TestFeaturesConfig
                 .setEnableStatsCalculator(false)
                 .setCollectPlanStatisticsForAllQueries(true)
                 .setIgnoreStatsCalculatorFailures(false)
+                .setHistoryBasedStatisticsEnabled(true)
+                .setAdaptiveJoinReplanningEnabled(true)
                 .setEnableForcedExchangeBelowGroupId(false)
                 .setDistributedIndexJoinsEnabled(true)
                 .setJoinDistributionType(BROADCAST)
@@ -209,6 +236,8 @@ public class TestFeaturesConfig
                 .setWriterMinSize(DataSize.of(42, GIGABYTE))
                 .setOptimizeMetadataQueries(true)
                 .setOptimizeHashGeneration(false)
+                .setSpreadOuterJoinNullKeys(true)
+                .setHeavyHitterDetectionEnabled(true)
                 .setOptimizeMixedDistinctAggregations(true)
                 .setUnwrapCasts(false)
                 .setPushTableWriteThroughUnion(false)
@@ -228,6 +257,9 @@ public class TestFeaturesConfig
                 .setMemoryRevokingThreshold(0.2)
                 .setMemoryRevokingTarget(0.8)
                 .setExchangeCompressionEnabled(true)
+                .setExchangeCompressionCodec(ExchangeCompressionCodec.ADAPTIVE)
+                .setExchangeCompressionNetworkThroughput(DataSize.of(1, GIGABYTE))
+                .setExchangeSpoolingEnabled(true)
                 .setExchangeDataIntegrityVerification(DataIntegrityVerification.RETRY)
                 .setEnableIntermediateAggregations(true)
                 .setParseDecimalLiteralsAsDouble(true)
@@ -237,6 +269,9 @@ public class TestFeaturesConfig
                 .setFilterAndProjectMinOutputPageRowCount(2048)
                 .setUseMarkDistinct(false)
                 .setPreferPartialAggregation(false)
+                .setAdaptivePartialAggregationEnabled(false)
+                .setAdaptivePartialAggregationMinRows(1000)
+                .setAdaptivePartialAggregationUniqueRowsRatioThreshold(0.5)
                 .setOptimizeTopNRanking(false)
                 .setDistributedSortEnabled(false)
                 .setMaxRecursionDepth(8)
@@ -254,4 +289,18 @@ public class TestFeaturesConfig
                 .setPlanWithTableNodePartitioning(false);
         assertFullMapping(properties, expected);
     }
+
+    @Test
+    public void testValidation()
+    {
+        assertValidates(new FeaturesConfig()
+                .setExchangeSpoolingEnabled(true)
+                .setSpillerSpillPaths("/tmp/spill"));
+
+        assertFailsValidation(
+                new FeaturesConfig().setExchangeSpoolingEnabled(true),
+                "spillPathsConfiguredIfExchangeSpoolingEnabled",
+                "spiller-spill-path must be configured when exchange.spooling-enabled is set",
+                AssertTrue.class);
+    }
 }
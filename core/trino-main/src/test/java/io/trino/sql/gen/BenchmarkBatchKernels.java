@@ -0,0 +1,184 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.sql.gen;
+
+import com.google.common.collect.ImmutableList;
+import io.trino.metadata.Metadata;
+import io.trino.operator.DriverYieldSignal;
+import io.trino.operator.project.PageProcessor;
+import io.trino.spi.Page;
+import io.trino.spi.PageBuilder;
+import io.trino.sql.relational.CallExpression;
+import io.trino.sql.relational.RowExpression;
+import io.trino.sql.relational.SpecialForm;
+import io.trino.sql.relational.SpecialForm.Form;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static io.trino.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static io.trino.metadata.MetadataManager.createTestMetadataManager;
+import static io.trino.spi.function.OperatorType.ADD;
+import static io.trino.spi.function.OperatorType.LESS_THAN;
+import static io.trino.spi.function.OperatorType.LESS_THAN_OR_EQUAL;
+import static io.trino.spi.function.OperatorType.MULTIPLY;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.BooleanType.BOOLEAN;
+import static io.trino.spi.type.DateType.DATE;
+import static io.trino.spi.type.IntegerType.INTEGER;
+import static io.trino.sql.relational.Expressions.constant;
+import static io.trino.sql.relational.Expressions.field;
+
+/**
+ * Compares the generated code of {@link PageFunctionCompiler} with the batch kernels
+ * for a filter and projections simple enough to be evaluated with the latter.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(5)
+@Warmup(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+public class BenchmarkBatchKernels
+{
+    private static final int POSITIONS = 10_000;
+
+    private static final int SHIP_DATE = 0;
+    private static final int QUANTITY = 1;
+    private static final int PRICE = 2;
+    private static final int DISCOUNT = 3;
+
+    // 1994-01-01 and 1995-01-01
+    private static final long MIN_SHIP_DATE = 8766;
+    private static final long MAX_SHIP_DATE = 9131;
+
+    @Param({"false", "true"})
+    private boolean batchKernelsEnabled;
+
+    private Page inputPage;
+    private PageProcessor filterAndProjectProcessor;
+    private PageProcessor projectProcessor;
+
+    @Setup
+    public void setup()
+    {
+        inputPage = createInputPage();
+
+        Metadata metadata = createTestMetadataManager();
+        ExpressionCompiler expressionCompiler = new ExpressionCompiler(metadata, new PageFunctionCompiler(metadata, 0, batchKernelsEnabled));
+        filterAndProjectProcessor = expressionCompiler.compilePageProcessor(
+                Optional.of(createFilterExpression(metadata)),
+                ImmutableList.of(createPriceTimesQuantityExpression(metadata))).get();
+        projectProcessor = expressionCompiler.compilePageProcessor(
+                Optional.empty(),
+                ImmutableList.of(createPriceTimesQuantityExpression(metadata), createDiscountPlusOneExpression(metadata))).get();
+    }
+
+    @Benchmark
+    public List<Optional<Page>> filterAndProject()
+    {
+        return process(filterAndProjectProcessor);
+    }
+
+    @Benchmark
+    public List<Optional<Page>> project()
+    {
+        return process(projectProcessor);
+    }
+
+    private List<Optional<Page>> process(PageProcessor processor)
+    {
+        return ImmutableList.copyOf(
+                processor.process(
+                        null,
+                        new DriverYieldSignal(),
+                        newSimpleAggregatedMemoryContext().newLocalMemoryContext(PageProcessor.class.getSimpleName()),
+                        inputPage));
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        BenchmarkBatchKernels benchmark = new BenchmarkBatchKernels();
+        benchmark.batchKernelsEnabled = true;
+        benchmark.setup();
+
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkBatchKernels.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+
+    private static Page createInputPage()
+    {
+        Random random = new Random(42);
+        PageBuilder pageBuilder = new PageBuilder(ImmutableList.of(DATE, BIGINT, BIGINT, INTEGER));
+        for (int i = 0; i < POSITIONS; i++) {
+            pageBuilder.declarePosition();
+            DATE.writeLong(pageBuilder.getBlockBuilder(SHIP_DATE), 8036 + random.nextInt(2526));
+            BIGINT.writeLong(pageBuilder.getBlockBuilder(QUANTITY), 1 + random.nextInt(50));
+            BIGINT.writeLong(pageBuilder.getBlockBuilder(PRICE), 90_000 + random.nextInt(10_000_000));
+            INTEGER.writeLong(pageBuilder.getBlockBuilder(DISCOUNT), random.nextInt(11));
+        }
+        return pageBuilder.build();
+    }
+
+    // where shipdate BETWEEN date '1994-01-01' AND date '1995-01-01'
+    //    and quantity < 24
+    private static RowExpression createFilterExpression(Metadata metadata)
+    {
+        return new SpecialForm(
+                Form.AND,
+                BOOLEAN,
+                new SpecialForm(
+                        Form.BETWEEN,
+                        BOOLEAN,
+                        ImmutableList.of(field(SHIP_DATE, DATE), constant(MIN_SHIP_DATE, DATE), constant(MAX_SHIP_DATE, DATE)),
+                        ImmutableList.of(metadata.resolveOperator(LESS_THAN_OR_EQUAL, ImmutableList.of(DATE, DATE)))),
+                new CallExpression(
+                        metadata.resolveOperator(LESS_THAN, ImmutableList.of(BIGINT, BIGINT)),
+                        ImmutableList.of(field(QUANTITY, BIGINT), constant(24L, BIGINT))));
+    }
+
+    private static RowExpression createPriceTimesQuantityExpression(Metadata metadata)
+    {
+        return new CallExpression(
+                metadata.resolveOperator(MULTIPLY, ImmutableList.of(BIGINT, BIGINT)),
+                ImmutableList.of(field(PRICE, BIGINT), field(QUANTITY, BIGINT)));
+    }
+
+    private static RowExpression createDiscountPlusOneExpression(Metadata metadata)
+    {
+        return new CallExpression(
+                metadata.resolveOperator(ADD, ImmutableList.of(INTEGER, INTEGER)),
+                ImmutableList.of(field(DISCOUNT, INTEGER), constant(1L, INTEGER)));
+    }
+}
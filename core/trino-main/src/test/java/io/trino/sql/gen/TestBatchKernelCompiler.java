@@ -0,0 +1,339 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.sql.gen;
+
+import com.google.common.collect.ImmutableList;
+import io.trino.metadata.Metadata;
+import io.trino.operator.DriverYieldSignal;
+import io.trino.operator.Work;
+import io.trino.operator.project.BatchArithmeticPageProjection;
+import io.trino.operator.project.BatchComparisonPageFilter;
+import io.trino.operator.project.PageFilter;
+import io.trino.operator.project.PageProjection;
+import io.trino.operator.project.SelectedPositions;
+import io.trino.spi.Page;
+import io.trino.spi.TrinoException;
+import io.trino.spi.block.Block;
+import io.trino.spi.block.DictionaryBlock;
+import io.trino.spi.function.OperatorType;
+import io.trino.spi.type.Type;
+import io.trino.sql.relational.CallExpression;
+import io.trino.sql.relational.RowExpression;
+import io.trino.sql.relational.SpecialForm;
+import io.trino.sql.tree.QualifiedName;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static io.trino.block.BlockAssertions.assertBlockEquals;
+import static io.trino.block.BlockAssertions.createDoublesBlock;
+import static io.trino.block.BlockAssertions.createTypedLongsBlock;
+import static io.trino.metadata.MetadataManager.createTestMetadataManager;
+import static io.trino.spi.StandardErrorCode.NUMERIC_VALUE_OUT_OF_RANGE;
+import static io.trino.spi.function.OperatorType.ADD;
+import static io.trino.spi.function.OperatorType.DIVIDE;
+import static io.trino.spi.function.OperatorType.EQUAL;
+import static io.trino.spi.function.OperatorType.LESS_THAN;
+import static io.trino.spi.function.OperatorType.LESS_THAN_OR_EQUAL;
+import static io.trino.spi.function.OperatorType.MULTIPLY;
+import static io.trino.spi.function.OperatorType.SUBTRACT;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.BooleanType.BOOLEAN;
+import static io.trino.spi.type.DateType.DATE;
+import static io.trino.spi.type.DoubleType.DOUBLE;
+import static io.trino.spi.type.IntegerType.INTEGER;
+import static io.trino.spi.type.SmallintType.SMALLINT;
+import static io.trino.spi.type.TinyintType.TINYINT;
+import static io.trino.sql.analyzer.TypeSignatureProvider.fromTypes;
+import static io.trino.sql.relational.Expressions.constant;
+import static io.trino.sql.relational.Expressions.constantNull;
+import static io.trino.sql.relational.Expressions.field;
+import static io.trino.sql.relational.SpecialForm.Form.AND;
+import static io.trino.sql.relational.SpecialForm.Form.BETWEEN;
+import static io.trino.sql.relational.SpecialForm.Form.OR;
+import static io.trino.testing.TestingConnectorSession.SESSION;
+import static io.trino.testing.assertions.TrinoExceptionAssert.assertTrinoExceptionThrownBy;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestBatchKernelCompiler
+{
+    private static final Metadata METADATA = createTestMetadataManager();
+    private static final int POSITIONS = 1000;
+
+    private final PageFunctionCompiler generatedCompiler = new PageFunctionCompiler(METADATA, 0, false);
+    private final PageFunctionCompiler batchCompiler = new PageFunctionCompiler(METADATA, 0, true);
+
+    @Test
+    public void testComparisonFilters()
+    {
+        for (Type type : ImmutableList.of(BIGINT, INTEGER, SMALLINT, TINYINT, DATE)) {
+            Page page = new Page(createRandomBlock(type, 0), createRandomBlock(type, 1));
+            for (long value : ImmutableList.of(-100L, -3L, 0L, 7L, 100L)) {
+                RowExpression constant = constant(value, type);
+                assertFilter(operator(EQUAL, field(0, type), constant), page);
+                assertFilter(not(operator(EQUAL, field(0, type), constant)), page);
+                assertFilter(not(operator(EQUAL, constant, field(1, type))), page);
+                assertFilter(operator(LESS_THAN, field(0, type), constant), page);
+                assertFilter(operator(LESS_THAN, constant, field(1, type)), page);
+                assertFilter(operator(LESS_THAN_OR_EQUAL, field(1, type), constant), page);
+                assertFilter(operator(LESS_THAN_OR_EQUAL, constant, field(0, type)), page);
+                assertFilter(between(field(0, type), constant(value - 5, type), constant), page);
+            }
+        }
+    }
+
+    @Test
+    public void testConjunctionFilter()
+    {
+        Page page = new Page(createRandomBlock(BIGINT, 0), createRandomBlock(INTEGER, 1), createRandomBlock(DATE, 2));
+        RowExpression filter = new SpecialForm(
+                AND,
+                BOOLEAN,
+                operator(LESS_THAN, constant(-50L, BIGINT), field(0, BIGINT)),
+                new SpecialForm(
+                        AND,
+                        BOOLEAN,
+                        not(operator(EQUAL, field(1, INTEGER), constant(3L, INTEGER))),
+                        between(field(2, DATE), constant(-20L, DATE), constant(60L, DATE))));
+        assertFilter(filter, page);
+        assertFilter(filter, dictionaryPage(page));
+    }
+
+    @Test
+    public void testFilterBoundaries()
+    {
+        Page page = new Page(createTypedLongsBlock(BIGINT, Arrays.asList(Long.MIN_VALUE, -1L, 0L, null, 1L, Long.MAX_VALUE)));
+        assertFilter(operator(LESS_THAN_OR_EQUAL, field(0, BIGINT), constant(Long.MIN_VALUE, BIGINT)), page);
+        assertFilter(operator(LESS_THAN_OR_EQUAL, constant(Long.MAX_VALUE, BIGINT), field(0, BIGINT)), page);
+        assertFilter(operator(EQUAL, field(0, BIGINT), constant(Long.MAX_VALUE, BIGINT)), page);
+        assertFilter(not(operator(EQUAL, field(0, BIGINT), constant(Long.MIN_VALUE, BIGINT))), page);
+
+        // ranges that can not be expressed fall back to generated code
+        assertFilterNotBatched(operator(LESS_THAN, field(0, BIGINT), constant(Long.MIN_VALUE, BIGINT)), page);
+        assertFilterNotBatched(operator(LESS_THAN, constant(Long.MAX_VALUE, BIGINT), field(0, BIGINT)), page);
+        assertFilterNotBatched(between(field(0, BIGINT), constant(1L, BIGINT), constant(0L, BIGINT)), page);
+    }
+
+    @Test
+    public void testUnsupportedFilters()
+    {
+        Page page = new Page(createRandomBlock(BIGINT, 0), createRandomBlock(BIGINT, 1));
+        assertFilterNotBatched(operator(LESS_THAN, field(0, BIGINT), field(1, BIGINT)), page);
+        assertFilterNotBatched(operator(EQUAL, field(0, BIGINT), constantNull(BIGINT)), page);
+        assertFilterNotBatched(new SpecialForm(
+                OR,
+                BOOLEAN,
+                operator(EQUAL, field(0, BIGINT), constant(1L, BIGINT)),
+                operator(EQUAL, field(1, BIGINT), constant(1L, BIGINT))), page);
+        assertFilterNotBatched(new SpecialForm(
+                AND,
+                BOOLEAN,
+                operator(EQUAL, field(0, BIGINT), constant(1L, BIGINT)),
+                operator(EQUAL, field(1, BIGINT), field(0, BIGINT))), page);
+        assertFilterNotBatched(operator(LESS_THAN, field(0, DOUBLE), constant(1.0, DOUBLE)), new Page(createDoublesBlock(0.5, null, 1.5)));
+    }
+
+    @Test
+    public void testArithmeticProjections()
+    {
+        for (Type type : ImmutableList.of(BIGINT, INTEGER)) {
+            Page page = new Page(createRandomBlock(type, 0), createRandomBlock(type, 1));
+            for (OperatorType operator : ImmutableList.of(ADD, SUBTRACT, MULTIPLY)) {
+                assertProjection(operator(operator, field(0, type), field(1, type)), page);
+                assertProjection(operator(operator, field(0, type), constant(-17L, type)), page);
+                assertProjection(operator(operator, constant(23L, type), field(1, type)), page);
+                assertProjection(operator(operator, field(0, type), field(1, type)), dictionaryPage(page));
+            }
+        }
+    }
+
+    @Test
+    public void testUnsupportedProjections()
+    {
+        Page page = new Page(createRandomBlock(BIGINT, 0), createRandomBlock(BIGINT, 1));
+        assertProjectionNotBatched(operator(DIVIDE, field(0, BIGINT), constant(3L, BIGINT)), page);
+        assertProjectionNotBatched(operator(ADD, field(0, BIGINT), constantNull(BIGINT)), page);
+        assertProjectionNotBatched(operator(ADD, field(0, BIGINT), operator(ADD, field(1, BIGINT), constant(1L, BIGINT))), page);
+        assertProjectionNotBatched(
+                operator(ADD, field(0, SMALLINT), constant(1L, SMALLINT)),
+                new Page(createRandomBlock(SMALLINT, 0)));
+    }
+
+    @Test
+    public void testOverflow()
+    {
+        assertOverflow(BIGINT, ADD, Long.MAX_VALUE, 1);
+        assertOverflow(BIGINT, SUBTRACT, Long.MIN_VALUE, 1);
+        assertOverflow(BIGINT, MULTIPLY, Long.MAX_VALUE / 2, 3);
+        assertOverflow(BIGINT, MULTIPLY, Long.MIN_VALUE, -1);
+        assertOverflow(INTEGER, ADD, Integer.MAX_VALUE, 1);
+        assertOverflow(INTEGER, SUBTRACT, Integer.MIN_VALUE, 1);
+        assertOverflow(INTEGER, MULTIPLY, Integer.MAX_VALUE, 2);
+    }
+
+    @Test
+    public void testOverflowInNullPositionIsIgnored()
+    {
+        // the value behind a null position is not visible to the expression
+        Block left = new DictionaryBlock(
+                createTypedLongsBlock(BIGINT, Arrays.asList(Long.MAX_VALUE, null)),
+                new int[] {1, 1});
+        Page page = new Page(left, createTypedLongsBlock(BIGINT, Arrays.asList(1L, 1L)));
+        assertProjection(operator(ADD, field(0, BIGINT), field(1, BIGINT)), page);
+    }
+
+    private void assertOverflow(Type type, OperatorType operator, long left, long right)
+    {
+        Page page = new Page(
+                createTypedLongsBlock(type, Arrays.asList(1L, null, left, 2L)),
+                createTypedLongsBlock(type, Arrays.asList(1L, 1L, right, 2L)));
+        RowExpression projection = operator(operator, field(0, type), field(1, type));
+        PageProjection generated = generatedCompiler.compileProjection(projection, Optional.empty()).get();
+        PageProjection batch = batchCompiler.compileProjection(projection, Optional.empty()).get();
+        assertThat(batch).isInstanceOf(BatchArithmeticPageProjection.class);
+
+        assertThatThrownBy(() -> project(generated, page))
+                .isInstanceOf(TrinoException.class)
+                .satisfies(expected -> assertTrinoExceptionThrownBy(() -> project(batch, page))
+                        .hasErrorCode(NUMERIC_VALUE_OUT_OF_RANGE)
+                        .hasMessage(expected.getMessage()));
+    }
+
+    private void assertFilter(RowExpression filter, Page page)
+    {
+        PageFilter generated = generatedCompiler.compileFilter(filter, Optional.empty()).get();
+        PageFilter batch = batchCompiler.compileFilter(filter, Optional.empty()).get();
+        assertTrue(batch instanceof BatchComparisonPageFilter, batch.toString());
+        assertEquals(batch.getInputChannels().getInputChannels(), generated.getInputChannels().getInputChannels());
+
+        Page filterPage = batch.getInputChannels().getInputChannels(page);
+        assertEquals(toPositions(batch.filter(SESSION, filterPage)), toPositions(generated.filter(SESSION, filterPage)));
+        // filters are reused across pages
+        Page region = filterPage.getRegion(0, filterPage.getPositionCount() / 2);
+        assertEquals(toPositions(batch.filter(SESSION, region)), toPositions(generated.filter(SESSION, region)));
+    }
+
+    private void assertFilterNotBatched(RowExpression filter, Page page)
+    {
+        PageFilter batch = batchCompiler.compileFilter(filter, Optional.empty()).get();
+        assertFalse(batch instanceof BatchComparisonPageFilter, batch.toString());
+        // the fallback still has to work
+        batch.filter(SESSION, batch.getInputChannels().getInputChannels(page));
+    }
+
+    private void assertProjection(RowExpression projection, Page page)
+    {
+        PageProjection generated = generatedCompiler.compileProjection(projection, Optional.empty()).get();
+        PageProjection batch = batchCompiler.compileProjection(projection, Optional.empty()).get();
+        assertTrue(batch instanceof BatchArithmeticPageProjection, batch.toString());
+
+        Page projectionPage = batch.getInputChannels().getInputChannels(page);
+        assertBlockEquals(projection.getType(), project(batch, projectionPage), project(generated, projectionPage));
+
+        if (page.getPositionCount() < 20) {
+            return;
+        }
+        int[] positions = new int[page.getPositionCount() / 3];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = i * 3;
+        }
+        SelectedPositions list = SelectedPositions.positionsList(positions, 1, positions.length - 1);
+        assertBlockEquals(projection.getType(), project(batch, projectionPage, list), project(generated, projectionPage, list));
+        SelectedPositions range = SelectedPositions.positionsRange(5, page.getPositionCount() - 10);
+        assertBlockEquals(projection.getType(), project(batch, projectionPage, range), project(generated, projectionPage, range));
+    }
+
+    private void assertProjectionNotBatched(RowExpression projection, Page page)
+    {
+        PageProjection batch = batchCompiler.compileProjection(projection, Optional.empty()).get();
+        assertFalse(batch instanceof BatchArithmeticPageProjection, batch.toString());
+        project(batch, batch.getInputChannels().getInputChannels(page));
+    }
+
+    private static Block project(PageProjection projection, Page page)
+    {
+        return project(projection, page, SelectedPositions.positionsRange(0, page.getPositionCount()));
+    }
+
+    private static Block project(PageProjection projection, Page page, SelectedPositions selectedPositions)
+    {
+        Work<Block> work = projection.project(SESSION, new DriverYieldSignal(), page, selectedPositions);
+        assertTrue(work.process());
+        return work.getResult();
+    }
+
+    private static List<Integer> toPositions(SelectedPositions selectedPositions)
+    {
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < selectedPositions.size(); i++) {
+            if (selectedPositions.isList()) {
+                positions.add(selectedPositions.getPositions()[selectedPositions.getOffset() + i]);
+            }
+            else {
+                positions.add(selectedPositions.getOffset() + i);
+            }
+        }
+        return positions;
+    }
+
+    private static Page dictionaryPage(Page page)
+    {
+        Block[] blocks = new Block[page.getChannelCount()];
+        int[] ids = new int[page.getPositionCount()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (i * 7) % ids.length;
+        }
+        for (int channel = 0; channel < blocks.length; channel++) {
+            blocks[channel] = new DictionaryBlock(page.getBlock(channel), ids);
+        }
+        return new Page(blocks);
+    }
+
+    private static Block createRandomBlock(Type type, long seed)
+    {
+        Random random = new Random(seed);
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < POSITIONS; i++) {
+            values.add(random.nextInt(10) == 0 ? null : (long) (random.nextInt(201) - 100));
+        }
+        return createTypedLongsBlock(type, values);
+    }
+
+    private static RowExpression operator(OperatorType operator, RowExpression left, RowExpression right)
+    {
+        return new CallExpression(METADATA.resolveOperator(operator, ImmutableList.of(left.getType(), right.getType())), ImmutableList.of(left, right));
+    }
+
+    private static RowExpression between(RowExpression value, RowExpression min, RowExpression max)
+    {
+        return new SpecialForm(
+                BETWEEN,
+                BOOLEAN,
+                ImmutableList.of(value, min, max),
+                ImmutableList.of(METADATA.resolveOperator(LESS_THAN_OR_EQUAL, ImmutableList.of(value.getType(), value.getType()))));
+    }
+
+    private static RowExpression not(RowExpression expression)
+    {
+        return new CallExpression(METADATA.resolveFunction(QualifiedName.of("not"), fromTypes(BOOLEAN)), ImmutableList.of(expression));
+    }
+}
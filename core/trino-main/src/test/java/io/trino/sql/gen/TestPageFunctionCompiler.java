@@ -17,12 +17,14 @@ import com.google.common.collect.ImmutableList;
 import io.trino.metadata.Metadata;
 import io.trino.operator.DriverYieldSignal;
 import io.trino.operator.Work;
+import io.trino.operator.project.PageFilter;
 import io.trino.operator.project.PageProjection;
 import io.trino.operator.project.SelectedPositions;
 import io.trino.spi.Page;
 import io.trino.spi.block.Block;
 import io.trino.spi.block.BlockBuilder;
 import io.trino.sql.relational.CallExpression;
+import io.trino.sql.relational.RowExpression;
 import org.testng.annotations.Test;
 
 import java.util.Optional;
@@ -31,6 +33,7 @@ import java.util.function.Supplier;
 import static io.trino.metadata.MetadataManager.createTestMetadataManager;
 import static io.trino.spi.StandardErrorCode.NUMERIC_VALUE_OUT_OF_RANGE;
 import static io.trino.spi.function.OperatorType.ADD;
+import static io.trino.spi.function.OperatorType.LESS_THAN;
 import static io.trino.spi.type.BigintType.BIGINT;
 import static io.trino.sql.relational.Expressions.call;
 import static io.trino.sql.relational.Expressions.constant;
@@ -94,31 +97,74 @@ public class TestPageFunctionCompiler
     {
         PageFunctionCompiler cacheCompiler = new PageFunctionCompiler(METADATA, 100);
         assertSame(
-                cacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.empty()),
-                cacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.empty()));
+                workClass(cacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.empty())),
+                workClass(cacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.empty())));
         assertSame(
-                cacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint")),
-                cacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint")));
+                workClass(cacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint"))),
+                workClass(cacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint"))));
         assertSame(
-                cacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint")),
-                cacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint2")));
+                workClass(cacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint"))),
+                workClass(cacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint2"))));
         assertSame(
-                cacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.empty()),
-                cacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint2")));
+                workClass(cacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.empty())),
+                workClass(cacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint2"))));
 
         PageFunctionCompiler noCacheCompiler = new PageFunctionCompiler(METADATA, 0);
         assertNotSame(
-                noCacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.empty()),
-                noCacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.empty()));
+                workClass(noCacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.empty())),
+                workClass(noCacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.empty())));
         assertNotSame(
-                noCacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint")),
-                noCacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint")));
+                workClass(noCacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint"))),
+                workClass(noCacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint"))));
         assertNotSame(
-                noCacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint")),
-                noCacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint2")));
+                workClass(noCacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint"))),
+                workClass(noCacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint2"))));
         assertNotSame(
-                noCacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.empty()),
-                noCacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint2")));
+                workClass(noCacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.empty())),
+                workClass(noCacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.of("hint2"))));
+    }
+
+    @Test
+    public void testCacheIgnoresInputChannels()
+    {
+        PageFunctionCompiler cacheCompiler = new PageFunctionCompiler(METADATA, 100);
+        CallExpression addToSecondChannel = call(
+                METADATA.resolveOperator(ADD, ImmutableList.of(BIGINT, BIGINT)),
+                field(1, BIGINT),
+                constant(10L, BIGINT));
+
+        PageProjection first = cacheCompiler.compileProjection(ADD_10_EXPRESSION, Optional.empty()).get();
+        PageProjection second = cacheCompiler.compileProjection(addToSecondChannel, Optional.empty()).get();
+        Page page = new Page(createLongBlockPage(1, 2).getBlock(0), createLongBlockPage(5, 6).getBlock(0));
+        assertSame(workClass(first, page), workClass(second, page));
+        assertEquals(BIGINT.getLong(project(first, page, SelectedPositions.positionsRange(0, 2)), 1), 12);
+        assertEquals(BIGINT.getLong(project(second, page, SelectedPositions.positionsRange(0, 2)), 1), 16);
+
+        PageFilter firstFilter = cacheCompiler.compileFilter(lessThan5(field(0, BIGINT)), Optional.empty()).get();
+        PageFilter secondFilter = cacheCompiler.compileFilter(lessThan5(field(1, BIGINT)), Optional.empty()).get();
+        assertSame(firstFilter.getClass(), secondFilter.getClass());
+        assertEquals(firstFilter.getInputChannels().getInputChannels(), ImmutableList.of(0));
+        assertEquals(secondFilter.getInputChannels().getInputChannels(), ImmutableList.of(1));
+        assertEquals(firstFilter.filter(SESSION, page.getColumns(0)).size(), 2);
+        assertEquals(secondFilter.filter(SESSION, page.getColumns(1)).size(), 0);
+    }
+
+    private static CallExpression lessThan5(RowExpression expression)
+    {
+        return call(
+                METADATA.resolveOperator(LESS_THAN, ImmutableList.of(BIGINT, BIGINT)),
+                expression,
+                constant(5L, BIGINT));
+    }
+
+    private static Class<?> workClass(Supplier<PageProjection> projectionSupplier)
+    {
+        return workClass(projectionSupplier.get(), createLongBlockPage(0));
+    }
+
+    private static Class<?> workClass(PageProjection projection, Page page)
+    {
+        return projection.project(SESSION, new DriverYieldSignal(), page, SelectedPositions.positionsRange(0, 1)).getClass();
     }
 
     private Block project(PageProjection projection, Page page, SelectedPositions selectedPositions)
@@ -18,6 +18,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.ListenableFuture;
+import io.trino.spi.predicate.BloomFilter;
 import io.trino.spi.predicate.Domain;
 import io.trino.spi.predicate.TupleDomain;
 import io.trino.sql.analyzer.FeaturesConfig.JoinDistributionType;
@@ -44,6 +45,7 @@ import static io.trino.spi.type.SmallintType.SMALLINT;
 import static io.trino.sql.planner.plan.JoinNode.Type.INNER;
 import static io.trino.testing.assertions.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class TestLocalDynamicFilterConsumer
         extends BasePlanTest
@@ -76,6 +78,68 @@ public class TestLocalDynamicFilterConsumer
                 new DynamicFilterId("123"), Domain.singleValue(INTEGER, 7L)));
     }
 
+    @Test
+    public void testBloomFilters()
+            throws Exception
+    {
+        DynamicFilterId filterId = new DynamicFilterId("123");
+        LocalDynamicFilterConsumer filter = new LocalDynamicFilterConsumer(
+                ImmutableMap.of(filterId, 0),
+                ImmutableMap.of(filterId, BIGINT),
+                3,
+                true);
+        Consumer<TupleDomain<DynamicFilterId>> consumer = filter.getTupleDomainConsumer();
+        Consumer<Map<DynamicFilterId, BloomFilter>> bloomFilterConsumer = filter.getBloomFilterConsumer().orElseThrow();
+        ListenableFuture<Map<DynamicFilterId, BloomFilter>> result = filter.getBloomFilters();
+
+        // partition which became too large
+        BloomFilter first = BloomFilter.create(BIGINT, 1024);
+        first.add(1L);
+        bloomFilterConsumer.accept(ImmutableMap.of(filterId, first));
+        consumer.accept(TupleDomain.all());
+        // partition with exact values
+        bloomFilterConsumer.accept(ImmutableMap.of());
+        consumer.accept(TupleDomain.withColumnDomains(ImmutableMap.of(filterId, Domain.multipleValues(BIGINT, ImmutableList.of(2L, 3L)))));
+        assertFalse(result.isDone());
+        // partition which became too large
+        BloomFilter second = BloomFilter.create(BIGINT, 1024);
+        second.add(4L);
+        consumer.accept(TupleDomain.all());
+        assertFalse(result.isDone());
+        bloomFilterConsumer.accept(ImmutableMap.of(filterId, second));
+
+        BloomFilter merged = result.get().get(filterId);
+        assertTrue(merged.mightContain(1L));
+        assertTrue(merged.mightContain(2L));
+        assertTrue(merged.mightContain(3L));
+        assertTrue(merged.mightContain(4L));
+        assertFalse(merged.mightContain(5L));
+        // partition Bloom filters are not modified
+        assertFalse(first.mightContain(4L));
+    }
+
+    @Test
+    public void testNoBloomFiltersWhenCollectedExactly()
+            throws Exception
+    {
+        DynamicFilterId filterId = new DynamicFilterId("123");
+        LocalDynamicFilterConsumer filter = new LocalDynamicFilterConsumer(
+                ImmutableMap.of(filterId, 0),
+                ImmutableMap.of(filterId, BIGINT),
+                1,
+                true);
+        filter.getBloomFilterConsumer().orElseThrow().accept(ImmutableMap.of());
+        filter.getTupleDomainConsumer().accept(TupleDomain.withColumnDomains(ImmutableMap.of(filterId, Domain.singleValue(BIGINT, 1L))));
+        assertEquals(filter.getBloomFilters().get(), ImmutableMap.of());
+
+        LocalDynamicFilterConsumer disabled = new LocalDynamicFilterConsumer(
+                ImmutableMap.of(filterId, 0),
+                ImmutableMap.of(filterId, BIGINT),
+                1);
+        assertFalse(disabled.getBloomFilterConsumer().isPresent());
+        assertEquals(disabled.getBloomFilters().get(), ImmutableMap.of());
+    }
+
     @Test
     public void testShortCircuitOnAllTupleDomain()
             throws Exception
@@ -247,7 +311,8 @@ public class TestLocalDynamicFilterConsumer
                 joinNode,
                 ImmutableList.of(BIGINT, INTEGER, SMALLINT),
                 1,
-                ImmutableSet.of(filter1, filter3));
+                ImmutableSet.of(filter1, filter3),
+                false);
         assertEquals(consumer.getBuildChannels(), ImmutableMap.of(filter1, 0, filter3, 2));
 
         // make sure domain types got propagated correctly
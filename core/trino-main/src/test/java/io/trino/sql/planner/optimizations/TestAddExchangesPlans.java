@@ -22,6 +22,7 @@ import io.trino.plugin.tpch.TpchConnectorFactory;
 import io.trino.sql.analyzer.FeaturesConfig;
 import io.trino.sql.analyzer.FeaturesConfig.JoinDistributionType;
 import io.trino.sql.analyzer.FeaturesConfig.JoinReorderingStrategy;
+import io.trino.sql.planner.Plan;
 import io.trino.sql.planner.assertions.BasePlanTest;
 import io.trino.sql.planner.assertions.PlanMatchPattern;
 import io.trino.sql.planner.assertions.RowNumberSymbolMatcher;
@@ -39,6 +40,7 @@ import static io.trino.SystemSessionProperties.IGNORE_DOWNSTREAM_PREFERENCES;
 import static io.trino.SystemSessionProperties.JOIN_DISTRIBUTION_TYPE;
 import static io.trino.SystemSessionProperties.JOIN_REORDERING_STRATEGY;
 import static io.trino.SystemSessionProperties.SPILL_ENABLED;
+import static io.trino.SystemSessionProperties.SPREAD_OUTER_JOIN_NULL_KEYS;
 import static io.trino.SystemSessionProperties.TASK_CONCURRENCY;
 import static io.trino.sql.analyzer.FeaturesConfig.JoinDistributionType.PARTITIONED;
 import static io.trino.sql.analyzer.FeaturesConfig.JoinReorderingStrategy.ELIMINATE_CROSS_JOINS;
@@ -61,6 +63,7 @@ import static io.trino.sql.planner.assertions.PlanMatchPattern.sort;
 import static io.trino.sql.planner.assertions.PlanMatchPattern.tableScan;
 import static io.trino.sql.planner.assertions.PlanMatchPattern.topN;
 import static io.trino.sql.planner.assertions.PlanMatchPattern.values;
+import static io.trino.sql.planner.optimizations.PlanNodeSearcher.searchFrom;
 import static io.trino.sql.planner.plan.AggregationNode.Step.PARTIAL;
 import static io.trino.sql.planner.plan.ExchangeNode.Scope.LOCAL;
 import static io.trino.sql.planner.plan.ExchangeNode.Scope.REMOTE;
@@ -69,10 +72,12 @@ import static io.trino.sql.planner.plan.ExchangeNode.Type.REPARTITION;
 import static io.trino.sql.planner.plan.ExchangeNode.Type.REPLICATE;
 import static io.trino.sql.planner.plan.JoinNode.DistributionType.REPLICATED;
 import static io.trino.sql.planner.plan.JoinNode.Type.INNER;
+import static io.trino.sql.planner.plan.JoinNode.Type.LEFT;
 import static io.trino.sql.planner.plan.TopNNode.Step.FINAL;
 import static io.trino.sql.tree.SortItem.NullOrdering.LAST;
 import static io.trino.sql.tree.SortItem.Ordering.ASCENDING;
 import static io.trino.testing.TestingSession.testSessionBuilder;
+import static org.testng.Assert.assertEquals;
 
 public class TestAddExchangesPlans
         extends BasePlanTest
@@ -441,6 +446,90 @@ public class TestAddExchangesPlans
                                         values()))));
     }
 
+    @Test
+    public void testSpreadOuterJoinNullKeys()
+    {
+        String query = "SELECT n.regionkey, count(*) FROM nation n LEFT JOIN region r ON n.regionkey = r.regionkey GROUP BY n.regionkey";
+
+        // the aggregation reuses the partitioning of the join
+        assertPlanWithSession(
+                query,
+                spreadOuterJoinNullKeys(false),
+                false,
+                anyTree(
+                        join(LEFT, ImmutableList.of(equiJoinClause("n_regionkey", "r_regionkey")),
+                                exchange(REMOTE, REPARTITION,
+                                        anyTree(
+                                                tableScan("nation", ImmutableMap.of("n_regionkey", "regionkey")))),
+                                anyTree(
+                                        exchange(REMOTE, REPARTITION,
+                                                anyTree(
+                                                        tableScan("region", ImmutableMap.of("r_regionkey", "regionkey"))))))),
+                plan -> {
+                    assertEquals(countRemoteRepartitions(plan), 2);
+                    assertEquals(countSpreadNullsExchanges(plan), 0);
+                });
+
+        // probe rows with null keys are spread, so the join output is not partitioned on the join keys anymore
+        assertPlanWithSession(
+                query,
+                spreadOuterJoinNullKeys(true),
+                false,
+                anyTree(
+                        exchange(REMOTE, REPARTITION,
+                                anyTree(
+                                        join(LEFT, ImmutableList.of(equiJoinClause("n_regionkey", "r_regionkey")),
+                                                exchange(REMOTE, REPARTITION,
+                                                        anyTree(
+                                                                tableScan("nation", ImmutableMap.of("n_regionkey", "regionkey")))),
+                                                anyTree(
+                                                        exchange(REMOTE, REPARTITION,
+                                                                anyTree(
+                                                                        tableScan("region", ImmutableMap.of("r_regionkey", "regionkey"))))))))),
+                plan -> {
+                    assertEquals(countRemoteRepartitions(plan), 3);
+                    assertEquals(countSpreadNullsExchanges(plan), 1);
+                });
+
+        // inner joins never output probe rows with null keys
+        assertPlanWithSession(
+                "SELECT n.regionkey, count(*) FROM nation n JOIN region r ON n.regionkey = r.regionkey GROUP BY n.regionkey",
+                spreadOuterJoinNullKeys(true),
+                false,
+                anyTree(
+                        join(INNER, ImmutableList.of(equiJoinClause("n_regionkey", "r_regionkey")),
+                                anyTree(
+                                        tableScan("nation", ImmutableMap.of("n_regionkey", "regionkey"))),
+                                anyTree(
+                                        tableScan("region", ImmutableMap.of("r_regionkey", "regionkey"))))),
+                plan -> assertEquals(countSpreadNullsExchanges(plan), 0));
+    }
+
+    private static int countRemoteRepartitions(Plan plan)
+    {
+        return searchFrom(plan.getRoot())
+                .where(node -> node instanceof ExchangeNode && ((ExchangeNode) node).getScope() == REMOTE && ((ExchangeNode) node).getType() == REPARTITION)
+                .findAll()
+                .size();
+    }
+
+    private static int countSpreadNullsExchanges(Plan plan)
+    {
+        return searchFrom(plan.getRoot())
+                .where(node -> node instanceof ExchangeNode && ((ExchangeNode) node).getPartitioningScheme().isSpreadNulls())
+                .findAll()
+                .size();
+    }
+
+    private Session spreadOuterJoinNullKeys(boolean enabled)
+    {
+        return Session.builder(getQueryRunner().getDefaultSession())
+                .setSystemProperty(JOIN_DISTRIBUTION_TYPE, JoinDistributionType.PARTITIONED.name())
+                .setSystemProperty(JOIN_REORDERING_STRATEGY, JoinReorderingStrategy.NONE.name())
+                .setSystemProperty(SPREAD_OUTER_JOIN_NULL_KEYS, Boolean.toString(enabled))
+                .build();
+    }
+
     private Session spillEnabledWithJoinDistributionType(JoinDistributionType joinDistributionType)
     {
         return Session.builder(getQueryRunner().getDefaultSession())
@@ -231,6 +231,16 @@ public interface ConnectorMetadata
         return TableStatistics.empty();
     }
 
+    /**
+     * Returns a version of the data of the table, such as a snapshot id, which changes whenever the data
+     * read through the handle changes. Returns empty if the connector can not track changes of the table,
+     * in which case results of queries reading the table are never reused.
+     */
+    default OptionalLong getTableVersion(ConnectorSession session, ConnectorTableHandle tableHandle)
+    {
+        return OptionalLong.empty();
+    }
+
     /**
      * Creates a schema.
      */
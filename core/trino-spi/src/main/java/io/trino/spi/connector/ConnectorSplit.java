@@ -16,6 +16,7 @@ package io.trino.spi.connector;
 import io.trino.spi.HostAddress;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface ConnectorSplit
 {
@@ -24,4 +25,15 @@ public interface ConnectorSplit
     List<HostAddress> getAddresses();
 
     Object getInfo();
+
+    /**
+     * Identifies the data read by this split, if that data never changes, for example
+     * the path, offsets and modification time of an immutable file. Splits with the same
+     * identifier must produce the same rows for the same table handle and columns, which
+     * allows the engine to cache the results of scanning the split.
+     */
+    default Optional<String> getCacheIdentifier()
+    {
+        return Optional.empty();
+    }
 }
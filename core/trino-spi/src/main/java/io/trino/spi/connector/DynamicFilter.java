@@ -13,8 +13,10 @@
  */
 package io.trino.spi.connector;
 
+import io.trino.spi.predicate.BloomFilter;
 import io.trino.spi.predicate.TupleDomain;
 
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 public interface DynamicFilter
@@ -69,4 +71,16 @@ public interface DynamicFilter
     boolean isAwaitable();
 
     TupleDomain<ColumnHandle> getCurrentPredicate();
+
+    /**
+     * Returns Bloom filters over the values allowed for some of the columns.
+     * They complement {@link #getCurrentPredicate()} for columns whose build side had too
+     * many distinct values to be represented exactly, and may become available later than
+     * the predicate. A value rejected by a Bloom filter can be skipped; null values are never
+     * contained in a Bloom filter and are governed by {@link #getCurrentPredicate()} only.
+     */
+    default Map<ColumnHandle, BloomFilter> getBloomFilters()
+    {
+        return Map.of();
+    }
 }
@@ -0,0 +1,286 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.spi.predicate;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import io.airlift.slice.XxHash64;
+import io.trino.spi.block.Block;
+import io.trino.spi.type.CharType;
+import io.trino.spi.type.DecimalType;
+import io.trino.spi.type.TimestampType;
+import io.trino.spi.type.Type;
+import io.trino.spi.type.VarbinaryType;
+import io.trino.spi.type.VarcharType;
+import org.openjdk.jol.info.ClassLayout;
+
+import static io.airlift.slice.SizeOf.sizeOf;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.DateType.DATE;
+import static io.trino.spi.type.IntegerType.INTEGER;
+import static io.trino.spi.type.SmallintType.SMALLINT;
+import static io.trino.spi.type.TinyintType.TINYINT;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A blocked Bloom filter over the native values of a single column.
+ * <p>
+ * Each value selects one 512-bit block and sets one bit in each of the
+ * eight words of that block, so a lookup touches a single cache line.
+ * Only types whose native representation is canonical (two values are
+ * equal if and only if their native representations are equal) are
+ * supported, see {@link #isSupportedType(Type)}.
+ * <p>
+ * Instances are mutable while being built and must not be modified
+ * once they have been published.
+ */
+public final class BloomFilter
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(BloomFilter.class).instanceSize();
+
+    private static final int WORDS_PER_BLOCK = 8;
+    private static final int BYTES_PER_BLOCK = WORDS_PER_BLOCK * Long.BYTES;
+    private static final int MAX_BLOCKS = 1 << 24;
+    private static final int[] SALTS = {
+            0x47b6137b, 0x44974d91, 0x8824ad5b, 0xa2b7289d,
+            0x705495c7, 0x2df1424b, 0x9efc4947, 0x5c6bfb31};
+
+    private final Type type;
+    private final long[] words;
+    private final int blockMask;
+
+    private BloomFilter(Type type, long[] words)
+    {
+        this.type = requireNonNull(type, "type is null");
+        if (!isSupportedType(type)) {
+            throw new IllegalArgumentException("Unsupported type: " + type);
+        }
+        if (words.length < WORDS_PER_BLOCK || Integer.bitCount(words.length) != 1) {
+            throw new IllegalArgumentException("Number of words must be a power of two and at least " + WORDS_PER_BLOCK);
+        }
+        this.words = words;
+        this.blockMask = words.length / WORDS_PER_BLOCK - 1;
+    }
+
+    /**
+     * Creates an empty filter using at most {@code maxSizeInBytes} bytes for the bit set.
+     * The number of blocks is rounded down to a power of two.
+     */
+    public static BloomFilter create(Type type, long maxSizeInBytes)
+    {
+        if (maxSizeInBytes < BYTES_PER_BLOCK) {
+            throw new IllegalArgumentException(format("maxSizeInBytes must be at least %s: %s", BYTES_PER_BLOCK, maxSizeInBytes));
+        }
+        long blocks = Long.highestOneBit(Math.min(maxSizeInBytes / BYTES_PER_BLOCK, MAX_BLOCKS));
+        return new BloomFilter(type, new long[(int) blocks * WORDS_PER_BLOCK]);
+    }
+
+    @JsonCreator
+    public static BloomFilter fromJson(
+            @JsonProperty("type") Type type,
+            @JsonProperty("bits") byte[] bits)
+    {
+        requireNonNull(bits, "bits is null");
+        if (bits.length % Long.BYTES != 0) {
+            throw new IllegalArgumentException("Invalid Bloom filter size: " + bits.length);
+        }
+        long[] words = new long[bits.length / Long.BYTES];
+        Slices.wrappedBuffer(bits).getBytes(0, Slices.wrappedLongArray(words));
+        return new BloomFilter(type, words);
+    }
+
+    @JsonProperty
+    public Type getType()
+    {
+        return type;
+    }
+
+    @JsonProperty
+    public byte[] getBits()
+    {
+        return Slices.wrappedLongArray(words).getBytes();
+    }
+
+    public static boolean isSupportedType(Type type)
+    {
+        if (type.equals(BIGINT) || type.equals(INTEGER) || type.equals(SMALLINT) || type.equals(TINYINT) || type.equals(DATE)) {
+            return true;
+        }
+        if (type instanceof TimestampType) {
+            return type.getJavaType() == long.class;
+        }
+        return type instanceof DecimalType ||
+                type instanceof VarcharType ||
+                type instanceof CharType ||
+                type instanceof VarbinaryType;
+    }
+
+    /**
+     * Adds the value at {@code position}, which must not be null.
+     */
+    public void add(Block block, int position)
+    {
+        insertHash(hash(block, position));
+    }
+
+    public void add(Object nativeValue)
+    {
+        insertHash(hash(requireNonNull(nativeValue, "nativeValue is null")));
+    }
+
+    public void addLong(long value)
+    {
+        insertHash(XxHash64.hash(value));
+    }
+
+    public void addSlice(Slice value)
+    {
+        insertHash(XxHash64.hash(value));
+    }
+
+    /**
+     * Returns false if the value at {@code position} was definitely not added to this filter.
+     * Null positions are reported as not contained.
+     */
+    public boolean mightContain(Block block, int position)
+    {
+        if (block.isNull(position)) {
+            return false;
+        }
+        return mightContainHash(hash(block, position));
+    }
+
+    public boolean mightContain(Object nativeValue)
+    {
+        if (nativeValue == null) {
+            return false;
+        }
+        return mightContainHash(hash(nativeValue));
+    }
+
+    public boolean mightContainLong(long value)
+    {
+        return mightContainHash(XxHash64.hash(value));
+    }
+
+    public boolean mightContainSlice(Slice value)
+    {
+        return mightContainHash(XxHash64.hash(value));
+    }
+
+    /**
+     * Adds all values of {@code other} to this filter. Both filters must have the same type and size.
+     */
+    public void merge(BloomFilter other)
+    {
+        requireNonNull(other, "other is null");
+        if (!type.equals(other.type)) {
+            throw new IllegalArgumentException(format("Cannot merge Bloom filters of different types: %s and %s", type, other.type));
+        }
+        if (other.words.length != words.length) {
+            throw new IllegalArgumentException(format("Cannot merge Bloom filters of different sizes: %s and %s", getSizeInBytes(), other.getSizeInBytes()));
+        }
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    public BloomFilter copy()
+    {
+        return new BloomFilter(type, words.clone());
+    }
+
+    /**
+     * Estimates the probability that {@code mightContain} returns true for a value that was not added,
+     * based on the fraction of bits currently set.
+     */
+    public double getApproximateFalsePositiveProbability()
+    {
+        long bitsSet = 0;
+        for (long word : words) {
+            bitsSet += Long.bitCount(word);
+        }
+        double fillRatio = (double) bitsSet / ((long) words.length * Long.SIZE);
+        return Math.pow(fillRatio, WORDS_PER_BLOCK);
+    }
+
+    public long getSizeInBytes()
+    {
+        return (long) words.length * Long.BYTES;
+    }
+
+    public long getRetainedSizeInBytes()
+    {
+        return INSTANCE_SIZE + sizeOf(words);
+    }
+
+    private void insertHash(long hash)
+    {
+        int offset = blockOffset(hash);
+        int key = (int) hash;
+        for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+            words[offset + i] |= 1L << ((key * SALTS[i]) >>> 26);
+        }
+    }
+
+    private boolean mightContainHash(long hash)
+    {
+        int offset = blockOffset(hash);
+        int key = (int) hash;
+        for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+            if ((words[offset + i] & (1L << ((key * SALTS[i]) >>> 26))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int blockOffset(long hash)
+    {
+        return ((int) (hash >>> 32) & blockMask) * WORDS_PER_BLOCK;
+    }
+
+    private long hash(Block block, int position)
+    {
+        Class<?> javaType = type.getJavaType();
+        if (javaType == long.class) {
+            return XxHash64.hash(type.getLong(block, position));
+        }
+        if (javaType == Slice.class) {
+            return XxHash64.hash(type.getSlice(block, position));
+        }
+        throw new IllegalStateException("Unsupported type: " + type);
+    }
+
+    private long hash(Object nativeValue)
+    {
+        Class<?> javaType = type.getJavaType();
+        if (javaType == long.class) {
+            return XxHash64.hash((long) nativeValue);
+        }
+        if (javaType == Slice.class) {
+            return XxHash64.hash((Slice) nativeValue);
+        }
+        throw new IllegalStateException("Unsupported type: " + type);
+    }
+
+    @Override
+    public String toString()
+    {
+        return format("BloomFilter{type=%s, sizeInBytes=%s}", type, getSizeInBytes());
+    }
+}
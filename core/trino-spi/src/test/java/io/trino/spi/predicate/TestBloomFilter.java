@@ -0,0 +1,151 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.spi.predicate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import io.airlift.json.ObjectMapperProvider;
+import io.trino.spi.block.Block;
+import io.trino.spi.block.BlockBuilder;
+import io.trino.spi.type.TestingTypeDeserializer;
+import io.trino.spi.type.TestingTypeManager;
+import io.trino.spi.type.Type;
+import org.testng.annotations.Test;
+
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.DoubleType.DOUBLE;
+import static io.trino.spi.type.IntegerType.INTEGER;
+import static io.trino.spi.type.RealType.REAL;
+import static io.trino.spi.type.TimestampType.TIMESTAMP_MILLIS;
+import static io.trino.spi.type.TimestampType.TIMESTAMP_NANOS;
+import static io.trino.spi.type.TimestampWithTimeZoneType.TIMESTAMP_TZ_MILLIS;
+import static io.trino.spi.type.VarcharType.VARCHAR;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestBloomFilter
+{
+    @Test
+    public void testSupportedTypes()
+    {
+        assertTrue(BloomFilter.isSupportedType(BIGINT));
+        assertTrue(BloomFilter.isSupportedType(INTEGER));
+        assertTrue(BloomFilter.isSupportedType(VARCHAR));
+        assertTrue(BloomFilter.isSupportedType(TIMESTAMP_MILLIS));
+        assertFalse(BloomFilter.isSupportedType(TIMESTAMP_NANOS));
+        assertFalse(BloomFilter.isSupportedType(TIMESTAMP_TZ_MILLIS));
+        assertFalse(BloomFilter.isSupportedType(DOUBLE));
+        assertFalse(BloomFilter.isSupportedType(REAL));
+
+        assertThatThrownBy(() -> BloomFilter.create(DOUBLE, 1024))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unsupported type: double");
+    }
+
+    @Test
+    public void testSize()
+    {
+        assertEquals(BloomFilter.create(BIGINT, 64).getSizeInBytes(), 64);
+        assertEquals(BloomFilter.create(BIGINT, 1000).getSizeInBytes(), 512);
+        assertEquals(BloomFilter.create(BIGINT, 1024 * 1024).getSizeInBytes(), 1024 * 1024);
+        assertThatThrownBy(() -> BloomFilter.create(BIGINT, 63))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("maxSizeInBytes must be at least 64: 63");
+    }
+
+    @Test
+    public void testNoFalseNegatives()
+    {
+        BloomFilter filter = BloomFilter.create(BIGINT, 64 * 1024);
+        for (long value = 0; value < 10_000; value++) {
+            filter.add(value * 7);
+        }
+        for (long value = 0; value < 10_000; value++) {
+            assertTrue(filter.mightContain(value * 7));
+        }
+        int falsePositives = 0;
+        for (long value = 0; value < 10_000; value++) {
+            if (filter.mightContain(value * 7 + 1)) {
+                falsePositives++;
+            }
+        }
+        // 52 bits per value
+        assertTrue(falsePositives < 100, "too many false positives: " + falsePositives);
+        assertTrue(filter.getApproximateFalsePositiveProbability() < 0.01);
+        assertFalse(filter.mightContain(null));
+    }
+
+    @Test
+    public void testBlockPositions()
+    {
+        BloomFilter filter = BloomFilter.create(VARCHAR, 1024);
+        filter.add(utf8Slice("apple"));
+        filter.add(utf8Slice("banana"));
+
+        BlockBuilder blockBuilder = VARCHAR.createBlockBuilder(null, 3);
+        VARCHAR.writeSlice(blockBuilder, utf8Slice("banana"));
+        blockBuilder.appendNull();
+        VARCHAR.writeSlice(blockBuilder, utf8Slice("apple"));
+        Block block = blockBuilder.build();
+
+        assertTrue(filter.mightContain(block, 0));
+        assertFalse(filter.mightContain(block, 1));
+        assertTrue(filter.mightContain(block, 2));
+
+        BloomFilter other = BloomFilter.create(VARCHAR, 1024);
+        other.add(block, 0);
+        assertTrue(other.mightContain(utf8Slice("banana")));
+    }
+
+    @Test
+    public void testMerge()
+    {
+        BloomFilter first = BloomFilter.create(BIGINT, 1024);
+        first.add(1L);
+        BloomFilter second = BloomFilter.create(BIGINT, 1024);
+        second.add(2L);
+
+        BloomFilter merged = first.copy();
+        merged.merge(second);
+        assertTrue(merged.mightContain(1L));
+        assertTrue(merged.mightContain(2L));
+        assertFalse(first.mightContain(2L));
+
+        assertThatThrownBy(() -> first.merge(BloomFilter.create(BIGINT, 2048)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cannot merge Bloom filters of different sizes: 1024 and 2048");
+        assertThatThrownBy(() -> first.merge(BloomFilter.create(INTEGER, 1024)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cannot merge Bloom filters of different types: bigint and integer");
+    }
+
+    @Test
+    public void testJsonSerialization()
+            throws Exception
+    {
+        ObjectMapper mapper = new ObjectMapperProvider().get()
+                .registerModule(new SimpleModule()
+                        .addDeserializer(Type.class, new TestingTypeDeserializer(new TestingTypeManager())));
+
+        BloomFilter filter = BloomFilter.create(BIGINT, 1024);
+        filter.add(42L);
+        BloomFilter copy = mapper.readValue(mapper.writeValueAsString(filter), BloomFilter.class);
+        assertEquals(copy.getType(), BIGINT);
+        assertEquals(copy.getBits(), filter.getBits());
+        assertTrue(copy.mightContain(42L));
+    }
+}
@@ -253,6 +253,22 @@ public class HiveSplit
                 .build();
     }
 
+    @Override
+    public Optional<String> getCacheIdentifier()
+    {
+        // rows of transactional tables depend on the delete deltas as well
+        if (acidInfo.isPresent()) {
+            return Optional.empty();
+        }
+        return Optional.of(String.join(":",
+                path,
+                String.valueOf(start),
+                String.valueOf(length),
+                String.valueOf(fileModifiedTime),
+                partitionName,
+                String.valueOf(bucketNumber)));
+    }
+
     @Override
     public String toString()
     {
@@ -794,6 +794,16 @@ public class IcebergMetadata
         return TableStatisticsMaker.getTableStatistics(typeManager, constraint, handle, icebergTable);
     }
 
+    @Override
+    public OptionalLong getTableVersion(ConnectorSession session, ConnectorTableHandle tableHandle)
+    {
+        IcebergTableHandle handle = (IcebergTableHandle) tableHandle;
+        if (handle.getTableType() != DATA || handle.getSnapshotId().isEmpty()) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(handle.getSnapshotId().get());
+    }
+
     private Optional<Long> getSnapshotId(org.apache.iceberg.Table table, Optional<Long> snapshotId)
     {
         return snapshotIds.computeIfAbsent(table.toString(), ignored -> snapshotId
@@ -80,6 +80,7 @@ public class MemoryMetadata
     private final AtomicLong nextTableId = new AtomicLong();
     private final Map<SchemaTableName, Long> tableIds = new HashMap<>();
     private final Map<Long, TableInfo> tables = new HashMap<>();
+    private final Map<Long, Long> tableVersions = new HashMap<>();
     private final Map<SchemaTableName, ConnectorViewDefinition> views = new HashMap<>();
 
     @Inject
@@ -199,6 +200,7 @@ public class MemoryMetadata
     {
         MemoryTableHandle handle = (MemoryTableHandle) tableHandle;
         TableInfo info = tables.remove(handle.getId());
+        tableVersions.remove(handle.getId());
         if (info != null) {
             tableIds.remove(info.getSchemaTableName());
         }
@@ -373,6 +375,14 @@ public class MemoryMetadata
         }
 
         tables.put(tableId, new TableInfo(tableId, info.getSchemaName(), info.getTableName(), info.getColumns(), dataFragments));
+        tableVersions.merge(tableId, 1L, Long::sum);
+    }
+
+    @Override
+    public synchronized OptionalLong getTableVersion(ConnectorSession session, ConnectorTableHandle tableHandle)
+    {
+        MemoryTableHandle handle = (MemoryTableHandle) tableHandle;
+        return OptionalLong.of(tableVersions.getOrDefault(handle.getId(), 0L));
     }
 
     @Override
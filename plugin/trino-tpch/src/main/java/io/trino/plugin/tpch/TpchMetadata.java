@@ -69,6 +69,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -281,6 +282,13 @@ public class TpchMetadata
                 .orElse(TableStatistics.empty());
     }
 
+    @Override
+    public OptionalLong getTableVersion(ConnectorSession session, ConnectorTableHandle tableHandle)
+    {
+        // generated data never changes
+        return OptionalLong.of(0);
+    }
+
     private Map<TpchColumn<?>, List<Object>> getColumnValuesRestrictions(TpchTable<?> tpchTable, Constraint constraint)
     {
         TupleDomain<ColumnHandle> constraintSummary = constraint.getSummary();
@@ -21,6 +21,7 @@ import io.trino.spi.connector.ConnectorSplit;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkState;
@@ -79,6 +80,13 @@ public class TpchSplit
         return addresses;
     }
 
+    @Override
+    public Optional<String> getCacheIdentifier()
+    {
+        // generated data never changes
+        return Optional.of(partNumber + "/" + totalParts);
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -46,6 +46,7 @@ public class BenchmarkSuite
                 new HashAggregationBenchmark(localQueryRunner),
                 new PredicateFilterBenchmark(localQueryRunner),
                 new RawStreamingBenchmark(localQueryRunner),
+                new ExchangeBenchmark(localQueryRunner),
                 new Top100Benchmark(localQueryRunner),
                 new OrderByBenchmark(localQueryRunner),
                 new HashBuildBenchmark(localQueryRunner),
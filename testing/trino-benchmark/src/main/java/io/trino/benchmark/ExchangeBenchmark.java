@@ -0,0 +1,167 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trino.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import io.trino.execution.buffer.PagesSerde;
+import io.trino.execution.buffer.PagesSerdeFactory;
+import io.trino.execution.buffer.SerializedPage;
+import io.trino.operator.DriverContext;
+import io.trino.operator.Operator;
+import io.trino.operator.OperatorContext;
+import io.trino.operator.OperatorFactory;
+import io.trino.spi.Page;
+import io.trino.sql.planner.plan.PlanNodeId;
+import io.trino.testing.LocalQueryRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkState;
+import static io.trino.benchmark.BenchmarkQueryRunner.createLocalQueryRunner;
+import static io.trino.execution.buffer.PagesSerdeUtil.readSerializedPagesFrom;
+import static io.trino.execution.buffer.PagesSerdeUtil.writeSerializedPagesTo;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Measures the throughput of the exchange page transport: pages are serialized, written to a stream
+ * and read back from it the way worker output buffers and exchange clients do, and then deserialized.
+ */
+public class ExchangeBenchmark
+        extends AbstractSimpleOperatorBenchmark
+{
+    public ExchangeBenchmark(LocalQueryRunner localQueryRunner)
+    {
+        super(localQueryRunner, "exchange", 10, 50);
+    }
+
+    @Override
+    protected List<? extends OperatorFactory> createOperatorFactories()
+    {
+        OperatorFactory tableScanOperator = createTableScanOperator(0, new PlanNodeId("test"), "lineitem", "orderkey", "partkey", "quantity", "extendedprice", "shipdate", "comment");
+        PagesSerdeFactory serdeFactory = new PagesSerdeFactory(localQueryRunner.getMetadata().getBlockEncodingSerde(), true);
+        return ImmutableList.of(tableScanOperator, new ExchangeOperatorFactory(1, new PlanNodeId("test"), serdeFactory));
+    }
+
+    private static class ExchangeOperatorFactory
+            implements OperatorFactory
+    {
+        private final int operatorId;
+        private final PlanNodeId planNodeId;
+        private final PagesSerdeFactory serdeFactory;
+
+        public ExchangeOperatorFactory(int operatorId, PlanNodeId planNodeId, PagesSerdeFactory serdeFactory)
+        {
+            this.operatorId = operatorId;
+            this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
+            this.serdeFactory = requireNonNull(serdeFactory, "serdeFactory is null");
+        }
+
+        @Override
+        public Operator createOperator(DriverContext driverContext)
+        {
+            OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, ExchangeOperator.class.getSimpleName());
+            return new ExchangeOperator(operatorContext, serdeFactory.createPagesSerde());
+        }
+
+        @Override
+        public void noMoreOperators()
+        {
+        }
+
+        @Override
+        public OperatorFactory duplicate()
+        {
+            return new ExchangeOperatorFactory(operatorId, planNodeId, serdeFactory);
+        }
+    }
+
+    private static class ExchangeOperator
+            implements Operator
+    {
+        private final OperatorContext operatorContext;
+        private final PagesSerde serde;
+        private final PagesSerde.PagesSerdeContext serdeContext;
+        private Page outputPage;
+        private boolean finishing;
+
+        public ExchangeOperator(OperatorContext operatorContext, PagesSerde serde)
+        {
+            this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
+            this.serde = requireNonNull(serde, "serde is null");
+            this.serdeContext = serde.newContext();
+        }
+
+        @Override
+        public OperatorContext getOperatorContext()
+        {
+            return operatorContext;
+        }
+
+        @Override
+        public boolean needsInput()
+        {
+            return !finishing && outputPage == null;
+        }
+
+        @Override
+        public void addInput(Page page)
+        {
+            checkState(needsInput(), "Operator does not need input");
+            try {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                writeSerializedPagesTo(output, ImmutableList.of(serde.serialize(serdeContext, page)));
+                List<SerializedPage> pages = readSerializedPagesFrom(new ByteArrayInputStream(output.toByteArray()));
+                outputPage = serde.deserialize(serdeContext, pages.get(0));
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Page getOutput()
+        {
+            Page page = outputPage;
+            outputPage = null;
+            return page;
+        }
+
+        @Override
+        public void finish()
+        {
+            finishing = true;
+        }
+
+        @Override
+        public boolean isFinished()
+        {
+            return finishing && outputPage == null;
+        }
+
+        @Override
+        public void close()
+        {
+            serdeContext.close();
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        new ExchangeBenchmark(createLocalQueryRunner()).runBenchmark(new SimpleLineBenchmarkResultWriter(System.out));
+    }
+}
@@ -13,6 +13,7 @@
  */
 package io.trino.tests;
 
+import com.google.common.collect.ImmutableSet;
 import io.trino.Session;
 import io.trino.client.ClientCapabilities;
 import io.trino.dispatcher.DispatchManager;
@@ -21,29 +22,58 @@ import io.trino.execution.QueryManager;
 import io.trino.execution.QueryState;
 import io.trino.server.BasicQueryInfo;
 import io.trino.server.protocol.Slug;
+import io.trino.spi.Plugin;
 import io.trino.spi.QueryId;
 import io.trino.spi.TrinoException;
+import io.trino.spi.function.Description;
+import io.trino.spi.function.ScalarFunction;
+import io.trino.spi.function.SqlType;
+import io.trino.spi.type.StandardTypes;
+import io.trino.sql.planner.plan.JoinNode;
 import io.trino.testing.DistributedQueryRunner;
+import io.trino.testing.MaterializedResult;
+import io.trino.testing.ResultWithQueryId;
 import io.trino.testing.TestingSessionContext;
 import io.trino.tests.tpch.TpchQueryRunnerBuilder;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static io.trino.SessionTestUtils.TEST_SESSION;
+import static io.trino.SystemSessionProperties.ADAPTIVE_JOIN_REPLANNING_ENABLED;
+import static io.trino.SystemSessionProperties.HISTORY_BASED_STATISTICS_ENABLED;
+import static io.trino.SystemSessionProperties.JOIN_DISTRIBUTION_TYPE;
+import static io.trino.SystemSessionProperties.JOIN_MAX_BROADCAST_TABLE_SIZE;
+import static io.trino.SystemSessionProperties.QUERY_RETRY_ATTEMPTS;
+import static io.trino.SystemSessionProperties.RETRY_POLICY;
 import static io.trino.execution.QueryState.FAILED;
+import static io.trino.execution.QueryState.FINISHED;
 import static io.trino.execution.QueryState.RUNNING;
+import static io.trino.execution.StageInfo.getAllStages;
 import static io.trino.execution.TestQueryRunnerUtil.createQuery;
 import static io.trino.execution.TestQueryRunnerUtil.waitForQueryState;
 import static io.trino.plugin.tpch.TpchMetadata.TINY_SCHEMA_NAME;
 import static io.trino.spi.StandardErrorCode.EXCEEDED_CPU_LIMIT;
 import static io.trino.spi.StandardErrorCode.EXCEEDED_SCAN_LIMIT;
 import static io.trino.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
+import static io.trino.spi.StandardErrorCode.GENERIC_USER_ERROR;
+import static io.trino.spi.StandardErrorCode.REMOTE_TASK_ERROR;
+import static io.trino.sql.planner.optimizations.PlanNodeSearcher.searchFrom;
+import static io.trino.sql.planner.plan.JoinNode.DistributionType.PARTITIONED;
 import static io.trino.testing.TestingSession.testSessionBuilder;
+import static java.lang.Math.max;
+import static java.lang.String.format;
 import static java.util.Arrays.stream;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 @Test(singleThreaded = true)
@@ -56,6 +86,14 @@ public class TestQueryManager
             throws Exception
     {
         queryRunner = TpchQueryRunnerBuilder.builder().build();
+        queryRunner.installPlugin(new Plugin()
+        {
+            @Override
+            public Set<Class<?>> getFunctions()
+            {
+                return ImmutableSet.of(FailingFunctions.class);
+            }
+        });
     }
 
     @AfterClass(alwaysRun = true)
@@ -149,4 +187,110 @@ public class TestQueryManager
             assertEquals(queryInfo.getErrorCode(), EXCEEDED_SCAN_LIMIT.toErrorCode());
         }
     }
+
+    @Test(timeOut = 60_000L)
+    public void testQueryRetry()
+    {
+        Session session = Session.builder(TEST_SESSION)
+                .setSystemProperty(RETRY_POLICY, "QUERY")
+                .build();
+        assertEquals(queryRunner.execute(session, "SELECT count(*) FROM nation").getOnlyValue(), 25L);
+    }
+
+    @Test(timeOut = 60_000L)
+    public void testQueryRetryAfterFailure()
+    {
+        Session session = Session.builder(TEST_SESSION)
+                .setSystemProperty(RETRY_POLICY, "QUERY")
+                .build();
+        FailingFunctions.REMAINING_FAILURES.set(1);
+        ResultWithQueryId<MaterializedResult> result = queryRunner.executeWithQueryId(session, "SELECT count(*) FROM nation WHERE fail_first_invocations(nationkey)");
+        assertEquals(result.getResult().getOnlyValue(), 25L);
+        assertEquals(FailingFunctions.REMAINING_FAILURES.get(), 0);
+
+        QueryInfo queryInfo = queryRunner.getCoordinator().getQueryManager().getFullQueryInfo(result.getQueryId());
+        assertEquals(queryInfo.getState(), FINISHED);
+        // stages of restarted attempts get new ids
+        assertTrue(queryInfo.getOutputStage().orElseThrow().getStageId().getId() > 0);
+    }
+
+    @Test(timeOut = 60_000L)
+    public void testQueryRetriesExhausted()
+            throws Exception
+    {
+        Session session = Session.builder(TEST_SESSION)
+                .setQueryId(queryRunner.getCoordinator().getDispatchManager().createQueryId())
+                .setSystemProperty(RETRY_POLICY, "QUERY")
+                .setSystemProperty(QUERY_RETRY_ATTEMPTS, "2")
+                .build();
+        QueryId queryId = createQuery(queryRunner, session, format("SELECT count(*) FROM nation WHERE fail(%s, 'injected failure ' || name)", REMOTE_TASK_ERROR.toErrorCode().getCode()));
+        waitForQueryState(queryRunner, queryId, FAILED);
+        QueryInfo queryInfo = queryRunner.getCoordinator().getQueryManager().getFullQueryInfo(queryId);
+        assertEquals(queryInfo.getErrorCode(), REMOTE_TASK_ERROR.toErrorCode());
+        // stages of restarted attempts get new ids
+        assertTrue(queryInfo.getOutputStage().orElseThrow().getStageId().getId() > 0);
+    }
+
+    @Test(timeOut = 60_000L)
+    public void testUserErrorIsNotRetried()
+            throws Exception
+    {
+        Session session = Session.builder(TEST_SESSION)
+                .setQueryId(queryRunner.getCoordinator().getDispatchManager().createQueryId())
+                .setSystemProperty(RETRY_POLICY, "QUERY")
+                .build();
+        QueryId queryId = createQuery(queryRunner, session, "SELECT count(*) FROM nation WHERE fail('injected failure ' || name)");
+        waitForQueryState(queryRunner, queryId, FAILED);
+        QueryInfo queryInfo = queryRunner.getCoordinator().getQueryManager().getFullQueryInfo(queryId);
+        assertEquals(queryInfo.getErrorCode(), GENERIC_USER_ERROR.toErrorCode());
+        assertEquals(queryInfo.getOutputStage().orElseThrow().getStageId().getId(), 0);
+    }
+
+    @Test(timeOut = 60_000L)
+    public void testBroadcastJoinReplanning()
+    {
+        // the shipping and receipt dates are correlated, so the build side is about ten times larger than estimated
+        String query = "SELECT count(*), sum(l.quantity) " +
+                "FROM orders o " +
+                "JOIN (SELECT orderkey, quantity FROM lineitem WHERE shipdate < DATE '1992-09-01' AND receiptdate < DATE '1992-10-01') l " +
+                "ON o.orderkey = l.orderkey";
+        Session session = Session.builder(TEST_SESSION)
+                .setSystemProperty(HISTORY_BASED_STATISTICS_ENABLED, "true")
+                .setSystemProperty(ADAPTIVE_JOIN_REPLANNING_ENABLED, "true")
+                .setSystemProperty(JOIN_DISTRIBUTION_TYPE, "AUTOMATIC")
+                .setSystemProperty(JOIN_MAX_BROADCAST_TABLE_SIZE, "32kB")
+                .build();
+        ResultWithQueryId<MaterializedResult> result = queryRunner.executeWithQueryId(session, query);
+
+        QueryInfo queryInfo = queryRunner.getCoordinator().getQueryManager().getFullQueryInfo(result.getQueryId());
+        // stages of the new plan get new ids
+        assertTrue(queryInfo.getOutputStage().orElseThrow().getStageId().getId() > 0);
+        // the new plan partitions the join
+        List<JoinNode> joins = getAllStages(queryInfo.getOutputStage()).stream()
+                .flatMap(stage -> searchFrom(stage.getPlan().getRoot()).where(JoinNode.class::isInstance).<JoinNode>findAll().stream())
+                .collect(toImmutableList());
+        assertEquals(joins.size(), 1);
+        assertEquals(joins.get(0).getDistributionType(), Optional.of(PARTITIONED));
+
+        Session withoutReplanning = Session.builder(TEST_SESSION)
+                .setSystemProperty(ADAPTIVE_JOIN_REPLANNING_ENABLED, "false")
+                .build();
+        assertEquals(result.getResult().getMaterializedRows(), queryRunner.execute(withoutReplanning, query).getMaterializedRows());
+    }
+
+    public static class FailingFunctions
+    {
+        private static final AtomicInteger REMAINING_FAILURES = new AtomicInteger();
+
+        @Description("Fails with an internal error as long as failures remain, and returns true otherwise")
+        @ScalarFunction(value = "fail_first_invocations", deterministic = false)
+        @SqlType(StandardTypes.BOOLEAN)
+        public static boolean failFirstInvocations(@SqlType(StandardTypes.BIGINT) long value)
+        {
+            if (REMAINING_FAILURES.getAndUpdate(failures -> max(failures - 1, 0)) > 0) {
+                throw new TrinoException(GENERIC_INTERNAL_ERROR, "injected failure " + value);
+            }
+            return true;
+        }
+    }
 }